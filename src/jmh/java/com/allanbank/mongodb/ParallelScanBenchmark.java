@@ -0,0 +1,240 @@
+/*
+ * #%L
+ * ParallelScanBenchmark.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.allanbank.mongodb.bson.Document;
+import com.allanbank.mongodb.bson.DocumentAssignable;
+import com.allanbank.mongodb.bson.builder.BuilderFactory;
+import com.allanbank.mongodb.bson.builder.DocumentBuilder;
+import com.allanbank.mongodb.builder.Find;
+import com.allanbank.mongodb.builder.ParallelScan;
+
+/**
+ * ParallelScanBenchmark compares scanning a large collection with a single
+ * streaming find to a {@link ParallelScanner} over a varying number of
+ * cursors. It requires a MongoDB server, by default on the local host, and
+ * populates the {@code jmh.parallel_scan} collection on the first run.
+ * <p>
+ * Each invocation scans the entire collection so the score is the time per
+ * scan.
+ * </p>
+ *
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParallelScanBenchmark {
+
+    /** The number of documents in the collection. */
+    @Param({ "1000000" })
+    public int documents;
+
+    /** The number of cursors requested for the parallel scan. */
+    @Param({ "2", "4", "8" })
+    public int cursors;
+
+    /** The URI for the MongoDB server. */
+    @Param({ "mongodb://localhost:27017/?maxConnectionCount=8" })
+    public String uri;
+
+    /** The client for the server. */
+    private MongoClient myClient;
+
+    /** The collection to scan. */
+    private MongoCollection myCollection;
+
+    /** The executor for the parallel scan's cursors. */
+    private ExecutorService myExecutor;
+
+    /**
+     * Scans the collection with a {@link ParallelScanner}.
+     *
+     * @return The number of documents scanned.
+     * @throws InterruptedException
+     *             If the benchmark is interrupted.
+     * @throws ExecutionException
+     *             On a failure scanning the collection.
+     */
+    @Benchmark
+    public long parallelScan() throws InterruptedException,
+            ExecutionException {
+        final CountingCallback results = new CountingCallback();
+        final ParallelScanner scanner = new ParallelScanner(myCollection,
+                myExecutor);
+
+        scanner.scan(results,
+                ParallelScan.builder().requestedIteratorCount(cursors)
+                        .batchSize(1000)).get();
+
+        return results.getCount();
+    }
+
+    /**
+     * Creates the client and populates the collection if needed.
+     */
+    @Setup
+    public void setup() {
+        myClient = MongoFactory.createClient(uri);
+        myCollection = myClient.getDatabase("jmh").getCollection(
+                "parallel_scan");
+        myExecutor = Executors.newCachedThreadPool();
+
+        if (myCollection.count() != documents) {
+            myCollection.drop();
+
+            final DocumentBuilder builder = BuilderFactory.start();
+            final DocumentAssignable[] batch = new DocumentAssignable[1000];
+            for (int i = 0; i < documents; i += batch.length) {
+                for (int j = 0; j < batch.length; ++j) {
+                    builder.reset();
+                    builder.add("_id", i + j);
+                    builder.add("name", "document " + (i + j));
+                    builder.add("value", Math.random());
+                    builder.add("padding", new byte[256]);
+                    batch[j] = builder.build();
+                }
+                myCollection.insert(Durability.ACK, batch);
+            }
+        }
+    }
+
+    /**
+     * Scans the collection with a single streaming find.
+     *
+     * @return The number of documents scanned.
+     * @throws InterruptedException
+     *             If the benchmark is interrupted.
+     */
+    @Benchmark
+    public long streamingFind() throws InterruptedException {
+        final CountingCallback results = new CountingCallback();
+
+        myCollection.stream(results, Find.builder().query(Find.ALL)
+                .batchSize(1000));
+        results.await();
+
+        return results.getCount();
+    }
+
+    /**
+     * Closes the client and stops the executor.
+     *
+     * @throws IOException
+     *             On a failure closing the client.
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        myExecutor.shutdownNow();
+        myClient.close();
+    }
+
+    /**
+     * CountingCallback counts the documents streamed to it.
+     *
+     * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+     */
+    private static final class CountingCallback implements
+            StreamCallback<Document> {
+
+        /** The number of documents received. */
+        private final AtomicLong myCount = new AtomicLong(0);
+
+        /** The latch released when the stream is done. */
+        private final CountDownLatch myDone = new CountDownLatch(1);
+
+        /**
+         * Waits for the stream to be done.
+         *
+         * @throws InterruptedException
+         *             If interrupted waiting.
+         */
+        public void await() throws InterruptedException {
+            myDone.await();
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to count the document.
+         * </p>
+         */
+        @Override
+        public void callback(final Document result) {
+            myCount.incrementAndGet();
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to release the latch.
+         * </p>
+         */
+        @Override
+        public void done() {
+            myDone.countDown();
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to release the latch.
+         * </p>
+         */
+        @Override
+        public void exception(final Throwable thrown) {
+            myDone.countDown();
+        }
+
+        /**
+         * Returns the number of documents received.
+         *
+         * @return The number of documents received.
+         */
+        public long getCount() {
+            return myCount.get();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * #%L
+ * BsonBenchmark.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.bson.io;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.allanbank.mongodb.bson.Document;
+
+/**
+ * BsonBenchmark measures the throughput of encoding and decoding each of the
+ * {@link DocumentShape document shapes} with and without the string caches
+ * and with each {@link StringCachePolicy}.
+ * Run with <code>-prof gc</code> to also report the allocation rate.
+ *
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BsonBenchmark {
+
+    /** The shape of the document to encode and decode. */
+    @Param({ "FLAT", "NESTED", "ARRAY", "BINARY" })
+    public DocumentShape shape;
+
+    /** The maximum number of entries in the string caches. Zero disables. */
+    @Param({ "0", "24" })
+    public int stringCacheEntries;
+
+    /** The policy for deciding which strings are cached. */
+    @Param({ "SAMPLING", "TINY_LFU" })
+    public StringCachePolicy stringCachePolicy;
+
+    /** The cache for decoding strings. */
+    private StringDecoderCache myDecoderCache;
+
+    /** The document to encode. */
+    private Document myDocument;
+
+    /** The encoded document to decode. */
+    private byte[] myEncoded;
+
+    /** The buffer to encode into. Reset after each encoding. */
+    private RandomAccessOutputStream myOutput;
+
+    /** The stream to encode with. */
+    private BufferingBsonOutputStream myWriter;
+
+    /**
+     * Decodes the document in place from the encoded bytes.
+     *
+     * @return The decoded document.
+     * @throws IOException
+     *             On a failure decoding the document.
+     */
+    @Benchmark
+    public Document decode() throws IOException {
+        final BsonInputStream in = new BsonInputStream(myEncoded, 0,
+                myEncoded.length, myDecoderCache);
+        return in.readDocument();
+    }
+
+    /**
+     * Encodes the document into the reused buffer.
+     *
+     * @return The number of bytes encoded.
+     * @throws IOException
+     *             On a failure encoding the document.
+     */
+    @Benchmark
+    public long encode() throws IOException {
+        myOutput.reset();
+        myWriter.writeDocument(myDocument);
+        return myOutput.getSize();
+    }
+
+    /**
+     * Creates the document and the caches.
+     *
+     * @throws IOException
+     *             On a failure encoding the document.
+     */
+    @Setup
+    public void setup() throws IOException {
+        myDocument = shape.create();
+        myEncoded = shape.encode();
+
+        myDecoderCache = new StringDecoderCache();
+        myDecoderCache.setMaxCacheEntries(stringCacheEntries);
+        myDecoderCache.setPolicy(stringCachePolicy);
+
+        final StringEncoderCache encoderCache = new StringEncoderCache();
+        encoderCache.setMaxCacheEntries(stringCacheEntries);
+        encoderCache.setPolicy(stringCachePolicy);
+
+        myOutput = new RandomAccessOutputStream(encoderCache);
+        myWriter = new BufferingBsonOutputStream(myOutput);
+    }
+}
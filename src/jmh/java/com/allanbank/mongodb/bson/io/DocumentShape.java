@@ -0,0 +1,135 @@
+/*
+ * #%L
+ * DocumentShape.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.bson.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Date;
+
+import com.allanbank.mongodb.bson.Document;
+import com.allanbank.mongodb.bson.builder.ArrayBuilder;
+import com.allanbank.mongodb.bson.builder.BuilderFactory;
+import com.allanbank.mongodb.bson.builder.DocumentBuilder;
+import com.allanbank.mongodb.bson.element.ObjectId;
+
+/**
+ * DocumentShape provides the representative document shapes used by the
+ * benchmarks.
+ *
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+public enum DocumentShape {
+
+    /** A document with a few large binary elements. */
+    BINARY {
+        @Override
+        public Document create() {
+            final DocumentBuilder builder = BuilderFactory.start();
+            builder.add("_id", new ObjectId());
+            for (int i = 0; i < 4; ++i) {
+                final byte[] data = new byte[16 * 1024];
+                for (int j = 0; j < data.length; ++j) {
+                    data[j] = (byte) (i + j);
+                }
+                builder.add("data_" + i, data);
+            }
+            return builder.build();
+        }
+    },
+
+    /** A document with large arrays of numbers and strings. */
+    ARRAY {
+        @Override
+        public Document create() {
+            final DocumentBuilder builder = BuilderFactory.start();
+            builder.add("_id", new ObjectId());
+
+            final ArrayBuilder numbers = builder.pushArray("numbers");
+            for (int i = 0; i < 1000; ++i) {
+                numbers.add(i);
+            }
+            final ArrayBuilder tags = builder.pushArray("tags");
+            for (int i = 0; i < 100; ++i) {
+                tags.add("tag_" + (i % 10));
+            }
+            return builder.build();
+        }
+    },
+
+    /** A small, flat document typical of a simple record. */
+    FLAT {
+        @Override
+        public Document create() {
+            final DocumentBuilder builder = BuilderFactory.start();
+            builder.add("_id", new ObjectId());
+            builder.add("name", "Robert J. Moore");
+            builder.add("email", "robert.j.moore@example.com");
+            builder.add("age", 42);
+            builder.add("balance", 1234.56);
+            builder.add("visits", 123456789L);
+            builder.add("active", true);
+            builder.add("created", new Date(1420070400000L));
+            builder.add("status", "ACTIVE");
+            builder.addNull("deleted");
+            return builder.build();
+        }
+    },
+
+    /** A deeply nested document. */
+    NESTED {
+        @Override
+        public Document create() {
+            final DocumentBuilder builder = BuilderFactory.start();
+            builder.add("_id", new ObjectId());
+
+            DocumentBuilder level = builder;
+            for (int i = 0; i < 20; ++i) {
+                level.add("depth", i);
+                level.add("label", "level");
+                level = level.push("child");
+            }
+            level.add("leaf", true);
+            return builder.build();
+        }
+    };
+
+    /**
+     * Creates a document of this shape.
+     *
+     * @return The document of this shape.
+     */
+    public abstract Document create();
+
+    /**
+     * Creates and encodes a document of this shape.
+     *
+     * @return The encoded document of this shape.
+     * @throws IOException
+     *             On a failure encoding the document.
+     */
+    public byte[] encode() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final BsonOutputStream writer = new BsonOutputStream(out);
+        writer.writeDocument(create());
+
+        return out.toByteArray();
+    }
+}
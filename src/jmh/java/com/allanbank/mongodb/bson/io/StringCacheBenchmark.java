@@ -0,0 +1,162 @@
+/*
+ * #%L
+ * StringCacheBenchmark.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.bson.io;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * StringCacheBenchmark measures the throughput of decoding the strings for a
+ * field name heavy document through a {@link StringDecoderCache} shared by
+ * several threads, as the receive threads of a client do, with each
+ * {@link StringCachePolicy}. Each document decoded contains a fixed set of
+ * field names and one string value that is never repeated. Run with
+ * <code>-prof gc</code> to also report the allocation rate.
+ *
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(4)
+public class StringCacheBenchmark {
+
+    /** The number of field names in each document. */
+    @Param({ "16", "64" })
+    public int fieldNames;
+
+    /** The policy for deciding which strings are cached. */
+    @Param({ "SAMPLING", "TINY_LFU" })
+    public StringCachePolicy stringCachePolicy;
+
+    /** The cache shared by all of the threads. */
+    private StringDecoderCache myCache;
+
+    /**
+     * Decodes the field names and the unique value for a single document.
+     *
+     * @param state
+     *            The state for the decoding thread.
+     * @return The number of characters decoded.
+     * @throws IOException
+     *             On a failure decoding a string.
+     */
+    @Benchmark
+    public int decode(final DecoderState state) throws IOException {
+        int decoded = 0;
+        for (final byte[] name : state.myNames) {
+            decoded += state.myDecoder.decode(name, 0, name.length).length();
+        }
+
+        final byte[] value = state.nextValue();
+        decoded += state.myDecoder.decode(value, 0, value.length).length();
+
+        return decoded;
+    }
+
+    /**
+     * Creates the shared cache.
+     */
+    @Setup
+    public void setup() {
+        myCache = new StringDecoderCache();
+        myCache.setMaxCacheEntries(fieldNames);
+        myCache.setPolicy(stringCachePolicy);
+    }
+
+    /**
+     * DecoderState holds the decoder and encoded strings for each thread.
+     *
+     * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+     */
+    @State(Scope.Thread)
+    public static class DecoderState {
+
+        /** The decoder for the thread. */
+        private StringDecoder myDecoder;
+
+        /** The encoded field names with a terminal zero byte. */
+        private byte[][] myNames;
+
+        /** The encoded value, rewritten for each document. */
+        private byte[] myValue;
+
+        /** The count of values created. */
+        private int myValueCount;
+
+        /**
+         * Creates the decoder and the encoded field names.
+         *
+         * @param benchmark
+         *            The benchmark with the shared cache.
+         */
+        @Setup
+        public void setup(final StringCacheBenchmark benchmark) {
+            myDecoder = new StringDecoder(benchmark.myCache);
+
+            myNames = new byte[benchmark.fieldNames][];
+            for (int i = 0; i < myNames.length; ++i) {
+                myNames[i] = encode("field_" + i);
+            }
+            myValue = encode("value_0000000000");
+            myValueCount = 0;
+        }
+
+        /**
+         * Returns the next, never repeated, value.
+         *
+         * @return The encoded value.
+         */
+        protected byte[] nextValue() {
+            int count = myValueCount++;
+            for (int i = myValue.length - 2; 6 <= i; --i) {
+                myValue[i] = (byte) ('0' + (count % 10));
+                count /= 10;
+            }
+            return myValue;
+        }
+
+        /**
+         * Encodes the string with a terminal zero byte.
+         *
+         * @param value
+         *            The string to encode.
+         * @return The encoded string.
+         */
+        private byte[] encode(final String value) {
+            final byte[] bytes = new byte[value.length() + 1];
+            for (int i = 0; i < value.length(); ++i) {
+                bytes[i] = (byte) value.charAt(i);
+            }
+            return bytes;
+        }
+    }
+}
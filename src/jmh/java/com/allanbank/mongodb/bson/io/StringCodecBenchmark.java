@@ -0,0 +1,124 @@
+/*
+ * #%L
+ * StringCodecBenchmark.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.bson.io;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * StringCodecBenchmark measures the throughput of encoding and decoding a
+ * single string, without the string caches, for ASCII strings and strings
+ * that end with a non-ASCII character. Run with <code>-prof gc</code> to also
+ * report the allocation rate.
+ *
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class StringCodecBenchmark {
+
+    /** If true the string ends with a non-ASCII character. */
+    @Param({ "false", "true" })
+    public boolean nonAscii;
+
+    /** The number of characters in the string. */
+    @Param({ "8", "32", "256", "4096" })
+    public int stringLength;
+
+    /** The decoder for the string. */
+    private StringDecoder myDecoder;
+
+    /** The encoded string with a terminal zero byte. */
+    private byte[] myEncoded;
+
+    /** The encoder for the string. */
+    private StringEncoder myEncoder;
+
+    /** The buffer to encode into. Reset after each encoding. */
+    private RandomAccessOutputStream myOutput;
+
+    /** The string to encode. */
+    private String myString;
+
+    /**
+     * Decodes the string.
+     *
+     * @return The decoded string.
+     * @throws IOException
+     *             On a failure decoding the string.
+     */
+    @Benchmark
+    public String decode() throws IOException {
+        return myDecoder.decode(myEncoded, 0, myEncoded.length);
+    }
+
+    /**
+     * Encodes the string into the reused buffer.
+     *
+     * @return The number of bytes encoded.
+     * @throws IOException
+     *             On a failure encoding the string.
+     */
+    @Benchmark
+    public long encode() throws IOException {
+        myOutput.reset();
+        myEncoder.encode(myString, myOutput);
+        return myOutput.getSize();
+    }
+
+    /**
+     * Creates the string and the encoder and decoder without caches.
+     */
+    @Setup
+    public void setup() {
+        final StringBuilder builder = new StringBuilder(stringLength);
+        for (int i = 0; i < stringLength; ++i) {
+            builder.append((char) ('a' + (i % 26)));
+        }
+        if (nonAscii) {
+            builder.setCharAt(stringLength - 1, '\u00e9');
+        }
+        myString = builder.toString();
+
+        final byte[] utf8 = myString.getBytes(StringDecoder.UTF8);
+        myEncoded = new byte[utf8.length + 1];
+        System.arraycopy(utf8, 0, myEncoded, 0, utf8.length);
+
+        final StringDecoderCache decoderCache = new StringDecoderCache();
+        decoderCache.setMaxCacheEntries(0);
+        myDecoder = new StringDecoder(decoderCache);
+
+        final StringEncoderCache encoderCache = new StringEncoderCache();
+        encoderCache.setMaxCacheEntries(0);
+        myEncoder = new StringEncoder(encoderCache);
+        myOutput = new RandomAccessOutputStream(encoderCache);
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * #%L
+ * RoundTripBenchmark.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.client.connection.socket;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.allanbank.mongodb.MongoClientConfiguration;
+import com.allanbank.mongodb.bson.io.DocumentShape;
+import com.allanbank.mongodb.bson.io.EndianUtils;
+import com.allanbank.mongodb.bson.io.StringDecoderCache;
+import com.allanbank.mongodb.bson.io.StringEncoderCache;
+import com.allanbank.mongodb.client.ClusterType;
+import com.allanbank.mongodb.client.Message;
+import com.allanbank.mongodb.client.MockSocketServer;
+import com.allanbank.mongodb.client.Operation;
+import com.allanbank.mongodb.client.callback.FutureReplyCallback;
+import com.allanbank.mongodb.client.message.GetLastError;
+import com.allanbank.mongodb.client.metrics.basic.BasicConnectionMetrics;
+import com.allanbank.mongodb.client.metrics.basic.BasicMongoClientMetrics;
+import com.allanbank.mongodb.client.state.Cluster;
+import com.allanbank.mongodb.client.state.Server;
+import com.allanbank.mongodb.client.transport.Transport;
+import com.allanbank.mongodb.client.transport.TransportFactory;
+import com.allanbank.mongodb.client.transport.TransportOutputBuffer;
+import com.allanbank.mongodb.client.transport.bio.one.OneThreadTransportFactory;
+import com.allanbank.mongodb.client.transport.bio.two.TwoThreadTransportFactory;
+import com.allanbank.mongodb.client.transport.nio.NioTransportFactory;
+
+/**
+ * RoundTripBenchmark measures the round trip of a message from
+ * {@link TransportConnection#send} through the transport's receive path back
+ * to the caller's callback against the {@link MockSocketServer}. The server
+ * answers every request with a reply containing a document of the configured
+ * {@link DocumentShape}. Run with <code>-prof gc</code> to also report the
+ * allocation rate; the mock server's allocations are included.
+ *
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RoundTripBenchmark {
+
+    /** The shape of the document in each reply. */
+    @Param({ "FLAT", "NESTED", "ARRAY", "BINARY" })
+    public DocumentShape shape;
+
+    /** The transport to use for the connection. */
+    @Param({ "ONE_THREAD", "TWO_THREAD", "NIO" })
+    public String transport;
+
+    /** The connection being measured. */
+    private TransportConnection myConnection;
+
+    /** The factory for the transport. */
+    private TransportFactory myFactory;
+
+    /** The server replying to each request. */
+    private ReplyingServer myServer;
+
+    /**
+     * Sends a message and waits for the reply.
+     *
+     * @return The reply.
+     * @throws InterruptedException
+     *             If the benchmark is interrupted.
+     * @throws ExecutionException
+     *             On a failure receiving the reply.
+     */
+    @Benchmark
+    public Message roundTrip() throws InterruptedException, ExecutionException {
+        final FutureReplyCallback future = new FutureReplyCallback();
+        myConnection.send(new GetLastError("db", false, false, 0, 0), future);
+        return future.get();
+    }
+
+    /**
+     * Starts the server and connects to it.
+     *
+     * @throws IOException
+     *             On a failure starting the server or connecting.
+     */
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() throws IOException {
+        myServer = new ReplyingServer(shape.encode());
+        myServer.start();
+
+        final MongoClientConfiguration config = new MongoClientConfiguration();
+        final Server server = new Cluster(config, ClusterType.STAND_ALONE)
+                .add(myServer.getInetSocketAddress());
+
+        if ("ONE_THREAD".equals(transport)) {
+            myFactory = new OneThreadTransportFactory();
+        }
+        else if ("NIO".equals(transport)) {
+            myFactory = new NioTransportFactory(1);
+        }
+        else {
+            myFactory = new TwoThreadTransportFactory();
+        }
+
+        myConnection = new TransportConnection(server, config,
+                new BasicConnectionMetrics(new BasicMongoClientMetrics()));
+        myConnection.setTransport((Transport<TransportOutputBuffer>) myFactory
+                .createTransport(server, config, new StringEncoderCache(),
+                        new StringDecoderCache(), myConnection));
+        myConnection.start();
+
+        myServer.waitForClient(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Closes the connection and stops the server.
+     *
+     * @throws IOException
+     *             On a failure closing the connection or server.
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        myConnection.close();
+        myServer.setRunning(false);
+        myServer.close();
+    }
+
+    /**
+     * ReplyingServer provides a {@link MockSocketServer} that answers every
+     * request with the same reply, addressed to the request, and does not
+     * record the requests.
+     *
+     * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+     */
+    private static final class ReplyingServer
+            extends MockSocketServer {
+
+        /**
+         * The reply. The response to field is updated for each request. The
+         * reply is written completely before the next request is read.
+         */
+        private final byte[] myReply;
+
+        /**
+         * Creates a new ReplyingServer.
+         *
+         * @param document
+         *            The encoded document to return in each reply.
+         * @throws IOException
+         *             On a failure opening the server socket.
+         */
+        public ReplyingServer(final byte[] document) throws IOException {
+            super();
+
+            final ByteBuffer header = ByteBuffer.allocate(9 * 4);
+            final IntBuffer buff = header.asIntBuffer();
+            buff.put(0, EndianUtils.swap((7 * 4) + 8 + document.length));
+            buff.put(1, 0);
+            buff.put(2, 0);
+            buff.put(3, EndianUtils.swap(Operation.REPLY.getCode()));
+            buff.put(4, 0);
+            buff.put(5, 0);
+            buff.put(6, 0);
+            buff.put(7, 0);
+            buff.put(8, EndianUtils.swap(1));
+
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            out.write(header.array());
+            out.write(document);
+            myReply = out.toByteArray();
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to return the reply addressed to the request.
+         * </p>
+         */
+        @Override
+        protected byte[] handleRequest(final byte[] request) {
+            // Copy the request id into the response to field.
+            System.arraycopy(request, 4, myReply, 8, 4);
+            return myReply;
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to only yield so the server does not add latency
+         * waiting for the next request.
+         * </p>
+         */
+        @Override
+        protected void sleep() {
+            Thread.yield();
+        }
+    }
+}
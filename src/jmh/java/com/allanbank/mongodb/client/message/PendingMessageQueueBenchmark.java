@@ -0,0 +1,122 @@
+/*
+ * #%L
+ * PendingMessageQueueBenchmark.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.client.message;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.allanbank.mongodb.LockType;
+import com.allanbank.mongodb.client.wait.WaitStrategyType;
+
+/**
+ * PendingMessageQueueBenchmark measures the throughput of the
+ * {@link PendingMessageQueue} with each of the lock types and wait strategies.
+ * Each benchmark thread is a producer and a single background thread consumes
+ * the messages, the same as the connection's receive thread. Run with
+ * <code>-t 1</code>, <code>-t 4</code>, <code>-t 16</code> and
+ * <code>-t 64</code> to see the effect of producer contention.
+ *
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PendingMessageQueueBenchmark {
+
+    /** The size of the queue. Matches the default pending message queue. */
+    private static final int QUEUE_SIZE = 1024;
+
+    /** The lock type or wait strategy to use for the queue. */
+    @Param({ "MUTEX", "LOW_LATENCY_SPIN", "BLOCKING", "BUSY_SPIN", "PARKING",
+            "YIELDING" })
+    public String queueType;
+
+    /** The thread consuming messages. */
+    private Thread myConsumer;
+
+    /** The queue being measured. */
+    private PendingMessageQueue myQueue;
+
+    /**
+     * Sends a message through the queue.
+     *
+     * @throws InterruptedException
+     *             If the benchmark is interrupted.
+     */
+    @Benchmark
+    public void put() throws InterruptedException {
+        myQueue.put(null, null);
+    }
+
+    /**
+     * Creates the queue and starts the consumer.
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        if ("MUTEX".equals(queueType) || "LOW_LATENCY_SPIN".equals(queueType)) {
+            myQueue = new PendingMessageQueue(QUEUE_SIZE,
+                    LockType.valueOf(queueType));
+        }
+        else {
+            myQueue = new PendingMessageQueue(QUEUE_SIZE, WaitStrategyType
+                    .valueOf(queueType).create());
+        }
+
+        myConsumer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                final PendingMessage pm = new PendingMessage();
+                try {
+                    while (!Thread.currentThread().isInterrupted()) {
+                        myQueue.take(pm);
+                    }
+                }
+                catch (final InterruptedException ie) {
+                    // Done.
+                }
+            }
+        }, "PendingMessageQueueBenchmark Consumer");
+        myConsumer.setDaemon(true);
+        myConsumer.start();
+    }
+
+    /**
+     * Stops the consumer.
+     *
+     * @throws InterruptedException
+     *             If interrupted waiting for the consumer to stop.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        myConsumer.interrupt();
+        myConsumer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+}
@@ -26,6 +26,8 @@ import javax.annotation.concurrent.ThreadSafe;
 import com.allanbank.mongodb.bson.Document;
 import com.allanbank.mongodb.bson.DocumentAssignable;
 import com.allanbank.mongodb.bson.Element;
+import com.allanbank.mongodb.bson.codec.Decoder;
+import com.allanbank.mongodb.bson.codec.Encoder;
 import com.allanbank.mongodb.bson.impl.EmptyDocument;
 import com.allanbank.mongodb.builder.Aggregate;
 import com.allanbank.mongodb.builder.BatchedWrite;
@@ -1065,6 +1067,26 @@ public interface AsyncMongoCollection {
     public void findOneAsync(Callback<Document> results,
             DocumentAssignable query) throws MongoDbException;
 
+    /**
+     * Finds a single matching document in the collection and decodes it
+     * directly from its encoded BSON form with the <tt>decoder</tt>.
+     *
+     * @param <T>
+     *            The type of object returned.
+     * @param results
+     *            Callback that will be notified of the decoded object or
+     *            <code>null</code> if no document matched the query.
+     * @param query
+     *            The query document.
+     * @param decoder
+     *            The decoder for the found document.
+     * @throws MongoDbException
+     *             On an error finding the document.
+     */
+    public <T> void findOneAsync(Callback<T> results,
+            DocumentAssignable query, Decoder<T> decoder)
+            throws MongoDbException;
+
     /**
      * Finds a single matching document in the collection.
      * <p>
@@ -1123,6 +1145,24 @@ public interface AsyncMongoCollection {
     public ListenableFuture<Document> findOneAsync(DocumentAssignable query)
             throws MongoDbException;
 
+    /**
+     * Finds a single matching document in the collection and decodes it
+     * directly from its encoded BSON form with the <tt>decoder</tt>.
+     *
+     * @param <T>
+     *            The type of object returned.
+     * @param query
+     *            The query document.
+     * @param decoder
+     *            The decoder for the found document.
+     * @return The first found document's decoded object or <code>null</code>
+     *         if no document matched the query.
+     * @throws MongoDbException
+     *             On an error finding the document.
+     */
+    public <T> ListenableFuture<T> findOneAsync(DocumentAssignable query,
+            Decoder<T> decoder) throws MongoDbException;
+
     /**
      * Finds a single matching document in the collection.
      * <p>
@@ -1476,6 +1516,29 @@ public interface AsyncMongoCollection {
     public void insertAsync(Callback<Integer> results, Durability durability,
             DocumentAssignable... documents) throws MongoDbException;
 
+    /**
+     * Inserts a set of objects into the collection. Each object is encoded
+     * directly to BSON with the <tt>encoder</tt>.
+     * If the encoder does not write an <tt>_id</tt> element for an object
+     * then an {@link com.allanbank.mongodb.bson.element.ObjectId ObjectId}
+     * <tt>_id</tt> is added as the first element of the encoded document.
+     *
+     * @param <T>
+     *            The type of objects to insert.
+     * @param results
+     *            {@link Callback} that will be notified with the results of the
+     *            insert. See {@link #insertAsync(Callback, DocumentAssignable...)}.
+     * @param encoder
+     *            The encoder for the objects.
+     * @param objects
+     *            The objects to add to the collection.
+     * @throws MongoDbException
+     *             On an error inserting the objects.
+     */
+    public <T> void insertAsync(Callback<Integer> results,
+            Encoder<? super T> encoder, Collection<? extends T> objects)
+            throws MongoDbException;
+
     /**
      * Inserts a set of documents into the collection.
      *
@@ -1501,6 +1564,28 @@ public interface AsyncMongoCollection {
     public ListenableFuture<Integer> insertAsync(
             DocumentAssignable... documents) throws MongoDbException;
 
+    /**
+     * Inserts a set of objects into the collection. Each object is encoded
+     * directly to BSON with the <tt>encoder</tt>.
+     * If the encoder does not write an <tt>_id</tt> element for an object
+     * then an {@link com.allanbank.mongodb.bson.element.ObjectId ObjectId}
+     * <tt>_id</tt> is added as the first element of the encoded document.
+     *
+     * @param <T>
+     *            The type of objects to insert.
+     * @param encoder
+     *            The encoder for the objects.
+     * @param objects
+     *            The objects to add to the collection.
+     * @return ListenableFuture that will be updated with the results of the
+     *         insert. See {@link #insertAsync(DocumentAssignable...)}.
+     * @throws MongoDbException
+     *             On an error inserting the objects.
+     */
+    public <T> ListenableFuture<Integer> insertAsync(
+            Encoder<? super T> encoder, Collection<? extends T> objects)
+            throws MongoDbException;
+
     /**
      * Inserts a set of documents into the collection.
      *
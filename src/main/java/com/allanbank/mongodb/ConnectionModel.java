@@ -22,6 +22,7 @@ package com.allanbank.mongodb;
 import com.allanbank.mongodb.client.transport.TransportFactory;
 import com.allanbank.mongodb.client.transport.bio.one.OneThreadTransportFactory;
 import com.allanbank.mongodb.client.transport.bio.two.TwoThreadTransportFactory;
+import com.allanbank.mongodb.client.transport.nio.NioTransportFactory;
 
 /**
  * ConnectionModel provides an enumeration of the connection models that the
@@ -68,7 +69,27 @@ public enum ConnectionModel {
      *
      * @since 1.0.0
      */
-    SENDER_RECEIVER_THREAD(new TwoThreadTransportFactory());
+    SENDER_RECEIVER_THREAD(new TwoThreadTransportFactory()),
+
+    /**
+     * Each connection uses a non-blocking socket channel. The I/O for all of
+     * the connections is handled by a small, fixed pool of selector threads
+     * shared by all of the clients in the JVM. Sender threads write directly to
+     * the channel as long as the write will not block.
+     * <p>
+     * This {@code ConnectionModel} is most useful for applications that open a
+     * large number of connections (e.g., to a large sharded cluster) where a
+     * thread per connection is too expensive.
+     * </p>
+     * <p>
+     * The {@link MongoClientConfiguration#getSocketFactory() socket factory}
+     * must create sockets backed by a {@link java.nio.channels.SocketChannel}.
+     * SSL is not supported.
+     * </p>
+     *
+     * @since 2.1.0
+     */
+    SELECTOR_THREADS(new NioTransportFactory());
 
     /** The {@link TransportFactory} implementing the connection model. */
     private transient final TransportFactory myFactory;
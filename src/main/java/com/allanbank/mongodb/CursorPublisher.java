@@ -0,0 +1,545 @@
+/*
+ * #%L
+ * CursorPublisher.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.allanbank.mongodb.bson.Document;
+import com.allanbank.mongodb.builder.Aggregate;
+import com.allanbank.mongodb.builder.Find;
+import com.allanbank.mongodb.builder.ParallelScan;
+import com.allanbank.mongodb.client.MongoIteratorImpl;
+import com.allanbank.mongodb.client.SimpleMongoIteratorImpl;
+import com.allanbank.mongodb.util.FutureUtils;
+import com.allanbank.mongodb.util.log.Log;
+import com.allanbank.mongodb.util.log.LogFactory;
+
+/**
+ * CursorPublisher publishes the results of a query, aggregation or parallel
+ * scan to subscribers at the rate the subscribers request documents.
+ * <p>
+ * The publisher follows the Reactive Streams model: each call to
+ * {@link #subscribe(StreamCallback)} runs the request against the server and
+ * returns a {@link Subscription}. No documents are delivered until they are
+ * {@link Subscription#request(long) requested} and never more than have been
+ * requested. The end of the results is signaled by
+ * {@link StreamCallback#done()}, even if no more documents are requested, once
+ * the server reports the cursor is exhausted. A failure is signaled by
+ * {@link StreamCallback#exception(Throwable)}. Adapting the publisher to the
+ * {@code org.reactivestreams} interfaces only requires forwarding the calls.
+ * </p>
+ * <p>
+ * The outstanding demand drives the requests to the server: the request is
+ * only started once documents are requested, the size of each batch requested
+ * from the server is limited to the outstanding demand and the next batch is
+ * only requested once the subscriber has requested documents past the current
+ * batch. A slow subscriber slows the cursor instead of buffering batches in
+ * memory.
+ * </p>
+ * <p>
+ * Documents are delivered to the subscriber by a task on the
+ * {@link Executor}. Only a single task is active for a subscription at a time
+ * so the subscriber's callbacks are never invoked concurrently.
+ * </p>
+ *
+ * @api.yes This class is part of the driver's API. Public and protected members
+ *          will be deprecated for at least 1 non-bugfix release (version
+ *          numbers are &lt;major&gt;.&lt;minor&gt;.&lt;bugfix&gt;) before being
+ *          removed or modified.
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+@ThreadSafe
+public class CursorPublisher {
+
+    /**
+     * Creates a publisher for the results of an aggregation.
+     *
+     * @param collection
+     *            The collection to aggregate.
+     * @param aggregate
+     *            The aggregation to run for each subscriber.
+     * @param executor
+     *            The executor for delivering the documents.
+     * @return The publisher for the results of the aggregation.
+     */
+    public static CursorPublisher aggregate(
+            final AsyncMongoCollection collection, final Aggregate aggregate,
+            final Executor executor) {
+        return new CursorPublisher(new CursorSource() {
+            @Override
+            public List<MongoIterator<Document>> open() {
+                return Collections.singletonList(FutureUtils.unwrap(collection
+                        .aggregateAsync(aggregate)));
+            }
+        }, executor);
+    }
+
+    /**
+     * Creates a publisher for the results of a query.
+     *
+     * @param collection
+     *            The collection to query.
+     * @param query
+     *            The query to run for each subscriber.
+     * @param executor
+     *            The executor for delivering the documents.
+     * @return The publisher for the results of the query.
+     */
+    public static CursorPublisher find(final AsyncMongoCollection collection,
+            final Find query, final Executor executor) {
+        return new CursorPublisher(new CursorSource() {
+            @Override
+            public List<MongoIterator<Document>> open() {
+                return Collections.singletonList(FutureUtils.unwrap(collection
+                        .findAsync(query)));
+            }
+        }, executor);
+    }
+
+    /**
+     * Creates a publisher for the results of a parallel scan. The cursors
+     * returned by the scan are published one after the other.
+     *
+     * @param collection
+     *            The collection to scan.
+     * @param parallelScan
+     *            The scan to run for each subscriber.
+     * @param executor
+     *            The executor for delivering the documents.
+     * @return The publisher for the results of the scan.
+     */
+    public static CursorPublisher parallelScan(
+            final AsyncMongoCollection collection,
+            final ParallelScan parallelScan, final Executor executor) {
+        return new CursorPublisher(new CursorSource() {
+            @Override
+            public List<MongoIterator<Document>> open() {
+                final Collection<MongoIterator<Document>> cursors = FutureUtils
+                        .unwrap(collection.parallelScanAsync(parallelScan));
+                return new ArrayList<MongoIterator<Document>>(cursors);
+            }
+        }, executor);
+    }
+
+    /** The executor for delivering the documents. */
+    private final Executor myExecutor;
+
+    /** The source of the cursors for each subscriber. */
+    private final CursorSource mySource;
+
+    /**
+     * Creates a new CursorPublisher.
+     *
+     * @param source
+     *            The source of the cursors for each subscriber.
+     * @param executor
+     *            The executor for delivering the documents.
+     */
+    private CursorPublisher(final CursorSource source, final Executor executor) {
+        mySource = source;
+        myExecutor = executor;
+    }
+
+    /**
+     * Subscribes to the results. The request is sent to the server once the
+     * first documents are {@link Subscription#request(long) requested}.
+     *
+     * @param subscriber
+     *            The subscriber to deliver the documents to.
+     * @return The subscription for requesting documents and cancelling the
+     *         delivery.
+     */
+    public Subscription subscribe(final StreamCallback<Document> subscriber) {
+        return new CursorSubscription(mySource, subscriber, myExecutor);
+    }
+
+    /**
+     * Subscription provides the interface for a subscriber to signal its
+     * demand for documents.
+     *
+     * @api.yes This interface is part of the driver's API. Public and
+     *          protected members will be deprecated for at least 1 non-bugfix
+     *          release (version numbers are
+     *          &lt;major&gt;.&lt;minor&gt;.&lt;bugfix&gt;) before being
+     *          removed or modified.
+     * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+     */
+    public static interface Subscription {
+
+        /**
+         * Stops the delivery of documents and closes the cursors. Documents
+         * already being delivered may still be received.
+         */
+        public void cancel();
+
+        /**
+         * Requests more documents. The demand accumulates across calls and
+         * saturates at {@link Long#MAX_VALUE}, which requests all of the
+         * documents.
+         *
+         * @param count
+         *            The number of additional documents to deliver. Must be
+         *            positive. A count less than one cancels the subscription
+         *            and delivers an {@link IllegalArgumentException} to the
+         *            subscriber.
+         */
+        public void request(long count);
+    }
+
+    /**
+     * CursorSource provides the cursors for a subscriber.
+     *
+     * @api.no This interface is <b>NOT</b> part of the drivers API. This class
+     *         may be mutated in incompatible ways between any two releases of
+     *         the driver.
+     * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+     */
+    /* package */static interface CursorSource {
+
+        /**
+         * Runs the request and returns the cursors for the results.
+         *
+         * @return The cursors for the results.
+         * @throws MongoDbException
+         *             On a failure running the request.
+         */
+        public List<MongoIterator<Document>> open() throws MongoDbException;
+    }
+
+    /**
+     * CursorSubscription delivers the documents from the cursors to a single
+     * subscriber as they are requested.
+     *
+     * @api.no This class is <b>NOT</b> part of the drivers API. This class may
+     *         be mutated in incompatible ways between any two releases of the
+     *         driver.
+     * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+     */
+    /* package */static final class CursorSubscription
+            implements Subscription, Runnable {
+
+        /** The logger for the {@link CursorSubscription}. */
+        private static final Log LOG = LogFactory
+                .getLog(CursorSubscription.class);
+
+        /**
+         * The largest batch size to request from the server or zero to use
+         * the server's default. Set from the first cursor's batch size.
+         */
+        private int myBatchSize;
+
+        /** Set to true once the subscription is cancelled. */
+        private volatile boolean myCancelled;
+
+        /** The cursors being delivered. Only accessed by the active task. */
+        private List<MongoIterator<Document>> myCursors;
+
+        /** The executor for delivering the documents. */
+        private final Executor myExecutor;
+
+        /** The number of requested documents not yet delivered. */
+        private final AtomicLong myRequested;
+
+        /** The source of the cursors. */
+        private final CursorSource mySource;
+
+        /** The subscriber to deliver the documents to. */
+        private final StreamCallback<Document> mySubscriber;
+
+        /**
+         * Set to true once the subscriber has been notified of the end of the
+         * results or a failure. Only accessed by the active task.
+         */
+        private boolean myTerminated;
+
+        /**
+         * The number of times the delivery task has been signaled. The task
+         * is scheduled on the transition from zero.
+         */
+        private final AtomicInteger myWork;
+
+        /**
+         * Creates a new CursorSubscription.
+         *
+         * @param source
+         *            The source of the cursors.
+         * @param subscriber
+         *            The subscriber to deliver the documents to.
+         * @param executor
+         *            The executor for delivering the documents.
+         */
+        public CursorSubscription(final CursorSource source,
+                final StreamCallback<Document> subscriber,
+                final Executor executor) {
+            mySource = source;
+            mySubscriber = subscriber;
+            myExecutor = executor;
+
+            myBatchSize = -1;
+            myCancelled = false;
+            myCursors = null;
+            myRequested = new AtomicLong(0);
+            myTerminated = false;
+            myWork = new AtomicInteger(0);
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to mark the subscription cancelled and have the delivery
+         * task close the cursors.
+         * </p>
+         */
+        @Override
+        public void cancel() {
+            myCancelled = true;
+            signal();
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to add to the outstanding demand and start the delivery
+         * task if needed.
+         * </p>
+         */
+        @Override
+        public void request(final long count) {
+            if (count <= 0) {
+                myCancelled = true;
+                myRequested.set(-1);
+            }
+            else {
+                long current;
+                long next;
+                do {
+                    current = myRequested.get();
+                    if (current < 0) {
+                        // Already failed.
+                        return;
+                    }
+                    next = current + count;
+                    if (next < 0) {
+                        next = Long.MAX_VALUE;
+                    }
+                }
+                while (!myRequested.compareAndSet(current, next));
+            }
+            signal();
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to deliver documents until the demand is satisfied. The
+         * loop continues if the subscription was signaled while delivering.
+         * </p>
+         */
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                deliver();
+                missed = myWork.addAndGet(-missed);
+            }
+            while (missed != 0);
+        }
+
+        /**
+         * Returns the batch size to request from the server for the current
+         * demand.
+         *
+         * @param demand
+         *            The outstanding demand.
+         * @return The batch size for the current demand.
+         */
+        private int batchSize(final long demand) {
+            if ((myBatchSize <= 0) || (demand < myBatchSize)) {
+                return (int) Math.min(demand, Integer.MAX_VALUE);
+            }
+            return myBatchSize;
+        }
+
+        /**
+         * Closes any remaining cursors.
+         */
+        private void close() {
+            if (myCursors != null) {
+                for (final MongoIterator<Document> cursor : myCursors) {
+                    try {
+                        cursor.close();
+                    }
+                    catch (final RuntimeException error) {
+                        LOG.debug(error, "Failed to close a cursor: {}",
+                                error.getMessage());
+                    }
+                }
+                myCursors.clear();
+            }
+        }
+
+        /**
+         * Delivers documents while there is outstanding demand.
+         */
+        private void deliver() {
+            if (myTerminated) {
+                return;
+            }
+
+            try {
+                if (myRequested.get() < 0) {
+                    terminate(new IllegalArgumentException(
+                            "The number of documents requested must be positive."));
+                    return;
+                }
+                if (myCancelled) {
+                    terminate(null);
+                    return;
+                }
+
+                long demand = myRequested.get();
+                if ((demand > 0) && (myCursors == null)) {
+                    myCursors = new ArrayList<MongoIterator<Document>>(
+                            mySource.open());
+                    if (!myCursors.isEmpty()) {
+                        myBatchSize = myCursors.get(0).getBatchSize();
+                    }
+                }
+
+                while ((demand > 0) && !myCancelled) {
+                    if (myCursors.isEmpty()) {
+                        terminate(null);
+                        mySubscriber.done();
+                        return;
+                    }
+
+                    final MongoIterator<Document> cursor = myCursors.get(0);
+                    cursor.setBatchSize(batchSize(demand));
+                    if (cursor.hasNext()) {
+                        final Document document = cursor.next();
+                        demand = myRequested.decrementAndGet();
+
+                        mySubscriber.callback(document);
+                    }
+                    else {
+                        cursor.close();
+                        myCursors.remove(0);
+                    }
+                }
+
+                if (myCancelled) {
+                    terminate(null);
+                }
+                else if ((myCursors != null) && isExhausted()) {
+                    // All of the documents were requested and delivered.
+                    terminate(null);
+                    mySubscriber.done();
+                }
+            }
+            catch (final RuntimeException error) {
+                terminate(error);
+            }
+        }
+
+        /**
+         * Returns true if all of the cursors are known to have no more
+         * documents without waiting on the server. Exhausted cursors are
+         * closed and removed. If a cursor is waiting on a reply to decide then
+         * the subscription is signaled once the reply is received.
+         *
+         * @return True if all of the cursors are exhausted.
+         */
+        private boolean isExhausted() {
+            while (!myCursors.isEmpty()) {
+                final MongoIterator<Document> cursor = myCursors.get(0);
+
+                final boolean exhausted;
+                if (cursor instanceof MongoIteratorImpl) {
+                    exhausted = ((MongoIteratorImpl) cursor).isExhausted(
+                            new Runnable() {
+                                @Override
+                                public void run() {
+                                    signal();
+                                }
+                            }, myExecutor);
+                }
+                else if (cursor instanceof SimpleMongoIteratorImpl) {
+                    // The documents are all in memory.
+                    exhausted = !cursor.hasNext();
+                }
+                else {
+                    exhausted = false;
+                }
+
+                if (!exhausted) {
+                    return false;
+                }
+                cursor.close();
+                myCursors.remove(0);
+            }
+            return true;
+        }
+
+        /**
+         * Signals the delivery task that there is work to do, scheduling the
+         * task if it is not active.
+         */
+        private void signal() {
+            if (myWork.getAndIncrement() == 0) {
+                try {
+                    myExecutor.execute(this);
+                }
+                catch (final RejectedExecutionException ree) {
+                    myWork.set(0);
+                    myCancelled = true;
+                    mySubscriber.exception(ree);
+                }
+            }
+        }
+
+        /**
+         * Closes the cursors and notifies the subscriber of the failure, if
+         * any.
+         *
+         * @param error
+         *            The failure or <code>null</code> if the subscription
+         *            completed or was cancelled.
+         */
+        private void terminate(final Throwable error) {
+            myTerminated = true;
+            myCancelled = true;
+            close();
+
+            if (error != null) {
+                mySubscriber.exception(error);
+            }
+        }
+    }
+}
@@ -55,8 +55,10 @@ import javax.annotation.concurrent.ThreadSafe;
 import javax.net.SocketFactory;
 import javax.net.ssl.SSLSocketFactory;
 
+import com.allanbank.mongodb.bson.io.StringCachePolicy;
 import com.allanbank.mongodb.bson.io.StringEncoderCache;
 import com.allanbank.mongodb.client.transport.TransportFactory;
+import com.allanbank.mongodb.client.wait.WaitStrategyFactory;
 import com.allanbank.mongodb.error.MongoDbAuthenticationException;
 import com.allanbank.mongodb.util.IOUtils;
 import com.allanbank.mongodb.util.ServerNameUtils;
@@ -173,6 +175,26 @@ public class MongoClientConfiguration
     /** The executor for responses from the database. */
     private transient Executor myExecutor = null;
 
+    /**
+     * Determines how long, in milliseconds, to wait for the reply to a query
+     * that may be read from a secondary before sending the same query to a
+     * second eligible server. The first reply received is used. A negative
+     * value waits for the 90th percentile of the recent latencies of the
+     * server the query was first sent to. A value of zero disables hedged
+     * reads.
+     * <p>
+     * Only queries, and {@code count} commands, with a
+     * {@link ReadPreference.Mode#SECONDARY_ONLY secondary},
+     * {@link ReadPreference.Mode#SECONDARY_PREFERRED secondary preferred} or
+     * {@link ReadPreference.Mode#NEAREST nearest} read preference sent to a
+     * replica set are hedged.
+     * </p>
+     * <p>
+     * Defaults to zero (disabled).
+     * </p>
+     */
+    private int myHedgedReadDelay = 0;
+
     /**
      * The legacy credentials created via {@link #authenticate(String, String)}
      * and {@link #setDefaultDatabase(String)}.
@@ -228,12 +250,46 @@ public class MongoClientConfiguration
      * <p>
      * <em>Note:</em> In the case of connecting to a replica set this setting
      * limits the number of connections to the primary server. The driver will
-     * create single connections to the secondary servers if queries are issued
-     * with a {@link ReadPreference} other than {@link ReadPreference#PRIMARY}.
+     * create up to {@link #getMaxConnectionsPerServer()} connections to the
+     * secondary servers if queries are issued with a {@link ReadPreference}
+     * other than {@link ReadPreference#PRIMARY}.
      * </p>
      */
     private int myMaxConnectionCount = 3;
 
+    /**
+     * Determines the maximum number of connections to open to each server,
+     * shared by all of the client's connections. When a server's connections
+     * all have pending requests, additional connections are opened up to this
+     * limit and requests are sent on the connection with the fewest pending
+     * requests.
+     * <p>
+     * Defaults to 1.
+     * </p>
+     */
+    private int myMaxConnectionsPerServer = 1;
+
+    /**
+     * Determines the maximum number of requests for more documents an iterator
+     * will have outstanding for a cursor. The iterator starts with a single
+     * request and adds another each time it has to wait for a reply, up to
+     * this limit, and backs off when replies are waiting to be consumed.
+     * <p>
+     * Defaults to 1.
+     * </p>
+     */
+    private int myMaxCursorReadAhead = 1;
+
+    /**
+     * Determines the maximum number of bytes of documents, based on the size
+     * of the last reply, that an iterator will have outstanding for a cursor.
+     * At least one request is always allowed.
+     * <p>
+     * Defaults to 16 MB (16,777,216).
+     * </p>
+     */
+    private int myMaxCursorReadAheadBytes = 16 * 1024 * 1024;
+
     /**
      * Determines the number of read timeouts (a tick) before closing the
      * connection.
@@ -315,6 +371,17 @@ public class MongoClientConfiguration
      */
     private int myMinConnectionCount = 0;
 
+    /**
+     * Determines the minimum number of connections to open to each server,
+     * shared by all of the client's connections once the server is used. Only
+     * applies when the {@link #getMaxConnectionsPerServer() maximum} is greater
+     * than 1.
+     * <p>
+     * Defaults to 1.
+     * </p>
+     */
+    private int myMinConnectionsPerServer = 1;
+
     /**
      * Support for emitting property change events to listeners. Not final for
      * clone.
@@ -330,6 +397,26 @@ public class MongoClientConfiguration
      */
     private int myReadTimeout = 0;
 
+    /**
+     * Determines the maximum number of idle receive buffers each connection
+     * will keep for reuse. Only used by the
+     * {@link ConnectionModel#SELECTOR_THREADS} connection model.
+     * <p>
+     * Defaults to 4.
+     * </p>
+     */
+    private int myReceiveBufferPoolSize = 4;
+
+    /**
+     * Determines the size (in bytes) of each pooled receive buffer. Replies
+     * larger than this size are read into a dedicated buffer. Only used by the
+     * {@link ConnectionModel#SELECTOR_THREADS} connection model.
+     * <p>
+     * Defaults to 64K (65,536).
+     * </p>
+     */
+    private int myReceiveBufferSize = 64 * 1024;
+
     /**
      * Determines how long to wait (in milliseconds) for a broken connection to
      * reconnect.
@@ -339,21 +426,80 @@ public class MongoClientConfiguration
      */
     private int myReconnectTimeout = 0;
 
+    /**
+     * Determines the maximum number of idle send buffers each connection will
+     * keep for reuse.
+     * <p>
+     * Defaults to 4.
+     * </p>
+     */
+    private int mySendBufferPoolSize = 4;
+
     /**
      * The list of servers to initially attempt to connect to. This should be
      * final but for support for the clone() method.
      */
     private List<InetSocketAddress> myServers = new ArrayList<InetSocketAddress>();
 
+    /**
+     * Determines how the driver chooses between the servers eligible to
+     * receive a request.
+     * <p>
+     * Defaults to {@link ServerSelection#AVERAGE_LATENCY}.
+     * </p>
+     */
+    private ServerSelection myServerSelection = ServerSelection.AVERAGE_LATENCY;
+
     /** The socket factory for creating sockets. */
     private transient SocketFactory mySocketFactory = null;
 
+    /**
+     * The policy for deciding which strings have their encoded form cached.
+     * <p>
+     * Defaults to {@link StringCachePolicy#SAMPLING}.
+     * </p>
+     */
+    private StringCachePolicy myStringCachePolicy = StringCachePolicy.SAMPLING;
+
     /** The factory for creating threads to handle connections. */
     private transient ThreadFactory myThreadFactory = null;
 
     /** The factory for creating transports to handle connections. */
     private transient TransportFactory myTransportFactory = null;
 
+    /**
+     * Determines if the pooled receive buffers are allocated as direct buffers.
+     * Only used by the {@link ConnectionModel#SELECTOR_THREADS} connection
+     * model.
+     * <p>
+     * Defaults to false, e.g., use heap buffers.
+     * </p>
+     */
+    private boolean myUsingDirectReceiveBuffers = false;
+
+    /**
+     * Determines if the documents returned by the server are decoded lazily.
+     * A lazy document holds the encoded bytes of the document and only
+     * decodes the elements that are accessed. This is much faster when only a
+     * few fields are read from large documents.
+     * <p>
+     * Defaults to false, e.g., fully decode each document as it is received.
+     * </p>
+     */
+    private boolean myUsingLazyDocuments = false;
+
+    /**
+     * Determines if the {@link #isUsingLazyDocuments() lazy documents}
+     * returned by the server share the names of their elements with the other
+     * documents with the same shape, i.e., the same element types and names
+     * in the same order. Result sets are normally made up of documents with
+     * the same shape so the names are not decoded or held for each document.
+     * <p>
+     * Defaults to false, e.g., each lazy document decodes its own names.
+     * </p>
+     */
+    private boolean myUsingDocumentShapes = false;
+
     /**
      * Determines if the {@link java.net.Socket#setKeepAlive(boolean)
      * SO_KEEPALIVE} socket option is set.
@@ -363,6 +509,17 @@ public class MongoClientConfiguration
      */
     private boolean myUsingSoKeepalive = true;
 
+    /**
+     * The factory for the strategies used to wait for messages to be handed
+     * off between threads. If set then each connection uses a multi-producer,
+     * single-consumer queue with the strategy instead of the
+     * {@link #getLockType() lock type}.
+     * <p>
+     * Defaults to <code>null</code>, e.g., use the lock type.
+     * </p>
+     */
+    private transient WaitStrategyFactory myWaitStrategyFactory = null;
+
     /**
      * Creates a new MongoClientConfiguration.
      */
@@ -405,20 +562,34 @@ public class MongoClientConfiguration
         myDefaultDurability = other.getDefaultDurability();
         myDefaultReadPreference = other.getDefaultReadPreference();
         myExecutor = other.getExecutor();
+        myHedgedReadDelay = other.getHedgedReadDelay();
         myLockType = other.getLockType();
         myMaxCachedStringEntries = other.getMaxCachedStringEntries();
         myMaxCachedStringLength = other.getMaxCachedStringLength();
         myMaxConnectionCount = other.getMaxConnectionCount();
+        myMaxConnectionsPerServer = other.getMaxConnectionsPerServer();
+        myMaxCursorReadAhead = other.getMaxCursorReadAhead();
+        myMaxCursorReadAheadBytes = other.getMaxCursorReadAheadBytes();
         myMaxIdleTickCount = other.getMaxIdleTickCount();
         myMaxPendingOperationsPerConnection = other
                 .getMaxPendingOperationsPerConnection();
         myMaxSecondaryLag = other.getMaxSecondaryLag();
         myMinConnectionCount = other.getMinConnectionCount();
+        myMinConnectionsPerServer = other.getMinConnectionsPerServer();
         myReadTimeout = other.getReadTimeout();
+        myReceiveBufferPoolSize = other.getReceiveBufferPoolSize();
+        myReceiveBufferSize = other.getReceiveBufferSize();
         myReconnectTimeout = other.getReconnectTimeout();
+        mySendBufferPoolSize = other.getSendBufferPoolSize();
+        myServerSelection = other.getServerSelection();
         mySocketFactory = other.getSocketFactory();
+        myStringCachePolicy = other.getStringCachePolicy();
         myThreadFactory = other.getThreadFactory();
+        myUsingDirectReceiveBuffers = other.isUsingDirectReceiveBuffers();
+        myUsingDocumentShapes = other.isUsingDocumentShapes();
+        myUsingLazyDocuments = other.isUsingLazyDocuments();
         myUsingSoKeepalive = other.isUsingSoKeepalive();
+        myWaitStrategyFactory = other.getWaitStrategyFactory();
 
         for (final Credential credential : other.getCredentials()) {
             addCredential(credential);
@@ -914,6 +1085,23 @@ public class MongoClientConfiguration
         return myExecutor;
     }
 
+    /**
+     * Returns how long, in milliseconds, to wait for the reply to a query
+     * that may be read from a secondary before sending the same query to a
+     * second eligible server. The first reply received is used. A negative
+     * value waits for the 90th percentile of the recent latencies of the
+     * server the query was first sent to. A value of zero disables hedged
+     * reads.
+     * <p>
+     * Defaults to zero (disabled).
+     * </p>
+     *
+     * @return The time to wait, in milliseconds, before hedging a read.
+     */
+    public int getHedgedReadDelay() {
+        return myHedgedReadDelay;
+    }
+
     /**
      * Returns the type of hand off lock to use between threads in the core of
      * the driver.
@@ -975,8 +1163,9 @@ public class MongoClientConfiguration
      * <p>
      * <em>Note:</em> In the case of connecting to a replica set this setting
      * limits the number of connections to the primary server. The driver will
-     * create single connections to the secondary servers if queries are issued
-     * with a {@link ReadPreference} other than {@link ReadPreference#PRIMARY}.
+     * create up to {@link #getMaxConnectionsPerServer()} connections to the
+     * secondary servers if queries are issued with a {@link ReadPreference}
+     * other than {@link ReadPreference#PRIMARY}.
      * </p>
      *
      * @return The maximum connections to use.
@@ -985,6 +1174,52 @@ public class MongoClientConfiguration
         return myMaxConnectionCount;
     }
 
+    /**
+     * Returns the maximum number of connections to open to each server, shared
+     * by all of the client's connections. When a server's connections all have
+     * pending requests, additional connections are opened up to this limit and
+     * requests are sent on the connection with the fewest pending requests.
+     * <p>
+     * Defaults to 1.
+     * </p>
+     *
+     * @return The maximum number of connections to open to each server.
+     */
+    public int getMaxConnectionsPerServer() {
+        return myMaxConnectionsPerServer;
+    }
+
+    /**
+     * Returns the maximum number of requests for more documents an iterator
+     * will have outstanding for a cursor. The iterator starts with a single
+     * request and adds another each time it has to wait for a reply, up to
+     * this limit, and backs off when replies are waiting to be consumed.
+     * <p>
+     * Defaults to 1.
+     * </p>
+     *
+     * @return The maximum number of requests for more documents an iterator
+     *         will have outstanding for a cursor.
+     */
+    public int getMaxCursorReadAhead() {
+        return myMaxCursorReadAhead;
+    }
+
+    /**
+     * Returns the maximum number of bytes of documents, based on the size of
+     * the last reply, that an iterator will have outstanding for a cursor. At
+     * least one request is always allowed.
+     * <p>
+     * Defaults to 16 MB (16,777,216).
+     * </p>
+     *
+     * @return The maximum number of bytes of documents an iterator will have
+     *         outstanding for a cursor.
+     */
+    public int getMaxCursorReadAheadBytes() {
+        return myMaxCursorReadAheadBytes;
+    }
+
     /**
      * Returns the number of read timeouts (a tick) before closing the
      * connection.
@@ -1068,6 +1303,20 @@ public class MongoClientConfiguration
         return myMinConnectionCount;
     }
 
+    /**
+     * Returns the minimum number of connections to open to each server, shared
+     * by all of the client's connections once the server is used. Only applies
+     * when the {@link #getMaxConnectionsPerServer() maximum} is greater than 1.
+     * <p>
+     * Defaults to 1.
+     * </p>
+     *
+     * @return The minimum number of connections to open to each server.
+     */
+    public int getMinConnectionsPerServer() {
+        return myMinConnectionsPerServer;
+    }
+
     /**
      * Gets the password hash for authentication with the database.
      *
@@ -1108,6 +1357,35 @@ public class MongoClientConfiguration
         return myReadTimeout;
     }
 
+    /**
+     * Returns the maximum number of idle receive buffers each connection will
+     * keep for reuse. Only used by the
+     * {@link ConnectionModel#SELECTOR_THREADS} connection model.
+     * <p>
+     * Defaults to 4.
+     * </p>
+     *
+     * @return The maximum number of idle receive buffers each connection will
+     *         keep for reuse.
+     */
+    public int getReceiveBufferPoolSize() {
+        return myReceiveBufferPoolSize;
+    }
+
+    /**
+     * Returns the size (in bytes) of each pooled receive buffer. Replies
+     * larger than this size are read into a dedicated buffer. Only used by the
+     * {@link ConnectionModel#SELECTOR_THREADS} connection model.
+     * <p>
+     * Defaults to 64K (65,536).
+     * </p>
+     *
+     * @return The size (in bytes) of each pooled receive buffer.
+     */
+    public int getReceiveBufferSize() {
+        return myReceiveBufferSize;
+    }
+
     /**
      * Returns how long to wait (in milliseconds) for a broken connection to be
      * reconnected.
@@ -1122,6 +1400,20 @@ public class MongoClientConfiguration
         return myReconnectTimeout;
     }
 
+    /**
+     * Returns the maximum number of idle send buffers each connection will
+     * keep for reuse.
+     * <p>
+     * Defaults to 4.
+     * </p>
+     *
+     * @return The maximum number of idle send buffers each connection will
+     *         keep for reuse.
+     */
+    public int getSendBufferPoolSize() {
+        return mySendBufferPoolSize;
+    }
+
     /**
      * Returns the list of servers to initially attempt to connect to.
      *
@@ -1131,6 +1423,19 @@ public class MongoClientConfiguration
         return Collections.unmodifiableList(myServers);
     }
 
+    /**
+     * Returns how the driver chooses between the servers eligible to receive
+     * a request.
+     * <p>
+     * Defaults to {@link ServerSelection#AVERAGE_LATENCY}.
+     * </p>
+     *
+     * @return How the driver chooses between the eligible servers.
+     */
+    public ServerSelection getServerSelection() {
+        return myServerSelection;
+    }
+
     /**
      * Returns the list of servers to initially attempt to connect to.
      *
@@ -1163,6 +1468,20 @@ public class MongoClientConfiguration
         return mySocketFactory;
     }
 
+    /**
+     * Returns the policy for deciding which strings have their encoded form
+     * cached.
+     * <p>
+     * Defaults to {@link StringCachePolicy#SAMPLING}.
+     * </p>
+     *
+     * @return The policy for deciding which strings have their encoded form
+     *         cached.
+     */
+    public StringCachePolicy getStringCachePolicy() {
+        return myStringCachePolicy;
+    }
+
     /**
      * Returns the thread factory for managing connections.
      *
@@ -1218,6 +1537,22 @@ public class MongoClientConfiguration
         return myCredentials.containsKey(ADMIN_DB_NAME);
     }
 
+    /**
+     * Returns the factory for the strategies used to wait for messages to be
+     * handed off between threads. If set then each connection uses a
+     * multi-producer, single-consumer queue with the strategy instead of the
+     * {@link #getLockType() lock type}.
+     * <p>
+     * Defaults to <code>null</code>, e.g., use the lock type.
+     * </p>
+     *
+     * @return The factory for the strategies used to wait for messages to be
+     *         handed off between threads.
+     */
+    public WaitStrategyFactory getWaitStrategyFactory() {
+        return myWaitStrategyFactory;
+    }
+
     /**
      * Returns true if the connection is authenticating. If any credentials have
      * been added to this configuration then all connections will use
@@ -1287,6 +1622,52 @@ public class MongoClientConfiguration
         return myMetricsEnabled;
     }
 
+    /**
+     * Returns if the pooled receive buffers are allocated as direct buffers.
+     * Only used by the {@link ConnectionModel#SELECTOR_THREADS} connection
+     * model.
+     * <p>
+     * Defaults to false, e.g., use heap buffers.
+     * </p>
+     *
+     * @return True if the pooled receive buffers are allocated as direct
+     *         buffers.
+     */
+    public boolean isUsingDirectReceiveBuffers() {
+        return myUsingDirectReceiveBuffers;
+    }
+
+    /**
+     * Returns if the {@link #isUsingLazyDocuments() lazy documents} returned
+     * by the server share the names of their elements with the other
+     * documents with the same shape, i.e., the same element types and names
+     * in the same order.
+     * <p>
+     * Defaults to false, e.g., each lazy document decodes its own names.
+     * </p>
+     *
+     * @return True if the lazy documents returned by the server share their
+     *         shape.
+     */
+    public boolean isUsingDocumentShapes() {
+        return myUsingDocumentShapes;
+    }
+
+    /**
+     * Returns if the documents returned by the server are decoded lazily. A
+     * lazy document holds the encoded bytes of the document and only decodes
+     * the elements that are accessed.
+     * <p>
+     * Defaults to false, e.g., fully decode each document as it is received.
+     * </p>
+     *
+     * @return True if the documents returned by the server are decoded
+     *         lazily.
+     */
+    public boolean isUsingLazyDocuments() {
+        return myUsingLazyDocuments;
+    }
+
     /**
      * Returns if the {@link java.net.Socket#setKeepAlive(boolean) SO_KEEPALIVE}
      * socket option is set.
@@ -1519,6 +1900,37 @@ public class MongoClientConfiguration
         myPropSupport.firePropertyChange("executor", old, myExecutor);
     }
 
+    /**
+     * Sets how long, in milliseconds, to wait for the reply to a query
+     * that may be read from a secondary before sending the same query to a
+     * second eligible server. The first reply received is used. A negative
+     * value waits for the 90th percentile of the recent latencies of the
+     * server the query was first sent to. A value of zero disables hedged
+     * reads.
+     * <p>
+     * Only queries, and {@code count} commands, with a
+     * {@link ReadPreference.Mode#SECONDARY_ONLY secondary},
+     * {@link ReadPreference.Mode#SECONDARY_PREFERRED secondary preferred} or
+     * {@link ReadPreference.Mode#NEAREST nearest} read preference sent to a
+     * replica set are hedged.
+     * </p>
+     * <p>
+     * Defaults to zero (disabled).
+     * </p>
+     *
+     * @param hedgedReadDelay
+     *            The new time to wait, in milliseconds, before hedging a
+     *            read.
+     */
+    public void setHedgedReadDelay(final int hedgedReadDelay) {
+        final int old = myHedgedReadDelay;
+
+        myHedgedReadDelay = hedgedReadDelay;
+
+        myPropSupport.firePropertyChange("hedgedReadDelay", old,
+                myHedgedReadDelay);
+    }
+
     /**
      * Sets the type of hand off lock to use between threads in the core of the
      * driver.
@@ -1616,8 +2028,9 @@ public class MongoClientConfiguration
      * <p>
      * <em>Note:</em> In the case of connecting to a replica set this setting
      * limits the number of connections to the primary server. The driver will
-     * create single connections to the secondary servers if queries are issued
-     * with a {@link ReadPreference} other than {@link ReadPreference#PRIMARY}.
+     * create up to {@link #getMaxConnectionsPerServer()} connections to the
+     * secondary servers if queries are issued with a {@link ReadPreference}
+     * other than {@link ReadPreference#PRIMARY}.
      * </p>
      *
      * @param maxConnectionCount
@@ -1632,6 +2045,70 @@ public class MongoClientConfiguration
                 myMaxConnectionCount);
     }
 
+    /**
+     * Sets the maximum number of connections to open to each server, shared by
+     * all of the client's connections. When a server's connections all have
+     * pending requests, additional connections are opened up to this limit and
+     * requests are sent on the connection with the fewest pending requests.
+     * <p>
+     * Defaults to 1.
+     * </p>
+     *
+     * @param maxConnectionsPerServer
+     *            The new maximum number of connections to open to each server.
+     */
+    public void setMaxConnectionsPerServer(final int maxConnectionsPerServer) {
+        final int old = myMaxConnectionsPerServer;
+
+        myMaxConnectionsPerServer = maxConnectionsPerServer;
+
+        myPropSupport.firePropertyChange("maxConnectionsPerServer", old,
+                myMaxConnectionsPerServer);
+    }
+
+    /**
+     * Sets the maximum number of requests for more documents an iterator will
+     * have outstanding for a cursor. The iterator starts with a single request
+     * and adds another each time it has to wait for a reply, up to this limit,
+     * and backs off when replies are waiting to be consumed.
+     * <p>
+     * Defaults to 1.
+     * </p>
+     *
+     * @param maxCursorReadAhead
+     *            The new maximum number of requests for more documents an
+     *            iterator will have outstanding for a cursor.
+     */
+    public void setMaxCursorReadAhead(final int maxCursorReadAhead) {
+        final int old = myMaxCursorReadAhead;
+
+        myMaxCursorReadAhead = maxCursorReadAhead;
+
+        myPropSupport.firePropertyChange("maxCursorReadAhead", old,
+                myMaxCursorReadAhead);
+    }
+
+    /**
+     * Sets the maximum number of bytes of documents, based on the size of the
+     * last reply, that an iterator will have outstanding for a cursor. At
+     * least one request is always allowed.
+     * <p>
+     * Defaults to 16 MB (16,777,216).
+     * </p>
+     *
+     * @param maxCursorReadAheadBytes
+     *            The new maximum number of bytes of documents an iterator will
+     *            have outstanding for a cursor.
+     */
+    public void setMaxCursorReadAheadBytes(final int maxCursorReadAheadBytes) {
+        final int old = myMaxCursorReadAheadBytes;
+
+        myMaxCursorReadAheadBytes = maxCursorReadAheadBytes;
+
+        myPropSupport.firePropertyChange("maxCursorReadAheadBytes", old,
+                myMaxCursorReadAheadBytes);
+    }
+
     /**
      * Sets the value of the number of read timeouts (a tick) before closing the
      * connection.
@@ -1766,6 +2243,26 @@ public class MongoClientConfiguration
                 myMinConnectionCount);
     }
 
+    /**
+     * Sets the minimum number of connections to open to each server, shared by
+     * all of the client's connections once the server is used. Only applies
+     * when the {@link #getMaxConnectionsPerServer() maximum} is greater than 1.
+     * <p>
+     * Defaults to 1.
+     * </p>
+     *
+     * @param minConnectionsPerServer
+     *            The new minimum number of connections to open to each server.
+     */
+    public void setMinConnectionsPerServer(final int minConnectionsPerServer) {
+        final int old = myMinConnectionsPerServer;
+
+        myMinConnectionsPerServer = minConnectionsPerServer;
+
+        myPropSupport.firePropertyChange("minConnectionsPerServer", old,
+                myMinConnectionsPerServer);
+    }
+
     /**
      * @param readTimeout
      *            The time to wait (in milliseconds) for a socket read to
@@ -1779,6 +2276,41 @@ public class MongoClientConfiguration
         myPropSupport.firePropertyChange("readTimeout", old, myReadTimeout);
     }
 
+    /**
+     * Sets the maximum number of idle receive buffers each connection will keep
+     * for reuse. Only used by the {@link ConnectionModel#SELECTOR_THREADS}
+     * connection model.
+     *
+     * @param receiveBufferPoolSize
+     *            The new maximum number of idle receive buffers each
+     *            connection will keep for reuse.
+     */
+    public void setReceiveBufferPoolSize(final int receiveBufferPoolSize) {
+        final int old = myReceiveBufferPoolSize;
+
+        myReceiveBufferPoolSize = receiveBufferPoolSize;
+
+        myPropSupport.firePropertyChange("receiveBufferPoolSize", old,
+                myReceiveBufferPoolSize);
+    }
+
+    /**
+     * Sets the size (in bytes) of each pooled receive buffer. Replies larger
+     * than this size are read into a dedicated buffer. Only used by the
+     * {@link ConnectionModel#SELECTOR_THREADS} connection model.
+     *
+     * @param receiveBufferSize
+     *            The new size (in bytes) of each pooled receive buffer.
+     */
+    public void setReceiveBufferSize(final int receiveBufferSize) {
+        final int old = myReceiveBufferSize;
+
+        myReceiveBufferSize = receiveBufferSize;
+
+        myPropSupport.firePropertyChange("receiveBufferSize", old,
+                myReceiveBufferSize);
+    }
+
     /**
      * Sets how long to wait (in milliseconds) for a broken connection to
      * reconnect.
@@ -1796,6 +2328,43 @@ public class MongoClientConfiguration
                 myReconnectTimeout);
     }
 
+    /**
+     * Sets the maximum number of idle send buffers each connection will keep
+     * for reuse.
+     *
+     * @param sendBufferPoolSize
+     *            The new maximum number of idle send buffers each connection
+     *            will keep for reuse.
+     */
+    public void setSendBufferPoolSize(final int sendBufferPoolSize) {
+        final int old = mySendBufferPoolSize;
+
+        mySendBufferPoolSize = sendBufferPoolSize;
+
+        myPropSupport.firePropertyChange("sendBufferPoolSize", old,
+                mySendBufferPoolSize);
+    }
+
+    /**
+     * Sets how the driver chooses between the servers eligible to receive a
+     * request.
+     * <p>
+     * Defaults to {@link ServerSelection#AVERAGE_LATENCY}.
+     * </p>
+     *
+     * @param serverSelection
+     *            The new value for how the driver chooses between the
+     *            eligible servers.
+     */
+    public void setServerSelection(final ServerSelection serverSelection) {
+        final ServerSelection old = myServerSelection;
+
+        myServerSelection = serverSelection;
+
+        myPropSupport.firePropertyChange("serverSelection", old,
+                myServerSelection);
+    }
+
     /**
      * Sets the servers to initially attempt to connect to.
      *
@@ -1887,6 +2456,28 @@ public class MongoClientConfiguration
         myPropSupport.firePropertyChange("socketFactory", old, mySocketFactory);
     }
 
+    /**
+     * Sets the policy for deciding which strings have their encoded form
+     * cached. The {@link StringCachePolicy#TINY_LFU} policy avoids the
+     * contention and allocation of tracking each string's use when there are
+     * many threads receiving replies.
+     * <p>
+     * Defaults to {@link StringCachePolicy#SAMPLING}.
+     * </p>
+     *
+     * @param stringCachePolicy
+     *            The new value for the policy for deciding which strings have
+     *            their encoded form cached.
+     */
+    public void setStringCachePolicy(final StringCachePolicy stringCachePolicy) {
+        final StringCachePolicy old = myStringCachePolicy;
+
+        myStringCachePolicy = stringCachePolicy;
+
+        myPropSupport.firePropertyChange("stringCachePolicy", old,
+                myStringCachePolicy);
+    }
+
     /**
      * Sets the thread factory for managing connections to the new value.
      *
@@ -1921,6 +2512,69 @@ public class MongoClientConfiguration
                 myTransportFactory);
     }
 
+    /**
+     * Sets if the pooled receive buffers are allocated as direct buffers. Only
+     * used by the {@link ConnectionModel#SELECTOR_THREADS} connection model.
+     * <p>
+     * Defaults to false, e.g., use heap buffers.
+     * </p>
+     *
+     * @param usingDirectReceiveBuffers
+     *            The new value for using direct receive buffers.
+     */
+    public void setUsingDirectReceiveBuffers(
+            final boolean usingDirectReceiveBuffers) {
+        final boolean old = myUsingDirectReceiveBuffers;
+
+        myUsingDirectReceiveBuffers = usingDirectReceiveBuffers;
+
+        myPropSupport.firePropertyChange("usingDirectReceiveBuffers", old,
+                myUsingDirectReceiveBuffers);
+    }
+
+    /**
+     * Sets if the {@link #isUsingLazyDocuments() lazy documents} returned by
+     * the server share the names of their elements with the other documents
+     * with the same shape, i.e., the same element types and names in the same
+     * order. Result sets are normally made up of documents with the same shape
+     * so the names are not decoded or held for each document.
+     * <p>
+     * Defaults to false, e.g., each lazy document decodes its own names.
+     * </p>
+     *
+     * @param usingDocumentShapes
+     *            The new value for sharing the shapes of lazy documents.
+     */
+    public void setUsingDocumentShapes(final boolean usingDocumentShapes) {
+        final boolean old = myUsingDocumentShapes;
+
+        myUsingDocumentShapes = usingDocumentShapes;
+
+        myPropSupport.firePropertyChange("usingDocumentShapes", old,
+                myUsingDocumentShapes);
+    }
+
+    /**
+     * Sets if the documents returned by the server are decoded lazily. A lazy
+     * document holds the encoded bytes of the document and only decodes the
+     * elements that are accessed. This is much faster when only a few fields
+     * are read from large documents.
+     * <p>
+     * Defaults to false, e.g., fully decode each document as it is received.
+     * </p>
+     *
+     * @param usingLazyDocuments
+     *            The new value for decoding documents lazily.
+     */
+    public void setUsingLazyDocuments(final boolean usingLazyDocuments) {
+        final boolean old = myUsingLazyDocuments;
+
+        myUsingLazyDocuments = usingLazyDocuments;
+
+        myPropSupport.firePropertyChange("usingLazyDocuments", old,
+                myUsingLazyDocuments);
+    }
+
     /**
      * Sets if the {@link java.net.Socket#setKeepAlive(boolean) SO_KEEPALIVE}
      * socket option is set.
@@ -1940,6 +2594,29 @@ public class MongoClientConfiguration
                 myUsingSoKeepalive);
     }
 
+    /**
+     * Sets the factory for the strategies used to wait for messages to be
+     * handed off between threads. If set then each connection uses a
+     * multi-producer, single-consumer queue with the strategy instead of the
+     * {@link #getLockType() lock type}. See
+     * {@link com.allanbank.mongodb.client.wait.WaitStrategyType} for the
+     * strategies provided by the driver.
+     *
+     * @param waitStrategyFactory
+     *            The new factory for the strategies used to wait for messages
+     *            to be handed off between threads. May be <code>null</code>
+     *            to use the lock type.
+     */
+    public void setWaitStrategyFactory(
+            final WaitStrategyFactory waitStrategyFactory) {
+        final WaitStrategyFactory old = myWaitStrategyFactory;
+
+        myWaitStrategyFactory = waitStrategyFactory;
+
+        myPropSupport.firePropertyChange("waitStrategyFactory", old,
+                myWaitStrategyFactory);
+    }
+
     /**
      * Reads the serialized configuration and sets the transient field to known
      * values.
@@ -1959,6 +2636,7 @@ public class MongoClientConfiguration
         mySocketFactory = null;
         myThreadFactory = null;
         myTransportFactory = myConnectionModel.getFactory();
+        myWaitStrategyFactory = null;
     }
 
     /**
@@ -20,12 +20,15 @@
 package com.allanbank.mongodb;
 
 import java.util.Collection;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.concurrent.ThreadSafe;
 
 import com.allanbank.mongodb.bson.Document;
 import com.allanbank.mongodb.bson.DocumentAssignable;
 import com.allanbank.mongodb.bson.Element;
+import com.allanbank.mongodb.bson.codec.Decoder;
+import com.allanbank.mongodb.bson.codec.Encoder;
 import com.allanbank.mongodb.bson.element.IntegerElement;
 import com.allanbank.mongodb.builder.Aggregate;
 import com.allanbank.mongodb.builder.BatchedWrite;
@@ -663,6 +666,24 @@ public interface MongoCollection
      */
     public Document findOne(DocumentAssignable query) throws MongoDbException;
 
+    /**
+     * Finds a single matching document in the collection and decodes it
+     * directly from its encoded BSON form with the <tt>decoder</tt>.
+     *
+     * @param <T>
+     *            The type of object returned.
+     * @param query
+     *            The query document.
+     * @param decoder
+     *            The decoder for the found document.
+     * @return The first found document's decoded object or <code>null</code>
+     *         if no document matched the query.
+     * @throws MongoDbException
+     *             On an error finding or decoding the document.
+     */
+    public <T> T findOne(DocumentAssignable query, Decoder<T> decoder)
+            throws MongoDbException;
+
     /**
      * Finds a single matching document in the collection.
      * <p>
@@ -866,6 +887,31 @@ public interface MongoCollection
      */
     public int insert(DocumentAssignable... documents) throws MongoDbException;
 
+    /**
+     * Inserts a set of objects into the collection. Each object is encoded
+     * directly to BSON with the <tt>encoder</tt>.
+     * If the encoder does not write an <tt>_id</tt> element for an object
+     * then an {@link com.allanbank.mongodb.bson.element.ObjectId ObjectId}
+     * <tt>_id</tt> is added as the first element of the encoded document.
+     * <p>
+     * This insert is performed using the default {@link #getDurability()
+     * durability} and with <tt>continueOnError</tt> set to false.
+     * </p>
+     *
+     * @param <T>
+     *            The type of objects to insert.
+     * @param encoder
+     *            The encoder for the objects.
+     * @param objects
+     *            The objects to add to the collection.
+     * @return The return value is dependent on the MongoDB server version and
+     *         durability. See {@link #insert(DocumentAssignable...)}.
+     * @throws MongoDbException
+     *             On an error encoding or inserting the objects.
+     */
+    public <T> int insert(Encoder<? super T> encoder,
+            Collection<? extends T> objects) throws MongoDbException;
+
     /**
      * Inserts a set of documents into the collection.
      * <p>
@@ -1090,6 +1136,43 @@ public interface MongoCollection
      */
     public BatchedAsyncMongoCollection startBatch();
 
+    /**
+     * Starts coalescing the writes from concurrent callers into batched write
+     * commands. Unlike {@link #startBatch()} the returned object sends the
+     * pending writes automatically: once {@code maxWrites} writes are pending
+     * or the oldest pending write has waited {@code maxDelay}. Writes with the
+     * same {@link Durability} are sent in the same batches and the results are
+     * passed back to each caller's {@link Callback} or
+     * {@link java.util.concurrent.Future Future}.
+     * <p>
+     * Queries, commands and all other requests are sent immediately. A
+     * coalesced write may be sent after a request that was issued after it.
+     * Callers that need to read their own writes must wait for the write to
+     * complete first.
+     * </p>
+     * <p>
+     * The returned object is intended to be shared across threads for the
+     * life of the application. {@link BatchedAsyncMongoCollection#close()
+     * Closing} it sends any pending writes, stops the timer for the delayed
+     * sends, and all later requests are sent immediately.
+     * </p>
+     *
+     * @param maxDelay
+     *            The maximum amount of time to delay a write waiting for other
+     *            writes. A value less than or equal to zero disables the
+     *            delayed sends and the writes are only sent once
+     *            {@code maxWrites} writes are pending or the batch is
+     *            {@link BatchedAsyncMongoCollection#flush() flushed}.
+     * @param units
+     *            The units for the maximum delay.
+     * @param maxWrites
+     *            The maximum number of writes to hold before sending them to
+     *            the server.
+     * @return The interface for submitting coalesced requests.
+     */
+    public BatchedAsyncMongoCollection startCoalescing(long maxDelay,
+            TimeUnit units, int maxWrites);
+
     /**
      * Returns the statistics for the collection.
      *
@@ -80,6 +80,8 @@ import com.allanbank.mongodb.bson.element.UuidElement;
  * <li>{@link MongoClientConfiguration#setConnectionModel(ConnectionModel)
  * connectionModel}</li>
  * <li>{@link MongoClientConfiguration#setConnectTimeout(int) connectTimeout}</li>
+ * <li>{@link MongoClientConfiguration#setHedgedReadDelay(int)
+ * hedgedReadDelay}</li>
  * <li>{@link MongoClientConfiguration#setLockType(LockType) lockType}</li>
  * <li>{@link MongoClientConfiguration#setMaxCachedStringEntries(int)
  * maxCachedStringEntries}</li>
@@ -87,6 +89,10 @@ import com.allanbank.mongodb.bson.element.UuidElement;
  * maxCachedStringLength}</li>
  * <li>{@link MongoClientConfiguration#setMaxConnectionCount(int)
  * maxConnectionCount}</li>
+ * <li>{@link MongoClientConfiguration#setMaxCursorReadAhead(int)
+ * maxCursorReadAhead}</li>
+ * <li>{@link MongoClientConfiguration#setMaxCursorReadAheadBytes(int)
+ * maxCursorReadAheadBytes}</li>
  * <li>{@link MongoClientConfiguration#setMaxIdleTickCount(int)
  * maxIdleTickCount}</li>
  * <li>
@@ -102,6 +108,12 @@ import com.allanbank.mongodb.bson.element.UuidElement;
  * <li>
  * {@link MongoClientConfiguration#setReconnectTimeout(int) reconnectTimeout}</li>
  * <li>
+ * {@link MongoClientConfiguration#setServerSelection(ServerSelection)
+ * serverSelection}</li>
+ * <li>
+ * {@link MongoClientConfiguration#setStringCachePolicy(com.allanbank.mongodb.bson.io.StringCachePolicy)
+ * stringCachePolicy}</li>
+ * <li>
  * {@link MongoClientConfiguration#setUsingSoKeepalive(boolean)
  * usingSoKeepalive}</li>
  * </ul>
@@ -0,0 +1,550 @@
+/*
+ * #%L
+ * ParallelScanner.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb;
+
+import java.util.Collection;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.allanbank.mongodb.bson.Document;
+import com.allanbank.mongodb.builder.ParallelScan;
+import com.allanbank.mongodb.client.FutureCallback;
+
+/**
+ * ParallelScanner performs a {@link ParallelScan} of a collection and fans the
+ * returned cursors out over an {@link Executor}. Each cursor is iterated by a
+ * separate task and the documents are delivered to either a thread-safe
+ * {@link StreamCallback} or a bounded {@link BlockingQueue}.
+ * <p>
+ * The delivery of documents provides the back pressure for the scan. A cursor
+ * only requests its next batch once its task has delivered the current batch
+ * so a slow callback or a full queue slows the scan instead of buffering the
+ * collection in memory.
+ * </p>
+ * <p>
+ * Each scan returns a {@link ListenableFuture} that completes with the number
+ * of documents delivered once all of the cursors are exhausted. The future is
+ * also the single handle to cancel the scan: {@link ListenableFuture#cancel
+ * cancelling} the future stops every task and closes every cursor.
+ * </p>
+ * <p>
+ * The executor should have a thread available for each cursor requested via
+ * {@link ParallelScan.Builder#setRequestedIteratorCount(int)}. Otherwise the
+ * cursors are scanned as threads become available.
+ * </p>
+ *
+ * @api.yes This class is part of the driver's API. Public and protected members
+ *          will be deprecated for at least 1 non-bugfix release (version
+ *          numbers are &lt;major&gt;.&lt;minor&gt;.&lt;bugfix&gt;) before being
+ *          removed or modified.
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+@ThreadSafe
+public class ParallelScanner {
+
+    /**
+     * The number of milliseconds to wait for room in a queue before checking
+     * if the scan has been cancelled.
+     */
+    private static final long OFFER_WAIT_MS = 100;
+
+    /** The collection to scan. */
+    private final AsyncMongoCollection myCollection;
+
+    /** The executor for the tasks iterating the cursors. */
+    private final Executor myExecutor;
+
+    /**
+     * Creates a new ParallelScanner.
+     *
+     * @param collection
+     *            The collection to scan.
+     * @param executor
+     *            The executor for the tasks iterating the cursors.
+     */
+    public ParallelScanner(final AsyncMongoCollection collection,
+            final Executor executor) {
+        myCollection = collection;
+        myExecutor = executor;
+    }
+
+    /**
+     * Scans the collection and puts each document into the {@code queue}. If
+     * the queue is full the cursor's task waits for room in the queue.
+     * <p>
+     * The end of the scan is signaled by the completion of the returned
+     * future.
+     * </p>
+     *
+     * @param queue
+     *            The queue to put the documents into.
+     * @param parallelScan
+     *            The details of the scan.
+     * @return The future for the number of documents scanned and the handle to
+     *         cancel the scan.
+     * @throws MongoDbException
+     *             On an error starting the scan.
+     */
+    public ListenableFuture<Long> scan(
+            final BlockingQueue<? super Document> queue,
+            final ParallelScan parallelScan) throws MongoDbException {
+        return start(new QueueSink(queue), parallelScan);
+    }
+
+    /**
+     * Scans the collection and puts each document into the {@code queue}.
+     * <p>
+     * This method is equivalent to {@link #scan(BlockingQueue, ParallelScan)
+     * scan( queue, parallelScan.build() ) }.
+     * </p>
+     *
+     * @param queue
+     *            The queue to put the documents into.
+     * @param parallelScan
+     *            The details of the scan.
+     * @return The future for the number of documents scanned and the handle to
+     *         cancel the scan.
+     * @throws MongoDbException
+     *             On an error starting the scan.
+     */
+    public ListenableFuture<Long> scan(
+            final BlockingQueue<? super Document> queue,
+            final ParallelScan.Builder parallelScan) throws MongoDbException {
+        return scan(queue, parallelScan.build());
+    }
+
+    /**
+     * Scans the collection and streams each document to the {@code results}.
+     * <p>
+     * The {@code results} are called concurrently from each of the cursor's
+     * tasks and must be thread-safe. Once all of the cursors are exhausted
+     * {@link StreamCallback#done()} is called. The first error is reported
+     * via {@link StreamCallback#exception(Throwable)} and stops the scan. No
+     * further callbacks are made once the scan is cancelled.
+     * </p>
+     *
+     * @param results
+     *            The thread-safe callback for the documents.
+     * @param parallelScan
+     *            The details of the scan.
+     * @return The future for the number of documents scanned and the handle to
+     *         cancel the scan.
+     * @throws MongoDbException
+     *             On an error starting the scan.
+     */
+    public ListenableFuture<Long> scan(final StreamCallback<Document> results,
+            final ParallelScan parallelScan) throws MongoDbException {
+        return start(new CallbackSink(results), parallelScan);
+    }
+
+    /**
+     * Scans the collection and streams each document to the {@code results}.
+     * <p>
+     * This method is equivalent to {@link #scan(StreamCallback, ParallelScan)
+     * scan( results, parallelScan.build() ) }.
+     * </p>
+     *
+     * @param results
+     *            The thread-safe callback for the documents.
+     * @param parallelScan
+     *            The details of the scan.
+     * @return The future for the number of documents scanned and the handle to
+     *         cancel the scan.
+     * @throws MongoDbException
+     *             On an error starting the scan.
+     */
+    public ListenableFuture<Long> scan(final StreamCallback<Document> results,
+            final ParallelScan.Builder parallelScan) throws MongoDbException {
+        return scan(results, parallelScan.build());
+    }
+
+    /**
+     * Starts the scan.
+     *
+     * @param sink
+     *            The sink for the documents.
+     * @param parallelScan
+     *            The details of the scan.
+     * @return The future for the number of documents scanned.
+     * @throws MongoDbException
+     *             On an error starting the scan.
+     */
+    private ListenableFuture<Long> start(final Sink sink,
+            final ParallelScan parallelScan) throws MongoDbException {
+        final Scan scan = new Scan(sink);
+
+        myCollection.parallelScanAsync(scan, parallelScan);
+
+        return scan.getFuture();
+    }
+
+    /**
+     * Sink provides the interface for delivering documents from the cursor's
+     * tasks.
+     *
+     * @api.no This interface is <b>NOT</b> part of the drivers API. This
+     *         interface may be mutated in incompatible ways between any two
+     *         releases of the driver.
+     * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+     */
+    private interface Sink {
+        /**
+         * Notification that all of the cursors have been exhausted.
+         */
+        public void done();
+
+        /**
+         * Notification that the scan failed.
+         *
+         * @param thrown
+         *            The error for the scan.
+         */
+        public void exception(Throwable thrown);
+
+        /**
+         * Delivers a document.
+         *
+         * @param document
+         *            The document to deliver.
+         * @param scan
+         *            The scan delivering the document.
+         * @return True if the document was delivered, false if the scan
+         *         completed before the document could be delivered.
+         * @throws InterruptedException
+         *             If interrupted waiting to deliver the document.
+         */
+        public boolean push(Document document, Scan scan)
+                throws InterruptedException;
+    }
+
+    /**
+     * CallbackSink delivers the documents to a {@link StreamCallback}.
+     *
+     * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+     */
+    private static final class CallbackSink implements Sink {
+
+        /** The callback for the documents. */
+        private final StreamCallback<Document> myResults;
+
+        /**
+         * Creates a new CallbackSink.
+         *
+         * @param results
+         *            The callback for the documents.
+         */
+        public CallbackSink(final StreamCallback<Document> results) {
+            myResults = results;
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to call {@link StreamCallback#done()}.
+         * </p>
+         */
+        @Override
+        public void done() {
+            myResults.done();
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to call {@link StreamCallback#exception(Throwable)}.
+         * </p>
+         */
+        @Override
+        public void exception(final Throwable thrown) {
+            myResults.exception(thrown);
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to call {@link StreamCallback#callback(Object)}.
+         * </p>
+         */
+        @Override
+        public boolean push(final Document document, final Scan scan) {
+            myResults.callback(document);
+            return true;
+        }
+    }
+
+    /**
+     * QueueSink delivers the documents to a {@link BlockingQueue}.
+     *
+     * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+     */
+    private static final class QueueSink implements Sink {
+
+        /** The queue for the documents. */
+        private final BlockingQueue<? super Document> myQueue;
+
+        /**
+         * Creates a new QueueSink.
+         *
+         * @param queue
+         *            The queue for the documents.
+         */
+        public QueueSink(final BlockingQueue<? super Document> queue) {
+            myQueue = queue;
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to do nothing. The future signals the end of the scan.
+         * </p>
+         */
+        @Override
+        public void done() {
+            // Nothing.
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to do nothing. The future reports the error.
+         * </p>
+         */
+        @Override
+        public void exception(final Throwable thrown) {
+            // Nothing.
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to wait for room in the queue, periodically checking if
+         * the scan has completed.
+         * </p>
+         */
+        @Override
+        public boolean push(final Document document, final Scan scan)
+                throws InterruptedException {
+            while (!myQueue.offer(document, OFFER_WAIT_MS,
+                    TimeUnit.MILLISECONDS)) {
+                if (scan.isFinished()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Scan tracks the state of a single scan. It receives the cursors for the
+     * scan and starts a task for each.
+     *
+     * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+     */
+    private final class Scan implements
+            Callback<Collection<MongoIterator<Document>>> {
+
+        /** Set once the sink has been notified of the end of the scan. */
+        private final AtomicBoolean myCompleted;
+
+        /** The number of documents delivered. */
+        private final AtomicLong myCount;
+
+        /** The future for the scan's results. */
+        private final FutureCallback<Long> myFuture;
+
+        /** The number of cursor tasks still running. */
+        private final AtomicInteger myRunning;
+
+        /** The sink for the documents. */
+        private final Sink mySink;
+
+        /**
+         * Creates a new Scan.
+         *
+         * @param sink
+         *            The sink for the documents.
+         */
+        public Scan(final Sink sink) {
+            mySink = sink;
+            myCompleted = new AtomicBoolean(false);
+            myCount = new AtomicLong(0);
+            myRunning = new AtomicInteger(0);
+            myFuture = new FutureCallback<Long>();
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to start a task for each cursor.
+         * </p>
+         */
+        @Override
+        public void callback(final Collection<MongoIterator<Document>> cursors) {
+            myRunning.set(cursors.size() + 1);
+            for (final MongoIterator<Document> cursor : cursors) {
+                try {
+                    myExecutor.execute(new ScanTask(this, cursor));
+                }
+                catch (final RejectedExecutionException ree) {
+                    cursor.close();
+                    finished(ree);
+                }
+            }
+            finished(null);
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to fail the scan.
+         * </p>
+         */
+        @Override
+        public void exception(final Throwable thrown) {
+            myRunning.set(1);
+            finished(thrown);
+        }
+
+        /**
+         * Returns the future for the scan's results.
+         *
+         * @return The future for the scan's results.
+         */
+        public ListenableFuture<Long> getFuture() {
+            return myFuture;
+        }
+
+        /**
+         * Returns true if the scan has completed, failed or been cancelled.
+         *
+         * @return True if the scan has completed, failed or been cancelled.
+         */
+        public boolean isFinished() {
+            return myFuture.isDone();
+        }
+
+        /**
+         * Delivers the document to the sink.
+         *
+         * @param document
+         *            The document to deliver.
+         * @return True if the document was delivered.
+         * @throws InterruptedException
+         *             If interrupted waiting to deliver the document.
+         */
+        public boolean push(final Document document)
+                throws InterruptedException {
+            if (mySink.push(document, this)) {
+                myCount.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Notification that a task has finished. The first error fails the
+         * scan. Once all of the tasks have finished without an error the scan
+         * is done.
+         *
+         * @param error
+         *            The error for the task or <code>null</code>.
+         */
+        public void finished(final Throwable error) {
+            final boolean last = (myRunning.decrementAndGet() == 0);
+            if ((error != null) || last) {
+                if (!myFuture.isDone()
+                        && myCompleted.compareAndSet(false, true)) {
+                    if (error != null) {
+                        mySink.exception(error);
+                        myFuture.exception(error);
+                    }
+                    else {
+                        mySink.done();
+                        myFuture.callback(Long.valueOf(myCount.get()));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * ScanTask iterates a single cursor, delivering each document to the scan.
+     *
+     * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+     */
+    private static final class ScanTask implements Runnable {
+
+        /** The cursor to iterate. */
+        private final MongoIterator<Document> myCursor;
+
+        /** The scan for the cursor. */
+        private final Scan myScan;
+
+        /**
+         * Creates a new ScanTask.
+         *
+         * @param scan
+         *            The scan for the cursor.
+         * @param cursor
+         *            The cursor to iterate.
+         */
+        public ScanTask(final Scan scan, final MongoIterator<Document> cursor) {
+            myScan = scan;
+            myCursor = cursor;
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to iterate the cursor until it is exhausted or the scan
+         * finishes.
+         * </p>
+         */
+        @Override
+        public void run() {
+            Throwable error = null;
+            try {
+                while (!myScan.isFinished() && myCursor.hasNext()) {
+                    if (!myScan.push(myCursor.next())) {
+                        break;
+                    }
+                }
+            }
+            catch (final InterruptedException ie) {
+                error = ie;
+            }
+            catch (final RuntimeException re) {
+                error = re;
+            }
+            finally {
+                myCursor.close();
+                myScan.finished(error);
+            }
+        }
+    }
+}
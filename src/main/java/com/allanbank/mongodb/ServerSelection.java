@@ -0,0 +1,49 @@
+/*
+ * #%L
+ * ServerSelection.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.allanbank.mongodb;
+
+/**
+ * ServerSelection provides an enumeration for the methods the driver can use
+ * to choose between the servers that are eligible to receive a request.
+ *
+ * @api.yes This enumeration is part of the driver's API. Public and protected
+ *          members will be deprecated for at least 1 non-bugfix release
+ *          (version numbers are &lt;major&gt;.&lt;minor&gt;.&lt;bugfix&gt;)
+ *          before being removed or modified.
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+public enum ServerSelection {
+
+    /**
+     * Selects servers randomly, weighted by the exponentially decayed average
+     * latency of each server. Servers with a lower average latency are
+     * proportionally more likely to be selected.
+     */
+    AVERAGE_LATENCY,
+
+    /**
+     * Selects two of the eligible servers at random and uses the one with the
+     * lower load. The load of a server is its recent percentile latency scaled
+     * by the number of requests outstanding to the server. This reacts
+     * quickly to a server that is slow or busy without sending all of the
+     * requests to the single fastest server.
+     */
+    POWER_OF_TWO_CHOICES;
+}
@@ -0,0 +1,552 @@
+/*
+ * #%L
+ * BsonReader.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.bson.codec;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.util.Arrays;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.allanbank.mongodb.bson.ElementType;
+import com.allanbank.mongodb.bson.element.ObjectId;
+import com.allanbank.mongodb.bson.io.EndianUtils;
+import com.allanbank.mongodb.bson.io.StringDecoder;
+import com.allanbank.mongodb.bson.io.StringDecoderCache;
+
+/**
+ * BsonReader provides the ability to read the elements of an encoded
+ * document directly from its bytes without creating the
+ * {@link com.allanbank.mongodb.bson.Element} objects.
+ * <p>
+ * The reader is used by first calling {@link #readStartDocument()} and then
+ * {@link #readNext()} to move to each element. The value of the element can
+ * then be read with the method matching the element's {@link #getType()
+ * type}. Values that are not read are skipped by the next call to
+ * {@link #readNext()}. {@link #readNext()} returns <code>null</code> at the
+ * end of each document or array.
+ * </p>
+ *
+ * @api.yes This class is part of the driver's API. Public and protected members
+ *          will be deprecated for at least 1 non-bugfix release (version
+ *          numbers are &lt;major&gt;.&lt;minor&gt;.&lt;bugfix&gt;) before being
+ *          removed or modified.
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+@NotThreadSafe
+public class BsonReader {
+
+    /** The initial depth of documents and arrays to track. */
+    private static final int INITIAL_DEPTH = 8;
+
+    /** The bytes being read. */
+    private final byte[] myBuffer;
+
+    /** The decoder for strings. */
+    private final StringDecoder myDecoder;
+
+    /** The number of open documents and arrays. */
+    private int myDepth;
+
+    /** The offset just past each open document or array. */
+    private int[] myEnds;
+
+    /** The offset just past the readable bytes. */
+    private final int myLimit;
+
+    /** The name of the current element. */
+    private String myName;
+
+    /** The offset of the next byte to read. */
+    private int myOffset;
+
+    /** The type of the current element if its value has not been read. */
+    private ElementType myType;
+
+    /**
+     * Creates a new BsonReader.
+     *
+     * @param buffer
+     *            The bytes to read. The bytes are not copied and must not be
+     *            modified while being read.
+     * @param offset
+     *            The offset of the first byte of the document.
+     * @param length
+     *            The number of bytes that can be read.
+     * @param cache
+     *            The cache for decoding strings. May be <code>null</code>.
+     */
+    public BsonReader(final byte[] buffer, final int offset, final int length,
+            final StringDecoderCache cache) {
+        myBuffer = buffer;
+        myOffset = offset;
+        myLimit = offset + length;
+        myDecoder = (cache == null) ? new StringDecoder() : new StringDecoder(
+                cache);
+
+        myDepth = 0;
+        myEnds = new int[INITIAL_DEPTH];
+        myName = null;
+        myType = null;
+    }
+
+    /**
+     * Returns the number of open documents and arrays.
+     *
+     * @return The number of open documents and arrays.
+     */
+    public int getDepth() {
+        return myDepth;
+    }
+
+    /**
+     * Returns the name of the current element.
+     *
+     * @return The name of the current element.
+     */
+    public String getName() {
+        return myName;
+    }
+
+    /**
+     * Returns the type of the current element or <code>null</code> if the
+     * element's value has been read.
+     *
+     * @return The type of the current element.
+     */
+    public ElementType getType() {
+        return myType;
+    }
+
+    /**
+     * Reads the current binary element's data.
+     *
+     * @return The binary data.
+     * @throws IOException
+     *             On a failure reading the value.
+     */
+    public byte[] readBinary() throws IOException {
+        consume(ElementType.BINARY);
+
+        int length = readRawInt();
+        final byte subType = readRawByte();
+        if (subType == 2) {
+            // Old binary format has a second length.
+            length = readRawInt();
+        }
+
+        ensure(length);
+        final byte[] data = Arrays.copyOfRange(myBuffer, myOffset, myOffset
+                + length);
+        myOffset += length;
+
+        return data;
+    }
+
+    /**
+     * Reads the current boolean element's value.
+     *
+     * @return The boolean value.
+     * @throws IOException
+     *             On a failure reading the value.
+     */
+    public boolean readBoolean() throws IOException {
+        consume(ElementType.BOOLEAN);
+
+        return readRawByte() != 0;
+    }
+
+    /**
+     * Reads the current double element's value.
+     *
+     * @return The double value.
+     * @throws IOException
+     *             On a failure reading the value.
+     */
+    public double readDouble() throws IOException {
+        consume(ElementType.DOUBLE);
+
+        return Double.longBitsToDouble(readRawLong());
+    }
+
+    /**
+     * Reads the current 32-bit integer element's value.
+     *
+     * @return The integer value.
+     * @throws IOException
+     *             On a failure reading the value.
+     */
+    public int readInt() throws IOException {
+        consume(ElementType.INTEGER);
+
+        return readRawInt();
+    }
+
+    /**
+     * Reads the current 64-bit integer element's value.
+     *
+     * @return The long value.
+     * @throws IOException
+     *             On a failure reading the value.
+     */
+    public long readLong() throws IOException {
+        consume(ElementType.LONG);
+
+        return readRawLong();
+    }
+
+    /**
+     * Moves to the next element in the current document or array, skipping
+     * the value of the current element if it has not been read.
+     *
+     * @return The type of the next element or <code>null</code> if the end of
+     *         the document or array has been reached.
+     * @throws IOException
+     *             On a failure reading the element.
+     * @throws IllegalStateException
+     *             If there is no open document or array.
+     */
+    public ElementType readNext() throws IOException, IllegalStateException {
+        if (myDepth == 0) {
+            throw new IllegalStateException(
+                    "There is no open document or array to read.");
+        }
+
+        skipValue();
+
+        final byte token = readRawByte();
+        if (token == 0) {
+            myDepth -= 1;
+            if (myOffset != myEnds[myDepth]) {
+                throw new StreamCorruptedException(
+                        "The document's length does not match its contents.");
+            }
+            myName = null;
+            return null;
+        }
+
+        final ElementType type = ElementType.valueOf(token);
+        if (type == null) {
+            throw new StreamCorruptedException("Unknown element type '0x"
+                    + Integer.toHexString(token & 0xFF) + "'.");
+        }
+
+        myName = readCString();
+        myType = type;
+
+        return type;
+    }
+
+    /**
+     * Reads the current null element.
+     *
+     * @throws IOException
+     *             On a failure reading the value.
+     */
+    public void readNull() throws IOException {
+        consume(ElementType.NULL);
+    }
+
+    /**
+     * Reads the current ObjectId element's value.
+     *
+     * @return The ObjectId value.
+     * @throws IOException
+     *             On a failure reading the value.
+     */
+    public ObjectId readObjectId() throws IOException {
+        consume(ElementType.OBJECT_ID);
+
+        // Just to be complicated the Object ID is big endian.
+        final int timestamp = EndianUtils.swap(readRawInt());
+        final long machineId = EndianUtils.swap(readRawLong());
+
+        return new ObjectId(timestamp, machineId);
+    }
+
+    /**
+     * Starts reading an array. This must be the current element. The contents
+     * of the array are read via {@link #readNext()}.
+     *
+     * @throws IOException
+     *             On a failure reading the array.
+     */
+    public void readStartArray() throws IOException {
+        consume(ElementType.ARRAY);
+        push();
+    }
+
+    /**
+     * Starts reading the top level document or, if the current element is a
+     * sub-document, the sub-document. The contents of the document are read
+     * via {@link #readNext()}.
+     *
+     * @throws IOException
+     *             On a failure reading the document.
+     */
+    public void readStartDocument() throws IOException {
+        if (myDepth > 0) {
+            consume(ElementType.DOCUMENT);
+        }
+        push();
+    }
+
+    /**
+     * Reads the current string element's value.
+     *
+     * @return The string value.
+     * @throws IOException
+     *             On a failure reading the value.
+     */
+    public String readString() throws IOException {
+        consume(ElementType.STRING);
+
+        final int length = readRawInt();
+        if (length < 1) {
+            throw new StreamCorruptedException("Invalid string length: "
+                    + length + ".");
+        }
+        ensure(length);
+
+        final String value = myDecoder.decode(myBuffer, myOffset, length);
+        myOffset += length;
+
+        return value;
+    }
+
+    /**
+     * Reads the current UTC timestamp (date) element's value.
+     *
+     * @return The number of milliseconds since the UNIX epoch.
+     * @throws IOException
+     *             On a failure reading the value.
+     */
+    public long readTimestamp() throws IOException {
+        consume(ElementType.UTC_TIMESTAMP);
+
+        return readRawLong();
+    }
+
+    /**
+     * Skips the value of the current element, if it has not been read.
+     *
+     * @throws IOException
+     *             On a failure skipping the value.
+     */
+    public void skipValue() throws IOException {
+        final ElementType type = myType;
+        if (type == null) {
+            return;
+        }
+        myType = null;
+
+        switch (type) {
+        case BOOLEAN: {
+            skip(1);
+            break;
+        }
+        case INTEGER: {
+            skip(4);
+            break;
+        }
+        case DOUBLE:
+        case LONG:
+        case MONGO_TIMESTAMP:
+        case UTC_TIMESTAMP: {
+            skip(8);
+            break;
+        }
+        case OBJECT_ID: {
+            skip(12);
+            break;
+        }
+        case JAVA_SCRIPT:
+        case STRING:
+        case SYMBOL: {
+            skip(readRawInt());
+            break;
+        }
+        case DB_POINTER: {
+            skip(readRawInt());
+            skip(12);
+            break;
+        }
+        case BINARY: {
+            skip(readRawInt() + 1);
+            break;
+        }
+        case ARRAY:
+        case DOCUMENT:
+        case JAVA_SCRIPT_WITH_SCOPE: {
+            // Length includes the length.
+            skip(readRawInt() - 4);
+            break;
+        }
+        case REGEX: {
+            readCString();
+            readCString();
+            break;
+        }
+        default: {
+            // NULL, MIN_KEY, MAX_KEY have no value.
+            break;
+        }
+        }
+    }
+
+    /**
+     * Verifies the current element has the expected type and marks its value
+     * as read.
+     *
+     * @param expected
+     *            The expected type of the element.
+     * @throws IllegalStateException
+     *             If the current element does not have the expected type.
+     */
+    private void consume(final ElementType expected)
+            throws IllegalStateException {
+        if (myType != expected) {
+            throw new IllegalStateException("Expected the current element ("
+                    + myName + ") to be a " + expected + " but it is a "
+                    + myType + ".");
+        }
+        myType = null;
+    }
+
+    /**
+     * Verifies there are enough bytes remaining.
+     *
+     * @param count
+     *            The number of bytes needed.
+     * @throws EOFException
+     *             If there are not enough bytes remaining.
+     */
+    private void ensure(final int count) throws EOFException {
+        if ((count < 0) || ((myLimit - myOffset) < count)) {
+            throw new EOFException();
+        }
+    }
+
+    /**
+     * Reads the length of a document or array and pushes its end onto the
+     * stack.
+     *
+     * @throws IOException
+     *             On a failure reading the length.
+     */
+    private void push() throws IOException {
+        final int start = myOffset;
+        final int length = readRawInt();
+        if (length < 5) {
+            throw new StreamCorruptedException("Invalid document length: "
+                    + length + ".");
+        }
+        ensure(length - 4);
+
+        if (myDepth == myEnds.length) {
+            myEnds = Arrays.copyOf(myEnds, myDepth << 1);
+        }
+        myEnds[myDepth] = start + length;
+        myDepth += 1;
+    }
+
+    /**
+     * Reads a null terminated string.
+     *
+     * @return The string.
+     * @throws IOException
+     *             On a failure reading the string.
+     */
+    private String readCString() throws IOException {
+        int end = myOffset;
+        while ((end < myLimit) && (myBuffer[end] != 0)) {
+            end += 1;
+        }
+        if (end == myLimit) {
+            throw new EOFException();
+        }
+
+        final int length = (end - myOffset) + 1;
+        final String value = myDecoder.decode(myBuffer, myOffset, length);
+        myOffset += length;
+
+        return value;
+    }
+
+    /**
+     * Reads a single byte.
+     *
+     * @return The byte.
+     * @throws EOFException
+     *             If there are no bytes remaining.
+     */
+    private byte readRawByte() throws EOFException {
+        ensure(1);
+        return myBuffer[myOffset++];
+    }
+
+    /**
+     * Reads a little-endian 4 byte signed integer.
+     *
+     * @return The integer value.
+     * @throws EOFException
+     *             If there are not enough bytes remaining.
+     */
+    private int readRawInt() throws EOFException {
+        ensure(4);
+
+        int result = (myBuffer[myOffset] & 0xFF);
+        result += (myBuffer[myOffset + 1] & 0xFF) << 8;
+        result += (myBuffer[myOffset + 2] & 0xFF) << 16;
+        result += (myBuffer[myOffset + 3] & 0xFF) << 24;
+        myOffset += 4;
+
+        return result;
+    }
+
+    /**
+     * Reads a little-endian 8 byte signed integer.
+     *
+     * @return The long value.
+     * @throws EOFException
+     *             If there are not enough bytes remaining.
+     */
+    private long readRawLong() throws EOFException {
+        final long low = readRawInt() & 0xFFFFFFFFL;
+        final long high = readRawInt();
+
+        return (high << 32) + low;
+    }
+
+    /**
+     * Skips the specified number of bytes.
+     *
+     * @param count
+     *            The number of bytes to skip.
+     * @throws EOFException
+     *             If there are not enough bytes remaining.
+     */
+    private void skip(final int count) throws EOFException {
+        ensure(count);
+        myOffset += count;
+    }
+}
@@ -0,0 +1,345 @@
+/*
+ * #%L
+ * BsonWriter.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.bson.codec;
+
+import java.util.Arrays;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.allanbank.mongodb.bson.ElementType;
+import com.allanbank.mongodb.bson.element.ObjectId;
+import com.allanbank.mongodb.bson.io.EndianUtils;
+import com.allanbank.mongodb.bson.io.RandomAccessOutputStream;
+
+/**
+ * BsonWriter provides the ability to stream the elements of a document
+ * directly into a {@link RandomAccessOutputStream} without first creating the
+ * {@link com.allanbank.mongodb.bson.Element} objects. The length of each
+ * document and array is written once the document or array is ended.
+ * <p>
+ * Within an array the name of each element may be <code>null</code> and the
+ * writer will use the element's index.
+ * </p>
+ *
+ * @api.yes This class is part of the driver's API. Public and protected members
+ *          will be deprecated for at least 1 non-bugfix release (version
+ *          numbers are &lt;major&gt;.&lt;minor&gt;.&lt;bugfix&gt;) before being
+ *          removed or modified.
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+@NotThreadSafe
+public class BsonWriter {
+
+    /** The initial depth of documents and arrays to track. */
+    private static final int INITIAL_DEPTH = 8;
+
+    /** The number of open documents and arrays. */
+    private int myDepth;
+
+    /** The index of the next element for each open array. */
+    private int[] myIndexes;
+
+    /** True if the top level document has an "_id" element. */
+    private boolean myIdWritten;
+
+    /** Tracks which of the open structures are arrays. */
+    private boolean[] myIsArray;
+
+    /** The stream to write to. */
+    private final RandomAccessOutputStream myOutput;
+
+    /** The position of the length for each open document or array. */
+    private long[] myStarts;
+
+    /**
+     * Creates a new BsonWriter.
+     *
+     * @param output
+     *            The stream to write to.
+     */
+    public BsonWriter(final RandomAccessOutputStream output) {
+        myOutput = output;
+        myDepth = 0;
+        myIndexes = new int[INITIAL_DEPTH];
+        myIsArray = new boolean[INITIAL_DEPTH];
+        myStarts = new long[INITIAL_DEPTH];
+        myIdWritten = false;
+    }
+
+    /**
+     * Returns the number of open documents and arrays.
+     *
+     * @return The number of open documents and arrays.
+     */
+    public int getDepth() {
+        return myDepth;
+    }
+
+    /**
+     * Returns true if an "_id" element has been written to the top level
+     * document.
+     *
+     * @return True if an "_id" element has been written to the top level
+     *         document.
+     */
+    public boolean isIdWritten() {
+        return myIdWritten;
+    }
+
+    /**
+     * Writes a binary element.
+     *
+     * @param name
+     *            The name of the element.
+     * @param data
+     *            The binary data.
+     */
+    public void writeBinary(final String name, final byte[] data) {
+        writeHeader(ElementType.BINARY, name);
+        myOutput.writeInt(data.length);
+        myOutput.writeByte((byte) 0);
+        myOutput.writeBytes(data);
+    }
+
+    /**
+     * Writes a boolean element.
+     *
+     * @param name
+     *            The name of the element.
+     * @param value
+     *            The boolean value.
+     */
+    public void writeBoolean(final String name, final boolean value) {
+        writeHeader(ElementType.BOOLEAN, name);
+        myOutput.writeByte(value ? (byte) 0x01 : (byte) 0x00);
+    }
+
+    /**
+     * Writes a double element.
+     *
+     * @param name
+     *            The name of the element.
+     * @param value
+     *            The double value.
+     */
+    public void writeDouble(final String name, final double value) {
+        writeHeader(ElementType.DOUBLE, name);
+        myOutput.writeLong(Double.doubleToLongBits(value));
+    }
+
+    /**
+     * Ends the current document or array.
+     *
+     * @throws IllegalStateException
+     *             If there is no open document or array.
+     */
+    public void writeEnd() throws IllegalStateException {
+        if (myDepth == 0) {
+            throw new IllegalStateException(
+                    "There is no open document or array to end.");
+        }
+
+        myOutput.writeByte((byte) 0);
+
+        myDepth -= 1;
+        final long start = myStarts[myDepth];
+        myOutput.writeIntAt(start, (int) (myOutput.getPosition() - start));
+    }
+
+    /**
+     * Writes a 32-bit integer element.
+     *
+     * @param name
+     *            The name of the element.
+     * @param value
+     *            The integer value.
+     */
+    public void writeInt(final String name, final int value) {
+        writeHeader(ElementType.INTEGER, name);
+        myOutput.writeInt(value);
+    }
+
+    /**
+     * Writes a 64-bit integer element.
+     *
+     * @param name
+     *            The name of the element.
+     * @param value
+     *            The long value.
+     */
+    public void writeLong(final String name, final long value) {
+        writeHeader(ElementType.LONG, name);
+        myOutput.writeLong(value);
+    }
+
+    /**
+     * Writes a null element.
+     *
+     * @param name
+     *            The name of the element.
+     */
+    public void writeNull(final String name) {
+        writeHeader(ElementType.NULL, name);
+    }
+
+    /**
+     * Writes an ObjectId element.
+     *
+     * @param name
+     *            The name of the element.
+     * @param id
+     *            The ObjectId value.
+     */
+    public void writeObjectId(final String name, final ObjectId id) {
+        writeHeader(ElementType.OBJECT_ID, name);
+        // Just to be complicated the Object ID is big endian.
+        myOutput.writeInt(EndianUtils.swap(id.getTimestamp()));
+        myOutput.writeLong(EndianUtils.swap(id.getMachineId()));
+    }
+
+    /**
+     * Starts an array element. The array must be ended via
+     * {@link #writeEnd()}.
+     *
+     * @param name
+     *            The name of the element.
+     */
+    public void writeStartArray(final String name) {
+        writeHeader(ElementType.ARRAY, name);
+        push(true);
+    }
+
+    /**
+     * Starts the top level document. The document must be ended via
+     * {@link #writeEnd()}.
+     */
+    public void writeStartDocument() {
+        push(false);
+    }
+
+    /**
+     * Starts a sub-document element. The document must be ended via
+     * {@link #writeEnd()}.
+     *
+     * @param name
+     *            The name of the element.
+     */
+    public void writeStartDocument(final String name) {
+        writeHeader(ElementType.DOCUMENT, name);
+        push(false);
+    }
+
+    /**
+     * Writes a string element. A <code>null</code> value is written as a null
+     * element.
+     *
+     * @param name
+     *            The name of the element.
+     * @param value
+     *            The string value.
+     */
+    public void writeString(final String name, final String value) {
+        if (value == null) {
+            writeNull(name);
+        }
+        else {
+            writeHeader(ElementType.STRING, name);
+            myOutput.writeString(value);
+        }
+    }
+
+    /**
+     * Writes a UTC timestamp (date) element.
+     *
+     * @param name
+     *            The name of the element.
+     * @param millis
+     *            The number of milliseconds since the UNIX epoch.
+     */
+    public void writeTimestamp(final String name, final long millis) {
+        writeHeader(ElementType.UTC_TIMESTAMP, name);
+        myOutput.writeLong(millis);
+    }
+
+    /**
+     * Pushes a new document or array onto the stack and reserves the space
+     * for its length.
+     *
+     * @param array
+     *            True if an array is being started.
+     */
+    private void push(final boolean array) {
+        if (myDepth == myStarts.length) {
+            final int length = myDepth << 1;
+            myStarts = Arrays.copyOf(myStarts, length);
+            myIsArray = Arrays.copyOf(myIsArray, length);
+            myIndexes = Arrays.copyOf(myIndexes, length);
+        }
+
+        myStarts[myDepth] = myOutput.getPosition();
+        myIsArray[myDepth] = array;
+        myIndexes[myDepth] = 0;
+        myDepth += 1;
+
+        myOutput.writeInt(0); // Placeholder for the length.
+    }
+
+    /**
+     * Writes the type and name of an element.
+     *
+     * @param type
+     *            The type of the element.
+     * @param name
+     *            The name of the element.
+     * @throws IllegalStateException
+     *             If there is no open document or array.
+     * @throws IllegalArgumentException
+     *             If the name is <code>null</code> and the element is not
+     *             within an array.
+     */
+    private void writeHeader(final ElementType type, final String name)
+            throws IllegalStateException, IllegalArgumentException {
+        if (myDepth == 0) {
+            throw new IllegalStateException(
+                    "An element can only be written within a document or array.");
+        }
+
+        final int top = myDepth - 1;
+        String elementName = name;
+        if (myIsArray[top]) {
+            final int index = myIndexes[top];
+            myIndexes[top] = index + 1;
+            if (elementName == null) {
+                elementName = Integer.toString(index);
+            }
+        }
+        else if (elementName == null) {
+            throw new IllegalArgumentException(
+                    "The name of a document's element cannot be null.");
+        }
+        else if ((top == 0) && "_id".equals(elementName)) {
+            myIdWritten = true;
+        }
+
+        myOutput.writeByte(type.getToken());
+        myOutput.writeCString(elementName);
+    }
+}
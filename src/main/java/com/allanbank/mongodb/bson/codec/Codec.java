@@ -0,0 +1,45 @@
+/*
+ * #%L
+ * Codec.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.bson.codec;
+
+/**
+ * Codec provides the combination of an {@link Encoder} and {@link Decoder}
+ * for a single class.
+ *
+ * @param <T>
+ *            The type of object encoded and decoded.
+ *
+ * @api.yes This interface is part of the driver's API. Public and protected
+ *          members will be deprecated for at least 1 non-bugfix release
+ *          (version numbers are &lt;major&gt;.&lt;minor&gt;.&lt;bugfix&gt;)
+ *          before being removed or modified.
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+public interface Codec<T>
+        extends Encoder<T>, Decoder<T> {
+
+    /**
+     * Returns the class the codec encodes and decodes.
+     *
+     * @return The class the codec encodes and decodes.
+     */
+    public Class<T> getType();
+}
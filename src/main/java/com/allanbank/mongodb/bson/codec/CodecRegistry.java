@@ -0,0 +1,121 @@
+/*
+ * #%L
+ * CodecRegistry.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.bson.codec;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * CodecRegistry provides a registry of the {@link Codec} for each class.
+ * <p>
+ * A codec registered for a class is also used for the class's sub-classes
+ * unless a codec has been registered for the sub-class.
+ * </p>
+ *
+ * @api.yes This class is part of the driver's API. Public and protected members
+ *          will be deprecated for at least 1 non-bugfix release (version
+ *          numbers are &lt;major&gt;.&lt;minor&gt;.&lt;bugfix&gt;) before being
+ *          removed or modified.
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+@ThreadSafe
+public class CodecRegistry {
+
+    /** The registered codecs. */
+    private final ConcurrentMap<Class<?>, Codec<?>> myCodecs;
+
+    /**
+     * Creates a new CodecRegistry.
+     */
+    public CodecRegistry() {
+        myCodecs = new ConcurrentHashMap<Class<?>, Codec<?>>();
+    }
+
+    /**
+     * Returns the codec for the class or <code>null</code> if there is no
+     * codec registered for the class or any of its super-classes.
+     *
+     * @param <T>
+     *            The type of the class.
+     * @param type
+     *            The class to find the codec for.
+     * @return The codec for the class.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Codec<T> getCodec(final Class<T> type) {
+        Class<?> clazz = type;
+        while (clazz != null) {
+            final Codec<?> codec = myCodecs.get(clazz);
+            if (codec != null) {
+                return (Codec<T>) codec;
+            }
+            clazz = clazz.getSuperclass();
+        }
+        return null;
+    }
+
+    /**
+     * Returns the codec for the class.
+     *
+     * @param <T>
+     *            The type of the class.
+     * @param type
+     *            The class to find the codec for.
+     * @return The codec for the class.
+     * @throws IllegalArgumentException
+     *             If there is no codec registered for the class or any of its
+     *             super-classes.
+     */
+    public <T> Codec<T> getRequiredCodec(final Class<T> type)
+            throws IllegalArgumentException {
+        final Codec<T> codec = getCodec(type);
+        if (codec == null) {
+            throw new IllegalArgumentException("No codec is registered for '"
+                    + type.getName() + "'.");
+        }
+        return codec;
+    }
+
+    /**
+     * Registers the codec for its {@link Codec#getType() class}, replacing any
+     * codec previously registered for the class.
+     *
+     * @param <T>
+     *            The type of the class.
+     * @param codec
+     *            The codec to register.
+     */
+    public <T> void register(final Codec<T> codec) {
+        myCodecs.put(codec.getType(), codec);
+    }
+
+    /**
+     * Removes the codec for the class.
+     *
+     * @param type
+     *            The class to remove the codec for.
+     */
+    public void unregister(final Class<?> type) {
+        myCodecs.remove(type);
+    }
+}
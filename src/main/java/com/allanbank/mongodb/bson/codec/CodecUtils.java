@@ -0,0 +1,222 @@
+/*
+ * #%L
+ * CodecUtils.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.bson.codec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
+
+import com.allanbank.mongodb.bson.Document;
+import com.allanbank.mongodb.bson.ElementType;
+import com.allanbank.mongodb.bson.element.ObjectId;
+import com.allanbank.mongodb.bson.impl.LazyDocument;
+import com.allanbank.mongodb.bson.io.BsonOutputStream;
+import com.allanbank.mongodb.bson.io.EndianUtils;
+import com.allanbank.mongodb.bson.io.RandomAccessOutputStream;
+
+/**
+ * CodecUtils provides utility methods for converting between objects and
+ * {@link Document}s using a codec.
+ *
+ * @api.yes This class is part of the driver's API. Public and protected members
+ *          will be deprecated for at least 1 non-bugfix release (version
+ *          numbers are &lt;major&gt;.&lt;minor&gt;.&lt;bugfix&gt;) before being
+ *          removed or modified.
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+public final class CodecUtils {
+
+    /**
+     * The size of an "_id" element with an {@link ObjectId} value: the type,
+     * the "_id" name and the 12 bytes of the value.
+     */
+    private static final int ID_ELEMENT_SIZE = 1 + 4 + 12;
+
+    /** The buffer to encode objects into for each thread. */
+    private static final ThreadLocal<Reference<RandomAccessOutputStream>> ourBuffer = new ThreadLocal<Reference<RandomAccessOutputStream>>();
+
+    /**
+     * Decodes the object from the document. The document is first encoded
+     * into a buffer which is then decoded. Where possible, objects should
+     * instead be decoded directly from the received bytes via
+     * {@link com.allanbank.mongodb.bson.io.BsonInputStream#readDocument(Decoder)}
+     * .
+     *
+     * @param <T>
+     *            The type of object to decode.
+     * @param document
+     *            The document to decode.
+     * @param decoder
+     *            The decoder for the object.
+     * @return The decoded object.
+     * @throws IOException
+     *             On a failure decoding the object.
+     */
+    public static <T> T fromDocument(final Document document,
+            final Decoder<T> decoder) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(
+                (int) document.size());
+        final BsonOutputStream writer = new BsonOutputStream(out);
+        writer.writeDocument(document);
+
+        final byte[] bytes = out.toByteArray();
+        return decoder.decode(new BsonReader(bytes, 0, bytes.length, null));
+    }
+
+    /**
+     * Encodes the object into a document without creating any elements. The
+     * returned document holds the encoded bytes and is written as is when
+     * sent to the server.
+     *
+     * @param <T>
+     *            The type of object to encode.
+     * @param object
+     *            The object to encode.
+     * @param encoder
+     *            The encoder for the object.
+     * @return The encoded document.
+     * @throws IOException
+     *             On a failure encoding the object.
+     */
+    public static <T> Document toDocument(final T object,
+            final Encoder<? super T> encoder) throws IOException {
+        return toDocument(object, encoder, false);
+    }
+
+    /**
+     * Encodes the object into a document without creating any elements. The
+     * returned document holds the encoded bytes and is written as is when
+     * sent to the server.
+     * <p>
+     * The object is encoded into a buffer reused by the thread and then
+     * copied once into the document's bytes. The buffer is needed since the
+     * size of the document is not known until it is encoded.
+     * </p>
+     *
+     * @param <T>
+     *            The type of object to encode.
+     * @param object
+     *            The object to encode.
+     * @param encoder
+     *            The encoder for the object.
+     * @param injectId
+     *            If true and the encoder does not write an "_id" element to
+     *            the document then an {@link ObjectId} "_id" element is added
+     *            as the first element of the document.
+     * @return The encoded document.
+     * @throws IOException
+     *             On a failure encoding the object.
+     */
+    public static <T> Document toDocument(final T object,
+            final Encoder<? super T> encoder, final boolean injectId)
+            throws IOException {
+        // Take the buffer so an encoder that encodes another object does not
+        // use it at the same time.
+        final Reference<RandomAccessOutputStream> ref = ourBuffer.get();
+        RandomAccessOutputStream buffer = (ref != null) ? ref.get() : null;
+        if (buffer == null) {
+            buffer = new RandomAccessOutputStream();
+        }
+        else {
+            ourBuffer.set(null);
+            buffer.reset();
+        }
+
+        try {
+            final BsonWriter writer = new BsonWriter(buffer);
+            encoder.encode(object, writer);
+
+            final int size = (int) buffer.getSize();
+            final byte[] bytes;
+            if (injectId && !writer.isIdWritten()) {
+                bytes = new byte[size + ID_ELEMENT_SIZE];
+
+                // The copied length is overwritten by the "_id" element.
+                buffer.writeTo(bytes, ID_ELEMENT_SIZE);
+                writeId(bytes, size + ID_ELEMENT_SIZE, new ObjectId());
+            }
+            else {
+                bytes = new byte[size];
+                buffer.writeTo(bytes, 0);
+            }
+
+            return new LazyDocument(bytes, null);
+        }
+        finally {
+            ourBuffer.set(new SoftReference<RandomAccessOutputStream>(buffer));
+        }
+    }
+
+    /**
+     * Writes the length of the document and an "_id" element to the start of
+     * the document's bytes.
+     *
+     * @param bytes
+     *            The bytes for the document.
+     * @param length
+     *            The length of the document.
+     * @param id
+     *            The value for the "_id" element.
+     */
+    private static void writeId(final byte[] bytes, final int length,
+            final ObjectId id) {
+        int offset = 0;
+        offset = writeInt(bytes, offset, EndianUtils.swap(length));
+        bytes[offset++] = ElementType.OBJECT_ID.getToken();
+        bytes[offset++] = (byte) '_';
+        bytes[offset++] = (byte) 'i';
+        bytes[offset++] = (byte) 'd';
+        bytes[offset++] = 0;
+        // Just to be complicated the Object ID is big endian.
+        offset = writeInt(bytes, offset, id.getTimestamp());
+        final long machineId = id.getMachineId();
+        offset = writeInt(bytes, offset, (int) (machineId >> 32));
+        writeInt(bytes, offset, (int) machineId);
+    }
+
+    /**
+     * Writes the big-endian integer to the bytes.
+     *
+     * @param bytes
+     *            The bytes to write to.
+     * @param offset
+     *            The offset to write the integer at.
+     * @param value
+     *            The value to write.
+     * @return The offset after the integer.
+     */
+    private static int writeInt(final byte[] bytes, final int offset,
+            final int value) {
+        bytes[offset] = (byte) (value >> 24);
+        bytes[offset + 1] = (byte) (value >> 16);
+        bytes[offset + 2] = (byte) (value >> 8);
+        bytes[offset + 3] = (byte) value;
+        return offset + 4;
+    }
+
+    /**
+     * Stop creation of a new CodecUtils.
+     */
+    private CodecUtils() {
+        // Nothing.
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * #%L
+ * Decoder.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.bson.codec;
+
+import java.io.IOException;
+
+/**
+ * Decoder provides the interface for reading an object directly from a BSON
+ * document.
+ *
+ * @param <T>
+ *            The type of object decoded.
+ *
+ * @api.yes This interface is part of the driver's API. Public and protected
+ *          members will be deprecated for at least 1 non-bugfix release
+ *          (version numbers are &lt;major&gt;.&lt;minor&gt;.&lt;bugfix&gt;)
+ *          before being removed or modified.
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+public interface Decoder<T> {
+
+    /**
+     * Reads the object from a document. Implementations must call
+     * {@link BsonReader#readStartDocument()} first and then
+     * {@link BsonReader#readNext()} until it returns <code>null</code>.
+     *
+     * @param reader
+     *            The reader to read the document from.
+     * @return The decoded object.
+     * @throws IOException
+     *             On a failure reading the document.
+     */
+    public T decode(BsonReader reader) throws IOException;
+}
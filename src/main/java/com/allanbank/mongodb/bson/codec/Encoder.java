@@ -0,0 +1,53 @@
+/*
+ * #%L
+ * Encoder.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.bson.codec;
+
+import java.io.IOException;
+
+/**
+ * Encoder provides the interface for writing an object directly as a BSON
+ * document.
+ *
+ * @param <T>
+ *            The type of object encoded.
+ *
+ * @api.yes This interface is part of the driver's API. Public and protected
+ *          members will be deprecated for at least 1 non-bugfix release
+ *          (version numbers are &lt;major&gt;.&lt;minor&gt;.&lt;bugfix&gt;)
+ *          before being removed or modified.
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+public interface Encoder<T> {
+
+    /**
+     * Writes the object as a document. Implementations must call
+     * {@link BsonWriter#writeStartDocument()} first and
+     * {@link BsonWriter#writeEnd()} last.
+     *
+     * @param object
+     *            The object to encode.
+     * @param writer
+     *            The writer to write the document to.
+     * @throws IOException
+     *             On a failure writing the document.
+     */
+    public void encode(T object, BsonWriter writer) throws IOException;
+}
@@ -0,0 +1,42 @@
+/*
+ * #%L
+ * package-info.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Provides the ability to encode Java objects directly to BSON and decode them
+ * directly from BSON without building an intermediate
+ * {@link com.allanbank.mongodb.bson.Document} of
+ * {@link com.allanbank.mongodb.bson.Element}s.
+ *
+ * <h2>Usage</h2>
+ * <p>
+ * Implement a {@link com.allanbank.mongodb.bson.codec.Codec} for each class
+ * using the streaming {@link com.allanbank.mongodb.bson.codec.BsonWriter} and
+ * {@link com.allanbank.mongodb.bson.codec.BsonReader} and register it with a
+ * {@link com.allanbank.mongodb.bson.codec.CodecRegistry}. The codecs can then
+ * be used with the {@link com.allanbank.mongodb.bson.io.BsonOutputStream},
+ * {@link com.allanbank.mongodb.bson.io.BufferingBsonOutputStream} and
+ * {@link com.allanbank.mongodb.bson.io.BsonInputStream} or passed to the
+ * typed insert and find methods of the
+ * {@link com.allanbank.mongodb.MongoCollection}.
+ * </p>
+ *
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+package com.allanbank.mongodb.bson.codec;
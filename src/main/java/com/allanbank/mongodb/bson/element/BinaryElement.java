@@ -22,6 +22,7 @@ package com.allanbank.mongodb.bson.element;
 import static com.allanbank.mongodb.util.Assertions.assertNotNull;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Arrays;
 
 import javax.annotation.concurrent.Immutable;
@@ -194,6 +195,43 @@ public class BinaryElement
         myValue = value.clone();
     }
 
+    /**
+     * Constructs a new {@link BinaryElement} from a range of the bytes in the
+     * {@code value}. Only the range of bytes is copied.
+     *
+     * @param name
+     *            The name for the BSON binary.
+     * @param subType
+     *            The sub-type of the binary data.
+     * @param value
+     *            The array containing the BSON binary value.
+     * @param offset
+     *            The offset of the first byte of the value in the array.
+     * @param length
+     *            The number of bytes in the value.
+     * @throws IllegalArgumentException
+     *             If the {@code name} or {@code value} is <code>null</code>.
+     * @throws ArrayIndexOutOfBoundsException
+     *             If the range is not within the {@code value}.
+     */
+    public BinaryElement(final String name, final byte subType,
+            final byte[] value, final int offset, final int length) {
+        super(name, computeSize(name, subType, length));
+
+        assertNotNull(value,
+                "Binary element's value cannot be null.  Add a null element instead.");
+
+        if ((offset < 0) || (length < 0) || (value.length < (offset + length))) {
+            throw new ArrayIndexOutOfBoundsException("The range [" + offset
+                    + ", " + (offset + length)
+                    + ") is not within the binary value of length "
+                    + value.length + ".");
+        }
+
+        mySubType = subType;
+        myValue = Arrays.copyOfRange(value, offset, offset + length);
+    }
+
     /**
      * Constructs a new {@link BinaryElement}. Uses the
      * {@link #DEFAULT_SUB_TYPE}.
@@ -372,4 +410,42 @@ public class BinaryElement
         }
         return new BinaryElement(name, mySubType, myValue);
     }
+
+    /**
+     * Writes the BSON binary value to the stream without the copy made by
+     * {@link #getValue()}.
+     *
+     * @param out
+     *            The stream to write the value to.
+     * @throws IOException
+     *             On a failure writing to the stream.
+     */
+    public void writeTo(final OutputStream out) throws IOException {
+        out.write(myValue);
+    }
+
+    /**
+     * Writes a range of the BSON binary value to the stream without the copy
+     * made by {@link #getValue()}.
+     *
+     * @param out
+     *            The stream to write the value to.
+     * @param offset
+     *            The offset of the first byte to write.
+     * @param length
+     *            The number of bytes to write.
+     * @throws IOException
+     *             On a failure writing to the stream.
+     * @throws IndexOutOfBoundsException
+     *             If the range is not within the value.
+     */
+    public void writeTo(final OutputStream out, final int offset,
+            final int length) throws IOException {
+        if ((offset < 0) || (length < 0) || (myValue.length - offset < length)) {
+            throw new IndexOutOfBoundsException("Invalid range [" + offset
+                    + ", " + offset + " + " + length + ") for a value of "
+                    + myValue.length + " bytes.");
+        }
+        out.write(myValue, offset, length);
+    }
 }
@@ -25,10 +25,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
@@ -41,6 +39,7 @@ import com.allanbank.mongodb.bson.Element;
 import com.allanbank.mongodb.bson.ElementType;
 import com.allanbank.mongodb.bson.Visitor;
 import com.allanbank.mongodb.bson.builder.BuilderFactory;
+import com.allanbank.mongodb.bson.impl.ElementIndex;
 import com.allanbank.mongodb.bson.impl.EmptyDocument;
 import com.allanbank.mongodb.bson.impl.RootDocument;
 import com.allanbank.mongodb.bson.io.StringEncoder;
@@ -118,14 +117,14 @@ public class DocumentElement
         return result;
     }
 
+    /** The elements of the document. */
+    private final List<Element> myElements;
+
     /**
-     * Constructed when a user tries to access the elements of the document by
+     * Located when a user tries to access the elements of the document by
      * name.
      */
-    private Map<String, Element> myElementMap;
-
-    /** The elements of the document. */
-    private final List<Element> myElements;
+    private transient ElementIndex myIndex;
 
     /**
      * Constructs a new {@link DocumentElement}.
@@ -414,7 +413,7 @@ public class DocumentElement
      */
     @Override
     public boolean contains(final String name) {
-        return getElementMap().containsKey(name);
+        return (get(name) != null);
     }
 
     /**
@@ -570,7 +569,18 @@ public class DocumentElement
      */
     @Override
     public Element get(final String name) {
-        return getElementMap().get(name);
+        ElementIndex index = myIndex;
+        if (index == null) {
+            // Benign race. The index is immutable and may be shared.
+            index = ElementIndex.forElements(myElements);
+            myIndex = index;
+        }
+
+        final int position = index.indexOf(myElements, name);
+        if (position < 0) {
+            return null;
+        }
+        return myElements.get(position);
     }
 
     /**
@@ -705,27 +715,4 @@ public class DocumentElement
         }
         return new DocumentElement(name, myElements);
     }
-
-    /**
-     * Returns a map from the element names to the elements in the document.
-     * Used for faster by-name access.
-     *
-     * @return The element name to element mapping.
-     */
-    private Map<String, Element> getElementMap() {
-        if (myElementMap == null) {
-            final List<Element> elements = myElements;
-            final Map<String, Element> mapping = new HashMap<String, Element>(
-                    elements.size() + elements.size());
-
-            for (final Element element : elements) {
-                mapping.put(element.getName(), element);
-            }
-
-            // Swap the finished map into position.
-            myElementMap = mapping;
-        }
-
-        return myElementMap;
-    }
 }
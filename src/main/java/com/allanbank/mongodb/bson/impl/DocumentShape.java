@@ -0,0 +1,208 @@
+/*
+ * #%L
+ * DocumentShape.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.bson.impl;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.allanbank.mongodb.bson.io.StringDecoder;
+
+/**
+ * DocumentShape provides the immutable description of the elements of an
+ * encoded document: the type and name of each element, in order. A single
+ * shape is shared by all of the {@link LazyDocument}s with the same element
+ * types and names so each document only holds its encoded bytes, the offset
+ * of each element and the elements it has decoded.
+ * <p>
+ * The encoded type and name of each element are kept so a document can be
+ * matched against the shape without decoding any of its names.
+ * </p>
+ *
+ * @api.no This class is <b>NOT</b> part of the drivers API. This class may be
+ *         mutated in incompatible ways between any two releases of the driver.
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+@Immutable
+@ThreadSafe
+/* package */final class DocumentShape {
+
+    /** The number of elements in the shape. */
+    private final int myCount;
+
+    /** The hash of the encoded types and names. */
+    private final int myHash;
+
+    /**
+     * The encoded type token, name and terminal null byte of each element,
+     * in order.
+     */
+    private final byte[] myHeaders;
+
+    /**
+     * The offset of each element's header in {@link #myHeaders}, with a final
+     * entry for the end of the headers.
+     */
+    private final int[] myHeaderOffsets;
+
+    /**
+     * The index of the last element with each name. Only built for shapes with
+     * more than {@link ElementIndex#MAX_SCAN_SIZE} elements.
+     */
+    private final Map<String, Integer> myIndex;
+
+    /** The names of the elements, in order. */
+    private final String[] myNames;
+
+    /**
+     * Creates a new DocumentShape from an encoded document.
+     *
+     * @param hash
+     *            The hash of the encoded types and names.
+     * @param bytes
+     *            The encoded document.
+     * @param offsets
+     *            The offset of each element's type token in the document.
+     * @param count
+     *            The number of elements in the document.
+     * @param decoder
+     *            The decoder for the element names.
+     * @throws IOException
+     *             On a failure decoding a name.
+     */
+    public DocumentShape(final int hash, final byte[] bytes,
+            final int[] offsets, final int count, final StringDecoder decoder)
+            throws IOException {
+        myHash = hash;
+        myCount = count;
+        myNames = new String[count];
+        myHeaderOffsets = new int[count + 1];
+
+        int length = 0;
+        final int[] lengths = new int[count];
+        for (int i = 0; i < count; ++i) {
+            final int offset = offsets[i];
+            int nameEnd = offset + 1;
+            while (bytes[nameEnd] != 0) {
+                nameEnd += 1;
+            }
+
+            myNames[i] = decoder.decode(bytes, offset + 1, nameEnd - offset);
+            lengths[i] = (nameEnd + 1) - offset;
+            length += lengths[i];
+        }
+
+        myHeaders = new byte[length];
+        int position = 0;
+        for (int i = 0; i < count; ++i) {
+            myHeaderOffsets[i] = position;
+            System.arraycopy(bytes, offsets[i], myHeaders, position,
+                    lengths[i]);
+            position += lengths[i];
+        }
+        myHeaderOffsets[count] = position;
+
+        if (ElementIndex.MAX_SCAN_SIZE < count) {
+            final Map<String, Integer> index = new HashMap<String, Integer>(
+                    count + count);
+            for (int i = 0; i < count; ++i) {
+                // A later element with the same name replaces the earlier one.
+                index.put(myNames[i], Integer.valueOf(i));
+            }
+            myIndex = Collections.unmodifiableMap(index);
+        }
+        else {
+            myIndex = null;
+        }
+    }
+
+    /**
+     * Returns the number of elements in the shape.
+     *
+     * @return The number of elements in the shape.
+     */
+    public int getCount() {
+        return myCount;
+    }
+
+    /**
+     * Returns the index of the last element with each name or
+     * <code>null</code> if the shape is small enough to scan.
+     *
+     * @return The index of the last element with each name.
+     */
+    public Map<String, Integer> getIndex() {
+        return myIndex;
+    }
+
+    /**
+     * Returns the names of the elements, in order. The array is shared and
+     * must not be modified.
+     *
+     * @return The names of the elements.
+     */
+    public String[] getNames() {
+        return myNames;
+    }
+
+    /**
+     * Returns true if the encoded document has the same element types and
+     * names as this shape.
+     *
+     * @param hash
+     *            The hash of the document's encoded types and names.
+     * @param bytes
+     *            The encoded document.
+     * @param offsets
+     *            The offset of each element's type token in the document.
+     * @param count
+     *            The number of elements in the document.
+     * @return True if the document matches the shape.
+     */
+    public boolean matches(final int hash, final byte[] bytes,
+            final int[] offsets, final int count) {
+        if ((myHash != hash) || (myCount != count)) {
+            return false;
+        }
+
+        for (int i = 0; i < count; ++i) {
+            final int offset = offsets[i];
+            final int start = myHeaderOffsets[i];
+            final int length = myHeaderOffsets[i + 1] - start;
+
+            // Includes the name's terminal null byte so the names must be the
+            // same length.
+            if (bytes.length < (offset + length)) {
+                return false;
+            }
+            for (int j = 0; j < length; ++j) {
+                if (bytes[offset + j] != myHeaders[start + j]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * #%L
+ * DocumentShapeCache.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.bson.impl;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.allanbank.mongodb.bson.io.StringDecoder;
+
+/**
+ * DocumentShapeCache provides a small, direct mapped, cache of the shapes of
+ * the {@link LazyDocument}s decoded. Documents with the same element types and
+ * names, in the same order, share a single shape: the names of the elements
+ * and, for larger documents, the index from name to element.
+ * <p>
+ * Each slot holds the most recently seen shape that maps to it so a result
+ * set with a handful of shapes normally finds its shape on every document
+ * while a stream of unique shapes is bounded by the size of the cache.
+ * </p>
+ *
+ * @api.no This class is <b>NOT</b> part of the drivers API. This class may be
+ *         mutated in incompatible ways between any two releases of the driver.
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+@ThreadSafe
+public class DocumentShapeCache {
+
+    /** The default number of shapes cached. */
+    public static final int DEFAULT_MAX_SHAPES = 256;
+
+    /**
+     * Mixes the high bits of the hash into the low bits used to select a
+     * slot.
+     *
+     * @param hash
+     *            The hash to spread.
+     * @return The spread hash.
+     */
+    private static int spread(final int hash) {
+        final int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /** The mask to convert a hash into a slot. */
+    private final int myMask;
+
+    /** The cached shapes. */
+    private final AtomicReferenceArray<DocumentShape> myShapes;
+
+    /**
+     * Creates a new DocumentShapeCache with the
+     * {@link #DEFAULT_MAX_SHAPES default} size.
+     */
+    public DocumentShapeCache() {
+        this(DEFAULT_MAX_SHAPES);
+    }
+
+    /**
+     * Creates a new DocumentShapeCache.
+     *
+     * @param maxShapes
+     *            The maximum number of shapes to cache. Rounded up to a power
+     *            of 2.
+     */
+    public DocumentShapeCache(final int maxShapes) {
+        int size = 1;
+        while (size < maxShapes) {
+            size <<= 1;
+        }
+
+        myMask = size - 1;
+        myShapes = new AtomicReferenceArray<DocumentShape>(size);
+    }
+
+    /**
+     * Returns the maximum number of shapes cached.
+     *
+     * @return The maximum number of shapes cached.
+     */
+    public int getMaxShapes() {
+        return myShapes.length();
+    }
+
+    /**
+     * Returns the shape for the encoded document. The shape is shared with
+     * the other documents with the same element types and names.
+     *
+     * @param hash
+     *            The hash of the document's encoded types and names.
+     * @param bytes
+     *            The encoded document.
+     * @param offsets
+     *            The offset of each element's type token in the document.
+     * @param count
+     *            The number of elements in the document.
+     * @param decoder
+     *            The decoder for the element names if a new shape is needed.
+     * @return The shape for the document.
+     * @throws IOException
+     *             On a failure decoding a name.
+     */
+    /* package */DocumentShape find(final int hash, final byte[] bytes,
+            final int[] offsets, final int count, final StringDecoder decoder)
+            throws IOException {
+        final int slot = spread(hash) & myMask;
+        final DocumentShape cached = myShapes.get(slot);
+        if ((cached != null) && cached.matches(hash, bytes, offsets, count)) {
+            return cached;
+        }
+
+        // Last writer wins the slot.
+        final DocumentShape shape = new DocumentShape(hash, bytes, offsets,
+                count, decoder);
+        myShapes.set(slot, shape);
+
+        return shape;
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * #%L
+ * ElementIndex.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.allanbank.mongodb.bson.impl;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.allanbank.mongodb.bson.Element;
+
+/**
+ * ElementIndex provides a compact, open-addressed, mapping from the names of
+ * a document's elements to their position in the document.
+ * <p>
+ * Documents with {@link #MAX_SCAN_SIZE} or fewer elements are simply scanned.
+ * Larger documents use a table of positions that is probed with the hash of
+ * the name. The table only depends on the names of the elements, in order, so
+ * a single index is shared by all of the documents with the same field layout
+ * via a small, direct mapped, cache. The names read from the wire are
+ * canonicalized by the {@link com.allanbank.mongodb.bson.io.StringDecoderCache}
+ * so matching a layout is normally a series of reference comparisons and
+ * lookups allocate nothing.
+ * </p>
+ * <p>
+ * If a document contains more than one element with the same name the last
+ * element with the name is found.
+ * </p>
+ *
+ * @api.no This class is <b>NOT</b> part of the drivers API. This class may be
+ *         mutated in incompatible ways between any two releases of the driver.
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+@Immutable
+@ThreadSafe
+public final class ElementIndex {
+
+    /** The largest number of elements that are scanned instead of indexed. */
+    public static final int MAX_SCAN_SIZE = 8;
+
+    /** The number of layouts cached. Must be a power of 2. */
+    private static final int LAYOUT_CACHE_SIZE = 1024;
+
+    /** The cache of indexes for recently seen layouts. */
+    private static final AtomicReferenceArray<ElementIndex> LAYOUTS = new AtomicReferenceArray<ElementIndex>(
+            LAYOUT_CACHE_SIZE);
+
+    /** The index for documents that are small enough to scan. */
+    private static final ElementIndex SCAN = new ElementIndex();
+
+    /**
+     * Returns the index for the elements. The index may be shared with other
+     * documents that have the same element names in the same order.
+     *
+     * @param elements
+     *            The elements to index.
+     * @return The index for the elements.
+     */
+    public static ElementIndex forElements(final List<Element> elements) {
+        final int size = elements.size();
+        if (size <= MAX_SCAN_SIZE) {
+            return SCAN;
+        }
+
+        int hash = size;
+        for (int i = 0; i < size; ++i) {
+            hash = (31 * hash) + elements.get(i).getName().hashCode();
+        }
+
+        final int slot = spread(hash) & (LAYOUT_CACHE_SIZE - 1);
+        final ElementIndex cached = LAYOUTS.get(slot);
+        if ((cached != null) && cached.matches(hash, elements)) {
+            return cached;
+        }
+
+        // Last writer wins the slot.
+        final ElementIndex index = new ElementIndex(hash, elements);
+        LAYOUTS.set(slot, index);
+
+        return index;
+    }
+
+    /**
+     * Mixes the high bits of the hash into the low bits used to select a
+     * slot.
+     *
+     * @param hash
+     *            The hash to spread.
+     * @return The spread hash.
+     */
+    private static int spread(final int hash) {
+        final int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /** The hash of the layout. */
+    private final int myLayoutHash;
+
+    /** The mask to convert a hash into a slot in the table. */
+    private final int myMask;
+
+    /** The names of the elements, in order. */
+    private final String[] myNames;
+
+    /**
+     * The table of positions. Each slot holds the position of the element plus
+     * one or zero if the slot is empty.
+     */
+    private final int[] myTable;
+
+    /**
+     * Creates a new ElementIndex that scans the elements.
+     */
+    private ElementIndex() {
+        myLayoutHash = 0;
+        myMask = 0;
+        myNames = null;
+        myTable = null;
+    }
+
+    /**
+     * Creates a new ElementIndex.
+     *
+     * @param layoutHash
+     *            The hash of the layout.
+     * @param elements
+     *            The elements to index.
+     */
+    private ElementIndex(final int layoutHash, final List<Element> elements) {
+        final int size = elements.size();
+
+        int capacity = 1;
+        while (capacity < (size + size)) {
+            capacity <<= 1;
+        }
+
+        myLayoutHash = layoutHash;
+        myMask = capacity - 1;
+        myNames = new String[size];
+        myTable = new int[capacity];
+
+        for (int i = 0; i < size; ++i) {
+            final String name = elements.get(i).getName();
+            myNames[i] = name;
+
+            int slot = spread(name.hashCode()) & myMask;
+            while ((myTable[slot] != 0)
+                    && !name.equals(myNames[myTable[slot] - 1])) {
+                slot = (slot + 1) & myMask;
+            }
+            // A later element with the same name replaces the earlier one.
+            myTable[slot] = i + 1;
+        }
+    }
+
+    /**
+     * Returns the position of the last element with the name or -1 if there
+     * is no element with the name.
+     *
+     * @param elements
+     *            The elements the index was {@link #isFor(List) created for}.
+     * @param name
+     *            The name of the element to find.
+     * @return The position of the element with the name or -1.
+     */
+    public int indexOf(final List<Element> elements, final String name) {
+        if (myTable == null) {
+            for (int i = elements.size() - 1; 0 <= i; --i) {
+                if (name.equals(elements.get(i).getName())) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        int slot = spread(name.hashCode()) & myMask;
+        int entry = myTable[slot];
+        while (entry != 0) {
+            if (name.equals(myNames[entry - 1])) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & myMask;
+            entry = myTable[slot];
+        }
+        return -1;
+    }
+
+    /**
+     * Returns true if this index has the same layout as the elements, e.g.,
+     * the same element names in the same order.
+     *
+     * @param elements
+     *            The elements to compare to.
+     * @return True if this index has the same layout as the elements.
+     */
+    public boolean isLayoutOf(final List<Element> elements) {
+        if (myNames == null) {
+            return elements.size() <= MAX_SCAN_SIZE;
+        }
+        if (myNames.length != elements.size()) {
+            return false;
+        }
+        for (int i = 0; i < myNames.length; ++i) {
+            // Decoded names are normally the same instance.
+            if (!myNames[i].equals(elements.get(i).getName())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if the index can be used to find the elements.
+     *
+     * @param elements
+     *            The elements to check.
+     * @return True if the index can be used to find the elements.
+     */
+    public boolean isFor(final List<Element> elements) {
+        if (myNames == null) {
+            return elements.size() <= MAX_SCAN_SIZE;
+        }
+        return myNames.length == elements.size();
+    }
+
+    /**
+     * Returns true if this index has the same layout as the elements.
+     *
+     * @param hash
+     *            The hash of the elements layout.
+     * @param elements
+     *            The elements to compare to.
+     * @return True if this index has the same layout as the elements.
+     */
+    private boolean matches(final int hash, final List<Element> elements) {
+        return (myLayoutHash == hash) && isLayoutOf(elements);
+    }
+}
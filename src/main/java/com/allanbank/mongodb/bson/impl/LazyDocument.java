@@ -0,0 +1,793 @@
+/*
+ * #%L
+ * LazyDocument.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.bson.impl;
+
+import java.io.IOException;
+import java.io.ObjectStreamException;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.allanbank.mongodb.bson.Document;
+import com.allanbank.mongodb.bson.Element;
+import com.allanbank.mongodb.bson.ElementType;
+import com.allanbank.mongodb.bson.io.BsonInputStream;
+import com.allanbank.mongodb.bson.io.StringDecoder;
+import com.allanbank.mongodb.bson.io.StringDecoderCache;
+import com.allanbank.mongodb.util.PatternUtils;
+
+/**
+ * LazyDocument provides a document backed by its encoded bytes. The names of
+ * the elements are only indexed as far as needed to satisfy a request and each
+ * element is only decoded the first time it is accessed. This makes reading a
+ * few fields from large documents much cheaper than decoding the complete
+ * document.
+ * <p>
+ * Writing the document back to a BSON stream copies the encoded bytes instead
+ * of re-encoding the elements.
+ * </p>
+ * <p>
+ * If the document contains duplicate element names then {@link #get(String)}
+ * returns the last element with the name, the same as {@link RootDocument}.
+ * Looking up an element by name therefore indexes the names of all of the
+ * elements, but still only decodes the element returned.
+ * </p>
+ * <p>
+ * If created with a {@link DocumentShapeCache} then the first access to the
+ * document locates the elements and shares the names of the elements, and the
+ * index of the names, with the other documents with the same
+ * {@link DocumentShape shape}. The names are then not decoded for each
+ * document.
+ * </p>
+ *
+ * @api.no This class is <b>NOT</b> part of the drivers API. This class may be
+ *         mutated in incompatible ways between any two releases of the driver.
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+@ThreadSafe
+public class LazyDocument
+        extends AbstractDocument {
+
+    /** The initial number of elements to allocate space to index. */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** Serialization version for the class. */
+    private static final long serialVersionUID = 2546211397165237052L;
+
+    /**
+     * Reads a little-endian integer from the bytes.
+     *
+     * @param bytes
+     *            The bytes to read from.
+     * @param offset
+     *            The offset of the first byte of the integer.
+     * @return The integer value.
+     */
+    private static int readInt(final byte[] bytes, final int offset) {
+        return (bytes[offset] & 0xFF) + ((bytes[offset + 1] & 0xFF) << 8)
+                + ((bytes[offset + 2] & 0xFF) << 16)
+                + ((bytes[offset + 3] & 0xFF) << 24);
+    }
+
+    /** The encoded document. This is never modified. */
+    private final byte[] myBytes;
+
+    /**
+     * The cache for decoded strings. Created on first use if not provided.
+     * Guarded by this.
+     */
+    private transient StringDecoderCache myCache;
+
+    /** The number of elements that have been indexed. Guarded by this. */
+    private int myCount;
+
+    /** The decoder for element names. Guarded by this. */
+    private transient StringDecoder myDecoder;
+
+    /**
+     * The list of elements once all of the elements have been decoded. Guarded
+     * by this.
+     */
+    private transient List<Element> myElementList;
+
+    /** The decoded elements. Guarded by this. */
+    private transient Element[] myElements;
+
+    /**
+     * The index of the last element with each name. Only built, on the first
+     * lookup by name, for documents with more than
+     * {@link ElementIndex#MAX_SCAN_SIZE} elements. Guarded by this.
+     */
+    private transient Map<String, Integer> myIndex;
+
+    /** True once all of the elements have been indexed. Guarded by this. */
+    private transient boolean myIndexed;
+
+    /** The names of the indexed elements. Guarded by this. */
+    private transient String[] myNames;
+
+    /** The offset of each indexed element's type token. Guarded by this. */
+    private transient int[] myOffsets;
+
+    /** The offset of the next element to index. Guarded by this. */
+    private transient int myScanOffset;
+
+    /**
+     * The cache of the shapes of documents. May be <code>null</code>. Guarded
+     * by this.
+     */
+    private transient DocumentShapeCache myShapes;
+
+    /**
+     * Creates a new LazyDocument.
+     *
+     * @param bytes
+     *            The complete encoded document including the leading length
+     *            and the terminal null byte. The bytes are not copied and must
+     *            not be modified once passed to the document.
+     * @param cache
+     *            The cache for decoded strings.
+     * @throws IllegalArgumentException
+     *             If the bytes do not contain a document.
+     */
+    public LazyDocument(final byte[] bytes, final StringDecoderCache cache)
+            throws IllegalArgumentException {
+        this(bytes, cache, null);
+    }
+
+    /**
+     * Creates a new LazyDocument that shares its shape with the other
+     * documents with the same element types and names.
+     *
+     * @param bytes
+     *            The complete encoded document including the leading length
+     *            and the terminal null byte. The bytes are not copied and must
+     *            not be modified once passed to the document.
+     * @param cache
+     *            The cache for decoded strings.
+     * @param shapes
+     *            The cache of the shapes of documents. May be
+     *            <code>null</code> to not share the document's shape.
+     * @throws IllegalArgumentException
+     *             If the bytes do not contain a document.
+     */
+    public LazyDocument(final byte[] bytes, final StringDecoderCache cache,
+            final DocumentShapeCache shapes) throws IllegalArgumentException {
+        if ((bytes.length < 5) || (readInt(bytes, 0) != bytes.length)
+                || (bytes[bytes.length - 1] != 0)) {
+            throw new IllegalArgumentException(
+                    "The bytes do not contain a BSON document.");
+        }
+
+        myBytes = bytes;
+        myCache = cache;
+        myShapes = shapes;
+        myScanOffset = 4;
+        myCount = 0;
+        myIndexed = false;
+        myIndex = null;
+        myNames = null;
+        myOffsets = null;
+        myElements = null;
+    }
+
+    /**
+     * Returns true if the document contains an element with the specified name.
+     * No elements are decoded.
+     *
+     * @see Document#contains(String)
+     */
+    @Override
+    public synchronized boolean contains(final String name) {
+        return 0 <= indexOf(name);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to only decode the elements with matching names.
+     * </p>
+     */
+    @Override
+    public <E extends Element> List<E> find(final Class<E> clazz,
+            final String... nameRegexs) {
+        List<E> elements = Collections.emptyList();
+        if (0 < nameRegexs.length) {
+            final String nameRegex = nameRegexs[0];
+            final String[] subNameRegexs = Arrays.copyOfRange(nameRegexs, 1,
+                    nameRegexs.length);
+            final Pattern pattern = toPattern(nameRegex);
+
+            elements = new ArrayList<E>();
+            synchronized (this) {
+                for (int i = 0; (i < myCount) || indexNext(); ++i) {
+                    if (matches(pattern, nameRegex, myNames[i])) {
+                        elements.addAll(element(i).find(clazz, subNameRegexs));
+                    }
+                }
+            }
+        }
+
+        // End of the path but we are a document?
+        return elements;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to only decode the elements with matching names and to stop
+     * indexing the document once a match is found.
+     * </p>
+     */
+    @Override
+    public <E extends Element> E findFirst(final Class<E> clazz,
+            final String... nameRegexs) {
+        E element = null;
+        if (0 < nameRegexs.length) {
+            final String nameRegex = nameRegexs[0];
+            final String[] subNameRegexs = Arrays.copyOfRange(nameRegexs, 1,
+                    nameRegexs.length);
+            final Pattern pattern = toPattern(nameRegex);
+
+            synchronized (this) {
+                for (int i = 0; (element == null)
+                        && ((i < myCount) || indexNext()); ++i) {
+                    if (matches(pattern, nameRegex, myNames[i])) {
+                        element = element(i).findFirst(clazz, subNameRegexs);
+                    }
+                }
+            }
+        }
+
+        // End of the path but we are a document?
+        return element;
+    }
+
+    /**
+     * Returns the last element with the specified name or null if no element
+     * with that name exists. Only the element returned is decoded.
+     *
+     * @see Document#get(String)
+     */
+    @Override
+    public synchronized Element get(final String name) {
+        final int index = indexOf(name);
+        if (0 <= index) {
+            return element(index);
+        }
+        return null;
+    }
+
+    /**
+     * Returns the elements in the document. This forces all of the elements
+     * to be decoded.
+     *
+     * @return The elements in the document.
+     */
+    @Override
+    public synchronized List<Element> getElements() {
+        if (myElementList == null) {
+            while (indexNext()) {
+                // Index everything.
+            }
+
+            final List<Element> elements = new ArrayList<Element>(myCount);
+            for (int i = 0; i < myCount; ++i) {
+                elements.add(element(i));
+            }
+            myElementList = Collections.unmodifiableList(elements);
+        }
+        return myElementList;
+    }
+
+    /**
+     * Returns an iterator over the documents elements. Each element is
+     * decoded as the iterator reaches it.
+     *
+     * @see Iterable#iterator()
+     */
+    @Override
+    public Iterator<Element> iterator() {
+        return new LazyIterator();
+    }
+
+    /**
+     * Returns the size of the document when encoded as bytes.
+     *
+     * @return The size of the document when encoded as bytes.
+     */
+    @Override
+    public long size() {
+        return myBytes.length;
+    }
+
+    /**
+     * Writes the encoded document to the stream.
+     *
+     * @param out
+     *            The stream to write the document to.
+     * @throws IOException
+     *             On a failure writing to the stream.
+     */
+    public void writeTo(final OutputStream out) throws IOException {
+        out.write(myBytes);
+    }
+
+    /**
+     * Returns a map from the element names to the elements in the document.
+     * This forces all of the elements to be decoded.
+     *
+     * @return The element name to element mapping.
+     */
+    @Override
+    protected Map<String, Element> getElementMap() {
+        final List<Element> elements = getElements();
+        final Map<String, Element> mapping = new HashMap<String, Element>(
+                elements.size() + elements.size());
+
+        for (final Element element : elements) {
+            mapping.put(element.getName(), element);
+        }
+
+        return mapping;
+    }
+
+    /**
+     * Returns the decoded element with the index. Must be called while
+     * holding the lock on this document.
+     *
+     * @param index
+     *            The index of the element.
+     * @return The decoded element.
+     */
+    private Element element(final int index) {
+        Element element = myElements[index];
+        if (element == null) {
+            final int offset = myOffsets[index];
+            final int end = ((index + 1) < myCount) ? myOffsets[index + 1]
+                    : myScanOffset;
+
+            final ElementReader reader = new ElementReader(myBytes, offset, end
+                    - offset, cache());
+            try {
+                element = reader.readElement();
+            }
+            catch (final IOException ioe) {
+                throw new IllegalStateException(
+                        "Could not decode the element '" + myNames[index]
+                                + "': " + ioe.getMessage(), ioe);
+            }
+
+            myElements[index] = element;
+        }
+        return element;
+    }
+
+    /**
+     * Returns the cache for decoding strings.
+     *
+     * @return The cache for decoding strings.
+     */
+    private StringDecoderCache cache() {
+        if (myCache == null) {
+            myCache = new StringDecoderCache();
+        }
+        return myCache;
+    }
+
+    /**
+     * Indexes the next element in the document. Must be called while holding
+     * the lock on this document.
+     *
+     * @return True if an element was indexed, false if the end of the
+     *         document has been reached.
+     */
+    private boolean indexNext() {
+        if ((myShapes != null) && (myCount == 0) && !myIndexed) {
+            indexShape();
+            return 0 < myCount;
+        }
+
+        final int offset = myScanOffset;
+        final byte token = myBytes[offset];
+        if (token == 0) {
+            myIndexed = true;
+            return false;
+        }
+
+        try {
+            int nameEnd = offset + 1;
+            while (myBytes[nameEnd] != 0) {
+                nameEnd += 1;
+            }
+
+            if (myDecoder == null) {
+                myDecoder = new StringDecoder(cache());
+            }
+            final String name = myDecoder.decode(myBytes, offset + 1, nameEnd
+                    - offset);
+
+            final int end = nameEnd + 1 + valueLength(token, nameEnd + 1);
+            if ((end <= nameEnd) || ((myBytes.length - 1) < end)) {
+                throw new StreamCorruptedException(
+                        "Invalid length for the element '" + name + "'.");
+            }
+
+            if (myNames == null) {
+                myNames = new String[INITIAL_CAPACITY];
+                myOffsets = new int[INITIAL_CAPACITY];
+                myElements = new Element[INITIAL_CAPACITY];
+            }
+            else if (myCount == myNames.length) {
+                final int capacity = myCount + myCount;
+                myNames = Arrays.copyOf(myNames, capacity);
+                myOffsets = Arrays.copyOf(myOffsets, capacity);
+                myElements = Arrays.copyOf(myElements, capacity);
+            }
+
+            myNames[myCount] = name;
+            myOffsets[myCount] = offset;
+            myCount += 1;
+            myScanOffset = end;
+
+            return true;
+        }
+        catch (final IOException ioe) {
+            throw new IllegalStateException("Could not index the document: "
+                    + ioe.getMessage(), ioe);
+        }
+        catch (final ArrayIndexOutOfBoundsException aioobe) {
+            throw new IllegalStateException(
+                    "Could not index the document: truncated element.", aioobe);
+        }
+    }
+
+    /**
+     * Locates all of the elements in the document and uses the shared shape
+     * for the names of the elements. Must be called while holding the lock on
+     * this document.
+     */
+    private void indexShape() {
+        try {
+            int[] offsets = new int[INITIAL_CAPACITY];
+            int count = 0;
+            int hash = 0;
+
+            int offset = myScanOffset;
+            byte token = myBytes[offset];
+            while (token != 0) {
+                hash = (31 * hash) + token;
+
+                int nameEnd = offset + 1;
+                while (myBytes[nameEnd] != 0) {
+                    hash = (31 * hash) + myBytes[nameEnd];
+                    nameEnd += 1;
+                }
+
+                final int end = nameEnd + 1 + valueLength(token, nameEnd + 1);
+                if ((end <= nameEnd) || ((myBytes.length - 1) < end)) {
+                    throw new StreamCorruptedException(
+                            "Invalid length for the element at offset "
+                                    + offset + ".");
+                }
+
+                if (count == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, count + count);
+                }
+                offsets[count] = offset;
+                count += 1;
+
+                offset = end;
+                token = myBytes[offset];
+            }
+
+            if (myDecoder == null) {
+                myDecoder = new StringDecoder(cache());
+            }
+            final DocumentShape shape = myShapes.find(hash, myBytes, offsets,
+                    count, myDecoder);
+
+            myNames = shape.getNames();
+            myIndex = shape.getIndex();
+            myOffsets = offsets;
+            myElements = new Element[count];
+            myCount = count;
+            myScanOffset = offset;
+            myIndexed = true;
+        }
+        catch (final IOException ioe) {
+            throw new IllegalStateException("Could not index the document: "
+                    + ioe.getMessage(), ioe);
+        }
+        catch (final ArrayIndexOutOfBoundsException aioobe) {
+            throw new IllegalStateException(
+                    "Could not index the document: truncated element.", aioobe);
+        }
+    }
+
+    /**
+     * Returns the index of the last element with the name, indexing all of the
+     * element names on the first call. Must be called while holding the lock
+     * on this document.
+     *
+     * @param name
+     *            The name of the element to find.
+     * @return The index of the element or -1 if there is no element with the
+     *         name.
+     */
+    private int indexOf(final String name) {
+        if (!myIndexed) {
+            while (indexNext()) {
+                // Index everything.
+            }
+        }
+
+        if (myCount <= ElementIndex.MAX_SCAN_SIZE) {
+            for (int i = myCount - 1; 0 <= i; --i) {
+                if (name.equals(myNames[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        if (myIndex == null) {
+            myIndex = new HashMap<String, Integer>(myCount + myCount);
+            for (int i = 0; i < myCount; ++i) {
+                // A later element with the same name replaces the earlier one.
+                myIndex.put(myNames[i], Integer.valueOf(i));
+            }
+        }
+
+        final Integer index = myIndex.get(name);
+        if (index != null) {
+            return index.intValue();
+        }
+        return -1;
+    }
+
+    /**
+     * Returns true if the element name matches the pattern or, if the pattern
+     * is not valid, the name.
+     *
+     * @param pattern
+     *            The pattern to match. May be <code>null</code>.
+     * @param nameRegex
+     *            The name to match if the pattern is <code>null</code>.
+     * @param name
+     *            The element's name.
+     * @return True if the element name matches.
+     */
+    private boolean matches(final Pattern pattern, final String nameRegex,
+            final String name) {
+        if (pattern != null) {
+            return pattern.matcher(name).matches();
+        }
+        // Assume a non-pattern?
+        return nameRegex.equals(name);
+    }
+
+    /**
+     * Returns the pattern for the regular expression or <code>null</code> if
+     * the expression is not a valid pattern.
+     *
+     * @param nameRegex
+     *            The regular expression.
+     * @return The pattern or <code>null</code>.
+     */
+    private Pattern toPattern(final String nameRegex) {
+        try {
+            return PatternUtils.toPattern(nameRegex);
+        }
+        catch (final PatternSyntaxException pse) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the number of bytes in the value of an element.
+     *
+     * @param token
+     *            The element's type token.
+     * @param offset
+     *            The offset of the first byte of the element's value.
+     * @return The number of bytes in the element's value.
+     * @throws StreamCorruptedException
+     *             If the element's type is not known.
+     */
+    @SuppressWarnings("deprecation")
+    private int valueLength(final byte token, final int offset)
+            throws StreamCorruptedException {
+        final ElementType type = ElementType.valueOf(token);
+        if (type == null) {
+            throw new StreamCorruptedException("Unknown element type: 0x"
+                    + Integer.toHexString(token & 0xFF) + ".");
+        }
+
+        switch (type) {
+        case NULL:
+        case MAX_KEY:
+        case MIN_KEY: {
+            return 0;
+        }
+        case BOOLEAN: {
+            return 1;
+        }
+        case INTEGER: {
+            return 4;
+        }
+        case DOUBLE:
+        case LONG:
+        case MONGO_TIMESTAMP:
+        case UTC_TIMESTAMP: {
+            return 8;
+        }
+        case OBJECT_ID: {
+            return 12;
+        }
+        case STRING:
+        case JAVA_SCRIPT:
+        case SYMBOL: {
+            return 4 + readInt(myBytes, offset);
+        }
+        case BINARY: {
+            return 5 + readInt(myBytes, offset);
+        }
+        case DB_POINTER: {
+            return 16 + readInt(myBytes, offset);
+        }
+        case ARRAY:
+        case DOCUMENT:
+        case JAVA_SCRIPT_WITH_SCOPE: {
+            return readInt(myBytes, offset);
+        }
+        case REGEX: {
+            int end = offset;
+            while (myBytes[end] != 0) {
+                end += 1;
+            }
+            end += 1;
+            while (myBytes[end] != 0) {
+                end += 1;
+            }
+            return (end + 1) - offset;
+        }
+        }
+
+        throw new StreamCorruptedException("Unknown element type: "
+                + type.name() + ".");
+    }
+
+    /**
+     * Replaces the document with a fully decoded {@link RootDocument} when
+     * serialized.
+     *
+     * @return The {@link RootDocument} to serialize.
+     * @throws ObjectStreamException
+     *             Declared by the serialization contract.
+     */
+    private Object writeReplace() throws ObjectStreamException {
+        return new RootDocument(getElements(), false, myBytes.length);
+    }
+
+    /**
+     * ElementReader provides access to decode a single element.
+     *
+     * @api.no This class is <b>NOT</b> part of the drivers API. This class may
+     *         be mutated in incompatible ways between any two releases of the
+     *         driver.
+     * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+     */
+    private static final class ElementReader
+            extends BsonInputStream {
+
+        /**
+         * Creates a new ElementReader.
+         *
+         * @param buffer
+         *            The buffer containing the element.
+         * @param offset
+         *            The offset of the element's type token.
+         * @param length
+         *            The length of the element.
+         * @param cache
+         *            The cache to use for decoded strings.
+         */
+        public ElementReader(final byte[] buffer, final int offset,
+                final int length, final StringDecoderCache cache) {
+            super(buffer, offset, length, cache);
+        }
+
+        /**
+         * Reads the element.
+         *
+         * @return The element read.
+         * @throws IOException
+         *             On a failure reading the element.
+         */
+        public Element readElement() throws IOException {
+            return readElement((byte) read());
+        }
+    }
+
+    /**
+     * LazyIterator provides an iterator that decodes each element as it is
+     * reached.
+     *
+     * @api.no This class is <b>NOT</b> part of the drivers API. This class may
+     *         be mutated in incompatible ways between any two releases of the
+     *         driver.
+     * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+     */
+    private final class LazyIterator
+            implements Iterator<Element> {
+
+        /** The index of the next element to return. */
+        private int myNext = 0;
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean hasNext() {
+            synchronized (LazyDocument.this) {
+                return (myNext < myCount) || indexNext();
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Element next() {
+            synchronized (LazyDocument.this) {
+                if ((myNext < myCount) || indexNext()) {
+                    final Element element = element(myNext);
+                    myNext += 1;
+                    return element;
+                }
+            }
+            throw new NoSuchElementException();
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to throw an {@link UnsupportedOperationException}.
+         * </p>
+         */
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
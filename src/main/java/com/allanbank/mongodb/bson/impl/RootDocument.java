@@ -79,10 +79,10 @@ public class RootDocument
     final boolean myIdKnownPresent;
 
     /**
-     * Constructed when a user tries to access the elements of the document by
+     * Located when a user tries to access the elements of the document by
      * name.
      */
-    private final AtomicReference<Map<String, Element>> myElementMap;
+    private transient volatile ElementIndex myIndex;
 
     /** The size of the document when encoded as bytes. */
     private transient long mySize;
@@ -134,7 +134,7 @@ public class RootDocument
     public RootDocument(final List<Element> elements, final boolean idPresent,
             final long size) {
         myElements = new AtomicReference<List<Element>>();
-        myElementMap = new AtomicReference<Map<String, Element>>();
+        myIndex = null;
         if ((elements != null) && !elements.isEmpty()) {
             myElements.set(Collections.unmodifiableList(new ArrayList<Element>(
                     elements)));
@@ -153,7 +153,30 @@ public class RootDocument
      */
     @Override
     public boolean contains(final String name) {
-        return (myIdKnownPresent && "_id".equals(name)) || super.contains(name);
+        return (myIdKnownPresent && "_id".equals(name)) || (get(name) != null);
+    }
+
+    /**
+     * Returns the element with the specified name or null if no element with
+     * that name exists.
+     *
+     * @see Document#get(String)
+     */
+    @Override
+    public Element get(final String name) {
+        final List<Element> elements = myElements.get();
+
+        ElementIndex index = myIndex;
+        if ((index == null) || !index.isFor(elements)) {
+            index = ElementIndex.forElements(elements);
+            myIndex = index;
+        }
+
+        final int position = index.indexOf(elements, name);
+        if (position < 0) {
+            return null;
+        }
+        return elements.get(position);
     }
 
     /**
@@ -182,7 +205,7 @@ public class RootDocument
             newElements.addAll(old);
 
             if (myElements.compareAndSet(old, newElements)) {
-                myElementMap.set(null);
+                myIndex = null;
                 mySize += toAdd.size();
             }
         }
@@ -200,26 +223,24 @@ public class RootDocument
 
     /**
      * Returns a map from the element names to the elements in the document.
-     * Used for faster by-name access.
+     * <p>
+     * The map is not cached. By-name access uses an {@link ElementIndex}
+     * instead.
+     * </p>
      *
      * @return The element name to element mapping.
      */
     @Override
     protected Map<String, Element> getElementMap() {
-        if (myElementMap.get() == null) {
-            final List<Element> elements = myElements.get();
-            final Map<String, Element> mapping = new HashMap<String, Element>(
-                    elements.size() + elements.size());
-
-            for (final Element element : elements) {
-                mapping.put(element.getName(), element);
-            }
+        final List<Element> elements = myElements.get();
+        final Map<String, Element> mapping = new HashMap<String, Element>(
+                elements.size() + elements.size());
 
-            // Swap the finished map into position.
-            myElementMap.compareAndSet(null, mapping);
+        for (final Element element : elements) {
+            mapping.put(element.getName(), element);
         }
 
-        return myElementMap.get();
+        return mapping;
     }
 
     /**
@@ -58,6 +58,11 @@ import javax.annotation.concurrent.ThreadSafe;
  * the runtime-cache and how often the accumulated statistics are trimmed. Each
  * entry represents a single encoded string.</li>
  * </ol>
+ * <p>
+ * The {@link #getPolicy() policy} controls how the usage is tracked. The
+ * {@link StringCachePolicy#TINY_LFU} policy replaces the 'seen' map with a
+ * fixed size {@link FrequencySketch frequency sketch} and table of candidates.
+ * </p>
  *
  *
  * @api.no This class is <b>NOT</b> part of the drivers API. This class may be
@@ -91,12 +96,21 @@ public abstract class AbstractStringCache {
      */
     protected volatile int myMaxCachEntriesMultiplier;
 
+    /** The policy for deciding which strings are cached. */
+    private volatile StringCachePolicy myPolicy;
+
     /**
      * The map of seen strings that will be used periodically to build the cache
      * cache.
      */
     protected final ConcurrentMap<String, SeenString> mySeen;
 
+    /**
+     * The tracker for the candidates when using the
+     * {@link StringCachePolicy#TINY_LFU} policy. Otherwise <code>null</code>.
+     */
+    private volatile FrequencyTracker myTracker;
+
     /**
      * The number of time the cache has been used since the last re-load of
      * runtime, read-only cache.
@@ -116,6 +130,9 @@ public abstract class AbstractStringCache {
 
         myMaxCachEntriesMultiplier = 0;
         myUseCount = new AtomicInteger(0);
+
+        myPolicy = StringCachePolicy.SAMPLING;
+        myTracker = null;
     }
 
     /**
@@ -137,6 +154,15 @@ public abstract class AbstractStringCache {
         return myMaxCacheLength;
     }
 
+    /**
+     * Returns the policy for deciding which strings are cached.
+     *
+     * @return The policy for deciding which strings are cached.
+     */
+    public StringCachePolicy getPolicy() {
+        return myPolicy;
+    }
+
     /**
      * Sets the value of maximum number of cached strings.
      *
@@ -145,6 +171,11 @@ public abstract class AbstractStringCache {
      */
     public void setMaxCacheEntries(final int maxCacheEntries) {
         myMaxCachEntries = maxCacheEntries;
+
+        final FrequencyTracker tracker = myTracker;
+        if ((tracker != null) && (tracker.getMaxEntries() != maxCacheEntries)) {
+            myTracker = new FrequencyTracker(maxCacheEntries);
+        }
     }
 
     /**
@@ -164,6 +195,26 @@ public abstract class AbstractStringCache {
         }
     }
 
+    /**
+     * Sets the policy for deciding which strings are cached. The usage
+     * tracked so far is discarded but the current cached strings are kept
+     * until the cache is rebuilt.
+     *
+     * @param policy
+     *            The new policy for deciding which strings are cached.
+     */
+    public void setPolicy(final StringCachePolicy policy) {
+        myPolicy = policy;
+        if (policy == StringCachePolicy.TINY_LFU) {
+            myTracker = new FrequencyTracker(myMaxCachEntries);
+        }
+        else {
+            myTracker = null;
+        }
+        mySeen.clear();
+        myUseCount.set(0);
+    }
+
     /**
      * Notification that a string/byte[] have been used.
      *
@@ -184,6 +235,20 @@ public abstract class AbstractStringCache {
             return;
         }
 
+        final FrequencyTracker tracker = myTracker;
+        if (tracker != null) {
+            if (tracker.used(decoded, source, offset, length)
+                    && tracker.startRebuild()) {
+                try {
+                    rebuildCache();
+                }
+                finally {
+                    tracker.finishRebuild();
+                }
+            }
+            return;
+        }
+
         SeenString entry = mySeen.get(decoded);
         if (entry == null) {
             entry = new SeenString(source, offset, length, decoded);
@@ -216,6 +281,11 @@ public abstract class AbstractStringCache {
      * @return A map of the seen strings at each count.
      */
     protected SortedMap<Integer, List<SeenString>> buildCacheGroups() {
+        final FrequencyTracker tracker = myTracker;
+        if (tracker != null) {
+            return tracker.buildCacheGroups();
+        }
+
         myMaxCachEntriesMultiplier = Math.min(myMaxCachEntriesMultiplier + 1,
                 MAX_MULTIPLIER);
 
@@ -243,6 +313,11 @@ public abstract class AbstractStringCache {
     protected void clear() {
         mySeen.clear();
         myUseCount.set(0);
+
+        final FrequencyTracker tracker = myTracker;
+        if (tracker != null) {
+            myTracker = new FrequencyTracker(myMaxCachEntries);
+        }
     }
 
     /**
@@ -19,6 +19,7 @@
  */
 package com.allanbank.mongodb.bson.io;
 
+import java.io.ByteArrayInputStream;
 import java.io.DataInput;
 import java.io.EOFException;
 import java.io.IOException;
@@ -33,6 +34,8 @@ import javax.annotation.concurrent.NotThreadSafe;
 import com.allanbank.mongodb.bson.Document;
 import com.allanbank.mongodb.bson.Element;
 import com.allanbank.mongodb.bson.ElementType;
+import com.allanbank.mongodb.bson.codec.BsonReader;
+import com.allanbank.mongodb.bson.codec.Decoder;
 import com.allanbank.mongodb.bson.element.ArrayElement;
 import com.allanbank.mongodb.bson.element.BinaryElement;
 import com.allanbank.mongodb.bson.element.BooleanElement;
@@ -53,6 +56,8 @@ import com.allanbank.mongodb.bson.element.StringElement;
 import com.allanbank.mongodb.bson.element.SymbolElement;
 import com.allanbank.mongodb.bson.element.TimestampElement;
 import com.allanbank.mongodb.bson.element.UuidElement;
+import com.allanbank.mongodb.bson.impl.DocumentShapeCache;
+import com.allanbank.mongodb.bson.impl.LazyDocument;
 import com.allanbank.mongodb.bson.impl.RootDocument;
 
 /**
@@ -72,6 +77,9 @@ public class BsonInputStream
     /** UTF-8 Character set for encoding strings. */
     public final static Charset UTF8 = StringDecoder.UTF8;
 
+    /** An empty array for the source of wrapped buffers. */
+    private static final byte[] EMPTY = new byte[0];
+
     /** The buffered data. */
     private byte[] myBuffer;
 
@@ -84,12 +92,33 @@ public class BsonInputStream
     /** Tracks the number of bytes that have been read by the stream. */
     private long myBytesRead;
 
+    /** The cache for decoded strings. */
+    private final StringDecoderCache myCache;
+
+    /**
+     * The cache of document shapes shared by the {@link LazyDocument}s read.
+     * May be <code>null</code>.
+     */
+    private DocumentShapeCache myDocumentShapes;
+
     /** The underlying input stream. */
     private final InputStream myInput;
 
+    /**
+     * If true then documents are returned as {@link LazyDocument}s that are
+     * only decoded as their elements are accessed.
+     */
+    private boolean myLazyDocuments;
+
     /** The decoder for strings. */
     private final StringDecoder myStringDecoder;
 
+    /**
+     * True if the stream is reading directly from a caller provided buffer. A
+     * wrapped buffer is never compacted or grown.
+     */
+    private final boolean myWrapped;
+
     /**
      * Creates a BSON document reader.
      *
@@ -134,7 +163,40 @@ public class BsonInputStream
         myBufferOffset = 0;
         myBufferLimit = 0;
         myBytesRead = 0;
+        myWrapped = false;
+        myLazyDocuments = false;
+        myDocumentShapes = null;
 
+        myCache = cache;
+        myStringDecoder = new StringDecoder(cache);
+    }
+
+    /**
+     * Creates a BSON document reader that reads directly from the provided
+     * buffer. The contents of the buffer are not copied and must not be
+     * modified while the stream is in use.
+     *
+     * @param buffer
+     *            The buffer to read from.
+     * @param offset
+     *            The offset of the first byte to read.
+     * @param length
+     *            The number of bytes that can be read from the buffer.
+     * @param cache
+     *            The cache to use for decoded strings.
+     */
+    public BsonInputStream(final byte[] buffer, final int offset,
+            final int length, final StringDecoderCache cache) {
+        myInput = new ByteArrayInputStream(EMPTY);
+        myBuffer = buffer;
+        myBufferOffset = offset;
+        myBufferLimit = offset + length;
+        myBytesRead = -offset;
+        myWrapped = true;
+        myLazyDocuments = false;
+        myDocumentShapes = null;
+
+        myCache = cache;
         myStringDecoder = new StringDecoder(cache);
     }
 
@@ -183,6 +245,16 @@ public class BsonInputStream
         return myBytesRead + myBufferOffset;
     }
 
+    /**
+     * Returns the cache of document shapes shared by the {@link LazyDocument}s
+     * read or <code>null</code> if the documents do not share their shapes.
+     *
+     * @return The cache of document shapes.
+     */
+    public DocumentShapeCache getDocumentShapes() {
+        return myDocumentShapes;
+    }
+
     /**
      * Returns the maximum number of strings that may have their encoded form
      * cached.
@@ -213,6 +285,15 @@ public class BsonInputStream
         return myStringDecoder.getCache().getMaxCacheLength();
     }
 
+    /**
+     * Returns true if documents are read as {@link LazyDocument}s.
+     *
+     * @return True if documents are read as {@link LazyDocument}s.
+     */
+    public boolean isLazyDocuments() {
+        return myLazyDocuments;
+    }
+
     /**
      * {@inheritDoc}
      * <p>
@@ -336,6 +417,48 @@ public class BsonInputStream
         }
     }
 
+    /**
+     * Reads a BSON document directly into an object using the decoder. No
+     * intermediate document is created. The decoder reads the document's
+     * bytes in place from the stream's buffer.
+     *
+     * @param <T>
+     *            The type of object to read.
+     * @param decoder
+     *            The decoder for the object.
+     * @return The decoded object.
+     * @throws EOFException
+     *             On insufficient data for the document.
+     * @throws IOException
+     *             On a failure reading the document.
+     */
+    public <T> T readDocument(final Decoder<T> decoder) throws IOException {
+        if (ensureFetched(4) != 4) {
+            throw new EOFException();
+        }
+
+        // Peek at the length so the complete document is in the buffer.
+        final int size = (myBuffer[myBufferOffset] & 0xFF)
+                + ((myBuffer[myBufferOffset + 1] & 0xFF) << 8)
+                + ((myBuffer[myBufferOffset + 2] & 0xFF) << 16)
+                + ((myBuffer[myBufferOffset + 3] & 0xFF) << 24);
+        if (size < 5) {
+            throw new StreamCorruptedException("Invalid document length: "
+                    + size + ".");
+        }
+        if (ensureFetched(size) != size) {
+            throw new EOFException();
+        }
+
+        final BsonReader reader = new BsonReader(myBuffer, myBufferOffset,
+                size, myCache);
+        final T result = decoder.decode(reader);
+
+        myBufferOffset += size;
+
+        return result;
+    }
+
     /**
      * Reads a BSON document element: <code>
      * <pre>
@@ -356,6 +479,22 @@ public class BsonInputStream
 
         prefetch(size - 4);
 
+        if (myLazyDocuments) {
+            if (size < 5) {
+                throw new StreamCorruptedException("Invalid document length: "
+                        + size + ".");
+            }
+
+            final byte[] bytes = new byte[size];
+            bytes[0] = (byte) size;
+            bytes[1] = (byte) (size >> 8);
+            bytes[2] = (byte) (size >> 16);
+            bytes[3] = (byte) (size >> 24);
+            readFully(bytes, 4, size - 4);
+
+            return new LazyDocument(bytes, myCache, myDocumentShapes);
+        }
+
         return new RootDocument(readElements(), false, size);
     }
 
@@ -440,6 +579,30 @@ public class BsonInputStream
         throw new UnsupportedOperationException("Mark not supported.");
     }
 
+    /**
+     * Sets the cache of document shapes shared by the {@link LazyDocument}s
+     * read. Only used when documents are read as {@link LazyDocument}s.
+     *
+     * @param documentShapes
+     *            The cache of document shapes. May be <code>null</code> to not
+     *            share the shapes of the documents.
+     */
+    public void setDocumentShapes(final DocumentShapeCache documentShapes) {
+        myDocumentShapes = documentShapes;
+    }
+
+    /**
+     * Controls if documents are read as {@link LazyDocument}s. A lazy document
+     * holds a copy of the encoded document and only decodes the elements that
+     * are accessed.
+     *
+     * @param lazyDocuments
+     *            If true then documents are read as {@link LazyDocument}s.
+     */
+    public void setLazyDocuments(final boolean lazyDocuments) {
+        myLazyDocuments = lazyDocuments;
+    }
+
     /**
      * Sets the value of maximum number of strings that may have their encoded
      * form cached.
@@ -1135,7 +1298,11 @@ public class BsonInputStream
             throws IOException {
         // See if we need to read more data.
         int available = availableInBuffer();
-        if (available < size) {
+        if (myWrapped) {
+            // Nothing more to read.
+            return Math.min(size, available);
+        }
+        else if (available < size) {
             // Yes - we do.
 
             // Will the size fit in the existing buffer?
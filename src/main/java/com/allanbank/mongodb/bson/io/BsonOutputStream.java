@@ -26,6 +26,9 @@ import java.nio.charset.Charset;
 import javax.annotation.concurrent.NotThreadSafe;
 
 import com.allanbank.mongodb.bson.Document;
+import com.allanbank.mongodb.bson.codec.BsonWriter;
+import com.allanbank.mongodb.bson.codec.Encoder;
+import com.allanbank.mongodb.bson.impl.LazyDocument;
 
 /**
  * A wrapper for an {@link OutputStream} to handle writing BSON primitives.
@@ -42,6 +45,12 @@ public class BsonOutputStream {
     /** UTF-8 Character set for encoding strings. */
     public final static Charset UTF8 = StringDecoder.UTF8;
 
+    /**
+     * The buffer for encoding objects written via an {@link Encoder}. Created
+     * on first use and reused for each object.
+     */
+    protected RandomAccessOutputStream myEncodeBuffer;
+
     /** Any thrown exceptions. */
     protected IOException myError;
 
@@ -261,6 +270,44 @@ public class BsonOutputStream {
         writeByte((byte) 0);
     }
 
+    /**
+     * Writes the object in BSON format to the stream using the encoder. No
+     * intermediate document is created but, since the length of the document
+     * is not known until it is encoded, the object is encoded into a buffer
+     * before being written to the stream. The buffer is reused for each
+     * object written.
+     *
+     * @param <T>
+     *            The type of object to write.
+     * @param object
+     *            The object to write.
+     * @param encoder
+     *            The encoder for the object.
+     * @throws IOException
+     *             On a failure writing the document.
+     */
+    public <T> void writeDocument(final T object,
+            final Encoder<? super T> encoder) throws IOException {
+        RandomAccessOutputStream buffer = myEncodeBuffer;
+        if (buffer == null) {
+            buffer = new RandomAccessOutputStream(myStringEncoder.getCache());
+        }
+        else {
+            // Released while in use in case the encoder writes to this stream.
+            myEncodeBuffer = null;
+            buffer.reset();
+        }
+
+        try {
+            encoder.encode(object, new BsonWriter(buffer));
+
+            buffer.writeTo(myOutput);
+        }
+        finally {
+            myEncodeBuffer = buffer;
+        }
+    }
+
     /**
      * Writes a BSON {@link Document} to the stream.
      *
@@ -270,6 +317,12 @@ public class BsonOutputStream {
      *             On a failure writing the document.
      */
     public void writeDocument(final Document document) throws IOException {
+        if (document instanceof LazyDocument) {
+            // Already encoded.
+            ((LazyDocument) document).writeTo(myOutput);
+            return;
+        }
+
         try {
             document.accept(myWriteVisitor);
             if (myWriteVisitor.hasError()) {
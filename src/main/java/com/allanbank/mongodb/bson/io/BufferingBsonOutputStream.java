@@ -27,6 +27,9 @@ import javax.annotation.concurrent.NotThreadSafe;
 
 import com.allanbank.mongodb.bson.Document;
 import com.allanbank.mongodb.bson.Visitor;
+import com.allanbank.mongodb.bson.codec.BsonWriter;
+import com.allanbank.mongodb.bson.codec.Encoder;
+import com.allanbank.mongodb.bson.impl.LazyDocument;
 
 /**
  * {@link BufferingBsonOutputStream} provides a class to write BSON documents
@@ -247,7 +250,7 @@ public class BufferingBsonOutputStream
      */
     public long write(final Document doc) throws IOException {
 
-        doc.accept(myVisitor);
+        writeDocument(doc);
 
         final long position = myVisitor.getSize();
 
@@ -312,7 +315,35 @@ public class BufferingBsonOutputStream
      *             On a failure to write to the underlying document.
      */
     public void writeDocument(final Document doc) throws IOException {
-        doc.accept(myVisitor);
+        if (doc instanceof LazyDocument) {
+            // Already encoded.
+            ((LazyDocument) doc).writeTo(myOutput);
+        }
+        else {
+            doc.accept(myVisitor);
+        }
+    }
+
+    /**
+     * Writes the object in BSON format to the underlying stream using the
+     * encoder. No intermediate document is created.
+     * <p>
+     * Users of this method must call {@link #flushBuffer()} or the contents
+     * will not be written to the wrapped stream.
+     * </p>
+     *
+     * @param <T>
+     *            The type of object to write.
+     * @param object
+     *            The object to write.
+     * @param encoder
+     *            The encoder for the object.
+     * @throws IOException
+     *             On a failure to encode the object.
+     */
+    public <T> void writeDocument(final T object,
+            final Encoder<? super T> encoder) throws IOException {
+        encoder.encode(object, new BsonWriter(myOutput));
     }
 
     /**
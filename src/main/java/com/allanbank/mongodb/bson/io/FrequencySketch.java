@@ -0,0 +1,215 @@
+/*
+ * #%L
+ * FrequencySketch.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.allanbank.mongodb.bson.io;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * FrequencySketch provides a count-min sketch of 4-bit counters used to
+ * estimate how often a value has been seen.
+ * <p>
+ * Each value is counted in one of 4 counters in each of 4 rows and the
+ * estimate is the minimum of those counters. The 16 counters in each
+ * <code>long</code> are split between the rows. Once the number of counted
+ * uses reaches the sample size all of the counters are halved so the
+ * estimates favor recent use.
+ * </p>
+ * <p>
+ * The counters are updated without any locking so the estimates are
+ * approximate. Concurrent increments of the same counter may be lost and an
+ * increment that overlaps aging may write back a counter from before it was
+ * halved, leaving that counter higher than it should be until the next aging.
+ * Only one thread ages the sketch at a time and it re-checks the number of
+ * counted uses once it has won the right to do so, so the sketch is not halved
+ * twice for the same sample. The estimates are only used to pick which strings
+ * to cache so these small errors are acceptable.
+ * </p>
+ *
+ * @api.no This class is <b>NOT</b> part of the drivers API. This class may be
+ *         mutated in incompatible ways between any two releases of the driver.
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+/* package */final class FrequencySketch {
+
+    /** The largest value for a counter. */
+    public static final int MAX_COUNT = 15;
+
+    /** A mask for the lowest bit of each counter. */
+    private static final long ONE_MASK = 0x1111111111111111L;
+
+    /** A mask to clear the highest bit of each counter after a shift. */
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    /** The number of rows in the sketch. */
+    private static final int ROWS = 4;
+
+    /** The seeds used to pick the counter in each row. */
+    private static final int[] SEEDS = { 0x9E3779B1, 0x85EBCA77, 0xC2B2AE3D,
+            0x27D4EB2F };
+
+    /**
+     * Mixes the bits of the hash code.
+     *
+     * @param hash
+     *            The hash code to mix.
+     * @return The mixed hash.
+     */
+    private static int spread(final int hash) {
+        int h = ((hash >>> 16) ^ hash) * 0x45D9F3B;
+        h = ((h >>> 16) ^ h) * 0x45D9F3B;
+        return (h >>> 16) ^ h;
+    }
+
+    /** Set to true while a thread is aging the sketch. */
+    private final AtomicBoolean myAging;
+
+    /** The number of uses counted since the last time the sketch was aged. */
+    private int myCounted;
+
+    /** The mask to convert a hash into an index into the table. */
+    private final int myMask;
+
+    /** The number of uses to count before aging the sketch. */
+    private final int mySampleSize;
+
+    /** The counters. */
+    private final long[] myTable;
+
+    /**
+     * Creates a new FrequencySketch.
+     *
+     * @param expectedEntries
+     *            The expected number of frequently used values.
+     */
+    public FrequencySketch(final int expectedEntries) {
+        final int entries = Math.max(expectedEntries, 1);
+
+        int length = 8;
+        while (length < entries) {
+            length <<= 1;
+        }
+
+        myTable = new long[length];
+        myMask = length - 1;
+        mySampleSize = 10 * Math.max(entries, 8);
+        myCounted = 0;
+        myAging = new AtomicBoolean(false);
+    }
+
+    /**
+     * Returns the estimated number of times the value with the hash code has
+     * been seen, up to {@link #MAX_COUNT}.
+     *
+     * @param hashCode
+     *            The hash code for the value.
+     * @return The estimated number of times the value has been seen.
+     */
+    public int frequency(final int hashCode) {
+        final int hash = spread(hashCode);
+        final int start = (hash & 3) << 2;
+
+        int frequency = MAX_COUNT;
+        for (int row = 0; row < ROWS; ++row) {
+            final int shift = (start + row) << 2;
+            final int count = (int) ((myTable[index(hash, row)] >>> shift) & 0xF);
+
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    /**
+     * Counts a use of the value with the hash code.
+     *
+     * @param hashCode
+     *            The hash code for the value.
+     * @return True if counting the use caused the sketch to be aged.
+     */
+    public boolean increment(final int hashCode) {
+        final int hash = spread(hashCode);
+        final int start = (hash & 3) << 2;
+
+        boolean added = false;
+        for (int row = 0; row < ROWS; ++row) {
+            final int index = index(hash, row);
+            final int shift = (start + row) << 2;
+            final long mask = 0xFL << shift;
+
+            final long value = myTable[index];
+            if ((value & mask) != mask) {
+                myTable[index] = value + (1L << shift);
+                added = true;
+            }
+        }
+
+        if (added && (mySampleSize <= ++myCounted)) {
+            return age();
+        }
+        return false;
+    }
+
+    /**
+     * Halves all of the counters if no other thread is already aging the
+     * sketch and the sample size has still been reached.
+     *
+     * @return True if the sketch was aged.
+     */
+    private boolean age() {
+        if (!myAging.compareAndSet(false, true)) {
+            return false;
+        }
+
+        try {
+            // Another thread may have just aged the sketch.
+            if (myCounted < mySampleSize) {
+                return false;
+            }
+
+            int odd = 0;
+            for (int i = 0; i < myTable.length; ++i) {
+                final long value = myTable[i];
+
+                odd += Long.bitCount(value & ONE_MASK);
+                myTable[i] = (value >>> 1) & RESET_MASK;
+            }
+            myCounted = Math.max(0, (myCounted >>> 1) - (odd >>> 2));
+
+            return true;
+        }
+        finally {
+            myAging.set(false);
+        }
+    }
+
+    /**
+     * Returns the index into the table for the row.
+     *
+     * @param hash
+     *            The spread hash for the value.
+     * @param row
+     *            The row of the sketch.
+     * @return The index into the table.
+     */
+    private int index(final int hash, final int row) {
+        int h = (hash + SEEDS[row]) * SEEDS[row];
+        h ^= (h >>> 17);
+        return h & myMask;
+    }
+}
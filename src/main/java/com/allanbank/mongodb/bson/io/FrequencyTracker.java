@@ -0,0 +1,213 @@
+/*
+ * #%L
+ * FrequencyTracker.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.allanbank.mongodb.bson.io;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.allanbank.mongodb.bson.io.AbstractStringCache.ReverseIntegerComparator;
+
+/**
+ * FrequencyTracker tracks the candidates for a string cache using the
+ * {@link StringCachePolicy#TINY_LFU} policy.
+ * <p>
+ * Each use of a string is counted in a {@link FrequencySketch}. The candidates
+ * are held in a fixed size, direct mapped, table. A string only replaces the
+ * candidate in its slot if the sketch estimates it has been used more often.
+ * A rebuild of the cache is only requested after the candidates have changed
+ * or the sketch has been aged.
+ * </p>
+ *
+ * @api.no This class is <b>NOT</b> part of the drivers API. This class may be
+ *         mutated in incompatible ways between any two releases of the driver.
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+@ThreadSafe
+/* package */final class FrequencyTracker {
+
+    /** The number of candidate slots for each cache entry. */
+    private static final int SLOTS_PER_ENTRY = 8;
+
+    /**
+     * Mixes the bits of the hash code.
+     *
+     * @param hash
+     *            The hash code to mix.
+     * @return The mixed hash.
+     */
+    private static int spread(final int hash) {
+        final int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /** The candidates for the cache. */
+    private final AtomicReferenceArray<SeenString> myCandidates;
+
+    /** Set to true when the candidates change. */
+    private volatile boolean myChanged;
+
+    /** The mask to convert a hash into a candidate slot. */
+    private final int myMask;
+
+    /** The maximum number of entries in the cache. */
+    private final int myMaxEntries;
+
+    /** Set to true while the cache is being rebuilt. */
+    private final AtomicBoolean myRebuilding;
+
+    /** The sketch of the frequency each string has been used. */
+    private final FrequencySketch mySketch;
+
+    /**
+     * The number of uses since the candidates changed. Updated without locking
+     * so the value is approximate.
+     */
+    private int myUses;
+
+    /**
+     * Creates a new FrequencyTracker.
+     *
+     * @param maxEntries
+     *            The maximum number of entries in the cache.
+     */
+    public FrequencyTracker(final int maxEntries) {
+        myMaxEntries = maxEntries;
+
+        int slots = 1;
+        while (slots < (Math.max(maxEntries, 1) * SLOTS_PER_ENTRY)) {
+            slots <<= 1;
+        }
+
+        myCandidates = new AtomicReferenceArray<SeenString>(slots);
+        myMask = slots - 1;
+        mySketch = new FrequencySketch(slots);
+        myRebuilding = new AtomicBoolean(false);
+        myChanged = false;
+        myUses = 0;
+    }
+
+    /**
+     * Builds a map of the candidates at each estimated frequency. The order of
+     * the map is reversed so that higher frequencies are first in the map.
+     *
+     * @return A map of the candidates at each estimated frequency.
+     */
+    public SortedMap<Integer, List<SeenString>> buildCacheGroups() {
+        myChanged = false;
+        myUses = 0;
+
+        final SortedMap<Integer, List<SeenString>> order = new TreeMap<Integer, List<SeenString>>(
+                ReverseIntegerComparator.INSTANCE);
+
+        for (int i = 0; i < myCandidates.length(); ++i) {
+            final SeenString seen = myCandidates.get(i);
+            if (seen != null) {
+                final Integer frequency = Integer.valueOf(mySketch
+                        .frequency(seen.getValue().hashCode()));
+
+                List<SeenString> atFrequency = order.get(frequency);
+                if (atFrequency == null) {
+                    atFrequency = new LinkedList<SeenString>();
+                    order.put(frequency, atFrequency);
+                }
+                atFrequency.add(seen);
+            }
+        }
+
+        return order;
+    }
+
+    /**
+     * Notification that the rebuild of the cache has completed.
+     */
+    public void finishRebuild() {
+        myRebuilding.set(false);
+    }
+
+    /**
+     * Returns the maximum number of entries in the cache.
+     *
+     * @return The maximum number of entries in the cache.
+     */
+    public int getMaxEntries() {
+        return myMaxEntries;
+    }
+
+    /**
+     * Attempts to start a rebuild of the cache. Only one thread can rebuild
+     * the cache at a time.
+     *
+     * @return True if the caller should rebuild the cache and then call
+     *         {@link #finishRebuild()}.
+     */
+    public boolean startRebuild() {
+        return myRebuilding.compareAndSet(false, true);
+    }
+
+    /**
+     * Notification that a string/byte[] have been used.
+     *
+     * @param decoded
+     *            The decoded string.
+     * @param source
+     *            The bytes in the string.
+     * @param offset
+     *            The offset of the first byte.
+     * @param length
+     *            The length of the bytes with a terminal zero byte.
+     * @return True if the cache should be rebuilt.
+     */
+    public boolean used(final String decoded, final byte[] source,
+            final int offset, final int length) {
+        final int hash = decoded.hashCode();
+        final boolean aged = mySketch.increment(hash);
+
+        final int slot = spread(hash) & myMask;
+        final SeenString current = myCandidates.get(slot);
+        if (current == null) {
+            if (myCandidates.compareAndSet(slot, null, new SeenString(source,
+                    offset, length, decoded))) {
+                myChanged = true;
+            }
+        }
+        else if (!decoded.equals(current.getValue())
+                && (mySketch.frequency(current.getValue().hashCode()) < mySketch
+                        .frequency(hash))) {
+            if (myCandidates.compareAndSet(slot, current, new SeenString(
+                    source, offset, length, decoded))) {
+                myChanged = true;
+            }
+        }
+
+        // Rebuild a few uses after the candidates change or when the sketch
+        // ages and the order of the candidates may have changed.
+        if (myChanged) {
+            myUses += 1;
+            return aged || (myMaxEntries <= myUses);
+        }
+        return aged;
+    }
+}
@@ -21,6 +21,7 @@ package com.allanbank.mongodb.bson.io;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
@@ -296,6 +297,36 @@ public class RandomAccessOutputStream
         mySize += 1;
     }
 
+    /**
+     * Writes the ASCII string to the stream. The characters are copied
+     * straight into the stream's buffers as bytes without an encoder.
+     *
+     * @param string
+     *            The string to write. All of the characters must be ASCII.
+     */
+    @SuppressWarnings("deprecation")
+    public void writeAscii(final String string) {
+        final int length = string.length();
+
+        int wrote = 0;
+        while (wrote < length) {
+            if (myCurrentBuffer.length <= myCurrentBufferOffset) {
+                nextBuffer();
+            }
+
+            final int available = myCurrentBuffer.length
+                    - myCurrentBufferOffset;
+            final int toWrite = Math.min(length - wrote, available);
+
+            string.getBytes(wrote, wrote + toWrite, myCurrentBuffer,
+                    myCurrentBufferOffset);
+
+            myCurrentBufferOffset += toWrite;
+            mySize += toWrite;
+            wrote += toWrite;
+        }
+    }
+
     /**
      * Similar to {@link #write(byte[])} but allows a portion of the already
      * written buffer to be re-written.
@@ -510,6 +541,29 @@ public class RandomAccessOutputStream
 
     }
 
+    /**
+     * Returns views of the written contents of the stream, one per backing
+     * buffer, suitable for a single gathering write. The views share the
+     * backing buffers with the stream and are only valid until the stream is
+     * next {@link #reset()} or written to.
+     *
+     * @return The views of the written contents of the stream.
+     */
+    public ByteBuffer[] toByteBuffers() {
+        final int count = (myCurrentBufferOffset == 0) ? myCurrentBufferIndex
+                : (myCurrentBufferIndex + 1);
+
+        final ByteBuffer[] buffers = new ByteBuffer[count];
+        for (int i = 0; i < myCurrentBufferIndex; ++i) {
+            buffers[i] = ByteBuffer.wrap(myBuffers.get(i), 0, BUFFER_SIZE);
+        }
+        if (myCurrentBufferIndex < count) {
+            buffers[myCurrentBufferIndex] = ByteBuffer.wrap(myCurrentBuffer, 0,
+                    myCurrentBufferOffset);
+        }
+        return buffers;
+    }
+
     /**
      * Writes the complete contents of this byte array output stream to the
      * specified output stream argument, as if by calling the output stream's
@@ -527,6 +581,27 @@ public class RandomAccessOutputStream
         out.write(myCurrentBuffer, 0, myCurrentBufferOffset);
     }
 
+    /**
+     * Copies the complete contents of the stream into the buffer starting at
+     * the offset.
+     *
+     * @param buffer
+     *            The buffer to copy the contents into. Must have at least
+     *            {@link #getSize()} bytes available after the offset.
+     * @param offset
+     *            The offset into the buffer to start copying.
+     */
+    public void writeTo(final byte[] buffer, final int offset) {
+        int position = offset;
+        for (int i = 0; i < myCurrentBufferIndex; ++i) {
+            System.arraycopy(myBuffers.get(i), 0, buffer, position,
+                    BUFFER_SIZE);
+            position += BUFFER_SIZE;
+        }
+        System.arraycopy(myCurrentBuffer, 0, buffer, position,
+                myCurrentBufferOffset);
+    }
+
     /**
      * Allocates a new buffer to use.
      */
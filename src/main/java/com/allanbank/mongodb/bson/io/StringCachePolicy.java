@@ -0,0 +1,54 @@
+/*
+ * #%L
+ * StringCachePolicy.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.allanbank.mongodb.bson.io;
+
+/**
+ * StringCachePolicy provides an enumeration for the policies used to decide
+ * which strings are held by the {@link StringDecoderCache} and
+ * {@link StringEncoderCache}.
+ *
+ * @api.yes This enumeration is part of the driver's API. Public and protected
+ *          members will be deprecated for at least 1 non-bugfix release
+ *          (version numbers are &lt;major&gt;.&lt;minor&gt;.&lt;bugfix&gt;)
+ *          before being removed or modified.
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+public enum StringCachePolicy {
+
+    /**
+     * Count every use of each string in a concurrent map and periodically
+     * rebuild the cache from the most used strings. The counts are reset after
+     * each rebuild.
+     */
+    SAMPLING,
+
+    /**
+     * Estimate the use of each string with a small, fixed size, frequency
+     * sketch that is periodically aged. A string is only admitted as a
+     * candidate for the cache if it is used more often than the candidate it
+     * replaces. The cache is only rebuilt when the candidates change or the
+     * sketch is aged.
+     * <p>
+     * Recording a use does not allocate or contend on a shared counter once
+     * the set of candidates is stable, e.g., for field names.
+     * </p>
+     */
+    TINY_LFU;
+}
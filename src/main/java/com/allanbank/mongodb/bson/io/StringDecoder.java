@@ -43,8 +43,38 @@ public class StringDecoder {
     /** UTF-8 Character set for encoding strings. */
     /* package */final static Charset UTF8 = Charset.forName("UTF-8");
 
-    /** A builder for the ASCII strings. */
-    private final StringBuilder myBuilder = new StringBuilder(64);
+    /**
+     * Returns true if all of the bytes are ASCII. The bytes are checked 8 at a
+     * time by combining them and checking the high bit once.
+     *
+     * @param source
+     *            The source of the bytes in the string.
+     * @param offset
+     *            The offset of the first byte to check.
+     * @param length
+     *            The number of bytes to check.
+     * @return True if all of the bytes are ASCII.
+     */
+    private static boolean isAscii(final byte[] source, final int offset,
+            final int length) {
+        final int end = offset + length;
+
+        int i = offset;
+        for (final int wordEnd = end - 7; i < wordEnd; i += 8) {
+            final int combined = source[i] | source[i + 1] | source[i + 2]
+                    | source[i + 3] | source[i + 4] | source[i + 5]
+                    | source[i + 6] | source[i + 7];
+            if ((combined & 0x80) != 0) {
+                return false;
+            }
+        }
+        for (; i < end; ++i) {
+            if ((source[i] & 0x80) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
 
     /** The cached decoded strings. */
     private final StringDecoderCache myCache;
@@ -112,6 +142,10 @@ public class StringDecoder {
 
     /**
      * Retrieves or caches the decoded string for the Trie.
+     * <p>
+     * ASCII strings are copied in a single step without a UTF-8 decoder. Only
+     * strings containing a non-ASCII byte are decoded as UTF-8.
+     * </p>
      *
      * @param source
      *            The source of the bytes in the string.
@@ -122,34 +156,13 @@ public class StringDecoder {
      *            byte.
      * @return The value for the string.
      */
+    @SuppressWarnings("deprecation")
     private String fastDecode(final byte[] source, final int offset,
             final int length) {
-        // Try to decode as ASCII.
-        boolean isAscii = true;
-        for (int i = 0; isAscii && (i < length); ++i) {
-            final int b = (source[offset + i] & 0xFF);
-            if (b < 0x80) {
-                myBuilder.append((char) b);
-            }
-            else {
-                isAscii = false;
-            }
+        if (isAscii(source, offset, length)) {
+            // Each ASCII byte is the low byte of its character.
+            return new String(source, 0, offset, length);
         }
-
-        String result;
-        if (!isAscii) {
-            final int encodedLength = myBuilder.length();
-
-            final String remaining = new String(source, offset + encodedLength,
-                    length - encodedLength, UTF8);
-
-            myBuilder.append(remaining);
-        }
-        result = myBuilder.toString();
-
-        // Clear the string builder.
-        myBuilder.setLength(0);
-
-        return result;
+        return new String(source, offset, length, UTF8);
     }
 }
@@ -60,6 +60,36 @@ public class StringEncoder {
         return 4 + utf8Size(string) + 1;
     }
 
+    /**
+     * Returns true if all of the characters in the string are ASCII. The
+     * characters are checked 8 at a time by combining them and checking the
+     * high bits once.
+     *
+     * @param string
+     *            The string to check.
+     * @param length
+     *            The length of the string.
+     * @return True if all of the characters are ASCII.
+     */
+    private static boolean isAscii(final String string, final int length) {
+        int i = 0;
+        for (final int wordEnd = length - 7; i < wordEnd; i += 8) {
+            final int combined = string.charAt(i) | string.charAt(i + 1)
+                    | string.charAt(i + 2) | string.charAt(i + 3)
+                    | string.charAt(i + 4) | string.charAt(i + 5)
+                    | string.charAt(i + 6) | string.charAt(i + 7);
+            if ((combined & 0xFF80) != 0) {
+                return false;
+            }
+        }
+        for (; i < length; ++i) {
+            if (0x80 <= string.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Computes the size of the encoded UTF8 String based on the table below.
      *
@@ -83,6 +113,9 @@ public class StringEncoder {
      */
     public static int utf8Size(final String string) {
         final int strLength = (string == null) ? 0 : string.length();
+        if (isAscii(string, strLength)) {
+            return strLength;
+        }
 
         int length = 0;
         int codePoint;
@@ -206,6 +239,48 @@ public class StringEncoder {
         return myCache;
     }
 
+    /**
+     * Writes the ASCII string. The characters are copied as bytes in bulk.
+     * Strings too long to be cached are written straight into a
+     * {@link RandomAccessOutputStream}'s buffers. Otherwise the bytes are
+     * copied via the private buffer so they can be offered to the cache.
+     *
+     * @param string
+     *            The string to encode. All of the characters must be ASCII.
+     * @param strLength
+     *            The length of the string.
+     * @param out
+     *            The stream to write to.
+     * @throws IOException
+     *             On a failure to write the bytes.
+     */
+    @SuppressWarnings("deprecation")
+    protected void asciiEncode(final String string, final int strLength,
+            final OutputStream out) throws IOException {
+        if ((out instanceof RandomAccessOutputStream)
+                && (myCache.getMaxCacheLength() < strLength)) {
+            ((RandomAccessOutputStream) out).writeAscii(string);
+            return;
+        }
+
+        int start = 0;
+        while (start < strLength) {
+            final int end = Math.min(strLength, start + myBuffer.length);
+
+            string.getBytes(start, end, myBuffer, 0);
+            if (out != null) {
+                out.write(myBuffer, 0, end - start);
+            }
+
+            start = end;
+        }
+
+        // ... and try and save it in the cache.
+        if (strLength <= myBuffer.length) {
+            myCache.used(string, myBuffer, 0, strLength);
+        }
+    }
+
     /**
      * Writes the string as a UTF-8 string. This method handles the
      * "normal/easy" cases and delegates to the full character set if things get
@@ -220,9 +295,14 @@ public class StringEncoder {
      */
     protected void fastEncode(final String string, final OutputStream out)
             throws IOException {
+        final int strLength = string.length();
+        if (isAscii(string, strLength)) {
+            asciiEncode(string, strLength, out);
+            return;
+        }
+
         // 4 = max encoded bytes/code point.
         final int writeUpTo = myBuffer.length - 4;
-        final int strLength = string.length();
 
         boolean bufferHasAllBytes = true;
 
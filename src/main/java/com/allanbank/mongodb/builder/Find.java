@@ -30,6 +30,7 @@ import com.allanbank.mongodb.MongoCollection;
 import com.allanbank.mongodb.MongoCursorControl;
 import com.allanbank.mongodb.MongoIterator;
 import com.allanbank.mongodb.ReadPreference;
+import com.allanbank.mongodb.StreamCallback;
 import com.allanbank.mongodb.Version;
 import com.allanbank.mongodb.bson.Document;
 import com.allanbank.mongodb.bson.DocumentAssignable;
@@ -77,6 +78,12 @@ public class Find {
     /** The number of documents to be returned in each batch of results. */
     private final int myBatchSize;
 
+    /**
+     * If set to true the server will stream all of the batches of results
+     * without waiting for a request for each batch.
+     */
+    private final boolean myExhaust;
+
     /** The hint for which index to use. */
     private final Document myHint;
 
@@ -157,6 +164,7 @@ public class Find {
      */
     protected Find(final Builder builder) {
         myBatchSize = builder.myBatchSize;
+        myExhaust = builder.myExhaust;
         myHint = builder.myHint;
         myHintName = builder.myHintName;
         myLimit = builder.myLimit;
@@ -346,6 +354,19 @@ public class Find {
         return myAwaitData;
     }
 
+    /**
+     * Returns true if the server should stream all of the batches of results
+     * without waiting for a request for each batch.
+     *
+     * @return True if the server should stream all of the batches of results
+     *         without waiting for a request for each batch.
+     * @see Builder#setExhaust(boolean) Find.Builder.setExhaust(boolean) for
+     *      important usage information.
+     */
+    public boolean isExhaust() {
+        return myExhaust;
+    }
+
     /**
      * Returns true if the cursor returned from the query will not timeout or
      * die automatically, e.g., immortal, false otherwise.
@@ -546,6 +567,12 @@ public class Find {
         /** The number of documents to be returned in each batch of results. */
         protected int myBatchSize;
 
+        /**
+         * If set to true the server will stream all of the batches of results
+         * without waiting for a request for each batch.
+         */
+        protected boolean myExhaust;
+
         /** The hint for which index to use. */
         protected Document myHint;
 
@@ -663,6 +690,36 @@ public class Find {
             return new Find(this);
         }
 
+        /**
+         * Sets that the server should stream all of the batches of results
+         * without waiting for a request for each batch.
+         * <p>
+         * This method delegates to {@link #setExhaust(boolean)
+         * setExhaust(true)}.
+         * </p>
+         *
+         * @return This builder for chaining method calls.
+         */
+        public Builder exhaust() {
+            return setExhaust(true);
+        }
+
+        /**
+         * Sets if the server should stream all of the batches of results
+         * without waiting for a request for each batch.
+         * <p>
+         * This method delegates to {@link #setExhaust(boolean)}.
+         * </p>
+         *
+         * @param exhaust
+         *            If true the server should stream all of the batches of
+         *            results.
+         * @return This builder for chaining method calls.
+         */
+        public Builder exhaust(final boolean exhaust) {
+            return setExhaust(exhaust);
+        }
+
         /**
          * Sets the value of hint as to which index should be used to execute
          * the query.
@@ -948,6 +1005,7 @@ public class Find {
          */
         public Builder reset() {
             myBatchSize = 0;
+            myExhaust = false;
             myHint = null;
             myHintName = null;
             myLimit = 0;
@@ -1070,6 +1128,36 @@ public class Find {
             return this;
         }
 
+        /**
+         * Sets if the server should stream all of the batches of results
+         * without waiting for a request for each batch. This removes the round
+         * trip for each {@code getmore} when all of the results will be
+         * consumed.
+         * <p>
+         * <b>Note:</b> Exhaust cursors are only used when streaming the results
+         * via the {@code stream(...)} methods. The {@code find(...)} methods
+         * ignore this setting since the iterator requests each batch as it is
+         * needed. MongoS does not support exhaust cursors so the setting is
+         * also ignored for sharded clusters.
+         * </p>
+         * <p>
+         * While the results are streaming the connection cannot be used for any
+         * other request and each batch is delivered to the {@link StreamCallback}
+         * on the connection's receive thread, in order. Closing the stream
+         * early discards the remaining batches as they arrive rather than
+         * killing the cursor.
+         * </p>
+         *
+         * @param exhaust
+         *            If true the server should stream all of the batches of
+         *            results.
+         * @return This builder for chaining method calls.
+         */
+        public Builder setExhaust(final boolean exhaust) {
+            myExhaust = exhaust;
+            return this;
+        }
+
         /**
          * Sets the value of hint as to which index should be used to execute
          * the query.
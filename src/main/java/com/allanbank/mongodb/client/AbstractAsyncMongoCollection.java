@@ -19,6 +19,7 @@
  */
 package com.allanbank.mongodb.client;
 
+import java.io.IOException;
 import java.util.Collection;
 
 import com.allanbank.mongodb.AsyncMongoCollection;
@@ -38,6 +39,9 @@ import com.allanbank.mongodb.bson.Document;
 import com.allanbank.mongodb.bson.DocumentAssignable;
 import com.allanbank.mongodb.bson.Element;
 import com.allanbank.mongodb.bson.builder.BuilderFactory;
+import com.allanbank.mongodb.bson.codec.CodecUtils;
+import com.allanbank.mongodb.bson.codec.Decoder;
+import com.allanbank.mongodb.bson.codec.Encoder;
 import com.allanbank.mongodb.builder.Aggregate;
 import com.allanbank.mongodb.builder.BatchedWrite;
 import com.allanbank.mongodb.builder.ConditionBuilder;
@@ -1038,6 +1042,22 @@ public abstract class AbstractAsyncMongoCollection
         findOneAsync(results, new Find.Builder(query).build());
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to call the {@link #findOneAsync(Callback, Find, Decoder)}
+     * method so the found document is decoded directly from the reply.
+     * </p>
+     *
+     * @see #findOneAsync(Callback, Find, Decoder)
+     */
+    @Override
+    public <T> void findOneAsync(final Callback<T> results,
+            final DocumentAssignable query, final Decoder<T> decoder)
+            throws MongoDbException {
+        findOneAsync(results, new Find.Builder(query).build(), decoder);
+    }
+
     /**
      * {@inheritDoc}
      * <p>
@@ -1070,6 +1090,25 @@ public abstract class AbstractAsyncMongoCollection
         return future;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to call the
+     * {@link #findOneAsync(Callback, DocumentAssignable, Decoder)}.
+     * </p>
+     *
+     * @see #findOneAsync(Callback, DocumentAssignable, Decoder)
+     */
+    @Override
+    public <T> ListenableFuture<T> findOneAsync(final DocumentAssignable query,
+            final Decoder<T> decoder) throws MongoDbException {
+        final FutureCallback<T> future = new FutureCallback<T>(getLockType());
+
+        findOneAsync(future, query, decoder);
+
+        return future;
+    }
+
     /**
      * {@inheritDoc}
      * <p>
@@ -1315,6 +1354,22 @@ public abstract class AbstractAsyncMongoCollection
                 documents);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to encode the objects and call the
+     * {@link #insertAsync(Callback, DocumentAssignable...)} method.
+     * </p>
+     *
+     * @see #insertAsync(Callback, DocumentAssignable...)
+     */
+    @Override
+    public <T> void insertAsync(final Callback<Integer> results,
+            final Encoder<? super T> encoder,
+            final Collection<? extends T> objects) throws MongoDbException {
+        insertAsync(results, encode(encoder, objects));
+    }
+
     /**
      * {@inheritDoc}
      * <p>
@@ -1339,6 +1394,27 @@ public abstract class AbstractAsyncMongoCollection
         return future;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to call the
+     * {@link #insertAsync(Callback, Encoder, Collection)} method.
+     * </p>
+     *
+     * @see #insertAsync(Callback, Encoder, Collection)
+     */
+    @Override
+    public <T> ListenableFuture<Integer> insertAsync(
+            final Encoder<? super T> encoder,
+            final Collection<? extends T> objects) throws MongoDbException {
+        final FutureCallback<Integer> future = new FutureCallback<Integer>(
+                getLockType());
+
+        insertAsync(future, encoder, objects);
+
+        return future;
+    }
+
     /**
      * {@inheritDoc}
      * <p>
@@ -2302,6 +2378,40 @@ public abstract class AbstractAsyncMongoCollection
         writeAsync(results, write.build());
     }
 
+    /**
+     * Encodes the objects into documents for an insert. If the encoder does
+     * not write an "_id" element for an object then an
+     * {@link com.allanbank.mongodb.bson.element.ObjectId} "_id" is added, as
+     * is done for documents.
+     *
+     * @param <T>
+     *            The type of objects to encode.
+     * @param encoder
+     *            The encoder for the objects.
+     * @param objects
+     *            The objects to encode.
+     * @return The encoded documents.
+     * @throws MongoDbException
+     *             On a failure encoding an object.
+     */
+    protected <T> DocumentAssignable[] encode(final Encoder<? super T> encoder,
+            final Collection<? extends T> objects) throws MongoDbException {
+        final DocumentAssignable[] documents = new DocumentAssignable[objects
+                .size()];
+        int index = 0;
+        for (final T object : objects) {
+            try {
+                documents[index] = CodecUtils.toDocument(object, encoder,
+                        true);
+                index += 1;
+            }
+            catch (final IOException ioe) {
+                throw new MongoDbException(ioe);
+            }
+        }
+        return documents;
+    }
+
     /**
      * Returns the type of lock to use.
      *
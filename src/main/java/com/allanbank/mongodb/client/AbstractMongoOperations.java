@@ -40,6 +40,7 @@ import com.allanbank.mongodb.bson.ElementType;
 import com.allanbank.mongodb.bson.builder.ArrayBuilder;
 import com.allanbank.mongodb.bson.builder.BuilderFactory;
 import com.allanbank.mongodb.bson.builder.DocumentBuilder;
+import com.allanbank.mongodb.bson.codec.Decoder;
 import com.allanbank.mongodb.bson.element.DocumentElement;
 import com.allanbank.mongodb.bson.impl.EmptyDocument;
 import com.allanbank.mongodb.bson.impl.ImmutableDocument;
@@ -60,6 +61,7 @@ import com.allanbank.mongodb.client.callback.BatchedNativeWriteCallback;
 import com.allanbank.mongodb.client.callback.BatchedWriteCallback;
 import com.allanbank.mongodb.client.callback.CursorCallback;
 import com.allanbank.mongodb.client.callback.CursorStreamingCallback;
+import com.allanbank.mongodb.client.callback.DecodingCallback;
 import com.allanbank.mongodb.client.callback.LongToIntCallback;
 import com.allanbank.mongodb.client.callback.MultipleCursorCallback;
 import com.allanbank.mongodb.client.callback.ReplyArrayCallback;
@@ -422,7 +424,7 @@ public abstract class AbstractMongoOperations {
 
         final Query queryMessage = createQuery(query, query.getLimit(),
                 query.getBatchSize(), query.isTailable(), query.isAwaitData(),
-                query.isImmortalCursor());
+                query.isImmortalCursor(), false);
 
         final CursorCallback callback = new CursorCallback(myClient,
                 queryMessage, false, results);
@@ -444,11 +446,38 @@ public abstract class AbstractMongoOperations {
      */
     public void findOneAsync(final Callback<Document> results, final Find query)
             throws MongoDbException {
-        final Query queryMessage = createQuery(query, 1, 1, false, false, false);
+        final Query queryMessage = createQuery(query, 1, 1, false, false, false,
+                false);
 
         myClient.send(queryMessage, new SingleDocumentCallback(results));
     }
 
+    /**
+     * Constructs a {@link Query} message that decodes the found document
+     * directly from the reply into an object and sends it to the server via
+     * the {@link Client}.
+     *
+     * @param <T>
+     *            The type of object decoded.
+     * @param results
+     *            Callback that will be notified of the decoded object.
+     * @param query
+     *            The query details.
+     * @param decoder
+     *            The decoder for the found document.
+     * @throws MongoDbException
+     *             On an error finding the document.
+     * @see AsyncMongoCollection#findOneAsync(Callback, DocumentAssignable,
+     *      Decoder)
+     */
+    public <T> void findOneAsync(final Callback<T> results, final Find query,
+            final Decoder<T> decoder) throws MongoDbException {
+        final Query queryMessage = createQuery(query, 1, 1, false, false, false,
+                false, decoder);
+
+        myClient.send(queryMessage, new DecodingCallback<T>(results, decoder));
+    }
+
     /**
      * Returns the name of the database.
      *
@@ -817,7 +846,7 @@ public abstract class AbstractMongoOperations {
             final Find query) throws MongoDbException {
         final Query queryMessage = createQuery(query, query.getLimit(),
                 query.getBatchSize(), query.isTailable(), query.isAwaitData(),
-                query.isImmortalCursor());
+                query.isImmortalCursor(), query.isExhaust());
 
         final CursorStreamingCallback callback = new CursorStreamingCallback(
                 myClient, queryMessage, false, results);
@@ -1052,11 +1081,49 @@ public abstract class AbstractMongoOperations {
      * @param immortal
      *            If the query should create a cursor that does not timeout,
      *            e.g., immortal.
+     * @param exhaust
+     *            If the query should stream all of the results without waiting
+     *            for a {@code getmore}. Ignored for sharded clusters since
+     *            MongoS does not support exhaust cursors.
+     * @return The {@link Query} message.
+     */
+    protected Query createQuery(final Find query, final int limit,
+            final int batchSize, final boolean tailable,
+            final boolean awaitData, final boolean immortal,
+            final boolean exhaust) {
+        return createQuery(query, limit, batchSize, tailable, awaitData,
+                immortal, exhaust, null);
+    }
+
+    /**
+     * Creates a properly configured {@link Query} message.
+     *
+     * @param query
+     *            The {@link Find} to construct the {@link Query} from.
+     * @param limit
+     *            The limit for the query.
+     * @param batchSize
+     *            The batch size for the query.
+     * @param tailable
+     *            If the query should create a tailable cursor.
+     * @param awaitData
+     *            If the query should await data.
+     * @param immortal
+     *            If the query should create a cursor that does not timeout,
+     *            e.g., immortal.
+     * @param exhaust
+     *            If the query should stream all of the results without waiting
+     *            for a {@code getmore}. Ignored for sharded clusters since
+     *            MongoS does not support exhaust cursors.
+     * @param decoder
+     *            The decoder for the reply's documents. May be
+     *            <code>null</code> to read the documents as {@link Document}s.
      * @return The {@link Query} message.
      */
     protected Query createQuery(final Find query, final int limit,
             final int batchSize, final boolean tailable,
-            final boolean awaitData, final boolean immortal) {
+            final boolean awaitData, final boolean immortal,
+            final boolean exhaust, final Decoder<?> decoder) {
         ReadPreference readPreference = query.getReadPreference();
         if (readPreference == null) {
             readPreference = getReadPreference();
@@ -1074,7 +1141,9 @@ public abstract class AbstractMongoOperations {
         return new Query(getDatabaseName(), myName, queryDoc,
                 query.getProjection(), batchSize, limit,
                 query.getNumberToSkip(), tailable, readPreference, immortal,
-                awaitData, false /* exhaust */, query.isPartialOk());
+                awaitData, exhaust
+                        && !myClient.getClusterType().isSharded(),
+                query.isPartialOk(), decoder);
     }
 
     /**
@@ -26,8 +26,16 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Queue;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import com.allanbank.mongodb.BatchedAsyncMongoCollection;
 import com.allanbank.mongodb.Callback;
@@ -52,6 +60,14 @@ import com.allanbank.mongodb.client.message.Update;
 /**
  * BatchedAsyncMongoCollectionImpl provides the implementation for the
  * {@link BatchedAsyncMongoCollection}.
+ * <p>
+ * When created with a maximum delay and number of writes the collection
+ * coalesces the writes from concurrent callers and flushes them automatically.
+ * All other requests are sent immediately. The coalesced writes are sent in
+ * the order they were received. The batch is broken each time the durability
+ * of the writes changes. If a request cannot be sent then each of the writes
+ * that were not sent is notified of the failure via its callback or future.
+ * </p>
  *
  * @copyright 2013-2014, Allanbank Consulting, Inc., All Rights Reserved
  */
@@ -84,10 +100,115 @@ public class BatchedAsyncMongoCollectionImpl
     public BatchedAsyncMongoCollectionImpl(final Client client,
             final MongoDatabase database, final String name) {
 
-        super((Client) Proxy.newProxyInstance(
+        super(newProxy(new CaptureClientHandler(client)), database, name);
+    }
+
+    /**
+     * Creates a new BatchedAsyncMongoCollectionImpl that coalesces the writes
+     * from concurrent callers.
+     *
+     * @param client
+     *            The client for interacting with MongoDB.
+     * @param database
+     *            The database we interact with.
+     * @param name
+     *            The name of the collection we interact with.
+     * @param maxDelay
+     *            The maximum amount of time to delay a write waiting for other
+     *            writes. A value less than or equal to zero disables the
+     *            delayed flushes.
+     * @param units
+     *            The units for the maximum delay.
+     * @param maxWrites
+     *            The number of pending writes that triggers a flush.
+     */
+    public BatchedAsyncMongoCollectionImpl(final Client client,
+            final MongoDatabase database, final String name,
+            final long maxDelay, final TimeUnit units, final int maxWrites) {
+        this(client, database, name, units.toMillis(maxDelay), maxWrites,
+                (maxDelay > 0) ? createTimer(client) : null);
+    }
+
+    /**
+     * Creates a new BatchedAsyncMongoCollectionImpl that coalesces the writes
+     * from concurrent callers.
+     *
+     * @param client
+     *            The client for interacting with MongoDB.
+     * @param database
+     *            The database we interact with.
+     * @param name
+     *            The name of the collection we interact with.
+     * @param maxDelayMillis
+     *            The maximum number of milliseconds to delay a write waiting
+     *            for other writes.
+     * @param maxWrites
+     *            The number of pending writes that triggers a flush.
+     * @param timer
+     *            The timer for the delayed flushes. May be <code>null</code>
+     *            to disable the delayed flushes. The timer is shutdown when
+     *            the collection is closed.
+     */
+    /* package */BatchedAsyncMongoCollectionImpl(final Client client,
+            final MongoDatabase database, final String name,
+            final long maxDelayMillis, final int maxWrites,
+            final ScheduledExecutorService timer) {
+        this(client, database, name, new CoalescingClientHandler(client,
+                maxDelayMillis, maxWrites, timer));
+    }
+
+    /**
+     * Creates a new BatchedAsyncMongoCollectionImpl that coalesces the writes
+     * from concurrent callers.
+     *
+     * @param client
+     *            The client for interacting with MongoDB.
+     * @param database
+     *            The database we interact with.
+     * @param name
+     *            The name of the collection we interact with.
+     * @param handler
+     *            The handler coalescing the writes.
+     */
+    private BatchedAsyncMongoCollectionImpl(final Client client,
+            final MongoDatabase database, final String name,
+            final CoalescingClientHandler handler) {
+        super(newProxy(handler), database, name);
+
+        handler.setCollection(this);
+    }
+
+    /**
+     * Creates the timer for the delayed flushes of coalesced writes.
+     *
+     * @param client
+     *            The client to use the thread factory from.
+     * @return The timer for the delayed flushes.
+     */
+    private static ScheduledExecutorService createTimer(final Client client) {
+        final ThreadFactory factory = client.getConfig().getThreadFactory();
+        return Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = factory.newThread(runnable);
+                thread.setName("MongoDB Coalesced Writes");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Creates the proxy {@link Client} around the handler.
+     *
+     * @param handler
+     *            The handler for the proxy's method calls.
+     * @return The proxy {@link Client}.
+     */
+    private static Client newProxy(final InvocationHandler handler) {
+        return (Client) Proxy.newProxyInstance(
                 BatchedAsyncMongoCollectionImpl.class.getClassLoader(),
-                CLIENT_INTERFACE, new CaptureClientHandler(client)), database,
-                name);
+                CLIENT_INTERFACE, handler);
     }
 
     /**
@@ -108,11 +229,18 @@ public class BatchedAsyncMongoCollectionImpl
      * {@inheritDoc}
      * <p>
      * Overridden to flush any pending messages to a real serialized client.
+     * When coalescing writes the timer for the delayed flushes is also stopped
+     * and all later requests are sent immediately.
      * </p>
      */
     @Override
     public void close() throws MongoDbException {
         flush();
+
+        final InvocationHandler handler = Proxy.getInvocationHandler(myClient);
+        if (handler instanceof CoalescingClientHandler) {
+            ((CoalescingClientHandler) handler).close();
+        }
     }
 
     /**
@@ -209,9 +337,18 @@ public class BatchedAsyncMongoCollectionImpl
         /** The collection we are proxying. */
         private BatchedAsyncMongoCollectionImpl myCollection;
 
+        /**
+         * The optimized requests taken from the pending messages that are
+         * waiting to be sent, in the order they were taken.
+         */
+        private final Queue<TakenRequests> myFlushed;
+
         /** The real (e.g., user's) callbacks. */
         private List<Callback<Reply>> myRealCallbacks;
 
+        /** The real (e.g., user's) callbacks for each of the final results. */
+        private List<List<Callback<Reply>>> myResultCallbacks;
+
         /**
          * The {@link Client} implementation to delegate to when sending
          * messages or handling other method calls.
@@ -221,6 +358,12 @@ public class BatchedAsyncMongoCollectionImpl
         /** The final results from the callback. */
         private List<Object> myResults;
 
+        /**
+         * The lock held while sending the flushed requests to keep them in
+         * order.
+         */
+        private final Lock mySendLock;
+
         /**
          * The {@link Client} implementation to delegate to when sending
          * messages or handling other method calls.
@@ -242,9 +385,13 @@ public class BatchedAsyncMongoCollectionImpl
 
             myRealCallbacks = null;
             myResults = null;
+            myResultCallbacks = null;
 
             mySendArgs = new LinkedList<Object[]>();
             myWrite = BatchedWrite.builder();
+
+            myFlushed = new ConcurrentLinkedQueue<TakenRequests>();
+            mySendLock = new ReentrantLock();
         }
 
         /**
@@ -257,6 +404,7 @@ public class BatchedAsyncMongoCollectionImpl
             myWrite.reset();
 
             myResults = null;
+            myResultCallbacks = null;
             myRealCallbacks = null;
             myCollection = null;
 
@@ -274,49 +422,22 @@ public class BatchedAsyncMongoCollectionImpl
         }
 
         /**
-         * Flushes the pending messages to a serialized client.
+         * Flushes the pending messages to a serialized client. The pending
+         * messages are taken while holding the handler's lock but are sent
+         * after it is released.
          *
          * @param collection
          *            The Collection the we are flushing operations for.
+         * @throws RuntimeException
+         *             The first failure sending the requests. The writes that
+         *             were not sent have already been notified of the failure.
          */
-        public synchronized void flush(
-                final BatchedAsyncMongoCollectionImpl collection) {
+        public void flush(final BatchedAsyncMongoCollectionImpl collection) {
+            take(collection);
 
-            // Use a serialized client to keep all of the messages on a single
-            // connection as much as possible.
-            SerialClientImpl serialized;
-            if (myRealClient instanceof SerialClientImpl) {
-                serialized = (SerialClientImpl) myRealClient;
-            }
-            else {
-                serialized = new SerialClientImpl((ClientImpl) myRealClient);
-            }
-
-            try {
-                // Send the optimized requests.
-                final List<Object> optimized = optimize(collection);
-                for (final Object toSend : optimized) {
-                    if (toSend instanceof BatchedWriteCallback) {
-                        final BatchedWriteCallback cb = (BatchedWriteCallback) toSend;
-                        cb.setClient(serialized);
-                        cb.send();
-                    }
-                    else if (toSend instanceof Object[]) {
-                        final Object[] sendArg = (Object[]) toSend;
-                        if (sendArg.length == 2) {
-                            serialized.send((Message) sendArg[0],
-                                    (ReplyCallback) sendArg[1]);
-                        }
-                        else {
-                            serialized.send((Message) sendArg[0],
-                                    (Message) sendArg[1],
-                                    (ReplyCallback) sendArg[2]);
-                        }
-                    }
-                }
-            }
-            finally {
-                clear();
+            final RuntimeException failure = sendTaken();
+            if (failure != null) {
+                throw failure;
             }
         }
 
@@ -327,18 +448,93 @@ public class BatchedAsyncMongoCollectionImpl
          * </p>
          */
         @Override
-        public synchronized Object invoke(final Object proxy,
+        public Object invoke(final Object proxy,
                 final Method method, final Object[] args) throws Throwable {
 
             final String methodName = method.getName();
 
-            if (methodName.equals("send")) {
-                mySendArgs.add(args);
+            if (methodName.equals("send") && capture(args)) {
                 return null;
             }
             return method.invoke(myRealClient, args);
         }
 
+        /**
+         * Captures the arguments for a {@link Client#send} call to be sent when
+         * the batch is flushed.
+         *
+         * @param args
+         *            The arguments for the send() call.
+         * @return True if the send was captured, false if it should be passed
+         *         to the real client.
+         */
+        protected synchronized boolean capture(final Object[] args) {
+            mySendArgs.add(args);
+            return true;
+        }
+
+        /**
+         * Returns the arguments for the pending {@link Client#send} calls.
+         *
+         * @return The arguments for the pending send() calls.
+         */
+        protected List<Object[]> getPending() {
+            return mySendArgs;
+        }
+
+        /**
+         * Sends the optimized requests taken from the pending messages. Only
+         * one thread sends at a time so the requests are sent in the order
+         * they were taken. The handler's lock must not be held.
+         * <p>
+         * If a request cannot be sent then the callbacks for it and for the
+         * rest of its batch are notified of the failure.
+         * </p>
+         *
+         * @return The first failure sending the requests or <code>null</code>
+         *         if all of the requests were sent.
+         */
+        protected RuntimeException sendTaken() {
+            mySendLock.lock();
+            try {
+                RuntimeException failure = null;
+                TakenRequests taken = myFlushed.poll();
+                while (taken != null) {
+                    final RuntimeException error = send(taken);
+                    if (failure == null) {
+                        failure = error;
+                    }
+                    taken = myFlushed.poll();
+                }
+
+                return failure;
+            }
+            finally {
+                mySendLock.unlock();
+            }
+        }
+
+        /**
+         * Takes the pending messages, optimizes them and queues the result to
+         * be sent by {@link #sendTaken()}.
+         *
+         * @param collection
+         *            The Collection the we are flushing operations for.
+         */
+        protected synchronized void take(
+                final BatchedAsyncMongoCollectionImpl collection) {
+            try {
+                final List<Object> optimized = optimize(collection);
+                if (!optimized.isEmpty()) {
+                    myFlushed.add(new TakenRequests(optimized,
+                            myResultCallbacks));
+                }
+            }
+            finally {
+                clear();
+            }
+        }
+
         /**
          * Adds a delete to the batch.
          *
@@ -421,6 +617,8 @@ public class BatchedAsyncMongoCollectionImpl
                         myCollection.getDatabaseName(), myCollection.getName(),
                         myRealCallbacks, w, bundles);
                 myResults.add(cb);
+                myResultCallbacks.add(new ArrayList<Callback<Reply>>(
+                        myRealCallbacks));
             }
 
             myWrite.reset();
@@ -429,6 +627,23 @@ public class BatchedAsyncMongoCollectionImpl
             myRealCallbacks.clear();
         }
 
+        /**
+         * Returns the callbacks for the arguments of a {@link Client#send} call
+         * that is sent without being batched.
+         *
+         * @param args
+         *            The arguments for the original {@link Client#send} call.
+         * @return The callbacks for the call.
+         */
+        @SuppressWarnings("unchecked")
+        private List<Callback<Reply>> callbacks(final Object[] args) {
+            final Object cb = args[args.length - 1];
+            if (cb instanceof Callback<?>) {
+                return Collections.singletonList((Callback<Reply>) cb);
+            }
+            return Collections.emptyList();
+        }
+
         /**
          * Extracts the callback from the write arguments. If the write has a
          * {@link Callback} then it will be the last argument.
@@ -475,6 +690,8 @@ public class BatchedAsyncMongoCollectionImpl
                 myWrite.setMode(collection.getMode());
 
                 myResults = new ArrayList<Object>(mySendArgs.size());
+                myResultCallbacks = new ArrayList<List<Callback<Reply>>>(
+                        mySendArgs.size());
                 myRealCallbacks = new ArrayList<Callback<Reply>>(
                         mySendArgs.size());
 
@@ -494,6 +711,7 @@ public class BatchedAsyncMongoCollectionImpl
                     else {
                         closeBatch();
                         myResults.add(args);
+                        myResultCallbacks.add(callbacks(args));
                     }
 
                     if (collection.getMode() == BatchedWriteMode.SERIALIZE_AND_STOP) {
@@ -505,7 +723,12 @@ public class BatchedAsyncMongoCollectionImpl
             }
             else {
                 myResults = new ArrayList<Object>(mySendArgs.size());
-                myResults.addAll(mySendArgs);
+                myResultCallbacks = new ArrayList<List<Callback<Reply>>>(
+                        mySendArgs.size());
+                for (final Object[] args : mySendArgs) {
+                    myResults.add(args);
+                    myResultCallbacks.add(callbacks(args));
+                }
 
                 // Clear the sendArgs or they will get notified of a cancel.
                 mySendArgs.clear();
@@ -514,6 +737,77 @@ public class BatchedAsyncMongoCollectionImpl
             return myResults;
         }
 
+        /**
+         * Sends the optimized requests to a serialized client. If a request
+         * cannot be sent then the callbacks for it and all of the following
+         * requests are notified of the failure.
+         *
+         * @param taken
+         *            The optimized requests to send.
+         * @return The failure sending the requests or <code>null</code> if all
+         *         of the requests were sent.
+         */
+        private RuntimeException send(final TakenRequests taken) {
+
+            // Use a serialized client to keep all of the messages on a single
+            // connection as much as possible.
+            SerialClientImpl serialized;
+            if (myRealClient instanceof SerialClientImpl) {
+                serialized = (SerialClientImpl) myRealClient;
+            }
+            else {
+                serialized = new SerialClientImpl((ClientImpl) myRealClient);
+            }
+
+            final List<Object> optimized = taken.getRequests();
+            for (int i = 0; i < optimized.size(); ++i) {
+                try {
+                    send(serialized, optimized.get(i));
+                }
+                catch (final RuntimeException error) {
+                    for (final List<Callback<Reply>> callbacks : taken
+                            .getCallbacks().subList(i, optimized.size())) {
+                        for (final Callback<Reply> callback : callbacks) {
+                            if (callback != null) {
+                                callback.exception(error);
+                            }
+                        }
+                    }
+                    return error;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Sends a single optimized request to the serialized client.
+         *
+         * @param serialized
+         *            The client to send the request with.
+         * @param toSend
+         *            The optimized request to send.
+         */
+        private void send(final SerialClientImpl serialized,
+                final Object toSend) {
+            if (toSend instanceof BatchedWriteCallback) {
+                final BatchedWriteCallback cb = (BatchedWriteCallback) toSend;
+                cb.setClient(serialized);
+                cb.send();
+            }
+            else if (toSend instanceof Object[]) {
+                final Object[] sendArg = (Object[]) toSend;
+                if (sendArg.length == 2) {
+                    serialized.send((Message) sendArg[0],
+                            (ReplyCallback) sendArg[1]);
+                }
+                else {
+                    serialized.send((Message) sendArg[0],
+                            (Message) sendArg[1],
+                            (ReplyCallback) sendArg[2]);
+                }
+            }
+        }
+
         /**
          * Updates the durability for the batch. If the durability changes
          * mid-batch then we force a break in the batch.
@@ -546,4 +840,278 @@ public class BatchedAsyncMongoCollectionImpl
             } // else Durability is none or not applicable.
         }
     }
+
+    /**
+     * CoalescingClientHandler provides an {@link InvocationHandler} to capture
+     * the write requests from concurrent callers and flush them once enough
+     * writes are pending or the oldest write has waited long enough. All
+     * other requests are sent immediately.
+     *
+     * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+     */
+    private static class CoalescingClientHandler
+            extends CaptureClientHandler {
+
+        /** Set to true once the collection is closed. */
+        private boolean myClosed;
+
+        /** The maximum number of milliseconds to delay a write. */
+        private final long myMaxDelay;
+
+        /** The number of pending writes that triggers a flush. */
+        private final int myMaxWrites;
+
+        /** The collection the writes are coalesced for. */
+        private volatile BatchedAsyncMongoCollectionImpl myOwner;
+
+        /** The pending delayed flush. */
+        private Future<?> myScheduledFlush;
+
+        /** The timer for the delayed flushes. */
+        private final ScheduledExecutorService myTimer;
+
+        /**
+         * Creates a new CoalescingClientHandler.
+         *
+         * @param realClient
+         *            The {@link Client} implementation to delegate to when
+         *            sending messages or handling other method calls.
+         * @param maxDelay
+         *            The maximum number of milliseconds to delay a write.
+         * @param maxWrites
+         *            The number of pending writes that triggers a flush.
+         * @param timer
+         *            The timer for the delayed flushes. May be
+         *            <code>null</code>.
+         */
+        public CoalescingClientHandler(final Client realClient,
+                final long maxDelay, final int maxWrites,
+                final ScheduledExecutorService timer) {
+            super(realClient);
+
+            myMaxDelay = maxDelay;
+            myMaxWrites = Math.max(1, maxWrites);
+            myTimer = timer;
+
+            myClosed = false;
+            myOwner = null;
+            myScheduledFlush = null;
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to also cancel the pending delayed flush.
+         * </p>
+         */
+        @Override
+        public synchronized void clear() {
+            if (myScheduledFlush != null) {
+                myScheduledFlush.cancel(false);
+                myScheduledFlush = null;
+            }
+            super.clear();
+        }
+
+        /**
+         * Stops coalescing writes and shuts down the timer. All later requests
+         * are sent immediately.
+         */
+        public synchronized void close() {
+            myClosed = true;
+            clear();
+            if (myTimer != null) {
+                myTimer.shutdown();
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to break the pending writes into a separate batch at each
+         * change in their durability. The writes are never reordered so the
+         * writes from a single caller are sent in the order they were made.
+         * </p>
+         */
+        @Override
+        protected synchronized void take(
+                final BatchedAsyncMongoCollectionImpl collection) {
+            final List<Object[]> pending = getPending();
+            final List<Object[]> remaining = new ArrayList<Object[]>(pending);
+            pending.clear();
+
+            int start = 0;
+            try {
+                do {
+                    int end = start + 1;
+                    if (start < remaining.size()) {
+                        final Document durability = durability(remaining
+                                .get(start));
+                        while ((end < remaining.size())
+                                && same(durability,
+                                        durability(remaining.get(end)))) {
+                            end += 1;
+                        }
+                        pending.addAll(remaining.subList(start, end));
+                    }
+                    start = end;
+
+                    super.take(collection);
+                }
+                while (start < remaining.size());
+            }
+            finally {
+                if (start < remaining.size()) {
+                    // Cancel the writes that were not taken.
+                    pending.addAll(remaining.subList(start, remaining.size()));
+                    clear();
+                }
+            }
+        }
+
+        /**
+         * Sets the collection the writes are coalesced for.
+         *
+         * @param collection
+         *            The collection the writes are coalesced for.
+         */
+        public void setCollection(
+                final BatchedAsyncMongoCollectionImpl collection) {
+            myOwner = collection;
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to only capture the insert, update and delete messages
+         * and to flush the writes once enough are pending or schedule the
+         * delayed flush for the first pending write. The flushed writes are
+         * sent after the handler's lock is released.
+         * </p>
+         */
+        @Override
+        protected boolean capture(final Object[] args) {
+            final Object message = args[0];
+            if (!((message instanceof Insert)
+                    || (message instanceof Update) || (message instanceof Delete))) {
+                return false;
+            }
+
+            synchronized (this) {
+                if (myClosed) {
+                    return false;
+                }
+
+                super.capture(args);
+
+                final int pending = getPending().size();
+                if (myMaxWrites <= pending) {
+                    take(myOwner);
+                }
+                else {
+                    if ((pending == 1) && (myTimer != null)) {
+                        myScheduledFlush = myTimer.schedule(new Runnable() {
+                            @Override
+                            public void run() {
+                                flushDelayed();
+                            }
+                        }, myMaxDelay, TimeUnit.MILLISECONDS);
+                    }
+                    return true;
+                }
+            }
+
+            // A failure is reported to each of the writes that were not sent,
+            // not to this caller.
+            sendTaken();
+
+            return true;
+        }
+
+        /**
+         * Returns the {@link GetLastError} command document for the write's
+         * durability or <code>null</code> if the write is not acknowledged.
+         *
+         * @param args
+         *            The arguments for the send() call.
+         * @return The document for the write's durability.
+         */
+        private Document durability(final Object[] args) {
+            if ((args.length == 3) && (args[1] instanceof GetLastError)) {
+                return ((GetLastError) args[1]).getQuery();
+            }
+            return null;
+        }
+
+        /**
+         * Flushes the pending writes from the timer thread. A failure is
+         * reported to each of the writes that were not sent.
+         */
+        /* package */void flushDelayed() {
+            take(myOwner);
+            sendTaken();
+        }
+
+        /**
+         * Returns true if the durability documents for two writes are the
+         * same.
+         *
+         * @param durability
+         *            The durability document for the first write.
+         * @param other
+         *            The durability document for the second write.
+         * @return True if the documents are the same.
+         */
+        private boolean same(final Document durability, final Document other) {
+            return (durability == null) ? (other == null) : durability
+                    .equals(other);
+        }
+    }
+
+    /**
+     * TakenRequests holds the optimized requests taken from the pending
+     * messages along with the real callbacks for each request.
+     *
+     * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+     */
+    private static final class TakenRequests {
+
+        /** The real callbacks for each request. */
+        private final List<List<Callback<Reply>>> myCallbacks;
+
+        /** The optimized requests. */
+        private final List<Object> myRequests;
+
+        /**
+         * Creates a new TakenRequests.
+         *
+         * @param requests
+         *            The optimized requests.
+         * @param callbacks
+         *            The real callbacks for each request.
+         */
+        public TakenRequests(final List<Object> requests,
+                final List<List<Callback<Reply>>> callbacks) {
+            myRequests = requests;
+            myCallbacks = callbacks;
+        }
+
+        /**
+         * Returns the real callbacks for each request.
+         *
+         * @return The real callbacks for each request.
+         */
+        public List<List<Callback<Reply>>> getCallbacks() {
+            return myCallbacks;
+        }
+
+        /**
+         * Returns the optimized requests.
+         *
+         * @return The optimized requests.
+         */
+        public List<Object> getRequests() {
+            return myRequests;
+        }
+    }
 }
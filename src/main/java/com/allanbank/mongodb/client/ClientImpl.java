@@ -313,6 +313,8 @@ public class ClientImpl
         if (isCursorDocument(cursorDoc)) {
             final MongoIteratorImpl iter = new MongoIteratorImpl(cursorDoc,
                     this);
+            iter.setReadAhead(myConfig.getMaxCursorReadAhead(),
+                    myConfig.getMaxCursorReadAheadBytes());
             iter.restart();
 
             return iter;
@@ -23,9 +23,11 @@ import static com.allanbank.mongodb.client.IdentityTransform.identity;
 
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
 
 import com.allanbank.mongodb.MongoClient;
@@ -49,6 +51,16 @@ import com.allanbank.mongodb.util.log.LogFactory;
 
 /**
  * Iterator over the results of the MongoDB cursor.
+ * <p>
+ * The iterator requests the next batch of documents as soon as it starts on
+ * the current batch. When {@link #setReadAhead(int, int) read-ahead} is
+ * enabled the iterator keeps more requests outstanding each time it has to
+ * wait for a reply and fewer when replies are waiting to be consumed, within
+ * a cap on the size of the outstanding replies. All of the requests for a
+ * cursor are sent on the same connection so the server processes them in
+ * order. When there is a pool of connections to the server the pool keeps
+ * the outstanding requests for the cursor on one of its connections.
+ * </p>
  *
  * @api.no This class is <b>NOT</b> part of the drivers API. This class may be
  *         mutated in incompatible ways between any two releases of the driver.
@@ -84,9 +96,37 @@ public class MongoIteratorImpl
      */
     private int myLimit = 0;
 
+    /** The size of the last reply in bytes. */
+    private int myLastReplySize = 0;
+
+    /** The maximum number of outstanding requests for more documents. */
+    private int myMaxReadAhead = 1;
+
+    /** The maximum number of bytes of outstanding replies. */
+    private int myMaxReadAheadBytes = Integer.MAX_VALUE;
+
     /** The {@link Future} that will be updated with the next set of results. */
     private FutureReplyCallback myNextReply;
 
+    /**
+     * The current number of outstanding requests for more documents to keep.
+     * Adjusted between 1 and {@link #myMaxReadAhead} based on if the iterator
+     * has to wait for replies.
+     */
+    private int myReadAhead = 1;
+
+    /**
+     * The client for sending the requests for more documents. When reading
+     * ahead all of the requests must be sent on the same connection.
+     */
+    private Client myReadAheadClient = null;
+
+    /**
+     * The {@link Future}s for the requests sent after the
+     * {@link #myNextReply}, in order.
+     */
+    private final LinkedList<FutureReplyCallback> myReadAheadReplies = new LinkedList<FutureReplyCallback>();
+
     /** The read preference to subsequent requests. */
     private final ReadPreference myReadPerference;
 
@@ -241,6 +281,7 @@ public class MongoIteratorImpl
 
         myCurrentIterator = null;
         myNextReply = null;
+        myReadAheadReplies.clear();
         myCursorId = 0;
 
         cursorId = retreiveCursorIdFromPendingRequest(cursorId, replyFuture);
@@ -292,6 +333,64 @@ public class MongoIteratorImpl
         return myCurrentIterator.hasNext();
     }
 
+    /**
+     * Returns true if the iterator is known to have no more documents without
+     * waiting for a reply from the server. The iterator is exhausted once the
+     * documents already received are consumed and the cursor is closed:
+     * either the last reply closed the cursor or the reply to the outstanding
+     * request has been received, closes the cursor and contains no
+     * documents.
+     * <p>
+     * If the outstanding request's reply is needed to decide and has not
+     * been received then false is returned and the {@code listener} is run on
+     * the {@code executor} once the reply is received.
+     * </p>
+     *
+     * @param listener
+     *            The listener to run once the outstanding reply is received.
+     * @param executor
+     *            The executor to run the listener on.
+     * @return True if the iterator is known to have no more documents.
+     */
+    public boolean isExhausted(final Runnable listener, final Executor executor) {
+        final Iterator<Document> current = myCurrentIterator;
+        if ((current != null) && current.hasNext()) {
+            return false;
+        }
+
+        final FutureReplyCallback next = myNextReply;
+        if (next == null) {
+            return true;
+        }
+        else if (!next.isDone()) {
+            next.addListener(listener, executor);
+            return false;
+        }
+
+        try {
+            final Reply reply = next.get();
+
+            if (!reply.isQueryFailed() && !reply.isCursorNotFound()
+                    && (reply.getCursorId() == 0)
+                    && reply.getResults().isEmpty()) {
+                // The server closed the cursor. No need to kill it.
+                myCursorId = 0;
+                myNextReply = null;
+                myReadAheadReplies.clear();
+                return true;
+            }
+            return false;
+        }
+        catch (final InterruptedException e) {
+            // Let hasNext() report the failure.
+            return false;
+        }
+        catch (final ExecutionException e) {
+            // Let hasNext() report the failure.
+            return false;
+        }
+    }
+
     /**
      * {@inheritDoc}
      * <p>
@@ -366,6 +465,30 @@ public class MongoIteratorImpl
         myBatchSize = batchSize;
     }
 
+    /**
+     * Sets the limits for the requests for more documents the iterator will
+     * have outstanding. The iterator always has at least one request
+     * outstanding while the cursor is open. Read-ahead is not used for
+     * cursors with a limit.
+     *
+     * @param maxReadAhead
+     *            The maximum number of outstanding requests for more
+     *            documents.
+     * @param maxReadAheadBytes
+     *            The maximum number of bytes of outstanding replies based on
+     *            the size of the last reply.
+     */
+    public void setReadAhead(final int maxReadAhead,
+            final int maxReadAheadBytes) {
+        myMaxReadAhead = Math.max(1, maxReadAhead);
+        myMaxReadAheadBytes = maxReadAheadBytes;
+        myReadAhead = Math.min(myReadAhead, myMaxReadAhead);
+
+        if ((1 < myMaxReadAhead) && (myClient instanceof ClientImpl)) {
+            myReadAheadClient = new SerialClientImpl((ClientImpl) myClient);
+        }
+    }
+
     /**
      * Stops the iterator after consuming any received and/or requested batches.
      * <p>
@@ -505,6 +628,8 @@ public class MongoIteratorImpl
             throws RuntimeException {
         List<Document> docs;
         try {
+            adjustReadAhead();
+
             // Pull the reply from the future. Hopefully it is already there!
             final Reply reply = myNextReply.get();
             if (reply.isQueryFailed()) {
@@ -520,6 +645,7 @@ public class MongoIteratorImpl
             }
 
             myCursorId = reply.getCursorId();
+            myLastReplySize = reply.size();
 
             // Setup and iterator over the documents and adjust the limit
             // for the documents we have. Do this before the fetch again
@@ -544,7 +670,13 @@ public class MongoIteratorImpl
             // Pre-fetch the next set of documents while we iterate over the
             // documents we just got.
             if ((myCursorId != 0) && !myShutdown) {
-                sendRequest();
+                if (myReadAheadReplies.isEmpty()) {
+                    sendRequest();
+                }
+                else {
+                    myNextReply = myReadAheadReplies.removeFirst();
+                }
+                readAhead();
 
                 // Include the (myNextReply != null) to catch failures on the
                 // server.
@@ -554,9 +686,15 @@ public class MongoIteratorImpl
                     docs = loadDocuments(false);
                 }
             }
+            else if ((myCursorId != 0) && !myReadAheadReplies.isEmpty()) {
+                // Shutting down - finish the batches already requested.
+                myNextReply = myReadAheadReplies.removeFirst();
+            }
             else {
                 // Exhausted the cursor or are shutting down - no more results.
+                // Any replies read ahead will only report the cursor is gone.
                 myNextReply = null;
+                myReadAheadReplies.clear();
 
                 // Don't need to kill the cursor since we exhausted it or are
                 // shutting down.
@@ -611,10 +749,66 @@ public class MongoIteratorImpl
      *             On a failure to send the request for more document.
      */
     protected void sendRequest() throws MongoDbException {
+        myNextReply = sendGetMore();
+    }
+
+    /**
+     * Adjusts the number of requests to keep outstanding. If the iterator has
+     * to wait for the next reply then another request is added. If the reply
+     * after the next is also already waiting then one fewer is used.
+     */
+    private void adjustReadAhead() {
+        if (1 < myMaxReadAhead) {
+            if (!myNextReply.isDone()) {
+                myReadAhead = Math.min(myReadAhead + 1, myMaxReadAhead);
+            }
+            else if (!myReadAheadReplies.isEmpty()
+                    && myReadAheadReplies.getFirst().isDone()) {
+                myReadAhead = Math.max(myReadAhead - 1, 1);
+            }
+        }
+    }
+
+    /**
+     * Sends additional requests for more documents until the number of
+     * outstanding requests reaches the read-ahead depth or the outstanding
+     * replies would exceed the maximum number of bytes.
+     *
+     * @throws MongoDbException
+     *             On a failure to send the request for more document.
+     */
+    private void readAhead() throws MongoDbException {
+        // Requesting past a limit would waste the extra documents.
+        if (0 < myLimit) {
+            return;
+        }
+
+        int outstanding = 1 + myReadAheadReplies.size();
+        while ((outstanding < myReadAhead)
+                && (((long) (outstanding + 1) * myLastReplySize) <= myMaxReadAheadBytes)) {
+            myReadAheadReplies.add(sendGetMore());
+            outstanding += 1;
+        }
+    }
+
+    /**
+     * Sends a request for more documents.
+     *
+     * @return The {@link Future} for the reply to the request.
+     * @throws MongoDbException
+     *             On a failure to send the request for more document.
+     */
+    private FutureReplyCallback sendGetMore() throws MongoDbException {
         final GetMore getMore = new GetMore(myDatabaseName, myCollectionName,
                 myCursorId, nextBatchSize(), myReadPerference);
 
-        myNextReply = new FutureReplyCallback();
-        myClient.send(getMore, myNextReply);
+        final FutureReplyCallback reply = new FutureReplyCallback();
+        if (myReadAheadClient != null) {
+            myReadAheadClient.send(getMore, reply);
+        }
+        else {
+            myClient.send(getMore, reply);
+        }
+        return reply;
     }
 }
@@ -21,6 +21,7 @@ package com.allanbank.mongodb.client;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import com.allanbank.mongodb.BatchedAsyncMongoCollection;
 import com.allanbank.mongodb.Durability;
@@ -38,6 +39,8 @@ import com.allanbank.mongodb.bson.ElementType;
 import com.allanbank.mongodb.bson.NumericElement;
 import com.allanbank.mongodb.bson.builder.BuilderFactory;
 import com.allanbank.mongodb.bson.builder.DocumentBuilder;
+import com.allanbank.mongodb.bson.codec.Decoder;
+import com.allanbank.mongodb.bson.codec.Encoder;
 import com.allanbank.mongodb.bson.element.BooleanElement;
 import com.allanbank.mongodb.bson.element.IntegerElement;
 import com.allanbank.mongodb.builder.Aggregate;
@@ -606,6 +609,21 @@ public class SynchronousMongoCollectionImpl
         return FutureUtils.unwrap(findOneAsync(query));
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to call the
+     * {@link #findOneAsync(DocumentAssignable, Decoder)}.
+     * </p>
+     *
+     * @see #findOneAsync(DocumentAssignable, Decoder)
+     */
+    @Override
+    public <T> T findOne(final DocumentAssignable query,
+            final Decoder<T> decoder) throws MongoDbException {
+        return FutureUtils.unwrap(findOneAsync(query, decoder));
+    }
+
     /**
      * <p>
      * Overridden to call the
@@ -708,6 +726,21 @@ public class SynchronousMongoCollectionImpl
                 documents);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to encode the objects and call the
+     * {@link #insert(DocumentAssignable...)} method.
+     * </p>
+     *
+     * @see #insert(DocumentAssignable...)
+     */
+    @Override
+    public <T> int insert(final Encoder<? super T> encoder,
+            final Collection<? extends T> objects) throws MongoDbException {
+        return insert(encode(encoder, objects));
+    }
+
     /**
      * {@inheritDoc}
      * <p>
@@ -868,6 +901,20 @@ public class SynchronousMongoCollectionImpl
         return new BatchedAsyncMongoCollectionImpl(myClient, myDatabase, myName);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to return a {@link BatchedAsyncMongoCollection} that
+     * coalesces the writes.
+     * </p>
+     */
+    @Override
+    public BatchedAsyncMongoCollection startCoalescing(final long maxDelay,
+            final TimeUnit units, final int maxWrites) {
+        return new BatchedAsyncMongoCollectionImpl(myClient, myDatabase,
+                myName, maxDelay, units, maxWrites);
+    }
+
     /**
      * {@inheritDoc}
      * <p>
@@ -25,6 +25,7 @@ import static com.allanbank.mongodb.client.IdentityTransform.identity;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.allanbank.mongodb.Callback;
+import com.allanbank.mongodb.MongoClientConfiguration;
 import com.allanbank.mongodb.MongoDbException;
 import com.allanbank.mongodb.MongoIterator;
 import com.allanbank.mongodb.bson.Document;
@@ -173,8 +174,12 @@ public final class CursorCallback
         if (isCommand()) {
             result = CommandCursorTranslator.translate(reply);
         }
-        return new MongoIteratorImpl(myMessage, myClient, myAddress, result,
-                myTransformer);
+        final MongoClientConfiguration config = myClient.getConfig();
+        final MongoIteratorImpl iter = new MongoIteratorImpl(myMessage,
+                myClient, myAddress, result, myTransformer);
+        iter.setReadAhead(config.getMaxCursorReadAhead(),
+                config.getMaxCursorReadAheadBytes());
+        return iter;
     }
 
     /**
@@ -81,6 +81,12 @@ public final class CursorStreamingCallback
     /** The name of the database the query was originally created on. */
     private final String myDatabaseName;
 
+    /**
+     * If true then the server streams all of the batches for the cursor
+     * without a {@link GetMore} request.
+     */
+    private final boolean myExhaust;
+
     /** The callback to forward the returned documents to. */
     private final StreamCallback<Document> myForwardCallback;
 
@@ -151,6 +157,8 @@ public final class CursorStreamingCallback
         myBatchSize = originalMessage.getBatchSize();
         myMessage = originalMessage;
         myCommand = command;
+        myExhaust = (originalMessage instanceof Query)
+                && ((Query) originalMessage).isExhaust();
         myForwardCallback = results;
         myLimit = originalMessage.getLimit();
         myTransformer = transform;
@@ -203,6 +211,7 @@ public final class CursorStreamingCallback
 
         myMessage = null;
         myCommand = false;
+        myExhaust = false;
         myClient = client;
         myDatabaseName = db;
         myCollectionName = collection;
@@ -222,13 +231,15 @@ public final class CursorStreamingCallback
      * {@inheritDoc}
      * <p>
      * Overridden to return the current state of the stream as a document.
+     * Exhaust cursors cannot be restarted since the server is already
+     * streaming the remaining batches so {@code null} is returned.
      * </p>
      */
     @Override
     public Document asDocument() {
         final long cursorId = myCursorId;
 
-        if (cursorId != 0) {
+        if ((cursorId != 0) && !myExhaust) {
             final DocumentBuilder b = BuilderFactory.start();
             b.add(NAME_SPACE_FIELD, myDatabaseName + "." + myCollectionName);
             b.add(CURSOR_ID_FIELD, cursorId);
@@ -244,6 +255,12 @@ public final class CursorStreamingCallback
     /**
      * Overridden to close the iterator and send a {@link KillCursors} for the
      * open cursor, if any.
+     * <p>
+     * The server cannot be asked to stop streaming an exhaust cursor. Closing
+     * an exhaust cursor stops the delivery of documents but the connection
+     * still receives, and discards, all of the remaining batches and is busy
+     * until the server reports the cursor is exhausted.
+     * </p>
      */
     @Override
     public void close() {
@@ -478,7 +495,8 @@ public final class CursorStreamingCallback
 
         // Pre-fetch the next set of documents while we iterate over the
         // documents we just got.
-        if ((myCursorId != 0) && !myShutdown) {
+        // Exhaust cursors stream the next batch without being asked.
+        if ((myCursorId != 0) && !myShutdown && !myExhaust) {
             sendRequest();
         }
         // Exhausted the cursor - no more results.
@@ -509,8 +527,13 @@ public final class CursorStreamingCallback
         final long cursorId = myCursorId;
         if ((cursorId != 0) && !myShutdown) {
             myCursorId = 0;
-            myClient.send(new KillCursors(new long[] { cursorId },
-                    ReadPreference.server(myAddress)), null);
+
+            // The server closes an exhaust cursor once the last batch is
+            // streamed. The remaining batches are simply discarded.
+            if (!myExhaust) {
+                myClient.send(new KillCursors(new long[] { cursorId },
+                        ReadPreference.server(myAddress)), null);
+            }
         }
     }
 
@@ -0,0 +1,103 @@
+/*
+ * #%L
+ * DecodingCallback.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.client.callback;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.allanbank.mongodb.Callback;
+import com.allanbank.mongodb.MongoDbException;
+import com.allanbank.mongodb.bson.Document;
+import com.allanbank.mongodb.bson.codec.CodecUtils;
+import com.allanbank.mongodb.bson.codec.Decoder;
+import com.allanbank.mongodb.client.message.Query;
+import com.allanbank.mongodb.client.message.Reply;
+
+/**
+ * DecodingCallback provides a callback to forward the first document of a
+ * reply, decoded into an object, to the user's callback.
+ * <p>
+ * The reply's documents are normally decoded directly from the received bytes
+ * using the {@link Query#getDecoder() query's decoder}. If the reply was read
+ * as documents instead (e.g., the decoder failed) then the document is
+ * decoded here, and any failure is reported to the user's callback.
+ * </p>
+ *
+ * @param <T>
+ *            The type of the decoded object.
+ *
+ * @api.no This class is <b>NOT</b> part of the drivers API. This class may be
+ *         mutated in incompatible ways between any two releases of the driver.
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+public class DecodingCallback<T>
+        extends AbstractReplyCallback<T> {
+
+    /** The decoder for the document. */
+    private final Decoder<T> myDecoder;
+
+    /**
+     * Creates a new DecodingCallback.
+     *
+     * @param results
+     *            The callback to forward the decoded object to.
+     * @param decoder
+     *            The decoder for the document.
+     */
+    public DecodingCallback(final Callback<T> results, final Decoder<T> decoder) {
+        super(results);
+        myDecoder = decoder;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to return the first decoded object in the reply or
+     * <code>null</code> if there are no results.
+     * </p>
+     *
+     * @see AbstractReplyCallback#convert(Reply)
+     */
+    @Override
+    protected T convert(final Reply reply) throws MongoDbException {
+        final List<Object> decoded = reply.getDecodedResults();
+        if (!decoded.isEmpty()) {
+            // The reply was decoded with our decoder.
+            @SuppressWarnings("unchecked")
+            final T result = (T) decoded.get(0);
+            return result;
+        }
+
+        final List<Document> results = reply.getResults();
+        if (!results.isEmpty()) {
+            try {
+                return CodecUtils.fromDocument(results.get(0), myDecoder);
+            }
+            catch (final IOException ioe) {
+                throw new MongoDbException(ioe);
+            }
+            catch (final RuntimeException re) {
+                throw new MongoDbException(re);
+            }
+        }
+        return null;
+    }
+}
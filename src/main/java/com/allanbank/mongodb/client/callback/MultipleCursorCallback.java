@@ -26,6 +26,7 @@ import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.allanbank.mongodb.Callback;
+import com.allanbank.mongodb.MongoClientConfiguration;
 import com.allanbank.mongodb.MongoDbException;
 import com.allanbank.mongodb.MongoIterator;
 import com.allanbank.mongodb.bson.Document;
@@ -138,8 +139,13 @@ public final class MultipleCursorCallback
         final List<Reply> results = CommandCursorTranslator.translateAll(reply);
         final List<MongoIterator<Document>> iters = new ArrayList<MongoIterator<Document>>(
                 results.size());
+        final MongoClientConfiguration config = myClient.getConfig();
         for (final Reply r : results) {
-            iters.add(new MongoIteratorImpl(myMessage, myClient, myAddress, r));
+            final MongoIteratorImpl iter = new MongoIteratorImpl(myMessage,
+                    myClient, myAddress, r);
+            iter.setReadAhead(config.getMaxCursorReadAhead(),
+                    config.getMaxCursorReadAheadBytes());
+            iters.add(iter);
         }
         return iters;
     }
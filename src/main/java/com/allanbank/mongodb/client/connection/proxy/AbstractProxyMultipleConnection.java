@@ -601,6 +601,26 @@ public abstract class AbstractProxyMultipleConnection<K>
      */
     protected boolean trySend(final List<K> servers, final Message message1,
             final Message message2, final ReplyCallback reply) {
+        return trySendTo(servers, message1, message2, reply) != null;
+    }
+
+    /**
+     * Tries to send the messages to the first server with either an open
+     * connection or that we can open a connection to.
+     *
+     * @param servers
+     *            The servers the messages can be sent to.
+     * @param message1
+     *            The first message to send.
+     * @param message2
+     *            The second message to send. May be <code>null</code>.
+     * @param reply
+     *            The callback for the replies.
+     * @return The server the messages were sent to or <code>null</code> if
+     *         the messages were not sent.
+     */
+    protected K trySendTo(final List<K> servers, final Message message1,
+            final Message message2, final ReplyCallback reply) {
         for (final K server : servers) {
 
             Connection conn = myConnections.get(server);
@@ -624,11 +644,11 @@ public abstract class AbstractProxyMultipleConnection<K>
 
             if (conn != null) {
                 doSend(conn, message1, message2, reply);
-                return true;
+                return server;
             }
         }
 
-        return false;
+        return null;
     }
 
     /**
@@ -0,0 +1,350 @@
+/*
+ * #%L
+ * PooledConnectionFactory.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.allanbank.mongodb.client.connection.proxy;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.allanbank.mongodb.MongoClientConfiguration;
+import com.allanbank.mongodb.MongoDbException;
+import com.allanbank.mongodb.client.ClusterStats;
+import com.allanbank.mongodb.client.ClusterType;
+import com.allanbank.mongodb.client.connection.Connection;
+import com.allanbank.mongodb.client.connection.ReconnectStrategy;
+import com.allanbank.mongodb.client.metrics.MongoClientMetrics;
+import com.allanbank.mongodb.client.state.Server;
+
+/**
+ * PooledConnectionFactory provides a {@link ProxiedConnectionFactory} that
+ * shares a single {@link ServerConnectionPool} for each server across all of
+ * the connections it creates.
+ * <p>
+ * If more than one
+ * {@link MongoClientConfiguration#getMaxConnectionsPerServer() connection per
+ * server} is allowed then each connection returned for a server is a lease on
+ * the server's pool. Closing or shutting down a lease only releases it and
+ * raising errors on a lease does not fail the other leases' requests. The
+ * pools are owned by the factory and are closed when the factory is closed. A
+ * pool that closes, e.g., when the server goes down, is replaced on the next
+ * connect.
+ * </p>
+ * <p>
+ * The factory does not close the wrapped factory.
+ * </p>
+ *
+ * @api.no This class is <b>NOT</b> part of the drivers API. This class may be
+ *         mutated in incompatible ways between any two releases of the driver.
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+public class PooledConnectionFactory
+        implements ProxiedConnectionFactory {
+
+    /** The factory for the pool's connections. */
+    private final ProxiedConnectionFactory myDelegate;
+
+    /** The executor for opening connections in the background. */
+    private final ExecutorService myExecutor;
+
+    /** The pool for each server. */
+    private final ConcurrentMap<Server, ServerConnectionPool> myPools;
+
+    /**
+     * Creates a new PooledConnectionFactory.
+     *
+     * @param delegate
+     *            The factory for the pool's connections.
+     * @param config
+     *            The MongoDB client configuration.
+     */
+    public PooledConnectionFactory(final ProxiedConnectionFactory delegate,
+            final MongoClientConfiguration config) {
+        myDelegate = delegate;
+        myPools = new ConcurrentHashMap<Server, ServerConnectionPool>();
+        myExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = config.getThreadFactory().newThread(
+                        runnable);
+                thread.setDaemon(true);
+                thread.setName("MongoDB Connection Pool");
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to close the pools.
+     * </p>
+     */
+    @Override
+    public void close() {
+        myExecutor.shutdownNow();
+        for (final ServerConnectionPool pool : myPools.values()) {
+            pool.close();
+        }
+        myPools.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Forwards the call to the wrapped factory.
+     * </p>
+     */
+    @Override
+    public Connection connect() throws IOException {
+        return myDelegate.connect();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to return a lease on the server's pool, opening the pool if
+     * needed. If only one connection per server is allowed then the wrapped
+     * factory's connection is returned.
+     * </p>
+     */
+    @Override
+    public Connection connect(final Server server,
+            final MongoClientConfiguration config) throws IOException {
+        if (config.getMaxConnectionsPerServer() <= 1) {
+            return myDelegate.connect(server, config);
+        }
+
+        ServerConnectionPool pool = myPools.get(server);
+        while ((pool == null) || !pool.isOpen()) {
+            final ServerConnectionPool created = new ServerConnectionPool(
+                    myDelegate.connect(server, config), server, myDelegate,
+                    config, myExecutor);
+
+            final boolean added;
+            if (pool == null) {
+                added = (myPools.putIfAbsent(server, created) == null);
+            }
+            else {
+                added = myPools.replace(server, pool, created);
+            }
+
+            if (added) {
+                pool = created;
+            }
+            else {
+                // Lost the race. Use the other pool.
+                created.close();
+                pool = myPools.get(server);
+            }
+        }
+
+        return new PooledConnection(pool);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Forwards the call to the wrapped factory.
+     * </p>
+     */
+    @Override
+    public ClusterStats getClusterStats() {
+        return myDelegate.getClusterStats();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Forwards the call to the wrapped factory.
+     * </p>
+     */
+    @Override
+    public ClusterType getClusterType() {
+        return myDelegate.getClusterType();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Forwards the call to the wrapped factory.
+     * </p>
+     */
+    @Override
+    public MongoClientMetrics getMetrics() {
+        return myDelegate.getMetrics();
+    }
+
+    /**
+     * Returns the number of servers with a pool.
+     *
+     * @return The number of servers with a pool.
+     */
+    public int getPoolCount() {
+        return myPools.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Forwards the call to the wrapped factory.
+     * </p>
+     */
+    @Override
+    public ReconnectStrategy getReconnectStrategy() {
+        return myDelegate.getReconnectStrategy();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Forwards the call to the wrapped factory.
+     * </p>
+     */
+    @Override
+    public void setMetrics(final MongoClientMetrics metrics) {
+        myDelegate.setMetrics(metrics);
+    }
+
+    /**
+     * PooledConnection provides a lease on a shared
+     * {@link ServerConnectionPool}. Closing or shutting down the lease does
+     * not close the pool.
+     *
+     * @api.no This class is <b>NOT</b> part of the drivers API. This class may
+     *         be mutated in incompatible ways between any two releases of the
+     *         driver.
+     * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+     */
+    protected static final class PooledConnection
+            extends AbstractProxyConnection {
+
+        /** Set to true once the lease is closed or shutdown. */
+        private final AtomicBoolean myReleased;
+
+        /**
+         * Creates a new PooledConnection.
+         *
+         * @param pool
+         *            The pool being leased.
+         */
+        public PooledConnection(final ServerConnectionPool pool) {
+            super(pool);
+            myReleased = new AtomicBoolean(false);
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to release the lease.
+         * </p>
+         */
+        @Override
+        public void close() {
+            myReleased.set(true);
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to return false once the lease is released.
+         * </p>
+         */
+        @Override
+        public boolean isAvailable() {
+            return !myReleased.get() && super.isAvailable();
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to return false once the lease is released.
+         * </p>
+         */
+        @Override
+        public boolean isOpen() {
+            return !myReleased.get() && super.isOpen();
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to return true once the lease is released.
+         * </p>
+         */
+        @Override
+        public boolean isShuttingDown() {
+            return myReleased.get() || super.isShuttingDown();
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to do nothing. The pool's connections are shared with
+         * the other leases so the errors are not raised for the requests sent
+         * on them. The pool raises the errors for a connection when it closes.
+         * </p>
+         */
+        @Override
+        public void raiseErrors(final MongoDbException exception) {
+            // Nothing.
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to release the lease.
+         * </p>
+         */
+        @Override
+        public void shutdown(final boolean force) {
+            myReleased.set(true);
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to return the pool's description.
+         * </p>
+         */
+        @Override
+        public String toString() {
+            return "Lease(" + getProxiedConnection() + ")";
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to return immediately once the lease is released.
+         * </p>
+         */
+        @Override
+        public void waitForClosed(final int timeout,
+                final TimeUnit timeoutUnits) {
+            if (!myReleased.get()) {
+                super.waitForClosed(timeout, timeoutUnits);
+            }
+        }
+    }
+}
@@ -0,0 +1,843 @@
+/*
+ * #%L
+ * ServerConnectionPool.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.allanbank.mongodb.client.connection.proxy;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.beans.PropertyChangeSupport;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.allanbank.mongodb.MongoClientConfiguration;
+import com.allanbank.mongodb.MongoDbException;
+import com.allanbank.mongodb.client.Message;
+import com.allanbank.mongodb.client.callback.ReplyCallback;
+import com.allanbank.mongodb.client.connection.Connection;
+import com.allanbank.mongodb.client.message.GetMore;
+import com.allanbank.mongodb.client.message.Reply;
+import com.allanbank.mongodb.client.state.Server;
+import com.allanbank.mongodb.error.ConnectionLostException;
+import com.allanbank.mongodb.util.log.Log;
+import com.allanbank.mongodb.util.log.LogFactory;
+
+/**
+ * ServerConnectionPool provides a {@link Connection} that spreads requests
+ * across a pool of connections to a single server.
+ * <p>
+ * Each request is sent on the connection with the fewest pending requests.
+ * If every connection has pending requests, or the pool is below the
+ * {@link MongoClientConfiguration#getMinConnectionsPerServer() minimum}, then
+ * another connection is opened, up to the
+ * {@link MongoClientConfiguration#getMaxConnectionsPerServer() maximum}. The
+ * connection is opened on the pool's executor so the request is not delayed
+ * by the connect. Only if none of the pool's connections can be used is the
+ * connection opened by the sending thread. Connections that close are removed
+ * from the pool. The pool closes once its last connection closes.
+ * </p>
+ * <p>
+ * A pool is shared by all of the client's connections to the server. See
+ * {@link PooledConnectionFactory}.
+ * </p>
+ * <p>
+ * While a request for more documents from a cursor is outstanding, further
+ * requests for the same cursor are sent on the same connection. Cursor
+ * read-ahead relies on the server processing the requests in order and the
+ * server rejects concurrent requests for a cursor.
+ * </p>
+ *
+ * @api.no This class is <b>NOT</b> part of the drivers API. This class may be
+ *         mutated in incompatible ways between any two releases of the driver.
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+public class ServerConnectionPool
+        implements Connection {
+
+    /** The logger for the {@link ServerConnectionPool}. */
+    private static final Log LOG = LogFactory
+            .getLog(ServerConnectionPool.class);
+
+    /** The MongoDB client configuration. */
+    private final MongoClientConfiguration myConfig;
+
+    /** The pool's open connections. */
+    private final List<Connection> myConnections;
+
+    /** Support for emitting property change events. */
+    private final PropertyChangeSupport myEventSupport;
+
+    /** The executor for opening additional connections. */
+    private final Executor myExecutor;
+
+    /** The connection factory for opening additional connections. */
+    private final ProxiedConnectionFactory myFactory;
+
+    /**
+     * Set to true while a connection is being added to the pool. Threads
+     * waiting for the connection wait on this object.
+     */
+    private final AtomicBoolean myGrowing;
+
+    /** The listener for the pool's connections closing. */
+    private final PropertyChangeListener myListener;
+
+    /** Set to false when the pool is closed. */
+    private final AtomicBoolean myOpen;
+
+    /**
+     * The connections for cursors with outstanding requests for more
+     * documents, keyed by cursor id. Access is guarded by the map's lock.
+     */
+    private final Map<Long, CursorPin> myPinnedCursors;
+
+    /** The server the pool is connected to. */
+    private final Server myServer;
+
+    /** Set to true when the pool should be gracefully closed. */
+    private final AtomicBoolean myShutdown;
+
+    /**
+     * Creates a new ServerConnectionPool.
+     *
+     * @param connection
+     *            The first connection to the server.
+     * @param server
+     *            The server the pool is connected to.
+     * @param factory
+     *            The connection factory for opening additional connections.
+     * @param config
+     *            The MongoDB client configuration.
+     * @param executor
+     *            The executor for opening additional connections.
+     */
+    public ServerConnectionPool(final Connection connection,
+            final Server server, final ProxiedConnectionFactory factory,
+            final MongoClientConfiguration config, final Executor executor) {
+        myServer = server;
+        myFactory = factory;
+        myConfig = config;
+        myExecutor = executor;
+
+        myConnections = new CopyOnWriteArrayList<Connection>();
+        myEventSupport = new PropertyChangeSupport(this);
+        myGrowing = new AtomicBoolean(false);
+        myListener = new ConnectionListener();
+        myOpen = new AtomicBoolean(true);
+        myPinnedCursors = new HashMap<Long, CursorPin>();
+        myShutdown = new AtomicBoolean(false);
+
+        add(connection);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to add this listener to this connection's event source.
+     * </p>
+     */
+    @Override
+    public void addPropertyChangeListener(final PropertyChangeListener listener) {
+        myEventSupport.addPropertyChangeListener(listener);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to close all of the pool's connections.
+     * </p>
+     */
+    @Override
+    public void close() {
+        myOpen.set(false);
+
+        for (final Connection conn : myConnections) {
+            try {
+                conn.removePropertyChangeListener(myListener);
+                conn.close();
+            }
+            catch (final IOException ioe) {
+                LOG.warn(ioe, "Could not close the connection: {}", conn);
+            }
+        }
+        myConnections.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to flush all of the pool's connections.
+     * </p>
+     */
+    @Override
+    public void flush() throws IOException {
+        for (final Connection conn : myConnections) {
+            try {
+                conn.flush();
+            }
+            catch (final IOException ioe) {
+                LOG.warn(ioe, "Could not flush the connection: {}", conn);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of connections in the pool.
+     *
+     * @return The number of connections in the pool.
+     */
+    public int getConnectionCount() {
+        return myConnections.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to return the total pending count for the pool's
+     * connections.
+     * </p>
+     */
+    @Override
+    public int getPendingCount() {
+        int pending = 0;
+        for (final Connection conn : myConnections) {
+            pending += conn.getPendingCount();
+        }
+        return pending;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to return the server the pool is connected to.
+     * </p>
+     */
+    @Override
+    public Server getServer() {
+        return myServer;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * True if the pool is open, not shutting down and has an available
+     * connection.
+     * </p>
+     */
+    @Override
+    public boolean isAvailable() {
+        if (isOpen() && !isShuttingDown()) {
+            for (final Connection conn : myConnections) {
+                if (conn.isAvailable()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to return true if all of the pool's connections are idle.
+     * </p>
+     */
+    @Override
+    public boolean isIdle() {
+        for (final Connection conn : myConnections) {
+            if (!conn.isIdle()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to return if the pool is open.
+     * </p>
+     */
+    @Override
+    public boolean isOpen() {
+        return myOpen.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to return if the pool is shutting down.
+     * </p>
+     */
+    @Override
+    public boolean isShuttingDown() {
+        return myShutdown.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to raise the errors with all of the pool's connections.
+     * </p>
+     */
+    @Override
+    public void raiseErrors(final MongoDbException exception) {
+        for (final Connection conn : myConnections) {
+            conn.raiseErrors(exception);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to remove the listener from this connection.
+     * </p>
+     */
+    @Override
+    public void removePropertyChangeListener(
+            final PropertyChangeListener listener) {
+        myEventSupport.removePropertyChangeListener(listener);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to send the messages on the connection with the fewest
+     * pending requests. Requests for more documents from a cursor with a
+     * request outstanding are sent on the same connection as that request.
+     * </p>
+     */
+    @Override
+    public void send(final Message message1, final Message message2,
+            final ReplyCallback replyCallback) throws MongoDbException {
+        if ((message1 instanceof GetMore) && (replyCallback != null)) {
+            sendGetMore((GetMore) message1, replyCallback);
+            return;
+        }
+
+        final Connection conn = selectConnection();
+        if (message2 == null) {
+            conn.send(message1, replyCallback);
+        }
+        else {
+            conn.send(message1, message2, replyCallback);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to send the message on the connection with the fewest pending
+     * requests.
+     * </p>
+     */
+    @Override
+    public void send(final Message message, final ReplyCallback replyCallback)
+            throws MongoDbException {
+        send(message, null, replyCallback);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to shutdown all of the pool's connections.
+     * </p>
+     */
+    @Override
+    public void shutdown(final boolean force) {
+        myShutdown.set(true);
+        for (final Connection conn : myConnections) {
+            conn.shutdown(force);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to return the server and size of the pool.
+     * </p>
+     */
+    @Override
+    public String toString() {
+        return "Pool(" + myServer.getCanonicalName() + ", "
+                + myConnections.size() + " connections)";
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to wait for all of the pool's connections to close.
+     * </p>
+     */
+    @Override
+    public void waitForClosed(final int timeout, final TimeUnit timeoutUnits) {
+        final long millis = timeoutUnits.toMillis(timeout);
+        long now = System.currentTimeMillis();
+        final long deadline = now + millis;
+
+        for (final Connection conn : myConnections) {
+            if (now < deadline) {
+                conn.waitForClosed((int) (deadline - now),
+                        TimeUnit.MILLISECONDS);
+                now = System.currentTimeMillis();
+            }
+        }
+    }
+
+    /**
+     * Selects the connection to send a request on. Returns the available
+     * connection with the fewest pending requests. A new connection is opened
+     * in the background if the pool is below its minimum size or if every
+     * connection is busy and the pool is below its maximum size. If no
+     * connection is available then a new connection is opened immediately or,
+     * if another thread is already opening a connection, the connection is
+     * waited for, up to the {@link MongoClientConfiguration#getConnectTimeout()
+     * connect timeout}.
+     *
+     * @return The connection to send the request on.
+     * @throws ConnectionLostException
+     *             If the pool has no available connections.
+     */
+    protected Connection selectConnection() throws ConnectionLostException {
+        final long timeout = myConfig.getConnectTimeout();
+        final long deadline = System.currentTimeMillis() + timeout;
+
+        Connection best = null;
+        while (best == null) {
+            int bestPending = Integer.MAX_VALUE;
+            for (final Connection conn : myConnections) {
+                if (conn.isAvailable()) {
+                    final int pending = conn.getPendingCount();
+                    if (pending < bestPending) {
+                        best = conn;
+                        bestPending = pending;
+                    }
+                }
+            }
+
+            final int size = myConnections.size();
+            if (best != null) {
+                if ((size < myConfig.getMinConnectionsPerServer())
+                        || ((0 < bestPending) && (size < myConfig
+                                .getMaxConnectionsPerServer()))) {
+                    growInBackground();
+                }
+            }
+            else if (!isOpen() || isShuttingDown()) {
+                break;
+            }
+            else if (myGrowing.compareAndSet(false, true)) {
+                // Nothing to send on. Have to wait for the connection.
+                try {
+                    best = open();
+                }
+                finally {
+                    grown();
+                }
+                break;
+            }
+            else if (!awaitGrown(timeout, deadline)) {
+                break;
+            }
+        }
+
+        if (best == null) {
+            throw new ConnectionLostException(
+                    "No open connections to the server: "
+                            + myServer.getCanonicalName());
+        }
+        return best;
+    }
+
+    /**
+     * Adds the connection to the pool.
+     *
+     * @param connection
+     *            The connection to add.
+     */
+    private void add(final Connection connection) {
+        connection.addPropertyChangeListener(myListener);
+        myConnections.add(connection);
+    }
+
+    /**
+     * Waits for the connection being added to the pool by another thread.
+     *
+     * @param timeout
+     *            The connect timeout in milliseconds. Zero or less waits
+     *            forever.
+     * @param deadline
+     *            The time, in milliseconds, to stop waiting.
+     * @return True if the connection was added or failed to open, false if
+     *         the wait timed out or was interrupted.
+     */
+    private boolean awaitGrown(final long timeout, final long deadline) {
+        synchronized (myGrowing) {
+            try {
+                while (myGrowing.get()) {
+                    if (timeout <= 0) {
+                        myGrowing.wait();
+                    }
+                    else {
+                        final long remaining = deadline
+                                - System.currentTimeMillis();
+                        if (remaining <= 0) {
+                            return false;
+                        }
+                        myGrowing.wait(remaining);
+                    }
+                }
+            }
+            catch (final InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Notification that the thread adding a connection to the pool has
+     * finished. Wakes the threads waiting for the connection.
+     */
+    private void grown() {
+        synchronized (myGrowing) {
+            myGrowing.set(false);
+            myGrowing.notifyAll();
+        }
+    }
+
+    /**
+     * Opens a new connection to the server on the pool's executor and adds it
+     * to the pool. Only one connection is opened at a time.
+     */
+    private void growInBackground() {
+        if (!isOpen() || isShuttingDown()
+                || !myGrowing.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            myExecutor.execute(new GrowTask());
+        }
+        catch (final RejectedExecutionException ree) {
+            grown();
+            LOG.debug("Could not start adding a connection to the server: {}",
+                    myServer.getCanonicalName());
+        }
+    }
+
+    /**
+     * Opens a new connection to the server and adds it to the pool if the
+     * pool is below its maximum size. Callers must have set
+     * {@link #myGrowing}.
+     *
+     * @return The new connection or <code>null</code> if the pool is full or
+     *         the connection could not be opened.
+     */
+    private Connection open() {
+        try {
+            if (myConnections.size() < Math.max(
+                    myConfig.getMinConnectionsPerServer(),
+                    myConfig.getMaxConnectionsPerServer())) {
+                final Connection conn = myFactory.connect(myServer, myConfig);
+                add(conn);
+
+                LOG.debug("Opened connection {} of {} to the server: {}",
+                        myConnections.size(),
+                        myConfig.getMaxConnectionsPerServer(),
+                        myServer.getCanonicalName());
+
+                return conn;
+            }
+        }
+        catch (final IOException ioe) {
+            LOG.info("Could not add a connection to the server '{}': {}",
+                    myServer.getCanonicalName(), ioe.getMessage());
+        }
+
+        return null;
+    }
+
+    /**
+     * Adds an outstanding request to the cursor's pin. If the cursor does not
+     * have a pin with an available connection then the cursor is pinned to
+     * the connection provided.
+     *
+     * @param cursorId
+     *            The id of the cursor.
+     * @param connection
+     *            The connection to pin the cursor to. May be
+     *            <code>null</code> to only use an existing pin.
+     * @return The pin for the cursor's requests or <code>null</code> if the
+     *         cursor has no usable pin and no connection was provided.
+     */
+    private CursorPin pin(final Long cursorId, final Connection connection) {
+        synchronized (myPinnedCursors) {
+            CursorPin pin = myPinnedCursors.get(cursorId);
+            if ((pin == null) || !pin.myConnection.isAvailable()) {
+                if (connection == null) {
+                    return null;
+                }
+                pin = new CursorPin(connection);
+                myPinnedCursors.put(cursorId, pin);
+            }
+            pin.myOutstanding += 1;
+
+            return pin;
+        }
+    }
+
+    /**
+     * Sends the request for more documents on the connection pinned to the
+     * cursor, pinning a connection if the cursor has no outstanding
+     * requests. The pin is released once all of the cursor's outstanding
+     * requests have replies. The connection to pin is selected, and possibly
+     * opened, without holding the lock for the pins.
+     *
+     * @param getMore
+     *            The request for more documents.
+     * @param replyCallback
+     *            The callback for the reply to the request.
+     * @throws MongoDbException
+     *             On a failure sending the request.
+     */
+    private void sendGetMore(final GetMore getMore,
+            final ReplyCallback replyCallback) throws MongoDbException {
+        final Long cursorId = Long.valueOf(getMore.getCursorId());
+
+        CursorPin pin = pin(cursorId, null);
+        if (pin == null) {
+            pin = pin(cursorId, selectConnection());
+        }
+
+        final PinnedReplyCallback callback = new PinnedReplyCallback(
+                cursorId, pin, replyCallback);
+        try {
+            pin.myConnection.send(getMore, callback);
+        }
+        catch (final MongoDbException error) {
+            unpin(cursorId, pin);
+            throw error;
+        }
+    }
+
+    /**
+     * Releases one outstanding request from the cursor's pin, removing the pin
+     * once the cursor has no outstanding requests.
+     *
+     * @param cursorId
+     *            The id of the cursor.
+     * @param pin
+     *            The pin for the cursor's requests.
+     */
+    /* package */void unpin(final Long cursorId, final CursorPin pin) {
+        synchronized (myPinnedCursors) {
+            pin.myOutstanding -= 1;
+            if ((pin.myOutstanding <= 0)
+                    && (myPinnedCursors.get(cursorId) == pin)) {
+                myPinnedCursors.remove(cursorId);
+            }
+        }
+    }
+
+    /**
+     * Removes the closed connection from the pool. If the pool has no more
+     * connections then the pool is closed.
+     *
+     * @param connection
+     *            The connection that was closed.
+     */
+    /* package */void handleConnectionClosed(final Connection connection) {
+        connection.removePropertyChangeListener(myListener);
+        if (myConnections.remove(connection)) {
+            connection.raiseErrors(new ConnectionLostException(
+                    "Connection closed."));
+
+            if (myConnections.isEmpty() && myOpen.compareAndSet(true, false)) {
+                myEventSupport.firePropertyChange(Connection.OPEN_PROP_NAME,
+                        true, false);
+            }
+        }
+    }
+
+    /**
+     * ConnectionListener provides a listener for the pool's connections
+     * closing.
+     *
+     * @api.no This class is <b>NOT</b> part of the drivers API. This class may
+     *         be mutated in incompatible ways between any two releases of the
+     *         driver.
+     * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+     */
+    protected final class ConnectionListener
+            implements PropertyChangeListener {
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to remove closed connections from the pool.
+         * </p>
+         */
+        @Override
+        public void propertyChange(final PropertyChangeEvent event) {
+            if (Connection.OPEN_PROP_NAME.equals(event.getPropertyName())
+                    && Boolean.FALSE.equals(event.getNewValue())) {
+                handleConnectionClosed((Connection) event.getSource());
+            }
+        }
+    }
+
+    /**
+     * CursorPin holds the connection for a cursor's outstanding requests for
+     * more documents.
+     *
+     * @api.no This class is <b>NOT</b> part of the drivers API. This class may
+     *         be mutated in incompatible ways between any two releases of the
+     *         driver.
+     * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+     */
+    /* package */static final class CursorPin {
+
+        /** The connection the cursor's requests are sent on. */
+        /* package */final Connection myConnection;
+
+        /** The number of outstanding requests. Guarded by the pool's map. */
+        /* package */int myOutstanding;
+
+        /**
+         * Creates a new CursorPin.
+         *
+         * @param connection
+         *            The connection the cursor's requests are sent on.
+         */
+        /* package */CursorPin(final Connection connection) {
+            myConnection = connection;
+            myOutstanding = 0;
+        }
+    }
+
+    /**
+     * GrowTask opens a connection to the server in the background.
+     *
+     * @api.no This class is <b>NOT</b> part of the drivers API. This class may
+     *         be mutated in incompatible ways between any two releases of the
+     *         driver.
+     * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+     */
+    protected final class GrowTask
+            implements Runnable {
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to open the connection and add it to the pool.
+         * </p>
+         */
+        @Override
+        public void run() {
+            try {
+                if (isOpen() && !isShuttingDown()) {
+                    open();
+                }
+            }
+            finally {
+                grown();
+            }
+        }
+    }
+
+    /**
+     * PinnedReplyCallback releases the cursor's pin when the reply to a
+     * request for more documents is received.
+     *
+     * @api.no This class is <b>NOT</b> part of the drivers API. This class may
+     *         be mutated in incompatible ways between any two releases of the
+     *         driver.
+     * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+     */
+    protected final class PinnedReplyCallback
+            implements ReplyCallback {
+
+        /** The id of the cursor. */
+        private final Long myCursorId;
+
+        /** The callback for the reply. */
+        private final ReplyCallback myDelegate;
+
+        /** The pin for the cursor's requests. */
+        private final CursorPin myPin;
+
+        /**
+         * Creates a new PinnedReplyCallback.
+         *
+         * @param cursorId
+         *            The id of the cursor.
+         * @param pin
+         *            The pin for the cursor's requests.
+         * @param delegate
+         *            The callback for the reply.
+         */
+        /* package */PinnedReplyCallback(final Long cursorId,
+                final CursorPin pin, final ReplyCallback delegate) {
+            myCursorId = cursorId;
+            myPin = pin;
+            myDelegate = delegate;
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to release the pin and then forward the reply.
+         * </p>
+         */
+        @Override
+        public void callback(final Reply result) {
+            unpin(myCursorId, myPin);
+            myDelegate.callback(result);
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to release the pin and then forward the error.
+         * </p>
+         */
+        @Override
+        public void exception(final Throwable thrown) {
+            unpin(myCursorId, myPin);
+            myDelegate.exception(thrown);
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to return the delegate's value.
+         * </p>
+         */
+        @Override
+        public boolean isLightWeight() {
+            return myDelegate.isLightWeight();
+        }
+    }
+}
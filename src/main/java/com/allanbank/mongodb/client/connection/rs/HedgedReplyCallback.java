@@ -0,0 +1,281 @@
+/*
+ * #%L
+ * HedgedReplyCallback.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.client.connection.rs;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.allanbank.mongodb.MongoDbException;
+import com.allanbank.mongodb.ReadPreference;
+import com.allanbank.mongodb.client.callback.AddressAware;
+import com.allanbank.mongodb.client.callback.ReplyCallback;
+import com.allanbank.mongodb.client.connection.Connection;
+import com.allanbank.mongodb.client.message.KillCursors;
+import com.allanbank.mongodb.client.message.Reply;
+import com.allanbank.mongodb.client.state.Server;
+import com.allanbank.mongodb.util.log.Log;
+import com.allanbank.mongodb.util.log.LogFactory;
+
+/**
+ * HedgedReplyCallback coordinates the replies for a request that may be sent
+ * to more than one server. Each send of the request uses its own
+ * {@link #newLeg() leg} callback. The first reply received is passed to the
+ * user's callback and any cursor opened by a later reply is killed.
+ * <p>
+ * An error is only passed to the user's callback once every leg has failed.
+ * </p>
+ *
+ * @api.no This class is <b>NOT</b> part of the drivers API. This class may be
+ *         mutated in incompatible ways between any two releases of the driver.
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+/* package */final class HedgedReplyCallback {
+
+    /** The logger for the {@link HedgedReplyCallback}. */
+    private static final Log LOG = LogFactory
+            .getLog(HedgedReplyCallback.class);
+
+    /** The connection to send requests to kill the losing cursors. */
+    private final Connection myConnection;
+
+    /** The user's callback. */
+    private final ReplyCallback myDelegate;
+
+    /** Set to true once the user's callback has been notified. */
+    private final AtomicBoolean myDone;
+
+    /** The pending send of the request to a second server. */
+    private volatile Future<?> myHedge;
+
+    /** The number of legs still waiting for a reply. */
+    private final AtomicInteger myOutstanding;
+
+    /**
+     * Creates a new HedgedReplyCallback.
+     *
+     * @param delegate
+     *            The user's callback.
+     * @param connection
+     *            The connection to send requests to kill the losing cursors.
+     */
+    public HedgedReplyCallback(final ReplyCallback delegate,
+            final Connection connection) {
+        myDelegate = delegate;
+        myConnection = connection;
+        myDone = new AtomicBoolean(false);
+        myOutstanding = new AtomicInteger(0);
+        myHedge = null;
+    }
+
+    /**
+     * Returns true once the user's callback has been notified.
+     *
+     * @return True once the user's callback has been notified.
+     */
+    public boolean isDone() {
+        return myDone.get();
+    }
+
+    /**
+     * Creates a new leg for sending the request to a server.
+     *
+     * @return The callback for the leg.
+     */
+    public Leg newLeg() {
+        myOutstanding.incrementAndGet();
+        return new Leg();
+    }
+
+    /**
+     * Sets the pending send of the request to a second server. The send is
+     * cancelled once the user's callback is notified.
+     *
+     * @param hedge
+     *            The pending send of the request to a second server.
+     */
+    public void setHedge(final Future<?> hedge) {
+        myHedge = hedge;
+        if (isDone()) {
+            hedge.cancel(false);
+        }
+    }
+
+    /**
+     * Marks the user's callback as notified, if it has not already been.
+     *
+     * @return True if this call marked the callback as notified.
+     */
+    private boolean finish() {
+        if (myDone.compareAndSet(false, true)) {
+            final Future<?> hedge = myHedge;
+            if (hedge != null) {
+                hedge.cancel(false);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Leg provides the callback for a single send of the request.
+     *
+     * @api.no This class is <b>NOT</b> part of the drivers API. This class may
+     *         be mutated in incompatible ways between any two releases of the
+     *         driver.
+     * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+     */
+    /* package */final class Leg
+            implements ReplyCallback, AddressAware {
+
+        /** The address of the server the request was sent to. */
+        private volatile String myAddress;
+
+        /** Set to true once the leg has received a reply or error. */
+        private final AtomicBoolean myFinished;
+
+        /** The server the request was sent to. */
+        private volatile Server myServer;
+
+        /**
+         * Creates a new Leg.
+         */
+        /* package */Leg() {
+            myAddress = null;
+            myFinished = new AtomicBoolean(false);
+            myServer = null;
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to pass the first reply to the user's callback and kill
+         * the cursor for any later reply.
+         * </p>
+         */
+        @Override
+        public void callback(final Reply result) {
+            if (myFinished.compareAndSet(false, true)) {
+                myOutstanding.decrementAndGet();
+
+                if (finish()) {
+                    if (myDelegate instanceof AddressAware) {
+                        ((AddressAware) myDelegate).setAddress(getAddress());
+                    }
+                    myDelegate.callback(result);
+                }
+                else if (result.getCursorId() != 0) {
+                    killCursor(result.getCursorId());
+                }
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to pass the error to the user's callback once all of the
+         * legs have failed.
+         * </p>
+         */
+        @Override
+        public void exception(final Throwable thrown) {
+            if (myFinished.compareAndSet(false, true)
+                    && (myOutstanding.decrementAndGet() == 0) && finish()) {
+                myDelegate.exception(thrown);
+            }
+        }
+
+        /**
+         * Returns the address of the server the request was sent to.
+         *
+         * @return The address of the server the request was sent to. May be
+         *         <code>null</code> if not known.
+         */
+        public String getAddress() {
+            final String address = myAddress;
+            if (address != null) {
+                return address;
+            }
+
+            final Server server = myServer;
+            if (server != null) {
+                return server.getCanonicalName();
+            }
+            return null;
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to return the user's callback's setting.
+         * </p>
+         */
+        @Override
+        public boolean isLightWeight() {
+            return myDelegate.isLightWeight();
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to remember the address of the server.
+         * </p>
+         */
+        @Override
+        public void setAddress(final String address) {
+            myAddress = address;
+        }
+
+        /**
+         * Sets the server the request was sent to.
+         *
+         * @param server
+         *            The server the request was sent to.
+         */
+        public void setServer(final Server server) {
+            myServer = server;
+        }
+
+        /**
+         * Kills the cursor opened by the losing reply.
+         *
+         * @param cursorId
+         *            The id of the cursor to kill.
+         */
+        private void killCursor(final long cursorId) {
+            final String address = getAddress();
+            if (address == null) {
+                LOG.debug("Cannot kill the hedged cursor {}: unknown server.",
+                        Long.valueOf(cursorId));
+                return;
+            }
+
+            try {
+                myConnection.send(new KillCursors(new long[] { cursorId },
+                        ReadPreference.server(address)), null);
+            }
+            catch (final MongoDbException error) {
+                LOG.debug(error, "Failed to kill the hedged cursor {}.",
+                        Long.valueOf(cursorId));
+            }
+        }
+    }
+}
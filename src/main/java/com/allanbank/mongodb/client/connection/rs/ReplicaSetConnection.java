@@ -21,17 +21,27 @@
 package com.allanbank.mongodb.client.connection.rs;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import com.allanbank.mongodb.MongoClientConfiguration;
 import com.allanbank.mongodb.MongoDbException;
+import com.allanbank.mongodb.ReadPreference;
 import com.allanbank.mongodb.client.Message;
+import com.allanbank.mongodb.client.callback.ReplyCallback;
 import com.allanbank.mongodb.client.connection.Connection;
 import com.allanbank.mongodb.client.connection.proxy.AbstractProxyMultipleConnection;
 import com.allanbank.mongodb.client.connection.proxy.ConnectionInfo;
 import com.allanbank.mongodb.client.connection.proxy.ProxiedConnectionFactory;
+import com.allanbank.mongodb.client.connection.proxy.ServerConnectionPool;
+import com.allanbank.mongodb.client.message.Command;
+import com.allanbank.mongodb.client.message.Query;
 import com.allanbank.mongodb.client.state.Cluster;
 import com.allanbank.mongodb.client.state.Server;
+import com.allanbank.mongodb.error.ConnectionLostException;
 import com.allanbank.mongodb.util.log.Log;
 import com.allanbank.mongodb.util.log.LogFactory;
 
@@ -50,6 +60,12 @@ public class ReplicaSetConnection
     private static final Log LOG = LogFactory
             .getLog(ReplicaSetConnection.class);
 
+    /**
+     * The timer for sending hedged reads. If <code>null</code> reads are not
+     * hedged.
+     */
+    private final ScheduledExecutorService myHedgeTimer;
+
     /** The strategy for reconnecting/finding the primary. */
     private volatile ReplicaSetReconnectStrategy myReconnectStrategy;
 
@@ -74,9 +90,39 @@ public class ReplicaSetConnection
             final ProxiedConnectionFactory factory,
             final MongoClientConfiguration config,
             final ReplicaSetReconnectStrategy strategy) {
+        this(proxiedConnection, server, cluster, factory, config, strategy,
+                null);
+    }
+
+    /**
+     * Creates a new {@link ReplicaSetConnection}.
+     *
+     * @param proxiedConnection
+     *            The connection being proxied.
+     * @param server
+     *            The primary server this connection is connected to.
+     * @param cluster
+     *            The state of the cluster for finding secondary connections.
+     * @param factory
+     *            The connection factory for opening secondary connections.
+     * @param config
+     *            The MongoDB client configuration.
+     * @param strategy
+     *            The strategy for reconnecting/finding the primary.
+     * @param hedgeTimer
+     *            The timer for sending hedged reads. If <code>null</code>
+     *            reads are not hedged.
+     */
+    public ReplicaSetConnection(final Connection proxiedConnection,
+            final Server server, final Cluster cluster,
+            final ProxiedConnectionFactory factory,
+            final MongoClientConfiguration config,
+            final ReplicaSetReconnectStrategy strategy,
+            final ScheduledExecutorService hedgeTimer) {
         super(proxiedConnection, server, cluster, factory, config);
 
         myReconnectStrategy = strategy;
+        myHedgeTimer = hedgeTimer;
     }
 
     /**
@@ -97,7 +143,41 @@ public class ReplicaSetConnection
     /**
      * {@inheritDoc}
      * <p>
-     * Overridden to create a connection to the server.
+     * Overridden to hedge reads that may be sent to a secondary. If the reply
+     * has not been received within the
+     * {@link MongoClientConfiguration#getHedgedReadDelay() hedged read delay}
+     * then the request is also sent to a second eligible server and the first
+     * reply received is used.
+     * </p>
+     */
+    @Override
+    public void send(final Message message1, final Message message2,
+            final ReplyCallback replyCallback) throws MongoDbException {
+        if ((myHedgeTimer != null) && (myConfig.getHedgedReadDelay() != 0)
+                && (message2 == null) && (replyCallback != null)
+                && isHedgeable(message1)) {
+
+            if (!isAvailable()) {
+                throw new ConnectionLostException("Connection shutting down.");
+            }
+
+            final List<Server> servers = findPotentialKeys(message1, null);
+            if (1 < servers.size()) {
+                sendHedged(servers, message1, replyCallback);
+                return;
+            }
+        }
+
+        super.send(message1, message2, replyCallback);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to create a connection to the server. If more than one
+     * {@link MongoClientConfiguration#getMaxConnectionsPerServer() connection
+     * per server} is allowed then the factory provides a lease on the
+     * server's shared {@link ServerConnectionPool}.
      * </p>
      */
     @Override
@@ -105,7 +185,6 @@ public class ReplicaSetConnection
         Connection conn = null;
         try {
             conn = myFactory.connect(server, myConfig);
-
             conn = cacheConnection(server, conn);
         }
         catch (final IOException e) {
@@ -115,6 +194,37 @@ public class ReplicaSetConnection
         return conn;
     }
 
+    /**
+     * Determines if the message can be hedged. Only queries and {@code count}
+     * commands that may be read from a secondary are hedged.
+     *
+     * @param message
+     *            The message to check.
+     * @return True if the message can be sent to more than one server.
+     */
+    protected boolean isHedgeable(final Message message) {
+        final ReadPreference readPreference = message.getReadPreference();
+        if (readPreference == null) {
+            return false;
+        }
+
+        switch (readPreference.getMode()) {
+        case NEAREST:
+        case SECONDARY_ONLY:
+        case SECONDARY_PREFERRED:
+            break;
+        default:
+            return false;
+        }
+
+        if (message instanceof Query) {
+            final Query query = (Query) message;
+            return !query.isExhaust() && !query.isTailable();
+        }
+        return (message instanceof Command)
+                && "count".equals(message.getOperationName());
+    }
+
     /**
      * Locates the set of servers that can be used to send the specified
      * messages. This method will attempt to connect to the primary server if
@@ -177,4 +287,95 @@ public class ReplicaSetConnection
         return myReconnectStrategy.reconnectPrimary();
     }
 
+    /**
+     * Sends the message to the first server and schedules sending the message
+     * to a second server if a reply has not been received within the
+     * {@link MongoClientConfiguration#getHedgedReadDelay() hedged read delay}.
+     *
+     * @param servers
+     *            The servers the message can be sent to.
+     * @param message
+     *            The message to send.
+     * @param replyCallback
+     *            The callback for the reply.
+     * @throws MongoDbException
+     *             If the message cannot be sent to any of the servers.
+     */
+    protected void sendHedged(final List<Server> servers,
+            final Message message, final ReplyCallback replyCallback)
+            throws MongoDbException {
+        final HedgedReplyCallback hedged = new HedgedReplyCallback(
+                replyCallback, this);
+
+        final HedgedReplyCallback.Leg first = hedged.newLeg();
+        final Server firstServer = trySendTo(servers, message, null, first);
+        if (firstServer == null) {
+            throw new MongoDbException(
+                    "Could not send the messages to any of the potential servers.");
+        }
+        first.setServer(firstServer);
+
+        long delay = myConfig.getHedgedReadDelay();
+        if (delay < 0) {
+            final double recent = firstServer.getRecentLatency();
+            if (recent == Double.MAX_VALUE) {
+                // No basis for the delay.
+                return;
+            }
+            delay = Math.max(1, Math.round(recent));
+        }
+
+        final List<Server> others = new ArrayList<Server>(servers);
+        others.remove(firstServer);
+        if (others.isEmpty()) {
+            return;
+        }
+
+        try {
+            hedged.setHedge(myHedgeTimer.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    sendHedge(others, message, hedged);
+                }
+            }, delay, TimeUnit.MILLISECONDS));
+        }
+        catch (final RejectedExecutionException shutdown) {
+            LOG.debug("Hedged read timer is shutdown. Not hedging the read.");
+        }
+    }
+
+    /**
+     * Sends the message to a second server, if a reply has not already been
+     * received.
+     *
+     * @param servers
+     *            The remaining servers the message can be sent to.
+     * @param message
+     *            The message to send.
+     * @param hedged
+     *            The callback for the replies.
+     */
+    /* package */void sendHedge(final List<Server> servers,
+            final Message message, final HedgedReplyCallback hedged) {
+        if (hedged.isDone() || !isAvailable()) {
+            return;
+        }
+
+        final HedgedReplyCallback.Leg leg = hedged.newLeg();
+        try {
+            final Server server = trySendTo(servers, message, null, leg);
+            if (server == null) {
+                leg.exception(new MongoDbException(
+                        "Could not send the hedged read to any of the potential servers."));
+            }
+            else {
+                leg.setServer(server);
+            }
+        }
+        catch (final MongoDbException error) {
+            LOG.debug(error, "Failed to send the hedged read: {}",
+                    error.getMessage());
+            leg.exception(error);
+        }
+    }
 }
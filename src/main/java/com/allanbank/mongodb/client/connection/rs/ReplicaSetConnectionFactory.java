@@ -25,6 +25,9 @@ import java.net.InetSocketAddress;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
 import java.util.logging.Level;
 
 import com.allanbank.mongodb.MongoClientConfiguration;
@@ -37,13 +40,13 @@ import com.allanbank.mongodb.client.callback.FutureReplyCallback;
 import com.allanbank.mongodb.client.connection.Connection;
 import com.allanbank.mongodb.client.connection.ConnectionFactory;
 import com.allanbank.mongodb.client.connection.ReconnectStrategy;
+import com.allanbank.mongodb.client.connection.proxy.PooledConnectionFactory;
 import com.allanbank.mongodb.client.connection.proxy.ProxiedConnectionFactory;
 import com.allanbank.mongodb.client.message.IsMaster;
 import com.allanbank.mongodb.client.message.Reply;
 import com.allanbank.mongodb.client.metrics.MongoClientMetrics;
 import com.allanbank.mongodb.client.state.Cluster;
 import com.allanbank.mongodb.client.state.ClusterPinger;
-import com.allanbank.mongodb.client.state.LatencyServerSelector;
 import com.allanbank.mongodb.client.state.Server;
 import com.allanbank.mongodb.client.state.ServerUpdateCallback;
 import com.allanbank.mongodb.util.IOUtils;
@@ -73,9 +76,21 @@ public class ReplicaSetConnectionFactory
     /** The MongoDB client configuration. */
     private final MongoClientConfiguration myConfig;
 
+    /**
+     * The timer for sending hedged reads. Only created if hedged reads are
+     * enabled.
+     */
+    private final ScheduledExecutorService myHedgeTimer;
+
     /** Pings the servers in the cluster collecting latency and tags. */
     private final ClusterPinger myPinger;
 
+    /**
+     * The factory for the replica set connections' connections. Shares one
+     * pool of connections per server across the replica set connections.
+     */
+    private final PooledConnectionFactory myPooledFactory;
+
     /** The strategy for reconnecting/finding the primary. */
     private final ReplicaSetReconnectStrategy myStrategy;
 
@@ -93,12 +108,30 @@ public class ReplicaSetConnectionFactory
         myConfig = config;
         myCluster = new Cluster(config, ClusterType.REPLICA_SET);
         myPinger = new ClusterPinger(myCluster, factory, config);
+        myPooledFactory = new PooledConnectionFactory(factory, config);
 
         myStrategy = new ReplicaSetReconnectStrategy();
         myStrategy.setConfig(myConfig);
         myStrategy.setConnectionFactory(myConnectionFactory);
         myStrategy.setState(myCluster);
-        myStrategy.setSelector(new LatencyServerSelector(myCluster, false));
+        myStrategy.setSelector(myCluster.createSelector(false));
+
+        if (config.getHedgedReadDelay() != 0) {
+            myHedgeTimer = Executors
+                    .newSingleThreadScheduledExecutor(new ThreadFactory() {
+                        @Override
+                        public Thread newThread(final Runnable runnable) {
+                            final Thread thread = myConfig.getThreadFactory()
+                                    .newThread(runnable);
+                            thread.setDaemon(true);
+                            thread.setName("MongoDB Hedged Reads");
+                            return thread;
+                        }
+                    });
+        }
+        else {
+            myHedgeTimer = null;
+        }
 
         // Bootstrap the state off of one of the servers.
         bootstrap();
@@ -120,13 +153,17 @@ public class ReplicaSetConnectionFactory
     /**
      * {@inheritDoc}
      * <p>
-     * Overridden to close the cluster state and the
-     * {@link ProxiedConnectionFactory}.
+     * Overridden to close the cluster state, the hedged read timer, the
+     * connection pools and the {@link ProxiedConnectionFactory}.
      * </p>
      */
     @Override
     public void close() {
+        if (myHedgeTimer != null) {
+            myHedgeTimer.shutdownNow();
+        }
         IOUtils.close(myPinger);
+        IOUtils.close(myPooledFactory);
         IOUtils.close(myConnectionFactory);
     }
 
@@ -144,14 +181,14 @@ public class ReplicaSetConnectionFactory
             servers: for (final Server primary : writableServers) {
                 Connection primaryConn = null;
                 try {
-                    primaryConn = myConnectionFactory
-                            .connect(primary, myConfig);
+                    primaryConn = myPooledFactory.connect(primary, myConfig);
 
                     if (isWritable(primary, primaryConn)) {
 
                         final ReplicaSetConnection rsConnection = new ReplicaSetConnection(
                                 primaryConn, primary, myCluster,
-                                myConnectionFactory, myConfig, myStrategy);
+                                myPooledFactory, myConfig, myStrategy,
+                                myHedgeTimer);
 
                         primaryConn = null;
 
@@ -177,7 +214,7 @@ public class ReplicaSetConnectionFactory
         // Might be doing a secondary query which means we don't need the
         // primary.
         return new ReplicaSetConnection(null, null, myCluster,
-                myConnectionFactory, myConfig, myStrategy);
+                myPooledFactory, myConfig, myStrategy, myHedgeTimer);
     }
 
     /**
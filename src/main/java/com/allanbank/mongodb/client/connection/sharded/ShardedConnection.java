@@ -32,6 +32,7 @@ import com.allanbank.mongodb.client.connection.Connection;
 import com.allanbank.mongodb.client.connection.proxy.AbstractProxyMultipleConnection;
 import com.allanbank.mongodb.client.connection.proxy.ConnectionInfo;
 import com.allanbank.mongodb.client.connection.proxy.ProxiedConnectionFactory;
+import com.allanbank.mongodb.client.connection.proxy.ServerConnectionPool;
 import com.allanbank.mongodb.client.state.Cluster;
 import com.allanbank.mongodb.client.state.Server;
 import com.allanbank.mongodb.client.state.ServerSelector;
@@ -99,7 +100,10 @@ public class ShardedConnection
     /**
      * {@inheritDoc}
      * <p>
-     * Overridden to create a connection to the server.
+     * Overridden to create a connection to the server. If more than one
+     * {@link MongoClientConfiguration#getMaxConnectionsPerServer() connection
+     * per server} is allowed then the factory provides a lease on the
+     * server's shared {@link ServerConnectionPool}.
      * </p>
      */
     @Override
@@ -107,7 +111,6 @@ public class ShardedConnection
         Connection conn = null;
         try {
             conn = myFactory.connect(server, myConfig);
-
             conn = cacheConnection(server, conn);
         }
         catch (final IOException e) {
@@ -39,6 +39,7 @@ import com.allanbank.mongodb.client.callback.FutureReplyCallback;
 import com.allanbank.mongodb.client.connection.Connection;
 import com.allanbank.mongodb.client.connection.ConnectionFactory;
 import com.allanbank.mongodb.client.connection.ReconnectStrategy;
+import com.allanbank.mongodb.client.connection.proxy.PooledConnectionFactory;
 import com.allanbank.mongodb.client.connection.proxy.ProxiedConnectionFactory;
 import com.allanbank.mongodb.client.message.GetMore;
 import com.allanbank.mongodb.client.message.Query;
@@ -46,7 +47,6 @@ import com.allanbank.mongodb.client.message.Reply;
 import com.allanbank.mongodb.client.metrics.MongoClientMetrics;
 import com.allanbank.mongodb.client.state.Cluster;
 import com.allanbank.mongodb.client.state.ClusterPinger;
-import com.allanbank.mongodb.client.state.LatencyServerSelector;
 import com.allanbank.mongodb.client.state.Server;
 import com.allanbank.mongodb.client.state.ServerSelector;
 import com.allanbank.mongodb.util.IOUtils;
@@ -80,6 +80,12 @@ public class ShardedConnectionFactory
     /** Pings the servers in the cluster collecting latency and tags. */
     protected final ClusterPinger myPinger;
 
+    /**
+     * The factory for the sharded connections' connections. Shares one pool
+     * of connections per server across the sharded connections.
+     */
+    protected final PooledConnectionFactory myPooledFactory;
+
     /** The selector for the mongos instance to use. */
     protected final ServerSelector mySelector;
 
@@ -98,6 +104,7 @@ public class ShardedConnectionFactory
         myCluster = createCluster(config);
         mySelector = createSelector();
         myPinger = createClusterPinger(factory, config);
+        myPooledFactory = new PooledConnectionFactory(factory, config);
 
         // Add all of the servers to the cluster.
         for (final InetSocketAddress address : config.getServerAddresses()) {
@@ -158,13 +165,14 @@ public class ShardedConnectionFactory
     /**
      * {@inheritDoc}
      * <p>
-     * Overridden to close the cluster state and the
+     * Overridden to close the cluster state, the connection pools and the
      * {@link ProxiedConnectionFactory}.
      * </p>
      */
     @Override
     public void close() {
         IOUtils.close(myPinger);
+        IOUtils.close(myPooledFactory);
         IOUtils.close(myConnectionFactory);
     }
 
@@ -178,7 +186,7 @@ public class ShardedConnectionFactory
         IOException lastError = null;
         for (final Server server : mySelector.pickServers()) {
             try {
-                final Connection primaryConn = myConnectionFactory.connect(
+                final Connection primaryConn = myPooledFactory.connect(
                         server, myConfig);
 
                 return wrap(primaryConn, server);
@@ -303,14 +311,16 @@ public class ShardedConnectionFactory
      * Creates a {@link ServerSelector} object to select the (presumed) optimal
      * server to handle a request.
      * <p>
-     * For a sharded cluster this defaults to the {@link LatencyServerSelector}.
+     * For a sharded cluster this defaults to the
+     * {@link Cluster#createSelector(boolean) cluster's selector} for the
+     * writable servers.
      * </p>
      *
      * @return The {@link ServerSelector} object to select the (presumed)
      *         optimal server to handle a request.
      */
     protected ServerSelector createSelector() {
-        return new LatencyServerSelector(myCluster, true);
+        return myCluster.createSelector(true);
     }
 
     /**
@@ -429,7 +439,7 @@ public class ShardedConnectionFactory
      */
     protected Connection wrap(final Connection primaryConn, final Server server) {
         return new ShardedConnection(primaryConn, server, myCluster,
-                mySelector, myConnectionFactory, myConfig);
+                mySelector, myPooledFactory, myConfig);
     }
 
     /**
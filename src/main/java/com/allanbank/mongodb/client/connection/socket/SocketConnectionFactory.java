@@ -30,6 +30,7 @@ import java.util.concurrent.ExecutionException;
 
 import com.allanbank.mongodb.MongoClientConfiguration;
 import com.allanbank.mongodb.Version;
+import com.allanbank.mongodb.bson.io.StringCachePolicy;
 import com.allanbank.mongodb.bson.io.StringDecoderCache;
 import com.allanbank.mongodb.bson.io.StringEncoderCache;
 import com.allanbank.mongodb.client.ClusterStats;
@@ -42,7 +43,6 @@ import com.allanbank.mongodb.client.message.IsMaster;
 import com.allanbank.mongodb.client.metrics.MongoClientMetrics;
 import com.allanbank.mongodb.client.metrics.noop.NoOpMongoClientMetrics;
 import com.allanbank.mongodb.client.state.Cluster;
-import com.allanbank.mongodb.client.state.LatencyServerSelector;
 import com.allanbank.mongodb.client.state.Server;
 import com.allanbank.mongodb.client.state.ServerSelector;
 import com.allanbank.mongodb.client.state.ServerUpdateCallback;
@@ -99,7 +99,7 @@ public class SocketConnectionFactory
         setMetrics(null); // Enforces a non-null value.
 
         myCluster = new Cluster(config, ClusterType.STAND_ALONE);
-        myServerSelector = new LatencyServerSelector(myCluster, true);
+        myServerSelector = myCluster.createSelector(true);
 
         myConfigListener = new ConfigurationListener();
         myConfig.addPropertyChangeListener(myConfigListener);
@@ -107,10 +107,12 @@ public class SocketConnectionFactory
         myDecoderCache = new StringDecoderCache();
         myDecoderCache.setMaxCacheEntries(config.getMaxCachedStringEntries());
         myDecoderCache.setMaxCacheLength(config.getMaxCachedStringLength());
+        myDecoderCache.setPolicy(config.getStringCachePolicy());
 
         myEncoderCache = new StringEncoderCache();
         myEncoderCache.setMaxCacheEntries(config.getMaxCachedStringEntries());
         myEncoderCache.setMaxCacheLength(config.getMaxCachedStringLength());
+        myEncoderCache.setPolicy(config.getStringCachePolicy());
     }
 
     /**
@@ -318,6 +320,11 @@ public class SocketConnectionFactory
             myDecoderCache.setMaxCacheLength(((Number) value).intValue());
             myEncoderCache.setMaxCacheLength(((Number) value).intValue());
         }
+        else if ("stringCachePolicy".equals(name)
+                && (value instanceof StringCachePolicy)) {
+            myDecoderCache.setPolicy((StringCachePolicy) value);
+            myEncoderCache.setPolicy((StringCachePolicy) value);
+        }
     }
 
     /**
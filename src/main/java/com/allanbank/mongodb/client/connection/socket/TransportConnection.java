@@ -24,13 +24,17 @@ import java.beans.PropertyChangeSupport;
 import java.io.Flushable;
 import java.io.IOException;
 import java.io.StreamCorruptedException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import com.allanbank.mongodb.MongoClientConfiguration;
 import com.allanbank.mongodb.MongoDbException;
 import com.allanbank.mongodb.Version;
+import com.allanbank.mongodb.bson.codec.Decoder;
 import com.allanbank.mongodb.client.Message;
 import com.allanbank.mongodb.client.VersionRange;
 import com.allanbank.mongodb.client.callback.AddressAware;
@@ -43,6 +47,7 @@ import com.allanbank.mongodb.client.message.BuildInfo;
 import com.allanbank.mongodb.client.message.IsMaster;
 import com.allanbank.mongodb.client.message.PendingMessage;
 import com.allanbank.mongodb.client.message.PendingMessageQueue;
+import com.allanbank.mongodb.client.message.Query;
 import com.allanbank.mongodb.client.message.Reply;
 import com.allanbank.mongodb.client.metrics.ConnectionMetricsCollector;
 import com.allanbank.mongodb.client.state.Server;
@@ -51,6 +56,7 @@ import com.allanbank.mongodb.client.transport.Transport;
 import com.allanbank.mongodb.client.transport.TransportInputBuffer;
 import com.allanbank.mongodb.client.transport.TransportOutputBuffer;
 import com.allanbank.mongodb.client.transport.TransportResponseListener;
+import com.allanbank.mongodb.client.wait.WaitStrategyFactory;
 import com.allanbank.mongodb.error.ConnectionLostException;
 import com.allanbank.mongodb.error.DocumentToLargeException;
 import com.allanbank.mongodb.error.ServerVersionException;
@@ -96,6 +102,18 @@ public class TransportConnection
     /** Set to true when the connection should be gracefully closed. */
     protected final AtomicBoolean myShutdown;
 
+    /**
+     * The {@link PendingMessage} for the exhaust cursor streaming replies, if
+     * any. The entry receives every reply until the cursor is exhausted.
+     */
+    private final AtomicReference<PendingMessage> myExhaustPendingMessage = new AtomicReference<PendingMessage>();
+
+    /**
+     * The decoders for the replies to the pending queries that decode their
+     * documents directly into objects, keyed by the query's message id.
+     */
+    private final ConcurrentMap<Integer, Decoder<?>> myReplyDecoders = new ConcurrentHashMap<Integer, Decoder<?>>();
+
     /** The {@link PendingMessage} used for the local cached copy on receive. */
     private final PendingMessage myReplyPendingMessage = new PendingMessage();
 
@@ -129,9 +147,18 @@ public class TransportConnection
         myOpen = new AtomicBoolean(false);
         myShutdown = new AtomicBoolean(false);
 
-        myPendingQueue = new PendingMessageQueue(
-                config.getMaxPendingOperationsPerConnection(),
-                config.getLockType());
+        final WaitStrategyFactory waitStrategies = config
+                .getWaitStrategyFactory();
+        if (waitStrategies != null) {
+            myPendingQueue = new PendingMessageQueue(
+                    config.getMaxPendingOperationsPerConnection(),
+                    waitStrategies.create());
+        }
+        else {
+            myPendingQueue = new PendingMessageQueue(
+                    config.getMaxPendingOperationsPerConnection(),
+                    config.getLockType());
+        }
 
         mySendSequence = new Sequence(1, myConfig.getLockType());
     }
@@ -190,12 +217,39 @@ public class TransportConnection
     /**
      * {@inheritDoc}
      * <p>
-     * True if the send and pending queues are empty.
+     * Returns the number of messages in the send and pending queues. While an
+     * exhaust cursor is streaming the server will not process any other
+     * request on the connection until the stream completes so the connection
+     * reports at least the
+     * {@link MongoClientConfiguration#getMaxPendingOperationsPerConnection()
+     * maximum pending operations}, i.e., as busy as a full connection.
      * </p>
      */
     @Override
     public int getPendingCount() {
-        return myPendingQueue.size() + mySendSequence.getWaitersCount();
+        final int pending = myPendingQueue.size()
+                + mySendSequence.getWaitersCount();
+
+        if (myExhaustPendingMessage.get() != null) {
+            return Math.max(pending + 1,
+                    myConfig.getMaxPendingOperationsPerConnection());
+        }
+        return pending;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to return the decoder for the query the reply is for, if the
+     * query asked for its documents to be decoded directly into objects.
+     * </p>
+     */
+    @Override
+    public Decoder<?> getReplyDecoder(final int responseToId) {
+        if (myReplyDecoders.isEmpty()) {
+            return null;
+        }
+        return myReplyDecoders.remove(Integer.valueOf(responseToId));
     }
 
     /**
@@ -232,12 +286,14 @@ public class TransportConnection
     /**
      * {@inheritDoc}
      * <p>
-     * True if the send and pending queues are empty.
+     * True if the send and pending queues are empty and there is no
+     * streaming exhaust cursor.
      * </p>
      */
     @Override
     public boolean isIdle() {
-        return myPendingQueue.isEmpty() && mySendSequence.isIdle();
+        return myPendingQueue.isEmpty() && mySendSequence.isIdle()
+                && (myExhaustPendingMessage.get() == null);
     }
 
     /**
@@ -267,11 +323,20 @@ public class TransportConnection
      */
     @Override
     public void raiseErrors(final MongoDbException exception) {
+        final PendingMessage exhaust = myExhaustPendingMessage.getAndSet(null);
+        if (exhaust != null) {
+            myServer.requestAbandoned();
+            raiseError(exception, exhaust.getReplyCallback());
+        }
+
         final PendingMessage message = new PendingMessage();
 
         while (myPendingQueue.poll(message)) {
+            myServer.requestAbandoned();
             raiseError(exception, message.getReplyCallback());
         }
+
+        myReplyDecoders.clear();
     }
 
     /**
@@ -358,14 +423,26 @@ public class TransportConnection
                 out.write((int) ((seq + 1) & 0xFFFFFF), toSend2, replyCallback);
             }
 
+            // Register the decoder before the reply can be received.
+            if ((replyCallback != null) && (toSend1 instanceof Query)) {
+                final Decoder<?> decoder = ((Query) toSend1).getDecoder();
+                if (decoder != null) {
+                    myReplyDecoders.put(
+                            Integer.valueOf((int) (seq & 0xFFFFFF)), decoder);
+                }
+            }
+
             // Now stand in line.
             mySendSequence.waitFor(seq);
 
             // Send, quickly now.
-            if ((replyCallback != null) && !myPendingQueue.offer(pending)) {
-                // Flush before blocking.
-                flush();
-                myPendingQueue.put(pending);
+            if (replyCallback != null) {
+                if (!myPendingQueue.offer(pending)) {
+                    // Flush before blocking.
+                    flush();
+                    myPendingQueue.put(pending);
+                }
+                myServer.requestSent();
             }
             myTransport.send(out);
 
@@ -438,6 +515,18 @@ public class TransportConnection
         send(message, null, replyCallback);
     }
 
+    /**
+     * Notification that the transport has acquired a buffer to send messages.
+     *
+     * @param pooled
+     *            True if the buffer was reused from the transport's pool of
+     *            send buffers.
+     */
+    @Override
+    public void sendBufferAcquired(final boolean pooled) {
+        myListener.sendBufferAcquired(pooled);
+    }
+
     /**
      * Sets the underlying transport.
      *
@@ -559,6 +648,18 @@ public class TransportConnection
      *            The received reply.
      */
     protected void handleReply(final Reply reply) {
+        // While an exhaust cursor is streaming the server will not process any
+        // other request on the connection so the reply must be for the cursor.
+        final PendingMessage exhaust = myExhaustPendingMessage.get();
+        if (exhaust != null) {
+            if (!isExhaustContinued(reply)
+                    && myExhaustPendingMessage.compareAndSet(exhaust, null)) {
+                myServer.requestStreamCompleted();
+            }
+            exhaustReply(reply, exhaust);
+            return;
+        }
+
         final int replyId = reply.getResponseToId();
         boolean took = false;
 
@@ -572,6 +673,8 @@ public class TransportConnection
                         "No reply received.");
 
                 // Note that this message will not get a reply.
+                myServer.requestAbandoned();
+                getReplyDecoder(myReplyPendingMessage.getMessageId());
                 raiseError(noReply, myReplyPendingMessage.getReplyCallback());
 
                 // Keep looking.
@@ -580,7 +683,18 @@ public class TransportConnection
 
             if (took) {
                 // Must be the pending message's reply.
-                reply(reply, myReplyPendingMessage);
+                if (isExhaust(myReplyPendingMessage)
+                        && isExhaustContinued(reply)) {
+                    // Keep the entry for the rest of the streamed replies.
+                    final PendingMessage streaming = new PendingMessage();
+                    streaming.set(myReplyPendingMessage);
+                    myExhaustPendingMessage.set(streaming);
+
+                    exhaustReply(reply, streaming);
+                }
+                else {
+                    reply(reply, myReplyPendingMessage);
+                }
             }
             else {
                 myLog.warn("Could not find the callback for reply '{}'.",
@@ -617,6 +731,7 @@ public class TransportConnection
 
         final long latency = pendingMessage.latency();
 
+        myServer.requestCompleted(latency);
         myListener.receive(getServer().getCanonicalName(),
                 reply.getResponseToId(), pendingMessage.getMessage(), reply,
                 latency);
@@ -653,6 +768,57 @@ public class TransportConnection
         }
     }
 
+    /**
+     * Updates the callback for an exhaust cursor with the streamed reply. The
+     * reply is handled on the receive thread to keep the batches in order.
+     *
+     * @param reply
+     *            The reply.
+     * @param pendingMessage
+     *            The pending message for the exhaust cursor.
+     */
+    private void exhaustReply(final Reply reply,
+            final PendingMessage pendingMessage) {
+
+        final long latency = pendingMessage.latency();
+
+        myListener.receive(getServer().getCanonicalName(),
+                reply.getResponseToId(), pendingMessage.getMessage(), reply,
+                latency);
+
+        // The latency of the next batch starts now.
+        pendingMessage.timestampNow();
+
+        ReplyHandler.reply(this, reply, pendingMessage.getReplyCallback(),
+                null);
+    }
+
+    /**
+     * Returns true if the pending message is for an exhaust {@link Query}.
+     *
+     * @param pendingMessage
+     *            The pending message to check.
+     * @return True if the pending message is for an exhaust {@link Query}.
+     */
+    private boolean isExhaust(final PendingMessage pendingMessage) {
+        final Message message = pendingMessage.getMessage();
+
+        return (message instanceof Query) && ((Query) message).isExhaust();
+    }
+
+    /**
+     * Returns true if the server will stream more replies for an exhaust
+     * cursor after the reply.
+     *
+     * @param reply
+     *            The reply to check.
+     * @return True if the server will stream more replies after the reply.
+     */
+    private boolean isExhaustContinued(final Reply reply) {
+        return (reply.getCursorId() != 0) && !reply.isQueryFailed()
+                && !reply.isCursorNotFound();
+    }
+
     /**
      * Validates that the server we are about to send the message to knows how
      * to handle the message.
@@ -22,6 +22,7 @@ package com.allanbank.mongodb.client.message;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -29,6 +30,8 @@ import java.util.concurrent.locks.ReentrantLock;
 import com.allanbank.mongodb.LockType;
 import com.allanbank.mongodb.client.Message;
 import com.allanbank.mongodb.client.callback.ReplyCallback;
+import com.allanbank.mongodb.client.wait.WaitCondition;
+import com.allanbank.mongodb.client.wait.WaitStrategy;
 
 /**
  * PendingMessageQueue provides an optimized queue for pending messages inspired
@@ -80,6 +83,13 @@ import com.allanbank.mongodb.client.callback.ReplyCallback;
  * </blockquote>
  * </p>
  * <p>
+ * When created with a {@link WaitStrategy} the queue uses a multi-producer,
+ * single-consumer layout. Each slot has its own published flag so producers
+ * never wait on each other to make their messages visible and the
+ * {@link Lock} is never used. Waiting for a message or for space is delegated
+ * to the strategy.
+ * </p>
+ * <p>
  * <b>Warning: </b> This class has been carefully tuned for the driver's use
  * case. Changes should be carefully bench marked and tested. Comments have been
  * embedded in the source indicating attempted changes and reverts. Due to its
@@ -127,6 +137,12 @@ public final class PendingMessageQueue {
     /** The mask being used. */
     private final int myMask;
 
+    /**
+     * The published flag for each slot in the queue. Only used in the
+     * multi-producer, single-consumer layout.
+     */
+    private final AtomicIntegerArray myPublished;
+
     /** The queue of pending messages. */
     private final PendingMessage[] myQueue;
 
@@ -164,6 +180,12 @@ public final class PendingMessageQueue {
     /** Tracks how many threads are waiting for a message or a space to open. */
     private final AtomicInteger myWaiting;
 
+    /**
+     * The strategy for waiting for a message or a space to open. Only used in
+     * the multi-producer, single-consumer layout.
+     */
+    private final WaitStrategy myWaitStrategy;
+
     /**
      * Creates a new PendingMessageQueue.
      *
@@ -173,6 +195,35 @@ public final class PendingMessageQueue {
      *            The lock type to use with the queue.
      */
     public PendingMessageQueue(final int size, final LockType lockType) {
+        this(size, lockType, null);
+    }
+
+    /**
+     * Creates a new multi-producer, single-consumer PendingMessageQueue.
+     *
+     * @param size
+     *            The size of the queue to create.
+     * @param waitStrategy
+     *            The strategy for waiting for a message or a space to open.
+     */
+    public PendingMessageQueue(final int size, final WaitStrategy waitStrategy) {
+        this(size, LockType.MUTEX, waitStrategy);
+    }
+
+    /**
+     * Creates a new PendingMessageQueue.
+     *
+     * @param size
+     *            The size of the queue to create.
+     * @param lockType
+     *            The lock type to use with the queue.
+     * @param waitStrategy
+     *            The strategy for waiting for a message or a space to open. If
+     *            non-null then the multi-producer, single-consumer layout is
+     *            used.
+     */
+    private PendingMessageQueue(final int size, final LockType lockType,
+            final WaitStrategy waitStrategy) {
         int power = size;
         if (MAX_SIZE < size) {
             power = MAX_SIZE;
@@ -193,11 +244,20 @@ public final class PendingMessageQueue {
         myMask = (power - 1);
 
         myLooped = new AtomicInteger(0);
-        myTakePosition = -1;
         myReadyBeforePosition = new AtomicInteger(0);
         myReservePosition = new AtomicInteger(0);
         myWaiting = new AtomicInteger(0);
 
+        myWaitStrategy = waitStrategy;
+        if (waitStrategy != null) {
+            myPublished = new AtomicIntegerArray(power);
+            myTakePosition = 0;
+        }
+        else {
+            myPublished = null;
+            myTakePosition = -1;
+        }
+
         myLock = new ReentrantLock();
         myCondition = myLock.newCondition();
     }
@@ -232,6 +292,10 @@ public final class PendingMessageQueue {
      * @return If the queue is empty.
      */
     public boolean isEmpty() {
+        if (myWaitStrategy != null) {
+            return myPublished.get(myTakePosition) == 0;
+        }
+
         final int take = myTakePosition;
         final int readyBefore = myReadyBeforePosition.get();
 
@@ -261,7 +325,7 @@ public final class PendingMessageQueue {
 
         myQueue[reserve].set(messageid, message, replyCallback);
 
-        markReady(reserve);
+        publish(reserve);
 
         return true;
     }
@@ -282,7 +346,7 @@ public final class PendingMessageQueue {
 
         myQueue[reserve].set(pendingMessage);
 
-        markReady(reserve);
+        publish(reserve);
 
         return true;
     }
@@ -306,6 +370,10 @@ public final class PendingMessageQueue {
      * @return True if the pending message was updated.
      */
     public boolean poll(final PendingMessage copyOut) {
+        if (myWaitStrategy != null) {
+            return pollPublished(copyOut);
+        }
+
         boolean result = false;
         final int take = myTakePosition;
         if ((myReadyBeforePosition.get() != take) && (take >= 0)) { // Empty,
@@ -340,7 +408,13 @@ public final class PendingMessageQueue {
 
         int loop = myLooped.get();
         int reserve = offer();
-        if (reserve < 0) {
+        if ((reserve < 0) && (myWaitStrategy != null)) {
+            final Reservation reservation = new Reservation(false);
+            myWaitStrategy.waitFor(reservation);
+            loop = reservation.myLoop;
+            reserve = reservation.myReserve;
+        }
+        else if (reserve < 0) {
 
             // Spinning here appears to slow things down.
 
@@ -367,7 +441,7 @@ public final class PendingMessageQueue {
 
         myQueue[reserve].set(messageid, message, replyCallback);
 
-        markReady(reserve);
+        publish(reserve);
     }
 
     /**
@@ -393,7 +467,13 @@ public final class PendingMessageQueue {
             throws InterruptedException {
         int loop = myLooped.get();
         int reserve = offer2();
-        if (reserve < 0) {
+        if ((reserve < 0) && (myWaitStrategy != null)) {
+            final Reservation reservation = new Reservation(true);
+            myWaitStrategy.waitFor(reservation);
+            loop = reservation.myLoop;
+            reserve = reservation.myReserve;
+        }
+        else if (reserve < 0) {
 
             // Spinning here appears to slow things down.
             try {
@@ -425,7 +505,14 @@ public final class PendingMessageQueue {
         myQueue[reserve].set(messageId1, message, replyCallback);
         myQueue[second].set(messageId2, message2, replyCallback2);
 
-        markReady2(reserve);
+        if (myWaitStrategy != null) {
+            // Second first so the consumer sees both at once.
+            myPublished.set(second, 1);
+            publish(reserve);
+        }
+        else {
+            markReady2(reserve);
+        }
     }
 
     /**
@@ -442,7 +529,12 @@ public final class PendingMessageQueue {
     public void put(final PendingMessage pendingMessage)
             throws InterruptedException {
         int reserve = offer();
-        if (reserve < 0) {
+        if ((reserve < 0) && (myWaitStrategy != null)) {
+            final Reservation reservation = new Reservation(false);
+            myWaitStrategy.waitFor(reservation);
+            reserve = reservation.myReserve;
+        }
+        else if (reserve < 0) {
 
             // Spinning here appears to slow things down.
 
@@ -464,7 +556,7 @@ public final class PendingMessageQueue {
 
         myQueue[reserve].set(pendingMessage);
 
-        markReady(reserve);
+        publish(reserve);
     }
 
     /**
@@ -473,6 +565,11 @@ public final class PendingMessageQueue {
      * @return The number of messages in the queue.
      */
     public int size() {
+        if (myWaitStrategy != null) {
+            // Includes the messages reserved but not yet published.
+            return (myReservePosition.get() - myTakePosition) & myMask;
+        }
+
         final int take = myTakePosition;
         final int ready = myReadyBeforePosition.get();
 
@@ -496,7 +593,17 @@ public final class PendingMessageQueue {
      *             If the thread is interrupted while waiting for the message.
      */
     public void take(final PendingMessage copyOut) throws InterruptedException {
-        if (!poll(copyOut)) {
+        if (myWaitStrategy != null) {
+            if (!pollPublished(copyOut)) {
+                myWaitStrategy.waitFor(new WaitCondition() {
+                    @Override
+                    public boolean isSatisfied() {
+                        return pollPublished(copyOut);
+                    }
+                });
+            }
+        }
+        else if (!poll(copyOut)) {
 
             // Spin/yeild loop.
             if (myLockType == LockType.LOW_LATENCY_SPIN) {
@@ -682,6 +789,47 @@ public final class PendingMessageQueue {
         return result;
     }
 
+    /**
+     * Takes the next message from the queue if it has been published. Only
+     * used in the multi-producer, single-consumer layout.
+     *
+     * @param copyOut
+     *            The {@link PendingMessage} to copy the pending message into.
+     * @return True if the pending message was updated.
+     */
+    private boolean pollPublished(final PendingMessage copyOut) {
+        final int take = myTakePosition;
+        if (myPublished.get(take) != 0) {
+            copyOut.set(myQueue[take]);
+            myQueue[take].clear();
+            myPublished.lazySet(take, 0);
+
+            // Volatile write releases the slot to the producers.
+            myTakePosition = increment(take);
+            myWaitStrategy.signalAll();
+
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Makes the message at the position visible to the consumer.
+     *
+     * @param index
+     *            The index of the ready message.
+     */
+    private void publish(final int index) {
+        if (myWaitStrategy != null) {
+            // Volatile write so a waiting consumer cannot miss the message.
+            myPublished.set(index, 1);
+            myWaitStrategy.signalAll();
+        }
+        else {
+            markReady(index);
+        }
+    }
+
     /**
      * Computes a new message id based on the current loop and reserve spot in
      * the queue.
@@ -701,4 +849,49 @@ public final class PendingMessageQueue {
         // Add an extra 1 so the first value is 1 instead of zero.
         return (int) ((loopOffset + reserve) & MAX_MESSAGE_ID_MASK) + 1;
     }
+
+    /**
+     * Reservation provides the condition for a producer waiting for space in
+     * the multi-producer, single-consumer layout. The reserved position is
+     * held once the condition is satisfied.
+     *
+     * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+     */
+    private final class Reservation
+            implements WaitCondition {
+
+        /** The loop count when the position was reserved. */
+        /* package */int myLoop;
+
+        /** The reserved position. */
+        /* package */int myReserve;
+
+        /** If true then two positions are reserved. */
+        private final boolean myTwo;
+
+        /**
+         * Creates a new Reservation.
+         *
+         * @param two
+         *            If true then two positions are reserved.
+         */
+        public Reservation(final boolean two) {
+            myTwo = two;
+            myReserve = -1;
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to try and reserve the position(s).
+         * </p>
+         */
+        @Override
+        public boolean isSatisfied() {
+            myLoop = myLooped.get();
+            myReserve = myTwo ? offer2() : offer();
+
+            return (0 <= myReserve);
+        }
+    }
 }
@@ -24,6 +24,7 @@ import java.io.StringWriter;
 
 import com.allanbank.mongodb.ReadPreference;
 import com.allanbank.mongodb.bson.Document;
+import com.allanbank.mongodb.bson.codec.Decoder;
 import com.allanbank.mongodb.bson.element.JsonSerializationVisitor;
 import com.allanbank.mongodb.bson.io.BsonInputStream;
 import com.allanbank.mongodb.bson.io.BsonOutputStream;
@@ -96,6 +97,12 @@ public class Query
     /** The number of documents to be returned in each batch. */
     private final int myBatchSize;
 
+    /**
+     * The decoder for the reply's documents. If not <code>null</code> the
+     * documents are decoded directly into objects as the reply is read.
+     */
+    private final Decoder<?> myDecoder;
+
     /** If true, all results should be returned in multiple results. */
     private final boolean myExhaust;
 
@@ -173,6 +180,7 @@ public class Query
         myLimit = 0;
         myBatchSize = 0;
         myMessageSize = -1;
+        myDecoder = null;
     }
 
     /**
@@ -217,6 +225,59 @@ public class Query
             final boolean tailable, final ReadPreference readPreference,
             final boolean noCursorTimeout, final boolean awaitData,
             final boolean exhaust, final boolean partial) {
+        this(databaseName, collectionName, query, returnFields, batchSize,
+                limit, numberToSkip, tailable, readPreference, noCursorTimeout,
+                awaitData, exhaust, partial, null);
+    }
+
+    /**
+     * Creates a new Query.
+     *
+     * @param databaseName
+     *            The name of the database.
+     * @param collectionName
+     *            The name of the collection.
+     * @param query
+     *            The query document containing the expression to select
+     *            documents from the collection.
+     * @param returnFields
+     *            Optional document containing the fields to be returned.
+     * @param batchSize
+     *            The number of documents to be returned in each batch.
+     * @param limit
+     *            The limit on the number of documents to return.
+     * @param numberToSkip
+     *            The number of documents to skip before starting to return
+     *            documents.
+     * @param tailable
+     *            If true, then the cursor created should follow additional
+     *            documents being inserted.
+     * @param readPreference
+     *            The preference for which servers to use to retrieve the
+     *            results.
+     * @param noCursorTimeout
+     *            If true, marks the cursor as not having a timeout.
+     * @param awaitData
+     *            If true and if using a tailable cursor then the connection
+     *            will block waiting for more data.
+     * @param exhaust
+     *            If true, all results should be returned in multiple results.
+     * @param partial
+     *            If true, return the results found and suppress shard down
+     *            errors.
+     * @param decoder
+     *            The decoder for the reply's documents. If not
+     *            <code>null</code> the documents are decoded directly into
+     *            objects as the reply is read. The decoder is not part of the
+     *            message sent to the server.
+     */
+    public Query(final String databaseName, final String collectionName,
+            final Document query, final Document returnFields,
+            final int batchSize, final int limit, final int numberToSkip,
+            final boolean tailable, final ReadPreference readPreference,
+            final boolean noCursorTimeout, final boolean awaitData,
+            final boolean exhaust, final boolean partial,
+            final Decoder<?> decoder) {
         super(databaseName, collectionName, readPreference, QueryVersionVisitor
                 .version(query));
 
@@ -231,6 +292,7 @@ public class Query
         myExhaust = exhaust;
         myPartial = partial;
         myMessageSize = -1;
+        myDecoder = decoder;
 
         if (isBatchSizeSet()) {
             if (isLimitSet() && (myLimit <= myBatchSize)) {
@@ -293,6 +355,16 @@ public class Query
         return myBatchSize;
     }
 
+    /**
+     * Returns the decoder for the reply's documents.
+     *
+     * @return The decoder for the reply's documents. May be <code>null</code>
+     *         if the documents are read as {@link Document}s.
+     */
+    public Decoder<?> getDecoder() {
+        return myDecoder;
+    }
+
     /**
      * Returns the total number of documents to be returned.
      *
@@ -22,10 +22,12 @@ package com.allanbank.mongodb.client.message;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import com.allanbank.mongodb.ReadPreference;
 import com.allanbank.mongodb.bson.Document;
+import com.allanbank.mongodb.bson.codec.Decoder;
 import com.allanbank.mongodb.bson.element.JsonSerializationVisitor;
 import com.allanbank.mongodb.bson.io.BsonInputStream;
 import com.allanbank.mongodb.bson.io.BsonOutputStream;
@@ -86,6 +88,12 @@ public class Reply
     /** The offset (index) of the first document returned from the cursor. */
     private final int myCursorOffset;
 
+    /** The returned documents decoded directly into objects. */
+    private final List<Object> myDecodedResults;
+
+    /** The encoded size of the documents decoded directly into objects. */
+    private final int myDecodedSize;
+
     /** Indicates that the query failed. */
     private final boolean myQueryFailed;
 
@@ -110,6 +118,30 @@ public class Reply
      */
     public Reply(final Header header, final BsonInputStream in)
             throws IOException {
+        this(header, in, null);
+    }
+
+    /**
+     * Creates a new Reply. If the <tt>decoder</tt> is not <code>null</code>
+     * and the query did not fail then the returned documents are decoded
+     * directly from the stream into objects. No {@link Document} is created
+     * for them. If the decoder fails then that document, and any after it,
+     * are read as {@link Document}s instead so the failure can be reported
+     * to the caller without losing the connection.
+     *
+     * @param header
+     *            The header from the reply message.
+     * @param in
+     *            Stream to read the reply message from.
+     * @param decoder
+     *            The decoder for the returned documents. May be
+     *            <code>null</code>.
+     * @throws IOException
+     *             On a failure to read the reply.
+     * @see #getDecodedResults()
+     */
+    public Reply(final Header header, final BsonInputStream in,
+            final Decoder<?> decoder) throws IOException {
         init(".");
 
         myResponseToId = header.getResponseId();
@@ -119,8 +151,31 @@ public class Reply
         myCursorOffset = in.readInt();
 
         final int docCount = in.readInt();
-        myResults = new ArrayList<Document>(docCount);
-        for (int i = 0; i < docCount; ++i) {
+        int index = 0;
+        if ((decoder != null) && ((flags & QUERY_FAILURE_BIT) == 0)) {
+            final long start = in.getBytesRead();
+
+            myDecodedResults = new ArrayList<Object>(docCount);
+            try {
+                for (; index < docCount; ++index) {
+                    myDecodedResults.add(in.readDocument(decoder));
+                }
+            }
+            catch (final IOException error) {
+                // Read the rest as documents.
+            }
+            catch (final RuntimeException error) {
+                // Read the rest as documents.
+            }
+            myDecodedSize = (int) (in.getBytesRead() - start);
+        }
+        else {
+            myDecodedResults = Collections.emptyList();
+            myDecodedSize = 0;
+        }
+
+        myResults = new ArrayList<Document>(docCount - index);
+        for (; index < docCount; ++index) {
             myResults.add(in.readDocument());
         }
 
@@ -166,6 +221,8 @@ public class Reply
         myCursorId = cursorId;
         myCursorOffset = cursorOffset;
         myResults = new ArrayList<Document>(results);
+        myDecodedResults = Collections.emptyList();
+        myDecodedSize = 0;
         myAwaitCapable = awaitCapable;
         myCursorNotFound = cursorNotFound;
         myQueryFailed = queryFailed;
@@ -198,7 +255,8 @@ public class Reply
                     && (myResponseToId == other.myResponseToId)
                     && (myCursorOffset == other.myCursorOffset)
                     && (myCursorId == other.myCursorId)
-                    && myResults.equals(other.myResults);
+                    && myResults.equals(other.myResults)
+                    && myDecodedResults.equals(other.myDecodedResults);
         }
         return result;
     }
@@ -236,6 +294,16 @@ public class Reply
         return Operation.REPLY.name();
     }
 
+    /**
+     * Returns the query results that were decoded directly into objects as
+     * the reply was read. Empty unless a decoder was provided for the reply.
+     *
+     * @return The query results decoded into objects.
+     */
+    public List<Object> getDecodedResults() {
+        return myDecodedResults;
+    }
+
     /**
      * Returns the id of the request this response is for.
      *
@@ -272,6 +340,7 @@ public class Reply
         result = (31 * result) + (int) (myCursorId >> Integer.SIZE);
         result = (31 * result) + (int) myCursorId;
         result = (31 * result) + myResults.hashCode();
+        result = (31 * result) + myDecodedResults.hashCode();
         return result;
     }
 
@@ -322,7 +391,7 @@ public class Reply
     @Override
     public int size() {
 
-        int size = HEADER_SIZE + 20;
+        int size = HEADER_SIZE + 20 + myDecodedSize;
         // size += 4; // flags;
         // size += 8; // cursorId
         // size += 4; // cursorOffset
@@ -383,6 +452,10 @@ public class Reply
             }
             doc.accept(visitor);
         }
+        if (!myDecodedResults.isEmpty()) {
+            builder.append(",decodedResults=");
+            builder.append(String.valueOf(myDecodedResults.size()));
+        }
         builder.append(")");
 
         return builder.toString();
@@ -94,6 +94,9 @@ public abstract class AbstractMetrics
     /** The latency for the last message received. */
     private volatile long myLastLatencyNanos;
 
+    /** The histogram of the latencies for the received messages. */
+    private final LatencyHistogram myLatencyHistogram;
+
     /** The number of received bytes. */
     private volatile long myMessageReceivedBytes;
 
@@ -123,6 +126,8 @@ public abstract class AbstractMetrics
      * Creates a new AbstractMetrics.
      */
     public AbstractMetrics() {
+        myLatencyHistogram = new LatencyHistogram();
+
         reset();
     }
 
@@ -156,6 +161,60 @@ public abstract class AbstractMetrics
         return myLastLatencyNanos;
     }
 
+    /**
+     * Returns the median latency for the received messages in milliseconds.
+     *
+     * @return The median latency for the received messages in milliseconds.
+     */
+    public double getLatencyP50Millis() {
+        return getLatencyPercentileMillis(50.0D);
+    }
+
+    /**
+     * Returns the 99th percentile latency for the received messages in
+     * milliseconds.
+     *
+     * @return The 99th percentile latency for the received messages in
+     *         milliseconds.
+     */
+    public double getLatencyP99Millis() {
+        return getLatencyPercentileMillis(99.0D);
+    }
+
+    /**
+     * Returns the 99.9th percentile latency for the received messages in
+     * milliseconds.
+     *
+     * @return The 99.9th percentile latency for the received messages in
+     *         milliseconds.
+     */
+    public double getLatencyP999Millis() {
+        return getLatencyPercentileMillis(99.9D);
+    }
+
+    /**
+     * Returns the latency, in milliseconds, at or below which the specified
+     * percentage of the received messages' latencies fall. The value is
+     * accurate to within ~3%.
+     *
+     * @param percentile
+     *            The percentile to compute, e.g., 99.9.
+     * @return The latency at the percentile in milliseconds.
+     */
+    public double getLatencyPercentileMillis(final double percentile) {
+        return myLatencyHistogram.getPercentileNanos(percentile)
+                / NANOS_PER_MILLI;
+    }
+
+    /**
+     * Returns the largest latency for the received messages in milliseconds.
+     *
+     * @return The largest latency for the received messages in milliseconds.
+     */
+    public double getMaxLatencyMillis() {
+        return myLatencyHistogram.getMaxNanos() / NANOS_PER_MILLI;
+    }
+
     /**
      * Returns the number of received bytes.
      *
@@ -223,6 +282,7 @@ public abstract class AbstractMetrics
         ourMessageReceivedBytesUpdater.addAndGet(this, reply.size());
         ourTotalLatencyNanosUpdater.addAndGet(this, latencyNanos);
         ourLastLatencyNanosUpdater.lazySet(this, latencyNanos);
+        myLatencyHistogram.record(latencyNanos);
 
         // Compute a moving average for the recent latency.
         final double latency = latencyNanos / NANOS_PER_MILLI;
@@ -253,6 +313,7 @@ public abstract class AbstractMetrics
         myMessageSentCount = 0L;
         myRecentAverageLatencyMillis = Double.doubleToRawLongBits(Double.NaN);
         myTotalLatencyNanos = 0L;
+        myLatencyHistogram.reset();
     }
 
     /**
@@ -346,6 +407,17 @@ public abstract class AbstractMetrics
             writer.append(doubleFormat.format(average));
         }
 
+        if (myLatencyHistogram.getCount() > 0) {
+            writer.append(" ms, latencyP50=");
+            writer.append(doubleFormat.format(getLatencyP50Millis()));
+            writer.append(" ms, latencyP99=");
+            writer.append(doubleFormat.format(getLatencyP99Millis()));
+            writer.append(" ms, latencyP999=");
+            writer.append(doubleFormat.format(getLatencyP999Millis()));
+            writer.append(" ms, maxLatency=");
+            writer.append(doubleFormat.format(getMaxLatencyMillis()));
+        }
+
         writer.append(" ms");
 
         if (type != null) {
@@ -39,4 +39,14 @@ public interface ConnectionMetricsCollector
      * Notification that the connection has been closed.
      */
     public void close();
+
+    /**
+     * Notification that a buffer has been acquired to send messages on the
+     * connection.
+     *
+     * @param pooled
+     *            True if the buffer was reused from the connection's pool of
+     *            send buffers, false if a new buffer had to be created.
+     */
+    public void sendBufferAcquired(boolean pooled);
 }
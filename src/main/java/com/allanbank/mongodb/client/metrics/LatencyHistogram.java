@@ -0,0 +1,207 @@
+/*
+ * #%L
+ * LatencyHistogram.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.client.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * LatencyHistogram provides a lock-free, fixed size histogram of latencies
+ * from which percentiles can be computed.
+ * <p>
+ * Latencies are recorded with microsecond resolution into log-linear buckets
+ * in the style of an HDR histogram: each power of two range is split into
+ * {@value #SUB_BUCKET_COUNT} linear sub-buckets so the reported value is
+ * within ~3% of the recorded latency. Latencies up to ~38 hours are tracked.
+ * Larger latencies are counted in the last bucket.
+ * </p>
+ * <p>
+ * Recording a latency does not allocate or lock. Computing a percentile scans
+ * all of the buckets and is intended for the metrics reporting path.
+ * </p>
+ *
+ * @api.no This class is <b>NOT</b> part of the drivers API. This class may be
+ *         mutated in incompatible ways between any two releases of the driver.
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+@ThreadSafe
+public class LatencyHistogram {
+
+    /** The number of linear sub-buckets in each power of two range. */
+    public static final int SUB_BUCKET_COUNT = 32;
+
+    /** The largest power of two tracked, in microseconds. */
+    private static final int MAX_EXPONENT = 36;
+
+    /** The largest latency tracked, in microseconds. */
+    private static final long MAX_MICROS = (1L << (MAX_EXPONENT + 1)) - 1;
+
+    /** The number of nanoseconds per microsecond. */
+    private static final long NANOS_PER_MICRO = TimeUnit.MICROSECONDS
+            .toNanos(1);
+
+    /** The number of bits for the sub-bucket. */
+    private static final int SUB_BUCKET_BITS = Integer
+            .numberOfTrailingZeros(SUB_BUCKET_COUNT);
+
+    /** The mask for the sub-bucket. */
+    private static final int SUB_BUCKET_MASK = SUB_BUCKET_COUNT - 1;
+
+    /**
+     * Returns the index of the bucket for the latency.
+     *
+     * @param micros
+     *            The latency in microseconds.
+     * @return The index of the bucket for the latency.
+     */
+    /* package */static int bucketIndex(final long micros) {
+        final long value = Math.min(Math.max(micros, 0), MAX_MICROS);
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        final int shift = exponent - SUB_BUCKET_BITS;
+
+        return ((shift + 1) << SUB_BUCKET_BITS)
+                + (int) ((value >>> shift) & SUB_BUCKET_MASK);
+    }
+
+    /**
+     * Returns the largest latency, in microseconds, that is counted in the
+     * bucket.
+     *
+     * @param index
+     *            The index of the bucket.
+     * @return The largest latency counted in the bucket.
+     */
+    /* package */static long highestEquivalentMicros(final int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+
+        final int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        final long lower = (long) (SUB_BUCKET_COUNT + (index & SUB_BUCKET_MASK)) << shift;
+
+        return lower + (1L << shift) - 1;
+    }
+
+    /** The count of latencies in each bucket. */
+    private final AtomicLongArray myCounts;
+
+    /** The largest latency recorded, in nanoseconds. */
+    private final AtomicLong myMaxNanos;
+
+    /**
+     * Creates a new LatencyHistogram.
+     */
+    public LatencyHistogram() {
+        myCounts = new AtomicLongArray(bucketIndex(MAX_MICROS) + 1);
+        myMaxNanos = new AtomicLong(0);
+    }
+
+    /**
+     * Returns the number of latencies recorded.
+     *
+     * @return The number of latencies recorded.
+     */
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < myCounts.length(); ++i) {
+            count += myCounts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the largest latency recorded in nanoseconds.
+     *
+     * @return The largest latency recorded in nanoseconds.
+     */
+    public long getMaxNanos() {
+        return myMaxNanos.get();
+    }
+
+    /**
+     * Returns the latency, in nanoseconds, at or below which the specified
+     * percentage of the recorded latencies fall. Returns zero if no latencies
+     * have been recorded.
+     *
+     * @param percentile
+     *            The percentile to compute, e.g., 99.9.
+     * @return The latency at the percentile in nanoseconds.
+     */
+    public long getPercentileNanos(final double percentile) {
+        final long count = getCount();
+        if (count == 0) {
+            return 0;
+        }
+
+        final double clamped = Math.min(Math.max(percentile, 0.0D), 100.0D);
+        final long target = Math.max(1,
+                (long) Math.ceil((clamped / 100.0D) * count));
+
+        long seen = 0;
+        for (int i = 0; i < myCounts.length(); ++i) {
+            seen += myCounts.get(i);
+            if (target <= seen) {
+                if (i == (myCounts.length() - 1)) {
+                    // Last bucket holds all of the larger latencies.
+                    return getMaxNanos();
+                }
+                return Math.min(highestEquivalentMicros(i) * NANOS_PER_MICRO,
+                        getMaxNanos());
+            }
+        }
+
+        // Latencies recorded while scanning.
+        return getMaxNanos();
+    }
+
+    /**
+     * Records a latency.
+     *
+     * @param latencyNanos
+     *            The latency in nanoseconds.
+     */
+    public void record(final long latencyNanos) {
+        myCounts.incrementAndGet(bucketIndex(latencyNanos / NANOS_PER_MICRO));
+
+        long max = myMaxNanos.get();
+        while ((max < latencyNanos)
+                && !myMaxNanos.compareAndSet(max, latencyNanos)) {
+            max = myMaxNanos.get();
+        }
+    }
+
+    /**
+     * Resets the histogram to have no recorded latencies.
+     */
+    public void reset() {
+        for (int i = 0; i < myCounts.length(); ++i) {
+            myCounts.set(i, 0);
+        }
+        myMaxNanos.set(0);
+    }
+}
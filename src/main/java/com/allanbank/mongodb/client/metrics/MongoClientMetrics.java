@@ -50,6 +50,24 @@ public interface MongoClientMetrics
      */
     public void connectionClosed(MongoMessageListener listener);
 
+    /**
+     * Returns the number of send buffers that were reused from a connection's
+     * pool of send buffers.
+     *
+     * @return The number of send buffers that were reused from a connection's
+     *         pool of send buffers.
+     */
+    public long getSendBufferPoolHitCount();
+
+    /**
+     * Returns the number of send buffers that had to be created since a
+     * connection's pool of send buffers was empty.
+     *
+     * @return The number of send buffers that had to be created since a
+     *         connection's pool of send buffers was empty.
+     */
+    public long getSendBufferPoolMissCount();
+
     /**
      * Returns a listener for the messages from a single connection to the
      * server.
@@ -69,6 +69,17 @@ public final class NoOpMongoMessageListener
         // NoOp.
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to do nothing.
+     * </p>
+     */
+    @Override
+    public void sendBufferAcquired(final boolean pooled) {
+        // NoOp.
+    }
+
     /**
      * {@inheritDoc}
      * <p>
@@ -70,6 +70,21 @@ public class BasicConnectionMetrics
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to delegate to the parent listener if it is collecting the
+     * client's metrics.
+     * </p>
+     */
+    @Override
+    public void sendBufferAcquired(final boolean pooled) {
+        if (myParentListener instanceof BasicMongoClientMetrics) {
+            ((BasicMongoClientMetrics) myParentListener)
+                    .sendBufferAcquired(pooled);
+        }
+    }
+
     /**
      * {@inheritDoc}
      * <p>
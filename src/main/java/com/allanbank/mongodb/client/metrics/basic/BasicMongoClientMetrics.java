@@ -20,6 +20,7 @@
 package com.allanbank.mongodb.client.metrics.basic;
 
 import java.io.PrintWriter;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.allanbank.mongodb.client.Message;
 import com.allanbank.mongodb.client.message.Reply;
@@ -59,6 +60,14 @@ public class BasicMongoClientMetrics
     /** The listener to accumulate metrics for each type of operation. */
     private final BasicOperationMetricsListener myOperationMetrics;
 
+    /** The number of send buffers reused from a connection's pool. */
+    private final AtomicLong mySendBufferPoolHits;
+
+    /**
+     * The number of send buffers created since a connection's pool was empty.
+     */
+    private final AtomicLong mySendBufferPoolMisses;
+
     /** The listener to accumulate metrics for each server. */
     private final BasicServerMetricsListener myServerMetrics;
 
@@ -88,6 +97,9 @@ public class BasicMongoClientMetrics
         myLogicalMetrics = logicalMetricsListener;
         myServerMetrics = serverMetricsListener;
         myOperationMetrics = operationMetricsListener;
+
+        mySendBufferPoolHits = new AtomicLong(0);
+        mySendBufferPoolMisses = new AtomicLong(0);
     }
 
     /**
@@ -115,6 +127,22 @@ public class BasicMongoClientMetrics
         // Nothing.
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getSendBufferPoolHitCount() {
+        return mySendBufferPoolHits.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getSendBufferPoolMissCount() {
+        return mySendBufferPoolMisses.get();
+    }
+
     /**
      * {@inheritDoc}
      * <p>
@@ -147,6 +175,22 @@ public class BasicMongoClientMetrics
                 latencyNanos);
     }
 
+    /**
+     * Notification that a connection has acquired a buffer to send messages.
+     *
+     * @param pooled
+     *            True if the buffer was reused from the connection's pool of
+     *            send buffers, false if a new buffer had to be created.
+     */
+    public void sendBufferAcquired(final boolean pooled) {
+        if (pooled) {
+            mySendBufferPoolHits.incrementAndGet();
+        }
+        else {
+            mySendBufferPoolMisses.incrementAndGet();
+        }
+    }
+
     /**
      * {@inheritDoc}
      * <p>
@@ -44,6 +44,38 @@ public interface MetricsMXBean {
      */
     public long getLastLatencyNanos();
 
+    /**
+     * Returns the median latency for the received messages in milliseconds.
+     *
+     * @return The median latency for the received messages in milliseconds.
+     */
+    public double getLatencyP50Millis();
+
+    /**
+     * Returns the 99th percentile latency for the received messages in
+     * milliseconds.
+     *
+     * @return The 99th percentile latency for the received messages in
+     *         milliseconds.
+     */
+    public double getLatencyP99Millis();
+
+    /**
+     * Returns the 99.9th percentile latency for the received messages in
+     * milliseconds.
+     *
+     * @return The 99.9th percentile latency for the received messages in
+     *         milliseconds.
+     */
+    public double getLatencyP999Millis();
+
+    /**
+     * Returns the largest latency for the received messages in milliseconds.
+     *
+     * @return The largest latency for the received messages in milliseconds.
+     */
+    public double getMaxLatencyMillis();
+
     /**
      * Returns the number of received bytes.
      *
@@ -67,6 +67,50 @@ public class MetricsMXBeanProxy
         return myDelegate.getLastLatencyNanos();
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to call the same method on the delegate.
+     * </p>
+     */
+    @Override
+    public double getLatencyP50Millis() {
+        return myDelegate.getLatencyP50Millis();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to call the same method on the delegate.
+     * </p>
+     */
+    @Override
+    public double getLatencyP99Millis() {
+        return myDelegate.getLatencyP99Millis();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to call the same method on the delegate.
+     * </p>
+     */
+    @Override
+    public double getLatencyP999Millis() {
+        return myDelegate.getLatencyP999Millis();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to call the same method on the delegate.
+     * </p>
+     */
+    @Override
+    public double getMaxLatencyMillis() {
+        return myDelegate.getMaxLatencyMillis();
+    }
+
     /**
      * {@inheritDoc}
      * <p>
@@ -56,6 +56,28 @@ public class NoOpMongoClientMetrics
         // NoOp.
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to return zero.
+     * </p>
+     */
+    @Override
+    public long getSendBufferPoolHitCount() {
+        return 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to return zero.
+     * </p>
+     */
+    @Override
+    public long getSendBufferPoolMissCount() {
+        return 0;
+    }
+
     /**
      * {@inheritDoc}
      * <p>
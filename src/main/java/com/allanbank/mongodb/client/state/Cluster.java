@@ -33,6 +33,7 @@ import java.util.concurrent.CopyOnWriteArrayList;
 
 import com.allanbank.mongodb.MongoClientConfiguration;
 import com.allanbank.mongodb.ReadPreference;
+import com.allanbank.mongodb.ServerSelection;
 import com.allanbank.mongodb.Version;
 import com.allanbank.mongodb.client.ClusterStats;
 import com.allanbank.mongodb.client.ClusterType;
@@ -194,6 +195,24 @@ public class Cluster
         }
     }
 
+    /**
+     * Creates a {@link ServerSelector} for the cluster based on the
+     * {@link MongoClientConfiguration#getServerSelection() configured server
+     * selection}.
+     *
+     * @param writableOnly
+     *            If true then only writable servers should be selected. If
+     *            false then any server (writable and not writable) may be
+     *            selected.
+     * @return The {@link ServerSelector} for the cluster.
+     */
+    public ServerSelector createSelector(final boolean writableOnly) {
+        if (myConfig.getServerSelection() == ServerSelection.POWER_OF_TWO_CHOICES) {
+            return new PowerOfTwoServerSelector(this, writableOnly);
+        }
+        return new LatencyServerSelector(this, writableOnly);
+    }
+
     /**
      * Returns the set of servers that can be used based on the provided
      * {@link ReadPreference}.
@@ -561,6 +580,11 @@ public class Cluster
      * replaced with a random server based on a single sided simplified Gaussian
      * distribution.
      * </p>
+     * <p>
+     * If the {@link MongoClientConfiguration#getServerSelection() server
+     * selection} is {@link ServerSelection#POWER_OF_TWO_CHOICES} then the
+     * servers are instead ordered by the {@link PowerOfTwoServerSelector}.
+     * </p>
      *
      * @param servers
      *            The servers to be sorted.
@@ -572,6 +596,11 @@ public class Cluster
             return;
         }
 
+        if (myConfig.getServerSelection() == ServerSelection.POWER_OF_TWO_CHOICES) {
+            PowerOfTwoServerSelector.order(servers);
+            return;
+        }
+
         // Pick a server to move to the front.
         final double[] cdf = cdf(servers);
         final double random = Math.random();
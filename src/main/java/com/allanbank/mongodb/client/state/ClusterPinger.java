@@ -27,6 +27,9 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
@@ -48,6 +51,16 @@ import com.allanbank.mongodb.util.log.LogFactory;
 /**
  * ClusterPinger pings each of the connections in the cluster and updates the
  * latency of the server from this client.
+ * <p>
+ * The pinger keeps a single, long lived, monitoring connection to each server.
+ * Each sweep sends the pings to all of the servers without waiting for the
+ * replies so the round trip times are measured concurrently. A server whose
+ * previous ping is still waiting on a reply is not pinged again. A monitoring
+ * connection is only re-created once it closes or a ping has been waiting on
+ * a reply for longer than the {@link MongoClientConfiguration#getReadTimeout()
+ * read timeout}, or {@value #DEFAULT_PING_TIMEOUT_SECONDS} seconds if there is
+ * no read timeout.
+ * </p>
  *
  * @api.no This class is <b>NOT</b> part of the drivers API. This class may be
  *         mutated in incompatible ways between any two releases of the driver.
@@ -59,6 +72,12 @@ public class ClusterPinger
     /** The default interval between ping sweeps in seconds. */
     public static final int DEFAULT_PING_INTERVAL_SECONDS = 600;
 
+    /**
+     * The default time to wait for the reply to a ping, in seconds, if there is
+     * no read timeout.
+     */
+    public static final int DEFAULT_PING_TIMEOUT_SECONDS = 60;
+
     /** The logger for the {@link ClusterPinger}. */
     protected static final Log LOG = LogFactory.getLog(ClusterPinger.class);
 
@@ -91,12 +110,18 @@ public class ClusterPinger
     /** The configuration for the connections. */
     private final MongoClientConfiguration myConfig;
 
+    /** The long lived monitoring connection for each server. */
+    private final ConcurrentMap<Server, Connection> myConnections;
+
     /** The factory for creating connections to the servers. */
     private final ProxiedConnectionFactory myConnectionFactory;
 
     /** The units for the ping sweep intervals. */
     private volatile TimeUnit myIntervalUnits;
 
+    /** The time each server's last ping was sent, from System.nanoTime(). */
+    private final ConcurrentMap<Server, Long> myPingSent;
+
     /** The interval for a ping sweep across all of the servers. */
     private volatile int myPingSweepInterval;
 
@@ -125,6 +150,9 @@ public class ClusterPinger
         myConfig = config;
         myRunning = true;
 
+        myConnections = new ConcurrentHashMap<Server, Connection>();
+        myPingSent = new ConcurrentHashMap<Server, Long>();
+
         myClusters = new CopyOnWriteArrayList<Cluster>();
         myClusters.add(cluster);
 
@@ -158,6 +186,8 @@ public class ClusterPinger
         myRunning = false;
         myPingThread.interrupt();
 
+        closeConnections(Collections.<Server> emptySet());
+
         // Log the final metrics.
         logMetrics();
     }
@@ -265,62 +295,43 @@ public class ClusterPinger
     /**
      * {@inheritDoc}
      * <p>
-     * Overridden to periodically wake-up and ping the servers. At first this
-     * will occur fairly often but eventually degrade to once every 5 minutes.
+     * Overridden to periodically wake-up and ping all of the servers over
+     * their monitoring connections.
      * </p>
      */
     @Override
     public void run() {
-        while (myRunning) {
-            try {
-                final Map<Server, ClusterType> servers = extractAllServers();
-
-                final long interval = getIntervalUnits().toMillis(
-                        getPingSweepInterval());
-                final long perServerSleep = servers.isEmpty() ? interval
-                        : interval / servers.size();
-
-                // Sleep a little before starting. We do it first to give
-                // tests time to finish without a sweep in the middle
-                // causing confusion and delay.
-                Thread.sleep(TimeUnit.MILLISECONDS.toMillis(perServerSleep));
-
-                startSweep();
-                logMetrics();
-
-                for (final Map.Entry<Server, ClusterType> entry : servers
-                        .entrySet()) {
-                    // Ping the current server.
-                    final Server server = entry.getKey();
-                    final String name = server.getCanonicalName();
-                    Connection conn = null;
-                    try {
-                        myPingThread.setName("MongoDB Pinger - " + name);
+        try {
+            while (myRunning) {
+                try {
+                    final long interval = getIntervalUnits().toMillis(
+                            getPingSweepInterval());
 
-                        conn = myConnectionFactory.connect(server, myConfig);
+                    // Sleep before starting. We do it first to give tests
+                    // time to finish without a sweep in the middle causing
+                    // confusion and delay.
+                    Thread.sleep(interval);
 
-                        PINGER.pingAsync(entry.getValue(), server, conn);
+                    startSweep();
+                    logMetrics();
 
-                        // Sleep a little between the servers.
-                        Thread.sleep(TimeUnit.MILLISECONDS
-                                .toMillis(perServerSleep));
-                    }
-                    catch (final IOException e) {
-                        LOG.info("Could not ping '{}': {}", name,
-                                e.getMessage());
+                    try {
+                        myPingThread.setName("MongoDB Pinger - Sweep");
+
+                        sweep(extractAllServers());
                     }
                     finally {
                         myPingThread.setName("MongoDB Pinger - Idle");
-                        if (conn != null) {
-                            conn.shutdown(true);
-                        }
                     }
-
+                }
+                catch (final InterruptedException ok) {
+                    LOG.debug("Pinger interrupted.");
                 }
             }
-            catch (final InterruptedException ok) {
-                LOG.debug("Pinger interrupted.");
-            }
+        }
+        finally {
+            // A sweep may have raced a close.
+            closeConnections(Collections.<Server> emptySet());
         }
     }
 
@@ -373,6 +384,38 @@ public class ClusterPinger
         // Nothing.
     }
 
+    /**
+     * Shuts down the monitoring connection to the server, if it is still the
+     * current monitoring connection.
+     *
+     * @param server
+     *            The server the connection is to.
+     * @param conn
+     *            The monitoring connection to shutdown.
+     */
+    private void closeConnection(final Server server, final Connection conn) {
+        if (myConnections.remove(server, conn)) {
+            myPingSent.remove(server);
+            conn.shutdown(true);
+        }
+    }
+
+    /**
+     * Shuts down the monitoring connections to the servers that are not being
+     * tracked.
+     *
+     * @param tracked
+     *            The servers that are still being tracked.
+     */
+    private void closeConnections(final Set<Server> tracked) {
+        for (final Map.Entry<Server, Connection> entry : myConnections
+                .entrySet()) {
+            if (!tracked.contains(entry.getKey())) {
+                closeConnection(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
     /**
      * Extracts the complete list of servers in all clusters.
      *
@@ -402,6 +445,96 @@ public class ClusterPinger
         }
     }
 
+    /**
+     * Returns the monitoring connection for the server. If the existing
+     * connection has closed, or its ping has been waiting on a reply for longer
+     * than the ping timeout, then it is shutdown and a new connection created.
+     *
+     * @param server
+     *            The server to return the monitoring connection for.
+     * @return The monitoring connection for the server or <code>null</code> if
+     *         the server's previous ping is still waiting on a reply.
+     * @throws IOException
+     *             On a failure connecting to the server.
+     */
+    private Connection monitorConnection(final Server server)
+            throws IOException {
+        final Connection existing = myConnections.get(server);
+        if (existing != null) {
+            if (existing.isAvailable()) {
+                if (existing.getPendingCount() == 0) {
+                    return existing;
+                }
+
+                final Long sent = myPingSent.get(server);
+                final long waiting = (sent == null) ? Long.MAX_VALUE : System
+                        .nanoTime() - sent.longValue();
+                if (waiting < pingTimeout()) {
+                    // Still waiting on the reply. Do not pile on another ping.
+                    return null;
+                }
+            }
+
+            LOG.debug("Reconnecting the monitoring connection to '{}'.",
+                    server.getCanonicalName());
+            closeConnection(server, existing);
+        }
+
+        final Connection conn = myConnectionFactory.connect(server, myConfig);
+        myConnections.put(server, conn);
+        return conn;
+    }
+
+    /**
+     * Returns how long to wait for the reply to a ping before the monitoring
+     * connection is re-created, in nanoseconds.
+     *
+     * @return The time to wait for the reply to a ping.
+     */
+    private long pingTimeout() {
+        final int readTimeout = myConfig.getReadTimeout();
+        if (0 < readTimeout) {
+            return TimeUnit.MILLISECONDS.toNanos(readTimeout);
+        }
+        return TimeUnit.SECONDS.toNanos(DEFAULT_PING_TIMEOUT_SECONDS);
+    }
+
+    /**
+     * Sends a ping to each of the servers over their monitoring connection.
+     * The replies are not waited for. The {@link ServerUpdateCallback} for
+     * each ping updates the server's latency when the reply arrives.
+     *
+     * @param servers
+     *            The servers to ping and the type of cluster they belong to.
+     */
+    private void sweep(final Map<Server, ClusterType> servers) {
+        // Stop monitoring servers that have left the clusters.
+        closeConnections(servers.keySet());
+
+        for (final Map.Entry<Server, ClusterType> entry : servers.entrySet()) {
+            final Server server = entry.getKey();
+            try {
+                final Connection conn = monitorConnection(server);
+                if (conn == null) {
+                    LOG.debug("Still waiting on the ping reply from '{}'.",
+                            server.getCanonicalName());
+                }
+                else if (PINGER.pingAsync(entry.getValue(), server,
+                        conn) == null) {
+                    // Could not send. Reconnect on the next sweep.
+                    closeConnection(server, conn);
+                }
+                else {
+                    myPingSent.put(server, Long.valueOf(System.nanoTime()));
+                }
+            }
+            catch (final IOException e) {
+                LOG.info("Could not ping '{}': {}", server.getCanonicalName(),
+                        e.getMessage());
+            }
+        }
+    }
+
     /**
      * Pinger provides logic to ping servers.
      *
@@ -0,0 +1,167 @@
+/*
+ * #%L
+ * LatencyWindow.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.allanbank.mongodb.client.state;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * LatencyWindow tracks a percentile over the most recent latencies seen for a
+ * server.
+ * <p>
+ * Unlike an exponentially decayed average a single outlier only influences
+ * the percentile until it is pushed out of the window by newer latencies.
+ * </p>
+ * <p>
+ * Reading the percentile, which is done for each server selection, only reads
+ * the cached value. The percentile is recomputed as latencies are recorded:
+ * for each latency while the window fills and then after every
+ * {@link #REFRESH_DIVISOR 1/8th} of the window has been replaced.
+ * </p>
+ *
+ * @api.no This class is <b>NOT</b> part of the drivers API. This class may be
+ *         mutated in incompatible ways between any two releases of the driver.
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+@ThreadSafe
+/* package */final class LatencyWindow {
+
+    /** The default number of latencies in the window. */
+    public static final int DEFAULT_SIZE = 64;
+
+    /** The default percentile tracked. */
+    public static final double DEFAULT_PERCENTILE = 90.0D;
+
+    /**
+     * The fraction of the window, once full, that is replaced before the
+     * percentile is recomputed.
+     */
+    public static final int REFRESH_DIVISOR = 8;
+
+    /** The number of nano-seconds per milli-second. */
+    private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS
+            .toNanos(1);
+
+    /** The number of latencies recorded, up to the size of the window. */
+    private int myCount;
+
+    /** The index for the next latency to be recorded. */
+    private int myNext;
+
+    /** The percentile to compute. */
+    private final double myPercentile;
+
+    /** The last computed percentile latency in milliseconds. */
+    private volatile double myPercentileLatency;
+
+    /** The number of latencies recorded between computing the percentile. */
+    private final int myRefreshInterval;
+
+    /** The most recent latencies in nanoseconds. */
+    private final long[] mySamples;
+
+    /** The buffer to sort the latencies in to compute the percentile. */
+    private final long[] mySorted;
+
+    /** The number of latencies recorded since the percentile was computed. */
+    private int myStale;
+
+    /**
+     * Creates a new LatencyWindow with the default size and percentile.
+     */
+    public LatencyWindow() {
+        this(DEFAULT_SIZE, DEFAULT_PERCENTILE);
+    }
+
+    /**
+     * Creates a new LatencyWindow.
+     *
+     * @param size
+     *            The number of latencies to keep in the window.
+     * @param percentile
+     *            The percentile to compute, e.g., 90.0.
+     */
+    public LatencyWindow(final int size, final double percentile) {
+        mySamples = new long[Math.max(1, size)];
+        mySorted = new long[mySamples.length];
+        myRefreshInterval = Math.max(1, mySamples.length / REFRESH_DIVISOR);
+        myPercentile = Math.min(Math.max(percentile, 0.0D), 100.0D);
+        myCount = 0;
+        myNext = 0;
+        myStale = 0;
+        myPercentileLatency = Double.MAX_VALUE;
+    }
+
+    /**
+     * Returns the number of latencies in the window.
+     *
+     * @return The number of latencies in the window.
+     */
+    public synchronized int getCount() {
+        return myCount;
+    }
+
+    /**
+     * Returns the percentile latency over the window, as of the last time it
+     * was computed, in milliseconds. If no latencies have been recorded then
+     * {@link Double#MAX_VALUE} is returned.
+     *
+     * @return The percentile latency over the window in milliseconds.
+     */
+    public double getPercentileLatency() {
+        return myPercentileLatency;
+    }
+
+    /**
+     * Records a latency, replacing the oldest latency once the window is
+     * full.
+     *
+     * @param latencyNanoSeconds
+     *            The latency to record in nanoseconds.
+     */
+    public synchronized void record(final long latencyNanoSeconds) {
+        mySamples[myNext] = Math.max(0, latencyNanoSeconds);
+        myNext = (myNext + 1) % mySamples.length;
+        myCount = Math.min(myCount + 1, mySamples.length);
+
+        myStale += 1;
+        if ((myCount < mySamples.length) || (myRefreshInterval <= myStale)) {
+            myStale = 0;
+            myPercentileLatency = computePercentile();
+        }
+    }
+
+    /**
+     * Computes the percentile latency over the window in milliseconds. Must
+     * be called while holding this object's lock.
+     *
+     * @return The percentile latency over the window in milliseconds.
+     */
+    private double computePercentile() {
+        System.arraycopy(mySamples, 0, mySorted, 0, myCount);
+        Arrays.sort(mySorted, 0, myCount);
+
+        final int index = Math.max(0,
+                (int) Math.ceil((myPercentile / 100.0D) * myCount) - 1);
+        return mySorted[index] / NANOS_PER_MILLI;
+    }
+}
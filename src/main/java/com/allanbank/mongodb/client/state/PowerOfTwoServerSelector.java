@@ -0,0 +1,199 @@
+/*
+ * #%L
+ * PowerOfTwoServerSelector.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.allanbank.mongodb.client.state;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * PowerOfTwoServerSelector provides an implementation of the server selector
+ * that uses the "power of two choices" to select a server.
+ * <p>
+ * The load of each server is estimated as its {@link Server#getRecentLatency()
+ * recent percentile latency} multiplied by one more than the number of
+ * {@link Server#getPendingRequestCount() requests outstanding} to the server.
+ * Two of the servers are chosen at random and the one with the lower load is
+ * moved to the front of the list. The remaining servers are ordered by their
+ * load. The loads are read once per selection so concurrent replies cannot
+ * change a server's load while the servers are being ordered.
+ * </p>
+ * <p>
+ * Comparing two random servers, instead of always using the least loaded,
+ * keeps every client from piling onto the same server between updates to the
+ * latency and load.
+ * </p>
+ *
+ * @api.no This class is <b>NOT</b> part of the drivers API. This class may be
+ *         mutated in incompatible ways between any two releases of the driver.
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+public class PowerOfTwoServerSelector
+        implements ServerSelector {
+
+    /** The source of randomness for choosing the servers to compare. */
+    private static final Random RANDOM = new Random();
+
+    /**
+     * Returns the estimated load for the server.
+     *
+     * @param server
+     *            The server to estimate the load for.
+     * @return The estimated load for the server.
+     */
+    public static double load(final Server server) {
+        final double latency = server.getRecentLatency();
+        if (latency == Double.MAX_VALUE) {
+            return Double.MAX_VALUE;
+        }
+        return latency * (server.getPendingRequestCount() + 1);
+    }
+
+    /**
+     * Orders the servers with the lowest load first and then moves the better
+     * of two randomly chosen servers to the front of the list.
+     *
+     * @param servers
+     *            The servers to order. The list is modified in place.
+     */
+    public static void order(final List<Server> servers) {
+        final int count = servers.size();
+        final LoadedServer[] loaded = new LoadedServer[count];
+        for (int i = 0; i < count; ++i) {
+            loaded[i] = new LoadedServer(servers.get(i));
+        }
+        Arrays.sort(loaded);
+
+        // With two servers both are chosen and the first has the lower load.
+        int winner = 0;
+        if (count > 2) {
+            final int first = RANDOM.nextInt(count);
+            int second = RANDOM.nextInt(count - 1);
+            if (first <= second) {
+                second += 1;
+            }
+
+            // The array is sorted so the lower index is the lower load.
+            winner = Math.min(first, second);
+        }
+
+        servers.set(0, loaded[winner].myServer);
+        for (int i = 0, index = 1; i < count; ++i) {
+            if (i != winner) {
+                servers.set(index, loaded[i].myServer);
+                index += 1;
+            }
+        }
+    }
+
+    /** The cluster to choose from. */
+    private final Cluster myCluster;
+
+    /** If true then only writable servers should be selected. */
+    private final boolean myWritableOnly;
+
+    /**
+     * Creates a new PowerOfTwoServerSelector.
+     *
+     * @param cluster
+     *            The cluster to choose from.
+     * @param writableOnly
+     *            If true then only writable servers should be selected. If
+     *            false then any server (writable and not writable) may be
+     *            selected.
+     */
+    public PowerOfTwoServerSelector(final Cluster cluster,
+            final boolean writableOnly) {
+        myCluster = cluster;
+        myWritableOnly = writableOnly;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to place the better of two randomly chosen servers first
+     * followed by the remaining servers with the lowest load first.
+     * </p>
+     */
+    @Override
+    public List<Server> pickServers() {
+        List<Server> servers;
+        if (myWritableOnly) {
+            servers = myCluster.getWritableServers();
+        }
+        else {
+            servers = myCluster.getServers();
+        }
+
+        // If there are no servers then there is no one to pick.
+        if (servers.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // Copy to a list we know we can modify and sort.
+        servers = new ArrayList<Server>(servers);
+        order(servers);
+
+        return servers;
+    }
+
+    /**
+     * LoadedServer holds a server and its load at the start of a selection.
+     *
+     * @api.no This class is <b>NOT</b> part of the drivers API. This class may
+     *         be mutated in incompatible ways between any two releases of the
+     *         driver.
+     * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+     */
+    private static final class LoadedServer
+            implements Comparable<LoadedServer> {
+
+        /** The load of the server when the selection started. */
+        protected final double myLoad;
+
+        /** The server. */
+        protected final Server myServer;
+
+        /**
+         * Creates a new LoadedServer.
+         *
+         * @param server
+         *            The server.
+         */
+        public LoadedServer(final Server server) {
+            myServer = server;
+            myLoad = load(server);
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Compares the servers based on their load when the selection
+         * started.
+         * </p>
+         */
+        @Override
+        public int compareTo(final LoadedServer other) {
+            return Double.compare(myLoad, other.myLoad);
+        }
+    }
+}
@@ -27,6 +27,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.allanbank.mongodb.Version;
 import com.allanbank.mongodb.bson.Document;
@@ -133,6 +134,9 @@ public class Server {
     /** The time of the last version update. */
     private long myLastVersionUpdate = 0;
 
+    /** The window of recent latencies seen for the server. */
+    private final LatencyWindow myLatencyWindow;
+
     /**
      * The maximum number of write operations allowed in a single write command.
      * Defaults to {@value #MAX_BATCHED_WRITE_OPERATIONS_DEFAULT}.
@@ -145,6 +149,9 @@ public class Server {
      */
     private volatile int myMaxBsonObjectSize = Client.MAX_DOCUMENT_SIZE;
 
+    /** The number of requests sent to the server still waiting for a reply. */
+    private final AtomicInteger myPendingRequestCount;
+
     /**
      * Tracks the last report of how many seconds the server is behind the
      * primary.
@@ -180,6 +187,8 @@ public class Server {
         myWorkingAddress = myCanonicalAddress;
 
         myEventSupport = new PropertyChangeSupport(this);
+        myLatencyWindow = new LatencyWindow();
+        myPendingRequestCount = new AtomicInteger(0);
 
         myState = State.UNKNOWN;
         myAverageLatency = Double.MAX_VALUE;
@@ -295,6 +304,35 @@ public class Server {
         return myAverageLatency;
     }
 
+    /**
+     * Returns the number of requests sent to the server that are still waiting
+     * for a reply.
+     *
+     * @return The number of requests sent to the server that are still waiting
+     *         for a reply.
+     */
+    public int getPendingRequestCount() {
+        return myPendingRequestCount.get();
+    }
+
+    /**
+     * Returns the 90th percentile latency (in milliseconds) over the most
+     * recent requests to the server. If the latency returns
+     * {@link Double#MAX_VALUE} then we have no basis for determining the
+     * latency.
+     * <p>
+     * Unlike the {@link #getAverageLatency() average latency} a single slow
+     * reply stops influencing this value once enough newer replies have been
+     * received.
+     * </p>
+     *
+     * @return The 90th percentile latency (in milliseconds) over the most
+     *         recent requests to the server.
+     */
+    public double getRecentLatency() {
+        return myLatencyWindow.getPercentileLatency();
+    }
+
     /**
      * Returns the name of the server as reported by the server itself.
      *
@@ -417,6 +455,26 @@ public class Server {
         myEventSupport.removePropertyChangeListener(listener);
     }
 
+    /**
+     * Notification that a request sent to the server will not receive a reply.
+     * This is normally due to the connection being closed.
+     */
+    public void requestAbandoned() {
+        myPendingRequestCount.decrementAndGet();
+    }
+
+    /**
+     * Notification that a reply was received for a request sent to the
+     * server.
+     *
+     * @param latencyNanoSeconds
+     *            The latency seen sending the request and receiving the reply.
+     */
+    public void requestCompleted(final long latencyNanoSeconds) {
+        myPendingRequestCount.decrementAndGet();
+        myLatencyWindow.record(latencyNanoSeconds);
+    }
+
     /**
      * Notification that a status request message on the connection failed.
      * <p>
@@ -431,6 +489,22 @@ public class Server {
         mySecondsBehind = Integer.MAX_VALUE;
     }
 
+    /**
+     * Notification that a request expecting a reply was sent to the server.
+     */
+    public void requestSent() {
+        myPendingRequestCount.incrementAndGet();
+    }
+
+    /**
+     * Notification that the last reply was received for a request with a
+     * stream of replies, e.g., an exhaust cursor. The latency is not recorded
+     * since it covers the whole stream and not a single request.
+     */
+    public void requestStreamCompleted() {
+        myPendingRequestCount.decrementAndGet();
+    }
+
     /**
      * {@inheritDoc}
      * <p>
@@ -474,13 +548,18 @@ public class Server {
 
     /**
      * Updates the average latency (in nano-seconds) for the server.
+     * <p>
+     * The latency is not included in the {@link #getRecentLatency() recent
+     * latency}. That is updated as each {@link #requestCompleted(long)
+     * request completes}, including the status requests used to update the
+     * average latency.
+     * </p>
      *
      * @param latencyNanoSeconds
      *            The latency seen sending a request and receiving a reply from
      *            the server.
      */
     public void updateAverageLatency(final long latencyNanoSeconds) {
-
         final double latency = latencyNanoSeconds / NANOS_PER_MILLI;
         final double oldAverage = myAverageLatency;
         if (Double.MAX_VALUE == oldAverage) {
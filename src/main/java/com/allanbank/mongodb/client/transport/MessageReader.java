@@ -0,0 +1,124 @@
+/*
+ * #%L
+ * MessageReader.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.client.transport;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+
+import com.allanbank.mongodb.MongoDbException;
+import com.allanbank.mongodb.bson.io.BsonInputStream;
+import com.allanbank.mongodb.client.Message;
+import com.allanbank.mongodb.client.Operation;
+import com.allanbank.mongodb.client.message.Delete;
+import com.allanbank.mongodb.client.message.GetMore;
+import com.allanbank.mongodb.client.message.Header;
+import com.allanbank.mongodb.client.message.Insert;
+import com.allanbank.mongodb.client.message.KillCursors;
+import com.allanbank.mongodb.client.message.Query;
+import com.allanbank.mongodb.client.message.Reply;
+import com.allanbank.mongodb.client.message.Update;
+
+/**
+ * MessageReader provides the common logic for transports to read a message
+ * from a {@link BsonInputStream} once the length of the message is known.
+ *
+ * @api.internal This class is part of the driver's internal API. Users of this
+ *               API should advertise the explicit version of the driver they
+ *               are compatible with. Public and protected members may be
+ *               modified between non-bugfix releases (version numbers are
+ *               &lt;major&gt;.&lt;minor&gt;.&lt;bugfix&gt;).
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+public final class MessageReader {
+
+    /**
+     * Reads the remainder of a message from the stream. The message's length
+     * has already been read from the stream.
+     *
+     * @param length
+     *            The length of the message, including the 4 bytes for the
+     *            length itself.
+     * @param in
+     *            The stream to read the message from.
+     * @param listener
+     *            The listener for the transport's responses. Provides the
+     *            decoder, if any, for the documents in a reply.
+     * @return The message read or <code>null</code> if the operation is
+     *         recognized but cannot be read.
+     * @throws MongoDbException
+     *             If the message's operation code is not recognized.
+     * @throws IOException
+     *             On a failure reading from the stream.
+     */
+    public static Message read(final int length, final BsonInputStream in,
+            final TransportResponseListener listener) throws MongoDbException,
+            IOException {
+        final int requestId = in.readInt();
+        final int responseId = in.readInt();
+        final int opCode = in.readInt();
+
+        final Operation op = Operation.fromCode(opCode);
+        if (op == null) {
+            // Huh? Dazed and confused
+            throw new MongoDbException(new StreamCorruptedException(
+                    "Unexpected operation read '" + opCode + "'."));
+        }
+
+        final Header header = new Header(length, requestId, responseId, op);
+        Message message;
+        switch (op) {
+        case REPLY:
+            message = new Reply(header, in,
+                    listener.getReplyDecoder(responseId));
+            break;
+        case QUERY:
+            message = new Query(header, in);
+            break;
+        case UPDATE:
+            message = new Update(in);
+            break;
+        case INSERT:
+            message = new Insert(header, in);
+            break;
+        case GET_MORE:
+            message = new GetMore(in);
+            break;
+        case DELETE:
+            message = new Delete(in);
+            break;
+        case KILL_CURSORS:
+            message = new KillCursors(in);
+            break;
+        default:
+            message = null;
+            break;
+        }
+
+        return message;
+    }
+
+    /**
+     * Stop creation of a new MessageReader.
+     */
+    private MessageReader() {
+        // Nothing.
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * #%L
+ * SendBufferPool.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.client.transport;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * SendBufferPool provides a bounded pool of the buffers a transport serializes
+ * messages into. A buffer is acquired for each send and released once its
+ * contents have been handed to the transport. Reusing the buffers avoids
+ * allocating new serialization buffers for every message.
+ * <p>
+ * Each acquisition is reported to the {@link TransportResponseListener} so the
+ * pool's effectiveness can be tracked via the client's metrics. The pool does
+ * not keep its own count of hits and misses; the client's metrics are the
+ * only record.
+ * </p>
+ *
+ * @param <B>
+ *            The type of buffer in the pool.
+ *
+ * @api.internal This class is part of the driver's internal API. Users of this
+ *               API should advertise the explicit version of the driver they
+ *               are compatible with. Public and protected members may be
+ *               modified between non-bugfix releases (version numbers are
+ *               &lt;major&gt;.&lt;minor&gt;.&lt;bugfix&gt;).
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+@ThreadSafe
+public abstract class SendBufferPool<B extends TransportOutputBuffer> {
+
+    /** The idle buffers. */
+    private final Queue<B> myIdle;
+
+    /** The number of idle buffers. */
+    private final AtomicInteger myIdleCount;
+
+    /** The listener to notify of each acquisition. */
+    private final TransportResponseListener myListener;
+
+    /** The maximum number of idle buffers to keep. */
+    private final int myMaxIdle;
+
+    /**
+     * Creates a new SendBufferPool.
+     *
+     * @param maxIdle
+     *            The maximum number of idle buffers to keep.
+     * @param listener
+     *            The listener to notify of each acquisition. May be
+     *            <code>null</code>.
+     */
+    public SendBufferPool(final int maxIdle,
+            final TransportResponseListener listener) {
+        myMaxIdle = maxIdle;
+        myListener = listener;
+
+        myIdle = new ConcurrentLinkedQueue<B>();
+        myIdleCount = new AtomicInteger(0);
+    }
+
+    /**
+     * Returns an idle buffer or creates a new buffer if there are no idle
+     * buffers. The caller has exclusive use of the buffer until it is
+     * {@link #release(TransportOutputBuffer) released}.
+     *
+     * @return The buffer to serialize messages into.
+     */
+    public B acquire() {
+        B buffer = myIdle.poll();
+        final boolean pooled = (buffer != null);
+        if (pooled) {
+            myIdleCount.decrementAndGet();
+        }
+        else {
+            buffer = create();
+        }
+
+        if (myListener != null) {
+            myListener.sendBufferAcquired(pooled);
+        }
+        return buffer;
+    }
+
+    /**
+     * Returns the number of idle buffers in the pool.
+     *
+     * @return The number of idle buffers in the pool.
+     */
+    public int getIdleCount() {
+        return myIdleCount.get();
+    }
+
+    /**
+     * Returns a buffer to the pool. The buffer must already have been cleared.
+     * If the pool already has the maximum number of idle buffers then the
+     * buffer is discarded.
+     *
+     * @param buffer
+     *            The buffer to return to the pool.
+     */
+    public void release(final B buffer) {
+        if (myIdleCount.incrementAndGet() <= myMaxIdle) {
+            myIdle.offer(buffer);
+        }
+        else {
+            myIdleCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * Creates a new buffer.
+     *
+     * @return The new buffer.
+     */
+    protected abstract B create();
+}
@@ -21,6 +21,7 @@
 package com.allanbank.mongodb.client.transport;
 
 import com.allanbank.mongodb.MongoDbException;
+import com.allanbank.mongodb.bson.codec.Decoder;
 
 /**
  * TransportResponseListener provides the low level interface for transports to
@@ -44,6 +45,28 @@ public interface TransportResponseListener {
      */
     public void closed(MongoDbException error);
 
+    /**
+     * Returns the decoder for the documents in the reply to a message, if the
+     * documents should be decoded directly into objects as the reply is read.
+     * The decoder is only returned once for each message.
+     *
+     * @param responseToId
+     *            The id of the message the reply is for.
+     * @return The decoder for the reply's documents or <code>null</code> if
+     *         the documents should be read as documents.
+     */
+    public Decoder<?> getReplyDecoder(int responseToId);
+
+    /**
+     * Notification that the transport has acquired a buffer to serialize
+     * messages into.
+     *
+     * @param pooled
+     *            True if the buffer was reused from the transport's pool,
+     *            false if a new buffer was created.
+     */
+    public void sendBufferAcquired(boolean pooled);
+
     /**
      * Notification that a response has been received.
      *
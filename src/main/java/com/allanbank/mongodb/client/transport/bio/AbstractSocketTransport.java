@@ -33,6 +33,7 @@ import javax.net.SocketFactory;
 
 import com.allanbank.mongodb.MongoClientConfiguration;
 import com.allanbank.mongodb.MongoDbException;
+import com.allanbank.mongodb.bson.impl.DocumentShapeCache;
 import com.allanbank.mongodb.bson.io.BsonInputStream;
 import com.allanbank.mongodb.bson.io.StringDecoderCache;
 import com.allanbank.mongodb.client.callback.ReplyCallback;
@@ -124,6 +125,10 @@ public abstract class AbstractSocketTransport<OUT extends TransportOutputBuffer>
 
         myInput = mySocket.getInputStream();
         myBsonIn = new BsonInputStream(myInput, decoderCache);
+        myBsonIn.setLazyDocuments(config.isUsingLazyDocuments());
+        if (config.isUsingDocumentShapes()) {
+            myBsonIn.setDocumentShapes(new DocumentShapeCache());
+        }
 
         // Careful with the size of the buffer here. Seems Java likes to call
         // madvise(..., MADV_DONTNEED) for buffers over a certain size.
@@ -23,7 +23,6 @@ package com.allanbank.mongodb.client.transport.bio;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InterruptedIOException;
-import java.io.StreamCorruptedException;
 import java.net.SocketAddress;
 import java.net.SocketTimeoutException;
 import java.util.logging.Level;
@@ -32,16 +31,8 @@ import com.allanbank.mongodb.MongoClientConfiguration;
 import com.allanbank.mongodb.MongoDbException;
 import com.allanbank.mongodb.bson.io.BsonInputStream;
 import com.allanbank.mongodb.client.Message;
-import com.allanbank.mongodb.client.Operation;
 import com.allanbank.mongodb.client.callback.Receiver;
-import com.allanbank.mongodb.client.message.Delete;
-import com.allanbank.mongodb.client.message.GetMore;
-import com.allanbank.mongodb.client.message.Header;
-import com.allanbank.mongodb.client.message.Insert;
-import com.allanbank.mongodb.client.message.KillCursors;
-import com.allanbank.mongodb.client.message.Query;
-import com.allanbank.mongodb.client.message.Reply;
-import com.allanbank.mongodb.client.message.Update;
+import com.allanbank.mongodb.client.transport.MessageReader;
 import com.allanbank.mongodb.client.transport.TransportResponseListener;
 import com.allanbank.mongodb.error.ConnectionLostException;
 import com.allanbank.mongodb.util.IOUtils;
@@ -175,47 +166,7 @@ public class ReceiveRunnable
 
             myBsonIn.prefetch(length - 4);
 
-            final int requestId = myBsonIn.readInt();
-            final int responseId = myBsonIn.readInt();
-            final int opCode = myBsonIn.readInt();
-
-            final Operation op = Operation.fromCode(opCode);
-            if (op == null) {
-                // Huh? Dazed and confused
-                throw new MongoDbException(new StreamCorruptedException(
-                        "Unexpected operation read '" + opCode + "'."));
-            }
-
-            final Header header = new Header(length, requestId, responseId, op);
-            Message message;
-            switch (op) {
-            case REPLY:
-                message = new Reply(header, myBsonIn);
-                break;
-            case QUERY:
-                message = new Query(header, myBsonIn);
-                break;
-            case UPDATE:
-                message = new Update(myBsonIn);
-                break;
-            case INSERT:
-                message = new Insert(header, myBsonIn);
-                break;
-            case GET_MORE:
-                message = new GetMore(myBsonIn);
-                break;
-            case DELETE:
-                message = new Delete(myBsonIn);
-                break;
-            case KILL_CURSORS:
-                message = new KillCursors(myBsonIn);
-                break;
-            default:
-                message = null;
-                break;
-            }
-
-            return message;
+            return MessageReader.read(length, myBsonIn, myResponseListener);
         }
 
         catch (final IOException ioe) {
@@ -21,8 +21,6 @@
 package com.allanbank.mongodb.client.transport.bio.one;
 
 import java.io.IOException;
-import java.lang.ref.Reference;
-import java.lang.ref.SoftReference;
 
 import com.allanbank.mongodb.MongoClientConfiguration;
 import com.allanbank.mongodb.MongoDbException;
@@ -32,6 +30,7 @@ import com.allanbank.mongodb.client.callback.NoOpCallback;
 import com.allanbank.mongodb.client.callback.Receiver;
 import com.allanbank.mongodb.client.message.IsMaster;
 import com.allanbank.mongodb.client.state.Server;
+import com.allanbank.mongodb.client.transport.SendBufferPool;
 import com.allanbank.mongodb.client.transport.TransportResponseListener;
 import com.allanbank.mongodb.client.transport.bio.AbstractSocketTransport;
 import com.allanbank.mongodb.client.transport.bio.ReceiveRunnable;
@@ -47,11 +46,8 @@ import com.allanbank.mongodb.client.transport.bio.ReceiveRunnable;
         extends AbstractSocketTransport<OneThreadOutputBuffer>
         implements Receiver {
 
-    /**
-     * The buffers used each connection. Each buffer is shared by all
-     * connections but there can be up to 1 buffer per application thread.
-     */
-    private final ThreadLocal<Reference<OneThreadOutputBuffer>> myBuffers;
+    /** The pool of buffers to serialize messages into. */
+    private final SendBufferPool<OneThreadOutputBuffer> myBuffers;
 
     /** The cache for strings we write. */
     private final StringEncoderCache myEncoderCache;
@@ -75,8 +71,6 @@ import com.allanbank.mongodb.client.transport.bio.ReceiveRunnable;
      *            The cache for the decoding of strings.
      * @param responseListener
      *            The listener for responses from the server.
-     * @param buffers
-     *            The per-thread transport buffers.
      * @throws IOException
      *             On a failure to create the connection to the server.
      */
@@ -84,13 +78,18 @@ import com.allanbank.mongodb.client.transport.bio.ReceiveRunnable;
             final MongoClientConfiguration config,
             final StringEncoderCache encoderCache,
             final StringDecoderCache decoderCache,
-            final TransportResponseListener responseListener,
-            final ThreadLocal<Reference<OneThreadOutputBuffer>> buffers)
+            final TransportResponseListener responseListener)
                     throws IOException {
         super(server, config, decoderCache, responseListener);
 
-        myBuffers = buffers;
         myEncoderCache = encoderCache;
+        myBuffers = new SendBufferPool<OneThreadOutputBuffer>(
+                config.getSendBufferPoolSize(), responseListener) {
+            @Override
+            protected OneThreadOutputBuffer create() {
+                return new OneThreadOutputBuffer(encoderCache);
+            }
+        };
 
         myReceiveRunnable = new ReceiveRunnable(config, this);
         myReceiver = config.getThreadFactory().newThread(myReceiveRunnable);
@@ -129,20 +128,12 @@ import com.allanbank.mongodb.client.transport.bio.ReceiveRunnable;
     /**
      * {@inheritDoc}
      * <p>
-     * Overridden to return a new {@link OneThreadOutputBuffer}.
+     * Overridden to return a pooled {@link OneThreadOutputBuffer}.
      * </p>
      */
     @Override
     public OneThreadOutputBuffer createSendBuffer(final int size) {
-        final Reference<OneThreadOutputBuffer> bufferRef = myBuffers.get();
-        OneThreadOutputBuffer buffer = (bufferRef != null) ? bufferRef.get()
-                : null;
-        if (buffer == null) {
-            buffer = new OneThreadOutputBuffer(myEncoderCache);
-
-            myBuffers.set(new SoftReference<OneThreadOutputBuffer>(buffer));
-        }
-        return buffer;
+        return myBuffers.acquire();
     }
 
     /**
@@ -170,6 +161,7 @@ import com.allanbank.mongodb.client.transport.bio.ReceiveRunnable;
         }
         finally {
             buffer.clear();
+            myBuffers.release(buffer);
         }
     }
 
@@ -21,7 +21,6 @@
 package com.allanbank.mongodb.client.transport.bio.one;
 
 import java.io.IOException;
-import java.lang.ref.Reference;
 
 import com.allanbank.mongodb.MongoClientConfiguration;
 import com.allanbank.mongodb.bson.io.StringDecoderCache;
@@ -43,18 +42,10 @@ public class OneThreadTransportFactory
         implements TransportFactory {
 
     /**
-     * The buffers used each connection. Each buffer is shared by all
-     * connections but there can be up to 1 buffer per application thread.
-     */
-    private final ThreadLocal<Reference<OneThreadOutputBuffer>> myBuffers;
-
-    /**
-     * Creates a new TwoThreadTransportFactory.
+     * Creates a new OneThreadTransportFactory.
      */
     public OneThreadTransportFactory() {
         super();
-
-        myBuffers = new ThreadLocal<Reference<OneThreadOutputBuffer>>();
     }
 
     /**
@@ -72,7 +63,7 @@ public class OneThreadTransportFactory
                     throws IOException {
         // Open the socket, setup the receive thread, setup the read thread.
         return new OneThreadTransport(server, config, encoderCache,
-                decoderCache, responseListener, myBuffers);
+                decoderCache, responseListener);
     }
 
 }
@@ -22,8 +22,6 @@ package com.allanbank.mongodb.client.transport.bio.two;
 
 import java.io.IOException;
 import java.io.InterruptedIOException;
-import java.lang.ref.Reference;
-import java.lang.ref.SoftReference;
 
 import com.allanbank.mongodb.MongoClientConfiguration;
 import com.allanbank.mongodb.MongoDbException;
@@ -36,10 +34,12 @@ import com.allanbank.mongodb.client.message.IsMaster;
 import com.allanbank.mongodb.client.message.PendingMessage;
 import com.allanbank.mongodb.client.message.PendingMessageQueue;
 import com.allanbank.mongodb.client.state.Server;
+import com.allanbank.mongodb.client.transport.SendBufferPool;
 import com.allanbank.mongodb.client.transport.Transport;
 import com.allanbank.mongodb.client.transport.TransportResponseListener;
 import com.allanbank.mongodb.client.transport.bio.AbstractSocketTransport;
 import com.allanbank.mongodb.client.transport.bio.ReceiveRunnable;
+import com.allanbank.mongodb.client.wait.WaitStrategyFactory;
 
 /**
  * TwoThreadTransport provides a handle for a socket connection that uses a pair
@@ -56,11 +56,8 @@ import com.allanbank.mongodb.client.transport.bio.ReceiveRunnable;
     /** The writer for BSON documents. */
     private final BufferingBsonOutputStream myBsonOut;
 
-    /**
-     * The buffers used each connection. Each buffer is shared by all
-     * connections but there can be up to 1 buffer per application thread.
-     */
-    private final ThreadLocal<Reference<TwoThreadOutputBuffer>> myBuffers;
+    /** The pool of buffers to collect messages into. */
+    private final SendBufferPool<TwoThreadOutputBuffer> myBuffers;
 
     /** The thread receiving replies. */
     private final Thread myReceiver;
@@ -90,8 +87,6 @@ import com.allanbank.mongodb.client.transport.bio.ReceiveRunnable;
      *            The cache for the decoding of strings.
      * @param responseListener
      *            The listener for responses from the server.
-     * @param buffers
-     *            The per-thread transport buffers.
      * @throws IOException
      *             On a failure to create the connection to the server.
      */
@@ -99,18 +94,32 @@ import com.allanbank.mongodb.client.transport.bio.ReceiveRunnable;
             final MongoClientConfiguration config,
             final StringEncoderCache encoderCache,
             final StringDecoderCache decoderCache,
-            final TransportResponseListener responseListener,
-            final ThreadLocal<Reference<TwoThreadOutputBuffer>> buffers)
+            final TransportResponseListener responseListener)
                     throws IOException {
         super(server, config, decoderCache, responseListener);
 
-        myBuffers = buffers;
+        myBuffers = new SendBufferPool<TwoThreadOutputBuffer>(
+                config.getSendBufferPoolSize(), responseListener) {
+            @Override
+            protected TwoThreadOutputBuffer create() {
+                return new TwoThreadOutputBuffer();
+            }
+        };
 
         myBsonOut = new BufferingBsonOutputStream(myOutput, encoderCache);
 
-        myToSendQueue = new PendingMessageQueue(
-                config.getMaxPendingOperationsPerConnection(),
-                config.getLockType());
+        final WaitStrategyFactory waitStrategies = config
+                .getWaitStrategyFactory();
+        if (waitStrategies != null) {
+            myToSendQueue = new PendingMessageQueue(
+                    config.getMaxPendingOperationsPerConnection(),
+                    waitStrategies.create());
+        }
+        else {
+            myToSendQueue = new PendingMessageQueue(
+                    config.getMaxPendingOperationsPerConnection(),
+                    config.getLockType());
+        }
 
         final int localPort = mySocket.getLocalPort();
 
@@ -168,20 +177,12 @@ import com.allanbank.mongodb.client.transport.bio.ReceiveRunnable;
     /**
      * {@inheritDoc}
      * <p>
-     * Overridden to return a new {@link TwoThreadOutputBuffer}.
+     * Overridden to return a pooled {@link TwoThreadOutputBuffer}.
      * </p>
      */
     @Override
     public TwoThreadOutputBuffer createSendBuffer(final int size) {
-        final Reference<TwoThreadOutputBuffer> bufferRef = myBuffers.get();
-        TwoThreadOutputBuffer buffer = (bufferRef != null) ? bufferRef.get()
-                : null;
-        if (buffer == null) {
-            buffer = new TwoThreadOutputBuffer();
-
-            myBuffers.set(new SoftReference<TwoThreadOutputBuffer>(buffer));
-        }
-        return buffer;
+        return myBuffers.acquire();
     }
 
     /**
@@ -238,6 +239,7 @@ import com.allanbank.mongodb.client.transport.bio.ReceiveRunnable;
         }
         finally {
             buffer.clear();
+            myBuffers.release(buffer);
         }
     }
 
@@ -21,7 +21,6 @@
 package com.allanbank.mongodb.client.transport.bio.two;
 
 import java.io.IOException;
-import java.lang.ref.Reference;
 
 import com.allanbank.mongodb.MongoClientConfiguration;
 import com.allanbank.mongodb.bson.io.StringDecoderCache;
@@ -42,19 +41,11 @@ import com.allanbank.mongodb.client.transport.TransportResponseListener;
 public class TwoThreadTransportFactory
         implements TransportFactory {
 
-    /**
-     * The buffers used each connection. Each buffer is shared by all
-     * connections but there can be up to 1 buffer per application thread.
-     */
-    private final ThreadLocal<Reference<TwoThreadOutputBuffer>> myBuffers;
-
     /**
      * Creates a new TwoThreadTransportFactory.
      */
     public TwoThreadTransportFactory() {
         super();
-
-        myBuffers = new ThreadLocal<Reference<TwoThreadOutputBuffer>>();
     }
 
     /**
@@ -73,6 +64,6 @@ public class TwoThreadTransportFactory
         // Open the socket, setup the receive thread, setup the send thread and
         // queues between them.
         return new TwoThreadTransport(server, config, encoderCache,
-                decoderCache, responseListener, myBuffers);
+                decoderCache, responseListener);
     }
 }
@@ -0,0 +1,303 @@
+/*
+ * #%L
+ * NioEventLoop.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.client.transport.nio;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import com.allanbank.mongodb.MongoClientConfiguration;
+import com.allanbank.mongodb.error.ConnectionLostException;
+import com.allanbank.mongodb.util.IOUtils;
+import com.allanbank.mongodb.util.log.Log;
+import com.allanbank.mongodb.util.log.LogFactory;
+
+/**
+ * NioEventLoop provides a single thread that multiplexes the I/O for many
+ * {@link NioTransport NioTransports} via a {@link Selector}.
+ * <p>
+ * The thread is started when the first transport is registered and exits once
+ * there are no remaining registered transports.
+ * </p>
+ *
+ * @api.no This class is <b>NOT</b> part of the drivers API. This class may be
+ *         mutated in incompatible ways between any two releases of the driver.
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+/* package */class NioEventLoop
+        implements Runnable {
+
+    /**
+     * The maximum time to wait in a select. This is the granularity of the
+     * idle connection checks.
+     */
+    public static final long SELECT_TIMEOUT_MS = 100;
+
+    /** The logger for the event loop. */
+    private static final Log LOG = LogFactory.getLog(NioEventLoop.class);
+
+    /** The name for the loop's thread. */
+    private final String myName;
+
+    /** The transports waiting to be registered with the selector. */
+    private final Queue<NioTransport> myRegistrations;
+
+    /** The selector for the loop. Guarded by this. */
+    private Selector mySelector;
+
+    /** The thread running the loop. */
+    private volatile Thread myThread;
+
+    /** The transports that have requested to be notified when writable. */
+    private final Queue<NioTransport> myWriteRequests;
+
+    /**
+     * Creates a new NioEventLoop.
+     *
+     * @param name
+     *            The name for the loop's thread.
+     */
+    public NioEventLoop(final String name) {
+        myName = name;
+        myRegistrations = new ConcurrentLinkedQueue<NioTransport>();
+        myWriteRequests = new ConcurrentLinkedQueue<NioTransport>();
+    }
+
+    /**
+     * Returns true if the current thread is the event loop's thread.
+     *
+     * @return True if the current thread is the event loop's thread.
+     */
+    public boolean inEventLoop() {
+        return Thread.currentThread() == myThread;
+    }
+
+    /**
+     * Registers the transport with the event loop. If the loop's thread is not
+     * running then it is started using the configuration's thread factory.
+     *
+     * @param transport
+     *            The transport to register.
+     * @param config
+     *            The configuration of the client owning the transport.
+     * @throws IOException
+     *             On a failure to open the selector.
+     */
+    public synchronized void register(final NioTransport transport,
+            final MongoClientConfiguration config) throws IOException {
+        if (mySelector == null) {
+            mySelector = Selector.open();
+        }
+
+        myRegistrations.add(transport);
+
+        if (myThread == null) {
+            final Thread thread = config.getThreadFactory().newThread(this);
+            thread.setDaemon(true);
+            thread.setName(myName);
+
+            myThread = thread;
+            thread.start();
+        }
+        else {
+            mySelector.wakeup();
+        }
+    }
+
+    /**
+     * Requests that the transport's queued data be written once the channel
+     * is writable.
+     *
+     * @param transport
+     *            The transport with queued data.
+     */
+    public void requestWrite(final NioTransport transport) {
+        if (inEventLoop()) {
+            transport.enableWrite();
+        }
+        else {
+            myWriteRequests.add(transport);
+            wakeup();
+        }
+    }
+
+    /**
+     * Processes the I/O for the registered transports.
+     */
+    @Override
+    public void run() {
+        final Selector selector;
+        synchronized (this) {
+            selector = mySelector;
+        }
+
+        long lastIdleCheck = System.currentTimeMillis();
+        try {
+            while (true) {
+                selector.select(SELECT_TIMEOUT_MS);
+
+                registerPending(selector);
+                enableWrites();
+                processSelected(selector);
+
+                final long now = System.currentTimeMillis();
+                if (SELECT_TIMEOUT_MS <= (now - lastIdleCheck)) {
+                    lastIdleCheck = now;
+                    checkIdle(selector, now);
+                }
+
+                synchronized (this) {
+                    if (selector.keys().isEmpty() && myRegistrations.isEmpty()) {
+                        // Nothing left to do.
+                        myThread = null;
+                        return;
+                    }
+                }
+            }
+        }
+        catch (final IOException error) {
+            LOG.warn(error, "Error in the I/O event loop: {}",
+                    error.getMessage());
+
+            synchronized (this) {
+                closeAll(selector, new ConnectionLostException(error));
+
+                myThread = null;
+                mySelector = null;
+                IOUtils.close(selector);
+            }
+        }
+    }
+
+    /**
+     * Wakes the event loop.
+     */
+    public void wakeup() {
+        final Selector selector;
+        synchronized (this) {
+            selector = mySelector;
+        }
+        if (selector != null) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Checks each of the transports to see if they are idle.
+     *
+     * @param selector
+     *            The selector for the loop.
+     * @param now
+     *            The current time in milliseconds.
+     */
+    private void checkIdle(final Selector selector, final long now) {
+        for (final SelectionKey key : selector.keys()) {
+            if (key.isValid()) {
+                ((NioTransport) key.attachment()).checkIdle(now);
+            }
+        }
+    }
+
+    /**
+     * Closes all of the transports registered or waiting to register with the
+     * loop.
+     *
+     * @param selector
+     *            The selector for the loop.
+     * @param error
+     *            The error causing the transports to be closed.
+     */
+    private void closeAll(final Selector selector,
+            final ConnectionLostException error) {
+        for (final SelectionKey key : selector.keys()) {
+            ((NioTransport) key.attachment()).close(error);
+        }
+
+        NioTransport transport = myRegistrations.poll();
+        while (transport != null) {
+            transport.close(error);
+            transport = myRegistrations.poll();
+        }
+        myWriteRequests.clear();
+    }
+
+    /**
+     * Enables the write interest for the transports with queued data.
+     */
+    private void enableWrites() {
+        NioTransport transport = myWriteRequests.poll();
+        while (transport != null) {
+            transport.enableWrite();
+            transport = myWriteRequests.poll();
+        }
+    }
+
+    /**
+     * Processes the selected (ready) keys.
+     *
+     * @param selector
+     *            The selector for the loop.
+     */
+    private void processSelected(final Selector selector) {
+        final Iterator<SelectionKey> iter = selector.selectedKeys().iterator();
+        while (iter.hasNext()) {
+            final SelectionKey key = iter.next();
+            iter.remove();
+
+            final NioTransport transport = (NioTransport) key.attachment();
+            try {
+                if (key.isValid() && key.isReadable()) {
+                    transport.handleRead();
+                }
+                if (key.isValid() && key.isWritable()) {
+                    transport.handleWrite();
+                }
+            }
+            catch (final IOException error) {
+                transport.close(new ConnectionLostException(error));
+            }
+            catch (final RuntimeException error) {
+                if (transport.isOpen()) {
+                    LOG.warn(error, "Error processing a message: {}",
+                            error.getMessage());
+                }
+                transport.close(new ConnectionLostException(error));
+            }
+        }
+    }
+
+    /**
+     * Registers the pending transports with the selector.
+     *
+     * @param selector
+     *            The selector for the loop.
+     */
+    private void registerPending(final Selector selector) {
+        NioTransport transport = myRegistrations.poll();
+        while (transport != null) {
+            transport.register(selector);
+            transport = myRegistrations.poll();
+        }
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * #%L
+ * NioInputBuffer.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.client.transport.nio;
+
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+
+import com.allanbank.mongodb.MongoDbException;
+import com.allanbank.mongodb.bson.impl.DocumentShapeCache;
+import com.allanbank.mongodb.bson.io.BsonInputStream;
+import com.allanbank.mongodb.bson.io.StringDecoderCache;
+import com.allanbank.mongodb.client.Message;
+import com.allanbank.mongodb.client.transport.MessageReader;
+import com.allanbank.mongodb.client.transport.TransportInputBuffer;
+import com.allanbank.mongodb.client.transport.TransportResponseListener;
+
+/**
+ * NioInputBuffer holds a reference to the bytes for a single message within a
+ * {@link ReceiveBuffer}. The message is not decoded until {@link #read()} is
+ * called. Heap buffers are decoded in place without copying the message.
+ * Direct buffers are copied into a per-thread scratch array that is reused.
+ * Once decoded the reference to the {@link ReceiveBuffer} is released.
+ *
+ * @api.no This class is <b>NOT</b> part of the drivers API. This class may be
+ *         mutated in incompatible ways between any two releases of the driver.
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+/* package */class NioInputBuffer
+        implements TransportInputBuffer {
+
+    /** The largest message that will use the per-thread scratch array. */
+    public static final int MAX_SCRATCH_SIZE = 1024 * 1024;
+
+    /** The per-thread scratch arrays for decoding direct buffers. */
+    private static final ThreadLocal<Reference<byte[]>> ourScratch = new ThreadLocal<Reference<byte[]>>();
+
+    /**
+     * Returns a scratch array of at least the requested size.
+     *
+     * @param size
+     *            The required size.
+     * @return The scratch array.
+     */
+    private static byte[] scratch(final int size) {
+        if (MAX_SCRATCH_SIZE < size) {
+            return new byte[size];
+        }
+
+        final Reference<byte[]> ref = ourScratch.get();
+        byte[] scratch = (ref != null) ? ref.get() : null;
+        if ((scratch == null) || (scratch.length < size)) {
+            scratch = new byte[Math.max(size, 8 * 1024)];
+            ourScratch.set(new SoftReference<byte[]>(scratch));
+        }
+        return scratch;
+    }
+
+    /** The buffer holding the message. Null once decoded. */
+    private ReceiveBuffer myBuffer;
+
+    /** Cache used for decoding strings. */
+    private final StringDecoderCache myDecoderCache;
+
+    /**
+     * The cache of document shapes shared by the lazy documents. May be
+     * <code>null</code>.
+     */
+    private final DocumentShapeCache myDocumentShapes;
+
+    /** If true then the message's documents are decoded lazily. */
+    private final boolean myLazyDocuments;
+
+    /** The total length of the message, including the length itself. */
+    private final int myLength;
+
+    /** The listener providing the decoders for the reply's documents. */
+    private final TransportResponseListener myListener;
+
+    /** The decoded message. */
+    private Message myMessage;
+
+    /** The offset of the message body, after the length, in the buffer. */
+    private final int myOffset;
+
+    /**
+     * Creates a new NioInputBuffer. The caller must have already
+     * {@link ReceiveBuffer#retain() retained} a reference to the buffer for
+     * this message.
+     *
+     * @param length
+     *            The total length of the message, including the 4 bytes for
+     *            the length itself.
+     * @param buffer
+     *            The buffer holding the message.
+     * @param offset
+     *            The offset of the message body, after the length, in the
+     *            buffer.
+     * @param decoderCache
+     *            Cache used for decoding strings.
+     * @param lazyDocuments
+     *            If true then the message's documents are decoded lazily.
+     * @param documentShapes
+     *            The cache of document shapes shared by the lazy documents.
+     *            May be <code>null</code>.
+     * @param listener
+     *            The listener providing the decoders for the reply's
+     *            documents.
+     */
+    public NioInputBuffer(final int length, final ReceiveBuffer buffer,
+            final int offset, final StringDecoderCache decoderCache,
+            final boolean lazyDocuments,
+            final DocumentShapeCache documentShapes,
+            final TransportResponseListener listener) {
+        myLength = length;
+        myBuffer = buffer;
+        myOffset = offset;
+        myDecoderCache = decoderCache;
+        myLazyDocuments = lazyDocuments;
+        myDocumentShapes = documentShapes;
+        myListener = listener;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to decode the message from the received bytes.
+     * </p>
+     */
+    @Override
+    public synchronized Message read() throws IOException {
+        if (myBuffer != null) {
+            try {
+                myMessage = decode(myBuffer.getBuffer());
+            }
+            finally {
+                myBuffer.release();
+                myBuffer = null;
+            }
+        }
+        return myMessage;
+    }
+
+    /**
+     * Decodes the message from the buffer.
+     *
+     * @param buffer
+     *            The buffer holding the message.
+     * @return The decoded message.
+     * @throws IOException
+     *             On a failure decoding the message.
+     */
+    private Message decode(final ByteBuffer buffer) throws IOException {
+        final int bodyLength = myLength - 4;
+
+        final BsonInputStream in;
+        if (buffer.hasArray()) {
+            in = new BsonInputStream(buffer.array(), buffer.arrayOffset()
+                    + myOffset, bodyLength, myDecoderCache);
+        }
+        else {
+            final byte[] bytes = scratch(bodyLength);
+            final ByteBuffer body = buffer.duplicate();
+            body.limit(myOffset + bodyLength);
+            body.position(myOffset);
+            body.get(bytes, 0, bodyLength);
+
+            in = new BsonInputStream(bytes, 0, bodyLength, myDecoderCache);
+        }
+
+        in.setLazyDocuments(myLazyDocuments);
+        in.setDocumentShapes(myDocumentShapes);
+        try {
+            return MessageReader.read(myLength, in, myListener);
+        }
+        catch (final MongoDbException error) {
+            final Throwable cause = error.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw error;
+        }
+    }
+}
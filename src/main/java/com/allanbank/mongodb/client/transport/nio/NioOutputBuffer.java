@@ -0,0 +1,139 @@
+/*
+ * #%L
+ * NioOutputBuffer.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.client.transport.nio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import com.allanbank.mongodb.bson.io.BufferingBsonOutputStream;
+import com.allanbank.mongodb.bson.io.RandomAccessOutputStream;
+import com.allanbank.mongodb.bson.io.StringEncoderCache;
+import com.allanbank.mongodb.client.Message;
+import com.allanbank.mongodb.client.callback.ReplyCallback;
+import com.allanbank.mongodb.client.transport.TransportOutputBuffer;
+
+/**
+ * NioOutputBuffer provides a output buffer that serializes all of the messages
+ * to a {@link BufferingBsonOutputStream} and then exposes the serialized bytes
+ * as a set of {@link ByteBuffer} views to be written to the channel with a
+ * single gathering write.
+ * <p>
+ * The views share the serialization buffers so the buffer must not be
+ * {@link #clear() cleared} until all of the views have been written.
+ * </p>
+ *
+ * @api.no This class is <b>NOT</b> part of the drivers API. This class may be
+ *         mutated in incompatible ways between any two releases of the driver.
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+/* package */class NioOutputBuffer
+        implements TransportOutputBuffer {
+    /** The buffer backing the stream. */
+    private final RandomAccessOutputStream myBuffer;
+
+    /** The stream to write to. */
+    private final BufferingBsonOutputStream myOutputStream;
+
+    /** The index of the first view with data remaining to be written. */
+    private int myViewIndex;
+
+    /** The views of the serialized messages being written. */
+    private ByteBuffer[] myViews;
+
+    /**
+     * Creates a new NioOutputBuffer.
+     *
+     * @param stringCache
+     *            The cache for strings.
+     */
+    public NioOutputBuffer(final StringEncoderCache stringCache) {
+        myBuffer = new RandomAccessOutputStream(stringCache);
+        myOutputStream = new BufferingBsonOutputStream(myBuffer);
+    }
+
+    /**
+     * Clears the message buffer.
+     */
+    public void clear() {
+        myBuffer.reset();
+        myViews = null;
+        myViewIndex = 0;
+    }
+
+    /**
+     * Adds the views with data remaining to be written to the
+     * <tt>views</tt> array.
+     *
+     * @param views
+     *            The array of views to add to.
+     * @param offset
+     *            The first index in <tt>views</tt> to fill.
+     * @return The number of views added.
+     */
+    public int gather(final ByteBuffer[] views, final int offset) {
+        final int count = Math.min(views.length - offset, myViews.length
+                - myViewIndex);
+
+        System.arraycopy(myViews, myViewIndex, views, offset, count);
+
+        return count;
+    }
+
+    /**
+     * Returns true if all of the serialized messages have been written.
+     * Advances past the views that have been completely written.
+     *
+     * @return True if all of the serialized messages have been written.
+     */
+    public boolean isWritten() {
+        while ((myViewIndex < myViews.length)
+                && !myViews[myViewIndex].hasRemaining()) {
+            myViewIndex += 1;
+        }
+        return (myViews.length <= myViewIndex);
+    }
+
+    /**
+     * Prepares the views of the serialized messages to be written.
+     *
+     * @return The number of bytes to be written.
+     */
+    public long prepareWrite() {
+        myViews = myBuffer.toByteBuffers();
+        myViewIndex = 0;
+
+        return myBuffer.getSize();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to write the message to the internal buffer.
+     * </p>
+     *
+     * @see TransportOutputBuffer#write(int, Message, ReplyCallback)
+     */
+    @Override
+    public void write(final int messageId, final Message message,
+            final ReplyCallback callback) throws IOException {
+        message.write(messageId, myOutputStream);
+    }
+}
@@ -0,0 +1,743 @@
+/*
+ * #%L
+ * NioTransport.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.client.transport.nio;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.StreamCorruptedException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.net.SocketFactory;
+
+import com.allanbank.mongodb.MongoClientConfiguration;
+import com.allanbank.mongodb.MongoDbException;
+import com.allanbank.mongodb.bson.impl.DocumentShapeCache;
+import com.allanbank.mongodb.bson.io.StringDecoderCache;
+import com.allanbank.mongodb.bson.io.StringEncoderCache;
+import com.allanbank.mongodb.client.Client;
+import com.allanbank.mongodb.client.callback.Receiver;
+import com.allanbank.mongodb.client.connection.SocketConnectionListener;
+import com.allanbank.mongodb.client.message.Header;
+import com.allanbank.mongodb.client.state.Server;
+import com.allanbank.mongodb.client.transport.SendBufferPool;
+import com.allanbank.mongodb.client.transport.Transport;
+import com.allanbank.mongodb.client.transport.TransportResponseListener;
+import com.allanbank.mongodb.error.ConnectionLostException;
+import com.allanbank.mongodb.util.IOUtils;
+import com.allanbank.mongodb.util.log.Log;
+import com.allanbank.mongodb.util.log.LogFactory;
+
+/**
+ * NioTransport provides a transport using a non-blocking {@link SocketChannel}
+ * . All reads and any writes that cannot complete immediately are performed
+ * by the {@link NioEventLoop} the transport is registered with. Application
+ * threads write directly to the channel when they flush as long as the
+ * channel will accept the data without blocking.
+ *
+ * @api.no This class is <b>NOT</b> part of the drivers API. This class may be
+ *         mutated in incompatible ways between any two releases of the driver.
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+/* package */class NioTransport
+        implements Transport<NioOutputBuffer>, Receiver {
+
+    /**
+     * The maximum number of buffers to hand to the channel in a single
+     * gathering write.
+     */
+    public static final int MAX_GATHERED_BUFFERS = 64;
+
+    /**
+     * The maximum number of bytes that can be queued to be written before
+     * senders are blocked until the queue drains.
+     */
+    public static final int MAX_QUEUED_BYTES = 1024 * 1024;
+
+    /**
+     * The maximum length of a message that will be accepted from the server.
+     * MongoDB limits messages to 48MB.
+     */
+    public static final int MAX_MESSAGE_LENGTH = 3 * Client.MAX_DOCUMENT_SIZE;
+
+    /**
+     * The minimum space to leave for a read before moving a partial message to
+     * a new buffer.
+     */
+    public static final int MIN_READ_SPACE = 1024;
+
+    /** The pool of buffers to serialize messages into. */
+    private final SendBufferPool<NioOutputBuffer> myBuffers;
+
+    /** The channel for the connection to the server. */
+    private final SocketChannel myChannel;
+
+    /** The client's configuration. */
+    private final MongoClientConfiguration myConfig;
+
+    /** Cache used for decoding strings. */
+    private final StringDecoderCache myDecoderCache;
+
+    /**
+     * The cache of document shapes shared by the lazy documents. May be
+     * <code>null</code>.
+     */
+    private final DocumentShapeCache myDocumentShapes;
+
+    /** The buffer currently being read into. */
+    private ReceiveBuffer myCurrent;
+
+    /**
+     * The views to hand to the channel in a single gathering write. Guarded by
+     * {@link #myWriteQueue}.
+     */
+    private final ByteBuffer[] myGathered;
+
+    /** The event loop handling the channel's I/O. */
+    private final NioEventLoop myEventLoop;
+
+    /** The offset in the current buffer of the next (partial) message. */
+    private int myFrameStart;
+
+    /** Tracks the number of sequential read timeouts. */
+    private int myIdleTicks;
+
+    /** The time of the last read of data from the channel. */
+    private long myLastReadTime;
+
+    /** The logger for the transport. */
+    private final Log myLog;
+
+    /** Holds if the connection is open. */
+    private final AtomicBoolean myOpen;
+
+    /** The pool of buffers to read into. */
+    private final ReceiveBufferPool myPool;
+
+    /** The number of bytes in the write queue. */
+    private long myQueuedBytes;
+
+    /** The messages received but not yet delivered to the listener. */
+    private final Deque<NioInputBuffer> myReceived;
+
+    /** The key for the channel's registration with the selector. */
+    private volatile SelectionKey myKey;
+
+    /** The listener for responses from the server. */
+    private final TransportResponseListener myResponseListener;
+
+    /** The server we are connected to. */
+    private final Server myServer;
+
+    /** The buffers waiting to be written to the channel. */
+    private final Deque<NioOutputBuffer> myWriteQueue;
+
+    /**
+     * True if the event loop has been asked to write for the transport.
+     * Guarded by {@link #myWriteQueue}.
+     */
+    private boolean myWriteRequested;
+
+    /**
+     * Creates a new NioTransport.
+     *
+     * @param server
+     *            The server to connect to.
+     * @param config
+     *            The clients configuration.
+     * @param encoderCache
+     *            The cache for the encoding of strings.
+     * @param decoderCache
+     *            The cache for the decoding of strings.
+     * @param responseListener
+     *            The listener for responses from the server.
+     * @param eventLoop
+     *            The event loop to handle the channel's I/O.
+     * @throws IOException
+     *             On a failure to create the connection to the server.
+     */
+    public NioTransport(final Server server,
+            final MongoClientConfiguration config,
+            final StringEncoderCache encoderCache,
+            final StringDecoderCache decoderCache,
+            final TransportResponseListener responseListener,
+            final NioEventLoop eventLoop) throws IOException {
+        myServer = server;
+        myConfig = config;
+        myDecoderCache = decoderCache;
+        myDocumentShapes = config.isUsingDocumentShapes() ? new DocumentShapeCache()
+                : null;
+        myResponseListener = responseListener;
+        myBuffers = new SendBufferPool<NioOutputBuffer>(
+                config.getSendBufferPoolSize(), responseListener) {
+            @Override
+            protected NioOutputBuffer create() {
+                return new NioOutputBuffer(encoderCache);
+            }
+        };
+        myEventLoop = eventLoop;
+
+        myLog = LogFactory.getLog(getClass());
+        myOpen = new AtomicBoolean(false);
+        myPool = new ReceiveBufferPool(Math.max(Header.SIZE,
+                config.getReceiveBufferSize()),
+                config.getReceiveBufferPoolSize(),
+                config.isUsingDirectReceiveBuffers());
+        myReceived = new ArrayDeque<NioInputBuffer>();
+        myWriteQueue = new ArrayDeque<NioOutputBuffer>();
+        myGathered = new ByteBuffer[MAX_GATHERED_BUFFERS];
+
+        myChannel = openChannel(server, config);
+        try {
+            updateSocketWithOptions(config);
+            myChannel.configureBlocking(false);
+        }
+        catch (final IOException error) {
+            IOUtils.close(myChannel);
+            throw error;
+        }
+
+        myLastReadTime = System.currentTimeMillis();
+        myOpen.set(true);
+    }
+
+    /**
+     * Closes the connection to the server.
+     */
+    @Override
+    public void close() {
+        close(new MongoDbException("Connection closed."));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to return a pooled {@link NioOutputBuffer}.
+     * </p>
+     */
+    @Override
+    public NioOutputBuffer createSendBuffer(final int size) {
+        return myBuffers.acquire();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to write as much of the queued data to the channel as
+     * possible without blocking and then hand the remainder to the event loop.
+     * </p>
+     */
+    @Override
+    public void flush() throws IOException {
+        boolean requestWrite = false;
+        synchronized (myWriteQueue) {
+            if (!myWriteRequested) {
+                writeQueued();
+
+                requestWrite = !myWriteQueue.isEmpty();
+                myWriteRequested = requestWrite;
+            }
+        }
+
+        if (requestWrite) {
+            myEventLoop.requestWrite(this);
+        }
+    }
+
+    /**
+     * Returns true if the transport is currently open.
+     *
+     * @return True if the transport is currently open.
+     */
+    public boolean isOpen() {
+        return myOpen.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to add the buffered messages onto the write queue. The
+     * buffer is returned to the pool once all of its contents have been
+     * written. If the write queue has grown too large then the sender is
+     * blocked until the event loop can drain the queue.
+     * </p>
+     */
+    @Override
+    public void send(final NioOutputBuffer buffer) throws IOException {
+        final long size = buffer.prepareWrite();
+
+        boolean full;
+        synchronized (myWriteQueue) {
+            try {
+                ensureOpen();
+            }
+            catch (final IOException error) {
+                buffer.clear();
+                myBuffers.release(buffer);
+                throw error;
+            }
+
+            myWriteQueue.addLast(buffer);
+            myQueuedBytes += size;
+            full = (MAX_QUEUED_BYTES < myQueuedBytes);
+        }
+
+        // Never block the event loop's thread.
+        if (full && !myEventLoop.inEventLoop()) {
+            flush();
+            synchronized (myWriteQueue) {
+                try {
+                    while (MAX_QUEUED_BYTES < myQueuedBytes) {
+                        ensureOpen();
+                        myWriteQueue.wait();
+                    }
+                }
+                catch (final InterruptedException ie) {
+                    final InterruptedIOException error = new InterruptedIOException(
+                            "Interrupted waiting for the write queue to drain.");
+                    error.initCause(ie);
+                    throw error;
+                }
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to register the channel with the event loop.
+     * </p>
+     */
+    @Override
+    public void start() {
+        try {
+            myEventLoop.register(this, myConfig);
+        }
+        catch (final IOException error) {
+            myLog.warn(error, "Could not register with the event loop: {}",
+                    error.getMessage());
+            close(new ConnectionLostException(error));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to return the socket information.
+     * </p>
+     */
+    @Override
+    public String toString() {
+        final Socket socket = myChannel.socket();
+        return socket.getLocalPort() + "-->" + socket.getRemoteSocketAddress();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * If currently on the event loop's thread then flushes any pending writes
+     * and tries to perform a read.
+     * </p>
+     */
+    @Override
+    public void tryReceive() {
+        if (myEventLoop.inEventLoop()) {
+            try {
+                flush();
+                handleRead();
+            }
+            catch (final IOException error) {
+                close(new ConnectionLostException(error));
+            }
+        }
+    }
+
+    /**
+     * Checks if the transport has been idle for too long. Mirrors the
+     * behaviour of the blocking transports where each read timeout counts as
+     * an idle tick.
+     *
+     * @param now
+     *            The current time in milliseconds.
+     */
+    /* package */void checkIdle(final long now) {
+        final int readTimeout = myConfig.getReadTimeout();
+        if ((0 < readTimeout) && (readTimeout <= (now - myLastReadTime))) {
+            myLastReadTime = now;
+            myIdleTicks += 1;
+
+            if (myConfig.getMaxIdleTickCount() <= myIdleTicks) {
+                // Shutdown the connection., nicely.
+                close(new ConnectionLostException(
+                        "Connection closed due to idle."));
+            }
+        }
+    }
+
+    /**
+     * Closes the transport and notifies the listener of the error.
+     *
+     * @param error
+     *            The error triggering the close.
+     */
+    /* package */void close(final MongoDbException error) {
+        if (myOpen.compareAndSet(true, false)) {
+            final SelectionKey key = myKey;
+            if (key != null) {
+                key.cancel();
+            }
+            IOUtils.close(myChannel);
+
+            synchronized (myWriteQueue) {
+                myWriteQueue.clear();
+                myQueuedBytes = 0;
+                myWriteQueue.notifyAll();
+            }
+
+            // Let the event loop clean up the registration.
+            myEventLoop.wakeup();
+
+            myResponseListener.closed(error);
+        }
+    }
+
+    /**
+     * Enables the write interest for the channel. Must only be called from
+     * the event loop's thread.
+     */
+    /* package */void enableWrite() {
+        final SelectionKey key = myKey;
+        if ((key != null) && key.isValid()) {
+            key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+        }
+    }
+
+    /**
+     * Reads from the channel and delivers any complete messages to the
+     * listener. Must only be called from the event loop's thread.
+     *
+     * @throws IOException
+     *             On a failure reading from the channel.
+     */
+    /* package */void handleRead() throws IOException {
+        if (myCurrent == null) {
+            myCurrent = myPool.acquire(Header.SIZE);
+            myFrameStart = 0;
+        }
+
+        final int read = myChannel.read(myCurrent.getBuffer());
+        if (read < 0) {
+            throw new EOFException("Remote connection closed: "
+                    + myServer.getCanonicalName());
+        }
+        else if (0 < read) {
+            myLastReadTime = System.currentTimeMillis();
+            extractMessages();
+        }
+
+        // Deliver in order. Callbacks may re-enter via tryReceive().
+        NioInputBuffer received = myReceived.poll();
+        while (received != null) {
+            myIdleTicks = 0;
+            myResponseListener.response(received);
+
+            received = myReceived.poll();
+        }
+    }
+
+    /**
+     * Writes as much of the queued data as possible. Must only be called from
+     * the event loop's thread.
+     *
+     * @throws IOException
+     *             On a failure writing to the channel.
+     */
+    /* package */void handleWrite() throws IOException {
+        synchronized (myWriteQueue) {
+            writeQueued();
+
+            if (myWriteQueue.isEmpty()) {
+                myWriteRequested = false;
+
+                final SelectionKey key = myKey;
+                if ((key != null) && key.isValid()) {
+                    key.interestOps(SelectionKey.OP_READ);
+                }
+            }
+        }
+    }
+
+    /**
+     * Registers the channel with the selector. Must only be called from the
+     * event loop's thread.
+     *
+     * @param selector
+     *            The selector to register with.
+     */
+    /* package */void register(final Selector selector) {
+        if (isOpen()) {
+            try {
+                int ops = SelectionKey.OP_READ;
+                synchronized (myWriteQueue) {
+                    if (myWriteRequested) {
+                        ops |= SelectionKey.OP_WRITE;
+                    }
+                }
+                myKey = myChannel.register(selector, ops, this);
+            }
+            catch (final ClosedChannelException error) {
+                close(new ConnectionLostException(error));
+            }
+        }
+    }
+
+    /**
+     * Throws an exception if the transport has been closed.
+     *
+     * @throws IOException
+     *             If the transport has been closed.
+     */
+    private void ensureOpen() throws IOException {
+        if (!isOpen()) {
+            throw new ClosedChannelException();
+        }
+    }
+
+    /**
+     * Extracts the complete messages from the current buffer. Each message
+     * holds a reference to the buffer until it is decoded. If the next partial
+     * message will not fit in the remainder of the buffer then it is moved to
+     * a new buffer.
+     *
+     * @throws IOException
+     *             If the stream contains an invalid message length.
+     */
+    private void extractMessages() throws IOException {
+        final ByteBuffer buffer = myCurrent.getBuffer();
+        final int position = buffer.position();
+
+        int needed = Header.SIZE;
+        while (4 <= (position - myFrameStart)) {
+            final int length = buffer.getInt(myFrameStart);
+            if ((length < Header.SIZE) || (MAX_MESSAGE_LENGTH < length)) {
+                throw new StreamCorruptedException(
+                        "Invalid message length read: " + length + ".");
+            }
+
+            if ((position - myFrameStart) < length) {
+                // Incomplete.
+                needed = length;
+                break;
+            }
+
+            myCurrent.retain();
+            myReceived.add(new NioInputBuffer(length, myCurrent,
+                    myFrameStart + 4, myDecoderCache, myConfig
+                            .isUsingLazyDocuments(), myDocumentShapes,
+                    myResponseListener));
+            myFrameStart += length;
+        }
+
+        final int space = buffer.capacity() - myFrameStart;
+        if ((space < needed)
+                || ((0 < myFrameStart) && (space < MIN_READ_SPACE))) {
+            relocate(needed);
+        }
+    }
+
+    /**
+     * Creates an unconnected channel using the configuration's
+     * {@link SocketFactory}. Only factories that create sockets backed by a
+     * {@link SocketChannel} can be used.
+     *
+     * @param factory
+     *            The factory for sockets.
+     * @return The unconnected channel.
+     * @throws IOException
+     *             On a failure creating the channel.
+     */
+    private SocketChannel openChannel(final SocketFactory factory)
+            throws IOException {
+        if (factory == SocketFactory.getDefault()) {
+            return SocketChannel.open();
+        }
+
+        final Socket socket = factory.createSocket();
+        final SocketChannel channel = socket.getChannel();
+        if (channel == null) {
+            try {
+                socket.close();
+            }
+            catch (final IOException ignore) {
+                myLog.info("Could not close the unusable socket: {}", socket);
+            }
+            throw new SocketException("The SocketFactory ("
+                    + factory.getClass().getName()
+                    + ") does not create sockets backed by a SocketChannel.");
+        }
+        return channel;
+    }
+
+    /**
+     * Tries to open a connection to the server.
+     *
+     * @param server
+     *            The server to open the connection to.
+     * @param config
+     *            The configuration for attempting to open the connection.
+     * @return The opened {@link SocketChannel}.
+     * @throws IOException
+     *             On a failure opening a connection to the server.
+     */
+    private SocketChannel openChannel(final Server server,
+            final MongoClientConfiguration config) throws IOException {
+        final SocketFactory factory = config.getSocketFactory();
+
+        IOException last = null;
+        SocketChannel channel = null;
+        for (final InetSocketAddress address : server.getAddresses()) {
+            try {
+                channel = openChannel(factory);
+
+                final Socket socket = channel.socket();
+                socket.connect(address, config.getConnectTimeout());
+
+                // If the factory wants to know about the connection then let it
+                // know first.
+                if (factory instanceof SocketConnectionListener) {
+                    ((SocketConnectionListener) factory).connected(address,
+                            socket);
+                }
+
+                // Let the server know the working connection.
+                server.connectionOpened(address);
+
+                last = null;
+                break;
+            }
+            catch (final IOException error) {
+                last = error;
+                IOUtils.close(channel);
+                channel = null;
+            }
+        }
+        if (last != null) {
+            server.connectFailed();
+            throw last;
+        }
+
+        return channel;
+    }
+
+    /**
+     * Moves the partial message at the end of the current buffer to a new
+     * buffer.
+     *
+     * @param needed
+     *            The number of bytes needed for the partial message.
+     */
+    private void relocate(final int needed) {
+        final ByteBuffer partial = myCurrent.getBuffer().duplicate();
+        partial.limit(partial.position());
+        partial.position(myFrameStart);
+
+        final ReceiveBuffer next = myPool.acquire(needed);
+        next.getBuffer().put(partial);
+
+        myCurrent.release();
+        myCurrent = next;
+        myFrameStart = 0;
+    }
+
+    /**
+     * Updates the socket with the configuration's socket options.
+     *
+     * @param config
+     *            The configuration to apply.
+     * @throws SocketException
+     *             On a failure setting the socket options.
+     */
+    private void updateSocketWithOptions(final MongoClientConfiguration config)
+            throws SocketException {
+        final Socket socket = myChannel.socket();
+
+        socket.setKeepAlive(config.isUsingSoKeepalive());
+        socket.setTcpNoDelay(true);
+        socket.setPerformancePreferences(1, 5, 6);
+    }
+
+    /**
+     * Writes the queued buffers to the channel until the queue is empty or the
+     * channel will not accept more data. The views of as many queued buffers
+     * as will fit in {@link #myGathered} are handed to the channel in a single
+     * gathering write. Buffers are returned to the pool once completely
+     * written. The caller must hold the lock on {@link #myWriteQueue}.
+     *
+     * @throws IOException
+     *             On a failure writing to the channel.
+     */
+    private void writeQueued() throws IOException {
+        final long before = myQueuedBytes;
+
+        while (!myWriteQueue.isEmpty()) {
+            int count = 0;
+            for (final NioOutputBuffer buffer : myWriteQueue) {
+                count += buffer.gather(myGathered, count);
+                if (count == myGathered.length) {
+                    break;
+                }
+            }
+
+            myQueuedBytes -= myChannel.write(myGathered, 0, count);
+            final boolean channelFull = (0 < count)
+                    && myGathered[count - 1].hasRemaining();
+            Arrays.fill(myGathered, 0, count, null);
+
+            NioOutputBuffer head = myWriteQueue.peekFirst();
+            while ((head != null) && head.isWritten()) {
+                myWriteQueue.removeFirst();
+                head.clear();
+                myBuffers.release(head);
+
+                head = myWriteQueue.peekFirst();
+            }
+
+            if (channelFull) {
+                break;
+            }
+        }
+
+        if (myQueuedBytes < before) {
+            myWriteQueue.notifyAll();
+        }
+    }
+}
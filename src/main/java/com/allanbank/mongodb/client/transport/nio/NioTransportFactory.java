@@ -0,0 +1,101 @@
+/*
+ * #%L
+ * NioTransportFactory.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.client.transport.nio;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.allanbank.mongodb.MongoClientConfiguration;
+import com.allanbank.mongodb.bson.io.StringDecoderCache;
+import com.allanbank.mongodb.bson.io.StringEncoderCache;
+import com.allanbank.mongodb.client.state.Server;
+import com.allanbank.mongodb.client.transport.TransportFactory;
+import com.allanbank.mongodb.client.transport.TransportResponseListener;
+
+/**
+ * NioTransportFactory provides the {@link TransportFactory} that uses
+ * non-blocking I/O channels. The I/O for all of the connections is multiplexed
+ * across a small, fixed set of selector threads. Application threads write
+ * directly to the channel whenever the write will not block.
+ * <p>
+ * The {@link MongoClientConfiguration#getSocketFactory() socket factory} must
+ * create sockets backed by a {@link java.nio.channels.SocketChannel}. SSL
+ * socket factories are not supported.
+ * </p>
+ *
+ * @api.no This class is <b>NOT</b> part of the drivers API. This class may be
+ *         mutated in incompatible ways between any two releases of the driver.
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+public class NioTransportFactory
+        implements TransportFactory {
+
+    /** The event loops to spread the connections across. */
+    private final NioEventLoop[] myEventLoops;
+
+    /** The index of the next event loop to use. */
+    private final AtomicInteger myNextEventLoop;
+
+    /**
+     * Creates a new NioTransportFactory with an event loop for each available
+     * processor.
+     */
+    public NioTransportFactory() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a new NioTransportFactory.
+     *
+     * @param eventLoopCount
+     *            The number of event loops (threads) to use.
+     */
+    public NioTransportFactory(final int eventLoopCount) {
+        super();
+
+        myNextEventLoop = new AtomicInteger(0);
+        myEventLoops = new NioEventLoop[Math.max(1, eventLoopCount)];
+        for (int i = 0; i < myEventLoops.length; ++i) {
+            myEventLoops[i] = new NioEventLoop("MongoDB NIO Selector " + i);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to return a {@link NioTransport} handled by the next event
+     * loop.
+     * </p>
+     */
+    @Override
+    public NioTransport createTransport(final Server server,
+            final MongoClientConfiguration config,
+            final StringEncoderCache encoderCache,
+            final StringDecoderCache decoderCache,
+            final TransportResponseListener responseListener)
+            throws IOException {
+        final int index = (myNextEventLoop.getAndIncrement() & Integer.MAX_VALUE)
+                % myEventLoops.length;
+
+        return new NioTransport(server, config, encoderCache, decoderCache,
+                responseListener, myEventLoops[index]);
+    }
+}
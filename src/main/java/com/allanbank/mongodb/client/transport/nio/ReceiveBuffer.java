@@ -0,0 +1,95 @@
+/*
+ * #%L
+ * ReceiveBuffer.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.client.transport.nio;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ReceiveBuffer provides a reference counted {@link ByteBuffer} that messages
+ * are read into. Each message read into the buffer holds a reference to the
+ * buffer until it has been decoded. Once all of the references have been
+ * released the buffer is returned to its pool.
+ *
+ * @api.no This class is <b>NOT</b> part of the drivers API. This class may be
+ *         mutated in incompatible ways between any two releases of the driver.
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+/* package */class ReceiveBuffer {
+
+    /** The wrapped buffer. */
+    private final ByteBuffer myBuffer;
+
+    /** The pool to return the buffer to. May be <code>null</code>. */
+    private final ReceiveBufferPool myPool;
+
+    /** The number of references to the buffer. */
+    private final AtomicInteger myReferences;
+
+    /**
+     * Creates a new ReceiveBuffer with a single reference.
+     *
+     * @param buffer
+     *            The wrapped buffer.
+     * @param pool
+     *            The pool to return the buffer to. May be <code>null</code>
+     *            if the buffer is not pooled.
+     */
+    public ReceiveBuffer(final ByteBuffer buffer, final ReceiveBufferPool pool) {
+        myBuffer = buffer;
+        myPool = pool;
+        myReferences = new AtomicInteger(1);
+    }
+
+    /**
+     * Returns the wrapped buffer.
+     *
+     * @return The wrapped buffer.
+     */
+    public ByteBuffer getBuffer() {
+        return myBuffer;
+    }
+
+    /**
+     * Releases a reference to the buffer. When the last reference is released
+     * the buffer is returned to the pool.
+     */
+    public void release() {
+        if ((myReferences.decrementAndGet() == 0) && (myPool != null)) {
+            myPool.recycle(this);
+        }
+    }
+
+    /**
+     * Resets the buffer to be empty with a single reference.
+     */
+    public void reset() {
+        myBuffer.clear();
+        myReferences.set(1);
+    }
+
+    /**
+     * Adds a reference to the buffer.
+     */
+    public void retain() {
+        myReferences.incrementAndGet();
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * #%L
+ * ReceiveBufferPool.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.client.transport.nio;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ReceiveBufferPool provides a bounded pool of fixed size
+ * {@link ReceiveBuffer ReceiveBuffers}. Requests for buffers larger than the
+ * pool's buffer size are satisfied with a dedicated buffer that is not
+ * returned to the pool.
+ *
+ * @api.no This class is <b>NOT</b> part of the drivers API. This class may be
+ *         mutated in incompatible ways between any two releases of the driver.
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+/* package */class ReceiveBufferPool {
+
+    /** The size of the pooled buffers. */
+    private final int myBufferSize;
+
+    /** True if the buffers should be allocated as direct buffers. */
+    private final boolean myDirect;
+
+    /** The idle buffers. */
+    private final Queue<ReceiveBuffer> myIdle;
+
+    /** The number of idle buffers. */
+    private final AtomicInteger myIdleCount;
+
+    /** The maximum number of idle buffers to keep. */
+    private final int myMaxIdle;
+
+    /**
+     * Creates a new ReceiveBufferPool.
+     *
+     * @param bufferSize
+     *            The size of the pooled buffers.
+     * @param maxIdle
+     *            The maximum number of idle buffers to keep.
+     * @param direct
+     *            True if the buffers should be allocated as direct buffers.
+     */
+    public ReceiveBufferPool(final int bufferSize, final int maxIdle,
+            final boolean direct) {
+        myBufferSize = bufferSize;
+        myMaxIdle = maxIdle;
+        myDirect = direct;
+        myIdle = new ConcurrentLinkedQueue<ReceiveBuffer>();
+        myIdleCount = new AtomicInteger(0);
+    }
+
+    /**
+     * Returns an empty buffer with at least the requested capacity and a
+     * single reference.
+     *
+     * @param minCapacity
+     *            The minimum capacity for the buffer.
+     * @return The buffer.
+     */
+    public ReceiveBuffer acquire(final int minCapacity) {
+        if (myBufferSize < minCapacity) {
+            return new ReceiveBuffer(allocate(minCapacity), null);
+        }
+
+        final ReceiveBuffer buffer = myIdle.poll();
+        if (buffer != null) {
+            myIdleCount.decrementAndGet();
+            buffer.reset();
+            return buffer;
+        }
+        return new ReceiveBuffer(allocate(myBufferSize), this);
+    }
+
+    /**
+     * Returns the size of the pooled buffers.
+     *
+     * @return The size of the pooled buffers.
+     */
+    public int getBufferSize() {
+        return myBufferSize;
+    }
+
+    /**
+     * Returns the buffer to the pool if the pool is not already full.
+     *
+     * @param buffer
+     *            The buffer to return to the pool.
+     */
+    /* package */void recycle(final ReceiveBuffer buffer) {
+        if (myIdleCount.incrementAndGet() <= myMaxIdle) {
+            myIdle.add(buffer);
+        }
+        else {
+            myIdleCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * Allocates a new little-endian buffer.
+     *
+     * @param capacity
+     *            The capacity of the buffer.
+     * @return The new buffer.
+     */
+    private ByteBuffer allocate(final int capacity) {
+        final ByteBuffer buffer = myDirect ? ByteBuffer.allocateDirect(capacity)
+                : ByteBuffer.allocate(capacity);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * #%L
+ * BlockingWaitStrategy.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.client.wait;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * BlockingWaitStrategy blocks waiting threads on a {@link Condition}. This
+ * uses the least CPU but has the highest hand-off latency. Signaling threads
+ * only acquire the lock when there is a thread waiting.
+ * <p>
+ * The hand-off point must make its state change visible with a volatile write
+ * before calling {@link #signalAll()} so a thread that has just started to
+ * wait cannot miss the change.
+ * </p>
+ *
+ * @api.internal This class is part of the driver's internal API. Users of this
+ *               API should advertise the explicit version of the driver they
+ *               are compatible with. Public and protected members may be
+ *               modified between non-bugfix releases (version numbers are
+ *               &lt;major&gt;.&lt;minor&gt;.&lt;bugfix&gt;).
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+@ThreadSafe
+public class BlockingWaitStrategy
+        implements WaitStrategy {
+
+    /** The condition the waiting threads block on. */
+    private final Condition myCondition;
+
+    /** The mutex for the condition. */
+    private final Lock myLock;
+
+    /** The number of threads waiting. */
+    private final AtomicInteger myWaiting;
+
+    /**
+     * Creates a new BlockingWaitStrategy.
+     */
+    public BlockingWaitStrategy() {
+        myLock = new ReentrantLock();
+        myCondition = myLock.newCondition();
+        myWaiting = new AtomicInteger(0);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to wake all of the blocked threads, if any.
+     * </p>
+     */
+    @Override
+    public void signalAll() {
+        if (myWaiting.get() > 0) {
+            myLock.lock();
+            try {
+                myCondition.signalAll();
+            }
+            finally {
+                myLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to block on the condition until the condition is satisfied.
+     * </p>
+     */
+    @Override
+    public void waitFor(final WaitCondition condition)
+            throws InterruptedException {
+        if (!condition.isSatisfied()) {
+            myWaiting.incrementAndGet();
+            myLock.lock();
+            try {
+                while (!condition.isSatisfied()) {
+                    myCondition.await();
+                }
+            }
+            finally {
+                myLock.unlock();
+                myWaiting.decrementAndGet();
+            }
+        }
+    }
+}
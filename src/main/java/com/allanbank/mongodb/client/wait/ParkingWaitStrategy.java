@@ -0,0 +1,130 @@
+/*
+ * #%L
+ * ParkingWaitStrategy.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.client.wait;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * ParkingWaitStrategy re-checks the condition in a loop, then yields, and then
+ * parks the thread for exponentially increasing periods up to a maximum
+ * between each check. Idle threads use very little CPU while a busy hand-off
+ * never parks. The latency to notice a change after a long idle period is
+ * bounded by the maximum park time.
+ *
+ * @api.internal This class is part of the driver's internal API. Users of this
+ *               API should advertise the explicit version of the driver they
+ *               are compatible with. Public and protected members may be
+ *               modified between non-bugfix releases (version numbers are
+ *               &lt;major&gt;.&lt;minor&gt;.&lt;bugfix&gt;).
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+@ThreadSafe
+public class ParkingWaitStrategy
+        implements WaitStrategy {
+
+    /** The default maximum time to park the thread. Set to 1 millisecond. */
+    public static final long DEFAULT_MAX_PARK_NS = TimeUnit.MILLISECONDS
+            .toNanos(1);
+
+    /** The time to park the thread the first time. Set to 1 microsecond. */
+    public static final long MIN_PARK_NS = TimeUnit.MICROSECONDS.toNanos(1);
+
+    /** The number of times to spin before yielding. */
+    public static final int SPIN_ITERATIONS = 100;
+
+    /** The number of times to yield before parking. */
+    public static final int YIELD_ITERATIONS = 10;
+
+    /** The maximum time to park the thread. */
+    private final long myMaxParkNanos;
+
+    /**
+     * Creates a new ParkingWaitStrategy with a maximum park time of
+     * {@link #DEFAULT_MAX_PARK_NS}.
+     */
+    public ParkingWaitStrategy() {
+        this(DEFAULT_MAX_PARK_NS);
+    }
+
+    /**
+     * Creates a new ParkingWaitStrategy.
+     *
+     * @param maxParkNanos
+     *            The maximum time to park the thread between checks.
+     */
+    public ParkingWaitStrategy(final long maxParkNanos) {
+        myMaxParkNanos = Math.max(MIN_PARK_NS, maxParkNanos);
+    }
+
+    /**
+     * Returns the maximum time to park the thread between checks.
+     *
+     * @return The maximum time to park the thread between checks.
+     */
+    public long getMaxParkNanos() {
+        return myMaxParkNanos;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to do nothing since parked threads wake on their own.
+     * </p>
+     */
+    @Override
+    public void signalAll() {
+        // Nothing to do.
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to spin, yield and then park with an exponential back-off
+     * until the condition is satisfied.
+     * </p>
+     */
+    @Override
+    public void waitFor(final WaitCondition condition)
+            throws InterruptedException {
+        int iterations = 0;
+        long parkNanos = MIN_PARK_NS;
+        while (!condition.isSatisfied()) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+
+            if (iterations < SPIN_ITERATIONS) {
+                iterations += 1;
+            }
+            else if (iterations < (SPIN_ITERATIONS + YIELD_ITERATIONS)) {
+                iterations += 1;
+                Thread.yield();
+            }
+            else {
+                LockSupport.parkNanos(this, parkNanos);
+                parkNanos = Math.min(parkNanos << 1, myMaxParkNanos);
+            }
+        }
+    }
+}
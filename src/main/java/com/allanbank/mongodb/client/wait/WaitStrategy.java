@@ -0,0 +1,61 @@
+/*
+ * #%L
+ * WaitStrategy.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.client.wait;
+
+/**
+ * WaitStrategy provides the policy for how a thread waits for another thread
+ * to hand it work or free up space, in the spirit of the Disruptor project's
+ * wait strategies. Strategies trade CPU usage for hand-off latency.
+ * <p>
+ * A strategy instance is used by a single hand-off point, e.g., a single
+ * queue. Threads changing the state of the hand-off point must call
+ * {@link #signalAll()} after the change is visible so that any blocked threads
+ * re-check their conditions.
+ * </p>
+ *
+ * @see <a href="http://lmax-exchange.github.io/disruptor/">Disruptor
+ *      Project</a>
+ * @api.internal This class is part of the driver's internal API. Users of this
+ *               API should advertise the explicit version of the driver they
+ *               are compatible with. Public and protected members may be
+ *               modified between non-bugfix releases (version numbers are
+ *               &lt;major&gt;.&lt;minor&gt;.&lt;bugfix&gt;).
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+public interface WaitStrategy {
+
+    /**
+     * Notifies any blocked threads that the state they are waiting on may have
+     * changed. Strategies that never block should make this a no-op so the
+     * signaling thread never acquires a lock.
+     */
+    public void signalAll();
+
+    /**
+     * Waits until the condition is satisfied.
+     *
+     * @param condition
+     *            The condition to wait for.
+     * @throws InterruptedException
+     *             If the thread is interrupted while waiting.
+     */
+    public void waitFor(WaitCondition condition) throws InterruptedException;
+}
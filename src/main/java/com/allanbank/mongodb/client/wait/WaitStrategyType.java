@@ -0,0 +1,68 @@
+/*
+ * #%L
+ * WaitStrategyType.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.client.wait;
+
+/**
+ * WaitStrategyType provides an enumeration of the {@link WaitStrategy}
+ * implementations provided with the driver.
+ *
+ * @api.internal This class is part of the driver's internal API. Users of this
+ *               API should advertise the explicit version of the driver they
+ *               are compatible with. Public and protected members may be
+ *               modified between non-bugfix releases (version numbers are
+ *               &lt;major&gt;.&lt;minor&gt;.&lt;bugfix&gt;).
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+public enum WaitStrategyType
+        implements WaitStrategyFactory {
+
+    /** Block on a condition. See {@link BlockingWaitStrategy}. */
+    BLOCKING {
+        @Override
+        public WaitStrategy create() {
+            return new BlockingWaitStrategy();
+        }
+    },
+
+    /** Spin in a tight loop. See {@link BusySpinWaitStrategy}. */
+    BUSY_SPIN {
+        @Override
+        public WaitStrategy create() {
+            return new BusySpinWaitStrategy();
+        }
+    },
+
+    /** Spin, yield and then park. See {@link ParkingWaitStrategy}. */
+    PARKING {
+        @Override
+        public WaitStrategy create() {
+            return new ParkingWaitStrategy();
+        }
+    },
+
+    /** Spin and then yield. See {@link YieldingWaitStrategy}. */
+    YIELDING {
+        @Override
+        public WaitStrategy create() {
+            return new YieldingWaitStrategy();
+        }
+    };
+}
@@ -0,0 +1,86 @@
+/*
+ * #%L
+ * YieldingWaitStrategy.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.client.wait;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * YieldingWaitStrategy re-checks the condition in a loop for a short number of
+ * iterations and then yields the CPU between each check. This gives a low
+ * hand-off latency while allowing other threads to run but the waiting thread
+ * still never sleeps.
+ *
+ * @api.internal This class is part of the driver's internal API. Users of this
+ *               API should advertise the explicit version of the driver they
+ *               are compatible with. Public and protected members may be
+ *               modified between non-bugfix releases (version numbers are
+ *               &lt;major&gt;.&lt;minor&gt;.&lt;bugfix&gt;).
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+@ThreadSafe
+public class YieldingWaitStrategy
+        implements WaitStrategy {
+
+    /** The number of times to spin before yielding. */
+    public static final int SPIN_ITERATIONS = 100;
+
+    /**
+     * Creates a new YieldingWaitStrategy.
+     */
+    public YieldingWaitStrategy() {
+        super();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to do nothing since waiting threads never block.
+     * </p>
+     */
+    @Override
+    public void signalAll() {
+        // Nothing to do.
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to spin and then yield until the condition is satisfied.
+     * </p>
+     */
+    @Override
+    public void waitFor(final WaitCondition condition)
+            throws InterruptedException {
+        int iterations = 0;
+        while (!condition.isSatisfied()) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+
+            if (iterations < SPIN_ITERATIONS) {
+                iterations += 1;
+            }
+            else {
+                Thread.yield();
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * #%L
+ * package-info.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+/**
+ * Strategies for a thread to wait for a hand-off from another thread.
+ *
+ * <h2>Usage</h2>
+ * <p>
+ * Users should not need to directly use the classes within this package other
+ * than to select a {@link com.allanbank.mongodb.client.wait.WaitStrategyType}
+ * or provide a custom
+ * {@link com.allanbank.mongodb.client.wait.WaitStrategyFactory}.
+ * </p>
+ *
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+package com.allanbank.mongodb.client.wait;
@@ -0,0 +1,1322 @@
+/*
+ * #%L
+ * AsyncGridFs.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.gridfs;
+
+import static com.allanbank.mongodb.builder.QueryBuilder.where;
+import static com.allanbank.mongodb.builder.Sort.asc;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.allanbank.mongodb.Callback;
+import com.allanbank.mongodb.ListenableFuture;
+import com.allanbank.mongodb.MongoCollection;
+import com.allanbank.mongodb.MongoDatabase;
+import com.allanbank.mongodb.MongoDbException;
+import com.allanbank.mongodb.MongoIterator;
+import com.allanbank.mongodb.StreamCallback;
+import com.allanbank.mongodb.bson.Document;
+import com.allanbank.mongodb.bson.Element;
+import com.allanbank.mongodb.bson.builder.BuilderFactory;
+import com.allanbank.mongodb.bson.builder.DocumentBuilder;
+import com.allanbank.mongodb.bson.element.BinaryElement;
+import com.allanbank.mongodb.bson.element.ObjectId;
+import com.allanbank.mongodb.builder.Find;
+import com.allanbank.mongodb.client.FutureCallback;
+import com.allanbank.mongodb.util.IOUtils;
+
+/**
+ * AsyncGridFs provides an asynchronous interface for working with a GridFS
+ * collection. It stores files in the same format as {@link GridFs}.
+ * <p>
+ * A file's chunks are written via a window of concurrent inserts and, without
+ * an {@link #setExecutor(Executor) executor}, read via a single streaming
+ * cursor so many concurrent transfers can share the driver's I/O threads.
+ * </p>
+ * <p>
+ * The {@code source} for a write and the {@code sink} for a read are blocking
+ * streams. If an {@link #setExecutor(Executor) executor} is set then all of
+ * the reads from the {@code source} and writes to the {@code sink} are
+ * performed by the executor's threads and the methods do not block the
+ * calling thread. A read then iterates over the file's chunks on an
+ * executor's thread, which limits the chunks held in memory to the cursor's
+ * batches. Without an executor the first chunks of a write, up to the
+ * {@link #getWriteWindow() write window}, are read from the {@code source} on
+ * the calling thread and the remaining chunks and the {@code sink} for a read
+ * are handled on the driver's receive threads.
+ * </p>
+ *
+ * @api.yes This class is part of the driver's API. Public and protected members
+ *          will be deprecated for at least 1 non-bugfix release (version
+ *          numbers are &lt;major&gt;.&lt;minor&gt;.&lt;bugfix&gt;) before being
+ *          removed or modified.
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+@ThreadSafe
+public class AsyncGridFs {
+
+    /** The GridFS chunks collection. */
+    private final MongoCollection myChunksCollection;
+
+    /** The size for a chunk written. */
+    private volatile int myChunkSize = GridFs.DEFAULT_CHUNK_SIZE;
+
+    /** The GridFS database. */
+    private final MongoDatabase myDatabase;
+
+    /**
+     * The executor for reading from the sources and writing to the sinks. May
+     * be <code>null</code>.
+     */
+    private volatile Executor myExecutor = null;
+
+    /** The GridFS files collection. */
+    private final MongoCollection myFilesCollection;
+
+    /** The root name for the GridFS collections. */
+    private final String myRootName;
+
+    /** The maximum number of chunk inserts in-flight when writing a file. */
+    private volatile int myWriteWindow = GridFs.DEFAULT_WRITE_WINDOW;
+
+    /**
+     * Creates a new AsyncGridFs.
+     * <p>
+     * The GridFS objects will be stored in the 'fs' collection.
+     * </p>
+     *
+     * @param database
+     *            The database containing the GridFS collections.
+     */
+    public AsyncGridFs(final MongoDatabase database) {
+        this(database, GridFs.DEFAULT_ROOT);
+    }
+
+    /**
+     * Creates a new AsyncGridFs.
+     *
+     * @param database
+     *            The database containing the GridFS collections.
+     * @param rootName
+     *            The rootName for the collections. The
+     *            {@link GridFs#FILES_SUFFIX} and {@link GridFs#CHUNKS_SUFFIX}
+     *            will be appended to create the two collection names.
+     */
+    public AsyncGridFs(final MongoDatabase database, final String rootName) {
+        myRootName = rootName;
+        myDatabase = database;
+        myFilesCollection = database.getCollection(rootName
+                + GridFs.FILES_SUFFIX);
+        myChunksCollection = database.getCollection(rootName
+                + GridFs.CHUNKS_SUFFIX);
+    }
+
+    /**
+     * Returns the size for a chunk written.
+     *
+     * @return The size for a chunk written.
+     */
+    public int getChunkSize() {
+        return myChunkSize;
+    }
+
+    /**
+     * Returns the executor for reading from the {@code source} of writes and
+     * writing to the {@code sink} of reads.
+     *
+     * @return The executor for the stream I/O or <code>null</code> if the
+     *         stream I/O is performed on the calling and receive threads.
+     */
+    public Executor getExecutor() {
+        return myExecutor;
+    }
+
+    /**
+     * Returns the maximum number of chunk inserts that may be in-flight when
+     * writing a file.
+     *
+     * @return The maximum number of chunk inserts that may be in-flight when
+     *         writing a file.
+     */
+    public int getWriteWindow() {
+        return myWriteWindow;
+    }
+
+    /**
+     * Reads a file from the GridFS collections and writes the contents to the
+     * {@code sink}. The {@code results} are notified of the number of bytes
+     * written once the file has been read and verified.
+     *
+     * @param results
+     *            The callback to notify of the number of bytes read. A
+     *            {@link FileNotFoundException} is reported if the file does
+     *            not exist.
+     * @param id
+     *            The id of the file.
+     * @param sink
+     *            The stream to write the data to. This stream will not be
+     *            closed by this method.
+     */
+    public void read(final Callback<Long> results, final ObjectId id,
+            final OutputStream sink) {
+        findFile(new ReadFileCallback(results, id.toString(), sink),
+                where(GridFs.ID_FIELD).equals(id).build());
+    }
+
+    /**
+     * Reads a file from the GridFS collections and writes the contents to the
+     * {@code sink}. The {@code results} are notified of the number of bytes
+     * written once the file has been read and verified.
+     *
+     * @param results
+     *            The callback to notify of the number of bytes read. A
+     *            {@link FileNotFoundException} is reported if the file does
+     *            not exist.
+     * @param name
+     *            The name of the file.
+     * @param sink
+     *            The stream to write the data to. This stream will not be
+     *            closed by this method.
+     */
+    public void read(final Callback<Long> results, final String name,
+            final OutputStream sink) {
+        findFile(new ReadFileCallback(results, name, sink),
+                where(GridFs.FILENAME_FIELD).equals(name).build());
+    }
+
+    /**
+     * Reads a file from the GridFS collections and writes the contents to the
+     * {@code sink}.
+     *
+     * @param id
+     *            The id of the file.
+     * @param sink
+     *            The stream to write the data to. This stream will not be
+     *            closed by this method.
+     * @return The future for the number of bytes read.
+     */
+    public ListenableFuture<Long> read(final ObjectId id,
+            final OutputStream sink) {
+        final FutureCallback<Long> future = new FutureCallback<Long>();
+
+        read(future, id, sink);
+
+        return future;
+    }
+
+    /**
+     * Reads a file from the GridFS collections and writes the contents to the
+     * {@code sink}.
+     *
+     * @param name
+     *            The name of the file.
+     * @param sink
+     *            The stream to write the data to. This stream will not be
+     *            closed by this method.
+     * @return The future for the number of bytes read.
+     */
+    public ListenableFuture<Long> read(final String name,
+            final OutputStream sink) {
+        final FutureCallback<Long> future = new FutureCallback<Long>();
+
+        read(future, name, sink);
+
+        return future;
+    }
+
+    /**
+     * Sets the value of size for a chunk written.
+     *
+     * @param chunkSize
+     *            The new value for the size for a chunk written.
+     */
+    public void setChunkSize(final int chunkSize) {
+        myChunkSize = chunkSize;
+    }
+
+    /**
+     * Sets the executor for reading from the {@code source} of writes and
+     * writing to the {@code sink} of reads. Transfers that have already
+     * started continue to use the previous executor.
+     *
+     * @param executor
+     *            The executor for the stream I/O. If <code>null</code> the
+     *            stream I/O is performed on the calling and receive threads.
+     */
+    public void setExecutor(final Executor executor) {
+        myExecutor = executor;
+    }
+
+    /**
+     * Sets the maximum number of chunk inserts that may be in-flight when
+     * writing a file. Once the window is full no more of the source is read
+     * until the oldest insert completes. This bounds the memory used by each
+     * write to roughly {@code writeWindow * chunkSize} bytes. Values less than
+     * 1 are treated as 1.
+     *
+     * @param writeWindow
+     *            The new value for the maximum number of chunk inserts that
+     *            may be in-flight when writing a file.
+     */
+    public void setWriteWindow(final int writeWindow) {
+        myWriteWindow = writeWindow;
+    }
+
+    /**
+     * Unlinks (deletes) the file from the GridFS collections.
+     *
+     * @param results
+     *            The callback to notify if a file was deleted.
+     * @param id
+     *            The id of the file to be deleted.
+     */
+    public void unlink(final Callback<Boolean> results, final ObjectId id) {
+        findFile(new UnlinkFileCallback(results),
+                where(GridFs.ID_FIELD).equals(id).build());
+    }
+
+    /**
+     * Unlinks (deletes) the file from the GridFS collections.
+     *
+     * @param results
+     *            The callback to notify if a file was deleted.
+     * @param name
+     *            The name of the file to be deleted.
+     */
+    public void unlink(final Callback<Boolean> results, final String name) {
+        findFile(new UnlinkFileCallback(results),
+                where(GridFs.FILENAME_FIELD).equals(name).build());
+    }
+
+    /**
+     * Unlinks (deletes) the file from the GridFS collections.
+     *
+     * @param id
+     *            The id of the file to be deleted.
+     * @return The future for if a file was deleted.
+     */
+    public ListenableFuture<Boolean> unlink(final ObjectId id) {
+        final FutureCallback<Boolean> future = new FutureCallback<Boolean>();
+
+        unlink(future, id);
+
+        return future;
+    }
+
+    /**
+     * Unlinks (deletes) the file from the GridFS collections.
+     *
+     * @param name
+     *            The name of the file to be deleted.
+     * @return The future for if a file was deleted.
+     */
+    public ListenableFuture<Boolean> unlink(final String name) {
+        final FutureCallback<Boolean> future = new FutureCallback<Boolean>();
+
+        unlink(future, name);
+
+        return future;
+    }
+
+    /**
+     * Validates the file from the GridFS collections using the {@code filemd5}
+     * command. See {@link GridFs#validate(ObjectId)} for the limitations of
+     * the command.
+     *
+     * @param results
+     *            The callback to notify if the file is valid. A
+     *            {@link FileNotFoundException} is reported if the file does
+     *            not exist.
+     * @param id
+     *            The id of the file to validate.
+     */
+    public void validate(final Callback<Boolean> results, final ObjectId id) {
+        findFile(new ValidateFileCallback(results, id.toString()),
+                where(GridFs.ID_FIELD).equals(id).build());
+    }
+
+    /**
+     * Validates the file from the GridFS collections using the {@code filemd5}
+     * command. See {@link GridFs#validate(String)} for the limitations of the
+     * command.
+     *
+     * @param results
+     *            The callback to notify if the file is valid. A
+     *            {@link FileNotFoundException} is reported if the file does
+     *            not exist.
+     * @param name
+     *            The name of the file to validate.
+     */
+    public void validate(final Callback<Boolean> results, final String name) {
+        findFile(new ValidateFileCallback(results, name),
+                where(GridFs.FILENAME_FIELD).equals(name).build());
+    }
+
+    /**
+     * Validates the file from the GridFS collections using the {@code filemd5}
+     * command.
+     *
+     * @param id
+     *            The id of the file to validate.
+     * @return The future for if the file is valid.
+     */
+    public ListenableFuture<Boolean> validate(final ObjectId id) {
+        final FutureCallback<Boolean> future = new FutureCallback<Boolean>();
+
+        validate(future, id);
+
+        return future;
+    }
+
+    /**
+     * Validates the file from the GridFS collections using the {@code filemd5}
+     * command.
+     *
+     * @param name
+     *            The name of the file to validate.
+     * @return The future for if the file is valid.
+     */
+    public ListenableFuture<Boolean> validate(final String name) {
+        final FutureCallback<Boolean> future = new FutureCallback<Boolean>();
+
+        validate(future, name);
+
+        return future;
+    }
+
+    /**
+     * Writes a file into the GridFS collections using the specified name for
+     * the file and deriving the chunks from the data read from the
+     * {@code source}. Up to {@link #getWriteWindow()} chunk inserts are
+     * in-flight at a time.
+     *
+     * @param results
+     *            The callback to notify of the {@link ObjectId} associated
+     *            with the file. In the case of a failure an attempt is made to
+     *            remove the documents written to the collections.
+     * @param name
+     *            The name of the file being written.
+     * @param source
+     *            The source of the bits in the file. This stream will not be
+     *            closed.
+     */
+    public void write(final Callback<ObjectId> results, final String name,
+            final InputStream source) {
+        try {
+            new WritePump(results, name, source).pump();
+        }
+        catch (final NoSuchAlgorithmException e) {
+            results.exception(new IOException(e));
+        }
+    }
+
+    /**
+     * Writes a file into the GridFS collections using the specified name for
+     * the file and deriving the chunks from the data read from the
+     * {@code source}.
+     *
+     * @param name
+     *            The name of the file being written.
+     * @param source
+     *            The source of the bits in the file. This stream will not be
+     *            closed.
+     * @return The future for the {@link ObjectId} associated with the file.
+     */
+    public ListenableFuture<ObjectId> write(final String name,
+            final InputStream source) {
+        final FutureCallback<ObjectId> future = new FutureCallback<ObjectId>();
+
+        write(future, name, source);
+
+        return future;
+    }
+
+    /**
+     * Streams the file's chunks to the {@code sink}. If there is an
+     * {@link #getExecutor() executor} then the chunks are iterated over and
+     * written on one of its threads.
+     *
+     * @param fileDoc
+     *            The document for the file.
+     * @param sink
+     *            The stream to write the data to. This stream will not be
+     *            closed by this method.
+     * @param results
+     *            The callback to notify of the number of bytes read.
+     */
+    protected void doRead(final Document fileDoc, final OutputStream sink,
+            final Callback<Long> results) {
+        final Element id = fileDoc.get(GridFs.ID_FIELD);
+
+        final DocumentBuilder queryDoc = BuilderFactory.start();
+        queryDoc.add(id.withName(GridFs.FILES_ID_FIELD));
+
+        final Find.Builder findBuilder = new Find.Builder(queryDoc.build());
+        findBuilder.setSort(asc(GridFs.CHUNK_NUMBER_FIELD));
+
+        // Small batch size since the docs are big and we can do parallel I/O.
+        findBuilder.setBatchSize(2);
+
+        final ChunkStreamCallback callback = new ChunkStreamCallback(
+                new ChunkWriter(fileDoc, sink), sink, results);
+        final Executor executor = myExecutor;
+        if (executor == null) {
+            myChunksCollection.stream(callback, findBuilder.build());
+        }
+        else {
+            try {
+                executor.execute(new ChunkReader(callback, findBuilder
+                        .build()));
+            }
+            catch (final RejectedExecutionException rejected) {
+                results.exception(rejected);
+            }
+        }
+    }
+
+    /**
+     * Deletes the file's chunks and then the file's document.
+     *
+     * @param fileDoc
+     *            The document for the file to delete.
+     * @param results
+     *            The callback to notify if a file was deleted.
+     */
+    protected void doUnlink(final Document fileDoc,
+            final Callback<Boolean> results) {
+        final Element id = fileDoc.get(GridFs.ID_FIELD);
+
+        final DocumentBuilder queryDoc = BuilderFactory.start();
+        queryDoc.add(id.withName(GridFs.FILES_ID_FIELD));
+
+        myChunksCollection.deleteAsync(new UnlinkChunksCallback(id, results),
+                queryDoc.build());
+    }
+
+    /**
+     * Runs the {@code filemd5} command for the file and compares the result to
+     * the file's MD5.
+     *
+     * @param fileDoc
+     *            The document for the file to validate.
+     * @param results
+     *            The callback to notify if the file is valid.
+     */
+    protected void doValidate(final Document fileDoc,
+            final Callback<Boolean> results) {
+        final Element id = fileDoc.get(GridFs.ID_FIELD);
+
+        final DocumentBuilder commandDoc = BuilderFactory.start();
+        commandDoc.add(id.withName("filemd5"));
+        commandDoc.add("root", myRootName);
+
+        myDatabase.runCommandAsync(
+                new ValidateCallback(fileDoc.get(GridFs.MD5_FIELD), results),
+                commandDoc.build());
+    }
+
+    /**
+     * Looks up the document for a file, reporting any immediate failure to the
+     * callback.
+     *
+     * @param callback
+     *            The callback for the file's document.
+     * @param query
+     *            The query for the file's document.
+     */
+    private void findFile(final Callback<Document> callback,
+            final Document query) {
+        try {
+            myFilesCollection.findOneAsync(callback, query);
+        }
+        catch (final MongoDbException error) {
+            callback.exception(error);
+        }
+    }
+
+    /**
+     * ChunkReader iterates over the file's chunks on an executor's thread,
+     * forwarding each chunk to the {@link ChunkStreamCallback}.
+     *
+     * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+     */
+    private final class ChunkReader implements Runnable {
+
+        /** The callback to forward the chunks to. */
+        private final ChunkStreamCallback myCallback;
+
+        /** The query for the file's chunks. */
+        private final Find myQuery;
+
+        /**
+         * Creates a new ChunkReader.
+         *
+         * @param callback
+         *            The callback to forward the chunks to.
+         * @param query
+         *            The query for the file's chunks.
+         */
+        public ChunkReader(final ChunkStreamCallback callback, final Find query) {
+            myCallback = callback;
+            myQuery = query;
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to iterate over the chunks and then complete the
+         * callback. A failure stops the iteration and closes the cursor.
+         * </p>
+         */
+        @Override
+        public void run() {
+            MongoIterator<Document> iter = null;
+            try {
+                iter = myChunksCollection.find(myQuery);
+                while (iter.hasNext()) {
+                    myCallback.callback(iter.next());
+                }
+                myCallback.done();
+            }
+            catch (final RuntimeException error) {
+                myCallback.exception(error);
+            }
+            finally {
+                if (iter != null) {
+                    iter.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * ChunkStreamCallback writes each chunk streamed from the server to the
+     * {@link ChunkWriter} and verifies the file once the stream is done.
+     *
+     * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+     */
+    private static final class ChunkStreamCallback implements
+            StreamCallback<Document> {
+
+        /** The callback to notify of the number of bytes read. */
+        private final Callback<Long> myResults;
+
+        /** The stream to write the data to. */
+        private final OutputStream mySink;
+
+        /** The writer for the chunks. */
+        private final ChunkWriter myWriter;
+
+        /**
+         * Creates a new ChunkStreamCallback.
+         *
+         * @param writer
+         *            The writer for the chunks.
+         * @param sink
+         *            The stream to write the data to.
+         * @param results
+         *            The callback to notify of the number of bytes read.
+         */
+        public ChunkStreamCallback(final ChunkWriter writer,
+                final OutputStream sink, final Callback<Long> results) {
+            myWriter = writer;
+            mySink = sink;
+            myResults = results;
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to write the chunk. A failure writing the chunk
+         * terminates the stream.
+         * </p>
+         */
+        @Override
+        public void callback(final Document chunk) {
+            try {
+                myWriter.write(chunk);
+            }
+            catch (final IOException error) {
+                throw new MongoDbException(error);
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to verify the file and notify the results.
+         * </p>
+         */
+        @Override
+        public void done() {
+            try {
+                mySink.flush();
+                myWriter.finish();
+
+                myResults.callback(Long.valueOf(myWriter.getSize()));
+            }
+            catch (final IOException error) {
+                myResults.exception(error);
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to forward the error to the results, unwrapping any
+         * failure writing a chunk.
+         * </p>
+         */
+        @Override
+        public void exception(final Throwable thrown) {
+            if ((thrown instanceof MongoDbException)
+                    && (thrown.getCause() instanceof IOException)) {
+                myResults.exception(thrown.getCause());
+            }
+            else {
+                myResults.exception(thrown);
+            }
+        }
+    }
+
+    /**
+     * ReadFileCallback starts streaming the file's chunks once the file's
+     * document is found.
+     *
+     * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+     */
+    private final class ReadFileCallback implements Callback<Document> {
+
+        /** The name or id of the file. */
+        private final String myName;
+
+        /** The callback to notify of the number of bytes read. */
+        private final Callback<Long> myResults;
+
+        /** The stream to write the data to. */
+        private final OutputStream mySink;
+
+        /**
+         * Creates a new ReadFileCallback.
+         *
+         * @param results
+         *            The callback to notify of the number of bytes read.
+         * @param name
+         *            The name or id of the file.
+         * @param sink
+         *            The stream to write the data to.
+         */
+        public ReadFileCallback(final Callback<Long> results,
+                final String name, final OutputStream sink) {
+            myResults = results;
+            myName = name;
+            mySink = sink;
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to start reading the file's chunks.
+         * </p>
+         */
+        @Override
+        public void callback(final Document fileDoc) {
+            if (fileDoc == null) {
+                myResults.exception(new FileNotFoundException(myName));
+            }
+            else {
+                try {
+                    doRead(fileDoc, mySink, myResults);
+                }
+                catch (final MongoDbException error) {
+                    myResults.exception(error);
+                }
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to forward the error to the results.
+         * </p>
+         */
+        @Override
+        public void exception(final Throwable thrown) {
+            myResults.exception(thrown);
+        }
+    }
+
+    /**
+     * UnlinkChunksCallback deletes the file's document once the file's chunks
+     * have been deleted.
+     *
+     * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+     */
+    private final class UnlinkChunksCallback implements Callback<Long> {
+
+        /** The id of the file. */
+        private final Element myId;
+
+        /** The callback to notify if a file was deleted. */
+        private final Callback<Boolean> myResults;
+
+        /**
+         * Creates a new UnlinkChunksCallback.
+         *
+         * @param id
+         *            The id of the file.
+         * @param results
+         *            The callback to notify if a file was deleted.
+         */
+        public UnlinkChunksCallback(final Element id,
+                final Callback<Boolean> results) {
+            myId = id;
+            myResults = results;
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to delete the file's document.
+         * </p>
+         */
+        @Override
+        public void callback(final Long chunksDeleted) {
+            final DocumentBuilder queryDoc = BuilderFactory.start();
+            queryDoc.add(myId);
+
+            try {
+                myFilesCollection.deleteAsync(new Callback<Long>() {
+                    @Override
+                    public void callback(final Long filesDeleted) {
+                        myResults.callback(Boolean.valueOf(0 < filesDeleted
+                                .longValue()));
+                    }
+
+                    @Override
+                    public void exception(final Throwable thrown) {
+                        myResults.exception(thrown);
+                    }
+                }, queryDoc.build());
+            }
+            catch (final MongoDbException error) {
+                myResults.exception(error);
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to forward the error to the results.
+         * </p>
+         */
+        @Override
+        public void exception(final Throwable thrown) {
+            myResults.exception(thrown);
+        }
+    }
+
+    /**
+     * UnlinkFileCallback starts deleting the file once the file's document is
+     * found.
+     *
+     * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+     */
+    private final class UnlinkFileCallback implements Callback<Document> {
+
+        /** The callback to notify if a file was deleted. */
+        private final Callback<Boolean> myResults;
+
+        /**
+         * Creates a new UnlinkFileCallback.
+         *
+         * @param results
+         *            The callback to notify if a file was deleted.
+         */
+        public UnlinkFileCallback(final Callback<Boolean> results) {
+            myResults = results;
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to delete the file.
+         * </p>
+         */
+        @Override
+        public void callback(final Document fileDoc) {
+            if (fileDoc == null) {
+                myResults.callback(Boolean.FALSE);
+            }
+            else {
+                try {
+                    doUnlink(fileDoc, myResults);
+                }
+                catch (final MongoDbException error) {
+                    myResults.exception(error);
+                }
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to forward the error to the results.
+         * </p>
+         */
+        @Override
+        public void exception(final Throwable thrown) {
+            myResults.exception(thrown);
+        }
+    }
+
+    /**
+     * ValidateCallback compares the result of the {@code filemd5} command to
+     * the file's MD5.
+     *
+     * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+     */
+    private static final class ValidateCallback implements Callback<Document> {
+
+        /** The MD5 from the file's document. */
+        private final Element myMd5;
+
+        /** The callback to notify if the file is valid. */
+        private final Callback<Boolean> myResults;
+
+        /**
+         * Creates a new ValidateCallback.
+         *
+         * @param md5
+         *            The MD5 from the file's document.
+         * @param results
+         *            The callback to notify if the file is valid.
+         */
+        public ValidateCallback(final Element md5,
+                final Callback<Boolean> results) {
+            myMd5 = md5;
+            myResults = results;
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to compare the MD5 values.
+         * </p>
+         */
+        @Override
+        public void callback(final Document result) {
+            myResults.callback(Boolean.valueOf((myMd5 != null)
+                    && myMd5.equals(result.findFirst(GridFs.MD5_FIELD))));
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to forward the error to the results.
+         * </p>
+         */
+        @Override
+        public void exception(final Throwable thrown) {
+            myResults.exception(thrown);
+        }
+    }
+
+    /**
+     * ValidateFileCallback runs the {@code filemd5} command once the file's
+     * document is found.
+     *
+     * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+     */
+    private final class ValidateFileCallback implements Callback<Document> {
+
+        /** The name or id of the file. */
+        private final String myName;
+
+        /** The callback to notify if the file is valid. */
+        private final Callback<Boolean> myResults;
+
+        /**
+         * Creates a new ValidateFileCallback.
+         *
+         * @param results
+         *            The callback to notify if the file is valid.
+         * @param name
+         *            The name or id of the file.
+         */
+        public ValidateFileCallback(final Callback<Boolean> results,
+                final String name) {
+            myResults = results;
+            myName = name;
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to validate the file.
+         * </p>
+         */
+        @Override
+        public void callback(final Document fileDoc) {
+            if (fileDoc == null) {
+                myResults.exception(new FileNotFoundException(myName));
+            }
+            else {
+                try {
+                    doValidate(fileDoc, myResults);
+                }
+                catch (final MongoDbException error) {
+                    myResults.exception(error);
+                }
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to forward the error to the results.
+         * </p>
+         */
+        @Override
+        public void exception(final Throwable thrown) {
+            myResults.exception(thrown);
+        }
+    }
+
+    /**
+     * WritePump reads chunks from the source and inserts them with up to the
+     * write window of inserts in-flight. As each insert completes the pump
+     * reads and inserts the next chunk. Once the source is exhausted and all of
+     * the chunks are inserted the file's document is inserted.
+     * <p>
+     * Only one thread pumps at a time. An insert that completes while another
+     * thread is pumping, including one that completes from within the call to
+     * insert, causes that thread to pump again rather than recursing. If there
+     * is an executor then the pumping, and so all reads from the source, is
+     * performed on its threads.
+     * </p>
+     *
+     * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+     */
+    private final class WritePump implements Callback<Integer>, Runnable {
+
+        /** The buffer for reading chunks. */
+        private final byte[] myBuffer;
+
+        /** The number of chunks inserted. */
+        private int myChunkCount;
+
+        /** The first error writing the file. */
+        private Throwable myError;
+
+        /** True once the file's document has been inserted. */
+        private boolean myFileInserted;
+
+        /** True once the results have been notified. */
+        private boolean myFinished;
+
+        /** The id of the file. */
+        private final ObjectId myId;
+
+        /** The number of bytes read from the source. */
+        private long myLength;
+
+        /** The executor to pump on. May be <code>null</code>. */
+        private final Executor myIoExecutor;
+
+        /** The digest for the MD5 of the file. */
+        private final MessageDigest myMd5Digest;
+
+        /** The name of the file. */
+        private final String myName;
+
+        /** The number of inserts in-flight. */
+        private int myOutstanding;
+
+        /** True if a thread is pumping. */
+        private boolean myPumping;
+
+        /** True if the pumping thread should pump again. */
+        private boolean myRepump;
+
+        /** The callback to notify of the id of the file. */
+        private final Callback<ObjectId> myResults;
+
+        /** The source of the file's data. */
+        private final InputStream mySource;
+
+        /** True once the source has been exhausted. */
+        private boolean mySourceDone;
+
+        /** The maximum number of inserts in-flight. */
+        private final int myWindow;
+
+        /**
+         * Creates a new WritePump.
+         *
+         * @param results
+         *            The callback to notify of the id of the file.
+         * @param name
+         *            The name of the file.
+         * @param source
+         *            The source of the file's data.
+         * @throws NoSuchAlgorithmException
+         *             If the MD5 digest is not available.
+         */
+        public WritePump(final Callback<ObjectId> results, final String name,
+                final InputStream source) throws NoSuchAlgorithmException {
+            myResults = results;
+            myName = name;
+            mySource = source;
+            myId = new ObjectId();
+            myMd5Digest = MessageDigest.getInstance("MD5");
+            myBuffer = new byte[myChunkSize];
+            myWindow = Math.max(1, myWriteWindow);
+            myIoExecutor = myExecutor;
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to pump the next chunk once an insert completes.
+         * </p>
+         */
+        @Override
+        public void callback(final Integer result) {
+            synchronized (this) {
+                myOutstanding -= 1;
+            }
+            pump();
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to record the error and finish once the in-flight inserts
+         * complete.
+         * </p>
+         */
+        @Override
+        public void exception(final Throwable thrown) {
+            synchronized (this) {
+                myOutstanding -= 1;
+                if (myError == null) {
+                    myError = thrown;
+                }
+            }
+            pump();
+        }
+
+        /**
+         * Pumps chunks from the source until the write window is full, the
+         * source is exhausted or an error occurs. If there is an executor then
+         * the pumping is performed on one of its threads.
+         */
+        public void pump() {
+            synchronized (this) {
+                if (myPumping) {
+                    myRepump = true;
+                    return;
+                }
+                myPumping = true;
+            }
+
+            if (myIoExecutor != null) {
+                try {
+                    myIoExecutor.execute(this);
+                    return;
+                }
+                catch (final RejectedExecutionException rejected) {
+                    // Fail the write without reading from the source.
+                    synchronized (this) {
+                        if (myError == null) {
+                            myError = rejected;
+                        }
+                    }
+                }
+            }
+            run();
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to pump chunks until the pump does not need to pump
+         * again. Only called by the thread that set the pumping flag.
+         * </p>
+         */
+        @Override
+        public void run() {
+            boolean again = true;
+            while (again) {
+                fill();
+
+                synchronized (this) {
+                    again = myRepump;
+                    myRepump = false;
+                    myPumping = again;
+                }
+            }
+        }
+
+        /**
+         * Removes any documents written for the file and notifies the results
+         * of the error.
+         *
+         * @param error
+         *            The error writing the file.
+         */
+        private void fail(final Throwable error) {
+            try {
+                myFilesCollection.deleteAsync(where(GridFs.ID_FIELD).equals(
+                        myId));
+                myChunksCollection.deleteAsync(where(GridFs.FILES_ID_FIELD)
+                        .equals(myId));
+            }
+            catch (final MongoDbException ignore) {
+                // Report the original error.
+            }
+            myResults.exception(error);
+        }
+
+        /**
+         * Reads and inserts chunks until the window is full. If all of the
+         * chunks have been inserted then inserts the file's document or
+         * notifies the results.
+         */
+        private void fill() {
+            while (true) {
+                final Throwable error;
+                synchronized (this) {
+                    if (myFinished || (myWindow <= myOutstanding)) {
+                        return;
+                    }
+                    error = myError;
+                    if (((error != null) || mySourceDone) && (0 < myOutstanding)) {
+                        return;
+                    }
+                    if ((error != null) || (mySourceDone && myFileInserted)) {
+                        myFinished = true;
+                    }
+                }
+
+                if (error != null) {
+                    fail(error);
+                    return;
+                }
+                else if (mySourceDone && myFileInserted) {
+                    myResults.callback(myId);
+                    return;
+                }
+                else if (mySourceDone) {
+                    insert(myFilesCollection, fileDocument());
+                    myFileInserted = true;
+                }
+                else {
+                    readChunk();
+                }
+            }
+        }
+
+        /**
+         * Creates the file's document.
+         *
+         * @return The file's document.
+         */
+        private Document fileDocument() {
+            final DocumentBuilder doc = BuilderFactory.start();
+            doc.addObjectId(GridFs.ID_FIELD, myId);
+            doc.addString(GridFs.FILENAME_FIELD, myName);
+            doc.addTimestamp(GridFs.UPLOAD_DATE_FIELD,
+                    System.currentTimeMillis());
+            doc.addInteger(GridFs.CHUNK_SIZE_FIELD, myBuffer.length);
+            doc.addLong(GridFs.LENGTH_FIELD, myLength);
+            doc.addString(GridFs.MD5_FIELD,
+                    IOUtils.toHex(myMd5Digest.digest()));
+
+            return doc.build();
+        }
+
+        /**
+         * Inserts the document into the collection with this pump as the
+         * callback.
+         *
+         * @param collection
+         *            The collection to insert into.
+         * @param document
+         *            The chunk or file document to insert.
+         */
+        private void insert(final MongoCollection collection,
+                final Document document) {
+            synchronized (this) {
+                myOutstanding += 1;
+            }
+            try {
+                collection.insertAsync(this, document);
+            }
+            catch (final MongoDbException error) {
+                exception(error);
+            }
+        }
+
+        /**
+         * Reads the next chunk from the source and inserts it.
+         */
+        private void readChunk() {
+            try {
+                final int read = GridFs.readFully(mySource, myBuffer);
+                if (read <= 0) {
+                    mySourceDone = true;
+                    return;
+                }
+
+                final DocumentBuilder doc = BuilderFactory.start();
+                doc.addObjectId(GridFs.ID_FIELD, new ObjectId());
+                doc.addObjectId(GridFs.FILES_ID_FIELD, myId);
+                doc.addInteger(GridFs.CHUNK_NUMBER_FIELD, myChunkCount);
+
+                myMd5Digest.update(myBuffer, 0, read);
+                doc.add(new BinaryElement(GridFs.DATA_FIELD,
+                        BinaryElement.DEFAULT_SUB_TYPE, myBuffer, 0, read));
+
+                myChunkCount += 1;
+                myLength += read;
+
+                insert(myChunksCollection, doc.build());
+            }
+            catch (final IOException ioe) {
+                synchronized (this) {
+                    if (myError == null) {
+                        myError = ioe;
+                    }
+                }
+            }
+        }
+    }
+}
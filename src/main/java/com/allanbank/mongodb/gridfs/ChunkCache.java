@@ -0,0 +1,216 @@
+/*
+ * #%L
+ * ChunkCache.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.gridfs;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.allanbank.mongodb.bson.element.BinaryElement;
+
+/**
+ * ChunkCache provides a small least-recently-used cache of the data for
+ * GridFS chunks. Since GridFS files are not modified once written the cached
+ * data only needs to be evicted when the file is removed.
+ *
+ * @api.no This class is <b>NOT</b> part of the drivers API. This class may be
+ *         mutated in incompatible ways between any two releases of the driver.
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+@ThreadSafe
+/* package */final class ChunkCache {
+
+    /** The cached chunks in least-recently-used order. */
+    private final LinkedHashMap<Key, BinaryElement> myChunks;
+
+    /** The maximum number of chunks to cache. */
+    private int myMaxChunks;
+
+    /**
+     * Creates a new ChunkCache.
+     *
+     * @param maxChunks
+     *            The maximum number of chunks to cache.
+     */
+    public ChunkCache(final int maxChunks) {
+        myMaxChunks = maxChunks;
+        myChunks = new LinkedHashMap<Key, BinaryElement>(16, 0.75F, true);
+    }
+
+    /**
+     * Removes all of the chunks for the file from the cache.
+     *
+     * @param fileId
+     *            The id of the file.
+     */
+    public synchronized void evict(final Object fileId) {
+        final Iterator<Key> iter = myChunks.keySet().iterator();
+        while (iter.hasNext()) {
+            if (iter.next().myFileId.equals(fileId)) {
+                iter.remove();
+            }
+        }
+    }
+
+    /**
+     * Returns the cached data for the chunk or <code>null</code> if the chunk
+     * is not cached.
+     *
+     * @param fileId
+     *            The id of the file.
+     * @param n
+     *            The chunk number.
+     * @return The cached data for the chunk or <code>null</code>.
+     */
+    public synchronized BinaryElement get(final Object fileId, final long n) {
+        return myChunks.get(new Key(fileId, n));
+    }
+
+    /**
+     * Returns the maximum number of chunks to cache.
+     *
+     * @return The maximum number of chunks to cache.
+     */
+    public synchronized int getMaxChunks() {
+        return myMaxChunks;
+    }
+
+    /**
+     * Adds the data for the chunk to the cache, evicting the least recently
+     * used chunks if the cache is full.
+     *
+     * @param fileId
+     *            The id of the file.
+     * @param n
+     *            The chunk number.
+     * @param data
+     *            The data for the chunk.
+     */
+    public synchronized void put(final Object fileId, final long n,
+            final BinaryElement data) {
+        if (0 < myMaxChunks) {
+            myChunks.put(new Key(fileId, n), data);
+            trim();
+        }
+    }
+
+    /**
+     * Sets the maximum number of chunks to cache, evicting the least recently
+     * used chunks if the cache is now too large.
+     *
+     * @param maxChunks
+     *            The new maximum number of chunks to cache.
+     */
+    public synchronized void setMaxChunks(final int maxChunks) {
+        myMaxChunks = maxChunks;
+        trim();
+    }
+
+    /**
+     * Returns the number of chunks in the cache.
+     *
+     * @return The number of chunks in the cache.
+     */
+    public synchronized int size() {
+        return myChunks.size();
+    }
+
+    /**
+     * Evicts the least recently used chunks until the cache is within its
+     * limit.
+     */
+    private void trim() {
+        final Iterator<Map.Entry<Key, BinaryElement>> iter = myChunks
+                .entrySet().iterator();
+        while ((Math.max(0, myMaxChunks) < myChunks.size()) && iter.hasNext()) {
+            iter.next();
+            iter.remove();
+        }
+    }
+
+    /**
+     * Key provides the key for a chunk in the cache.
+     *
+     * @api.no This class is <b>NOT</b> part of the drivers API. This class may
+     *         be mutated in incompatible ways between any two releases of the
+     *         driver.
+     * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+     */
+    private static final class Key {
+
+        /** The id of the file. */
+        /* package */final Object myFileId;
+
+        /** The chunk number. */
+        private final long myN;
+
+        /**
+         * Creates a new Key.
+         *
+         * @param fileId
+         *            The id of the file.
+         * @param n
+         *            The chunk number.
+         */
+        public Key(final Object fileId, final long n) {
+            myFileId = fileId;
+            myN = n;
+        }
+
+        /**
+         * Determines if the passed object is of this same type as this object
+         * and if so that its fields are equal.
+         *
+         * @param object
+         *            The object to compare to.
+         *
+         * @see java.lang.Object#equals(java.lang.Object)
+         */
+        @Override
+        public boolean equals(final Object object) {
+            boolean result = false;
+            if (this == object) {
+                result = true;
+            }
+            else if ((object != null) && (getClass() == object.getClass())) {
+                final Key other = (Key) object;
+
+                result = (myN == other.myN) && myFileId.equals(other.myFileId);
+            }
+            return result;
+        }
+
+        /**
+         * Computes a reasonable hash code.
+         *
+         * @return The hash code value.
+         */
+        @Override
+        public int hashCode() {
+            int result = 1;
+            result = (31 * result) + myFileId.hashCode();
+            result = (31 * result) + (int) (myN ^ (myN >>> 32));
+            return result;
+        }
+    }
+}
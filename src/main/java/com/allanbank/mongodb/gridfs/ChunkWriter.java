@@ -0,0 +1,211 @@
+/*
+ * #%L
+ * ChunkWriter.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.gridfs;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.allanbank.mongodb.bson.Document;
+import com.allanbank.mongodb.bson.NumericElement;
+import com.allanbank.mongodb.bson.element.BinaryElement;
+import com.allanbank.mongodb.bson.element.StringElement;
+import com.allanbank.mongodb.util.IOUtils;
+
+/**
+ * ChunkWriter validates each chunk of a file is in order and writes the
+ * chunk's data to the sink. Once all of the chunks have been written the
+ * {@link #finish()} method verifies the number of chunks, the length and the
+ * MD5 of the file.
+ *
+ * @api.no This class is <b>NOT</b> part of the drivers API. This class may be
+ *         mutated in incompatible ways between any two releases of the driver.
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+@NotThreadSafe
+/* package */final class ChunkWriter {
+
+    /** The number of chunks written. */
+    private long myChunkCount;
+
+    /** The length of the file or -1 if not known. */
+    private final long myLength;
+
+    /** The expected MD5 of the file or null if not known. */
+    private final StringElement myMd5;
+
+    /** The digest computing the MD5 of the data written or null. */
+    private final MessageDigest myMd5Digest;
+
+    /** The number of chunks in the file or -1 if not known. */
+    private final long myNumberChunks;
+
+    /** The stream to write the data to. */
+    private final OutputStream mySink;
+
+    /** The number of bytes written. */
+    private long mySize;
+
+    /**
+     * Creates a new ChunkWriter.
+     *
+     * @param fileDoc
+     *            The document for the file.
+     * @param sink
+     *            The stream to write the data to.
+     */
+    public ChunkWriter(final Document fileDoc, final OutputStream sink) {
+        long length = -1;
+        final NumericElement lengthElement = fileDoc.get(NumericElement.class,
+                GridFs.LENGTH_FIELD);
+        if (lengthElement != null) {
+            length = lengthElement.getLongValue();
+        }
+
+        long chunkSize = -1;
+        final NumericElement chunkSizeElement = fileDoc.get(
+                NumericElement.class, GridFs.CHUNK_SIZE_FIELD);
+        if (chunkSizeElement != null) {
+            chunkSize = chunkSizeElement.getLongValue();
+        }
+
+        long numberChunks = -1;
+        if ((0 <= length) && (0 < chunkSize)) {
+            numberChunks = (long) Math.ceil((double) length
+                    / (double) chunkSize);
+        }
+
+        // Compute the MD5 as the data is written to avoid another pass.
+        MessageDigest md5Digest = null;
+        OutputStream out = sink;
+        final StringElement md5 = fileDoc.get(StringElement.class,
+                GridFs.MD5_FIELD);
+        if (md5 != null) {
+            try {
+                md5Digest = MessageDigest.getInstance("MD5");
+                out = new DigestOutputStream(sink, md5Digest);
+            }
+            catch (final NoSuchAlgorithmException e) {
+                // Skip the MD5 check.
+            }
+        }
+
+        myLength = length;
+        myNumberChunks = numberChunks;
+        myMd5 = md5;
+        myMd5Digest = md5Digest;
+        mySink = out;
+        myChunkCount = 0;
+        mySize = 0;
+    }
+
+    /**
+     * Verifies that all of the file's chunks have been written and the length
+     * and MD5 of the data written match the file's document.
+     *
+     * @throws IOException
+     *             If the file written is not complete or does not match the
+     *             file's document.
+     */
+    public void finish() throws IOException {
+        if ((0 <= myNumberChunks) && (myChunkCount < myNumberChunks)) {
+            throw new IOException("Missing chunks after '" + myChunkCount
+                    + "' of '" + myNumberChunks + "'.");
+        }
+        if ((0 <= myLength) && (mySize != myLength)) {
+            throw new IOException("File size mismatch. Expected '" + myLength
+                    + "' but only read '" + mySize + "' bytes.");
+        }
+        if (myMd5Digest != null) {
+            final String digest = IOUtils.toHex(myMd5Digest.digest());
+            if (!digest.equalsIgnoreCase(myMd5.getValue())) {
+                throw new IOException("MD5 mismatch. Expected '"
+                        + myMd5.getValue() + "' but read '" + digest + "'.");
+            }
+        }
+    }
+
+    /**
+     * Returns the number of chunks written.
+     *
+     * @return The number of chunks written.
+     */
+    public long getChunkCount() {
+        return myChunkCount;
+    }
+
+    /**
+     * Returns the number of chunks in the file or -1 if not known.
+     *
+     * @return The number of chunks in the file or -1 if not known.
+     */
+    public long getNumberChunks() {
+        return myNumberChunks;
+    }
+
+    /**
+     * Returns the number of bytes written.
+     *
+     * @return The number of bytes written.
+     */
+    public long getSize() {
+        return mySize;
+    }
+
+    /**
+     * Validates the chunk is the next chunk of the file and writes the chunk's
+     * data to the sink.
+     *
+     * @param chunk
+     *            The chunk document.
+     * @throws IOException
+     *             If the chunk is not valid or on a failure writing to the
+     *             sink.
+     */
+    public void write(final Document chunk) throws IOException {
+        final NumericElement n = chunk.get(NumericElement.class,
+                GridFs.CHUNK_NUMBER_FIELD);
+        final BinaryElement bytes = chunk.get(BinaryElement.class,
+                GridFs.DATA_FIELD);
+
+        if (n == null) {
+            throw new IOException("Missing chunk number '"
+                    + (myChunkCount + 1) + "' of '" + myNumberChunks + "'.");
+        }
+        else if (n.getLongValue() != myChunkCount) {
+            throw new IOException("Skipped chunk '" + (myChunkCount + 1)
+                    + "', retreived '" + n.getLongValue() + "' of '"
+                    + myNumberChunks + "'.");
+        }
+        else if (bytes == null) {
+            throw new IOException("Missing bytes in chunk '"
+                    + (myChunkCount + 1) + "' of '" + myNumberChunks + "'.");
+        }
+
+        bytes.writeTo(mySink);
+        myChunkCount += 1;
+        mySize += bytes.length();
+    }
+}
@@ -30,8 +30,9 @@ import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -55,6 +56,7 @@ import com.allanbank.mongodb.bson.builder.DocumentBuilder;
 import com.allanbank.mongodb.bson.element.BinaryElement;
 import com.allanbank.mongodb.bson.element.ObjectId;
 import com.allanbank.mongodb.bson.element.StringElement;
+import com.allanbank.mongodb.builder.ComparisonOperator;
 import com.allanbank.mongodb.builder.Find;
 import com.allanbank.mongodb.builder.Index;
 import com.allanbank.mongodb.util.IOUtils;
@@ -102,15 +104,34 @@ public class GridFs {
      */
     public static final String DATA_FIELD = "data";
 
+    /**
+     * The default number of chunks cached for range reads: {@value}
+     */
+    public static final int DEFAULT_CHUNK_CACHE_SIZE = 4;
+
     /**
      * The default chunk size. This is slightly less than 256K to allow for the
      * {@link #CHUNK_OVERHEAD} when using the power of two allocator.
      */
     public static final int DEFAULT_CHUNK_SIZE;
 
+    /**
+     * The default number of chunks to prefetch when reading a file: {@value}
+     * <p>
+     * Zero reads the chunks via a single cursor.
+     * </p>
+     */
+    public static final int DEFAULT_READ_AHEAD = 0;
+
     /** The suffix for the files collection. */
     public static final String DEFAULT_ROOT = "fs";
 
+    /**
+     * The default maximum number of chunk inserts that may be in-flight while
+     * writing a file: {@value}
+     */
+    public static final int DEFAULT_WRITE_WINDOW = 8;
+
     /**
      * The field in the {@link #FILES_SUFFIX files} collection containing the
      * file's name.
@@ -151,6 +172,9 @@ public class GridFs {
         DEFAULT_CHUNK_SIZE = (256 * 1024) - CHUNK_OVERHEAD;
     }
 
+    /** The cache of recently read chunks for range reads. */
+    private final ChunkCache myChunkCache;
+
     /** The GridFS chunks collection. */
     private final MongoCollection myChunksCollection;
 
@@ -163,9 +187,15 @@ public class GridFs {
     /** The GridFS files collection. */
     private final MongoCollection myFilesCollection;
 
+    /** The number of chunks to prefetch when reading a file. */
+    private int myReadAhead = DEFAULT_READ_AHEAD;
+
     /** The root name for the GridFS collections. */
     private final String myRootName;
 
+    /** The maximum number of chunk inserts in-flight when writing a file. */
+    private int myWriteWindow = DEFAULT_WRITE_WINDOW;
+
     /**
      * Creates a new GridFs.
      * <p>
@@ -195,6 +225,7 @@ public class GridFs {
         myDatabase = database;
         myFilesCollection = database.getCollection(rootName + FILES_SUFFIX);
         myChunksCollection = database.getCollection(rootName + CHUNKS_SUFFIX);
+        myChunkCache = new ChunkCache(DEFAULT_CHUNK_CACHE_SIZE);
     }
 
     /**
@@ -241,6 +272,7 @@ public class GridFs {
         myDatabase = database;
         myFilesCollection = database.getCollection(rootName + FILES_SUFFIX);
         myChunksCollection = database.getCollection(rootName + CHUNKS_SUFFIX);
+        myChunkCache = new ChunkCache(DEFAULT_CHUNK_CACHE_SIZE);
     }
 
     /**
@@ -366,6 +398,15 @@ public class GridFs {
         return faults;
     }
 
+    /**
+     * Returns the number of chunks cached for range reads.
+     *
+     * @return The number of chunks cached for range reads.
+     */
+    public int getChunkCacheSize() {
+        return myChunkCache.getMaxChunks();
+    }
+
     /**
      * Returns the size for a chunk written.
      *
@@ -375,6 +416,26 @@ public class GridFs {
         return myChunkSize;
     }
 
+    /**
+     * Returns the number of chunks to prefetch when reading a file.
+     *
+     * @return The number of chunks to prefetch when reading a file.
+     */
+    public int getReadAhead() {
+        return myReadAhead;
+    }
+
+    /**
+     * Returns the maximum number of chunk inserts that may be in-flight when
+     * writing a file.
+     *
+     * @return The maximum number of chunk inserts that may be in-flight when
+     *         writing a file.
+     */
+    public int getWriteWindow() {
+        return myWriteWindow;
+    }
+
     /**
      * Reads a file from the GridFS collections and writes the contents to the
      * {@code sink}
@@ -400,6 +461,46 @@ public class GridFs {
         doRead(fileDoc, sink);
     }
 
+    /**
+     * Reads a range of bytes from a file in the GridFS collections and writes
+     * them to the {@code sink}. Only the chunks containing the range are read
+     * and recently read chunks are served from a small cache (see
+     * {@link #setChunkCacheSize(int)}).
+     * <p>
+     * The range is truncated at the end of the file. Unlike the
+     * {@link #read(ObjectId, OutputStream) full read} the MD5 of the file is
+     * not verified.
+     * </p>
+     *
+     * @param id
+     *            The id of the file.
+     * @param offset
+     *            The offset of the first byte to read.
+     * @param length
+     *            The maximum number of bytes to read.
+     * @param sink
+     *            The stream to write the data to. This stream will not be
+     *            closed by this method.
+     * @return The number of bytes written to the {@code sink}.
+     * @throws IOException
+     *             On a failure reading the data from MongoDB or writing to the
+     *             {@code sink}.
+     * @throws IllegalArgumentException
+     *             If the {@code offset} or {@code length} is negative.
+     */
+    public long read(final ObjectId id, final long offset, final long length,
+            final OutputStream sink) throws IOException,
+            IllegalArgumentException {
+        // Find the document with the specified name.
+        final Document fileDoc = myFilesCollection.findOne(where(ID_FIELD)
+                .equals(id));
+        if (fileDoc == null) {
+            throw new FileNotFoundException(id.toString());
+        }
+
+        return doReadRange(fileDoc, offset, length, sink);
+    }
+
     /**
      * Reads a file from the GridFS collections and writes the contents to the
      * {@code sink}
@@ -426,6 +527,58 @@ public class GridFs {
         doRead(fileDoc, sink);
     }
 
+    /**
+     * Reads a range of bytes from a file in the GridFS collections and writes
+     * them to the {@code sink}. Only the chunks containing the range are read
+     * and recently read chunks are served from a small cache.
+     *
+     * @param name
+     *            The name of the file.
+     * @param offset
+     *            The offset of the first byte to read.
+     * @param length
+     *            The maximum number of bytes to read.
+     * @param sink
+     *            The stream to write the data to. This stream will not be
+     *            closed by this method.
+     * @return The number of bytes written to the {@code sink}.
+     * @throws IOException
+     *             On a failure reading the data from MongoDB or writing to the
+     *             {@code sink}.
+     * @throws IllegalArgumentException
+     *             If the {@code offset} or {@code length} is negative.
+     *
+     * @see #read(ObjectId, long, long, OutputStream)
+     */
+    public long read(final String name, final long offset, final long length,
+            final OutputStream sink) throws IOException,
+            IllegalArgumentException {
+
+        // Find the document with the specified name.
+        final Document fileDoc = myFilesCollection
+                .findOne(where(FILENAME_FIELD).equals(name));
+        if (fileDoc == null) {
+            throw new FileNotFoundException(name);
+        }
+
+        return doReadRange(fileDoc, offset, length, sink);
+    }
+
+    /**
+     * Sets the number of chunks cached for range reads. The cache holds the
+     * most recently used chunks so repeated or adjacent range requests do not
+     * re-read the same chunks. This bounds the memory used by the cache to
+     * roughly {@code chunkCacheSize * chunkSize} bytes. Zero disables the
+     * cache.
+     *
+     * @param chunkCacheSize
+     *            The new value for the number of chunks cached for range
+     *            reads.
+     */
+    public void setChunkCacheSize(final int chunkCacheSize) {
+        myChunkCache.setMaxChunks(chunkCacheSize);
+    }
+
     /**
      * Sets the value of size for a chunk written.
      *
@@ -436,6 +589,40 @@ public class GridFs {
         myChunkSize = chunkSize;
     }
 
+    /**
+     * Sets the number of chunks to prefetch when reading a file.
+     * <p>
+     * If positive and the file's length and chunk size are known then each
+     * chunk is requested individually with up to {@code readAhead} requests
+     * outstanding. The requests may be spread across connections and servers.
+     * Otherwise the chunks are read via a single cursor. Each prefetched chunk
+     * is held in memory until it is written to the sink.
+     * </p>
+     *
+     * @param readAhead
+     *            The new value for the number of chunks to prefetch when
+     *            reading a file.
+     */
+    public void setReadAhead(final int readAhead) {
+        myReadAhead = readAhead;
+    }
+
+    /**
+     * Sets the maximum number of chunk inserts that may be in-flight when
+     * writing a file. Once the window is full the write waits for the oldest
+     * insert to complete before reading the next chunk from the source. This
+     * bounds the memory used by the write to roughly
+     * {@code writeWindow * chunkSize} bytes. Values less than 1 are treated as
+     * 1.
+     *
+     * @param writeWindow
+     *            The new value for the maximum number of chunk inserts that
+     *            may be in-flight when writing a file.
+     */
+    public void setWriteWindow(final int writeWindow) {
+        myWriteWindow = writeWindow;
+    }
+
     /**
      * Unlinks (deletes) the file from the GridFS collections.
      *
@@ -565,8 +752,10 @@ public class GridFs {
         try {
             final byte[] buffer = new byte[myChunkSize];
             final MessageDigest md5Digest = MessageDigest.getInstance("MD5");
+            final int window = Math.max(1, myWriteWindow);
 
-            final List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+            final Deque<Future<Integer>> results = new ArrayDeque<Future<Integer>>(
+                    window + 1);
             final DocumentBuilder doc = BuilderFactory.start();
             int n = 0;
             long length = 0;
@@ -580,14 +769,17 @@ public class GridFs {
                 doc.addObjectId(FILES_ID_FIELD, id);
                 doc.addInteger(CHUNK_NUMBER_FIELD, n);
 
-                final byte[] data = (read == buffer.length) ? buffer : Arrays
-                        .copyOf(buffer, read);
-                md5Digest.update(data);
-                doc.addBinary(DATA_FIELD, data);
+                md5Digest.update(buffer, 0, read);
+                doc.add(new BinaryElement(DATA_FIELD,
+                        BinaryElement.DEFAULT_SUB_TYPE, buffer, 0, read));
 
-                results.add(myChunksCollection.insertAsync(doc.build()));
+                // Wait for the oldest chunk to make room in the window.
+                if (window <= results.size()) {
+                    results.removeFirst().get();
+                }
+                results.addLast(myChunksCollection.insertAsync(doc.build()));
 
-                length += data.length;
+                length += read;
                 read = readFully(source, buffer);
                 n += 1;
             }
@@ -600,7 +792,7 @@ public class GridFs {
             doc.addLong(LENGTH_FIELD, length);
             doc.addString(MD5_FIELD, IOUtils.toHex(md5Digest.digest()));
 
-            results.add(myFilesCollection.insertAsync(doc.build()));
+            results.addLast(myFilesCollection.insertAsync(doc.build()));
 
             // Make sure everything made it to the server.
             for (final Future<Integer> f : results) {
@@ -669,87 +861,90 @@ public class GridFs {
             throws IOException {
 
         final Element id = fileDoc.get(ID_FIELD);
+        final Element queryElement = id.withName(FILES_ID_FIELD);
 
-        long length = -1;
-        final NumericElement lengthElement = fileDoc.get(NumericElement.class,
-                LENGTH_FIELD);
-        if (lengthElement != null) {
-            length = lengthElement.getLongValue();
+        final ChunkWriter writer = new ChunkWriter(fileDoc, sink);
+        try {
+            if ((0 < myReadAhead) && (0 <= writer.getNumberChunks())) {
+                readChunksAhead(queryElement, writer);
+            }
+            else {
+                readChunks(queryElement, writer);
+            }
+        }
+        finally {
+            sink.flush();
+        }
+
+        writer.finish();
+    }
+
+    /**
+     * Reads a range of bytes from a file and writes them to the {@code sink}.
+     *
+     * @param fileDoc
+     *            The document for the file.
+     * @param offset
+     *            The offset of the first byte to read.
+     * @param length
+     *            The maximum number of bytes to read.
+     * @param sink
+     *            The stream to write the data to. This stream will not be
+     *            closed by this method.
+     * @return The number of bytes written to the {@code sink}.
+     * @throws IOException
+     *             On a failure reading the data from MongoDB or writing to the
+     *             {@code sink}.
+     * @throws IllegalArgumentException
+     *             If the {@code offset} or {@code length} is negative.
+     */
+    protected long doReadRange(final Document fileDoc, final long offset,
+            final long length, final OutputStream sink) throws IOException,
+            IllegalArgumentException {
+        if ((offset < 0) || (length < 0)) {
+            throw new IllegalArgumentException("Invalid range: offset '"
+                    + offset + "' and length '" + length + "'.");
         }
 
-        long chunkSize = -1;
+        final Element id = fileDoc.get(ID_FIELD);
+        final NumericElement lengthElement = fileDoc.get(NumericElement.class,
+                LENGTH_FIELD);
         final NumericElement chunkSizeElement = fileDoc.get(
                 NumericElement.class, CHUNK_SIZE_FIELD);
-        if (chunkSizeElement != null) {
-            chunkSize = chunkSizeElement.getLongValue();
+        if ((lengthElement == null) || (chunkSizeElement == null)
+                || (chunkSizeElement.getLongValue() <= 0)) {
+            throw new IOException("File '" + id.getValueAsString()
+                    + "' does not have a length and chunk size.");
         }
 
-        long numberChunks = -1;
-        if ((0 <= length) && (0 < chunkSize)) {
-            numberChunks = (long) Math.ceil((double) length
-                    / (double) chunkSize);
+        final long fileLength = lengthElement.getLongValue();
+        final long chunkSize = chunkSizeElement.getLongValue();
+        if ((fileLength <= offset) || (length == 0)) {
+            return 0;
         }
 
-        final Element queryElement = id.withName(FILES_ID_FIELD);
-        final DocumentBuilder queryDoc = BuilderFactory.start();
-        queryDoc.add(queryElement);
-
-        final Find.Builder findBuilder = new Find.Builder(queryDoc.build());
-        findBuilder.setSort(asc(CHUNK_NUMBER_FIELD));
-
-        // Small batch size since the docs are big and we can do parallel I/O.
-        findBuilder.setBatchSize(2);
+        final long end = offset + Math.min(length, fileLength - offset);
+        final long lastChunk = (end - 1) / chunkSize;
 
-        long expectedChunk = 0;
-        long totalSize = 0;
-        final MongoIterator<Document> iter = myChunksCollection
-                .find(findBuilder.build());
+        long n = offset / chunkSize;
         try {
-            for (final Document chunk : iter) {
-
-                final NumericElement n = chunk.get(NumericElement.class,
-                        CHUNK_NUMBER_FIELD);
-                final BinaryElement bytes = chunk.get(BinaryElement.class,
-                        DATA_FIELD);
-
-                if (n == null) {
-                    throw new IOException("Missing chunk number '"
-                            + (expectedChunk + 1) + "' of '" + numberChunks
-                            + "'.");
-                }
-                else if (n.getLongValue() != expectedChunk) {
-                    throw new IOException("Skipped chunk '"
-                            + (expectedChunk + 1) + "', retreived '"
-                            + n.getLongValue() + "' of '" + numberChunks + "'.");
-                }
-                else if (bytes == null) {
-                    throw new IOException("Missing bytes in chunk '"
-                            + (expectedChunk + 1) + "' of '" + numberChunks
-                            + "'.");
-                }
-                else {
-
-                    final byte[] buffer = bytes.getValue();
+            // Serve the leading chunks from the cache.
+            BinaryElement bytes = myChunkCache.get(id, n);
+            while (bytes != null) {
+                writeRange(bytes, n, chunkSize, offset, end, sink);
+                n += 1;
+                bytes = (n <= lastChunk) ? myChunkCache.get(id, n) : null;
+            }
 
-                    sink.write(buffer);
-                    expectedChunk += 1;
-                    totalSize += buffer.length;
-                }
+            if (n <= lastChunk) {
+                readRange(id, n, lastChunk, chunkSize, offset, end, sink);
             }
         }
         finally {
-            iter.close();
             sink.flush();
         }
 
-        if ((0 <= numberChunks) && (expectedChunk < numberChunks)) {
-            throw new IOException("Missing chunks after '" + expectedChunk
-                    + "' of '" + numberChunks + "'.");
-        }
-        if ((0 <= length) && (totalSize != length)) {
-            throw new IOException("File size mismatch. Expected '" + length
-                    + "' but only read '" + totalSize + "' bytes.");
-        }
+        return end - offset;
     }
 
     /**
@@ -758,7 +953,8 @@ public class GridFs {
      * Currently the only strategy is to reorder the chunk's into _id order. The
      * operation verifies that the reorder fixes the file prior to modifying
      * anything. it also verifies that the reordering worked after reordering
-     * the chunks.
+     * the chunks. Any cached chunks for the file are evicted once the chunks
+     * are reordered.
      *
      * @param fileDoc
      *            The document representing the file.
@@ -804,20 +1000,28 @@ public class GridFs {
                 // Update the 'n' fields for each chunk to be in the right
                 // order.
                 int n = 0;
-                for (final Element idElement : chunkIds) {
-                    final DocumentBuilder query = BuilderFactory.start();
-                    query.add(idElement);
-                    query.add(queryElement); // Direct to the right shard.
-
-                    final DocumentBuilder update = BuilderFactory.start();
-                    update.push("$set").add(CHUNK_NUMBER_FIELD, n);
-
-                    // Use a multi-update to ensure the write happens when a
-                    // files chunks are across shards.
-                    myChunksCollection.update(query.build(), update.build(),
-                            true /* =multi */, false, Durability.ACK);
-
-                    n += 1;
+                try {
+                    for (final Element idElement : chunkIds) {
+                        final DocumentBuilder query = BuilderFactory.start();
+                        query.add(idElement);
+                        query.add(queryElement); // Direct to the right shard.
+
+                        final DocumentBuilder update = BuilderFactory.start();
+                        update.push("$set").add(CHUNK_NUMBER_FIELD, n);
+
+                        // Use a multi-update to ensure the write happens when
+                        // a files chunks are across shards.
+                        myChunksCollection.update(query.build(),
+                                update.build(), true /* =multi */, false,
+                                Durability.ACK);
+
+                        n += 1;
+                    }
+                }
+                finally {
+                    // The cached chunks are in the old order, even if only
+                    // some of the chunks were renumbered.
+                    myChunkCache.evict(id);
                 }
 
                 if (doValidate(fileDoc)) {
@@ -860,6 +1064,8 @@ public class GridFs {
     protected boolean doUnlink(final Document fileDoc) throws IOException {
         final Element id = fileDoc.get(ID_FIELD);
 
+        myChunkCache.evict(id);
+
         final DocumentBuilder queryDoc = BuilderFactory.start();
         queryDoc.add(id.withName(FILES_ID_FIELD));
         final Future<Long> cFuture = myChunksCollection.deleteAsync(queryDoc);
@@ -940,6 +1146,170 @@ public class GridFs {
         return ok;
     }
 
+    /**
+     * Reads the chunks of a file via a single cursor sorted by the chunk
+     * number and writes the contents to the {@code writer}.
+     *
+     * @param queryElement
+     *            The element to select the file's chunks.
+     * @param writer
+     *            The writer for the chunks.
+     * @throws IOException
+     *             On a failure reading the data from MongoDB or writing the
+     *             chunks.
+     */
+    private void readChunks(final Element queryElement,
+            final ChunkWriter writer) throws IOException {
+        final DocumentBuilder queryDoc = BuilderFactory.start();
+        queryDoc.add(queryElement);
+
+        final Find.Builder findBuilder = new Find.Builder(queryDoc.build());
+        findBuilder.setSort(asc(CHUNK_NUMBER_FIELD));
+
+        // Small batch size since the docs are big and we can do parallel I/O.
+        findBuilder.setBatchSize(2);
+
+        final MongoIterator<Document> iter = myChunksCollection
+                .find(findBuilder.build());
+        try {
+            for (final Document chunk : iter) {
+                writer.write(chunk);
+            }
+        }
+        finally {
+            iter.close();
+        }
+    }
+
+    /**
+     * Reads the chunks of a file with up to {@link #getReadAhead()} requests
+     * for individual chunks outstanding and writes the contents to the
+     * {@code writer} in order.
+     *
+     * @param queryElement
+     *            The element to select the file's chunks.
+     * @param writer
+     *            The writer for the chunks.
+     * @throws IOException
+     *             On a failure reading the data from MongoDB or writing the
+     *             chunks.
+     */
+    private void readChunksAhead(final Element queryElement,
+            final ChunkWriter writer) throws IOException {
+
+        final long numberChunks = writer.getNumberChunks();
+        final Deque<Future<Document>> prefetched = new ArrayDeque<Future<Document>>(
+                myReadAhead);
+        final DocumentBuilder queryDoc = BuilderFactory.start();
+
+        long requested = 0;
+        try {
+            while (writer.getChunkCount() < numberChunks) {
+                while ((requested < numberChunks)
+                        && (prefetched.size() < myReadAhead)) {
+                    queryDoc.reset();
+                    queryDoc.add(queryElement);
+                    queryDoc.add(CHUNK_NUMBER_FIELD, (int) requested);
+
+                    prefetched.addLast(myChunksCollection
+                            .findOneAsync(queryDoc.build()));
+                    requested += 1;
+                }
+
+                final Document chunk = prefetched.removeFirst().get();
+                if (chunk == null) {
+                    throw new IOException("Missing chunk number '"
+                            + (writer.getChunkCount() + 1) + "' of '"
+                            + numberChunks + "'.");
+                }
+                writer.write(chunk);
+            }
+        }
+        catch (final InterruptedException e) {
+            final InterruptedIOException error = new InterruptedIOException(
+                    e.getMessage());
+            error.initCause(e);
+            throw error;
+        }
+        catch (final ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Reads the chunks {@code [firstChunk, lastChunk]} of a file via a single
+     * cursor, caching each chunk and writing the portion of the chunk within
+     * the range to the {@code sink}.
+     *
+     * @param id
+     *            The id of the file.
+     * @param firstChunk
+     *            The number of the first chunk to read.
+     * @param lastChunk
+     *            The number of the last chunk to read.
+     * @param chunkSize
+     *            The size of each chunk.
+     * @param offset
+     *            The offset of the first byte to write.
+     * @param end
+     *            The offset after the last byte to write.
+     * @param sink
+     *            The stream to write the data to.
+     * @throws IOException
+     *             On a failure reading the data from MongoDB or writing to the
+     *             {@code sink}.
+     */
+    private void readRange(final Element id, final long firstChunk,
+            final long lastChunk, final long chunkSize, final long offset,
+            final long end, final OutputStream sink) throws IOException {
+        final DocumentBuilder queryDoc = BuilderFactory.start();
+        queryDoc.add(id.withName(FILES_ID_FIELD));
+        queryDoc.push(CHUNK_NUMBER_FIELD)
+                .add(ComparisonOperator.GTE.getToken(), (int) firstChunk)
+                .add(ComparisonOperator.LTE.getToken(), (int) lastChunk);
+
+        final Find.Builder findBuilder = new Find.Builder(queryDoc.build());
+        findBuilder.setSort(asc(CHUNK_NUMBER_FIELD));
+
+        // Small batch size since the docs are big and we can do parallel I/O.
+        findBuilder.setBatchSize(2);
+
+        long expected = firstChunk;
+        final MongoIterator<Document> iter = myChunksCollection
+                .find(findBuilder.build());
+        try {
+            for (final Document chunk : iter) {
+                final NumericElement n = chunk.get(NumericElement.class,
+                        CHUNK_NUMBER_FIELD);
+                final BinaryElement bytes = chunk.get(BinaryElement.class,
+                        DATA_FIELD);
+
+                if ((n == null) || (n.getLongValue() != expected)) {
+                    throw new IOException("Missing chunk number '"
+                            + (expected + 1) + "' of file '"
+                            + id.getValueAsString() + "'.");
+                }
+                else if (bytes == null) {
+                    throw new IOException("Missing bytes in chunk '"
+                            + (expected + 1) + "' of file '"
+                            + id.getValueAsString() + "'.");
+                }
+
+                writeRange(bytes, expected, chunkSize, offset, end, sink);
+                myChunkCache.put(id, expected, bytes);
+                expected += 1;
+            }
+        }
+        finally {
+            iter.close();
+        }
+
+        if (expected <= lastChunk) {
+            throw new IOException("Missing chunk number '" + (expected + 1)
+                    + "' of file '" + id.getValueAsString() + "'.");
+        }
+    }
+
     /**
      * Read the full contents of the stream until an EOF into the buffer.
      *
@@ -952,8 +1322,8 @@ public class GridFs {
      * @throws IOException
      *             On a failure reading from the stream.
      */
-    private int readFully(final InputStream source, final byte[] buffer)
-            throws IOException {
+    /* package */static int readFully(final InputStream source,
+            final byte[] buffer) throws IOException {
 
         int offset = 0;
 
@@ -971,4 +1341,40 @@ public class GridFs {
             }
         }
     }
+
+    /**
+     * Writes the portion of the chunk within the range {@code [offset, end)}
+     * of the file to the sink.
+     *
+     * @param bytes
+     *            The chunk's data.
+     * @param n
+     *            The chunk's number.
+     * @param chunkSize
+     *            The size of each chunk.
+     * @param offset
+     *            The offset of the first byte to write.
+     * @param end
+     *            The offset after the last byte to write.
+     * @param sink
+     *            The stream to write the data to.
+     * @throws IOException
+     *             If the chunk is too short or on a failure writing to the
+     *             sink.
+     */
+    private void writeRange(final BinaryElement bytes, final long n,
+            final long chunkSize, final long offset, final long end,
+            final OutputStream sink) throws IOException {
+        final long chunkStart = n * chunkSize;
+        final int from = (int) (Math.max(offset, chunkStart) - chunkStart);
+        final int to = (int) (Math.min(end, chunkStart + chunkSize) - chunkStart);
+
+        if (bytes.length() < to) {
+            throw new IOException("Missing bytes in chunk '" + (n + 1)
+                    + "'. Expected at least '" + to + "' but chunk has '"
+                    + bytes.length() + "' bytes.");
+        }
+
+        bytes.writeTo(sink, from, to - from);
+    }
 }
@@ -23,7 +23,8 @@
  * <h2>Usage</h2>
  * <p>
  * The {@link com.allanbank.mongodb.gridfs.GridFs} provides the programmatic interface for reading
- * and writing to a GridFS collection.
+ * and writing to a GridFS collection. The {@link com.allanbank.mongodb.gridfs.AsyncGridFs}
+ * provides the same operations without blocking the calling thread.
  * </p>
  *
  *
@@ -0,0 +1,443 @@
+/*
+ * #%L
+ * CursorPublisherTest.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.capture;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.reset;
+import static org.easymock.EasyMock.verify;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.Executor;
+
+import org.easymock.Capture;
+import org.junit.Test;
+
+import com.allanbank.mongodb.bson.Document;
+import com.allanbank.mongodb.bson.builder.BuilderFactory;
+import com.allanbank.mongodb.builder.Aggregate;
+import com.allanbank.mongodb.builder.Find;
+import com.allanbank.mongodb.builder.ParallelScan;
+import com.allanbank.mongodb.client.Client;
+import com.allanbank.mongodb.client.FutureCallback;
+import com.allanbank.mongodb.client.MongoIteratorImpl;
+import com.allanbank.mongodb.client.callback.ReplyCallback;
+import com.allanbank.mongodb.client.message.GetMore;
+import com.allanbank.mongodb.client.message.Query;
+import com.allanbank.mongodb.client.message.Reply;
+
+/**
+ * CursorPublisherTest provides tests for the {@link CursorPublisher} class.
+ *
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+@SuppressWarnings("unchecked")
+public class CursorPublisherTest {
+
+    /** An executor that runs each task on the calling thread. */
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(final Runnable command) {
+            command.run();
+        }
+    };
+
+    /**
+     * Test method for {@link CursorPublisher#aggregate}.
+     */
+    @Test
+    public void testAggregate() {
+        final Document doc1 = BuilderFactory.start().add("a", 1).build();
+        final Aggregate aggregate = Aggregate.builder().build();
+
+        final AsyncMongoCollection mockCollection = createMock(AsyncMongoCollection.class);
+        final MongoIterator<Document> mockCursor = createMock(MongoIterator.class);
+        final StreamCallback<Document> mockSubscriber = createMock(StreamCallback.class);
+
+        expect(mockCollection.aggregateAsync(aggregate)).andReturn(
+                future(mockCursor));
+        expect(mockCursor.getBatchSize()).andReturn(0);
+        mockCursor.setBatchSize(Integer.MAX_VALUE);
+        expectLastCall().times(2);
+        expect(mockCursor.hasNext()).andReturn(Boolean.TRUE);
+        expect(mockCursor.next()).andReturn(doc1);
+        mockSubscriber.callback(doc1);
+        expectLastCall();
+        expect(mockCursor.hasNext()).andReturn(Boolean.FALSE);
+        mockCursor.close();
+        expectLastCall();
+        mockSubscriber.done();
+        expectLastCall();
+
+        replay(mockCollection, mockCursor, mockSubscriber);
+
+        final CursorPublisher publisher = CursorPublisher.aggregate(
+                mockCollection, aggregate, DIRECT);
+        publisher.subscribe(mockSubscriber).request(Long.MAX_VALUE);
+
+        verify(mockCollection, mockCursor, mockSubscriber);
+    }
+
+    /**
+     * Test method for {@link CursorPublisher.Subscription#cancel()}.
+     */
+    @Test
+    public void testCancel() {
+        final Document doc1 = BuilderFactory.start().add("a", 1).build();
+        final Find query = Find.builder().build();
+
+        final AsyncMongoCollection mockCollection = createMock(AsyncMongoCollection.class);
+        final MongoIterator<Document> mockCursor = createMock(MongoIterator.class);
+        final StreamCallback<Document> mockSubscriber = createMock(StreamCallback.class);
+
+        expect(mockCollection.findAsync(query))
+                .andReturn(future(mockCursor));
+        expect(mockCursor.getBatchSize()).andReturn(100);
+        mockCursor.setBatchSize(1);
+        expectLastCall();
+        expect(mockCursor.hasNext()).andReturn(Boolean.TRUE);
+        expect(mockCursor.next()).andReturn(doc1);
+        mockSubscriber.callback(doc1);
+        expectLastCall();
+
+        replay(mockCollection, mockCursor, mockSubscriber);
+
+        final CursorPublisher publisher = CursorPublisher.find(mockCollection,
+                query, DIRECT);
+        final CursorPublisher.Subscription subscription = publisher
+                .subscribe(mockSubscriber);
+        subscription.request(1);
+
+        verify(mockCollection, mockCursor, mockSubscriber);
+
+        // Cancel closes the cursor without notifying the subscriber.
+        reset(mockCollection, mockCursor, mockSubscriber);
+        mockCursor.close();
+        expectLastCall();
+
+        replay(mockCollection, mockCursor, mockSubscriber);
+
+        subscription.cancel();
+        subscription.request(10);
+
+        verify(mockCollection, mockCursor, mockSubscriber);
+    }
+
+    /**
+     * Test method for {@link CursorPublisher#find}.
+     */
+    @Test
+    public void testFind() {
+        final Document doc1 = BuilderFactory.start().add("a", 1).build();
+        final Document doc2 = BuilderFactory.start().add("a", 2).build();
+        final Document doc3 = BuilderFactory.start().add("a", 3).build();
+        final Find query = Find.builder().build();
+
+        final AsyncMongoCollection mockCollection = createMock(AsyncMongoCollection.class);
+        final MongoIterator<Document> mockCursor = createMock(MongoIterator.class);
+        final StreamCallback<Document> mockSubscriber = createMock(StreamCallback.class);
+
+        // Nothing is sent until there is demand.
+        replay(mockCollection, mockCursor, mockSubscriber);
+
+        final CursorPublisher publisher = CursorPublisher.find(mockCollection,
+                query, DIRECT);
+        final CursorPublisher.Subscription subscription = publisher
+                .subscribe(mockSubscriber);
+
+        verify(mockCollection, mockCursor, mockSubscriber);
+
+        // The batch size follows the demand.
+        reset(mockCollection, mockCursor, mockSubscriber);
+        expect(mockCollection.findAsync(query))
+                .andReturn(future(mockCursor));
+        expect(mockCursor.getBatchSize()).andReturn(100);
+        mockCursor.setBatchSize(2);
+        expectLastCall();
+        expect(mockCursor.hasNext()).andReturn(Boolean.TRUE);
+        expect(mockCursor.next()).andReturn(doc1);
+        mockSubscriber.callback(doc1);
+        expectLastCall();
+        mockCursor.setBatchSize(1);
+        expectLastCall();
+        expect(mockCursor.hasNext()).andReturn(Boolean.TRUE);
+        expect(mockCursor.next()).andReturn(doc2);
+        mockSubscriber.callback(doc2);
+        expectLastCall();
+
+        replay(mockCollection, mockCursor, mockSubscriber);
+
+        subscription.request(2);
+
+        verify(mockCollection, mockCursor, mockSubscriber);
+
+        // Large demand is capped at the query's batch size.
+        reset(mockCollection, mockCursor, mockSubscriber);
+        mockCursor.setBatchSize(100);
+        expectLastCall().times(2);
+        expect(mockCursor.hasNext()).andReturn(Boolean.TRUE);
+        expect(mockCursor.next()).andReturn(doc3);
+        mockSubscriber.callback(doc3);
+        expectLastCall();
+        expect(mockCursor.hasNext()).andReturn(Boolean.FALSE);
+        mockCursor.close();
+        expectLastCall();
+        mockSubscriber.done();
+        expectLastCall();
+
+        replay(mockCollection, mockCursor, mockSubscriber);
+
+        subscription.request(1000);
+
+        verify(mockCollection, mockCursor, mockSubscriber);
+    }
+
+    /**
+     * Test method for {@link CursorPublisher#find} when the query fails.
+     */
+    @Test
+    public void testFindFails() {
+        final Find query = Find.builder().build();
+        final MongoDbException error = new MongoDbException("Injected");
+
+        final AsyncMongoCollection mockCollection = createMock(AsyncMongoCollection.class);
+        final StreamCallback<Document> mockSubscriber = createMock(StreamCallback.class);
+
+        final FutureCallback<MongoIterator<Document>> future = new FutureCallback<MongoIterator<Document>>();
+        future.exception(error);
+
+        expect(mockCollection.findAsync(query)).andReturn(future);
+        mockSubscriber.exception(error);
+        expectLastCall();
+
+        replay(mockCollection, mockSubscriber);
+
+        final CursorPublisher publisher = CursorPublisher.find(mockCollection,
+                query, DIRECT);
+        final CursorPublisher.Subscription subscription = publisher
+                .subscribe(mockSubscriber);
+        subscription.request(1);
+        subscription.request(1);
+
+        verify(mockCollection, mockSubscriber);
+    }
+
+    /**
+     * Test method for {@link CursorPublisher#find} where the number of
+     * documents requested is the number of results.
+     */
+    @Test
+    public void testFindRequestAllResults() {
+        final Document doc1 = BuilderFactory.start().add("a", 1).build();
+        final Document doc2 = BuilderFactory.start().add("a", 2).build();
+        final Find query = Find.builder().build();
+
+        final AsyncMongoCollection mockCollection = createMock(AsyncMongoCollection.class);
+        final Client mockClient = createMock(Client.class);
+        final StreamCallback<Document> mockSubscriber = createMock(StreamCallback.class);
+
+        final MongoIteratorImpl cursor = new MongoIteratorImpl(query(),
+                mockClient, "localhost:27017", new Reply(0, 0, 0,
+                        Arrays.asList(doc1, doc2), false, false, false, false));
+
+        expect(mockCollection.findAsync(query)).andReturn(
+                future((MongoIterator<Document>) cursor));
+        mockSubscriber.callback(doc1);
+        expectLastCall();
+        mockSubscriber.callback(doc2);
+        expectLastCall();
+        mockSubscriber.done();
+        expectLastCall();
+
+        replay(mockCollection, mockClient, mockSubscriber);
+
+        final CursorPublisher publisher = CursorPublisher.find(mockCollection,
+                query, DIRECT);
+        publisher.subscribe(mockSubscriber).request(2);
+
+        verify(mockCollection, mockClient, mockSubscriber);
+    }
+
+    /**
+     * Test method for {@link CursorPublisher#find} where the number of
+     * documents requested is the number of results and the server reports
+     * the cursor is exhausted after the documents are delivered.
+     */
+    @Test
+    public void testFindRequestAllResultsPendingReply() {
+        final Document doc1 = BuilderFactory.start().add("a", 1).build();
+        final Document doc2 = BuilderFactory.start().add("a", 2).build();
+        final Find query = Find.builder().build();
+
+        final AsyncMongoCollection mockCollection = createMock(AsyncMongoCollection.class);
+        final Client mockClient = createMock(Client.class);
+        final StreamCallback<Document> mockSubscriber = createMock(StreamCallback.class);
+
+        final MongoIteratorImpl cursor = new MongoIteratorImpl(query(),
+                mockClient, "localhost:27017", new Reply(0, 1234, 0,
+                        Arrays.asList(doc1, doc2), false, false, false, false));
+
+        final Capture<ReplyCallback> getMoreCallback = new Capture<ReplyCallback>();
+
+        expect(mockCollection.findAsync(query)).andReturn(
+                future((MongoIterator<Document>) cursor));
+        mockClient.send(anyObject(GetMore.class), capture(getMoreCallback));
+        expectLastCall();
+        mockSubscriber.callback(doc1);
+        expectLastCall();
+        mockSubscriber.callback(doc2);
+        expectLastCall();
+
+        replay(mockCollection, mockClient, mockSubscriber);
+
+        final CursorPublisher publisher = CursorPublisher.find(mockCollection,
+                query, DIRECT);
+        publisher.subscribe(mockSubscriber).request(2);
+
+        verify(mockCollection, mockClient, mockSubscriber);
+
+        // The last batch is empty and exhausts the cursor.
+        reset(mockCollection, mockClient, mockSubscriber);
+
+        mockSubscriber.done();
+        expectLastCall();
+
+        replay(mockCollection, mockClient, mockSubscriber);
+
+        getMoreCallback.getValue().callback(
+                new Reply(0, 0, 0, Collections.<Document> emptyList(), false,
+                        false, false, false));
+
+        verify(mockCollection, mockClient, mockSubscriber);
+    }
+
+    /**
+     * Test method for {@link CursorPublisher#parallelScan}.
+     */
+    @Test
+    public void testParallelScan() {
+        final Document doc1 = BuilderFactory.start().add("a", 1).build();
+        final Document doc2 = BuilderFactory.start().add("a", 2).build();
+        final ParallelScan scan = ParallelScan.builder().build();
+
+        final AsyncMongoCollection mockCollection = createMock(AsyncMongoCollection.class);
+        final MongoIterator<Document> mockCursor1 = createMock(MongoIterator.class);
+        final MongoIterator<Document> mockCursor2 = createMock(MongoIterator.class);
+        final StreamCallback<Document> mockSubscriber = createMock(StreamCallback.class);
+
+        final FutureCallback<Collection<MongoIterator<Document>>> future = new FutureCallback<Collection<MongoIterator<Document>>>();
+        future.callback(Arrays.asList(mockCursor1, mockCursor2));
+
+        expect(mockCollection.parallelScanAsync(scan)).andReturn(future);
+        expect(mockCursor1.getBatchSize()).andReturn(0);
+        mockCursor1.setBatchSize(5);
+        expectLastCall();
+        expect(mockCursor1.hasNext()).andReturn(Boolean.TRUE);
+        expect(mockCursor1.next()).andReturn(doc1);
+        mockSubscriber.callback(doc1);
+        expectLastCall();
+        mockCursor1.setBatchSize(4);
+        expectLastCall();
+        expect(mockCursor1.hasNext()).andReturn(Boolean.FALSE);
+        mockCursor1.close();
+        expectLastCall();
+
+        mockCursor2.setBatchSize(4);
+        expectLastCall();
+        expect(mockCursor2.hasNext()).andReturn(Boolean.TRUE);
+        expect(mockCursor2.next()).andReturn(doc2);
+        mockSubscriber.callback(doc2);
+        expectLastCall();
+        mockCursor2.setBatchSize(3);
+        expectLastCall();
+        expect(mockCursor2.hasNext()).andReturn(Boolean.FALSE);
+        mockCursor2.close();
+        expectLastCall();
+
+        mockSubscriber.done();
+        expectLastCall();
+
+        replay(mockCollection, mockCursor1, mockCursor2, mockSubscriber);
+
+        final CursorPublisher publisher = CursorPublisher.parallelScan(
+                mockCollection, scan, DIRECT);
+        publisher.subscribe(mockSubscriber).request(5);
+
+        verify(mockCollection, mockCursor1, mockCursor2, mockSubscriber);
+    }
+
+    /**
+     * Test method for {@link CursorPublisher.Subscription#request(long)} with
+     * a non-positive count.
+     */
+    @Test
+    public void testRequestNotPositive() {
+        final Find query = Find.builder().build();
+
+        final AsyncMongoCollection mockCollection = createMock(AsyncMongoCollection.class);
+        final StreamCallback<Document> mockSubscriber = createMock(StreamCallback.class);
+
+        mockSubscriber.exception(anyObject(IllegalArgumentException.class));
+        expectLastCall();
+
+        replay(mockCollection, mockSubscriber);
+
+        final CursorPublisher publisher = CursorPublisher.find(mockCollection,
+                query, DIRECT);
+        final CursorPublisher.Subscription subscription = publisher
+                .subscribe(mockSubscriber);
+        subscription.request(0);
+        subscription.request(1);
+
+        verify(mockCollection, mockSubscriber);
+    }
+
+    /**
+     * Creates a query for a cursor.
+     *
+     * @return The query for a cursor.
+     */
+    private Query query() {
+        final Document empty = BuilderFactory.start().build();
+        return new Query("db", "c", empty, empty, 0, 0, 0, false,
+                ReadPreference.PRIMARY, false, false, false, false);
+    }
+
+    /**
+     * Creates a completed future for the cursor.
+     *
+     * @param cursor
+     *            The cursor for the future.
+     * @return The completed future.
+     */
+    private ListenableFuture<MongoIterator<Document>> future(
+            final MongoIterator<Document> cursor) {
+        final FutureCallback<MongoIterator<Document>> future = new FutureCallback<MongoIterator<Document>>();
+        future.callback(cursor);
+        return future;
+    }
+}
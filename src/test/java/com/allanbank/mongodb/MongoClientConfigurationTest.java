@@ -56,6 +56,9 @@ import org.easymock.EasyMock;
 import org.hamcrest.Matchers;
 import org.junit.Test;
 
+import com.allanbank.mongodb.bson.io.StringCachePolicy;
+import com.allanbank.mongodb.client.wait.WaitStrategyFactory;
+import com.allanbank.mongodb.client.wait.WaitStrategyType;
 import com.allanbank.mongodb.util.ServerNameUtils;
 
 /**
@@ -1027,6 +1030,19 @@ public class MongoClientConfigurationTest {
         assertTrue(config.isUsingSoKeepalive());
     }
 
+    /**
+     * Test method for
+     * {@link MongoClientConfiguration#MongoClientConfiguration(String)} .
+     */
+    @Test
+    public void testMongoUriWithServerSelection() {
+        final MongoClientConfiguration config = new MongoClientConfiguration(
+                "mongodb://foo/db?serverSelection=POWER_OF_TWO_CHOICES");
+
+        assertEquals(ServerSelection.POWER_OF_TWO_CHOICES,
+                config.getServerSelection());
+    }
+
     /**
      * Test method for
      * {@link MongoClientConfiguration#MongoClientConfiguration(String)} .
@@ -1141,6 +1157,11 @@ public class MongoClientConfigurationTest {
         config.setConnectionModel(ConnectionModel.SENDER_RECEIVER_THREAD);
         assertEquals(ConnectionModel.SENDER_RECEIVER_THREAD,
                 config.getConnectionModel());
+        config.setConnectionModel(ConnectionModel.SELECTOR_THREADS);
+        assertEquals(ConnectionModel.SELECTOR_THREADS,
+                config.getConnectionModel());
+        assertSame(ConnectionModel.SELECTOR_THREADS.getFactory(),
+                config.getTransportFactory());
         config.setConnectionModel(ConnectionModel.RECEIVER_THREAD);
         assertEquals(ConnectionModel.RECEIVER_THREAD,
                 config.getConnectionModel());
@@ -1224,6 +1245,25 @@ public class MongoClientConfigurationTest {
         assertSame(executor, config.getExecutor());
     }
 
+    /**
+     * Test method for
+     * {@link MongoClientConfiguration#setHedgedReadDelay(int)}.
+     */
+    @Test
+    public void testSetHedgedReadDelay() {
+        final MongoClientConfiguration config = new MongoClientConfiguration();
+
+        assertEquals(0, config.getHedgedReadDelay());
+        config.setHedgedReadDelay(25);
+        assertEquals(25, config.getHedgedReadDelay());
+        config.setHedgedReadDelay(-1);
+        assertEquals(-1, config.getHedgedReadDelay());
+
+        final MongoClientConfiguration copy = new MongoClientConfiguration(
+                config);
+        assertEquals(-1, copy.getHedgedReadDelay());
+    }
+
     /**
      * Test method for {@link MongoClientConfiguration#setLockType(LockType)}.
      */
@@ -1292,6 +1332,41 @@ public class MongoClientConfigurationTest {
         assertEquals(1, config.getMaxConnectionCount());
     }
 
+    /**
+     * Test method for
+     * {@link MongoClientConfiguration#setMaxConnectionsPerServer(int)}.
+     */
+    @Test
+    public void testSetMaxConnectionsPerServer() {
+        final MongoClientConfiguration config = new MongoClientConfiguration();
+
+        assertEquals(1, config.getMaxConnectionsPerServer());
+        config.setMaxConnectionsPerServer(4);
+        assertEquals(4, config.getMaxConnectionsPerServer());
+    }
+
+    /**
+     * Test method for
+     * {@link MongoClientConfiguration#setMaxCursorReadAhead(int)} and
+     * {@link MongoClientConfiguration#setMaxCursorReadAheadBytes(int)}.
+     */
+    @Test
+    public void testSetMaxCursorReadAhead() {
+        final MongoClientConfiguration config = new MongoClientConfiguration();
+
+        assertEquals(1, config.getMaxCursorReadAhead());
+        assertEquals(16 * 1024 * 1024, config.getMaxCursorReadAheadBytes());
+        config.setMaxCursorReadAhead(4);
+        config.setMaxCursorReadAheadBytes(1024);
+        assertEquals(4, config.getMaxCursorReadAhead());
+        assertEquals(1024, config.getMaxCursorReadAheadBytes());
+
+        final MongoClientConfiguration copy = new MongoClientConfiguration(
+                config);
+        assertEquals(4, copy.getMaxCursorReadAhead());
+        assertEquals(1024, copy.getMaxCursorReadAheadBytes());
+    }
+
     /**
      * Test method for
      * {@link MongoClientConfiguration#setMaxPendingOperationsPerConnection(int)}
@@ -1346,6 +1421,19 @@ public class MongoClientConfigurationTest {
         assertEquals(Level.INFO.intValue(), config.getMetricsLogLevel());
     }
 
+    /**
+     * Test method for
+     * {@link MongoClientConfiguration#setMinConnectionsPerServer(int)}.
+     */
+    @Test
+    public void testSetMinConnectionsPerServer() {
+        final MongoClientConfiguration config = new MongoClientConfiguration();
+
+        assertEquals(1, config.getMinConnectionsPerServer());
+        config.setMinConnectionsPerServer(2);
+        assertEquals(2, config.getMinConnectionsPerServer());
+    }
+
     /**
      * Test method for {@link MongoClientConfiguration#setReadTimeout(int)}.
      */
@@ -1360,6 +1448,34 @@ public class MongoClientConfigurationTest {
         assertEquals(0, config.getReadTimeout());
     }
 
+    /**
+     * Test method for
+     * {@link MongoClientConfiguration#setReceiveBufferPoolSize(int)}.
+     */
+    @Test
+    public void testSetReceiveBufferPoolSize() {
+        final MongoClientConfiguration config = new MongoClientConfiguration();
+
+        assertEquals(4, config.getReceiveBufferPoolSize());
+        config.setReceiveBufferPoolSize(16);
+        assertEquals(16, config.getReceiveBufferPoolSize());
+        config.setReceiveBufferPoolSize(0);
+        assertEquals(0, config.getReceiveBufferPoolSize());
+    }
+
+    /**
+     * Test method for
+     * {@link MongoClientConfiguration#setReceiveBufferSize(int)}.
+     */
+    @Test
+    public void testSetReceiveBufferSize() {
+        final MongoClientConfiguration config = new MongoClientConfiguration();
+
+        assertEquals(64 * 1024, config.getReceiveBufferSize());
+        config.setReceiveBufferSize(1024 * 1024);
+        assertEquals(1024 * 1024, config.getReceiveBufferSize());
+    }
+
     /**
      * Test method for {@link MongoClientConfiguration#setReconnectTimeout(int)}
      * .
@@ -1375,6 +1491,39 @@ public class MongoClientConfigurationTest {
         assertEquals(0, config.getReconnectTimeout());
     }
 
+    /**
+     * Test method for
+     * {@link MongoClientConfiguration#setSendBufferPoolSize(int)}.
+     */
+    @Test
+    public void testSetSendBufferPoolSize() {
+        final MongoClientConfiguration config = new MongoClientConfiguration();
+
+        assertEquals(4, config.getSendBufferPoolSize());
+        config.setSendBufferPoolSize(16);
+        assertEquals(16, config.getSendBufferPoolSize());
+    }
+
+    /**
+     * Test method for
+     * {@link MongoClientConfiguration#setServerSelection(ServerSelection)}.
+     */
+    @Test
+    public void testSetServerSelection() {
+        final MongoClientConfiguration config = new MongoClientConfiguration();
+
+        assertEquals(ServerSelection.AVERAGE_LATENCY,
+                config.getServerSelection());
+        config.setServerSelection(ServerSelection.POWER_OF_TWO_CHOICES);
+        assertEquals(ServerSelection.POWER_OF_TWO_CHOICES,
+                config.getServerSelection());
+
+        final MongoClientConfiguration copy = new MongoClientConfiguration(
+                config);
+        assertEquals(ServerSelection.POWER_OF_TWO_CHOICES,
+                copy.getServerSelection());
+    }
+
     /**
      * Test method for
      * {@link MongoClientConfiguration#setServers(java.util.List)}.
@@ -1412,6 +1561,26 @@ public class MongoClientConfigurationTest {
         assertSame(SocketFactory.getDefault(), config.getSocketFactory());
     }
 
+    /**
+     * Test method for
+     * {@link MongoClientConfiguration#setStringCachePolicy(StringCachePolicy)}
+     * .
+     */
+    @Test
+    public void testSetStringCachePolicy() {
+        final MongoClientConfiguration config = new MongoClientConfiguration();
+
+        assertEquals(StringCachePolicy.SAMPLING,
+                config.getStringCachePolicy());
+        config.setStringCachePolicy(StringCachePolicy.TINY_LFU);
+        assertEquals(StringCachePolicy.TINY_LFU,
+                config.getStringCachePolicy());
+
+        final MongoClientConfiguration copy = new MongoClientConfiguration(
+                config);
+        assertEquals(StringCachePolicy.TINY_LFU, copy.getStringCachePolicy());
+    }
+
     /**
      * Test method for
      * {@link MongoClientConfiguration#setThreadFactory(java.util.concurrent.ThreadFactory)}
@@ -1428,6 +1597,48 @@ public class MongoClientConfigurationTest {
         assertSame(tf, config.getThreadFactory());
     }
 
+    /**
+     * Test method for
+     * {@link MongoClientConfiguration#setUsingDirectReceiveBuffers(boolean)}
+     * .
+     */
+    @Test
+    public void testSetUsingDirectReceiveBuffers() {
+        final MongoClientConfiguration config = new MongoClientConfiguration();
+
+        assertFalse(config.isUsingDirectReceiveBuffers());
+        config.setUsingDirectReceiveBuffers(true);
+        assertTrue(config.isUsingDirectReceiveBuffers());
+    }
+
+    /**
+     * Test method for
+     * {@link MongoClientConfiguration#setUsingLazyDocuments(boolean)} .
+     */
+    @Test
+    public void testSetUsingLazyDocuments() {
+        final MongoClientConfiguration config = new MongoClientConfiguration();
+
+        assertFalse(config.isUsingLazyDocuments());
+        config.setUsingLazyDocuments(true);
+        assertTrue(config.isUsingLazyDocuments());
+        assertTrue(new MongoClientConfiguration(config).isUsingLazyDocuments());
+    }
+
+    /**
+     * Test method for
+     * {@link MongoClientConfiguration#setUsingDocumentShapes(boolean)} .
+     */
+    @Test
+    public void testSetUsingDocumentShapes() {
+        final MongoClientConfiguration config = new MongoClientConfiguration();
+
+        assertFalse(config.isUsingDocumentShapes());
+        config.setUsingDocumentShapes(true);
+        assertTrue(config.isUsingDocumentShapes());
+        assertTrue(new MongoClientConfiguration(config).isUsingDocumentShapes());
+    }
+
     /**
      * Test method for
      * {@link MongoClientConfiguration#setUsingSoKeepalive(boolean)} .
@@ -1441,4 +1652,22 @@ public class MongoClientConfigurationTest {
         assertFalse(config.isUsingSoKeepalive());
     }
 
+    /**
+     * Test method for
+     * {@link MongoClientConfiguration#setWaitStrategyFactory(WaitStrategyFactory)}
+     * .
+     */
+    @Test
+    public void testSetWaitStrategyFactory() {
+        final MongoClientConfiguration config = new MongoClientConfiguration();
+
+        assertNull(config.getWaitStrategyFactory());
+        config.setWaitStrategyFactory(WaitStrategyType.PARKING);
+        assertSame(WaitStrategyType.PARKING, config.getWaitStrategyFactory());
+
+        final MongoClientConfiguration copy = new MongoClientConfiguration(
+                config);
+        assertSame(WaitStrategyType.PARKING, copy.getWaitStrategyFactory());
+    }
+
 }
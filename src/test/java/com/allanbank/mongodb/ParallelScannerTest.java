@@ -0,0 +1,341 @@
+/*
+ * #%L
+ * ParallelScannerTest.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb;
+
+import static com.allanbank.mongodb.AnswerCallback.callback;
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.allanbank.mongodb.bson.Document;
+import com.allanbank.mongodb.bson.builder.BuilderFactory;
+import com.allanbank.mongodb.builder.ParallelScan;
+
+/**
+ * ParallelScannerTest provides tests for the {@link ParallelScanner} class.
+ *
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+@SuppressWarnings("unchecked")
+public class ParallelScannerTest {
+
+    /** An executor that runs each task on the calling thread. */
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(final Runnable command) {
+            command.run();
+        }
+    };
+
+    /**
+     * Test method for
+     * {@link ParallelScanner#scan(StreamCallback, ParallelScan.Builder)}.
+     *
+     * @throws Exception
+     *             On a test failure.
+     */
+    @Test
+    public void testScanCallback() throws Exception {
+        final Document doc1 = BuilderFactory.start().add("a", 1).build();
+        final Document doc2 = BuilderFactory.start().add("a", 2).build();
+        final Document doc3 = BuilderFactory.start().add("a", 3).build();
+
+        final ParallelScan.Builder scan = ParallelScan.builder()
+                .requestedIteratorCount(2);
+
+        final AsyncMongoCollection mockCollection = createMock(AsyncMongoCollection.class);
+        final MongoIterator<Document> mockCursor1 = createMock(MongoIterator.class);
+        final MongoIterator<Document> mockCursor2 = createMock(MongoIterator.class);
+        final StreamCallback<Document> mockResults = createMock(StreamCallback.class);
+
+        mockCollection.parallelScanAsync(
+                callback(cursors(mockCursor1, mockCursor2)), anyObject(ParallelScan.class));
+        expectLastCall();
+
+        expect(mockCursor1.hasNext()).andReturn(Boolean.TRUE);
+        expect(mockCursor1.next()).andReturn(doc1);
+        mockResults.callback(doc1);
+        expectLastCall();
+        expect(mockCursor1.hasNext()).andReturn(Boolean.TRUE);
+        expect(mockCursor1.next()).andReturn(doc2);
+        mockResults.callback(doc2);
+        expectLastCall();
+        expect(mockCursor1.hasNext()).andReturn(Boolean.FALSE);
+        mockCursor1.close();
+        expectLastCall();
+
+        expect(mockCursor2.hasNext()).andReturn(Boolean.TRUE);
+        expect(mockCursor2.next()).andReturn(doc3);
+        mockResults.callback(doc3);
+        expectLastCall();
+        expect(mockCursor2.hasNext()).andReturn(Boolean.FALSE);
+        mockCursor2.close();
+        expectLastCall();
+
+        mockResults.done();
+        expectLastCall();
+
+        replay(mockCollection, mockCursor1, mockCursor2, mockResults);
+
+        final ParallelScanner scanner = new ParallelScanner(mockCollection,
+                DIRECT);
+        final ListenableFuture<Long> future = scanner.scan(mockResults, scan);
+
+        assertThat(future.get(), is(Long.valueOf(3)));
+
+        verify(mockCollection, mockCursor1, mockCursor2, mockResults);
+    }
+
+    /**
+     * Test method for
+     * {@link ParallelScanner#scan(StreamCallback, ParallelScan)} when the
+     * future is cancelled.
+     */
+    @Test
+    public void testScanCancel() {
+        final ParallelScan scan = ParallelScan.builder().build();
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+
+        final AsyncMongoCollection mockCollection = createMock(AsyncMongoCollection.class);
+        final MongoIterator<Document> mockCursor1 = createMock(MongoIterator.class);
+        final MongoIterator<Document> mockCursor2 = createMock(MongoIterator.class);
+        final StreamCallback<Document> mockResults = createMock(StreamCallback.class);
+
+        mockCollection.parallelScanAsync(
+                callback(cursors(mockCursor1, mockCursor2)), eq(scan));
+        expectLastCall();
+
+        mockCursor1.close();
+        expectLastCall();
+        mockCursor2.close();
+        expectLastCall();
+
+        replay(mockCollection, mockCursor1, mockCursor2, mockResults);
+
+        final ParallelScanner scanner = new ParallelScanner(mockCollection,
+                new Executor() {
+                    @Override
+                    public void execute(final Runnable command) {
+                        tasks.add(command);
+                    }
+                });
+        final ListenableFuture<Long> future = scanner.scan(mockResults, scan);
+
+        assertTrue(future.cancel(true));
+        for (final Runnable task : tasks) {
+            task.run();
+        }
+
+        verify(mockCollection, mockCursor1, mockCursor2, mockResults);
+    }
+
+    /**
+     * Test method for
+     * {@link ParallelScanner#scan(StreamCallback, ParallelScan)} when a cursor
+     * fails.
+     *
+     * @throws InterruptedException
+     *             On a test failure.
+     */
+    @Test
+    public void testScanCursorFails() throws InterruptedException {
+        final ParallelScan scan = ParallelScan.builder().build();
+        final MongoDbException error = new MongoDbException("Injected");
+
+        final AsyncMongoCollection mockCollection = createMock(AsyncMongoCollection.class);
+        final MongoIterator<Document> mockCursor1 = createMock(MongoIterator.class);
+        final MongoIterator<Document> mockCursor2 = createMock(MongoIterator.class);
+        final StreamCallback<Document> mockResults = createMock(StreamCallback.class);
+
+        mockCollection.parallelScanAsync(
+                callback(cursors(mockCursor1, mockCursor2)), eq(scan));
+        expectLastCall();
+
+        expect(mockCursor1.hasNext()).andThrow(error);
+        mockCursor1.close();
+        expectLastCall();
+        mockResults.exception(error);
+        expectLastCall();
+
+        // Second cursor is not read once the scan has failed.
+        mockCursor2.close();
+        expectLastCall();
+
+        replay(mockCollection, mockCursor1, mockCursor2, mockResults);
+
+        final ParallelScanner scanner = new ParallelScanner(mockCollection,
+                DIRECT);
+        final ListenableFuture<Long> future = scanner.scan(mockResults, scan);
+        try {
+            future.get();
+            fail("Scan should have failed.");
+        }
+        catch (final ExecutionException good) {
+            assertThat(good.getCause(), sameInstance((Throwable) error));
+        }
+
+        verify(mockCollection, mockCursor1, mockCursor2, mockResults);
+    }
+
+    /**
+     * Test method for
+     * {@link ParallelScanner#scan(StreamCallback, ParallelScan)} when the scan
+     * command fails.
+     *
+     * @throws InterruptedException
+     *             On a test failure.
+     */
+    @Test
+    public void testScanFails() throws InterruptedException {
+        final ParallelScan scan = ParallelScan.builder().build();
+        final MongoDbException error = new MongoDbException("Injected");
+
+        final AsyncMongoCollection mockCollection = createMock(AsyncMongoCollection.class);
+        final StreamCallback<Document> mockResults = createMock(StreamCallback.class);
+
+        mockCollection.parallelScanAsync(
+                CallbackCapture.<Collection<MongoIterator<Document>>> callback(error),
+                eq(scan));
+        expectLastCall();
+
+        mockResults.exception(error);
+        expectLastCall();
+
+        replay(mockCollection, mockResults);
+
+        final ParallelScanner scanner = new ParallelScanner(mockCollection,
+                DIRECT);
+        final ListenableFuture<Long> future = scanner.scan(mockResults, scan);
+        try {
+            future.get();
+            fail("Scan should have failed.");
+        }
+        catch (final ExecutionException good) {
+            assertThat(good.getCause(), sameInstance((Throwable) error));
+        }
+
+        verify(mockCollection, mockResults);
+    }
+
+    /**
+     * Test method for
+     * {@link ParallelScanner#scan(BlockingQueue, ParallelScan.Builder)}.
+     *
+     * @throws Exception
+     *             On a test failure.
+     */
+    @Test
+    public void testScanQueue() throws Exception {
+        final Document doc1 = BuilderFactory.start().add("a", 1).build();
+        final Document doc2 = BuilderFactory.start().add("a", 2).build();
+        final Document doc3 = BuilderFactory.start().add("a", 3).build();
+        final Document doc4 = BuilderFactory.start().add("a", 4).build();
+
+        final ParallelScan.Builder scan = ParallelScan.builder()
+                .requestedIteratorCount(2);
+
+        final AsyncMongoCollection mockCollection = createMock(AsyncMongoCollection.class);
+        final MongoIterator<Document> mockCursor1 = createMock(MongoIterator.class);
+        final MongoIterator<Document> mockCursor2 = createMock(MongoIterator.class);
+
+        mockCollection.parallelScanAsync(
+                callback(cursors(mockCursor1, mockCursor2)), anyObject(ParallelScan.class));
+        expectLastCall();
+
+        expect(mockCursor1.hasNext()).andReturn(Boolean.TRUE);
+        expect(mockCursor1.next()).andReturn(doc1);
+        expect(mockCursor1.hasNext()).andReturn(Boolean.TRUE);
+        expect(mockCursor1.next()).andReturn(doc2);
+        expect(mockCursor1.hasNext()).andReturn(Boolean.FALSE);
+        mockCursor1.close();
+        expectLastCall();
+
+        expect(mockCursor2.hasNext()).andReturn(Boolean.TRUE);
+        expect(mockCursor2.next()).andReturn(doc3);
+        expect(mockCursor2.hasNext()).andReturn(Boolean.TRUE);
+        expect(mockCursor2.next()).andReturn(doc4);
+        expect(mockCursor2.hasNext()).andReturn(Boolean.FALSE);
+        mockCursor2.close();
+        expectLastCall();
+
+        replay(mockCollection, mockCursor1, mockCursor2);
+
+        // Queue only holds one document so the cursor tasks must wait for
+        // the consumer.
+        final BlockingQueue<Document> queue = new ArrayBlockingQueue<Document>(
+                1);
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final ParallelScanner scanner = new ParallelScanner(
+                    mockCollection, executor);
+            final ListenableFuture<Long> future = scanner.scan(queue, scan);
+
+            final List<Document> received = new ArrayList<Document>();
+            for (int i = 0; i < 4; ++i) {
+                received.add(queue.poll(10, TimeUnit.SECONDS));
+            }
+
+            assertThat(future.get(10, TimeUnit.SECONDS), is(Long.valueOf(4)));
+            assertThat(received, containsInAnyOrder(doc1, doc2, doc3, doc4));
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        verify(mockCollection, mockCursor1, mockCursor2);
+    }
+
+    /**
+     * Creates the collection of cursors.
+     *
+     * @param cursors
+     *            The cursors.
+     * @return The collection of cursors.
+     */
+    private Collection<MongoIterator<Document>> cursors(
+            final MongoIterator<Document>... cursors) {
+        return Arrays.asList(cursors);
+    }
+}
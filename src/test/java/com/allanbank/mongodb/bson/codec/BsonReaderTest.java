@@ -0,0 +1,225 @@
+/*
+ * #%L
+ * BsonReaderTest.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.bson.codec;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.EOFException;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import com.allanbank.mongodb.bson.ElementType;
+import com.allanbank.mongodb.bson.builder.BuilderFactory;
+import com.allanbank.mongodb.bson.builder.DocumentBuilder;
+import com.allanbank.mongodb.bson.element.ObjectId;
+import com.allanbank.mongodb.bson.io.StringDecoderCache;
+
+/**
+ * BsonReaderTest provides tests for the {@link BsonReader} class.
+ *
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+public class BsonReaderTest {
+
+    /**
+     * Test method for {@link BsonReader} reading every supported element
+     * type.
+     *
+     * @throws IOException
+     *             On a test failure.
+     */
+    @Test
+    public void testRead() throws IOException {
+        final ObjectId id = new ObjectId();
+
+        final DocumentBuilder builder = BuilderFactory.start();
+        builder.add("_id", id);
+        builder.add("binary", new byte[] { 1, 2, 3 });
+        builder.add("bool", true);
+        builder.add("double", 1.5D);
+        builder.add("int", 42);
+        builder.add("long", 1234567890123L);
+        builder.addNull("null");
+        builder.add("string", "sé");
+        builder.addTimestamp("timestamp", 987654321L);
+        builder.push("sub").add("a", 1);
+        builder.pushArray("array").add(1).add("two");
+
+        final byte[] bytes = BsonWriterTest.toBytes(builder.build());
+        final BsonReader reader = new BsonReader(bytes, 0, bytes.length,
+                new StringDecoderCache());
+
+        reader.readStartDocument();
+        assertThat(reader.getDepth(), is(1));
+
+        assertThat(reader.readNext(), is(ElementType.OBJECT_ID));
+        assertThat(reader.getName(), is("_id"));
+        assertThat(reader.readObjectId(), is(id));
+        assertThat(reader.getType(), nullValue());
+
+        assertThat(reader.readNext(), is(ElementType.BINARY));
+        assertArrayEquals(new byte[] { 1, 2, 3 }, reader.readBinary());
+
+        assertThat(reader.readNext(), is(ElementType.BOOLEAN));
+        assertThat(reader.readBoolean(), is(true));
+
+        assertThat(reader.readNext(), is(ElementType.DOUBLE));
+        assertThat(reader.readDouble(), is(1.5D));
+
+        assertThat(reader.readNext(), is(ElementType.INTEGER));
+        assertThat(reader.readInt(), is(42));
+
+        assertThat(reader.readNext(), is(ElementType.LONG));
+        assertThat(reader.readLong(), is(1234567890123L));
+
+        assertThat(reader.readNext(), is(ElementType.NULL));
+        reader.readNull();
+
+        assertThat(reader.readNext(), is(ElementType.STRING));
+        assertThat(reader.readString(), is("sé"));
+
+        assertThat(reader.readNext(), is(ElementType.UTC_TIMESTAMP));
+        assertThat(reader.readTimestamp(), is(987654321L));
+
+        assertThat(reader.readNext(), is(ElementType.DOCUMENT));
+        assertThat(reader.getName(), is("sub"));
+        reader.readStartDocument();
+        assertThat(reader.getDepth(), is(2));
+        assertThat(reader.readNext(), is(ElementType.INTEGER));
+        assertThat(reader.getName(), is("a"));
+        assertThat(reader.readInt(), is(1));
+        assertThat(reader.readNext(), nullValue());
+        assertThat(reader.getDepth(), is(1));
+
+        assertThat(reader.readNext(), is(ElementType.ARRAY));
+        reader.readStartArray();
+        assertThat(reader.readNext(), is(ElementType.INTEGER));
+        assertThat(reader.getName(), is("0"));
+        assertThat(reader.readInt(), is(1));
+        assertThat(reader.readNext(), is(ElementType.STRING));
+        assertThat(reader.getName(), is("1"));
+        assertThat(reader.readString(), is("two"));
+        assertThat(reader.readNext(), nullValue());
+
+        assertThat(reader.readNext(), nullValue());
+        assertThat(reader.getDepth(), is(0));
+    }
+
+    /**
+     * Test method for {@link BsonReader#readNext()}.
+     *
+     * @throws IOException
+     *             On a test failure.
+     */
+    @Test
+    public void testReadNextSkipsUnreadValues() throws IOException {
+        final DocumentBuilder builder = BuilderFactory.start();
+        builder.add("_id", new ObjectId());
+        builder.add("binary", new byte[] { 1, 2, 3 });
+        builder.add("string", "skipped");
+        builder.push("sub").add("a", 1).pushArray("b").add(2);
+        builder.pushArray("array").add(1).add("two");
+        builder.add("last", 7);
+
+        final byte[] bytes = BsonWriterTest.toBytes(builder.build());
+        final BsonReader reader = new BsonReader(bytes, 0, bytes.length, null);
+
+        reader.readStartDocument();
+        ElementType type = reader.readNext();
+        while (type != ElementType.INTEGER) {
+            type = reader.readNext();
+        }
+        assertThat(reader.getName(), is("last"));
+        assertThat(reader.readInt(), is(7));
+        assertThat(reader.readNext(), nullValue());
+    }
+
+    /**
+     * Test method for {@link BsonReader#readNext()}.
+     *
+     * @throws IOException
+     *             On a test failure.
+     */
+    @Test
+    public void testReadNextWithoutStart() throws IOException {
+        final byte[] bytes = BsonWriterTest.toBytes(BuilderFactory.start()
+                .build());
+        final BsonReader reader = new BsonReader(bytes, 0, bytes.length, null);
+
+        try {
+            reader.readNext();
+            fail("Should have thrown an IllegalStateException.");
+        }
+        catch (final IllegalStateException good) {
+            // Good.
+        }
+    }
+
+    /**
+     * Test method for {@link BsonReader#readStartDocument()}.
+     *
+     * @throws IOException
+     *             On a test failure.
+     */
+    @Test
+    public void testReadTruncated() throws IOException {
+        final byte[] bytes = BsonWriterTest.toBytes(BuilderFactory.start()
+                .add("string", "value").build());
+        final BsonReader reader = new BsonReader(bytes, 0, bytes.length - 4,
+                null);
+
+        try {
+            reader.readStartDocument();
+            fail("Should have thrown an EOFException.");
+        }
+        catch (final EOFException good) {
+            // Good.
+        }
+    }
+
+    /**
+     * Test method for {@link BsonReader#readInt()}.
+     *
+     * @throws IOException
+     *             On a test failure.
+     */
+    @Test
+    public void testReadWrongType() throws IOException {
+        final byte[] bytes = BsonWriterTest.toBytes(BuilderFactory.start()
+                .add("string", "value").build());
+        final BsonReader reader = new BsonReader(bytes, 0, bytes.length, null);
+
+        reader.readStartDocument();
+        reader.readNext();
+        try {
+            reader.readInt();
+            fail("Should have thrown an IllegalStateException.");
+        }
+        catch (final IllegalStateException good) {
+            // Good.
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * #%L
+ * BsonWriterTest.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.bson.codec;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import com.allanbank.mongodb.bson.Document;
+import com.allanbank.mongodb.bson.builder.BuilderFactory;
+import com.allanbank.mongodb.bson.builder.DocumentBuilder;
+import com.allanbank.mongodb.bson.element.ObjectId;
+import com.allanbank.mongodb.bson.io.BsonOutputStream;
+import com.allanbank.mongodb.bson.io.RandomAccessOutputStream;
+
+/**
+ * BsonWriterTest provides tests for the {@link BsonWriter} class.
+ *
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+public class BsonWriterTest {
+
+    /**
+     * Returns the encoded bytes for the document.
+     *
+     * @param document
+     *            The document to encode.
+     * @return The encoded bytes.
+     * @throws IOException
+     *             On a failure encoding the document.
+     */
+    public static byte[] toBytes(final Document document) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new BsonOutputStream(out).writeDocument(document);
+        return out.toByteArray();
+    }
+
+    /**
+     * Returns the bytes written to the stream.
+     *
+     * @param output
+     *            The stream to return the bytes of.
+     * @return The bytes written.
+     * @throws IOException
+     *             On a failure copying the bytes.
+     */
+    private static byte[] toBytes(final RandomAccessOutputStream output)
+            throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        output.writeTo(out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Test method for {@link BsonWriter} writing every supported element
+     * type.
+     *
+     * @throws IOException
+     *             On a test failure.
+     */
+    @Test
+    public void testWriteMatchesBuilder() throws IOException {
+        final ObjectId id = new ObjectId();
+
+        final DocumentBuilder builder = BuilderFactory.start();
+        builder.add("_id", id);
+        builder.add("binary", new byte[] { 1, 2, 3 });
+        builder.add("bool", true);
+        builder.add("double", 1.5D);
+        builder.add("int", 42);
+        builder.add("long", 1234567890123L);
+        builder.addNull("null");
+        builder.add("string", "sé");
+        builder.addTimestamp("timestamp", 987654321L);
+        builder.push("sub").add("a", 1).pop();
+        builder.pushArray("array").add(1).add("two").push().add("b", false)
+                .pop();
+
+        final RandomAccessOutputStream output = new RandomAccessOutputStream();
+        final BsonWriter writer = new BsonWriter(output);
+        writer.writeStartDocument();
+        writer.writeObjectId("_id", id);
+        writer.writeBinary("binary", new byte[] { 1, 2, 3 });
+        writer.writeBoolean("bool", true);
+        writer.writeDouble("double", 1.5D);
+        writer.writeInt("int", 42);
+        writer.writeLong("long", 1234567890123L);
+        writer.writeNull("null");
+        writer.writeString("string", "sé");
+        writer.writeTimestamp("timestamp", 987654321L);
+        writer.writeStartDocument("sub");
+        writer.writeInt("a", 1);
+        writer.writeEnd();
+        writer.writeStartArray("array");
+        writer.writeInt(null, 1);
+        writer.writeString(null, "two");
+        writer.writeStartDocument(null);
+        writer.writeBoolean("b", false);
+        writer.writeEnd();
+        assertThat(writer.getDepth(), is(2));
+        writer.writeEnd();
+        writer.writeEnd();
+        assertThat(writer.getDepth(), is(0));
+
+        assertArrayEquals(toBytes(builder.build()), toBytes(output));
+    }
+
+    /**
+     * Test method for {@link BsonWriter#isIdWritten()}.
+     */
+    @Test
+    public void testIsIdWritten() {
+        final BsonWriter writer = new BsonWriter(new RandomAccessOutputStream());
+        writer.writeStartDocument();
+        writer.writeStartDocument("sub");
+        writer.writeInt("_id", 1);
+        writer.writeEnd();
+        writer.writeStartArray("array");
+        writer.writeInt(null, 1);
+        writer.writeEnd();
+        assertThat(writer.isIdWritten(), is(false));
+
+        writer.writeInt("_id", 2);
+        assertThat(writer.isIdWritten(), is(true));
+        writer.writeEnd();
+        assertThat(writer.isIdWritten(), is(true));
+    }
+
+    /**
+     * Test method for {@link BsonWriter#writeEnd()}.
+     */
+    @Test
+    public void testWriteEndWithoutStart() {
+        final BsonWriter writer = new BsonWriter(new RandomAccessOutputStream());
+        try {
+            writer.writeEnd();
+            fail("Should have thrown an IllegalStateException.");
+        }
+        catch (final IllegalStateException good) {
+            // Good.
+        }
+    }
+
+    /**
+     * Test method for {@link BsonWriter#writeInt(String, int)}.
+     */
+    @Test
+    public void testWriteNullNameInDocument() {
+        final BsonWriter writer = new BsonWriter(new RandomAccessOutputStream());
+        writer.writeStartDocument();
+        try {
+            writer.writeInt(null, 1);
+            fail("Should have thrown an IllegalArgumentException.");
+        }
+        catch (final IllegalArgumentException good) {
+            // Good.
+        }
+    }
+
+    /**
+     * Test method for {@link BsonWriter#writeString(String, String)}.
+     *
+     * @throws IOException
+     *             On a test failure.
+     */
+    @Test
+    public void testWriteNullString() throws IOException {
+        final RandomAccessOutputStream output = new RandomAccessOutputStream();
+        final BsonWriter writer = new BsonWriter(output);
+        writer.writeStartDocument();
+        writer.writeString("s", null);
+        writer.writeEnd();
+
+        assertArrayEquals(toBytes(BuilderFactory.start().addNull("s").build()),
+                toBytes(output));
+    }
+
+    /**
+     * Test method for {@link BsonWriter#writeInt(String, int)}.
+     */
+    @Test
+    public void testWriteWithoutStart() {
+        final BsonWriter writer = new BsonWriter(new RandomAccessOutputStream());
+        try {
+            writer.writeInt("a", 1);
+            fail("Should have thrown an IllegalStateException.");
+        }
+        catch (final IllegalStateException good) {
+            // Good.
+        }
+    }
+}
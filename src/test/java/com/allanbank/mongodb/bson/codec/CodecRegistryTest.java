@@ -0,0 +1,90 @@
+/*
+ * #%L
+ * CodecRegistryTest.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.bson.codec;
+
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+/**
+ * CodecRegistryTest provides tests for the {@link CodecRegistry} class.
+ *
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+public class CodecRegistryTest {
+
+    /**
+     * Test method for {@link CodecRegistry#getCodec(Class)}.
+     */
+    @Test
+    public void testGetCodecForSubclass() {
+        final CodecRegistry registry = new CodecRegistry();
+        final PointCodec codec = new PointCodec();
+
+        registry.register(codec);
+
+        final Point subclass = new Point(1, 2) {
+            // Anonymous sub-class.
+        };
+        assertThat(registry.getCodec(subclass.getClass()),
+                sameInstance((Object) codec));
+    }
+
+    /**
+     * Test method for {@link CodecRegistry#getRequiredCodec(Class)}.
+     */
+    @Test
+    public void testGetRequiredCodecMissing() {
+        final CodecRegistry registry = new CodecRegistry();
+
+        try {
+            registry.getRequiredCodec(Point.class);
+            fail("Should have thrown an IllegalArgumentException.");
+        }
+        catch (final IllegalArgumentException good) {
+            // Good.
+        }
+    }
+
+    /**
+     * Test method for {@link CodecRegistry#register(Codec)} and
+     * {@link CodecRegistry#unregister(Class)}.
+     */
+    @Test
+    public void testRegisterUnregister() {
+        final CodecRegistry registry = new CodecRegistry();
+        final PointCodec codec = new PointCodec();
+
+        assertThat(registry.getCodec(Point.class), nullValue());
+
+        registry.register(codec);
+        assertThat(registry.getCodec(Point.class),
+                sameInstance((Codec<Point>) codec));
+        assertThat(registry.getRequiredCodec(Point.class),
+                sameInstance((Codec<Point>) codec));
+
+        registry.unregister(Point.class);
+        assertThat(registry.getCodec(Point.class), nullValue());
+    }
+}
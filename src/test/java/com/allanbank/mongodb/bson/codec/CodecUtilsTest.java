@@ -0,0 +1,155 @@
+/*
+ * #%L
+ * CodecUtilsTest.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.bson.codec;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+import com.allanbank.mongodb.bson.Document;
+import com.allanbank.mongodb.bson.Element;
+import com.allanbank.mongodb.bson.builder.BuilderFactory;
+import com.allanbank.mongodb.bson.element.ObjectIdElement;
+import com.allanbank.mongodb.bson.element.StringElement;
+import com.allanbank.mongodb.bson.impl.LazyDocument;
+
+/**
+ * CodecUtilsTest provides tests for the {@link CodecUtils} class.
+ *
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+public class CodecUtilsTest {
+
+    /**
+     * Test method for {@link CodecUtils#fromDocument(Document, Decoder)}.
+     *
+     * @throws IOException
+     *             On a test failure.
+     */
+    @Test
+    public void testFromDocument() throws IOException {
+        final Document document = BuilderFactory.start().add("x", 1)
+                .add("ignored", "foo").add("y", 2).build();
+
+        assertThat(CodecUtils.fromDocument(document, new PointCodec()),
+                is(new Point(1, 2)));
+    }
+
+    /**
+     * Test method for {@link CodecUtils#toDocument(Object, Encoder)}.
+     *
+     * @throws IOException
+     *             On a test failure.
+     */
+    @Test
+    public void testToDocument() throws IOException {
+        final Document document = CodecUtils.toDocument(new Point(3, 4),
+                new PointCodec());
+
+        assertThat(document, instanceOf(LazyDocument.class));
+        assertThat(document, is(BuilderFactory.start().add("x", 3).add("y", 4)
+                .build()));
+        assertThat(CodecUtils.fromDocument(document, new PointCodec()),
+                is(new Point(3, 4)));
+    }
+
+    /**
+     * Test method for {@link CodecUtils#toDocument(Object, Encoder, boolean)}
+     * .
+     *
+     * @throws IOException
+     *             On a test failure.
+     */
+    @Test
+    public void testToDocumentInjectId() throws IOException {
+        final Document document = CodecUtils.toDocument(new Point(3, 4),
+                new PointCodec(), true);
+
+        assertThat(document, instanceOf(LazyDocument.class));
+
+        final Element id = document.iterator().next();
+        assertThat(id, instanceOf(ObjectIdElement.class));
+        assertThat(document, is(BuilderFactory.start().add(id).add("x", 3)
+                .add("y", 4).build()));
+        assertThat(CodecUtils.fromDocument(document, new PointCodec()),
+                is(new Point(3, 4)));
+    }
+
+    /**
+     * Test method for {@link CodecUtils#toDocument(Object, Encoder, boolean)}
+     * when the encoder writes an "_id".
+     *
+     * @throws IOException
+     *             On a test failure.
+     */
+    @Test
+    public void testToDocumentInjectIdExisting() throws IOException {
+        final Encoder<Point> encoder = new Encoder<Point>() {
+            @Override
+            public void encode(final Point object, final BsonWriter writer) {
+                writer.writeStartDocument();
+                writer.writeStartDocument("sub");
+                writer.writeInt("_id", object.getX());
+                writer.writeEnd();
+                writer.writeInt("_id", object.getY());
+                writer.writeEnd();
+            }
+        };
+
+        assertThat(CodecUtils.toDocument(new Point(3, 4), encoder, true),
+                is(BuilderFactory.start().add("sub", BuilderFactory.start()
+                        .add("_id", 3)).add("_id", 4).build()));
+    }
+
+    /**
+     * Test method for {@link CodecUtils#toDocument(Object, Encoder)} reusing
+     * the encoding buffer.
+     *
+     * @throws IOException
+     *             On a test failure.
+     */
+    @Test
+    public void testToDocumentReusesBuffer() throws IOException {
+        final StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 20000; ++i) {
+            value.append((char) ('a' + (i % 26)));
+        }
+        final Encoder<String> encoder = new Encoder<String>() {
+            @Override
+            public void encode(final String object, final BsonWriter writer) {
+                writer.writeStartDocument();
+                writer.writeString("s", object);
+                writer.writeEnd();
+            }
+        };
+
+        // Larger than a single buffer.
+        assertThat(CodecUtils.toDocument(value.toString(), encoder, true)
+                .get(StringElement.class, "s").getValue(), is(value
+                .toString()));
+        assertThat(CodecUtils.toDocument("small", encoder),
+                is(BuilderFactory.start().add("s", "small").build()));
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * #%L
+ * Point.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.bson.codec;
+
+/**
+ * Point provides a simple object for testing codecs.
+ *
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+public class Point {
+
+    /** The x coordinate. */
+    private final int myX;
+
+    /** The y coordinate. */
+    private final int myY;
+
+    /**
+     * Creates a new Point.
+     *
+     * @param x
+     *            The x coordinate.
+     * @param y
+     *            The y coordinate.
+     */
+    public Point(final int x, final int y) {
+        myX = x;
+        myY = y;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to compare the coordinates.
+     * </p>
+     */
+    @Override
+    public boolean equals(final Object object) {
+        if (object instanceof Point) {
+            final Point other = (Point) object;
+            return (myX == other.myX) && (myY == other.myY);
+        }
+        return false;
+    }
+
+    /**
+     * Returns the x coordinate.
+     *
+     * @return The x coordinate.
+     */
+    public int getX() {
+        return myX;
+    }
+
+    /**
+     * Returns the y coordinate.
+     *
+     * @return The y coordinate.
+     */
+    public int getY() {
+        return myY;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to hash the coordinates.
+     * </p>
+     */
+    @Override
+    public int hashCode() {
+        return (31 * myX) + myY;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to return the coordinates.
+     * </p>
+     */
+    @Override
+    public String toString() {
+        return "(" + myX + ", " + myY + ")";
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * #%L
+ * PointCodec.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.bson.codec;
+
+import java.io.IOException;
+
+/**
+ * PointCodec provides a {@link Codec} for {@link Point} objects.
+ *
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+public class PointCodec
+        implements Codec<Point> {
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to read the x and y fields.
+     * </p>
+     */
+    @Override
+    public Point decode(final BsonReader reader) throws IOException {
+        int x = 0;
+        int y = 0;
+
+        reader.readStartDocument();
+        while (reader.readNext() != null) {
+            if ("x".equals(reader.getName())) {
+                x = reader.readInt();
+            }
+            else if ("y".equals(reader.getName())) {
+                y = reader.readInt();
+            }
+        }
+
+        return new Point(x, y);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to write the x and y fields.
+     * </p>
+     */
+    @Override
+    public void encode(final Point object, final BsonWriter writer) {
+        writer.writeStartDocument();
+        writer.writeInt("x", object.getX());
+        writer.writeInt("y", object.getY());
+        writer.writeEnd();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to return the {@link Point} class.
+     * </p>
+     */
+    @Override
+    public Class<Point> getType() {
+        return Point.class;
+    }
+}
@@ -36,6 +36,7 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -120,6 +121,37 @@ public class BinaryElementTest {
         assertEquals(ElementType.BINARY, element.getType());
     }
 
+    /**
+     * Test method for
+     * {@link BinaryElement#BinaryElement(String, byte, byte[], int, int)}.
+     */
+    @Test
+    public void testBinaryElementRangeConstructor() {
+        final byte[] value = new byte[] { 0x01, 0x02, 0x03, 0x04 };
+        final BinaryElement element = new BinaryElement("foo", (byte) 0x01,
+                value, 1, 2);
+
+        assertEquals("foo", element.getName());
+        assertEquals(0x01, element.getSubType());
+        assertArrayEquals(new byte[] { 0x02, 0x03 }, element.getValue());
+        assertEquals(new BinaryElement("foo", (byte) 0x01, new byte[] { 0x02,
+                0x03 }), element);
+        assertEquals(new BinaryElement("foo", (byte) 0x01, new byte[] { 0x02,
+                0x03 }).size(), element.size());
+
+        // Copied.
+        value[1] = 0x7F;
+        assertArrayEquals(new byte[] { 0x02, 0x03 }, element.getValue());
+
+        try {
+            new BinaryElement("foo", (byte) 0x01, value, 3, 2);
+            fail("Should have thrown an ArrayIndexOutOfBoundsException.");
+        }
+        catch (final ArrayIndexOutOfBoundsException good) {
+            // Good.
+        }
+    }
+
     /**
      * Test method for
      * {@link BinaryElement#BinaryElement(String, byte, BsonInputStream, int) )}
@@ -484,4 +516,56 @@ public class BinaryElementTest {
         assertSame(element, element.withName("foo"));
     }
 
+    /**
+     * Test method for {@link BinaryElement#writeTo(java.io.OutputStream)}.
+     *
+     * @throws IOException
+     *             On a failure.
+     */
+    @Test
+    public void testWriteTo() throws IOException {
+        final BinaryElement element = new BinaryElement("foo", (byte) 0x01,
+                new byte[] { 0x01, 0x02, 0x03 });
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        element.writeTo(out);
+
+        assertArrayEquals(new byte[] { 0x01, 0x02, 0x03 }, out.toByteArray());
+    }
+
+    /**
+     * Test method for
+     * {@link BinaryElement#writeTo(java.io.OutputStream, int, int)}.
+     *
+     * @throws IOException
+     *             On a test failure.
+     */
+    @Test
+    public void testWriteToRange() throws IOException {
+        final BinaryElement element = new BinaryElement("foo", (byte) 0x01,
+                new byte[] { 0x01, 0x02, 0x03, 0x04 });
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        element.writeTo(out, 1, 2);
+        assertArrayEquals(new byte[] { 0x02, 0x03 }, out.toByteArray());
+
+        out.reset();
+        element.writeTo(out, 4, 0);
+        assertArrayEquals(new byte[0], out.toByteArray());
+
+        try {
+            element.writeTo(out, 3, 2);
+            fail("Should have thrown an IndexOutOfBoundsException.");
+        }
+        catch (final IndexOutOfBoundsException good) {
+            // Good.
+        }
+        try {
+            element.writeTo(out, -1, 2);
+            fail("Should have thrown an IndexOutOfBoundsException.");
+        }
+        catch (final IndexOutOfBoundsException good) {
+            // Good.
+        }
+    }
 }
@@ -0,0 +1,147 @@
+/*
+ * #%L
+ * ElementIndexTest.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.allanbank.mongodb.bson.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.allanbank.mongodb.bson.Element;
+import com.allanbank.mongodb.bson.element.IntegerElement;
+
+/**
+ * ElementIndexTest provides tests for the {@link ElementIndex} class.
+ *
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+public class ElementIndexTest {
+
+    /**
+     * Test method for {@link ElementIndex#indexOf(List, String)} with
+     * duplicate names.
+     */
+    @Test
+    public void testIndexOfDuplicateNames() {
+        final List<Element> small = elements("f", 3);
+        small.add(new IntegerElement("f1", 100));
+
+        final List<Element> large = elements("f", ElementIndex.MAX_SCAN_SIZE * 2);
+        large.add(new IntegerElement("f1", 100));
+
+        assertEquals(3,
+                ElementIndex.forElements(small).indexOf(small, "f1"));
+        assertEquals(large.size() - 1, ElementIndex.forElements(large)
+                .indexOf(large, "f1"));
+    }
+
+    /**
+     * Test method for {@link ElementIndex#indexOf(List, String)} for a large
+     * document.
+     */
+    @Test
+    public void testIndexOfLarge() {
+        final List<Element> elements = elements("large",
+                ElementIndex.MAX_SCAN_SIZE * 10);
+        final ElementIndex index = ElementIndex.forElements(elements);
+
+        for (int i = 0; i < elements.size(); ++i) {
+            // Use a copy of the name that is not the same instance.
+            assertEquals(i,
+                    index.indexOf(elements, new String("large" + i)));
+        }
+        assertEquals(-1, index.indexOf(elements, "large"));
+        assertEquals(-1, index.indexOf(elements, "missing"));
+    }
+
+    /**
+     * Test method for {@link ElementIndex#indexOf(List, String)} for a small
+     * document.
+     */
+    @Test
+    public void testIndexOfSmall() {
+        final List<Element> elements = elements("small",
+                ElementIndex.MAX_SCAN_SIZE);
+        final ElementIndex index = ElementIndex.forElements(elements);
+
+        for (int i = 0; i < elements.size(); ++i) {
+            assertEquals(i, index.indexOf(elements, "small" + i));
+        }
+        assertEquals(-1, index.indexOf(elements, "missing"));
+    }
+
+    /**
+     * Test method for {@link ElementIndex#isFor(List)}.
+     */
+    @Test
+    public void testIsFor() {
+        final List<Element> small = elements("f", ElementIndex.MAX_SCAN_SIZE);
+        final List<Element> large = elements("f",
+                ElementIndex.MAX_SCAN_SIZE + 1);
+
+        assertTrue(ElementIndex.forElements(small).isFor(small));
+        assertFalse(ElementIndex.forElements(small).isFor(large));
+        assertTrue(ElementIndex.forElements(large).isFor(large));
+        assertFalse(ElementIndex.forElements(large).isFor(small));
+    }
+
+    /**
+     * Test method for {@link ElementIndex#forElements(List)} sharing the index
+     * across documents with the same layout.
+     */
+    @Test
+    public void testSharedLayout() {
+        final List<Element> elements1 = elements("shared", 20);
+        final List<Element> elements2 = elements("shared", 20);
+        final List<Element> other = elements("other", 20);
+
+        final ElementIndex index = ElementIndex.forElements(elements1);
+        assertSame(index, ElementIndex.forElements(elements2));
+        assertNotSame(index, ElementIndex.forElements(other));
+        assertEquals(-1, ElementIndex.forElements(other).indexOf(other,
+                "shared1"));
+        assertEquals(1, ElementIndex.forElements(other).indexOf(other,
+                "other1"));
+    }
+
+    /**
+     * Creates a list of elements with names made from the prefix and the
+     * position of the element.
+     *
+     * @param prefix
+     *            The prefix for the names.
+     * @param count
+     *            The number of elements to create.
+     * @return The elements.
+     */
+    private List<Element> elements(final String prefix, final int count) {
+        final List<Element> elements = new ArrayList<Element>(count);
+        for (int i = 0; i < count; ++i) {
+            elements.add(new IntegerElement(prefix + i, i));
+        }
+        return elements;
+    }
+}
@@ -0,0 +1,538 @@
+/*
+ * #%L
+ * LazyDocumentTest.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.bson.impl;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import com.allanbank.mongodb.bson.Document;
+import com.allanbank.mongodb.bson.Element;
+import com.allanbank.mongodb.bson.builder.ArrayBuilder;
+import com.allanbank.mongodb.bson.builder.BuilderFactory;
+import com.allanbank.mongodb.bson.builder.DocumentBuilder;
+import com.allanbank.mongodb.bson.element.IntegerElement;
+import com.allanbank.mongodb.bson.element.ObjectId;
+import com.allanbank.mongodb.bson.element.StringElement;
+import com.allanbank.mongodb.bson.io.BsonOutputStream;
+import com.allanbank.mongodb.bson.io.BufferingBsonOutputStream;
+import com.allanbank.mongodb.bson.io.StringDecoder;
+import com.allanbank.mongodb.bson.io.StringDecoderCache;
+
+/**
+ * LazyDocumentTest provides tests for the {@link LazyDocument} class.
+ *
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+public class LazyDocumentTest {
+
+    /**
+     * Encodes the document.
+     *
+     * @param doc
+     *            The document to encode.
+     * @return The encoded document.
+     * @throws IOException
+     *             On a failure encoding the document.
+     */
+    private static byte[] encode(final Document doc) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final BsonOutputStream writer = new BsonOutputStream(out);
+        writer.writeDocument(doc);
+
+        return out.toByteArray();
+    }
+
+    /**
+     * Computes the hash of the encoded types and names of the elements the
+     * same way as the {@link LazyDocument}.
+     *
+     * @param bytes
+     *            The encoded document.
+     * @param offsets
+     *            The offset of each element.
+     * @return The hash of the encoded types and names.
+     */
+    private static int hash(final byte[] bytes, final int[] offsets) {
+        int hash = 0;
+        for (final int offset : offsets) {
+            int position = offset;
+            do {
+                hash = (31 * hash) + bytes[position];
+                position += 1;
+            }
+            while (bytes[position] != 0);
+        }
+        return hash;
+    }
+
+    /**
+     * Creates a document with every element type.
+     *
+     * @return The document with every element type.
+     */
+    @SuppressWarnings("deprecation")
+    private static Document completeDocument() {
+        final Document simple = BuilderFactory.start().addBoolean("true", true)
+                .build();
+
+        final DocumentBuilder builder = BuilderFactory.start();
+        builder.add("_id", new ObjectId(1, 2L));
+        builder.add("binary", new byte[20]);
+        builder.add("binary-2", (byte) 2, new byte[40]);
+        builder.add("true", true);
+        builder.add("DBPointer", "db", "collection", new ObjectId(1, 2L));
+        builder.add("double", 4884.45345);
+        builder.add("simple", simple);
+        builder.add("int", 123456);
+        builder.addJavaScript("javascript", "function foo() { }");
+        builder.addJavaScript("javascript_with_code", "function foo() { }",
+                simple);
+        builder.add("long", 1234567890L);
+        builder.addMaxKey("max");
+        builder.addMinKey("min");
+        builder.addMongoTimestamp("mongo-time", 1234567L);
+        builder.addNull("null");
+        builder.addRegularExpression("regex", ".*", "i");
+        builder.add("string", "string\u0090\ufffe");
+        builder.addSymbol("symbol", "symbol");
+        builder.addTimestamp("timestamp", 1234567L);
+        builder.add("timestamp2", new Date(1234567L));
+        builder.push("sub-doc").addBoolean("true", true).pop();
+
+        final ArrayBuilder aBuilder = builder.pushArray("array");
+        aBuilder.add(1);
+        aBuilder.add("two");
+        aBuilder.add(Pattern.compile("three"));
+
+        return builder.build();
+    }
+
+    /**
+     * Test method for {@link LazyDocument#contains(String)}.
+     *
+     * @throws IOException
+     *             On a test failure.
+     */
+    @Test
+    public void testContains() throws IOException {
+        final LazyDocument lazy = new LazyDocument(
+                encode(completeDocument()), new StringDecoderCache());
+
+        assertTrue(lazy.contains("_id"));
+        assertTrue(lazy.contains("array"));
+        assertTrue(lazy.contains("int"));
+        assertFalse(lazy.contains("not_there"));
+    }
+
+    /**
+     * Test method for {@link LazyDocument#LazyDocument}.
+     */
+    @Test
+    public void testConstructorWithBadBytes() {
+        final byte[][] bad = new byte[][] { new byte[0],
+                new byte[] { 5, 0, 0, 0 }, new byte[] { 6, 0, 0, 0, 0 },
+                new byte[] { 5, 0, 0, 0, 1 } };
+        for (final byte[] bytes : bad) {
+            try {
+                new LazyDocument(bytes, new StringDecoderCache());
+                fail("Should have thrown an IllegalArgumentException.");
+            }
+            catch (final IllegalArgumentException good) {
+                // Good.
+            }
+        }
+    }
+
+    /**
+     * Test method for {@link LazyDocument#equals(Object)} and
+     * {@link LazyDocument#hashCode()}.
+     *
+     * @throws IOException
+     *             On a test failure.
+     */
+    @Test
+    public void testEqualsHashCode() throws IOException {
+        final Document doc = completeDocument();
+        final LazyDocument lazy = new LazyDocument(encode(doc),
+                new StringDecoderCache());
+
+        assertEquals(doc, lazy);
+        assertEquals(lazy, doc);
+        assertEquals(doc.hashCode(), lazy.hashCode());
+        assertEquals(doc.toString(), lazy.toString());
+    }
+
+    /**
+     * Test method for {@link LazyDocument#find(String[])} and
+     * {@link LazyDocument#findFirst(String[])}.
+     *
+     * @throws IOException
+     *             On a test failure.
+     */
+    @Test
+    public void testFind() throws IOException {
+        final Document doc = completeDocument();
+        final LazyDocument lazy = new LazyDocument(encode(doc),
+                new StringDecoderCache());
+
+        assertEquals(doc.find("sub-doc", "true"), lazy.find("sub-doc", "true"));
+        assertEquals(doc.find("time.*"), lazy.find("time.*"));
+        assertEquals(doc.find("array", "1"), lazy.find("array", "1"));
+        assertEquals(doc.find("[bad"), lazy.find("[bad"));
+        assertEquals(doc.find(StringElement.class, ".*"),
+                lazy.find(StringElement.class, ".*"));
+        assertTrue(lazy.find().isEmpty());
+
+        assertEquals(doc.findFirst("time.*"), lazy.findFirst("time.*"));
+        assertEquals(doc.findFirst(IntegerElement.class, ".*"),
+                lazy.findFirst(IntegerElement.class, ".*"));
+        assertThat(lazy.findFirst("[bad"), nullValue());
+        assertThat(lazy.findFirst(), nullValue());
+    }
+
+    /**
+     * Test method for {@link LazyDocument#get(String)}.
+     *
+     * @throws IOException
+     *             On a test failure.
+     */
+    @Test
+    public void testGet() throws IOException {
+        final Document doc = completeDocument();
+        final LazyDocument lazy = new LazyDocument(encode(doc),
+                new StringDecoderCache());
+
+        // Out of order to force indexing then lookups.
+        assertEquals(doc.get("string"), lazy.get("string"));
+        assertEquals(doc.get("_id"), lazy.get("_id"));
+        assertEquals(doc.get("array"), lazy.get("array"));
+        assertEquals(doc.get("regex"), lazy.get("regex"));
+        assertThat(lazy.get("not_there"), nullValue());
+        assertEquals(doc.get(IntegerElement.class, "int"),
+                lazy.get(IntegerElement.class, "int"));
+        assertThat(lazy.get(StringElement.class, "int"), nullValue());
+
+        for (final Element element : doc) {
+            assertEquals(element, lazy.get(element.getName()));
+        }
+    }
+
+    /**
+     * Test method for {@link LazyDocument#get(String)} with duplicate names
+     * returns the same element as the {@link RootDocument}.
+     *
+     * @throws IOException
+     *             On a test failure.
+     */
+    @Test
+    public void testGetDuplicateNames() throws IOException {
+        final List<Element> elements = new ArrayList<Element>();
+        elements.add(new IntegerElement("a", 1));
+        elements.add(new IntegerElement("b", 2));
+        elements.add(new IntegerElement("a", 3));
+        Document doc = new RootDocument(elements);
+        LazyDocument lazy = new LazyDocument(encode(doc), null);
+
+        assertThat(lazy.get(IntegerElement.class, "a").getValue(), is(3));
+        assertEquals(doc.get("a"), lazy.get("a"));
+        assertTrue(lazy.contains("b"));
+        assertFalse(lazy.contains("c"));
+
+        // Large enough to be indexed.
+        elements.clear();
+        for (int i = 0; i < (ElementIndex.MAX_SCAN_SIZE * 2); ++i) {
+            elements.add(new IntegerElement("f" + i, i));
+        }
+        elements.add(new IntegerElement("f1", 100));
+        doc = new RootDocument(elements);
+        lazy = new LazyDocument(encode(doc), null);
+
+        assertThat(lazy.get(IntegerElement.class, "f1").getValue(), is(100));
+        assertEquals(doc.get("f1"), lazy.get("f1"));
+        assertEquals(doc.get("f2"), lazy.get("f2"));
+        assertThat(lazy.get("f"), nullValue());
+    }
+
+    /**
+     * Test method for
+     * {@link LazyDocument#LazyDocument(byte[], StringDecoderCache, DocumentShapeCache)}
+     * sharing the shape of the documents.
+     *
+     * @throws IOException
+     *             On a test failure.
+     */
+    @Test
+    public void testGetWithSharedShape() throws IOException {
+        final DocumentShapeCache shapes = new DocumentShapeCache();
+        final StringDecoderCache cache = new StringDecoderCache();
+
+        final Document doc = completeDocument();
+        final LazyDocument first = new LazyDocument(encode(doc), cache, shapes);
+        final LazyDocument second = new LazyDocument(encode(doc), cache,
+                shapes);
+
+        assertEquals(doc.get("string"), first.get("string"));
+        assertEquals(doc.get("array"), second.get("array"));
+        assertThat(first.get("not_there"), nullValue());
+        assertEquals(doc, first);
+        assertEquals(doc, second);
+        assertEquals(doc.getElements(), second.getElements());
+        assertEquals(doc.find("time.*"), second.find("time.*"));
+
+        // Same names with a different type is a different shape.
+        final Document other = BuilderFactory.start().add("a", 1)
+                .add("b", "2").build();
+        final Document otherTyped = BuilderFactory.start().add("a", "1")
+                .add("b", 2).build();
+        final LazyDocument lazyOther = new LazyDocument(encode(other), cache,
+                shapes);
+        final LazyDocument lazyOtherTyped = new LazyDocument(
+                encode(otherTyped), cache, shapes);
+
+        assertEquals(other, lazyOther);
+        assertEquals(otherTyped, lazyOtherTyped);
+        assertThat(lazyOtherTyped.get(StringElement.class, "b"), nullValue());
+
+        // Large enough to be indexed, with a duplicate name.
+        final List<Element> elements = new ArrayList<Element>();
+        for (int i = 0; i < (ElementIndex.MAX_SCAN_SIZE * 2); ++i) {
+            elements.add(new IntegerElement("f" + i, i));
+        }
+        elements.add(new IntegerElement("f1", 100));
+        final Document large = new RootDocument(elements);
+        final LazyDocument lazyLarge = new LazyDocument(encode(large), cache,
+                shapes);
+        final LazyDocument lazyLarge2 = new LazyDocument(encode(large), cache,
+                shapes);
+
+        assertThat(lazyLarge.get(IntegerElement.class, "f1").getValue(),
+                is(100));
+        assertEquals(large.get("f2"), lazyLarge2.get("f2"));
+        assertThat(lazyLarge2.get("f"), nullValue());
+        assertEquals(large, lazyLarge2);
+
+        // Empty document.
+        final Document empty = BuilderFactory.start().build();
+        final LazyDocument lazyEmpty = new LazyDocument(encode(empty), cache,
+                shapes);
+        assertTrue(lazyEmpty.getElements().isEmpty());
+        assertFalse(lazyEmpty.iterator().hasNext());
+    }
+
+    /**
+     * Test method for {@link DocumentShapeCache} sharing the shape of the
+     * documents with the same element types and names.
+     *
+     * @throws IOException
+     *             On a test failure.
+     */
+    @Test
+    public void testSharedShape() throws IOException {
+        final DocumentShapeCache shapes = new DocumentShapeCache(3);
+        assertEquals(4, shapes.getMaxShapes());
+        assertEquals(DocumentShapeCache.DEFAULT_MAX_SHAPES,
+                new DocumentShapeCache().getMaxShapes());
+
+        final byte[] first = encode(BuilderFactory.start().add("a", 1)
+                .add("b", 2).build());
+        final byte[] second = encode(BuilderFactory.start().add("a", 3)
+                .add("b", 4).build());
+        final byte[] third = encode(BuilderFactory.start().add("a", 3)
+                .add("c", 4).build());
+        final int[] offsets = new int[] { 4, 11 };
+        final StringDecoder decoder = new StringDecoder(
+                new StringDecoderCache());
+
+        final DocumentShape shape = shapes.find(hash(first, offsets), first,
+                offsets, 2, decoder);
+        assertArrayEquals(new String[] { "a", "b" }, shape.getNames());
+        assertThat(shape.getIndex(), nullValue());
+        assertThat(shapes.find(hash(second, offsets), second, offsets, 2,
+                decoder), sameInstance(shape));
+
+        final DocumentShape thirdShape = shapes.find(hash(third, offsets),
+                third, offsets, 2, decoder);
+        assertThat(thirdShape, not(sameInstance(shape)));
+        assertArrayEquals(new String[] { "a", "c" }, thirdShape.getNames());
+        assertFalse(shape.matches(hash(third, offsets), third, offsets, 2));
+        assertFalse(shape.matches(hash(first, offsets), first, offsets, 1));
+    }
+
+    /**
+     * Test method for {@link LazyDocument#getElements()}.
+     *
+     * @throws IOException
+     *             On a test failure.
+     */
+    @Test
+    public void testGetElements() throws IOException {
+        final Document doc = completeDocument();
+        final LazyDocument lazy = new LazyDocument(encode(doc),
+                new StringDecoderCache());
+
+        assertEquals(doc.getElements(), lazy.getElements());
+        assertEquals(doc.size(), lazy.size());
+    }
+
+    /**
+     * Test method for {@link LazyDocument#iterator()}.
+     *
+     * @throws IOException
+     *             On a test failure.
+     */
+    @Test
+    public void testIterator() throws IOException {
+        final Document doc = completeDocument();
+        final LazyDocument lazy = new LazyDocument(encode(doc),
+                new StringDecoderCache());
+
+        final List<Element> elements = new ArrayList<Element>();
+        final Iterator<Element> iter = lazy.iterator();
+        while (iter.hasNext()) {
+            elements.add(iter.next());
+        }
+        assertEquals(doc.getElements(), elements);
+
+        try {
+            iter.next();
+            fail("Should have thrown a NoSuchElementException.");
+        }
+        catch (final NoSuchElementException good) {
+            // Good.
+        }
+        try {
+            iter.remove();
+            fail("Should have thrown a UnsupportedOperationException.");
+        }
+        catch (final UnsupportedOperationException good) {
+            // Good.
+        }
+    }
+
+    /**
+     * Test that a corrupt element is reported when it is reached.
+     *
+     * @throws IOException
+     *             On a test failure.
+     */
+    @Test
+    public void testCorruptElement() throws IOException {
+        final byte[] bytes = encode(BuilderFactory.start().add("a", 1)
+                .add("b", "c").build());
+        // Corrupt the type of the second element.
+        bytes[11] = (byte) 0x66;
+
+        final LazyDocument lazy = new LazyDocument(bytes,
+                new StringDecoderCache());
+        final Iterator<Element> iter = lazy.iterator();
+        assertEquals(new IntegerElement("a", 1), iter.next());
+        try {
+            iter.next();
+            fail("Should have thrown an IllegalStateException.");
+        }
+        catch (final IllegalStateException good) {
+            // Good.
+        }
+
+        // Lookups by name index all of the names so report it too.
+        try {
+            new LazyDocument(bytes, new StringDecoderCache()).get("a");
+            fail("Should have thrown an IllegalStateException.");
+        }
+        catch (final IllegalStateException good) {
+            // Good.
+        }
+    }
+
+    /**
+     * Test that the document is serialized as a {@link RootDocument}.
+     *
+     * @throws IOException
+     *             On a test failure.
+     * @throws ClassNotFoundException
+     *             On a test failure.
+     */
+    @Test
+    public void testSerialize() throws IOException, ClassNotFoundException {
+        final Document doc = completeDocument();
+        final LazyDocument lazy = new LazyDocument(encode(doc),
+                new StringDecoderCache());
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ObjectOutputStream writer = new ObjectOutputStream(out);
+        writer.writeObject(lazy);
+        writer.close();
+
+        final ObjectInputStream reader = new ObjectInputStream(
+                new ByteArrayInputStream(out.toByteArray()));
+        final Object read = reader.readObject();
+        reader.close();
+
+        assertThat(read, instanceOf(RootDocument.class));
+        assertThat(read, is((Object) doc));
+    }
+
+    /**
+     * Test that the document is written without being decoded.
+     *
+     * @throws IOException
+     *             On a test failure.
+     */
+    @Test
+    public void testWriteTo() throws IOException {
+        final byte[] bytes = encode(completeDocument());
+        final LazyDocument lazy = new LazyDocument(bytes,
+                new StringDecoderCache());
+
+        assertArrayEquals(bytes, encode(lazy));
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final BufferingBsonOutputStream writer = new BufferingBsonOutputStream(
+                out);
+        assertEquals(bytes.length, writer.write(lazy));
+        writer.close();
+
+        assertArrayEquals(bytes, out.toByteArray());
+    }
+}
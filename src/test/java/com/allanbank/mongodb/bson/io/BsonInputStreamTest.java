@@ -24,6 +24,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -31,6 +32,7 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
@@ -44,6 +46,9 @@ import com.allanbank.mongodb.bson.Element;
 import com.allanbank.mongodb.bson.builder.ArrayBuilder;
 import com.allanbank.mongodb.bson.builder.BuilderFactory;
 import com.allanbank.mongodb.bson.builder.DocumentBuilder;
+import com.allanbank.mongodb.bson.codec.Decoder;
+import com.allanbank.mongodb.bson.codec.Point;
+import com.allanbank.mongodb.bson.codec.PointCodec;
 import com.allanbank.mongodb.bson.element.ArrayElement;
 import com.allanbank.mongodb.bson.element.BooleanElement;
 import com.allanbank.mongodb.bson.element.DoubleElement;
@@ -51,6 +56,7 @@ import com.allanbank.mongodb.bson.element.IntegerElement;
 import com.allanbank.mongodb.bson.element.ObjectId;
 import com.allanbank.mongodb.bson.element.StringElement;
 import com.allanbank.mongodb.bson.element.UuidElement;
+import com.allanbank.mongodb.bson.impl.LazyDocument;
 import com.allanbank.mongodb.bson.impl.RootDocument;
 import com.allanbank.mongodb.util.IOUtils;
 
@@ -310,6 +316,141 @@ public class BsonInputStreamTest {
 
     }
 
+    /**
+     * Test method for {@link BsonInputStream#readDocument()} when reading
+     * directly from a buffer.
+     *
+     * @throws IOException
+     *             On a failure reading the test document.
+     */
+    @Test
+    public void testReadHelloWorldDocumentFromBuffer() throws IOException {
+        // From the BSON specification.
+        final byte[] helloWorld = new byte[] { 0x16, 0x00, 0x00, 0x00, 0x02,
+                (byte) 'h', (byte) 'e', (byte) 'l', (byte) 'l', (byte) 'o',
+                0x00, 0x06, 0x00, 0x00, 0x00, (byte) 'w', (byte) 'o',
+                (byte) 'r', (byte) 'l', (byte) 'd', 0x00, 0x00 };
+
+        // Surround the document with junk.
+        final byte[] buffer = new byte[helloWorld.length + 10];
+        Arrays.fill(buffer, (byte) 0xFF);
+        System.arraycopy(helloWorld, 0, buffer, 5, helloWorld.length);
+        final byte[] copy = buffer.clone();
+
+        final BsonInputStream reader = new BsonInputStream(buffer, 5,
+                helloWorld.length, new StringDecoderCache());
+
+        final Document doc = reader.readDocument();
+
+        assertEquals(helloWorld.length, reader.getBytesRead());
+        assertEquals(0, reader.available());
+        assertEquals(-1, reader.read());
+        reader.close();
+
+        assertEquals(BuilderFactory.start().add("hello", "world").build(),
+                doc);
+        assertArrayEquals("The buffer should not be modified.", copy, buffer);
+    }
+
+    /**
+     * Test method for {@link BsonInputStream#readDocument()} when reading
+     * lazy documents.
+     *
+     * @throws IOException
+     *             On a failure reading the test document.
+     */
+    @Test
+    public void testReadLazyDocument() throws IOException {
+        final DocumentBuilder builder = BuilderFactory.start();
+        builder.add("hello", "world").add("a", 1);
+        builder.push("b").add("c", true);
+        final Document seed = builder.build();
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final BsonOutputStream bout = new BsonOutputStream(out);
+        bout.writeDocument(seed);
+        bout.writeDocument(seed);
+
+        final BsonInputStream reader = new BsonInputStream(
+                new ByteArrayInputStream(out.toByteArray()));
+        assertFalse(reader.isLazyDocuments());
+        reader.setLazyDocuments(true);
+        assertTrue(reader.isLazyDocuments());
+
+        final Document first = reader.readDocument();
+        final Document second = reader.readDocument();
+        reader.close();
+
+        assertTrue("Should be a LazyDocument.",
+                first instanceof LazyDocument);
+        assertEquals(seed, first);
+        assertEquals(seed, second);
+        assertEquals(seed.size(), first.size());
+        assertEquals(out.size(), reader.getBytesRead());
+    }
+
+    /**
+     * Test method for {@link BsonInputStream#readDocument(Decoder)}.
+     *
+     * @throws IOException
+     *             On a failure reading the test document.
+     */
+    @Test
+    public void testReadDocumentDecoder() throws IOException {
+        final Document seed = BuilderFactory.start().add("x", 1).add("y", 2)
+                .build();
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final BsonOutputStream bout = new BsonOutputStream(out);
+        bout.writeDocument(seed);
+        bout.writeDocument(seed);
+
+        final BsonInputStream reader = new BsonInputStream(
+                new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(new Point(1, 2), reader.readDocument(new PointCodec()));
+        assertEquals(seed, reader.readDocument());
+        assertEquals(out.size(), reader.getBytesRead());
+
+        try {
+            reader.readDocument(new PointCodec());
+            fail("Should have thrown an EOFException.");
+        }
+        catch (final EOFException good) {
+            // Good.
+        }
+        reader.close();
+    }
+
+    /**
+     * Test method for {@link BsonInputStream#readDocument()} when reading
+     * directly from a buffer that is truncated.
+     *
+     * @throws IOException
+     *             On a failure reading the test document.
+     */
+    @Test
+    public void testReadFromBufferThrowsEof() throws IOException {
+        // From the BSON specification.
+        final byte[] helloWorld = new byte[] { 0x16, 0x00, 0x00, 0x00, 0x02,
+                (byte) 'h', (byte) 'e', (byte) 'l', (byte) 'l', (byte) 'o',
+                0x00, 0x06, 0x00, 0x00, 0x00, (byte) 'w', (byte) 'o',
+                (byte) 'r', (byte) 'l', (byte) 'd', 0x00, 0x00 };
+
+        final BsonInputStream reader = new BsonInputStream(helloWorld, 0,
+                helloWorld.length - 4, new StringDecoderCache());
+        try {
+            reader.readDocument();
+            fail("Should have thrown an EOFException.");
+        }
+        catch (final EOFException good) {
+            // Expected.
+        }
+        finally {
+            reader.close();
+        }
+    }
+
     /**
      * Test method for {@link BsonInputStream#readDocument()}.
      *
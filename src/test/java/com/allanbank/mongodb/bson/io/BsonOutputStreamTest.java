@@ -37,6 +37,9 @@ import com.allanbank.mongodb.bson.Element;
 import com.allanbank.mongodb.bson.builder.ArrayBuilder;
 import com.allanbank.mongodb.bson.builder.BuilderFactory;
 import com.allanbank.mongodb.bson.builder.DocumentBuilder;
+import com.allanbank.mongodb.bson.codec.Encoder;
+import com.allanbank.mongodb.bson.codec.Point;
+import com.allanbank.mongodb.bson.codec.PointCodec;
 import com.allanbank.mongodb.bson.element.StringElement;
 import com.allanbank.mongodb.bson.impl.RootDocument;
 
@@ -163,4 +166,52 @@ public class BsonOutputStreamTest {
                 arrayDocument, out.toByteArray());
     }
 
+
+    /**
+     * Test method for {@link BsonOutputStream#writeDocument(Object, Encoder)}.
+     *
+     * @throws IOException
+     *             On a failure writing the test document.
+     */
+    @Test
+    public void testWriteDocumentEncoder() throws IOException {
+        final Document expected = BuilderFactory.start().add("x", 1)
+                .add("y", 2).build();
+
+        final ByteArrayOutputStream expectedOut = new ByteArrayOutputStream();
+        new BsonOutputStream(expectedOut).writeDocument(expected);
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final BsonOutputStream writer = new BsonOutputStream(out);
+
+        writer.writeDocument(new Point(1, 2), new PointCodec());
+
+        assertArrayEquals(expectedOut.toByteArray(), out.toByteArray());
+    }
+
+    /**
+     * Test method for {@link BsonOutputStream#writeDocument(Object, Encoder)}
+     * writing multiple objects with the reused buffer.
+     *
+     * @throws IOException
+     *             On a failure writing the test document.
+     */
+    @Test
+    public void testWriteDocumentEncoderMultiple() throws IOException {
+        final ByteArrayOutputStream expectedOut = new ByteArrayOutputStream();
+        final BsonOutputStream expectedWriter = new BsonOutputStream(
+                expectedOut);
+        expectedWriter.writeDocument(BuilderFactory.start().add("x", 1)
+                .add("y", 2).build());
+        expectedWriter.writeDocument(BuilderFactory.start().add("x", 3)
+                .add("y", 4).build());
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final BsonOutputStream writer = new BsonOutputStream(out);
+
+        writer.writeDocument(new Point(1, 2), new PointCodec());
+        writer.writeDocument(new Point(3, 4), new PointCodec());
+
+        assertArrayEquals(expectedOut.toByteArray(), out.toByteArray());
+    }
 }
@@ -33,6 +33,9 @@ import com.allanbank.mongodb.bson.Document;
 import com.allanbank.mongodb.bson.builder.ArrayBuilder;
 import com.allanbank.mongodb.bson.builder.BuilderFactory;
 import com.allanbank.mongodb.bson.builder.DocumentBuilder;
+import com.allanbank.mongodb.bson.codec.Encoder;
+import com.allanbank.mongodb.bson.codec.Point;
+import com.allanbank.mongodb.bson.codec.PointCodec;
 import com.allanbank.mongodb.bson.element.BooleanElement;
 import com.allanbank.mongodb.bson.element.ObjectId;
 import com.allanbank.mongodb.bson.impl.RootDocument;
@@ -248,4 +251,30 @@ public class BufferingBsonOutputStreamTest {
 
         writer.close();
     }
+
+    /**
+     * Test method for
+     * {@link BufferingBsonOutputStream#writeDocument(Object, Encoder)}.
+     *
+     * @throws IOException
+     *             On a failure writing the test document.
+     */
+    @Test
+    public void testWriteDocumentEncoder() throws IOException {
+        final Document expected = BuilderFactory.start().add("x", 1)
+                .add("y", 2).build();
+
+        final ByteArrayOutputStream expectedOut = new ByteArrayOutputStream();
+        new BsonOutputStream(expectedOut).writeDocument(expected);
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final BufferingBsonOutputStream writer = new BufferingBsonOutputStream(
+                out);
+
+        writer.writeDocument(new Point(1, 2), new PointCodec());
+        writer.flushBuffer();
+
+        assertArrayEquals(expectedOut.toByteArray(), out.toByteArray());
+        writer.close();
+    }
 }
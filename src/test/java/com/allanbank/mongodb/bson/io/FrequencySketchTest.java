@@ -0,0 +1,135 @@
+/*
+ * #%L
+ * FrequencySketchTest.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.allanbank.mongodb.bson.io;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * FrequencySketchTest provides tests for the {@link FrequencySketch} class.
+ *
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+public class FrequencySketchTest {
+
+    /**
+     * Test method for {@link FrequencySketch#increment(int)} aging the
+     * counters.
+     */
+    @Test
+    public void testAging() {
+        final FrequencySketch sketch = new FrequencySketch(8);
+        final int hash = "aged".hashCode();
+
+        for (int i = 0; i < 10; ++i) {
+            assertFalse(sketch.increment(hash));
+        }
+        assertThat(sketch.frequency(hash), is(10));
+
+        // Count enough other values to reach the sample size.
+        boolean aged = false;
+        for (int i = 0; !aged && (i < 1000); ++i) {
+            aged = sketch.increment(("other" + i).hashCode());
+        }
+        assertTrue(aged);
+        assertThat(sketch.frequency(hash), lessThan(10));
+        assertThat(sketch.frequency(hash), greaterThanOrEqualTo(5));
+    }
+
+    /**
+     * Test method for {@link FrequencySketch#increment(int)} aging the
+     * counters from multiple threads.
+     *
+     * @throws InterruptedException
+     *             On a failure waiting for the threads.
+     */
+    @Test
+    public void testAgingConcurrently() throws InterruptedException {
+        final FrequencySketch sketch = new FrequencySketch(8);
+        final int perThread = 100000;
+        final AtomicInteger agings = new AtomicInteger(0);
+
+        final Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; ++t) {
+            final int base = t * perThread;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < perThread; ++i) {
+                        if (sketch.increment(base + i)) {
+                            agings.incrementAndGet();
+                        }
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        // Each aging normally needs at least half of the sample size (80) of
+        // new uses. Allow for the approximate, unlocked, count.
+        final int uses = threads.length * perThread;
+        assertThat(agings.get(), greaterThanOrEqualTo(1));
+        assertThat(agings.get(), lessThan(uses / 20));
+        assertThat(sketch.frequency(0), lessThan(FrequencySketch.MAX_COUNT + 1));
+    }
+
+    /**
+     * Test method for {@link FrequencySketch#frequency(int)}.
+     */
+    @Test
+    public void testFrequency() {
+        final FrequencySketch sketch = new FrequencySketch(64);
+        final int hash = "frequent".hashCode();
+
+        assertThat(sketch.frequency(hash), is(0));
+        for (int i = 1; i <= 5; ++i) {
+            sketch.increment(hash);
+            assertThat(sketch.frequency(hash), is(i));
+        }
+
+        assertThat(sketch.frequency("rare".hashCode()), lessThan(5));
+    }
+
+    /**
+     * Test method for {@link FrequencySketch#frequency(int)} saturating at
+     * {@link FrequencySketch#MAX_COUNT}.
+     */
+    @Test
+    public void testFrequencyMaxCount() {
+        final FrequencySketch sketch = new FrequencySketch(64);
+        final int hash = "saturated".hashCode();
+
+        for (int i = 0; i < (FrequencySketch.MAX_COUNT * 2); ++i) {
+            sketch.increment(hash);
+        }
+        assertThat(sketch.frequency(hash), is(FrequencySketch.MAX_COUNT));
+    }
+}
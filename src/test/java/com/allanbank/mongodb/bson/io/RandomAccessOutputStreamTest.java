@@ -25,6 +25,7 @@ import static org.junit.Assert.fail;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Random;
 
@@ -109,6 +110,39 @@ public class RandomAccessOutputStreamTest {
                 new byte[0], finalOut.toByteArray());
     }
 
+    /**
+     * Test method for {@link RandomAccessOutputStream#writeAscii(String)}.
+     *
+     * @throws IOException
+     *             On a failure writing the test results.
+     */
+    @Test
+    public void testWriteAscii() throws IOException {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 20000; ++i) {
+            builder.append((char) ('!' + (i % 94)));
+        }
+        final String ascii = builder.toString();
+
+        myTestStream.write(1);
+        myTestStream.writeAscii(ascii);
+        myTestStream.writeAscii("");
+        myTestStream.writeAscii("abc");
+
+        assertEquals(ascii.length() + 4, myTestStream.getSize());
+
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        expected.write(1);
+        expected.write(ascii.getBytes("US-ASCII"));
+        expected.write("abc".getBytes("US-ASCII"));
+
+        final ByteArrayOutputStream finalOut = new ByteArrayOutputStream();
+        myTestStream.writeTo(finalOut);
+
+        assertArrayEquals("Byte arrays are not the same.",
+                expected.toByteArray(), finalOut.toByteArray());
+    }
+
     /**
      * Test method for {@link RandomAccessOutputStream#writeAt(long, byte[])}.
      *
@@ -509,4 +543,67 @@ public class RandomAccessOutputStreamTest {
         assertArrayEquals("Byte arrays are not the same.", bOut.toByteArray(),
                 finalOut.toByteArray());
     }
+
+    /**
+     * Test method for {@link RandomAccessOutputStream#toByteBuffers()}.
+     */
+    @Test
+    public void testToByteBuffers() {
+        assertEquals("An empty stream has no buffers.", 0,
+                myTestStream.toByteBuffers().length);
+
+        final ByteArrayOutputStream bOut = new ByteArrayOutputStream();
+
+        final Random rand = new Random(System.currentTimeMillis());
+
+        // Span multiple of the internal buffers.
+        for (int i = 0; i < 20000; ++i) {
+            final int value = rand.nextInt(256);
+            bOut.write(value);
+            myTestStream.write(value);
+        }
+
+        final ByteBuffer[] views = myTestStream.toByteBuffers();
+        assertEquals(3, views.length);
+
+        final ByteBuffer buffer = ByteBuffer.allocate((int) myTestStream
+                .getSize());
+        for (final ByteBuffer view : views) {
+            buffer.put(view);
+        }
+
+        assertEquals("The buffer should be full.", 0, buffer.remaining());
+        assertArrayEquals("Byte arrays are not the same.", bOut.toByteArray(),
+                buffer.array());
+
+        // Exactly filling a buffer does not produce an empty view.
+        myTestStream.reset();
+        myTestStream.write(new byte[8192]);
+        assertEquals(1, myTestStream.toByteBuffers().length);
+    }
+
+    /**
+     * Test method for {@link RandomAccessOutputStream#writeTo(byte[], int)}.
+     */
+    @Test
+    public void testWriteToByteArray() {
+        final ByteArrayOutputStream bOut = new ByteArrayOutputStream();
+
+        final Random rand = new Random(System.currentTimeMillis());
+
+        // Span multiple of the internal buffers.
+        for (int i = 0; i < 20000; ++i) {
+            final int value = rand.nextInt(256);
+            bOut.write(value);
+            myTestStream.write(value);
+        }
+
+        final byte[] buffer = new byte[(int) myTestStream.getSize() + 3];
+        myTestStream.writeTo(buffer, 3);
+
+        assertArrayEquals("Byte arrays are not the same.", bOut.toByteArray(),
+                Arrays.copyOfRange(buffer, 3, buffer.length));
+        assertArrayEquals("Bytes before the offset are not the same.",
+                new byte[3], Arrays.copyOf(buffer, 3));
+    }
 }
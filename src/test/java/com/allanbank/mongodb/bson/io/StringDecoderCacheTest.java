@@ -114,6 +114,56 @@ public class StringDecoderCacheTest {
         assertThat(cache.find(data, 0, data.length), nullValue());
     }
 
+    /**
+     * Test method for {@link StringDecoderCache#find} using the
+     * {@link StringCachePolicy#TINY_LFU} policy.
+     *
+     * @throws IOException
+     *             On a test failure.
+     */
+    @Test
+    public void testFindTinyLfu() throws IOException {
+
+        final StringDecoderCache cache = new StringDecoderCache();
+        assertThat(cache.getPolicy(), is(StringCachePolicy.SAMPLING));
+
+        cache.setMaxCacheEntries(2);
+        cache.setPolicy(StringCachePolicy.TINY_LFU);
+        assertThat(cache.getPolicy(), is(StringCachePolicy.TINY_LFU));
+
+        final byte[] a = new byte[] { 'a', 0 };
+        final byte[] abcdefg = new byte[] { 'a', 'b', 'c', 'd', 'e', 'f', 'g',
+                0 };
+        for (int i = 0; i < 20; ++i) {
+            cache.used("a", a, 0, a.length);
+            cache.used("abcdefg", abcdefg, 0, abcdefg.length);
+        }
+
+        String result = cache.find(a, 0, a.length);
+        assertThat(result, is("a"));
+        assertThat(cache.find(a, 0, a.length), sameInstance(result));
+
+        result = cache.find(abcdefg, 0, abcdefg.length);
+        assertThat(result, is("abcdefg"));
+        assertThat(cache.find(abcdefg, 0, abcdefg.length), sameInstance(result));
+
+        // A scan of strings used once does not displace the frequent strings.
+        for (int i = 0; i < 50; ++i) {
+            final String value = "s" + i;
+            final byte[] bytes = (value + "\0").getBytes("US-ASCII");
+
+            cache.used(value, bytes, 0, bytes.length);
+        }
+
+        assertThat(cache.find(a, 0, a.length), is("a"));
+        assertThat(cache.find(abcdefg, 0, abcdefg.length), is("abcdefg"));
+
+        // Back to sampling.
+        cache.setPolicy(StringCachePolicy.SAMPLING);
+        assertThat(cache.getPolicy(), is(StringCachePolicy.SAMPLING));
+        assertThat(cache.find(a, 0, a.length), is("a"));
+    }
+
     /**
      * Test method for {@link StringDecoderCache#getMaxCacheLength()}.
      *
@@ -92,6 +92,40 @@ public class StringDecoderTest {
         assertThat(decoder.decode(data, 0, data.length), sameInstance(result));
     }
 
+    /**
+     * Test method for {@link StringDecoder#decode(byte[], int, int)} with long
+     * strings and non-ASCII characters at each position.
+     *
+     * @throws IOException
+     *             On a test failure.
+     */
+    @Test
+    public void testDecodeLong() throws IOException {
+
+        final StringDecoderCache cache = new StringDecoderCache();
+        cache.setMaxCacheEntries(0);
+        final StringDecoder decoder = new StringDecoder(cache);
+
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 37; ++i) {
+            builder.append((char) ('a' + (i % 26)));
+        }
+        final String ascii = builder.toString();
+
+        // Offset into a larger array.
+        final byte[] data = ("xx" + ascii + "\u0000").getBytes(StringDecoder.UTF8);
+        assertThat(decoder.decode(data, 2, data.length - 2), is(ascii));
+
+        for (int i = 0; i <= ascii.length(); ++i) {
+            final String value = ascii.substring(0, i) + "\u00e9"
+                    + ascii.substring(i);
+            final byte[] encoded = (value + "\u0000")
+                    .getBytes(StringDecoder.UTF8);
+
+            assertThat(decoder.decode(encoded, 0, encoded.length), is(value));
+        }
+    }
+
     /**
      * Test method for {@link StringDecoder#decode(byte[], int, int)}.
      *
@@ -26,6 +26,7 @@ import static org.junit.Assert.assertThat;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.Arrays;
 
 import org.junit.Test;
 
@@ -176,6 +177,48 @@ public class StringEncoderTest {
         }
     }
 
+    /**
+     * Test method for
+     * {@link StringEncoder#encode(String, java.io.OutputStream)} with long
+     * ASCII strings.
+     *
+     * @throws IOException
+     *             On a failure encoding the string.
+     */
+    @Test
+    public void testEncodeLongAscii() throws IOException {
+        final StringEncoder encoder = new StringEncoder();
+
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 10000; ++i) {
+            builder.append((char) ('a' + (i % 26)));
+        }
+        final String ascii = builder.toString();
+        final byte[] expected = ascii.getBytes(StringDecoder.UTF8);
+
+        check(encoder, ascii, expected);
+        check(encoder, ascii.substring(0, 31),
+                Arrays.copyOf(expected, 31));
+
+        // Straight into the buffers of a RandomAccessOutputStream.
+        final RandomAccessOutputStream raos = new RandomAccessOutputStream();
+        raos.writeByte((byte) 1);
+        encoder.encode(ascii, raos);
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        raos.writeTo(out);
+        raos.close();
+
+        final byte[] written = out.toByteArray();
+        assertThat(written.length, is(expected.length + 1));
+        assertThat(Arrays.copyOfRange(written, 1, written.length),
+                is(expected));
+
+        // Non-ASCII after a long ASCII prefix.
+        check(encoder, ascii + "\u0080", (ascii + "\u0080")
+                .getBytes(StringDecoder.UTF8));
+    }
+
     /**
      * Test method for {@link StringEncoder#encodeSize(String)}.
      */
@@ -226,6 +269,9 @@ public class StringEncoderTest {
     public void testUtf8Size() {
         assertThat(StringEncoder.utf8Size("abc"), is(3));
         assertThat(StringEncoder.utf8Size(""), is(0));
+        assertThat(StringEncoder.utf8Size(null), is(0));
+        assertThat(StringEncoder.utf8Size("abcdefghijklmnopq"), is(17));
+        assertThat(StringEncoder.utf8Size("abcdefghijklmnop\u0080"), is(18));
 
         assertThat(StringEncoder.utf8Size("\u0079"), is(1));
         assertThat(StringEncoder.utf8Size("\u0080"), is(2));
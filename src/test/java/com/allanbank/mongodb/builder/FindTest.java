@@ -126,6 +126,7 @@ public class FindTest {
         assertFalse(request.isTailable());
         assertFalse(request.isAwaitData());
         assertFalse(request.isImmortalCursor());
+        assertFalse(request.isExhaust());
         assertFalse(request.isShowDiskLocation());
         assertFalse(request.isReturnIndexKeysOnly());
         assertEquals(-1L, request.getMaximumDocumentsToScan());
@@ -205,6 +206,33 @@ public class FindTest {
         assertEquals(request.getQuery(), request.toQueryRequest(false));
     }
 
+    /**
+     * Test method for {@link Find#Find}.
+     */
+    @Test
+    public void testFindWithExhaust() {
+        final Find.Builder builder = Find.builder();
+        builder.exhaust();
+
+        Find request = builder.build();
+        assertTrue(request.isExhaust());
+
+        // Not part of the query document.
+        assertEquals(Find.ALL, request.toQueryRequest(false));
+
+        builder.reset();
+        request = builder.build();
+        assertFalse(request.isExhaust());
+
+        builder.exhaust(true);
+        request = builder.build();
+        assertTrue(request.isExhaust());
+
+        builder.setExhaust(false);
+        request = builder.build();
+        assertFalse(request.isExhaust());
+    }
+
     /**
      * Test method for {@link Find#Find}.
      */
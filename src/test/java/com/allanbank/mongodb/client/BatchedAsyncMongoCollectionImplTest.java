@@ -25,6 +25,7 @@ import static com.allanbank.mongodb.bson.builder.BuilderFactory.a;
 import static com.allanbank.mongodb.bson.builder.BuilderFactory.d;
 import static com.allanbank.mongodb.bson.builder.BuilderFactory.e;
 import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.capture;
 import static org.easymock.EasyMock.createMock;
 import static org.easymock.EasyMock.eq;
 import static org.easymock.EasyMock.expect;
@@ -39,8 +40,15 @@ import java.util.Collections;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.easymock.Capture;
 import org.easymock.EasyMock;
+import org.easymock.IAnswer;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -49,6 +57,8 @@ import com.allanbank.mongodb.Callback;
 import com.allanbank.mongodb.Durability;
 import com.allanbank.mongodb.MongoClientConfiguration;
 import com.allanbank.mongodb.MongoDatabase;
+import com.allanbank.mongodb.MongoDbException;
+import com.allanbank.mongodb.ReadPreference;
 import com.allanbank.mongodb.Version;
 import com.allanbank.mongodb.bson.Document;
 import com.allanbank.mongodb.bson.DocumentAssignable;
@@ -58,7 +68,9 @@ import com.allanbank.mongodb.client.message.BatchedWriteCommand;
 import com.allanbank.mongodb.client.message.Command;
 import com.allanbank.mongodb.client.message.Delete;
 import com.allanbank.mongodb.client.message.GetLastError;
+import com.allanbank.mongodb.client.callback.ReplyCallback;
 import com.allanbank.mongodb.client.message.Insert;
+import com.allanbank.mongodb.client.message.Query;
 import com.allanbank.mongodb.client.message.Reply;
 import com.allanbank.mongodb.client.message.Update;
 import com.allanbank.mongodb.client.state.Server;
@@ -170,6 +182,88 @@ public class BatchedAsyncMongoCollectionImplTest {
         }
     }
 
+    /**
+     * Test method for {@link BatchedAsyncMongoCollectionImpl#close()}.
+     *
+     * @throws ExecutionException
+     *             On a test failure.
+     * @throws InterruptedException
+     *             On a test failure.
+     */
+    @Test
+    public void testCloseCoalescing() throws InterruptedException,
+            ExecutionException {
+        final Document doc = BuilderFactory.start().add("_id", new ObjectId())
+                .build();
+        final Document replyDoc = BuilderFactory.start().addInteger("n", 1)
+                .build();
+
+        final DocumentAssignable insertCommand = d(e("insert", "test"),
+                e("ordered", false), e("writeConcern", d(e("w", 1))),
+                e("documents", a(doc)));
+        final Command insertMessage = new BatchedWriteCommand("test", "test",
+                insertCommand.asDocument());
+        final Insert insert = new Insert("test", "test",
+                Collections.singletonList(doc), false);
+        final GetLastError getLastError = new GetLastError("test", false,
+                false, 1, 0);
+
+        final ScheduledExecutorService mockTimer = createMock(ScheduledExecutorService.class);
+        final ScheduledFuture<?> mockFuture = createMock(ScheduledFuture.class);
+
+        myTestInstance = new BatchedAsyncMongoCollectionImpl(myMockClient,
+                myMockDatabase, "test", 100, 3, mockTimer);
+
+        expect(myMockDatabase.getName()).andReturn("test").times(2);
+        expect(myMockDatabase.getDurability()).andReturn(Durability.ACK);
+        expect(myMockClient.getClusterStats()).andReturn(myMockStats);
+        mockTimer.schedule(anyObject(Runnable.class), eq(100L),
+                eq(TimeUnit.MILLISECONDS));
+        expectLastCall().andReturn(mockFuture);
+
+        replay(mockTimer, mockFuture);
+        final Future<Integer> future1 = myTestInstance.insertAsync(doc);
+        verify(mockTimer, mockFuture);
+
+        reset(mockTimer, mockFuture);
+        expect(myMockClient.getClusterStats()).andReturn(myMockStats).times(2);
+        expect(myMockStats.getServerVersionRange()).andReturn(
+                VersionRange.range(Version.VERSION_2_6, Version.VERSION_2_6));
+        expect(myMockStats.getSmallestMaxBsonObjectSize()).andReturn(
+                (long) Client.MAX_DOCUMENT_SIZE);
+        expect(myMockStats.getSmallestMaxBatchedWriteOperations()).andReturn(
+                Server.MAX_BATCHED_WRITE_OPERATIONS_DEFAULT);
+        expect(myMockDatabase.getName()).andReturn("test");
+        myMockClient.send(eq(insertMessage), callback(reply(replyDoc)));
+        expectLastCall();
+        expect(mockFuture.cancel(false)).andReturn(true);
+        mockTimer.shutdown();
+        expectLastCall();
+
+        replay(mockTimer, mockFuture);
+        myTestInstance.close();
+        verify(mockTimer, mockFuture);
+
+        assertThat(future1.get(), is(1));
+
+        // After the close the writes are sent immediately.
+        reset(mockTimer, mockFuture);
+        expect(myMockClient.getConfig()).andReturn(
+                new MongoClientConfiguration()).anyTimes();
+        expect(myMockDatabase.getName()).andReturn("test").times(2);
+        expect(myMockDatabase.getDurability()).andReturn(Durability.ACK);
+        expect(myMockClient.getClusterStats()).andReturn(myMockStats);
+        myMockClient.send(eq(insert), eq(getLastError),
+                callback(reply(replyDoc)));
+        expectLastCall();
+
+        replay(mockTimer, mockFuture);
+        final Future<Integer> future2 = myTestInstance.insertAsync(doc);
+        verify(mockTimer, mockFuture);
+
+        assertThat(future2.get(), is(1));
+    }
+
     /**
      * Test method for {@link BatchedAsyncMongoCollectionImpl#close()}.
      *
@@ -387,6 +481,305 @@ public class BatchedAsyncMongoCollectionImplTest {
         assertThat(future3.get(), is(1L));
     }
 
+    /**
+     * Test method for coalescing writes with
+     * {@link BatchedAsyncMongoCollectionImpl}.
+     *
+     * @throws ExecutionException
+     *             On a test failure.
+     * @throws InterruptedException
+     *             On a test failure.
+     */
+    @Test
+    public void testCoalescingDelayedFlush() throws InterruptedException,
+            ExecutionException {
+        final Document doc = BuilderFactory.start().add("_id", new ObjectId())
+                .build();
+        final Document replyDoc = BuilderFactory.start().addInteger("n", 1)
+                .build();
+
+        final DocumentAssignable insertCommand = d(e("insert", "test"),
+                e("ordered", false), e("writeConcern", d(e("w", 1))),
+                e("documents", a(doc, doc)));
+        final Command insertMessage = new BatchedWriteCommand("test", "test",
+                insertCommand.asDocument());
+
+        final ScheduledExecutorService mockTimer = createMock(ScheduledExecutorService.class);
+        final ScheduledFuture<?> mockFuture = createMock(ScheduledFuture.class);
+        final Capture<Runnable> task = new Capture<Runnable>();
+
+        myTestInstance = new BatchedAsyncMongoCollectionImpl(myMockClient,
+                myMockDatabase, "test", 100, 10, mockTimer);
+
+        expect(myMockDatabase.getName()).andReturn("test").times(4);
+        expect(myMockDatabase.getDurability()).andReturn(Durability.ACK).times(
+                2);
+        expect(myMockClient.getClusterStats()).andReturn(myMockStats).times(2);
+        mockTimer.schedule(capture(task), eq(100L), eq(TimeUnit.MILLISECONDS));
+        expectLastCall().andReturn(mockFuture);
+
+        replay(mockTimer, mockFuture);
+        final Future<Integer> future1 = myTestInstance.insertAsync(doc);
+        final Future<Integer> future2 = myTestInstance.insertAsync(doc);
+        verify(mockTimer, mockFuture);
+
+        assertThat(future1.isDone(), is(false));
+        assertThat(future2.isDone(), is(false));
+
+        reset(mockTimer, mockFuture);
+        expect(myMockClient.getClusterStats()).andReturn(myMockStats).times(2);
+        expect(myMockStats.getServerVersionRange()).andReturn(
+                VersionRange.range(Version.VERSION_2_6, Version.VERSION_2_6));
+        expect(myMockStats.getSmallestMaxBsonObjectSize()).andReturn(
+                (long) Client.MAX_DOCUMENT_SIZE);
+        expect(myMockStats.getSmallestMaxBatchedWriteOperations()).andReturn(
+                Server.MAX_BATCHED_WRITE_OPERATIONS_DEFAULT);
+        expect(myMockDatabase.getName()).andReturn("test");
+        myMockClient.send(eq(insertMessage), callback(reply(replyDoc)));
+        expectLastCall();
+        expect(mockFuture.cancel(false)).andReturn(false);
+
+        replay(mockTimer, mockFuture);
+        task.getValue().run();
+        verify(mockTimer, mockFuture);
+
+        assertThat(future1.get(), is(1));
+        assertThat(future2.get(), is(1));
+    }
+
+    /**
+     * Test method for coalescing writes with
+     * {@link BatchedAsyncMongoCollectionImpl}.
+     *
+     * @throws ExecutionException
+     *             On a test failure.
+     * @throws InterruptedException
+     *             On a test failure.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testCoalescingFlushAtMaxWrites() throws InterruptedException,
+            ExecutionException {
+        final Document doc = BuilderFactory.start().add("_id", new ObjectId())
+                .build();
+        final Document replyDoc = BuilderFactory.start().addInteger("n", 1)
+                .build();
+
+        final DocumentAssignable ackCommand = d(e("insert", "test"),
+                e("ordered", false), e("writeConcern", d(e("w", 1))),
+                e("documents", a(doc)));
+        final Command ackMessage = new BatchedWriteCommand("test", "test",
+                ackCommand.asDocument());
+        final DocumentAssignable journalCommand = d(e("insert", "test"),
+                e("ordered", false), e("writeConcern", d(e("j", true))),
+                e("documents", a(doc)));
+        final Command journalMessage = new BatchedWriteCommand("test", "test",
+                journalCommand.asDocument());
+
+        final ScheduledExecutorService mockTimer = createMock(ScheduledExecutorService.class);
+        final ScheduledFuture<?> mockFuture = createMock(ScheduledFuture.class);
+        final Callback<Document> mockFindCallback = createMock(Callback.class);
+
+        myTestInstance = new BatchedAsyncMongoCollectionImpl(myMockClient,
+                myMockDatabase, "test", 100, 3, mockTimer);
+
+        expect(myMockDatabase.getName()).andReturn("test").times(5);
+        expect(myMockClient.getClusterStats()).andReturn(myMockStats).times(2);
+        mockTimer.schedule(anyObject(Runnable.class), eq(100L),
+                eq(TimeUnit.MILLISECONDS));
+        expectLastCall().andReturn(mockFuture);
+
+        // Reads are not delayed.
+        expect(myMockDatabase.getReadPreference()).andReturn(
+                ReadPreference.PRIMARY);
+        myMockClient.send(anyObject(Query.class),
+                anyObject(ReplyCallback.class));
+        expectLastCall();
+
+        replay(mockTimer, mockFuture, mockFindCallback);
+        final Future<Integer> future1 = myTestInstance.insertAsync(
+                Durability.ACK, doc);
+        final Future<Integer> future2 = myTestInstance.insertAsync(
+                Durability.journalDurable(0), doc);
+        myTestInstance.findOneAsync(mockFindCallback, doc);
+        verify(mockTimer, mockFuture, mockFindCallback);
+
+        // The third write triggers the flush. The batch is broken at each
+        // change in durability to keep the writes in order.
+        reset(mockTimer, mockFuture, mockFindCallback);
+        expect(myMockClient.getConfig()).andReturn(
+                new MongoClientConfiguration()).anyTimes();
+        expect(myMockDatabase.getName()).andReturn("test").anyTimes();
+        expect(myMockClient.getClusterStats()).andReturn(myMockStats)
+                .anyTimes();
+        expect(myMockStats.getServerVersionRange()).andReturn(
+                VersionRange.range(Version.VERSION_2_6, Version.VERSION_2_6))
+                .times(3);
+        expect(myMockStats.getSmallestMaxBsonObjectSize()).andReturn(
+                (long) Client.MAX_DOCUMENT_SIZE).anyTimes();
+        expect(myMockStats.getSmallestMaxBatchedWriteOperations()).andReturn(
+                Server.MAX_BATCHED_WRITE_OPERATIONS_DEFAULT).anyTimes();
+        myMockClient.send(eq(ackMessage), callback(reply(replyDoc)));
+        expectLastCall();
+        myMockClient.send(eq(journalMessage), callback(reply(replyDoc)));
+        expectLastCall();
+        myMockClient.send(eq(ackMessage), callback(reply(replyDoc)));
+        expectLastCall();
+        expect(mockFuture.cancel(false)).andReturn(true).anyTimes();
+
+        replay(mockTimer, mockFuture, mockFindCallback);
+        final Future<Integer> future3 = myTestInstance.insertAsync(
+                Durability.ACK, doc);
+        verify(mockTimer, mockFuture, mockFindCallback);
+
+        assertThat(future1.get(), is(1));
+        assertThat(future2.get(), is(1));
+        assertThat(future3.get(), is(1));
+    }
+
+    /**
+     * Test method for coalescing writes with
+     * {@link BatchedAsyncMongoCollectionImpl} failing to send the writes from
+     * the timer.
+     *
+     * @throws InterruptedException
+     *             On a test failure.
+     */
+    @Test
+    public void testCoalescingSendFailure() throws InterruptedException {
+        final Document doc = BuilderFactory.start().add("_id", new ObjectId())
+                .build();
+
+        final DocumentAssignable ackCommand = d(e("insert", "test"),
+                e("ordered", false), e("writeConcern", d(e("w", 1))),
+                e("documents", a(doc)));
+        final Command ackMessage = new BatchedWriteCommand("test", "test",
+                ackCommand.asDocument());
+
+        final ScheduledExecutorService mockTimer = createMock(ScheduledExecutorService.class);
+        final ScheduledFuture<?> mockFuture = createMock(ScheduledFuture.class);
+        final Capture<Runnable> task = new Capture<Runnable>();
+
+        myTestInstance = new BatchedAsyncMongoCollectionImpl(myMockClient,
+                myMockDatabase, "test", 100, 10, mockTimer);
+
+        expect(myMockDatabase.getName()).andReturn("test").anyTimes();
+        expect(myMockClient.getClusterStats()).andReturn(myMockStats).times(3);
+        mockTimer.schedule(capture(task), eq(100L), eq(TimeUnit.MILLISECONDS));
+        expectLastCall().andReturn(mockFuture);
+
+        replay(mockTimer, mockFuture);
+        final Future<Integer> future1 = myTestInstance.insertAsync(
+                Durability.ACK, doc);
+        final Future<Integer> future2 = myTestInstance.insertAsync(
+                Durability.journalDurable(0), doc);
+        final Future<Integer> future3 = myTestInstance.insertAsync(
+                Durability.ACK, doc);
+        verify(mockTimer, mockFuture);
+
+        // The first batch cannot be sent. None of the writes are lost.
+        final MongoDbException error = new MongoDbException("Injected.");
+        reset(mockTimer, mockFuture);
+        expect(myMockClient.getConfig()).andReturn(
+                new MongoClientConfiguration()).anyTimes();
+        expect(myMockDatabase.getName()).andReturn("test").anyTimes();
+        expect(myMockClient.getClusterStats()).andReturn(myMockStats)
+                .anyTimes();
+        expect(myMockStats.getServerVersionRange()).andReturn(
+                VersionRange.range(Version.VERSION_2_6, Version.VERSION_2_6))
+                .times(3);
+        expect(myMockStats.getSmallestMaxBsonObjectSize()).andReturn(
+                (long) Client.MAX_DOCUMENT_SIZE).anyTimes();
+        expect(myMockStats.getSmallestMaxBatchedWriteOperations()).andReturn(
+                Server.MAX_BATCHED_WRITE_OPERATIONS_DEFAULT).anyTimes();
+        myMockClient.send(eq(ackMessage), anyObject(ReplyCallback.class));
+        expectLastCall().andThrow(error).times(2);
+        myMockClient.send(anyObject(Command.class),
+                anyObject(ReplyCallback.class));
+        expectLastCall().andThrow(error);
+        expect(mockFuture.cancel(false)).andReturn(false).anyTimes();
+
+        replay(mockTimer, mockFuture);
+        task.getValue().run();
+        verify(mockTimer, mockFuture);
+
+        for (final Future<Integer> future : Arrays.asList(future1, future2,
+                future3)) {
+            try {
+                future.get(10, TimeUnit.SECONDS);
+                fail("Should have failed the write.");
+            }
+            catch (final ExecutionException expected) {
+                assertThat(expected.getCause(),
+                        instanceOf(MongoDbException.class));
+            }
+            catch (final TimeoutException timeout) {
+                fail("Should have notified the write of the failure.");
+            }
+        }
+    }
+
+    /**
+     * Test method for coalescing writes with
+     * {@link BatchedAsyncMongoCollectionImpl} not blocking other writers
+     * while the flushed writes are sent.
+     */
+    @Test
+    public void testCoalescingSendsOutsideLock() {
+        final Document doc = BuilderFactory.start().add("_id", new ObjectId())
+                .build();
+
+        final DocumentAssignable insertCommand = d(e("insert", "test"),
+                e("ordered", false), e("writeConcern", d(e("w", 1))),
+                e("documents", a(doc)));
+        final Command insertMessage = new BatchedWriteCommand("test", "test",
+                insertCommand.asDocument());
+
+        final AtomicBoolean blocked = new AtomicBoolean(true);
+
+        myTestInstance = new BatchedAsyncMongoCollectionImpl(myMockClient,
+                myMockDatabase, "test", 100, 10, null);
+
+        expect(myMockDatabase.getName()).andReturn("test").anyTimes();
+        expect(myMockClient.getClusterStats()).andReturn(myMockStats)
+                .anyTimes();
+        expect(myMockStats.getServerVersionRange()).andReturn(
+                VersionRange.range(Version.VERSION_2_6, Version.VERSION_2_6));
+        expect(myMockStats.getSmallestMaxBsonObjectSize()).andReturn(
+                (long) Client.MAX_DOCUMENT_SIZE);
+        expect(myMockStats.getSmallestMaxBatchedWriteOperations()).andReturn(
+                Server.MAX_BATCHED_WRITE_OPERATIONS_DEFAULT);
+        myMockClient.send(eq(insertMessage), anyObject(ReplyCallback.class));
+        expectLastCall().andAnswer(new IAnswer<Void>() {
+            @Override
+            public Void answer() throws Throwable {
+                // Write from another thread while sending.
+                final Thread writer = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        myTestInstance.insertAsync(Durability.ACK, doc);
+                    }
+                });
+                writer.start();
+                writer.join(TimeUnit.SECONDS.toMillis(10));
+                blocked.set(writer.isAlive());
+                return null;
+            }
+        });
+        // The writer uses the client while the send is in progress.
+        EasyMock.makeThreadSafe(myMockClient, false);
+
+        replay();
+        myTestInstance.insertAsync(Durability.ACK, doc);
+        myTestInstance.flush();
+        verify();
+
+        assertThat(blocked.get(), is(false));
+
+        // Drop the write from the other thread.
+        myTestInstance.cancel();
+    }
+
     /**
      * Test method for {@link BatchedAsyncMongoCollectionImpl#flush()}.
      *
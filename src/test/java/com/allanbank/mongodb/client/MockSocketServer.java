@@ -180,6 +180,9 @@ public class MockSocketServer
                     try {
                         handleClient();
                     }
+                    catch (final IOException error) {
+                        // The client was disconnected. Keep serving.
+                    }
                     finally {
                         synchronized (this) {
                             myClientConnected = false;
@@ -433,16 +436,14 @@ public class MockSocketServer
 
                         completeMessage.put(header);
                         completeMessage.put(body);
-                        synchronized (this) {
-                            myRequests.add(completeMessage.array());
-                            notifyAll();
-                        }
+                        final byte[] reply = handleRequest(completeMessage
+                                .array());
+
                         // Setup for the next message.
                         header = ByteBuffer.allocate(Header.SIZE);
                         body = null;
 
-                        if (!myReplies.isEmpty()) {
-                            final byte[] reply = myReplies.remove(0);
+                        if (reply != null) {
                             final ByteBuffer buffer = ByteBuffer.wrap(reply);
                             while (buffer.hasRemaining()) {
                                 myConnection.write(buffer);
@@ -465,6 +466,25 @@ public class MockSocketServer
         }
     }
 
+    /**
+     * Records the request and returns the next reply to send, if any.
+     *
+     * @param request
+     *            The complete request message.
+     * @return The reply to send or <code>null</code> to not reply.
+     */
+    protected byte[] handleRequest(final byte[] request) {
+        synchronized (this) {
+            myRequests.add(request);
+            notifyAll();
+        }
+
+        if (!myReplies.isEmpty()) {
+            return myReplies.remove(0);
+        }
+        return null;
+    }
+
     /**
      *
      */
@@ -29,6 +29,7 @@ import static org.easymock.EasyMock.eq;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.expectLastCall;
 import static org.easymock.EasyMock.isNull;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
@@ -44,6 +45,8 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
@@ -71,7 +74,13 @@ import com.allanbank.mongodb.bson.Element;
 import com.allanbank.mongodb.bson.builder.ArrayBuilder;
 import com.allanbank.mongodb.bson.builder.BuilderFactory;
 import com.allanbank.mongodb.bson.builder.DocumentBuilder;
+import com.allanbank.mongodb.bson.codec.BsonReader;
+import com.allanbank.mongodb.bson.codec.BsonWriter;
+import com.allanbank.mongodb.bson.codec.Decoder;
+import com.allanbank.mongodb.bson.codec.Encoder;
 import com.allanbank.mongodb.bson.element.ArrayElement;
+import com.allanbank.mongodb.bson.element.ObjectIdElement;
+import com.allanbank.mongodb.bson.element.StringElement;
 import com.allanbank.mongodb.bson.impl.ImmutableDocument;
 import com.allanbank.mongodb.builder.Aggregate;
 import com.allanbank.mongodb.builder.BatchedWrite;
@@ -3961,6 +3970,60 @@ public class MongoCollectionImplTest {
         verify(mockCountCallback);
     }
 
+    /**
+     * Test method for
+     * {@link SynchronousMongoCollectionImpl#findOne(DocumentAssignable, Decoder)}
+     * .
+     */
+    @Test
+    public void testFindOneDecoder() {
+        final Document doc = BuilderFactory.start().build();
+        final Document replyDoc = BuilderFactory.start()
+                .addString("foo", "bar").build();
+
+        final Query message = new Query("test", "test", doc, null, 1, 1, 0,
+                false, ReadPreference.PRIMARY, false, false, false, false);
+
+        expect(myMockDatabase.getName()).andReturn("test");
+
+        expect(myMockDatabase.getReadPreference()).andReturn(
+                ReadPreference.PRIMARY);
+        myMockClient.send(eq(message), callback(reply(replyDoc)));
+        expectLastCall();
+
+        replay();
+
+        assertEquals("bar", myTestInstance.findOne(doc, new FooDecoder()));
+
+        verify();
+    }
+
+    /**
+     * Test method for
+     * {@link SynchronousMongoCollectionImpl#findOne(DocumentAssignable, Decoder)}
+     * .
+     */
+    @Test
+    public void testFindOneDecoderNoDocument() {
+        final Document doc = BuilderFactory.start().build();
+
+        final Query message = new Query("test", "test", doc, null, 1, 1, 0,
+                false, ReadPreference.PRIMARY, false, false, false, false);
+
+        expect(myMockDatabase.getName()).andReturn("test");
+
+        expect(myMockDatabase.getReadPreference()).andReturn(
+                ReadPreference.PRIMARY);
+        myMockClient.send(eq(message), callback(reply()));
+        expectLastCall();
+
+        replay();
+
+        assertThat(myTestInstance.findOne(doc, new FooDecoder()), nullValue());
+
+        verify();
+    }
+
     /**
      * Test method for
      * {@link SynchronousMongoCollectionImpl#findOneAsync(Callback, Find)} .
@@ -5522,6 +5585,51 @@ public class MongoCollectionImplTest {
         verify();
     }
 
+    /**
+     * Test method for
+     * {@link SynchronousMongoCollectionImpl#insert(Encoder, Collection)} .
+     */
+    @Test
+    public void testInsertEncoderCollection() {
+        final Document replyDoc = BuilderFactory.start().addInteger("n", 1)
+                .build();
+
+        final Capture<Insert> insert = new Capture<Insert>();
+        final GetLastError getLastError = new GetLastError("test", false,
+                false, 1, 0);
+
+        expect(myMockDatabase.getName()).andReturn("test").times(2);
+        expect(myMockDatabase.getDurability()).andReturn(Durability.ACK);
+
+        expect(myMockClient.getClusterStats()).andReturn(myMockStats);
+        expect(myMockStats.getServerVersionRange()).andReturn(
+                VersionRange.range(Version.VERSION_2_4, Version.VERSION_2_4));
+
+        myMockClient.send(capture(insert), eq(getLastError),
+                callback(reply(replyDoc)));
+        expectLastCall();
+
+        replay();
+
+        assertEquals(1, myTestInstance.insert(new FooEncoder(),
+                Collections.singletonList("bar")));
+
+        verify();
+
+        // The encoder does not write an _id so one is added first.
+        final List<Document> documents = insert.getValue().getDocuments();
+        assertThat(documents.size(), is(1));
+
+        final Document doc = documents.get(0);
+        final Iterator<Element> iter = doc.iterator();
+        final Element id = iter.next();
+        assertThat(id.getName(), is("_id"));
+        assertThat(id, instanceOf(ObjectIdElement.class));
+        assertThat(iter.next(), is((Element) new StringElement("foo", "bar")));
+        assertFalse(iter.hasNext());
+        assertThat(doc.size(), is(35L));
+    }
+
     /**
      * Test method for
      * {@link SynchronousMongoCollectionImpl#insert(DocumentAssignable...)} .
@@ -6627,6 +6735,82 @@ public class MongoCollectionImplTest {
         verify();
     }
 
+    /**
+     * Test method for
+     * {@link SynchronousMongoCollectionImpl#stream(StreamCallback, Find)} with
+     * an exhaust cursor.
+     */
+    @Test
+    public void testStreamFindExhaust() {
+        final Document result1 = BuilderFactory.start().build();
+        final Document result2 = BuilderFactory.start().build();
+
+        final Document doc = BuilderFactory.start().build();
+
+        final Query message = new Query("test", "test", doc, null, 0, 0, 0,
+                false, ReadPreference.PRIMARY, false, false, true, false);
+
+        expect(myMockDatabase.getName()).andReturn("test");
+        expect(myMockDatabase.getReadPreference()).andReturn(
+                ReadPreference.PRIMARY);
+        expect(myMockClient.getClusterType())
+                .andReturn(ClusterType.REPLICA_SET);
+
+        myMockClient.send(eq(message), callback(reply(result1, result2)));
+        expectLastCall();
+
+        final StreamCallback<Document> mockCallback = createMock(StreamCallback.class);
+        mockCallback.callback(result1);
+        expectLastCall();
+        mockCallback.callback(result2);
+        expectLastCall();
+        mockCallback.done();
+        expectLastCall();
+
+        replay(mockCallback);
+
+        myTestInstance.stream(mockCallback, Find.builder().query(doc)
+                .exhaust().build());
+
+        verify(mockCallback);
+    }
+
+    /**
+     * Test method for
+     * {@link SynchronousMongoCollectionImpl#stream(StreamCallback, Find)} with
+     * an exhaust cursor on a sharded cluster.
+     */
+    @Test
+    public void testStreamFindExhaustSharded() {
+        final Document result1 = BuilderFactory.start().build();
+
+        final Document doc = BuilderFactory.start().build();
+
+        final Query message = new Query("test", "test", doc, null, 0, 0, 0,
+                false, ReadPreference.PRIMARY, false, false, false, false);
+
+        expect(myMockDatabase.getName()).andReturn("test");
+        expect(myMockDatabase.getReadPreference()).andReturn(
+                ReadPreference.PRIMARY);
+        expect(myMockClient.getClusterType()).andReturn(ClusterType.SHARDED);
+
+        myMockClient.send(eq(message), callback(reply(result1)));
+        expectLastCall();
+
+        final StreamCallback<Document> mockCallback = createMock(StreamCallback.class);
+        mockCallback.callback(result1);
+        expectLastCall();
+        mockCallback.done();
+        expectLastCall();
+
+        replay(mockCallback);
+
+        myTestInstance.stream(mockCallback, Find.builder().query(doc)
+                .exhaust().build());
+
+        verify(mockCallback);
+    }
+
     /**
      * Test method for
      * {@link SynchronousMongoCollectionImpl#streamingFind(Callback, Find)} .
@@ -8694,4 +8878,52 @@ public class MongoCollectionImplTest {
         EasyMock.verify(mocks);
         EasyMock.verify(myMockClient, myMockDatabase, myMockStats);
     }
+
+    /**
+     * FooDecoder provides a decoder for the "foo" string of a document.
+     *
+     * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+     */
+    private static final class FooDecoder
+            implements Decoder<String> {
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to return the "foo" string.
+         * </p>
+         */
+        @Override
+        public String decode(final BsonReader reader) throws IOException {
+            String foo = null;
+            reader.readStartDocument();
+            while (reader.readNext() != null) {
+                if ("foo".equals(reader.getName())) {
+                    foo = reader.readString();
+                }
+            }
+            return foo;
+        }
+    }
+
+    /**
+     * FooEncoder provides an encoder for a string as the "foo" field of a
+     * document.
+     *
+     * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+     */
+    private static final class FooEncoder
+            implements Encoder<String> {
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to write the string as the "foo" field.
+         * </p>
+         */
+        @Override
+        public void encode(final String object, final BsonWriter writer) {
+            writer.writeStartDocument();
+            writer.writeString("foo", object);
+            writer.writeEnd();
+        }
+    }
 }
@@ -22,8 +22,10 @@ package com.allanbank.mongodb.client;
 
 import static com.allanbank.mongodb.client.connection.CallbackReply.cb;
 import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.capture;
 import static org.easymock.EasyMock.createMock;
 import static org.easymock.EasyMock.createStrictMock;
+import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.expectLastCall;
 import static org.easymock.EasyMock.isNull;
 import static org.easymock.EasyMock.replay;
@@ -40,15 +42,23 @@ import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.beans.PropertyChangeListener;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
+import org.easymock.Capture;
+import org.easymock.IAnswer;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.allanbank.mongodb.MongoClientConfiguration;
 import com.allanbank.mongodb.MongoCursorControl;
 import com.allanbank.mongodb.MongoIterator;
 import com.allanbank.mongodb.ReadPreference;
@@ -56,10 +66,15 @@ import com.allanbank.mongodb.bson.Document;
 import com.allanbank.mongodb.bson.builder.BuilderFactory;
 import com.allanbank.mongodb.bson.builder.DocumentBuilder;
 import com.allanbank.mongodb.client.callback.ReplyCallback;
+import com.allanbank.mongodb.client.connection.Connection;
+import com.allanbank.mongodb.client.connection.proxy.ProxiedConnectionFactory;
+import com.allanbank.mongodb.client.connection.proxy.ServerConnectionPool;
 import com.allanbank.mongodb.client.message.GetMore;
 import com.allanbank.mongodb.client.message.KillCursors;
 import com.allanbank.mongodb.client.message.Query;
 import com.allanbank.mongodb.client.message.Reply;
+import com.allanbank.mongodb.client.state.Cluster;
+import com.allanbank.mongodb.client.state.Server;
 import com.allanbank.mongodb.error.CursorNotFoundException;
 import com.allanbank.mongodb.error.QueryFailedException;
 
@@ -685,6 +700,268 @@ public class MongoIteratorTest {
         verify(mockClient);
     }
 
+    /**
+     * Test method for {@link MongoIteratorImpl#setReadAhead(int, int)}.
+     *
+     * @throws InterruptedException
+     *             On a test failure.
+     */
+    @Test
+    public void testReadAhead() throws InterruptedException {
+        final Client mockClient = createMock(Client.class);
+        final Reply reply = new Reply(0, 10, 0, myDocs, false, false, false,
+                false);
+        final Reply lastReply = new Reply(0, 0, 0, myDocs, false, false,
+                false, false);
+
+        final Capture<ReplyCallback> first = new Capture<ReplyCallback>();
+        final Capture<ReplyCallback> second = new Capture<ReplyCallback>();
+        final Capture<ReplyCallback> third = new Capture<ReplyCallback>();
+
+        mockClient.send(anyObject(GetMore.class), capture(first));
+        expectLastCall();
+        mockClient.send(anyObject(GetMore.class), capture(second));
+        expectLastCall();
+        mockClient.send(anyObject(GetMore.class), capture(third));
+        expectLastCall();
+
+        replay(mockClient);
+
+        final MongoIteratorImpl iter = new MongoIteratorImpl(myQuery,
+                mockClient, myAddress, reply);
+        iter.setReadAhead(3, Integer.MAX_VALUE);
+
+        // The first reply is already here so only the single request is sent.
+        for (int i = 0; i < myDocs.size(); ++i) {
+            assertTrue(iter.hasNext());
+            assertSame(myDocs.get(i), iter.next());
+        }
+        assertTrue(first.hasCaptured());
+        assertFalse(second.hasCaptured());
+
+        // Having to wait for the reply increases the read-ahead to 2.
+        final Thread replier = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                }
+                catch (final InterruptedException e) {
+                    // Reply early.
+                }
+                first.getValue().callback(reply);
+            }
+        };
+        replier.start();
+        for (int i = 0; i < myDocs.size(); ++i) {
+            assertTrue(iter.hasNext());
+            assertSame(myDocs.get(i), iter.next());
+        }
+        replier.join();
+        assertTrue(second.hasCaptured());
+        assertTrue(third.hasCaptured());
+
+        // Both replies waiting reduces the read-ahead back to 1 so no more
+        // requests are sent.
+        second.getValue().callback(reply);
+        third.getValue().callback(lastReply);
+        for (int i = 0; i < myDocs.size(); ++i) {
+            assertTrue(iter.hasNext());
+            assertSame(myDocs.get(i), iter.next());
+        }
+        for (int i = 0; i < myDocs.size(); ++i) {
+            assertTrue(iter.hasNext());
+            assertSame(myDocs.get(i), iter.next());
+        }
+        assertFalse(iter.hasNext());
+
+        iter.close();
+
+        verify(mockClient);
+    }
+
+    /**
+     * Test method for {@link MongoIteratorImpl#setReadAhead(int, int)} with
+     * the requests sent through a {@link ServerConnectionPool}.
+     *
+     * @throws InterruptedException
+     *             On a test failure.
+     * @throws IOException
+     *             On a test failure.
+     */
+    @Test
+    public void testReadAheadWithConnectionPool() throws InterruptedException,
+            IOException {
+        final MongoClientConfiguration config = new MongoClientConfiguration();
+        config.setMinConnectionsPerServer(2);
+        config.setMaxConnectionsPerServer(2);
+        final Server server = new Cluster(config, ClusterType.STAND_ALONE)
+                .add(myAddress);
+
+        final Connection mockConnection1 = createMock(Connection.class);
+        final Connection mockConnection2 = createMock(Connection.class);
+        final ProxiedConnectionFactory mockFactory = createMock(ProxiedConnectionFactory.class);
+        final Client mockClient = createMock(Client.class);
+
+        final AtomicInteger pending1 = new AtomicInteger(0);
+        final AtomicInteger pending2 = new AtomicInteger(0);
+        final List<ReplyCallback> sent1 = new ArrayList<ReplyCallback>();
+        final List<ReplyCallback> sent2 = new ArrayList<ReplyCallback>();
+        expectSends(mockConnection1, pending1, sent1);
+        expectSends(mockConnection2, pending2, sent2);
+        expect(mockFactory.connect(server, config)).andReturn(mockConnection2);
+
+        final AtomicReference<ServerConnectionPool> pool = new AtomicReference<ServerConnectionPool>();
+        final Capture<GetMore> getMore = new Capture<GetMore>();
+        final Capture<ReplyCallback> callback = new Capture<ReplyCallback>();
+        mockClient.send(capture(getMore), capture(callback));
+        expectLastCall().andAnswer(new IAnswer<Object>() {
+            @Override
+            public Object answer() {
+                pool.get().send(getMore.getValue(), callback.getValue());
+                return null;
+            }
+        }).times(3);
+
+        replay(mockConnection1, mockConnection2, mockFactory, mockClient);
+
+        pool.set(new ServerConnectionPool(mockConnection1, server,
+                mockFactory, config, new Executor() {
+                    @Override
+                    public void execute(final Runnable command) {
+                        command.run();
+                    }
+                }));
+
+        final Reply reply = new Reply(0, 10, 0, myDocs, false, false, false,
+                false);
+        final Reply lastReply = new Reply(0, 0, 0, myDocs, false, false,
+                false, false);
+
+        final MongoIteratorImpl iter = new MongoIteratorImpl(myQuery,
+                mockClient, myAddress, reply);
+        iter.setReadAhead(3, Integer.MAX_VALUE);
+
+        // The first request uses the first connection and opens the second.
+        for (int i = 0; i < myDocs.size(); ++i) {
+            assertTrue(iter.hasNext());
+            assertSame(myDocs.get(i), iter.next());
+        }
+        assertThat(sent1.size(), is(1));
+        assertThat(pool.get().getConnectionCount(), is(2));
+
+        // Having to wait for the reply increases the read-ahead to 2.
+        final Thread replier = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                }
+                catch (final InterruptedException e) {
+                    // Reply early.
+                }
+                pending1.decrementAndGet();
+                sent1.get(0).callback(reply);
+            }
+        };
+        replier.start();
+        for (int i = 0; i < myDocs.size(); ++i) {
+            assertTrue(iter.hasNext());
+            assertSame(myDocs.get(i), iter.next());
+        }
+        replier.join();
+
+        // Both of the read-ahead requests must be on the same connection even
+        // though the other connection has fewer pending requests.
+        final List<ReplyCallback> readAhead;
+        final AtomicInteger readAheadPending;
+        if (sent2.isEmpty()) {
+            readAhead = sent1.subList(1, sent1.size());
+            readAheadPending = pending1;
+        }
+        else {
+            readAhead = sent2;
+            readAheadPending = pending2;
+            assertThat(sent1.size(), is(1));
+        }
+        assertThat(readAhead.size(), is(2));
+
+        readAheadPending.decrementAndGet();
+        readAhead.get(0).callback(reply);
+        readAheadPending.decrementAndGet();
+        readAhead.get(1).callback(lastReply);
+        for (int i = 0; i < (2 * myDocs.size()); ++i) {
+            assertTrue(iter.hasNext());
+            assertSame(myDocs.get(i % myDocs.size()), iter.next());
+        }
+        assertFalse(iter.hasNext());
+
+        iter.close();
+
+        verify(mockConnection1, mockConnection2, mockFactory, mockClient);
+    }
+
+    /**
+     * Test method for {@link MongoIteratorImpl#setReadAhead(int, int)}.
+     *
+     * @throws InterruptedException
+     *             On a test failure.
+     */
+    @Test
+    public void testReadAheadLimitedByBytes() throws InterruptedException {
+        final Client mockClient = createMock(Client.class);
+        final Reply reply = new Reply(0, 10, 0, myDocs, false, false, false,
+                false);
+
+        final Capture<ReplyCallback> first = new Capture<ReplyCallback>();
+        final Capture<ReplyCallback> second = new Capture<ReplyCallback>();
+
+        mockClient.send(anyObject(GetMore.class), capture(first));
+        expectLastCall();
+        mockClient.send(anyObject(GetMore.class), capture(second));
+        expectLastCall();
+        mockClient.send(anyObject(KillCursors.class),
+                isNull(ReplyCallback.class));
+        expectLastCall();
+
+        replay(mockClient);
+
+        final MongoIteratorImpl iter = new MongoIteratorImpl(myQuery,
+                mockClient, myAddress, reply);
+        // Only room for one outstanding reply.
+        iter.setReadAhead(3, reply.size());
+
+        for (int i = 0; i < myDocs.size(); ++i) {
+            assertTrue(iter.hasNext());
+            assertSame(myDocs.get(i), iter.next());
+        }
+
+        // Waiting increases the read-ahead but the replies would be too big.
+        final Thread replier = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                }
+                catch (final InterruptedException e) {
+                    // Reply early.
+                }
+                first.getValue().callback(reply);
+            }
+        };
+        replier.start();
+        for (int i = 0; i < myDocs.size(); ++i) {
+            assertTrue(iter.hasNext());
+            assertSame(myDocs.get(i), iter.next());
+        }
+        replier.join();
+        assertTrue(second.hasCaptured());
+
+        iter.close();
+
+        verify(mockClient);
+    }
+
     /**
      * Test method for {@link MongoIteratorImpl#remove()}.
      */
@@ -1081,4 +1358,40 @@ public class MongoIteratorTest {
         reset(mockClient);
         iterImpl.close();
     }
+
+    /**
+     * Sets up the mock connection to record the requests sent on it.
+     *
+     * @param mockConnection
+     *            The mock connection.
+     * @param pending
+     *            The count of pending requests for the connection.
+     * @param sent
+     *            The callbacks for the requests sent on the connection.
+     */
+    private void expectSends(final Connection mockConnection,
+            final AtomicInteger pending, final List<ReplyCallback> sent) {
+        mockConnection.addPropertyChangeListener(
+                anyObject(PropertyChangeListener.class));
+        expectLastCall();
+        expect(mockConnection.isAvailable()).andReturn(true).anyTimes();
+        expect(mockConnection.getPendingCount()).andAnswer(
+                new IAnswer<Integer>() {
+                    @Override
+                    public Integer answer() {
+                        return Integer.valueOf(pending.get());
+                    }
+                }).anyTimes();
+
+        final Capture<ReplyCallback> callback = new Capture<ReplyCallback>();
+        mockConnection.send(anyObject(GetMore.class), capture(callback));
+        expectLastCall().andAnswer(new IAnswer<Object>() {
+            @Override
+            public Object answer() {
+                pending.incrementAndGet();
+                sent.add(callback.getValue());
+                return null;
+            }
+        }).anyTimes();
+    }
 }
@@ -23,6 +23,7 @@ package com.allanbank.mongodb.client.callback;
 import static com.allanbank.mongodb.client.connection.CallbackReply.reply;
 import static org.easymock.EasyMock.capture;
 import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.reset;
 import static org.easymock.EasyMock.verify;
@@ -40,11 +41,13 @@ import org.easymock.EasyMock;
 import org.junit.Test;
 
 import com.allanbank.mongodb.Callback;
+import com.allanbank.mongodb.MongoClientConfiguration;
 import com.allanbank.mongodb.MongoDbException;
 import com.allanbank.mongodb.MongoIterator;
 import com.allanbank.mongodb.ReadPreference;
 import com.allanbank.mongodb.bson.Document;
 import com.allanbank.mongodb.bson.builder.BuilderFactory;
+import com.allanbank.mongodb.client.Client;
 import com.allanbank.mongodb.client.MongoIteratorImpl;
 import com.allanbank.mongodb.client.message.Query;
 import com.allanbank.mongodb.client.message.Reply;
@@ -105,17 +108,21 @@ public class CursorCallbackTest {
         final Reply reply = reply();
 
         final Callback<MongoIterator<Document>> mockCallback = createMock(Callback.class);
+        final Client mockClient = createMock(Client.class);
 
-        replay(mockCallback);
+        expect(mockClient.getConfig()).andReturn(
+                new MongoClientConfiguration());
 
-        final CursorCallback callback = new CursorCallback(null, q, false,
-                mockCallback);
+        replay(mockCallback, mockClient);
+
+        final CursorCallback callback = new CursorCallback(mockClient, q,
+                false, mockCallback);
         callback.setAddress("server");
         final MongoIteratorImpl mIter = (MongoIteratorImpl) callback
                 .convert(reply);
         assertEquals("server", mIter.getReadPerference().getServer());
 
-        verify(mockCallback);
+        verify(mockCallback, mockClient);
     }
 
     /**
@@ -131,10 +138,11 @@ public class CursorCallbackTest {
         final Reply reply = reply();
 
         final Callback<MongoIterator<Document>> mockCallback = createMock(Callback.class);
+        final Client mockClient = createMock(Client.class);
 
         replay(mockCallback);
 
-        CursorCallback callback = new CursorCallback(null, q, false,
+        CursorCallback callback = new CursorCallback(mockClient, q, false,
                 mockCallback);
         assertNull(callback.getAddress());
         callback.setAddress("server");
@@ -146,7 +154,7 @@ public class CursorCallbackTest {
 
         replay(mockCallback);
 
-        callback = new CursorCallback(null, q, false, mockCallback);
+        callback = new CursorCallback(mockClient, q, false, mockCallback);
         callback.callback(reply);
         verify(mockCallback);
 
@@ -155,8 +163,10 @@ public class CursorCallbackTest {
         final Capture<MongoIterator<Document>> capture2 = new Capture<MongoIterator<Document>>();
         mockCallback.callback(capture(capture2));
         EasyMock.expectLastCall();
+        expect(mockClient.getConfig()).andReturn(
+                new MongoClientConfiguration());
 
-        replay(mockCallback);
+        replay(mockCallback, mockClient);
 
         assertNull(callback.getAddress());
         callback.setAddress("server");
@@ -167,7 +177,7 @@ public class CursorCallbackTest {
         final MongoIteratorImpl mIter = (MongoIteratorImpl) iter;
         assertEquals("server", mIter.getReadPerference().getServer());
 
-        verify(mockCallback);
+        verify(mockCallback, mockClient);
     }
 
     /**
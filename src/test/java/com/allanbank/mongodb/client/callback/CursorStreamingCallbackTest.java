@@ -416,6 +416,86 @@ public class CursorStreamingCallbackTest {
         verify(mockClient, mockCallback);
     }
 
+    /**
+     * Test method for {@link CursorStreamingCallback} receiving the streamed
+     * batches of an exhaust cursor without sending a {@link GetMore}.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testExhaust() {
+        final Query exhaustQuery = new Query("db", "c", myQuery.getQuery(),
+                null, 5, 0, 0, false, ReadPreference.PRIMARY, false, false,
+                true, false);
+
+        final Client mockClient = createMock(Client.class);
+        final StreamCallback<Document> mockCallback = createMock(StreamCallback.class);
+
+        final CursorStreamingCallback qsCallback = new CursorStreamingCallback(
+                mockClient, exhaustQuery, false, mockCallback);
+
+        final Reply reply = new Reply(0, 10, 0, myDocs, false, false, false,
+                false);
+        final Reply reply2 = new Reply(0, 0, 0, myDocs, false, false, false,
+                false);
+
+        for (final Document doc : myDocs) {
+            mockCallback.callback(doc);
+            expectLastCall();
+        }
+        for (final Document doc : myDocs) {
+            mockCallback.callback(doc);
+            expectLastCall();
+        }
+        mockCallback.done();
+        expectLastCall();
+
+        replay(mockClient, mockCallback);
+
+        qsCallback.setAddress(myAddress);
+        qsCallback.callback(reply);
+        assertNull(qsCallback.asDocument());
+        qsCallback.callback(reply2);
+
+        verify(mockClient, mockCallback);
+    }
+
+    /**
+     * Test method for {@link CursorStreamingCallback#close()} with an exhaust
+     * cursor discarding the remaining batches without a {@link KillCursors}.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testExhaustClose() {
+        final Query exhaustQuery = new Query("db", "c", myQuery.getQuery(),
+                null, 5, 0, 0, false, ReadPreference.PRIMARY, false, false,
+                true, false);
+
+        final Client mockClient = createMock(Client.class);
+        final StreamCallback<Document> mockCallback = createMock(StreamCallback.class);
+
+        final CursorStreamingCallback qsCallback = new CursorStreamingCallback(
+                mockClient, exhaustQuery, false, mockCallback);
+
+        final Reply reply = new Reply(0, 10, 0, myDocs, false, false, false,
+                false);
+        final Reply reply2 = new Reply(0, 10, 0, myDocs, false, false, false,
+                false);
+
+        for (final Document doc : myDocs) {
+            mockCallback.callback(doc);
+            expectLastCall();
+        }
+
+        replay(mockClient, mockCallback);
+
+        qsCallback.setAddress(myAddress);
+        qsCallback.callback(reply);
+        qsCallback.close();
+        qsCallback.callback(reply2);
+
+        verify(mockClient, mockCallback);
+    }
+
     /**
      * Test method for {@link CursorStreamingCallback} getting all of the
      * documents in one batch.
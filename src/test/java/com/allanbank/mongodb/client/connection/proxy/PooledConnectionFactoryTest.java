@@ -0,0 +1,265 @@
+/*
+ * #%L
+ * PooledConnectionFactoryTest.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.allanbank.mongodb.client.connection.proxy;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.capture;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.reset;
+import static org.easymock.EasyMock.verify;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.io.IOException;
+
+import org.easymock.Capture;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.allanbank.mongodb.MongoClientConfiguration;
+import com.allanbank.mongodb.MongoDbException;
+import com.allanbank.mongodb.client.ClusterType;
+import com.allanbank.mongodb.client.connection.Connection;
+import com.allanbank.mongodb.client.state.Cluster;
+import com.allanbank.mongodb.client.state.Server;
+
+/**
+ * PooledConnectionFactoryTest provides tests for the
+ * {@link PooledConnectionFactory} class.
+ *
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+public class PooledConnectionFactoryTest {
+
+    /** The configuration being used in the test. */
+    private MongoClientConfiguration myConfig;
+
+    /** The factory being tested. */
+    private PooledConnectionFactory myTestFactory;
+
+    /** The test server. */
+    private Server myServer;
+
+    /**
+     * Creates test state.
+     */
+    @Before
+    public void setUp() {
+        myConfig = new MongoClientConfiguration();
+        myConfig.setMaxConnectionsPerServer(2);
+
+        myServer = new Cluster(myConfig, ClusterType.REPLICA_SET)
+                .get("localhost:27017");
+    }
+
+    /**
+     * Cleans up the test state.
+     */
+    @After
+    public void tearDown() {
+        if (myTestFactory != null) {
+            myTestFactory.close();
+        }
+        myTestFactory = null;
+        myConfig = null;
+        myServer = null;
+    }
+
+    /**
+     * Test method for {@link PooledConnectionFactory#connect(Server,
+     * MongoClientConfiguration)} replacing a pool that closed.
+     *
+     * @throws IOException
+     *             On a test failure.
+     */
+    @Test
+    public void testConnectReplacesClosedPool() throws IOException {
+        final Connection mockConnection = createMock(Connection.class);
+        final Connection mockConnection2 = createMock(Connection.class);
+        final ProxiedConnectionFactory mockFactory = createMock(ProxiedConnectionFactory.class);
+        final Capture<PropertyChangeListener> listener = new Capture<PropertyChangeListener>();
+
+        expect(mockFactory.connect(myServer, myConfig)).andReturn(
+                mockConnection);
+        mockConnection.addPropertyChangeListener(capture(listener));
+        expectLastCall();
+        mockConnection.removePropertyChangeListener(
+                anyObject(PropertyChangeListener.class));
+        expectLastCall();
+        mockConnection.raiseErrors(anyObject(MongoDbException.class));
+        expectLastCall();
+
+        expect(mockFactory.connect(myServer, myConfig)).andReturn(
+                mockConnection2);
+        mockConnection2.addPropertyChangeListener(
+                anyObject(PropertyChangeListener.class));
+        expectLastCall();
+
+        replay(mockConnection, mockConnection2, mockFactory);
+
+        myTestFactory = new PooledConnectionFactory(mockFactory, myConfig);
+
+        final Connection first = myTestFactory.connect(myServer, myConfig);
+
+        // The pool's only connection closes.
+        listener.getValue().propertyChange(
+                new PropertyChangeEvent(mockConnection,
+                        Connection.OPEN_PROP_NAME, Boolean.TRUE, Boolean.FALSE));
+        assertThat(first.isOpen(), is(false));
+
+        final Connection second = myTestFactory.connect(myServer, myConfig);
+        assertThat(second.isOpen(), is(true));
+        assertThat(myTestFactory.getPoolCount(), is(1));
+
+        verify(mockConnection, mockConnection2, mockFactory);
+
+        reset(mockConnection, mockConnection2, mockFactory);
+        myTestFactory = null;
+    }
+
+    /**
+     * Test method for {@link PooledConnectionFactory#connect(Server,
+     * MongoClientConfiguration)} returning a lease on the pool.
+     *
+     * @throws IOException
+     *             On a test failure.
+     */
+    @Test
+    public void testConnectReturnsLease() throws IOException {
+        final Connection mockConnection = createMock(Connection.class);
+        final ProxiedConnectionFactory mockFactory = createMock(ProxiedConnectionFactory.class);
+
+        expect(mockFactory.connect(myServer, myConfig)).andReturn(
+                mockConnection);
+        mockConnection.addPropertyChangeListener(
+                anyObject(PropertyChangeListener.class));
+        expectLastCall();
+
+        replay(mockConnection, mockFactory);
+
+        myTestFactory = new PooledConnectionFactory(mockFactory, myConfig);
+
+        assertThat(myTestFactory.connect(myServer, myConfig),
+                instanceOf(PooledConnectionFactory.PooledConnection.class));
+
+        verify(mockConnection, mockFactory);
+
+        reset(mockConnection, mockFactory);
+        myTestFactory = null;
+    }
+
+    /**
+     * Test method for {@link PooledConnectionFactory#connect(Server,
+     * MongoClientConfiguration)}.
+     *
+     * @throws IOException
+     *             On a test failure.
+     */
+    @Test
+    public void testConnectSharesPool() throws IOException {
+        final Connection mockConnection = createMock(Connection.class);
+        final ProxiedConnectionFactory mockFactory = createMock(ProxiedConnectionFactory.class);
+
+        expect(mockFactory.connect(myServer, myConfig)).andReturn(
+                mockConnection);
+        mockConnection.addPropertyChangeListener(
+                anyObject(PropertyChangeListener.class));
+        expectLastCall();
+        expect(mockConnection.isAvailable()).andReturn(true).anyTimes();
+
+        replay(mockConnection, mockFactory);
+
+        myTestFactory = new PooledConnectionFactory(mockFactory, myConfig);
+
+        final Connection first = myTestFactory.connect(myServer, myConfig);
+        final Connection second = myTestFactory.connect(myServer, myConfig);
+
+        assertThat(myTestFactory.getPoolCount(), is(1));
+        assertThat(first.getServer(), sameInstance(myServer));
+
+        // Raising errors on a lease does not fail the pool's requests.
+        first.raiseErrors(new MongoDbException("Injected."));
+
+        // Releasing a lease does not close the pool.
+        first.close();
+        first.shutdown(true);
+        assertThat(first.isOpen(), is(false));
+        assertThat(first.isAvailable(), is(false));
+        assertThat(first.isShuttingDown(), is(true));
+        assertThat(second.isOpen(), is(true));
+        assertThat(second.isAvailable(), is(true));
+
+        verify(mockConnection, mockFactory);
+
+        // Closing the factory closes the pool's connections.
+        reset(mockConnection, mockFactory);
+
+        mockConnection.removePropertyChangeListener(
+                anyObject(PropertyChangeListener.class));
+        expectLastCall();
+        mockConnection.close();
+        expectLastCall();
+
+        replay(mockConnection, mockFactory);
+
+        myTestFactory.close();
+        myTestFactory = null;
+        assertThat(second.isOpen(), is(false));
+
+        verify(mockConnection, mockFactory);
+    }
+
+    /**
+     * Test method for {@link PooledConnectionFactory#connect(Server,
+     * MongoClientConfiguration)} when only one connection per server is
+     * allowed.
+     *
+     * @throws IOException
+     *             On a test failure.
+     */
+    @Test
+    public void testConnectSingleConnection() throws IOException {
+        final Connection mockConnection = createMock(Connection.class);
+        final ProxiedConnectionFactory mockFactory = createMock(ProxiedConnectionFactory.class);
+
+        myConfig.setMaxConnectionsPerServer(1);
+
+        expect(mockFactory.connect(myServer, myConfig)).andReturn(
+                mockConnection);
+
+        replay(mockConnection, mockFactory);
+
+        myTestFactory = new PooledConnectionFactory(mockFactory, myConfig);
+
+        assertThat(myTestFactory.connect(myServer, myConfig),
+                sameInstance(mockConnection));
+        assertThat(myTestFactory.getPoolCount(), is(0));
+
+        verify(mockConnection, mockFactory);
+    }
+}
@@ -0,0 +1,718 @@
+/*
+ * #%L
+ * ServerConnectionPoolTest.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.client.connection.proxy;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.capture;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.reset;
+import static org.easymock.EasyMock.verify;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.easymock.Capture;
+import org.easymock.IAnswer;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.allanbank.mongodb.MongoClientConfiguration;
+import com.allanbank.mongodb.MongoDbException;
+import com.allanbank.mongodb.ReadPreference;
+import com.allanbank.mongodb.bson.Document;
+import com.allanbank.mongodb.client.ClusterType;
+import com.allanbank.mongodb.client.Message;
+import com.allanbank.mongodb.client.callback.ReplyCallback;
+import com.allanbank.mongodb.client.connection.Connection;
+import com.allanbank.mongodb.client.message.GetLastError;
+import com.allanbank.mongodb.client.message.GetMore;
+import com.allanbank.mongodb.client.message.Reply;
+import com.allanbank.mongodb.client.state.Cluster;
+import com.allanbank.mongodb.client.state.Server;
+import com.allanbank.mongodb.error.ConnectionLostException;
+
+/**
+ * ServerConnectionPoolTest provides tests for the
+ * {@link ServerConnectionPool} class.
+ *
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+public class ServerConnectionPoolTest {
+
+    /** An executor that runs each task on the calling thread. */
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(final Runnable command) {
+            command.run();
+        }
+    };
+
+    /** The configuration being used in the test. */
+    private MongoClientConfiguration myConfig;
+
+    /** The message being sent. */
+    private Message myMessage;
+
+    /** The test server. */
+    private Server myServer;
+
+    /**
+     * Creates test state.
+     */
+    @Before
+    public void setUp() {
+        myConfig = new MongoClientConfiguration();
+        myConfig.setMaxConnectionsPerServer(2);
+
+        myServer = new Cluster(myConfig, ClusterType.REPLICA_SET)
+                .get("localhost:27017");
+        myMessage = new GetLastError("db", false, false, 0, 0);
+    }
+
+    /**
+     * Test method for {@link ServerConnectionPool#send(Message, ReplyCallback)}
+     * and the handling of connections closing.
+     *
+     * @throws IOException
+     *             On a test failure.
+     */
+    @Test
+    public void testConnectionClosed() throws IOException {
+        final Connection mockConnection = createMock(Connection.class);
+        final Connection mockConnection2 = createMock(Connection.class);
+        final ProxiedConnectionFactory mockFactory = createMock(ProxiedConnectionFactory.class);
+        final PropertyChangeListener mockListener = createMock(PropertyChangeListener.class);
+        final ReplyCallback mockCallback = createMock(ReplyCallback.class);
+        final Capture<PropertyChangeListener> listener = new Capture<PropertyChangeListener>();
+        final Capture<PropertyChangeEvent> event = new Capture<PropertyChangeEvent>();
+
+        mockConnection.addPropertyChangeListener(capture(listener));
+        expectLastCall();
+        expect(mockConnection.isAvailable()).andReturn(true).anyTimes();
+        expect(mockConnection.getPendingCount()).andReturn(1).anyTimes();
+
+        expect(mockFactory.connect(myServer, myConfig)).andReturn(
+                mockConnection2);
+        mockConnection2.addPropertyChangeListener(
+                anyObject(PropertyChangeListener.class));
+        expectLastCall();
+        mockConnection.send(myMessage, mockCallback);
+        expectLastCall();
+
+        mockConnection2.removePropertyChangeListener(
+                anyObject(PropertyChangeListener.class));
+        expectLastCall();
+        mockConnection2.raiseErrors(anyObject(MongoDbException.class));
+        expectLastCall();
+
+        mockConnection.removePropertyChangeListener(
+                anyObject(PropertyChangeListener.class));
+        expectLastCall();
+        mockConnection.raiseErrors(anyObject(MongoDbException.class));
+        expectLastCall();
+
+        mockListener.propertyChange(capture(event));
+        expectLastCall();
+
+        replay(mockConnection, mockConnection2, mockFactory, mockListener,
+                mockCallback);
+
+        final ServerConnectionPool pool = new ServerConnectionPool(
+                mockConnection, myServer, mockFactory, myConfig, DIRECT);
+        pool.addPropertyChangeListener(mockListener);
+        pool.send(myMessage, mockCallback);
+        assertThat(pool.getConnectionCount(), is(2));
+
+        listener.getValue().propertyChange(
+                new PropertyChangeEvent(mockConnection2,
+                        Connection.OPEN_PROP_NAME, Boolean.TRUE, Boolean.FALSE));
+        assertThat(pool.getConnectionCount(), is(1));
+        assertThat(pool.isOpen(), is(true));
+
+        listener.getValue().propertyChange(
+                new PropertyChangeEvent(mockConnection,
+                        Connection.OPEN_PROP_NAME, Boolean.TRUE, Boolean.FALSE));
+        assertThat(pool.getConnectionCount(), is(0));
+        assertThat(pool.isOpen(), is(false));
+
+        assertThat(event.getValue().getSource(), is((Object) pool));
+        assertThat(event.getValue().getPropertyName(),
+                is(Connection.OPEN_PROP_NAME));
+        assertThat(event.getValue().getNewValue(), is((Object) Boolean.FALSE));
+
+        verify(mockConnection, mockConnection2, mockFactory, mockListener,
+                mockCallback);
+    }
+
+    /**
+     * Test method for {@link ServerConnectionPool#send(Message, ReplyCallback)}
+     * when a new connection cannot be opened.
+     *
+     * @throws IOException
+     *             On a test failure.
+     */
+    @Test
+    public void testSendConnectFails() throws IOException {
+        final Connection mockConnection = createMock(Connection.class);
+        final ProxiedConnectionFactory mockFactory = createMock(ProxiedConnectionFactory.class);
+        final ReplyCallback mockCallback = createMock(ReplyCallback.class);
+
+        mockConnection.addPropertyChangeListener(
+                anyObject(PropertyChangeListener.class));
+        expectLastCall();
+        expect(mockConnection.isAvailable()).andReturn(true).anyTimes();
+        expect(mockConnection.getPendingCount()).andReturn(1).anyTimes();
+
+        expect(mockFactory.connect(myServer, myConfig)).andThrow(
+                new IOException("Injected"));
+        mockConnection.send(myMessage, mockCallback);
+        expectLastCall();
+
+        replay(mockConnection, mockFactory, mockCallback);
+
+        final ServerConnectionPool pool = new ServerConnectionPool(
+                mockConnection, myServer, mockFactory, myConfig, DIRECT);
+        pool.send(myMessage, mockCallback);
+        assertThat(pool.getConnectionCount(), is(1));
+
+        verify(mockConnection, mockFactory, mockCallback);
+    }
+
+    /**
+     * Test method for {@link ServerConnectionPool#send(Message, ReplyCallback)}
+     * when the existing connection is idle.
+     *
+     * @throws IOException
+     *             On a test failure.
+     */
+    @Test
+    public void testSendIdleConnection() throws IOException {
+        final Connection mockConnection = createMock(Connection.class);
+        final ProxiedConnectionFactory mockFactory = createMock(ProxiedConnectionFactory.class);
+        final ReplyCallback mockCallback = createMock(ReplyCallback.class);
+
+        mockConnection.addPropertyChangeListener(
+                anyObject(PropertyChangeListener.class));
+        expectLastCall();
+        expect(mockConnection.isAvailable()).andReturn(true).anyTimes();
+        expect(mockConnection.getPendingCount()).andReturn(0).anyTimes();
+        mockConnection.send(myMessage, myMessage, mockCallback);
+        expectLastCall();
+
+        replay(mockConnection, mockFactory, mockCallback);
+
+        final ServerConnectionPool pool = new ServerConnectionPool(
+                mockConnection, myServer, mockFactory, myConfig, DIRECT);
+        pool.send(myMessage, myMessage, mockCallback);
+        assertThat(pool.getConnectionCount(), is(1));
+
+        verify(mockConnection, mockFactory, mockCallback);
+    }
+
+    /**
+     * Test method for {@link ServerConnectionPool#send(Message, ReplyCallback)}
+     * opening a connection on the pool's executor.
+     *
+     * @throws IOException
+     *             On a test failure.
+     */
+    @Test
+    public void testSendGrowsInBackground() throws IOException {
+        final Connection mockConnection = createMock(Connection.class);
+        final Connection mockConnection2 = createMock(Connection.class);
+        final ProxiedConnectionFactory mockFactory = createMock(ProxiedConnectionFactory.class);
+        final ReplyCallback mockCallback = createMock(ReplyCallback.class);
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+        final Executor executor = new Executor() {
+            @Override
+            public void execute(final Runnable command) {
+                tasks.add(command);
+            }
+        };
+
+        mockConnection.addPropertyChangeListener(
+                anyObject(PropertyChangeListener.class));
+        expectLastCall();
+        expect(mockConnection.isAvailable()).andReturn(true).anyTimes();
+        expect(mockConnection.getPendingCount()).andReturn(1).anyTimes();
+        mockConnection.send(myMessage, mockCallback);
+        expectLastCall().times(2);
+
+        replay(mockConnection, mockConnection2, mockFactory, mockCallback);
+
+        final ServerConnectionPool pool = new ServerConnectionPool(
+                mockConnection, myServer, mockFactory, myConfig, executor);
+
+        // Only one connection is opened at a time.
+        pool.send(myMessage, mockCallback);
+        pool.send(myMessage, mockCallback);
+        assertThat(pool.getConnectionCount(), is(1));
+        assertThat(tasks.size(), is(1));
+
+        verify(mockConnection, mockConnection2, mockFactory, mockCallback);
+
+        // Open the connection.
+        reset(mockConnection, mockConnection2, mockFactory, mockCallback);
+
+        expect(mockConnection.isAvailable()).andReturn(true).anyTimes();
+        expect(mockFactory.connect(myServer, myConfig)).andReturn(
+                mockConnection2);
+        mockConnection2.addPropertyChangeListener(
+                anyObject(PropertyChangeListener.class));
+        expectLastCall();
+
+        replay(mockConnection, mockConnection2, mockFactory, mockCallback);
+
+        tasks.remove(0).run();
+        assertThat(pool.getConnectionCount(), is(2));
+
+        verify(mockConnection, mockConnection2, mockFactory, mockCallback);
+    }
+
+    /**
+     * Test method for {@link ServerConnectionPool#send(Message, ReplyCallback)}
+     * when none of the pool's connections are available.
+     *
+     * @throws IOException
+     *             On a test failure.
+     */
+    @Test
+    public void testSendNoAvailableConnection() throws IOException {
+        final Connection mockConnection = createMock(Connection.class);
+        final Connection mockConnection2 = createMock(Connection.class);
+        final ProxiedConnectionFactory mockFactory = createMock(ProxiedConnectionFactory.class);
+        final ReplyCallback mockCallback = createMock(ReplyCallback.class);
+        final Executor mockExecutor = createMock(Executor.class);
+
+        mockConnection.addPropertyChangeListener(
+                anyObject(PropertyChangeListener.class));
+        expectLastCall();
+        expect(mockConnection.isAvailable()).andReturn(false).anyTimes();
+
+        // Opened on the sending thread.
+        expect(mockFactory.connect(myServer, myConfig)).andReturn(
+                mockConnection2);
+        mockConnection2.addPropertyChangeListener(
+                anyObject(PropertyChangeListener.class));
+        expectLastCall();
+        mockConnection2.send(myMessage, mockCallback);
+        expectLastCall();
+
+        replay(mockConnection, mockConnection2, mockFactory, mockCallback,
+                mockExecutor);
+
+        final ServerConnectionPool pool = new ServerConnectionPool(
+                mockConnection, myServer, mockFactory, myConfig, mockExecutor);
+        pool.send(myMessage, mockCallback);
+        assertThat(pool.getConnectionCount(), is(2));
+
+        verify(mockConnection, mockConnection2, mockFactory, mockCallback,
+                mockExecutor);
+    }
+
+    /**
+     * Test method for {@link ServerConnectionPool#send(Message, ReplyCallback)}
+     * opening a connection for a request for more documents without blocking
+     * the other cursors' pins.
+     *
+     * @throws IOException
+     *             On a test failure.
+     */
+    @Test
+    public void testSendGetMoreOpensOutsidePinLock() throws IOException {
+        final Connection mockConnection = createMock(Connection.class);
+        final Connection mockConnection2 = createMock(Connection.class);
+        final ProxiedConnectionFactory mockFactory = createMock(ProxiedConnectionFactory.class);
+        final ReplyCallback mockCallback = createMock(ReplyCallback.class);
+        final AtomicReference<ServerConnectionPool> poolRef = new AtomicReference<ServerConnectionPool>();
+        final AtomicBoolean blocked = new AtomicBoolean(true);
+
+        final GetMore getMore = new GetMore("db", "c", 1234, 0,
+                ReadPreference.PRIMARY);
+
+        mockConnection.addPropertyChangeListener(
+                anyObject(PropertyChangeListener.class));
+        expectLastCall();
+        expect(mockConnection.isAvailable()).andReturn(false).anyTimes();
+
+        // Opened on the sending thread. Other cursors can use their pins.
+        expect(mockFactory.connect(myServer, myConfig)).andAnswer(
+                new IAnswer<Connection>() {
+                    @Override
+                    public Connection answer() throws Throwable {
+                        final Thread other = new Thread(new Runnable() {
+                            @Override
+                            public void run() {
+                                poolRef.get().unpin(Long.valueOf(4321),
+                                        new ServerConnectionPool.CursorPin(
+                                                mockConnection));
+                            }
+                        });
+                        other.start();
+                        other.join(TimeUnit.SECONDS.toMillis(10));
+                        blocked.set(other.isAlive());
+
+                        return mockConnection2;
+                    }
+                });
+        mockConnection2.addPropertyChangeListener(
+                anyObject(PropertyChangeListener.class));
+        expectLastCall();
+        mockConnection2.send(eq(getMore), anyObject(ReplyCallback.class));
+        expectLastCall();
+
+        replay(mockConnection, mockConnection2, mockFactory, mockCallback);
+
+        final ServerConnectionPool pool = new ServerConnectionPool(
+                mockConnection, myServer, mockFactory, myConfig, DIRECT);
+        poolRef.set(pool);
+        pool.send(getMore, mockCallback);
+
+        assertThat(blocked.get(), is(false));
+
+        verify(mockConnection, mockConnection2, mockFactory, mockCallback);
+    }
+
+    /**
+     * Test method for {@link ServerConnectionPool#send(Message, ReplyCallback)}
+     * pinning the requests for more documents from a cursor to a single
+     * connection while a request is outstanding.
+     *
+     * @throws IOException
+     *             On a test failure.
+     */
+    @Test
+    public void testSendGetMorePinned() throws IOException {
+        final Connection mockConnection = createMock(Connection.class);
+        final Connection mockConnection2 = createMock(Connection.class);
+        final ProxiedConnectionFactory mockFactory = createMock(ProxiedConnectionFactory.class);
+        final ReplyCallback mockCallback = createMock(ReplyCallback.class);
+        final Capture<ReplyCallback> first = new Capture<ReplyCallback>();
+        final Capture<ReplyCallback> second = new Capture<ReplyCallback>();
+
+        final GetMore getMore = new GetMore("db", "c", 1234, 0,
+                ReadPreference.PRIMARY);
+        final GetMore otherCursor = new GetMore("db", "c", 4321, 0,
+                ReadPreference.PRIMARY);
+        final Reply reply = new Reply(0, 1234, 0,
+                Collections.<Document> emptyList(), false, false, false,
+                false);
+
+        myConfig.setMinConnectionsPerServer(2);
+
+        mockConnection.addPropertyChangeListener(
+                anyObject(PropertyChangeListener.class));
+        expectLastCall();
+        expect(mockConnection.isAvailable()).andReturn(true).anyTimes();
+        expect(mockConnection.getPendingCount()).andReturn(3).anyTimes();
+
+        // Opens the second connection.
+        expect(mockFactory.connect(myServer, myConfig)).andReturn(
+                mockConnection2);
+        mockConnection2.addPropertyChangeListener(
+                anyObject(PropertyChangeListener.class));
+        expectLastCall();
+        mockConnection.send(myMessage, mockCallback);
+        expectLastCall();
+
+        // The second connection is idle for the first request and then busy.
+        expect(mockConnection2.isAvailable()).andReturn(true).anyTimes();
+        expect(mockConnection2.getPendingCount()).andReturn(0);
+        expect(mockConnection2.getPendingCount()).andReturn(5).anyTimes();
+
+        // Uses the second connection.
+        mockConnection2.send(eq(getMore), capture(first));
+        expectLastCall();
+        // Pinned to the second connection.
+        mockConnection2.send(eq(getMore), capture(second));
+        expectLastCall();
+        // Other cursors use the least pending connection.
+        mockConnection.send(eq(otherCursor), anyObject(ReplyCallback.class));
+        expectLastCall();
+        // Not pinned once the replies are received.
+        mockConnection.send(eq(getMore), anyObject(ReplyCallback.class));
+        expectLastCall();
+
+        expect(mockCallback.isLightWeight()).andReturn(true);
+        mockCallback.callback(reply);
+        expectLastCall();
+        mockCallback.exception(anyObject(Throwable.class));
+        expectLastCall();
+
+        replay(mockConnection, mockConnection2, mockFactory, mockCallback);
+
+        final ServerConnectionPool pool = new ServerConnectionPool(
+                mockConnection, myServer, mockFactory, myConfig, DIRECT);
+        pool.send(myMessage, mockCallback);
+        pool.send(getMore, mockCallback);
+        pool.send(getMore, mockCallback);
+        pool.send(otherCursor, mockCallback);
+
+        assertThat(first.getValue().isLightWeight(), is(true));
+        first.getValue().callback(reply);
+        second.getValue().exception(new MongoDbException());
+
+        pool.send(getMore, mockCallback);
+
+        verify(mockConnection, mockConnection2, mockFactory, mockCallback);
+    }
+
+    /**
+     * Test method for {@link ServerConnectionPool#send(Message, ReplyCallback)}
+     * when the pool is full.
+     *
+     * @throws IOException
+     *             On a test failure.
+     */
+    @Test
+    public void testSendLeastPending() throws IOException {
+        final Connection mockConnection = createMock(Connection.class);
+        final Connection mockConnection2 = createMock(Connection.class);
+        final ProxiedConnectionFactory mockFactory = createMock(ProxiedConnectionFactory.class);
+        final ReplyCallback mockCallback = createMock(ReplyCallback.class);
+
+        mockConnection.addPropertyChangeListener(
+                anyObject(PropertyChangeListener.class));
+        expectLastCall();
+        expect(mockConnection.isAvailable()).andReturn(true).anyTimes();
+        expect(mockConnection.getPendingCount()).andReturn(5).anyTimes();
+
+        expect(mockFactory.connect(myServer, myConfig)).andReturn(
+                mockConnection2);
+        mockConnection2.addPropertyChangeListener(
+                anyObject(PropertyChangeListener.class));
+        expectLastCall();
+        expect(mockConnection2.isAvailable()).andReturn(true).anyTimes();
+        expect(mockConnection2.getPendingCount()).andReturn(2).anyTimes();
+        mockConnection.send(myMessage, mockCallback);
+        expectLastCall();
+        mockConnection2.send(myMessage, mockCallback);
+        expectLastCall();
+
+        replay(mockConnection, mockConnection2, mockFactory, mockCallback);
+
+        final ServerConnectionPool pool = new ServerConnectionPool(
+                mockConnection, myServer, mockFactory, myConfig, DIRECT);
+
+        // Opens the second connection but uses the first.
+        pool.send(myMessage, mockCallback);
+        assertThat(pool.getConnectionCount(), is(2));
+
+        // At the maximum. Uses the least pending.
+        pool.send(myMessage, mockCallback);
+        assertThat(pool.getConnectionCount(), is(2));
+        assertThat(pool.getPendingCount(), is(7));
+
+        verify(mockConnection, mockConnection2, mockFactory, mockCallback);
+    }
+
+    /**
+     * Test method for {@link ServerConnectionPool#send(Message, ReplyCallback)}
+     * when the pool is below the minimum size.
+     *
+     * @throws IOException
+     *             On a test failure.
+     */
+    @Test
+    public void testSendMinimumConnections() throws IOException {
+        final Connection mockConnection = createMock(Connection.class);
+        final Connection mockConnection2 = createMock(Connection.class);
+        final ProxiedConnectionFactory mockFactory = createMock(ProxiedConnectionFactory.class);
+        final ReplyCallback mockCallback = createMock(ReplyCallback.class);
+
+        myConfig.setMinConnectionsPerServer(2);
+
+        mockConnection.addPropertyChangeListener(
+                anyObject(PropertyChangeListener.class));
+        expectLastCall();
+        expect(mockConnection.isAvailable()).andReturn(true).anyTimes();
+        expect(mockConnection.getPendingCount()).andReturn(0).anyTimes();
+
+        expect(mockFactory.connect(myServer, myConfig)).andReturn(
+                mockConnection2);
+        mockConnection2.addPropertyChangeListener(
+                anyObject(PropertyChangeListener.class));
+        expectLastCall();
+        mockConnection.send(myMessage, mockCallback);
+        expectLastCall();
+
+        replay(mockConnection, mockConnection2, mockFactory, mockCallback);
+
+        final ServerConnectionPool pool = new ServerConnectionPool(
+                mockConnection, myServer, mockFactory, myConfig, DIRECT);
+        pool.send(myMessage, mockCallback);
+        assertThat(pool.getConnectionCount(), is(2));
+
+        verify(mockConnection, mockConnection2, mockFactory, mockCallback);
+    }
+
+    /**
+     * Test method for {@link ServerConnectionPool#send(Message, ReplyCallback)}
+     * waiting for the connection another thread is opening.
+     *
+     * @throws Exception
+     *             On a test failure.
+     */
+    @Test
+    public void testSendWaitsForGrowingConnection() throws Exception {
+        final Connection mockConnection = createMock(Connection.class);
+        final Connection mockConnection2 = createMock(Connection.class);
+        final ProxiedConnectionFactory mockFactory = createMock(ProxiedConnectionFactory.class);
+        final ReplyCallback mockCallback = createMock(ReplyCallback.class);
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+        final Executor executor = new Executor() {
+            @Override
+            public void execute(final Runnable command) {
+                tasks.add(command);
+            }
+        };
+        final AtomicBoolean available = new AtomicBoolean(true);
+
+        mockConnection.addPropertyChangeListener(
+                anyObject(PropertyChangeListener.class));
+        expectLastCall();
+        expect(mockConnection.isAvailable()).andAnswer(new IAnswer<Boolean>() {
+            @Override
+            public Boolean answer() {
+                return Boolean.valueOf(available.get());
+            }
+        }).anyTimes();
+        expect(mockConnection.getPendingCount()).andReturn(1).anyTimes();
+        mockConnection.send(myMessage, mockCallback);
+        expectLastCall();
+
+        expect(mockFactory.connect(myServer, myConfig)).andReturn(
+                mockConnection2);
+        mockConnection2.addPropertyChangeListener(
+                anyObject(PropertyChangeListener.class));
+        expectLastCall();
+        expect(mockConnection2.isAvailable()).andReturn(true).anyTimes();
+        expect(mockConnection2.getPendingCount()).andReturn(0).anyTimes();
+        mockConnection2.send(myMessage, mockCallback);
+        expectLastCall();
+
+        replay(mockConnection, mockConnection2, mockFactory, mockCallback);
+
+        final ServerConnectionPool pool = new ServerConnectionPool(
+                mockConnection, myServer, mockFactory, myConfig, executor);
+
+        // Starts opening a connection in the background.
+        pool.send(myMessage, mockCallback);
+        assertThat(tasks.size(), is(1));
+
+        // Nothing available. Wait for the connection being opened.
+        available.set(false);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final Thread sender = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    pool.send(myMessage, mockCallback);
+                }
+                catch (final RuntimeException error) {
+                    failure.set(error);
+                }
+            }
+        });
+        sender.start();
+        sender.join(100);
+        assertThat(sender.isAlive(), is(true));
+
+        tasks.remove(0).run();
+        sender.join(TimeUnit.SECONDS.toMillis(10));
+        assertThat(sender.isAlive(), is(false));
+        assertThat(failure.get(), nullValue());
+        assertThat(pool.getConnectionCount(), is(2));
+
+        verify(mockConnection, mockConnection2, mockFactory, mockCallback);
+    }
+
+    /**
+     * Test method for {@link ServerConnectionPool#send(Message, ReplyCallback)}
+     * timing out waiting for the connection another thread is opening.
+     */
+    @Test
+    public void testSendWaitsForGrowingConnectionTimeout() {
+        final Connection mockConnection = createMock(Connection.class);
+        final ProxiedConnectionFactory mockFactory = createMock(ProxiedConnectionFactory.class);
+        final ReplyCallback mockCallback = createMock(ReplyCallback.class);
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+        final Executor executor = new Executor() {
+            @Override
+            public void execute(final Runnable command) {
+                tasks.add(command);
+            }
+        };
+        final AtomicBoolean available = new AtomicBoolean(true);
+
+        myConfig.setConnectTimeout(50);
+
+        mockConnection.addPropertyChangeListener(
+                anyObject(PropertyChangeListener.class));
+        expectLastCall();
+        expect(mockConnection.isAvailable()).andAnswer(new IAnswer<Boolean>() {
+            @Override
+            public Boolean answer() {
+                return Boolean.valueOf(available.get());
+            }
+        }).anyTimes();
+        expect(mockConnection.getPendingCount()).andReturn(1).anyTimes();
+        mockConnection.send(myMessage, mockCallback);
+        expectLastCall();
+
+        replay(mockConnection, mockFactory, mockCallback);
+
+        final ServerConnectionPool pool = new ServerConnectionPool(
+                mockConnection, myServer, mockFactory, myConfig, executor);
+
+        // Starts opening a connection in the background.
+        pool.send(myMessage, mockCallback);
+        assertThat(tasks.size(), is(1));
+
+        // The connection is never opened.
+        available.set(false);
+        try {
+            pool.send(myMessage, mockCallback);
+            fail("Should have timed out waiting for the connection.");
+        }
+        catch (final ConnectionLostException expected) {
+            // Good.
+        }
+
+        verify(mockConnection, mockFactory, mockCallback);
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * #%L
+ * HedgedReplyCallbackTest.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.client.connection.rs;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Collections;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import com.allanbank.mongodb.MongoDbException;
+import com.allanbank.mongodb.bson.Document;
+import com.allanbank.mongodb.client.callback.ReplyCallback;
+import com.allanbank.mongodb.client.connection.Connection;
+import com.allanbank.mongodb.client.message.Reply;
+
+/**
+ * HedgedReplyCallbackTest provides tests for the {@link HedgedReplyCallback}
+ * class.
+ *
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+public class HedgedReplyCallbackTest {
+
+    /**
+     * Test method for {@link HedgedReplyCallback.Leg#exception(Throwable)}.
+     */
+    @Test
+    public void testAllLegsFail() {
+        final MongoDbException error1 = new MongoDbException("Injected 1");
+        final MongoDbException error2 = new MongoDbException("Injected 2");
+
+        final ReplyCallback mockCallback = createMock(ReplyCallback.class);
+        final Connection mockConnection = createMock(Connection.class);
+
+        mockCallback.exception(error2);
+        expectLastCall();
+
+        replay(mockCallback, mockConnection);
+
+        final HedgedReplyCallback hedged = new HedgedReplyCallback(
+                mockCallback, mockConnection);
+        final HedgedReplyCallback.Leg leg1 = hedged.newLeg();
+        final HedgedReplyCallback.Leg leg2 = hedged.newLeg();
+
+        leg1.exception(error1);
+        assertThat(hedged.isDone(), is(false));
+        leg2.exception(error2);
+        assertThat(hedged.isDone(), is(true));
+
+        // Repeated notifications are ignored.
+        leg2.exception(error2);
+
+        verify(mockCallback, mockConnection);
+    }
+
+    /**
+     * Test method for {@link HedgedReplyCallback.Leg#callback(Reply)}.
+     */
+    @Test
+    public void testFailedLegWaitsForOtherLeg() {
+        final MongoDbException error = new MongoDbException("Injected");
+        final Reply reply = new Reply(0, 0, 0,
+                Collections.<Document> emptyList(), false, false, false,
+                false);
+
+        final ReplyCallback mockCallback = createMock(ReplyCallback.class);
+        final Connection mockConnection = createMock(Connection.class);
+        final Future<?> mockFuture = createMock(Future.class);
+
+        expect(mockFuture.cancel(false)).andReturn(Boolean.TRUE);
+        mockCallback.callback(reply);
+        expectLastCall();
+
+        replay(mockCallback, mockConnection, mockFuture);
+
+        final HedgedReplyCallback hedged = new HedgedReplyCallback(
+                mockCallback, mockConnection);
+        final HedgedReplyCallback.Leg leg1 = hedged.newLeg();
+        hedged.setHedge(mockFuture);
+        final HedgedReplyCallback.Leg leg2 = hedged.newLeg();
+
+        leg1.exception(error);
+        leg2.callback(reply);
+
+        verify(mockCallback, mockConnection, mockFuture);
+    }
+
+    /**
+     * Test method for {@link HedgedReplyCallback#setHedge(Future)}.
+     */
+    @Test
+    public void testSetHedgeAfterDone() {
+        final Reply reply = new Reply(0, 0, 0,
+                Collections.<Document> emptyList(), false, false, false,
+                false);
+
+        final ReplyCallback mockCallback = createMock(ReplyCallback.class);
+        final Connection mockConnection = createMock(Connection.class);
+        final Future<?> mockFuture = createMock(Future.class);
+
+        mockCallback.callback(reply);
+        expectLastCall();
+        expect(mockFuture.cancel(false)).andReturn(Boolean.TRUE);
+
+        replay(mockCallback, mockConnection, mockFuture);
+
+        final HedgedReplyCallback hedged = new HedgedReplyCallback(
+                mockCallback, mockConnection);
+        hedged.newLeg().callback(reply);
+        hedged.setHedge(mockFuture);
+
+        verify(mockCallback, mockConnection, mockFuture);
+    }
+}
@@ -31,6 +31,7 @@ import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.reset;
 import static org.easymock.EasyMock.verify;
 import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
@@ -40,6 +41,10 @@ import static org.junit.Assert.fail;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.easymock.Capture;
 import org.junit.After;
@@ -58,9 +63,12 @@ import com.allanbank.mongodb.client.callback.ReplyCallback;
 import com.allanbank.mongodb.client.connection.Connection;
 import com.allanbank.mongodb.client.connection.ReconnectStrategy;
 import com.allanbank.mongodb.client.connection.proxy.ConnectionInfo;
+import com.allanbank.mongodb.client.connection.proxy.PooledConnectionFactory;
 import com.allanbank.mongodb.client.connection.proxy.ProxiedConnectionFactory;
 import com.allanbank.mongodb.client.message.IsMaster;
+import com.allanbank.mongodb.client.message.KillCursors;
 import com.allanbank.mongodb.client.message.Query;
+import com.allanbank.mongodb.client.message.Reply;
 import com.allanbank.mongodb.client.state.Cluster;
 import com.allanbank.mongodb.client.state.Server;
 
@@ -1126,6 +1134,192 @@ public class ReplicaSetConnectionTest {
         verify(mockConnection, mockFactory, mockConnection2);
     }
 
+    /**
+     * Test method for {@link ReplicaSetConnection#send(Message, ReplyCallback)}
+     * when the read is hedged to a second secondary.
+     *
+     * @throws IOException
+     *             On a failure setting up mocks.
+     */
+    @Test
+    public void testSendToSecondaryHedged() throws IOException {
+        myConfig.setHedgedReadDelay(5);
+
+        final Query q = new Query("db", "c", BuilderFactory.start().build(),
+                null, 0, 0, 0, false, ReadPreference.secondary(), false, false,
+                false, false);
+        final Reply winner = new Reply(0, 0, 0,
+                Collections.<Document> emptyList(), false, false, false,
+                false);
+        final Reply loser = new Reply(0, 1234, 0,
+                Collections.<Document> emptyList(), false, false, false,
+                false);
+
+        final Server s1 = myCluster.add("foo:12345");
+        final Server s2 = myCluster.add("bar:12345");
+
+        s1.updateAverageLatency(1000);
+        s2.updateAverageLatency(1000);
+
+        final Connection mockConnection = createMock(Connection.class);
+        final Connection mockConnection1 = createMock(Connection.class);
+        final Connection mockConnection2 = createMock(Connection.class);
+        final ProxiedConnectionFactory mockFactory = createMock(ProxiedConnectionFactory.class);
+        final ScheduledExecutorService mockTimer = createMock(ScheduledExecutorService.class);
+        final ScheduledFuture<?> mockFuture = createMock(ScheduledFuture.class);
+        final ReplyCallback mockCallback = createMock(ReplyCallback.class);
+
+        final Capture<ReplyCallback> leg1 = new Capture<ReplyCallback>();
+        final Capture<ReplyCallback> leg2 = new Capture<ReplyCallback>();
+        final Capture<Runnable> hedge = new Capture<Runnable>();
+        final Capture<Message> kill = new Capture<Message>();
+
+        mockConnection
+                .addPropertyChangeListener(anyObject(PropertyChangeListener.class));
+        expectLastCall();
+
+        expect(mockFactory.connect(s1, myConfig)).andReturn(mockConnection1);
+        mockConnection1
+                .addPropertyChangeListener(anyObject(PropertyChangeListener.class));
+        expectLastCall();
+        mockConnection1.send(eq(q), capture(leg1));
+        expectLastCall();
+
+        expect(mockFactory.connect(s2, myConfig)).andReturn(mockConnection2);
+        mockConnection2
+                .addPropertyChangeListener(anyObject(PropertyChangeListener.class));
+        expectLastCall();
+        mockConnection2.send(eq(q), capture(leg2));
+        expectLastCall();
+
+        mockTimer.schedule(capture(hedge), eq(5L), eq(TimeUnit.MILLISECONDS));
+        expectLastCall().andReturn(mockFuture);
+        expect(mockFuture.cancel(false)).andReturn(Boolean.TRUE);
+
+        // The hedge wins.
+        mockCallback.callback(winner);
+        expectLastCall();
+
+        // ... and the cursor from the slow server is killed.
+        expect(mockConnection1.isAvailable()).andReturn(true).times(0, 1);
+        mockConnection1.send(capture(kill),
+                isNull(ReplyCallback.class));
+        expectLastCall().times(0, 1);
+        expect(mockConnection2.isAvailable()).andReturn(true).times(0, 1);
+        mockConnection2.send(capture(kill),
+                isNull(ReplyCallback.class));
+        expectLastCall().times(0, 1);
+
+        replay(mockConnection, mockConnection1, mockConnection2, mockFactory,
+                mockTimer, mockFuture, mockCallback);
+
+        final ReplicaSetConnection testConnection = new ReplicaSetConnection(
+                mockConnection, myServer, myCluster, mockFactory, myConfig,
+                null, mockTimer);
+
+        testConnection.send(q, mockCallback);
+
+        // Only one server has been sent the query.
+        assertThat(leg1.hasCaptured() ^ leg2.hasCaptured(), is(true));
+        final Capture<ReplyCallback> first = leg1.hasCaptured() ? leg1 : leg2;
+        final Capture<ReplyCallback> second = leg1.hasCaptured() ? leg2
+                : leg1;
+
+        // Timer fires.
+        hedge.getValue().run();
+        assertThat(second.hasCaptured(), is(true));
+
+        second.getValue().callback(winner);
+        first.getValue().callback(loser);
+
+        assertThat(kill.getValue(), instanceOf(KillCursors.class));
+        assertThat(((KillCursors) kill.getValue()).getCursorIds(),
+                is(new long[] { 1234 }));
+
+        verify(mockConnection, mockConnection1, mockConnection2, mockFactory,
+                mockTimer, mockFuture, mockCallback);
+    }
+
+    /**
+     * Test method for {@link ReplicaSetConnection#send(Message, ReplyCallback)}
+     * when multiple connections per server are allowed. The replica set
+     * connections share the server's pool.
+     *
+     * @throws IOException
+     *             On a failure setting up mocks.
+     */
+    @Test
+    public void testSendToSecondaryPooled() throws IOException {
+        final Query q = new Query("db", "c", BuilderFactory.start().build(),
+                null, 0, 0, 0, false, ReadPreference.secondary(), false, false,
+                false, false);
+
+        myConfig.setMaxConnectionsPerServer(2);
+
+        final Server s1 = myCluster.add("foo:12345");
+        s1.updateAverageLatency(1000);
+
+        final Connection mockConnection = createMock(Connection.class);
+        final Connection mockConnection2 = createMock(Connection.class);
+        final ProxiedConnectionFactory mockFactory = createMock(ProxiedConnectionFactory.class);
+
+        // Only one connection for the pool.
+        expect(mockFactory.connect(s1, myConfig)).andReturn(mockConnection2);
+        mockConnection2
+                .addPropertyChangeListener(anyObject(PropertyChangeListener.class));
+        expectLastCall();
+        // The pool selects the connection with the fewest pending requests.
+        expect(mockConnection2.isAvailable()).andReturn(true).anyTimes();
+        expect(mockConnection2.getPendingCount()).andReturn(0).atLeastOnce();
+        mockConnection2.send(q, null);
+        expectLastCall().times(2);
+
+        mockConnection
+                .addPropertyChangeListener(anyObject(PropertyChangeListener.class));
+        expectLastCall().times(2);
+        mockConnection
+                .removePropertyChangeListener(anyObject(PropertyChangeListener.class));
+        expectLastCall().times(2);
+        mockConnection.close();
+        expectLastCall().times(2);
+
+        replay(mockConnection, mockFactory, mockConnection2);
+
+        final PooledConnectionFactory pooledFactory = new PooledConnectionFactory(
+                mockFactory, myConfig);
+        final ReplicaSetConnection testConnection = new ReplicaSetConnection(
+                mockConnection, myServer, myCluster, pooledFactory, myConfig,
+                null);
+        final ReplicaSetConnection otherConnection = new ReplicaSetConnection(
+                mockConnection, myServer, myCluster, pooledFactory, myConfig,
+                null);
+
+        testConnection.send(q, null);
+        otherConnection.send(q, null);
+        assertThat(pooledFactory.getPoolCount(), is(1));
+
+        // Closing the replica set connections leaves the pool open.
+        testConnection.close();
+        otherConnection.close();
+
+        verify(mockConnection, mockFactory, mockConnection2);
+
+        // The factory closes the pool.
+        reset(mockConnection, mockFactory, mockConnection2);
+
+        mockConnection2
+                .removePropertyChangeListener(anyObject(PropertyChangeListener.class));
+        expectLastCall();
+        mockConnection2.close();
+        expectLastCall();
+
+        replay(mockConnection, mockFactory, mockConnection2);
+
+        pooledFactory.close();
+
+        verify(mockConnection, mockFactory, mockConnection2);
+    }
+
     /**
      * Test method for {@link ReplicaSetConnection#send(Message, ReplyCallback)}
      * .
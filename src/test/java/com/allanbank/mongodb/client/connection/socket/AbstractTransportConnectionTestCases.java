@@ -31,6 +31,7 @@ import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertArrayEquals;
@@ -57,7 +58,9 @@ import java.nio.IntBuffer;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -79,6 +82,8 @@ import com.allanbank.mongodb.Version;
 import com.allanbank.mongodb.bson.Document;
 import com.allanbank.mongodb.bson.builder.BuilderFactory;
 import com.allanbank.mongodb.bson.builder.DocumentBuilder;
+import com.allanbank.mongodb.bson.codec.BsonReader;
+import com.allanbank.mongodb.bson.codec.Decoder;
 import com.allanbank.mongodb.bson.impl.ImmutableDocument;
 import com.allanbank.mongodb.bson.io.BsonInputStream;
 import com.allanbank.mongodb.bson.io.BsonOutputStream;
@@ -92,6 +97,7 @@ import com.allanbank.mongodb.client.Operation;
 import com.allanbank.mongodb.client.PoisonMessage;
 import com.allanbank.mongodb.client.VersionRange;
 import com.allanbank.mongodb.client.callback.FutureReplyCallback;
+import com.allanbank.mongodb.client.callback.ReplyCallback;
 import com.allanbank.mongodb.client.connection.Connection;
 import com.allanbank.mongodb.client.connection.SocketConnectionListener;
 import com.allanbank.mongodb.client.message.Command;
@@ -1535,6 +1541,83 @@ public abstract class AbstractTransportConnectionTestCases {
         assertEquals("Did not receive the expected reply.", expected, reply);
     }
 
+    /**
+     * Test method for {@link TransportConnection} decoding the reply for a
+     * query with a {@link Decoder} directly from the received bytes.
+     *
+     * @throws IOException
+     *             On a failure connecting to the Mock MongoDB server.
+     * @throws TimeoutException
+     *             On a failure waiting for a reply.
+     * @throws InterruptedException
+     *             On a failure waiting for a reply.
+     * @throws ExecutionException
+     *             On a failure waiting for a reply.
+     */
+    @Test
+    public void testReadDecoded() throws IOException, InterruptedException,
+            ExecutionException, TimeoutException {
+        // From the BSON specification.
+        final byte[] helloWorld = new byte[] { 0x16, 0x00, 0x00, 0x00, 0x02,
+                (byte) 'h', (byte) 'e', (byte) 'l', (byte) 'l', (byte) 'o',
+                0x00, 0x06, 0x00, 0x00, 0x00, (byte) 'w', (byte) 'o',
+                (byte) 'r', (byte) 'l', (byte) 'd', 0x00, 0x00 };
+
+        final ByteBuffer byteBuff = ByteBuffer.allocate(9 * 4);
+        final IntBuffer buff = byteBuff.asIntBuffer();
+        buff.put(0, EndianUtils.swap((7 * 4) + 8 + helloWorld.length));
+        buff.put(1, 0);
+        buff.put(2, EndianUtils.swap(1));
+        buff.put(3, EndianUtils.swap(Operation.REPLY.getCode()));
+        buff.put(4, 0);
+        buff.put(5, 0);
+        buff.put(6, 0);
+        buff.put(7, 0);
+        buff.put(8, EndianUtils.swap(1));
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(byteBuff.array());
+        out.write(helloWorld);
+        ourServer.setReplies(Arrays.asList(out.toByteArray()));
+
+        connect();
+
+        assertTrue("Should have connected to the server.",
+                ourServer.waitForClient(TimeUnit.SECONDS.toMillis(10)));
+
+        final Decoder<String> decoder = new Decoder<String>() {
+            @Override
+            public String decode(final BsonReader reader) throws IOException {
+                String value = null;
+                reader.readStartDocument();
+                while (reader.readNext() != null) {
+                    if ("hello".equals(reader.getName())) {
+                        value = reader.readString();
+                    }
+                    else {
+                        reader.skipValue();
+                    }
+                }
+                return value;
+            }
+        };
+
+        final FutureReplyCallback future = new FutureReplyCallback();
+        final Query query = new Query("db", "collection", BuilderFactory
+                .start().build(), null, 0, 1, 0, false,
+                ReadPreference.PRIMARY, false, false, false, false, decoder);
+        myTestConnection.send(query, future);
+
+        // Wake up the server.
+        assertTrue("Should receive the request after flush.",
+                ourServer.waitForRequest(1, TimeUnit.SECONDS.toMillis(10)));
+        final Reply reply = future.get(60, TimeUnit.SECONDS);
+
+        assertEquals(Collections.<Object> singletonList("world"),
+                reply.getDecodedResults());
+        assertEquals(Collections.<Document> emptyList(), reply.getResults());
+    }
+
     /**
      * Test method for {@link TransportConnection}.
      *
@@ -1645,6 +1728,92 @@ public abstract class AbstractTransportConnectionTestCases {
         }
     }
 
+    /**
+     * Test method for {@link TransportConnection} receiving the streamed
+     * replies for an exhaust query.
+     *
+     * @throws IOException
+     *             On a failure connecting to the Mock MongoDB server.
+     * @throws TimeoutException
+     *             On a failure waiting for a reply.
+     * @throws ExecutionException
+     *             On a failure waiting for a reply.
+     * @throws InterruptedException
+     *             On a failure waiting for a reply.
+     */
+    @Test
+    public void testReadExhaust() throws IOException, InterruptedException,
+            ExecutionException, TimeoutException {
+        // The server streams each batch in response to the previous reply.
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(emptyReply(1001, 1, 5));
+        out.write(emptyReply(1002, 1001, 5));
+        out.write(emptyReply(1003, 1002, 0));
+        ourServer.setReplies(Arrays.asList(out.toByteArray(),
+                emptyReply(1004, 2, 0)));
+
+        connect();
+
+        assertTrue("Should have connected to the server.",
+                ourServer.waitForClient(TimeUnit.SECONDS.toMillis(10)));
+
+        final BlockingQueue<Reply> replies = new LinkedBlockingQueue<Reply>();
+        final BlockingQueue<Integer> pending = new LinkedBlockingQueue<Integer>();
+        final ReplyCallback callback = new ReplyCallback() {
+            @Override
+            public void callback(final Reply result) {
+                pending.add(Integer.valueOf(myTestConnection.getPendingCount()));
+                replies.add(result);
+            }
+
+            @Override
+            public void exception(final Throwable thrown) {
+                fail(thrown.getMessage());
+            }
+
+            @Override
+            public boolean isLightWeight() {
+                return false;
+            }
+        };
+
+        final Query query = new Query("foo", "bar", Find.ALL, null, 0, 0, 0,
+                false, ReadPreference.PRIMARY, false, false, true, false);
+        myTestConnection.send(query, callback);
+
+        assertTrue("Should receive the request after flush.",
+                ourServer.waitForRequest(1, TimeUnit.SECONDS.toMillis(10)));
+
+        // Each batch in order.
+        for (final long cursorId : new long[] { 5, 5, 0 }) {
+            final Reply reply = replies.poll(10, TimeUnit.SECONDS);
+            assertNotNull("Should have received the streamed reply.", reply);
+            assertThat(reply.getCursorId(), is(cursorId));
+        }
+        assertThat(myTestConnection.getPendingCount(), is(0));
+
+        // The connection is busy while the cursor is streaming.
+        final int maxPending = new MongoClientConfiguration()
+                .getMaxPendingOperationsPerConnection();
+        assertThat(pending.poll(), is(Integer.valueOf(maxPending)));
+        assertThat(pending.poll(), is(Integer.valueOf(maxPending)));
+        assertThat(pending.poll(), is(Integer.valueOf(0)));
+
+        // The stream is not a single request's latency.
+        assertThat(myTestServer.getPendingRequestCount(), is(0));
+        assertEquals(Double.MAX_VALUE, myTestServer.getRecentLatency(), 0.001);
+
+        // Back to normal request/reply.
+        final FutureReplyCallback future = new FutureReplyCallback();
+        final GetLastError error = new GetLastError("fo", false, false, 0, 0);
+        myTestConnection.send(error, future);
+
+        final Reply reply = future.get(60, TimeUnit.SECONDS);
+        assertThat(reply.getResponseToId(), is(2));
+        assertTrue(replies.isEmpty());
+        assertThat(myTestServer.getRecentLatency(), lessThan(Double.MAX_VALUE));
+    }
+
     /**
      * Test method for {@link TransportConnection#send} .
      *
@@ -3154,6 +3323,34 @@ public abstract class AbstractTransportConnectionTestCases {
         connect(myTestServer, config);
     }
 
+    /**
+     * Creates the bytes for a reply without any documents.
+     *
+     * @param requestId
+     *            The request id for the reply.
+     * @param responseTo
+     *            The id of the request the reply is responding to.
+     * @param cursorId
+     *            The cursor id for the reply.
+     * @return The bytes for the reply.
+     */
+    private byte[] emptyReply(final int requestId, final int responseTo,
+            final long cursorId) {
+        final ByteBuffer byteBuff = ByteBuffer.allocate(9 * 4);
+        final IntBuffer buff = byteBuff.asIntBuffer();
+        buff.put(0, EndianUtils.swap(9 * 4));
+        buff.put(1, EndianUtils.swap(requestId));
+        buff.put(2, EndianUtils.swap(responseTo));
+        buff.put(3, EndianUtils.swap(Operation.REPLY.getCode()));
+        buff.put(4, 0);
+        buff.put(5, EndianUtils.swap((int) cursorId));
+        buff.put(6, EndianUtils.swap((int) (cursorId >> 32)));
+        buff.put(7, 0);
+        buff.put(8, 0);
+
+        return byteBuff.array();
+    }
+
     /**
      * Waits for the capture to have been set.
      *
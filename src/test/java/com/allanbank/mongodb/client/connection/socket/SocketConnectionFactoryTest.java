@@ -40,6 +40,7 @@ import com.allanbank.mongodb.ConnectionModel;
 import com.allanbank.mongodb.MongoClientConfiguration;
 import com.allanbank.mongodb.bson.builder.BuilderFactory;
 import com.allanbank.mongodb.bson.builder.DocumentBuilder;
+import com.allanbank.mongodb.bson.io.StringCachePolicy;
 import com.allanbank.mongodb.client.ClusterType;
 import com.allanbank.mongodb.client.MockSocketServer;
 import com.allanbank.mongodb.client.connection.Connection;
@@ -282,6 +283,11 @@ public class SocketConnectionFactoryTest {
         assertThat(myTestFactory.getEncoderCache().getMaxCacheLength(),
                 is(config.getMaxCachedStringLength()));
 
+        config.setStringCachePolicy(StringCachePolicy.TINY_LFU);
+        assertThat(myTestFactory.getDecoderCache().getPolicy(),
+                is(StringCachePolicy.TINY_LFU));
+        assertThat(myTestFactory.getEncoderCache().getPolicy(),
+                is(StringCachePolicy.TINY_LFU));
     }
 
     /**
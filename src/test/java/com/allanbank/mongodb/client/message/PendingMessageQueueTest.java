@@ -35,6 +35,7 @@ import org.junit.Test;
 import com.allanbank.mongodb.LockType;
 import com.allanbank.mongodb.client.Message;
 import com.allanbank.mongodb.client.callback.ReplyCallback;
+import com.allanbank.mongodb.client.wait.WaitStrategyType;
 
 /**
  * PendingMessageQueueTest provides tests for the {@link PendingMessageQueue}.
@@ -113,6 +114,41 @@ public class PendingMessageQueueTest {
         }
     }
 
+    /**
+     * Test method for {@link PendingMessageQueue#drainTo(List)} .
+     */
+    @Test
+    public void testDrainToWithWaitStrategy() {
+        final PendingMessageQueue queue = new PendingMessageQueue(1024,
+                WaitStrategyType.BLOCKING.create());
+        // Fill the queue.
+        for (int i = 0; i < queue.capacity(); ++i) {
+            try {
+                queue.put(null, null);
+                assertFalse(queue.isEmpty());
+                assertEquals(i + 1, queue.size());
+            }
+            catch (final InterruptedException ie) {
+                fail(ie.getMessage());
+            }
+        }
+
+        assertFalse(queue.isEmpty());
+        final List<PendingMessage> drained = new ArrayList<PendingMessage>();
+        queue.drainTo(drained);
+        assertTrue(queue.isEmpty());
+
+        assertEquals(queue.capacity(), drained.size());
+        assertEquals(0, queue.size());
+
+        // Now poll for all of them,
+        for (int i = 0; i < (queue.capacity()); ++i) {
+            final PendingMessage pm = drained.get(i);
+            assertNotNull("" + i, pm);
+            assertEquals(i + 1, pm.getMessageId());
+        }
+    }
+
     /**
      * Test method for a single producer and slow consumer.
      *
@@ -205,6 +241,56 @@ public class PendingMessageQueueTest {
         cThread.join(TimeUnit.SECONDS.toMillis(30));
     }
 
+    /**
+     * Test method for multiple fast producers and a fast consumer with each of
+     * the wait strategies.
+     *
+     * @throws InterruptedException
+     *             On a failure waiting for the test.
+     */
+    @Test
+    public void testMultipleFastProducerFastConsumerWithWaitStrategy()
+            throws InterruptedException {
+
+        final int count = 2000;
+
+        for (final WaitStrategyType type : WaitStrategyType.values()) {
+            final PendingMessageQueue queue = new PendingMessageQueue(256,
+                    type.create());
+
+            final FastProducer[] producer = new FastProducer[8];
+            final FastConsumer consumer = new FastConsumer(queue);
+
+            final Thread[] pThread = new Thread[producer.length];
+            final Thread cThread = new Thread(consumer);
+
+            cThread.start();
+
+            for (int i = 0; i < producer.length; ++i) {
+                producer[i] = new FastProducer(queue, count);
+                pThread[i] = new Thread(producer[i]);
+                pThread[i].start();
+            }
+
+            assertTrue(cThread.isAlive());
+
+            for (int i = 0; i < producer.length; ++i) {
+                pThread[i].join(TimeUnit.SECONDS.toMillis(30));
+            }
+
+            for (int i = 0; i < producer.length; ++i) {
+                assertFalse(type.name(), pThread[i].isAlive());
+            }
+
+            waitForDone(count * producer.length, queue, consumer);
+
+            assertEquals(type.name(), count * producer.length,
+                    consumer.getCount());
+            cThread.interrupt();
+            cThread.join(TimeUnit.SECONDS.toMillis(30));
+        }
+    }
+
     /**
      * Test method for a single producer and slow consumer.
      *
@@ -357,6 +443,22 @@ public class PendingMessageQueueTest {
         assertFalse(queue.offer(new PendingMessage(9999, null)));
     }
 
+    /**
+     * Test method for {@link PendingMessageQueue#offer(PendingMessage)} .
+     */
+    @Test
+    public void testOfferPendingMessageWhenFullWithWaitStrategy() {
+        final PendingMessageQueue queue = new PendingMessageQueue(1024,
+                WaitStrategyType.BUSY_SPIN.create());
+        // Fill the queue.
+        for (int i = 0; i < (queue.capacity()); ++i) {
+            assertTrue(queue.offer(new PendingMessage(i, null)));
+        }
+
+        assertFalse(queue.offer(new PendingMessage(9999, null)));
+        assertFalse(queue.offer(null, null));
+    }
+
     /**
      * Test method for {@link PendingMessageQueue#offer(PendingMessage)} .
      */
@@ -605,6 +707,47 @@ public class PendingMessageQueueTest {
         assertFalse(queue.poll(pm));
     }
 
+    /**
+     * Test method for {@link PendingMessageQueue#poll} .
+     */
+    @Test
+    public void testPollWithWaitStrategy() {
+        final PendingMessageQueue queue = new PendingMessageQueue(1024,
+                WaitStrategyType.PARKING.create());
+
+        final PendingMessage pm = new PendingMessage();
+        assertTrue(queue.isEmpty());
+        assertFalse(queue.poll(pm));
+
+        for (int loop = 0; loop < 3; ++loop) {
+            // Fill the queue.
+            for (int i = 0; i < (queue.capacity()); ++i) {
+                try {
+                    queue.put(null, null);
+                    assertFalse(queue.isEmpty());
+                }
+                catch (final InterruptedException ie) {
+                    fail(ie.getMessage());
+                }
+            }
+
+            // Now poll for all of them, across the roll over.
+            for (int i = 0; i < (queue.capacity()); ++i) {
+
+                assertFalse(queue.isEmpty());
+
+                assertTrue(queue.poll(pm));
+
+                assertEquals((loop * queue.capacity()) + i + 1,
+                        pm.getMessageId());
+            }
+
+            // Another poll should return false.
+            assertTrue(queue.isEmpty());
+            assertFalse(queue.poll(pm));
+        }
+    }
+
     /**
      * Test method for {@link PendingMessageQueue#put(Message, ReplyCallback)} .
      */
@@ -779,6 +922,35 @@ public class PendingMessageQueueTest {
         }
     }
 
+    /**
+     * Test method for
+     * {@link PendingMessageQueue#put(Message, ReplyCallback, Message, ReplyCallback)}
+     * .
+     */
+    @Test
+    public void testPutIntMessageCallbackOfReplyIntMessageCallbackOfReplyWithWaitStrategy() {
+        final PendingMessageQueue queue = new PendingMessageQueue(1024,
+                WaitStrategyType.YIELDING.create());
+        for (int i = 0; i < (queue.capacity() * 3); i += 2) {
+            try {
+                queue.put(null, null, null, null);
+                assertEquals("" + i, 2, queue.size());
+
+                final PendingMessage pm = new PendingMessage();
+                queue.take(pm);
+                assertEquals(i + 1, pm.getMessageId());
+                assertEquals("" + i, 1, queue.size());
+
+                queue.take(pm);
+                assertEquals(i + 2, pm.getMessageId());
+                assertEquals("" + i, 0, queue.size());
+            }
+            catch (final InterruptedException ie) {
+                fail(ie.getMessage());
+            }
+        }
+    }
+
     /**
      * Test method for {@link PendingMessageQueue#put(Message, ReplyCallback)} .
      */
@@ -943,6 +1115,50 @@ public class PendingMessageQueueTest {
         }
     }
 
+    /**
+     * Test method for {@link PendingMessageQueue#put(PendingMessage)} .
+     *
+     * @throws InterruptedException
+     *             On a failure waiting for the test.
+     */
+    @Test
+    public void testPutPendingMessageWhenFullWithWaitStrategy()
+            throws InterruptedException {
+        for (final WaitStrategyType type : WaitStrategyType.values()) {
+            final PendingMessageQueue queue = new PendingMessageQueue(4,
+                    type.create());
+            // Fill the queue.
+            for (int i = 0; i < (queue.capacity()); ++i) {
+                assertTrue(queue.offer(new PendingMessage(i, null)));
+            }
+
+            try {
+                Thread.currentThread().interrupt();
+                queue.put(new PendingMessage(9999, null));
+                fail("Should have tried to wait and thrown an InterruptedException.");
+            }
+            catch (final InterruptedException ie) {
+                // Good.
+            }
+
+            // A blocked producer is released by the consumer.
+            final Thread producer = new Thread(new FastProducer(queue, 1));
+            producer.start();
+
+            final PendingMessage pm = new PendingMessage();
+            for (int i = 0; i < (queue.capacity()); ++i) {
+                queue.take(pm);
+                assertEquals(type.name(), i, pm.getMessageId());
+            }
+            queue.take(pm);
+            assertEquals(type.name(), 0, pm.getMessageId());
+
+            producer.join(TimeUnit.SECONDS.toMillis(30));
+            assertFalse(type.name(), producer.isAlive());
+            assertTrue(type.name(), queue.isEmpty());
+        }
+    }
+
     /**
      * Test method for {@link PendingMessageQueue#put(PendingMessage)} .
      */
@@ -1305,6 +1521,47 @@ public class PendingMessageQueueTest {
         }
     }
 
+    /**
+     * Test method for {@link PendingMessageQueue#take} .
+     */
+    @Test
+    public void testTakeExhuastedWithWaitStrategy() {
+        for (final WaitStrategyType type : WaitStrategyType.values()) {
+            final PendingMessageQueue queue = new PendingMessageQueue(16,
+                    type.create());
+            for (int i = 0; i < (queue.capacity()); ++i) {
+                try {
+                    queue.put(null, null);
+                }
+                catch (final InterruptedException ie) {
+                    fail(ie.getMessage());
+                }
+            }
+
+            final PendingMessage pm = new PendingMessage();
+            for (int i = 0; i < (queue.capacity()); ++i) {
+                try {
+                    queue.take(pm);
+
+                    assertEquals(i + 1, pm.getMessageId());
+                }
+                catch (final InterruptedException ie) {
+                    fail(ie.getMessage());
+                }
+            }
+
+            Thread.currentThread().interrupt();
+            try {
+                queue.take(pm);
+
+                fail("Should have tried to wait and thrown an InterruptedException.");
+            }
+            catch (final InterruptedException ie) {
+                // Good
+            }
+        }
+    }
+
     /**
      * Test method for {@link PendingMessageQueue#take} .
      */
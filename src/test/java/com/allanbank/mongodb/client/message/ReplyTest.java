@@ -31,6 +31,7 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 
@@ -38,6 +39,9 @@ import org.junit.Test;
 
 import com.allanbank.mongodb.bson.Document;
 import com.allanbank.mongodb.bson.builder.BuilderFactory;
+import com.allanbank.mongodb.bson.codec.Decoder;
+import com.allanbank.mongodb.bson.codec.Point;
+import com.allanbank.mongodb.bson.codec.PointCodec;
 import com.allanbank.mongodb.bson.io.BsonInputStream;
 import com.allanbank.mongodb.bson.io.BsonOutputStream;
 import com.allanbank.mongodb.client.Message;
@@ -220,6 +224,82 @@ public class ReplyTest {
         }
     }
 
+    /**
+     * Test method for {@link Reply#Reply(Header, BsonInputStream, Decoder)}.
+     *
+     * @throws IOException
+     *             On a failure reading the test message.
+     */
+    @Test
+    public void testReplyHeaderBsonInputStreamDecoder() throws IOException {
+        final Document doc1 = BuilderFactory.start().add("x", 1).add("y", 2)
+                .build();
+        final Document doc2 = BuilderFactory.start().add("x", 3).add("y", 4)
+                .build();
+
+        final Reply message = new Reply(1, 0, 0, Arrays.asList(doc1, doc2),
+                false, false, false, false);
+        final BsonInputStream bIn = toStream(message);
+
+        final Reply read = new Reply(new Header(bIn), bIn, new PointCodec());
+
+        assertThat(read.getResults().isEmpty(), is(true));
+        assertThat(read.getDecodedResults(),
+                is(Arrays.<Object> asList(new Point(1, 2), new Point(3, 4))));
+        assertThat(read.size(), is(message.size()));
+    }
+
+    /**
+     * Test method for {@link Reply#Reply(Header, BsonInputStream, Decoder)}
+     * when the decoder fails.
+     *
+     * @throws IOException
+     *             On a failure reading the test message.
+     */
+    @Test
+    public void testReplyHeaderBsonInputStreamDecoderFails() throws IOException {
+        final Document doc1 = BuilderFactory.start().add("x", 1).add("y", 2)
+                .build();
+        final Document doc2 = BuilderFactory.start().add("x", "bad").build();
+        final Document doc3 = BuilderFactory.start().add("x", 3).add("y", 4)
+                .build();
+
+        final Reply message = new Reply(1, 0, 0, Arrays.asList(doc1, doc2,
+                doc3), false, false, false, false);
+        final BsonInputStream bIn = toStream(message);
+
+        final Reply read = new Reply(new Header(bIn), bIn, new PointCodec());
+
+        // The failed document and those after it are read as documents.
+        assertThat(read.getDecodedResults(),
+                is(Arrays.<Object> asList(new Point(1, 2))));
+        assertThat(read.getResults(), is(Arrays.asList(doc2, doc3)));
+        assertThat(read.size(), is(message.size()));
+    }
+
+    /**
+     * Test method for {@link Reply#Reply(Header, BsonInputStream, Decoder)}
+     * when the query failed.
+     *
+     * @throws IOException
+     *             On a failure reading the test message.
+     */
+    @Test
+    public void testReplyHeaderBsonInputStreamDecoderQueryFailed()
+            throws IOException {
+        final Document doc = BuilderFactory.start().add("$err", "Oops.")
+                .build();
+
+        final Reply message = new Reply(1, 0, 0, Arrays.asList(doc), false,
+                false, true, false);
+        final BsonInputStream bIn = toStream(message);
+
+        final Reply read = new Reply(new Header(bIn), bIn, new PointCodec());
+
+        assertThat(read.getDecodedResults().isEmpty(), is(true));
+        assertEquals(message, read);
+    }
+
     /**
      * Test method for
      * {@link Reply#Reply(int, long, int, List, boolean, boolean, boolean, boolean)}
@@ -373,4 +453,20 @@ public class ReplyTest {
         message.validateSize(-1);
     }
 
+
+    /**
+     * Writes the message to a stream for reading.
+     *
+     * @param message
+     *            The message to write.
+     * @return The stream to read the message from.
+     * @throws IOException
+     *             On a failure writing the message.
+     */
+    private BsonInputStream toStream(final Message message) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        message.write(1234, new BsonOutputStream(out));
+
+        return new BsonInputStream(new ByteArrayInputStream(out.toByteArray()));
+    }
 }
@@ -83,6 +83,10 @@ public class AbstractMetricsTest {
                 both(greaterThan(0.9)).and(lessThan(1.1)));
         assertThat(metrics.getTotalLatencyNanos(),
                 is(TimeUnit.MILLISECONDS.toNanos(1) << 1));
+        assertThat(metrics.getLatencyP50Millis(), is(1.0D));
+        assertThat(metrics.getLatencyP99Millis(), is(1.0D));
+        assertThat(metrics.getLatencyP999Millis(), is(1.0D));
+        assertThat(metrics.getMaxLatencyMillis(), is(1.0D));
 
         metrics.close();
 
@@ -95,6 +99,8 @@ public class AbstractMetricsTest {
         assertThat(Double.isNaN(metrics.getRecentAverageLatencyMillis()),
                 is(true));
         assertThat(metrics.getTotalLatencyNanos(), is(0L));
+        assertThat(metrics.getLatencyP99Millis(), is(0.0D));
+        assertThat(metrics.getMaxLatencyMillis(), is(0.0D));
 
         verify(mockSentMessage, mockReply);
     }
@@ -126,7 +132,8 @@ public class AbstractMetricsTest {
                 metrics.toString(),
                 is("test[sentBytes=202, sentCount=2, receivedBytes=404, receivedCount=2, "
                         + "lastLatency=1 ms, totalLatency=2 ms, recentAverageLatency=1 ms, "
-                        + "averageLatency=1 ms]"));
+                        + "averageLatency=1 ms, latencyP50=1 ms, latencyP99=1 ms, "
+                        + "latencyP999=1 ms, maxLatency=1 ms]"));
 
         metrics.close();
 
@@ -166,7 +173,9 @@ public class AbstractMetricsTest {
                 writer.toString(),
                 is("foo[bar: sentBytes=202, sentCount=2, receivedBytes=404, "
                         + "receivedCount=2, lastLatency=1 ms, totalLatency=2 ms, "
-                        + "recentAverageLatency=1 ms, averageLatency=1 ms]"));
+                        + "recentAverageLatency=1 ms, averageLatency=1 ms, "
+                        + "latencyP50=1 ms, latencyP99=1 ms, latencyP999=1 ms, "
+                        + "maxLatency=1 ms]"));
 
         metrics.close();
 
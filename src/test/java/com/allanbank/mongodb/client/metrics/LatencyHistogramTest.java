@@ -0,0 +1,134 @@
+/*
+ * #%L
+ * LatencyHistogramTest.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.client.metrics;
+
+import static org.hamcrest.Matchers.both;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * LatencyHistogramTest provides tests for the {@link LatencyHistogram} class.
+ *
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+public class LatencyHistogramTest {
+
+    /**
+     * Test method for {@link LatencyHistogram#bucketIndex(long)} and
+     * {@link LatencyHistogram#highestEquivalentMicros(int)}.
+     */
+    @Test
+    public void testBuckets() {
+        int lastIndex = -1;
+        for (long micros = 0; micros < 100000; ++micros) {
+            final int index = LatencyHistogram.bucketIndex(micros);
+
+            // Buckets are contiguous.
+            assertThat(index, both(greaterThanOrEqualTo(lastIndex)).and(
+                    lessThanOrEqualTo(lastIndex + 1)));
+            lastIndex = index;
+
+            // Value is within the bucket and the bucket is narrow.
+            final long highest = LatencyHistogram
+                    .highestEquivalentMicros(index);
+            assertThat(highest, greaterThanOrEqualTo(micros));
+            assertThat((double) (highest - micros),
+                    lessThanOrEqualTo(Math.max(1, micros / 32.0D)));
+        }
+
+        assertThat(LatencyHistogram.bucketIndex(-1), is(0));
+        assertThat(LatencyHistogram.bucketIndex(Long.MAX_VALUE),
+                is(LatencyHistogram.bucketIndex((1L << 37) - 1)));
+    }
+
+    /**
+     * Test method for {@link LatencyHistogram#getPercentileNanos(double)}.
+     */
+    @Test
+    public void testGetPercentileNanos() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+
+        assertThat(histogram.getCount(), is(0L));
+        assertThat(histogram.getPercentileNanos(99), is(0L));
+
+        // 1..1000 ms.
+        for (int i = 1; i <= 1000; ++i) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+
+        assertThat(histogram.getCount(), is(1000L));
+        assertThat(histogram.getMaxNanos(),
+                is(TimeUnit.MILLISECONDS.toNanos(1000)));
+
+        assertWithin(TimeUnit.MILLISECONDS.toNanos(500),
+                histogram.getPercentileNanos(50));
+        assertWithin(TimeUnit.MILLISECONDS.toNanos(990),
+                histogram.getPercentileNanos(99));
+        assertWithin(TimeUnit.MILLISECONDS.toNanos(999),
+                histogram.getPercentileNanos(99.9));
+        assertThat(histogram.getPercentileNanos(100),
+                is(TimeUnit.MILLISECONDS.toNanos(1000)));
+        assertWithin(TimeUnit.MILLISECONDS.toNanos(1),
+                histogram.getPercentileNanos(0));
+    }
+
+    /**
+     * Test method for {@link LatencyHistogram#reset()}.
+     */
+    @Test
+    public void testReset() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+
+        histogram.record(12345);
+        histogram.record(TimeUnit.HOURS.toNanos(100));
+        assertThat(histogram.getCount(), is(2L));
+        assertThat(histogram.getMaxNanos(), is(TimeUnit.HOURS.toNanos(100)));
+        assertThat(histogram.getPercentileNanos(100),
+                is(TimeUnit.HOURS.toNanos(100)));
+
+        histogram.reset();
+
+        assertThat(histogram.getCount(), is(0L));
+        assertThat(histogram.getMaxNanos(), is(0L));
+        assertThat(histogram.getPercentileNanos(50), is(0L));
+    }
+
+    /**
+     * Asserts the actual value is within the histogram's precision of the
+     * expected value.
+     *
+     * @param expected
+     *            The expected value.
+     * @param actual
+     *            The actual value.
+     */
+    private void assertWithin(final long expected, final long actual) {
+        final long error = expected / 32;
+        assertThat(actual, both(greaterThanOrEqualTo(expected)).and(
+                lessThanOrEqualTo(expected + error)));
+    }
+}
@@ -146,6 +146,29 @@ public class BasicMongoClientMetricsTest {
         verify(mockSentMessage);
     }
 
+    /**
+     * Test method for
+     * {@link BasicMongoClientMetrics#sendBufferAcquired(boolean)}.
+     */
+    @Test
+    public void testSendBufferAcquired() {
+        final BasicMongoClientMetrics metrics = new BasicMongoClientMetrics();
+
+        assertThat(metrics.getSendBufferPoolHitCount(), is(0L));
+        assertThat(metrics.getSendBufferPoolMissCount(), is(0L));
+
+        final BasicConnectionMetrics connection = metrics
+                .newConnection("server1");
+        connection.sendBufferAcquired(false);
+        connection.sendBufferAcquired(true);
+        connection.sendBufferAcquired(true);
+
+        assertThat(metrics.getSendBufferPoolHitCount(), is(2L));
+        assertThat(metrics.getSendBufferPoolMissCount(), is(1L));
+
+        metrics.close();
+    }
+
     /**
      * Test method for
      * {@link BasicMongoClientMetrics#setMessageListener(MongoMessageListener)}.
@@ -71,6 +71,32 @@ public class MetricsMXBeanProxyTest {
         verify(mockMetrics);
     }
 
+    /**
+     * Test method for {@link MetricsMXBeanProxy#getLatencyP50Millis()},
+     * {@link MetricsMXBeanProxy#getLatencyP99Millis()},
+     * {@link MetricsMXBeanProxy#getLatencyP999Millis()} and
+     * {@link MetricsMXBeanProxy#getMaxLatencyMillis()}.
+     */
+    @Test
+    public void testGetLatencyPercentiles() {
+        final AbstractMetrics mockMetrics = createMock(AbstractMetrics.class);
+
+        expect(mockMetrics.getLatencyP50Millis()).andReturn(1.0);
+        expect(mockMetrics.getLatencyP99Millis()).andReturn(2.0);
+        expect(mockMetrics.getLatencyP999Millis()).andReturn(3.0);
+        expect(mockMetrics.getMaxLatencyMillis()).andReturn(4.0);
+
+        replay(mockMetrics);
+
+        final MetricsMXBeanProxy proxy = new MetricsMXBeanProxy(mockMetrics);
+        assertThat(proxy.getLatencyP50Millis(), is(1.0));
+        assertThat(proxy.getLatencyP99Millis(), is(2.0));
+        assertThat(proxy.getLatencyP999Millis(), is(3.0));
+        assertThat(proxy.getMaxLatencyMillis(), is(4.0));
+
+        verify(mockMetrics);
+    }
+
     /**
      * Test method for {@link MetricsMXBeanProxy#getMessageReceivedBytes()}.
      */
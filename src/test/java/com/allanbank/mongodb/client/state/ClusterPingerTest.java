@@ -727,6 +727,242 @@ public class ClusterPingerTest {
         assertEquals(Double.MAX_VALUE, state.getAverageLatency(), 0.0001);
     }
 
+    /**
+     * Test method for {@link ClusterPinger#run()}.
+     *
+     * @throws IOException
+     *             On a failure setting up the mocks.
+     */
+    @Test
+    public void testRunReconnectsClosedConnection() throws IOException {
+
+        final DocumentBuilder reply = BuilderFactory.start();
+        reply.add("ismaster", true);
+
+        final String address = "localhost:27017";
+
+        final Cluster cluster = new Cluster(new MongoClientConfiguration(),
+                ClusterType.STAND_ALONE);
+        final Server state = cluster.add(address);
+
+        final Connection mockConnection = createMock(Connection.class);
+        final Connection mockConnection2 = createMock(Connection.class);
+        final ProxiedConnectionFactory mockFactory = createMock(ProxiedConnectionFactory.class);
+
+        expect(
+                mockFactory.connect(eq(state),
+                        anyObject(MongoClientConfiguration.class))).andReturn(
+                mockConnection);
+        mockConnection.send(anyObject(IsMaster.class), cb(reply));
+        expectLastCall();
+
+        // Second Sweep finds the connection closed.
+        expect(mockConnection.isAvailable()).andReturn(false);
+        mockConnection.shutdown(true);
+        expectLastCall();
+        expect(
+                mockFactory.connect(eq(state),
+                        anyObject(MongoClientConfiguration.class))).andReturn(
+                mockConnection2);
+        mockConnection2.send(anyObject(IsMaster.class), cbAndClose(reply));
+        expectLastCall();
+        mockConnection2.shutdown(true);
+        expectLastCall();
+
+        replay(mockConnection, mockConnection2, mockFactory);
+
+        myPinger = new ClusterPinger(cluster, mockFactory,
+                new MongoClientConfiguration());
+        myPinger.setIntervalUnits(TimeUnit.MILLISECONDS);
+        myPinger.setPingSweepInterval(1);
+        myPinger.run();
+
+        verify(mockConnection, mockConnection2, mockFactory);
+
+        assertThat(state.getAverageLatency(),
+                both(greaterThan(0.0)).and(lessThan(100.0)));
+    }
+
+    /**
+     * Test method for {@link ClusterPinger#run()}.
+     *
+     * @throws IOException
+     *             On a failure setting up the mocks.
+     */
+    @Test
+    public void testRunReconnectsZombieConnection() throws IOException {
+
+        final DocumentBuilder reply = BuilderFactory.start();
+        reply.add("ismaster", true);
+
+        final String address = "localhost:27017";
+
+        final Cluster cluster = new Cluster(new MongoClientConfiguration(),
+                ClusterType.STAND_ALONE);
+        final Server state = cluster.add(address);
+
+        final Connection mockConnection = createMock(Connection.class);
+        final Connection mockConnection2 = createMock(Connection.class);
+        final ProxiedConnectionFactory mockFactory = createMock(ProxiedConnectionFactory.class);
+
+        final Capture<ReplyCallback> noReply = new Capture<ReplyCallback>();
+        expect(
+                mockFactory.connect(eq(state),
+                        anyObject(MongoClientConfiguration.class))).andReturn(
+                mockConnection);
+        mockConnection.send(anyObject(IsMaster.class), capture(noReply));
+        expectLastCall();
+
+        // Second Sweep finds the first ping waiting on a reply for longer
+        // than the read timeout.
+        expect(mockConnection.isAvailable()).andReturn(true);
+        expect(mockConnection.getPendingCount()).andReturn(1);
+        mockConnection.shutdown(true);
+        expectLastCall();
+        expect(
+                mockFactory.connect(eq(state),
+                        anyObject(MongoClientConfiguration.class))).andReturn(
+                mockConnection2);
+        mockConnection2.send(anyObject(IsMaster.class), cbAndClose(reply));
+        expectLastCall();
+        mockConnection2.shutdown(true);
+        expectLastCall();
+
+        replay(mockConnection, mockConnection2, mockFactory);
+
+        final MongoClientConfiguration config = new MongoClientConfiguration();
+        config.setReadTimeout(1);
+
+        myPinger = new ClusterPinger(cluster, mockFactory, config);
+        myPinger.setIntervalUnits(TimeUnit.MILLISECONDS);
+        myPinger.setPingSweepInterval(10);
+        myPinger.run();
+
+        verify(mockConnection, mockConnection2, mockFactory);
+
+        assertThat(state.getAverageLatency(),
+                both(greaterThan(0.0)).and(lessThan(100.0)));
+    }
+
+    /**
+     * Test method for {@link ClusterPinger#run()}.
+     *
+     * @throws IOException
+     *             On a failure setting up the mocks.
+     */
+    @Test
+    public void testRunSkipsPingWhileWaitingOnReply() throws IOException {
+
+        final DocumentBuilder reply = BuilderFactory.start();
+        reply.add("ismaster", true);
+
+        final String address = "localhost:27017";
+
+        final Cluster cluster = new Cluster(new MongoClientConfiguration(),
+                ClusterType.STAND_ALONE);
+        final Server state = cluster.add(address);
+
+        final Connection mockConnection = createMock(Connection.class);
+        final ProxiedConnectionFactory mockFactory = createMock(ProxiedConnectionFactory.class);
+
+        final Capture<ReplyCallback> slowReply = new Capture<ReplyCallback>();
+        expect(
+                mockFactory.connect(eq(state),
+                        anyObject(MongoClientConfiguration.class))).andReturn(
+                mockConnection);
+        mockConnection.send(anyObject(IsMaster.class), capture(slowReply));
+        expectLastCall();
+
+        // Second Sweep finds the first ping still waiting on a reply. No
+        // reconnect and no new ping.
+        expect(mockConnection.isAvailable()).andReturn(true);
+        expect(mockConnection.getPendingCount()).andReturn(1);
+
+        // Third Sweep finds the reply has arrived and pings again.
+        expect(mockConnection.isAvailable()).andReturn(true);
+        expect(mockConnection.getPendingCount()).andReturn(0);
+        mockConnection.send(anyObject(IsMaster.class), cbAndClose(reply));
+        expectLastCall();
+        mockConnection.shutdown(true);
+        expectLastCall();
+
+        replay(mockConnection, mockFactory);
+
+        myPinger = new ClusterPinger(cluster, mockFactory,
+                new MongoClientConfiguration());
+        myPinger.setIntervalUnits(TimeUnit.MILLISECONDS);
+        myPinger.setPingSweepInterval(1);
+        myPinger.run();
+
+        verify(mockConnection, mockFactory);
+
+        assertThat(state.getAverageLatency(),
+                both(greaterThan(0.0)).and(lessThan(100.0)));
+    }
+
+    /**
+     * Test method for {@link ClusterPinger#run()}.
+     *
+     * @throws IOException
+     *             On a failure setting up the mocks.
+     */
+    @Test
+    public void testRunStopsMonitoringRemovedServer() throws IOException {
+
+        final DocumentBuilder reply = BuilderFactory.start();
+        reply.add("ismaster", true);
+
+        final Cluster cluster = new Cluster(new MongoClientConfiguration(),
+                ClusterType.STAND_ALONE);
+        final Server state = cluster.add("localhost:27017");
+        final Server removed = cluster.add("localhost:27018");
+
+        final Connection mockConnection = createMock(Connection.class);
+        final Connection mockRemovedConnection = createMock(Connection.class);
+        final ProxiedConnectionFactory mockFactory = createMock(ProxiedConnectionFactory.class);
+
+        // First sweep pings both servers.
+        expect(
+                mockFactory.connect(eq(state),
+                        anyObject(MongoClientConfiguration.class))).andReturn(
+                mockConnection);
+        mockConnection.send(anyObject(IsMaster.class), cb(reply));
+        expectLastCall();
+        expect(
+                mockFactory.connect(eq(removed),
+                        anyObject(MongoClientConfiguration.class))).andReturn(
+                mockRemovedConnection);
+        mockRemovedConnection.send(anyObject(IsMaster.class),
+                anyObject(ReplyCallback.class));
+        expectLastCall().andAnswer(new IAnswer<Object>() {
+            @Override
+            public Object answer() {
+                cluster.remove(removed);
+                return null;
+            }
+        });
+
+        // Second sweep only pings the remaining server.
+        mockRemovedConnection.shutdown(true);
+        expectLastCall();
+        expect(mockConnection.isAvailable()).andReturn(true);
+        expect(mockConnection.getPendingCount()).andReturn(0);
+        mockConnection.send(anyObject(IsMaster.class), cbAndClose(reply));
+        expectLastCall();
+        mockConnection.shutdown(true);
+        expectLastCall();
+
+        replay(mockConnection, mockRemovedConnection, mockFactory);
+
+        myPinger = new ClusterPinger(cluster, mockFactory,
+                new MongoClientConfiguration());
+        myPinger.setIntervalUnits(TimeUnit.MILLISECONDS);
+        myPinger.setPingSweepInterval(1);
+        myPinger.run();
+
+        verify(mockConnection, mockRemovedConnection, mockFactory);
+    }
+
     /**
      * Test method for {@link ClusterPinger#run()}.
      *
@@ -763,14 +999,10 @@ public class ClusterPingerTest {
                 mockConnection);
         mockConnection.send(anyObject(IsMaster.class), cb(reply));
         expectLastCall();
-        mockConnection.shutdown(true);
-        expectLastCall();
 
-        // Second Sweep.
-        expect(
-                mockFactory.connect(eq(state),
-                        anyObject(MongoClientConfiguration.class))).andReturn(
-                mockConnection);
+        // Second Sweep reuses the connection.
+        expect(mockConnection.isAvailable()).andReturn(true);
+        expect(mockConnection.getPendingCount()).andReturn(0);
         mockConnection.send(anyObject(IsMaster.class), cbAndClose(reply));
         expectLastCall();
         mockConnection.shutdown(true);
@@ -825,14 +1057,10 @@ public class ClusterPingerTest {
                 mockConnection);
         mockConnection.send(anyObject(IsMaster.class), cb(reply));
         expectLastCall();
-        mockConnection.shutdown(true);
-        expectLastCall();
 
-        // Second Sweep.
-        expect(
-                mockFactory.connect(eq(state),
-                        anyObject(MongoClientConfiguration.class))).andReturn(
-                mockConnection);
+        // Second Sweep reuses the connection.
+        expect(mockConnection.isAvailable()).andReturn(true);
+        expect(mockConnection.getPendingCount()).andReturn(0);
         mockConnection.send(anyObject(IsMaster.class), cbAndClose(reply));
         expectLastCall();
         mockConnection.shutdown(true);
@@ -887,14 +1115,10 @@ public class ClusterPingerTest {
                 mockConnection);
         mockConnection.send(anyObject(IsMaster.class), cbWithConn(reply));
         expectLastCall();
-        mockConnection.shutdown(true);
-        expectLastCall();
 
-        // Second Sweep.
-        expect(
-                mockFactory.connect(eq(state),
-                        anyObject(MongoClientConfiguration.class))).andReturn(
-                mockConnection);
+        // Second Sweep reuses the connection.
+        expect(mockConnection.isAvailable()).andReturn(true);
+        expect(mockConnection.getPendingCount()).andReturn(0);
         mockConnection.send(anyObject(IsMaster.class), cbAndClose(reply));
         expectLastCall();
         mockConnection.shutdown(true);
@@ -1027,7 +1251,9 @@ public class ClusterPingerTest {
                         anyObject(MongoClientConfiguration.class))).andReturn(
                 mockConnection);
         mockConnection.send(anyObject(IsMaster.class), capture(catureReply));
-        expectLastCall();
+        expectLastCall().atLeastOnce();
+        expect(mockConnection.isAvailable()).andReturn(true).anyTimes();
+        expect(mockConnection.getPendingCount()).andReturn(0).anyTimes();
         mockConnection.shutdown(true);
         expectLastCall();
 
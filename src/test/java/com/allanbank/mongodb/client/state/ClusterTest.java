@@ -24,7 +24,10 @@ import static com.allanbank.mongodb.bson.builder.BuilderFactory.start;
 import static org.easymock.EasyMock.expectLastCall;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
@@ -50,6 +53,7 @@ import org.junit.Test;
 
 import com.allanbank.mongodb.MongoClientConfiguration;
 import com.allanbank.mongodb.ReadPreference;
+import com.allanbank.mongodb.ServerSelection;
 import com.allanbank.mongodb.bson.Document;
 import com.allanbank.mongodb.bson.builder.ArrayBuilder;
 import com.allanbank.mongodb.bson.builder.BuilderFactory;
@@ -178,6 +182,22 @@ public class ClusterTest {
         assertEquals(1.0, cdf[4], 0.000001); // CDF should always end at 1.0
     }
 
+    /**
+     * Test method for {@link Cluster#createSelector(boolean)}.
+     */
+    @Test
+    public void testCreateSelector() {
+        final MongoClientConfiguration config = new MongoClientConfiguration();
+        myState = new Cluster(config, ClusterType.STAND_ALONE);
+
+        assertThat(myState.createSelector(true),
+                instanceOf(LatencyServerSelector.class));
+
+        config.setServerSelection(ServerSelection.POWER_OF_TWO_CHOICES);
+        assertThat(myState.createSelector(false),
+                instanceOf(PowerOfTwoServerSelector.class));
+    }
+
     /**
      * Test method for {@link Cluster#findCandidateServers}.
      */
@@ -828,4 +848,46 @@ public class ClusterTest {
             }
         }
     }
+
+    /**
+     * Test method for {@link Cluster#sort(List)} when using the
+     * {@link ServerSelection#POWER_OF_TWO_CHOICES}.
+     */
+    @Test
+    public void testSortListServerPowerOfTwoChoices() {
+        final MongoClientConfiguration config = new MongoClientConfiguration();
+        config.setServerSelection(ServerSelection.POWER_OF_TWO_CHOICES);
+
+        final int count = 100;
+        final List<Server> servers = new ArrayList<Server>(count);
+        for (int i = 0; i < count; i++) {
+
+            final Server server = new Server(new InetSocketAddress(
+                    "localhost:", i + 1024));
+            server.requestSent();
+            server.requestCompleted((i + 1) * 1000000L);
+
+            servers.add(server);
+        }
+
+        myState = new Cluster(config, ClusterType.STAND_ALONE);
+        for (int i = 0; i < 100; ++i) {
+            Collections.shuffle(servers);
+
+            myState.sort(servers);
+
+            // Verify that the list is sorted by load EXCEPT the first server.
+            double last = Double.NEGATIVE_INFINITY;
+            for (final Server server : servers.subList(1, count)) {
+                final double load = PowerOfTwoServerSelector.load(server);
+                assertTrue("Loads out of order: " + last + " !< " + load,
+                        last < load);
+                last = load;
+            }
+
+            // The first server is never the most loaded.
+            assertThat(servers.get(0), not(sameInstance(servers
+                    .get(count - 1))));
+        }
+    }
 }
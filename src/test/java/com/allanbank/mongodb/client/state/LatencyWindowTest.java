@@ -0,0 +1,96 @@
+/*
+ * #%L
+ * LatencyWindowTest.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.allanbank.mongodb.client.state;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+/**
+ * LatencyWindowTest provides tests for the {@link LatencyWindow} class.
+ *
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+public class LatencyWindowTest {
+
+    /**
+     * Test method for {@link LatencyWindow#getPercentileLatency()}.
+     */
+    @Test
+    public void testGetPercentileLatency() {
+        final LatencyWindow window = new LatencyWindow(10, 90.0D);
+
+        assertEquals(Double.MAX_VALUE, window.getPercentileLatency(), 0.001);
+
+        for (int i = 10; 0 < i; --i) {
+            window.record(i * 1000000L);
+        }
+        assertThat(window.getCount(), is(10));
+        assertEquals(9.0, window.getPercentileLatency(), 0.001);
+
+        // A single sample is every percentile.
+        final LatencyWindow single = new LatencyWindow(10, 50.0D);
+        single.record(2500000L);
+        assertEquals(2.5, single.getPercentileLatency(), 0.001);
+    }
+
+    /**
+     * Test method for {@link LatencyWindow#record(long)}.
+     */
+    @Test
+    public void testRecordRefreshesPercentilePeriodically() {
+        final LatencyWindow window = new LatencyWindow(16, 100.0D);
+
+        // Recomputed for each latency while the window fills.
+        for (int i = 0; i < 16; ++i) {
+            window.record(1000000L);
+            assertEquals(1.0, window.getPercentileLatency(), 0.001);
+        }
+
+        // Once full, only after 1/8th of the window is replaced.
+        window.record(5000000L);
+        assertEquals(5.0, window.getPercentileLatency(), 0.001);
+        window.record(9000000L);
+        assertEquals(5.0, window.getPercentileLatency(), 0.001);
+        window.record(1000000L);
+        assertEquals(9.0, window.getPercentileLatency(), 0.001);
+    }
+
+    /**
+     * Test method for {@link LatencyWindow#record(long)}.
+     */
+    @Test
+    public void testRecordRollsOverOldest() {
+        final LatencyWindow window = new LatencyWindow(4, 100.0D);
+
+        window.record(100000000L);
+        window.record(1000000L);
+        window.record(1000000L);
+        window.record(1000000L);
+        assertEquals(100.0, window.getPercentileLatency(), 0.001);
+
+        // Pushes the slow latency out of the window.
+        window.record(2000000L);
+        assertThat(window.getCount(), is(4));
+        assertEquals(2.0, window.getPercentileLatency(), 0.001);
+    }
+}
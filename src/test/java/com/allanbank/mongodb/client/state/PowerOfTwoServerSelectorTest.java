@@ -0,0 +1,145 @@
+/*
+ * #%L
+ * PowerOfTwoServerSelectorTest.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.allanbank.mongodb.client.state;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThat;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.allanbank.mongodb.MongoClientConfiguration;
+import com.allanbank.mongodb.bson.Document;
+import com.allanbank.mongodb.bson.builder.BuilderFactory;
+import com.allanbank.mongodb.client.ClusterType;
+
+/**
+ * PowerOfTwoServerSelectorTest provides tests for the
+ * {@link PowerOfTwoServerSelector} class.
+ *
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+public class PowerOfTwoServerSelectorTest {
+
+    /** Update document to mark servers as the primary. */
+    private static final Document PRIMARY = BuilderFactory.start()
+            .add("ismaster", true).build();
+
+    /** Update document to mark servers as the secondary. */
+    private static final Document SECONDARY = BuilderFactory.start()
+            .add("ismaster", false).add("secondary", true).build();
+
+    /**
+     * Test method for {@link PowerOfTwoServerSelector#pickServers()}.
+     */
+    @Test
+    public void testPickServersAll() {
+        final Cluster cluster = new Cluster(new MongoClientConfiguration(),
+                ClusterType.STAND_ALONE);
+
+        final Server fast = cluster.add("localhost:27017");
+        final Server medium = cluster.add("localhost:27018");
+        final Server slow = cluster.add("localhost:27019");
+
+        fast.requestSent();
+
+        fast.requestCompleted(1000000);
+        medium.requestSent();
+        medium.requestCompleted(5000000);
+        slow.requestSent();
+        slow.requestCompleted(50000000);
+
+        fast.update(PRIMARY);
+        medium.update(SECONDARY);
+        slow.update(SECONDARY);
+
+        final PowerOfTwoServerSelector selector = new PowerOfTwoServerSelector(
+                cluster, false);
+        for (int i = 0; i < 100; ++i) {
+            final List<Server> servers = selector.pickServers();
+
+            // The most loaded server can never win the comparison.
+            assertThat(servers.get(0), not(sameInstance(slow)));
+            assertSame(slow, servers.get(2));
+        }
+    }
+
+    /**
+     * Test method for {@link PowerOfTwoServerSelector#pickServers()}.
+     */
+    @Test
+    public void testPickServersNone() {
+        final Cluster cluster = new Cluster(new MongoClientConfiguration(),
+                ClusterType.STAND_ALONE);
+
+        cluster.add("localhost:27017").update(SECONDARY);
+        cluster.add("localhost:27018").update(SECONDARY);
+
+        final PowerOfTwoServerSelector selector = new PowerOfTwoServerSelector(
+                cluster, true);
+        assertSame(Collections.emptyList(), selector.pickServers());
+    }
+
+    /**
+     * Test method for {@link PowerOfTwoServerSelector#pickServers()}.
+     */
+    @Test
+    public void testPickServersPrefersLessBusyServer() {
+        final Cluster cluster = new Cluster(new MongoClientConfiguration(),
+                ClusterType.STAND_ALONE);
+
+        final Server busy = cluster.add("localhost:27017");
+        final Server idle = cluster.add("localhost:27018");
+        final Server secondary = cluster.add("localhost:27019");
+
+        busy.requestSent();
+
+        busy.requestCompleted(1000000);
+        idle.requestSent();
+        idle.requestCompleted(2000000);
+        secondary.requestSent();
+        secondary.requestCompleted(100000);
+
+        busy.update(PRIMARY);
+        idle.update(PRIMARY);
+        secondary.update(SECONDARY);
+
+        final PowerOfTwoServerSelector selector = new PowerOfTwoServerSelector(
+                cluster, true);
+        assertThat(selector.pickServers(), contains(busy, idle));
+
+        // Lower latency but 4 requests waiting: 1ms * 5 > 2ms * 1.
+        for (int i = 0; i < 4; ++i) {
+            busy.requestSent();
+        }
+        assertThat(selector.pickServers(), contains(idle, busy));
+
+        // Requests complete.
+        for (int i = 0; i < 4; ++i) {
+            busy.requestCompleted(1000000);
+        }
+        assertThat(selector.pickServers(), contains(busy, idle));
+    }
+}
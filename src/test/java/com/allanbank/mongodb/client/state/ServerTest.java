@@ -59,6 +59,53 @@ public class ServerTest {
         assertEquals(15, server.getAverageLatency(), 1.0);
     }
 
+    /**
+     * Test method for {@link Server#getPendingRequestCount()}.
+     */
+    @Test
+    public void testGetPendingRequestCount() {
+
+        final Server server = new Server(new InetSocketAddress("foo", 27017));
+
+        assertThat(server.getPendingRequestCount(), is(0));
+        server.requestSent();
+        server.requestSent();
+        server.requestSent();
+        assertThat(server.getPendingRequestCount(), is(3));
+        server.requestCompleted(1000000);
+        assertThat(server.getPendingRequestCount(), is(2));
+        server.requestAbandoned();
+        assertThat(server.getPendingRequestCount(), is(1));
+    }
+
+    /**
+     * Test method for {@link Server#getRecentLatency()}.
+     */
+    @Test
+    public void testGetRecentLatency() {
+
+        final Server server = new Server(new InetSocketAddress("foo", 27017));
+
+        assertEquals(Double.MAX_VALUE, server.getRecentLatency(), 0.001);
+
+        // The status requests are recorded as requests, not averages.
+        server.updateAverageLatency(10000000000L);
+        assertEquals(Double.MAX_VALUE, server.getRecentLatency(), 0.001);
+
+        // One very slow reply.
+        server.requestSent();
+        server.requestCompleted(10000000000L);
+        assertEquals(10000.0, server.getRecentLatency(), 0.1);
+
+        // ... is forgotten once the window has rolled past it.
+        for (int i = 0; i < LatencyWindow.DEFAULT_SIZE; ++i) {
+            server.requestSent();
+            server.requestCompleted(15000000);
+        }
+        assertEquals(15.0, server.getRecentLatency(), 0.1);
+        assertThat(server.getAverageLatency() > 15.0, is(true));
+    }
+
     /**
      * Test method for {@link Server#isWritable()}.
      */
@@ -0,0 +1,116 @@
+/*
+ * #%L
+ * SendBufferPoolTest.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.client.transport;
+
+import static org.easymock.EasyMock.createMock;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+/**
+ * SendBufferPoolTest provides tests for the {@link SendBufferPool} class.
+ *
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+public class SendBufferPoolTest {
+
+    /**
+     * Test method for {@link SendBufferPool#acquire()}.
+     */
+    @Test
+    public void testAcquireReusesReleasedBuffers() {
+        final TestTransportResponseListener listener = new TestTransportResponseListener();
+        final SendBufferPool<TransportOutputBuffer> pool = new TestPool(2,
+                listener);
+
+        final TransportOutputBuffer first = pool.acquire();
+        final TransportOutputBuffer second = pool.acquire();
+        assertThat(first, not(sameInstance(second)));
+        assertThat(listener.getCreatedSendBuffers(), is(2));
+        assertThat(listener.getPooledSendBuffers(), is(0));
+
+        pool.release(first);
+        assertThat(pool.getIdleCount(), is(1));
+
+        assertThat(pool.acquire(), sameInstance(first));
+        assertThat(pool.getIdleCount(), is(0));
+        assertThat(listener.getPooledSendBuffers(), is(1));
+        assertThat(listener.getCreatedSendBuffers(), is(2));
+    }
+
+    /**
+     * Test method for {@link SendBufferPool#release}.
+     */
+    @Test
+    public void testReleaseBoundedByMaxIdle() {
+        final TestTransportResponseListener listener = new TestTransportResponseListener();
+        final SendBufferPool<TransportOutputBuffer> pool = new TestPool(1,
+                listener);
+
+        final TransportOutputBuffer first = pool.acquire();
+        final TransportOutputBuffer second = pool.acquire();
+
+        pool.release(first);
+        pool.release(second);
+        assertThat(pool.getIdleCount(), is(1));
+
+        assertThat(pool.acquire(), sameInstance(first));
+        assertThat(pool.acquire(), not(sameInstance(second)));
+        assertThat(listener.getPooledSendBuffers(), is(1));
+        assertThat(listener.getCreatedSendBuffers(), is(3));
+    }
+
+    /**
+     * TestPool provides a pool of mock buffers.
+     *
+     * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+     */
+    private static final class TestPool
+            extends SendBufferPool<TransportOutputBuffer> {
+
+        /**
+         * Creates a new TestPool.
+         *
+         * @param maxIdle
+         *            The maximum number of idle buffers to keep.
+         * @param listener
+         *            The listener to notify of each acquisition.
+         */
+        public TestPool(final int maxIdle,
+                final TransportResponseListener listener) {
+            super(maxIdle, listener);
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to return a new mock buffer.
+         * </p>
+         */
+        @Override
+        protected TransportOutputBuffer create() {
+            return createMock(TransportOutputBuffer.class);
+        }
+    }
+}
@@ -3,8 +3,10 @@ package com.allanbank.mongodb.client.transport;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.allanbank.mongodb.MongoDbException;
+import com.allanbank.mongodb.bson.codec.Decoder;
 
 /**
  * A test {@link TransportResponseListener}.
@@ -17,6 +19,12 @@ public final class TestTransportResponseListener
     /** The set of received responses. */
     private final List<MongoDbException> myCloses;
 
+    /** The number of send buffers created since a pool was empty. */
+    private final AtomicInteger myCreatedSendBuffers;
+
+    /** The number of send buffers acquired from a pool. */
+    private final AtomicInteger myPooledSendBuffers;
+
     /** The set of received responses. */
     private final List<TransportInputBuffer> myResponses;
 
@@ -26,6 +34,8 @@ public final class TestTransportResponseListener
     public TestTransportResponseListener() {
         myResponses = new CopyOnWriteArrayList<TransportInputBuffer>();
         myCloses = new CopyOnWriteArrayList<MongoDbException>();
+        myPooledSendBuffers = new AtomicInteger(0);
+        myCreatedSendBuffers = new AtomicInteger(0);
     }
 
     /**
@@ -51,6 +61,36 @@ public final class TestTransportResponseListener
         return myCloses;
     }
 
+    /**
+     * Returns the number of send buffers created since a pool was empty.
+     *
+     * @return The number of send buffers created since a pool was empty.
+     */
+    public int getCreatedSendBuffers() {
+        return myCreatedSendBuffers.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to return <code>null</code>. The replies are read as
+     * documents.
+     * </p>
+     */
+    @Override
+    public Decoder<?> getReplyDecoder(final int responseToId) {
+        return null;
+    }
+
+    /**
+     * Returns the number of send buffers acquired from a pool.
+     *
+     * @return The number of send buffers acquired from a pool.
+     */
+    public int getPooledSendBuffers() {
+        return myPooledSendBuffers.get();
+    }
+
     /**
      * Returns the responses received.
      *
@@ -60,6 +100,22 @@ public final class TestTransportResponseListener
         return myResponses;
     }
 
+    /**
+     * Counts the send buffer acquisitions.
+     *
+     * @param pooled
+     *            True if the buffer came from the pool.
+     */
+    @Override
+    public void sendBufferAcquired(final boolean pooled) {
+        if (pooled) {
+            myPooledSendBuffers.incrementAndGet();
+        }
+        else {
+            myCreatedSendBuffers.incrementAndGet();
+        }
+    }
+
     /**
      * Collects the responses.
      *
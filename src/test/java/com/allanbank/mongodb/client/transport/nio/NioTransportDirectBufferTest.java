@@ -0,0 +1,49 @@
+/*
+ * #%L
+ * NioTransportDirectBufferTest.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.client.transport.nio;
+
+import org.junit.Before;
+
+/**
+ * NioTransportDirectBufferTest runs the {@link NioTransport} tests using small,
+ * direct receive buffers. The small buffers force messages to span buffers.
+ *
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+public class NioTransportDirectBufferTest
+        extends NioTransportTest {
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to use small, direct receive buffers.
+     * </p>
+     */
+    @Override
+    @Before
+    public void setUp() {
+        super.setUp();
+
+        myConfig.setReceiveBufferSize(20);
+        myConfig.setReceiveBufferPoolSize(1);
+        myConfig.setUsingDirectReceiveBuffers(true);
+    }
+}
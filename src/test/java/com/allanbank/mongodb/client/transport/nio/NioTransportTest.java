@@ -0,0 +1,138 @@
+/*
+ * #%L
+ * NioTransportTest.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.client.transport.nio;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.allanbank.mongodb.Durability;
+import com.allanbank.mongodb.bson.builder.BuilderFactory;
+import com.allanbank.mongodb.bson.io.BsonOutputStream;
+import com.allanbank.mongodb.client.Message;
+import com.allanbank.mongodb.client.message.GetLastError;
+import com.allanbank.mongodb.client.message.Insert;
+import com.allanbank.mongodb.client.transport.AbstractTransportTestCases;
+import com.allanbank.mongodb.client.transport.TransportFactory;
+import com.allanbank.mongodb.client.transport.TransportOutputBuffer;
+import com.allanbank.mongodb.error.ConnectionLostException;
+
+/**
+ * NioTransportTest provides tests for the {@link NioTransport} class.
+ *
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+public class NioTransportTest
+        extends AbstractTransportTestCases {
+
+    /**
+     * Test that the transport closes the connection when the server sends an
+     * invalid message length.
+     *
+     * @throws IOException
+     *             On a test failure.
+     */
+    @Test
+    public void testInvalidMessageLength() throws IOException {
+        // Big-endian length -- way too large.
+        ourMockServer.setReplies(Arrays.asList(new byte[] { 0x00, 0x00, 0x00,
+                0x7F }));
+
+        connect();
+        assertThat(ourMockServer.waitForClient(10, TimeUnit.SECONDS), is(true));
+
+        final TransportOutputBuffer outBuffer = myTestTransport
+                .createSendBuffer(0);
+        outBuffer.write(1, new GetLastError("db", Durability.ACK), null);
+        myTestTransport.send(outBuffer);
+        myTestTransport.flush();
+
+        myListener.waitForClose(10, TimeUnit.SECONDS);
+        assertThat(myListener.getCloses(), hasSize(1));
+        assertThat(myListener.getCloses().get(0),
+                instanceOf(ConnectionLostException.class));
+        assertThat(myListener.getResponses(), hasSize(0));
+    }
+
+    /**
+     * Test that a batch of large messages, each spanning multiple buffers, is
+     * written to the channel intact and that the send buffers are returned to
+     * the pool once written.
+     *
+     * @throws IOException
+     *             On a test failure.
+     */
+    @Test
+    public void testSendLargeBatch() throws IOException {
+        final int count = 80;
+
+        final Message message = new Insert("db", "collection",
+                Arrays.asList(BuilderFactory.start()
+                        .add("b", new byte[20000]).build()), false);
+
+        connect();
+        assertThat(ourMockServer.waitForClient(10, TimeUnit.SECONDS), is(true));
+
+        for (int i = 0; i < count; ++i) {
+            final TransportOutputBuffer outBuffer = myTestTransport
+                    .createSendBuffer(0);
+            outBuffer.write(i, message, null);
+            myTestTransport.send(outBuffer);
+        }
+        myTestTransport.flush();
+        assertThat(ourMockServer.waitForRequest(count, 30, TimeUnit.SECONDS),
+                is(true));
+
+        for (int i = 0; i < count; ++i) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            message.write(i, new BsonOutputStream(out));
+
+            assertArrayEquals(out.toByteArray(), ourMockServer.getRequests()
+                    .get(i));
+        }
+
+        // Make sure the final write has completed and released its buffer.
+        myTestTransport.flush();
+        myTestTransport.send(myTestTransport.createSendBuffer(0));
+        assertThat(myListener.getPooledSendBuffers(), greaterThan(0));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Overridden to return a {@link NioTransportFactory}.
+     * </p>
+     */
+    @Override
+    protected TransportFactory createFactory() {
+        return new NioTransportFactory(1);
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * #%L
+ * WaitStrategyTypeTest.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.client.wait;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * WaitStrategyTypeTest provides tests for the {@link WaitStrategyType} enum
+ * and the {@link WaitStrategy} implementations it creates.
+ *
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+public class WaitStrategyTypeTest {
+
+    /**
+     * Test method for {@link WaitStrategyType#create()}.
+     */
+    @Test
+    public void testCreate() {
+        assertThat(WaitStrategyType.BLOCKING.create(),
+                instanceOf(BlockingWaitStrategy.class));
+        assertThat(WaitStrategyType.BUSY_SPIN.create(),
+                instanceOf(BusySpinWaitStrategy.class));
+        assertThat(WaitStrategyType.PARKING.create(),
+                instanceOf(ParkingWaitStrategy.class));
+        assertThat(WaitStrategyType.YIELDING.create(),
+                instanceOf(YieldingWaitStrategy.class));
+    }
+
+    /**
+     * Test method for {@link WaitStrategy#waitFor(WaitCondition)}.
+     *
+     * @throws InterruptedException
+     *             On a test failure.
+     */
+    @Test
+    public void testWaitFor() throws InterruptedException {
+        for (final WaitStrategyType type : WaitStrategyType.values()) {
+            final WaitStrategy strategy = type.create();
+            final AtomicInteger checks = new AtomicInteger(0);
+
+            // Satisfied after a few checks without a signal for the
+            // non-blocking strategies.
+            if (type != WaitStrategyType.BLOCKING) {
+                strategy.waitFor(new WaitCondition() {
+                    @Override
+                    public boolean isSatisfied() {
+                        return checks.incrementAndGet() > 500;
+                    }
+                });
+                assertThat(type.name(), checks.get(), is(501));
+            }
+
+            // Already satisfied.
+            checks.set(0);
+            strategy.waitFor(new WaitCondition() {
+                @Override
+                public boolean isSatisfied() {
+                    checks.incrementAndGet();
+                    return true;
+                }
+            });
+            assertThat(type.name(), checks.get(), is(1));
+        }
+    }
+
+    /**
+     * Test method for {@link WaitStrategy#waitFor(WaitCondition)}.
+     */
+    @Test
+    public void testWaitForInterrupted() {
+        for (final WaitStrategyType type : WaitStrategyType.values()) {
+            final WaitStrategy strategy = type.create();
+
+            Thread.currentThread().interrupt();
+            try {
+                strategy.waitFor(new WaitCondition() {
+                    @Override
+                    public boolean isSatisfied() {
+                        return false;
+                    }
+                });
+                fail("Should have thrown an InterruptedException.");
+            }
+            catch (final InterruptedException good) {
+                // Good.
+            }
+            assertFalse(type.name(), Thread.interrupted());
+        }
+    }
+
+    /**
+     * Test method for {@link WaitStrategy#signalAll()}.
+     *
+     * @throws InterruptedException
+     *             On a test failure.
+     */
+    @Test
+    public void testSignalAllWakesWaiter() throws InterruptedException {
+        for (final WaitStrategyType type : WaitStrategyType.values()) {
+            final WaitStrategy strategy = type.create();
+            final AtomicBoolean ready = new AtomicBoolean(false);
+            final AtomicBoolean done = new AtomicBoolean(false);
+
+            final Thread waiter = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        strategy.waitFor(new WaitCondition() {
+                            @Override
+                            public boolean isSatisfied() {
+                                return ready.get();
+                            }
+                        });
+                        done.set(true);
+                    }
+                    catch (final InterruptedException ie) {
+                        // Fall out.
+                    }
+                }
+            };
+            waiter.start();
+
+            Thread.sleep(20);
+            assertFalse(type.name(), done.get());
+
+            ready.set(true);
+            strategy.signalAll();
+
+            waiter.join(TimeUnit.SECONDS.toMillis(10));
+            assertFalse(type.name(), waiter.isAlive());
+            assertThat(type.name(), done.get(), is(true));
+        }
+    }
+}
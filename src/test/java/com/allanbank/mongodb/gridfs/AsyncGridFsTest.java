@@ -0,0 +1,664 @@
+/*
+ * #%L
+ * AsyncGridFsTest.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.gridfs;
+
+import static com.allanbank.mongodb.AnswerCallback.callback;
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.junit.Test;
+
+import com.allanbank.mongodb.Callback;
+import com.allanbank.mongodb.ListenableFuture;
+import com.allanbank.mongodb.MongoCollection;
+import com.allanbank.mongodb.MongoCursorControl;
+import com.allanbank.mongodb.MongoDatabase;
+import com.allanbank.mongodb.MongoDbException;
+import com.allanbank.mongodb.MongoIterator;
+import com.allanbank.mongodb.StreamCallback;
+import com.allanbank.mongodb.bson.Document;
+import com.allanbank.mongodb.bson.DocumentAssignable;
+import com.allanbank.mongodb.bson.builder.BuilderFactory;
+import com.allanbank.mongodb.bson.builder.DocumentBuilder;
+import com.allanbank.mongodb.bson.element.ObjectId;
+import com.allanbank.mongodb.builder.Find;
+import com.allanbank.mongodb.util.IOUtils;
+
+/**
+ * AsyncGridFsTest provides tests for the {@link AsyncGridFs} class.
+ *
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+public class AsyncGridFsTest {
+
+    /**
+     * Test method for {@link AsyncGridFs#read(String, java.io.OutputStream)}.
+     *
+     * @throws Exception
+     *             On an error.
+     */
+    @Test
+    public void testRead() throws Exception {
+        final byte[][] data = new byte[][] { { 1, 2, 3, 4 }, { 5, 6, 7, 8 },
+                { 9 } };
+
+        final DocumentBuilder fileResult = BuilderFactory.start();
+        fileResult.addString("_id", "id").add(GridFs.LENGTH_FIELD, 9)
+                .add(GridFs.CHUNK_SIZE_FIELD, 4)
+                .add(GridFs.MD5_FIELD, md5(1, 2, 3, 4, 5, 6, 7, 8, 9));
+
+        final MongoDatabase mockDb = createMock(MongoDatabase.class);
+        final MongoCollection mockFiles = createMock(MongoCollection.class);
+        final MongoCollection mockChunks = createMock(MongoCollection.class);
+
+        expect(mockDb.getCollection("fs" + GridFs.FILES_SUFFIX)).andReturn(
+                mockFiles);
+        expect(mockDb.getCollection("fs" + GridFs.CHUNKS_SUFFIX)).andReturn(
+                mockChunks);
+
+        mockFiles.findOneAsync(callback(fileResult.build()),
+                anyObject(DocumentAssignable.class));
+        expectLastCall();
+
+        expect(
+                mockChunks.stream(anyObject(StreamCallback.class),
+                        anyObject(Find.class))).andAnswer(stream(data, 0));
+
+        replay(mockDb, mockFiles, mockChunks);
+
+        final AsyncGridFs fs = new AsyncGridFs(mockDb);
+        final ByteArrayOutputStream sink = new ByteArrayOutputStream(9);
+
+        final ListenableFuture<Long> future = fs.read("foo", sink);
+
+        assertThat(future.get(), is(Long.valueOf(9)));
+        assertArrayEquals(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9 },
+                sink.toByteArray());
+
+        verify(mockDb, mockFiles, mockChunks);
+    }
+
+    /**
+     * Test method for {@link AsyncGridFs#read(String, java.io.OutputStream)}
+     * with an executor for the stream I/O.
+     *
+     * @throws Exception
+     *             On an error.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testReadWithExecutor() throws Exception {
+        final DocumentBuilder fileResult = BuilderFactory.start();
+        fileResult.addString("_id", "id").add(GridFs.LENGTH_FIELD, 5)
+                .add(GridFs.CHUNK_SIZE_FIELD, 4)
+                .add(GridFs.MD5_FIELD, md5(1, 2, 3, 4, 5));
+
+        final MongoDatabase mockDb = createMock(MongoDatabase.class);
+        final MongoCollection mockFiles = createMock(MongoCollection.class);
+        final MongoCollection mockChunks = createMock(MongoCollection.class);
+        final MongoIterator<Document> mockIter = createMock(MongoIterator.class);
+
+        expect(mockDb.getCollection("fs" + GridFs.FILES_SUFFIX)).andReturn(
+                mockFiles);
+        expect(mockDb.getCollection("fs" + GridFs.CHUNKS_SUFFIX)).andReturn(
+                mockChunks);
+
+        mockFiles.findOneAsync(callback(fileResult.build()),
+                anyObject(DocumentAssignable.class));
+        expectLastCall();
+
+        expect(mockChunks.find(anyObject(Find.class))).andReturn(mockIter);
+        expect(mockIter.hasNext()).andReturn(Boolean.TRUE);
+        expect(mockIter.next()).andReturn(
+                BuilderFactory.start()
+                        .addBinary(GridFs.DATA_FIELD, new byte[] { 1, 2, 3, 4 })
+                        .add(GridFs.CHUNK_NUMBER_FIELD, 0).build());
+        expect(mockIter.hasNext()).andReturn(Boolean.TRUE);
+        expect(mockIter.next()).andReturn(
+                BuilderFactory.start()
+                        .addBinary(GridFs.DATA_FIELD, new byte[] { 5 })
+                        .add(GridFs.CHUNK_NUMBER_FIELD, 1).build());
+        expect(mockIter.hasNext()).andReturn(Boolean.FALSE);
+        mockIter.close();
+        expectLastCall();
+
+        replay(mockDb, mockFiles, mockChunks, mockIter);
+
+        final QueuedExecutor executor = new QueuedExecutor();
+        final AsyncGridFs fs = new AsyncGridFs(mockDb);
+        fs.setExecutor(executor);
+        assertThat(fs.getExecutor(), is((Executor) executor));
+
+        final ByteArrayOutputStream sink = new ByteArrayOutputStream(5);
+        final ListenableFuture<Long> future = fs.read("foo", sink);
+
+        // Nothing written until the executor runs.
+        assertThat(future.isDone(), is(false));
+        assertThat(sink.size(), is(0));
+
+        executor.runAll();
+
+        assertThat(future.get(), is(Long.valueOf(5)));
+        assertArrayEquals(new byte[] { 1, 2, 3, 4, 5 }, sink.toByteArray());
+
+        verify(mockDb, mockFiles, mockChunks, mockIter);
+    }
+
+    /**
+     * Test method for {@link AsyncGridFs#read(ObjectId, java.io.OutputStream)}
+     * .
+     *
+     * @throws InterruptedException
+     *             On an error.
+     */
+    @Test
+    public void testReadNotFound() throws InterruptedException {
+        final MongoDatabase mockDb = createMock(MongoDatabase.class);
+        final MongoCollection mockFiles = createMock(MongoCollection.class);
+        final MongoCollection mockChunks = createMock(MongoCollection.class);
+
+        expect(mockDb.getCollection("fs" + GridFs.FILES_SUFFIX)).andReturn(
+                mockFiles);
+        expect(mockDb.getCollection("fs" + GridFs.CHUNKS_SUFFIX)).andReturn(
+                mockChunks);
+
+        mockFiles.findOneAsync(anyObject(Callback.class),
+                anyObject(DocumentAssignable.class));
+        expectLastCall().andAnswer(new NullDocumentAnswer());
+
+        replay(mockDb, mockFiles, mockChunks);
+
+        final AsyncGridFs fs = new AsyncGridFs(mockDb);
+        final ListenableFuture<Long> future = fs.read(new ObjectId(),
+                new ByteArrayOutputStream());
+        try {
+            future.get();
+            fail("Read should have failed.");
+        }
+        catch (final ExecutionException good) {
+            assertThat(good.getCause(), instanceOf(FileNotFoundException.class));
+        }
+
+        verify(mockDb, mockFiles, mockChunks);
+    }
+
+    /**
+     * Test method for {@link AsyncGridFs#read(String, java.io.OutputStream)}.
+     *
+     * @throws InterruptedException
+     *             On an error.
+     */
+    @Test
+    public void testReadSkippedChunk() throws InterruptedException {
+        final byte[][] data = new byte[][] { { 5, 6, 7, 8 } };
+
+        final DocumentBuilder fileResult = BuilderFactory.start();
+        fileResult.addString("_id", "id").add(GridFs.LENGTH_FIELD, 8)
+                .add(GridFs.CHUNK_SIZE_FIELD, 4);
+
+        final MongoDatabase mockDb = createMock(MongoDatabase.class);
+        final MongoCollection mockFiles = createMock(MongoCollection.class);
+        final MongoCollection mockChunks = createMock(MongoCollection.class);
+
+        expect(mockDb.getCollection("fs" + GridFs.FILES_SUFFIX)).andReturn(
+                mockFiles);
+        expect(mockDb.getCollection("fs" + GridFs.CHUNKS_SUFFIX)).andReturn(
+                mockChunks);
+
+        mockFiles.findOneAsync(callback(fileResult.build()),
+                anyObject(DocumentAssignable.class));
+        expectLastCall();
+
+        expect(
+                mockChunks.stream(anyObject(StreamCallback.class),
+                        anyObject(Find.class))).andAnswer(stream(data, 1));
+
+        replay(mockDb, mockFiles, mockChunks);
+
+        final AsyncGridFs fs = new AsyncGridFs(mockDb);
+        final ListenableFuture<Long> future = fs.read("foo",
+                new ByteArrayOutputStream());
+        try {
+            future.get();
+            fail("Read should have failed.");
+        }
+        catch (final ExecutionException good) {
+            assertThat(good.getCause(), instanceOf(IOException.class));
+            assertThat(good.getCause().getMessage(),
+                    containsString("Skipped chunk"));
+        }
+
+        verify(mockDb, mockFiles, mockChunks);
+    }
+
+    /**
+     * Test method for {@link AsyncGridFs#getChunkSize()} and
+     * {@link AsyncGridFs#getWriteWindow()}.
+     */
+    @Test
+    public void testSettings() {
+        final MongoDatabase mockDb = createMock(MongoDatabase.class);
+
+        expect(mockDb.getCollection("foo" + GridFs.FILES_SUFFIX)).andReturn(
+                null);
+        expect(mockDb.getCollection("foo" + GridFs.CHUNKS_SUFFIX)).andReturn(
+                null);
+
+        replay(mockDb);
+
+        final AsyncGridFs fs = new AsyncGridFs(mockDb, "foo");
+
+        assertThat(fs.getChunkSize(), is(GridFs.DEFAULT_CHUNK_SIZE));
+        fs.setChunkSize(1024);
+        assertThat(fs.getChunkSize(), is(1024));
+
+        assertThat(fs.getWriteWindow(), is(GridFs.DEFAULT_WRITE_WINDOW));
+        fs.setWriteWindow(2);
+        assertThat(fs.getWriteWindow(), is(2));
+
+        verify(mockDb);
+    }
+
+    /**
+     * Test method for {@link AsyncGridFs#unlink(String)}.
+     *
+     * @throws Exception
+     *             On an error.
+     */
+    @Test
+    public void testUnlink() throws Exception {
+        final DocumentBuilder fileResult = BuilderFactory.start();
+        fileResult.addString("_id", "id");
+
+        final MongoDatabase mockDb = createMock(MongoDatabase.class);
+        final MongoCollection mockFiles = createMock(MongoCollection.class);
+        final MongoCollection mockChunks = createMock(MongoCollection.class);
+
+        expect(mockDb.getCollection("fs" + GridFs.FILES_SUFFIX)).andReturn(
+                mockFiles);
+        expect(mockDb.getCollection("fs" + GridFs.CHUNKS_SUFFIX)).andReturn(
+                mockChunks);
+
+        mockFiles.findOneAsync(callback(fileResult.build()),
+                anyObject(DocumentAssignable.class));
+        expectLastCall();
+
+        mockChunks.deleteAsync(callback(Long.valueOf(3)),
+                eq(BuilderFactory.start()
+                        .addString(GridFs.FILES_ID_FIELD, "id").build()));
+        expectLastCall();
+        mockFiles.deleteAsync(callback(Long.valueOf(1)),
+                eq(fileResult.build()));
+        expectLastCall();
+
+        replay(mockDb, mockFiles, mockChunks);
+
+        final AsyncGridFs fs = new AsyncGridFs(mockDb);
+        assertThat(fs.unlink("foo").get(), is(Boolean.TRUE));
+
+        verify(mockDb, mockFiles, mockChunks);
+    }
+
+    /**
+     * Test method for {@link AsyncGridFs#unlink(ObjectId)}.
+     *
+     * @throws Exception
+     *             On an error.
+     */
+    @Test
+    public void testUnlinkNotFound() throws Exception {
+        final MongoDatabase mockDb = createMock(MongoDatabase.class);
+        final MongoCollection mockFiles = createMock(MongoCollection.class);
+        final MongoCollection mockChunks = createMock(MongoCollection.class);
+
+        expect(mockDb.getCollection("fs" + GridFs.FILES_SUFFIX)).andReturn(
+                mockFiles);
+        expect(mockDb.getCollection("fs" + GridFs.CHUNKS_SUFFIX)).andReturn(
+                mockChunks);
+
+        mockFiles.findOneAsync(anyObject(Callback.class),
+                anyObject(DocumentAssignable.class));
+        expectLastCall().andAnswer(new NullDocumentAnswer());
+
+        replay(mockDb, mockFiles, mockChunks);
+
+        final AsyncGridFs fs = new AsyncGridFs(mockDb);
+        assertThat(fs.unlink(new ObjectId()).get(), is(Boolean.FALSE));
+
+        verify(mockDb, mockFiles, mockChunks);
+    }
+
+    /**
+     * Test method for {@link AsyncGridFs#validate(String)}.
+     *
+     * @throws Exception
+     *             On an error.
+     */
+    @Test
+    public void testValidate() throws Exception {
+        final DocumentBuilder fileResult = BuilderFactory.start();
+        fileResult.addString("_id", "id").add(GridFs.MD5_FIELD, "abcdef");
+
+        final DocumentBuilder commandDoc = BuilderFactory.start();
+        commandDoc.add("filemd5", "id");
+        commandDoc.add("root", "fs");
+
+        final DocumentBuilder cmdResult = BuilderFactory.start();
+        cmdResult.add("ok", 1).add(GridFs.MD5_FIELD, "abcdef");
+
+        final MongoDatabase mockDb = createMock(MongoDatabase.class);
+        final MongoCollection mockFiles = createMock(MongoCollection.class);
+        final MongoCollection mockChunks = createMock(MongoCollection.class);
+
+        expect(mockDb.getCollection("fs" + GridFs.FILES_SUFFIX)).andReturn(
+                mockFiles);
+        expect(mockDb.getCollection("fs" + GridFs.CHUNKS_SUFFIX)).andReturn(
+                mockChunks);
+
+        mockFiles.findOneAsync(callback(fileResult.build()),
+                anyObject(DocumentAssignable.class));
+        expectLastCall();
+
+        mockDb.runCommandAsync(callback(cmdResult.build()),
+                eq(commandDoc.build()));
+        expectLastCall();
+
+        replay(mockDb, mockFiles, mockChunks);
+
+        final AsyncGridFs fs = new AsyncGridFs(mockDb);
+        assertThat(fs.validate("foo").get(), is(Boolean.TRUE));
+
+        verify(mockDb, mockFiles, mockChunks);
+    }
+
+    /**
+     * Test method for
+     * {@link AsyncGridFs#write(String, java.io.InputStream)}.
+     *
+     * @throws Exception
+     *             On an error.
+     */
+    @Test
+    public void testWrite() throws Exception {
+        final MongoDatabase mockDb = createMock(MongoDatabase.class);
+        final MongoCollection mockFiles = createMock(MongoCollection.class);
+        final MongoCollection mockChunks = createMock(MongoCollection.class);
+
+        expect(mockDb.getCollection("fs" + GridFs.FILES_SUFFIX)).andReturn(
+                mockFiles);
+        expect(mockDb.getCollection("fs" + GridFs.CHUNKS_SUFFIX)).andReturn(
+                mockChunks);
+
+        mockChunks.insertAsync(callback(Integer.valueOf(1)),
+                anyObject(DocumentAssignable.class));
+        expectLastCall().times(3);
+        mockFiles.insertAsync(callback(Integer.valueOf(1)),
+                anyObject(DocumentAssignable.class));
+        expectLastCall();
+
+        replay(mockDb, mockFiles, mockChunks);
+
+        final AsyncGridFs fs = new AsyncGridFs(mockDb);
+        fs.setChunkSize(4);
+        fs.setWriteWindow(0);
+
+        final ListenableFuture<ObjectId> future = fs.write("foo",
+                new ByteArrayInputStream(new byte[9]));
+        assertThat(future.get(), notNullValue());
+
+        verify(mockDb, mockFiles, mockChunks);
+    }
+
+    /**
+     * Test method for
+     * {@link AsyncGridFs#write(String, java.io.InputStream)} with an executor
+     * for the stream I/O.
+     *
+     * @throws Exception
+     *             On an error.
+     */
+    @Test
+    public void testWriteWithExecutor() throws Exception {
+        final MongoDatabase mockDb = createMock(MongoDatabase.class);
+        final MongoCollection mockFiles = createMock(MongoCollection.class);
+        final MongoCollection mockChunks = createMock(MongoCollection.class);
+
+        expect(mockDb.getCollection("fs" + GridFs.FILES_SUFFIX)).andReturn(
+                mockFiles);
+        expect(mockDb.getCollection("fs" + GridFs.CHUNKS_SUFFIX)).andReturn(
+                mockChunks);
+
+        mockChunks.insertAsync(callback(Integer.valueOf(1)),
+                anyObject(DocumentAssignable.class));
+        expectLastCall().times(3);
+        mockFiles.insertAsync(callback(Integer.valueOf(1)),
+                anyObject(DocumentAssignable.class));
+        expectLastCall();
+
+        replay(mockDb, mockFiles, mockChunks);
+
+        final QueuedExecutor executor = new QueuedExecutor();
+        final AsyncGridFs fs = new AsyncGridFs(mockDb);
+        fs.setChunkSize(4);
+        fs.setWriteWindow(2);
+        fs.setExecutor(executor);
+
+        final ByteArrayInputStream source = new ByteArrayInputStream(
+                new byte[9]);
+        final ListenableFuture<ObjectId> future = fs.write("foo", source);
+
+        // Nothing read on the calling thread.
+        assertThat(future.isDone(), is(false));
+        assertThat(source.available(), is(9));
+
+        executor.runAll();
+
+        assertThat(source.available(), is(0));
+        assertThat(future.get(), notNullValue());
+
+        verify(mockDb, mockFiles, mockChunks);
+    }
+
+    /**
+     * Test method for
+     * {@link AsyncGridFs#write(String, java.io.InputStream)}.
+     *
+     * @throws InterruptedException
+     *             On an error.
+     */
+    @Test
+    public void testWriteChunkFails() throws InterruptedException {
+        final MongoDbException error = new MongoDbException("Injected");
+
+        final MongoDatabase mockDb = createMock(MongoDatabase.class);
+        final MongoCollection mockFiles = createMock(MongoCollection.class);
+        final MongoCollection mockChunks = createMock(MongoCollection.class);
+
+        expect(mockDb.getCollection("fs" + GridFs.FILES_SUFFIX)).andReturn(
+                mockFiles);
+        expect(mockDb.getCollection("fs" + GridFs.CHUNKS_SUFFIX)).andReturn(
+                mockChunks);
+
+        mockChunks.insertAsync(callback(Integer.valueOf(1)),
+                anyObject(DocumentAssignable.class));
+        expectLastCall();
+        mockChunks.insertAsync(EasyMock.<Callback<Integer>> anyObject(),
+                anyObject(DocumentAssignable.class));
+        expectLastCall().andThrow(error);
+
+        expect(mockFiles.deleteAsync(anyObject(DocumentAssignable.class)))
+                .andReturn(null);
+        expect(mockChunks.deleteAsync(anyObject(DocumentAssignable.class)))
+                .andReturn(null);
+
+        replay(mockDb, mockFiles, mockChunks);
+
+        final AsyncGridFs fs = new AsyncGridFs(mockDb);
+        fs.setChunkSize(4);
+        fs.setWriteWindow(4);
+
+        final ListenableFuture<ObjectId> future = fs.write("foo",
+                new ByteArrayInputStream(new byte[9]));
+        try {
+            future.get();
+            fail("Write should have failed.");
+        }
+        catch (final ExecutionException good) {
+            assertThat(good.getCause(), is((Throwable) error));
+        }
+
+        verify(mockDb, mockFiles, mockChunks);
+    }
+
+    /**
+     * Computes the hex MD5 of the bytes.
+     *
+     * @param bytes
+     *            The bytes to compute the MD5 for.
+     * @return The hex MD5 of the bytes.
+     * @throws NoSuchAlgorithmException
+     *             On a test failure.
+     */
+    private String md5(final int... bytes) throws NoSuchAlgorithmException {
+        final MessageDigest digest = MessageDigest.getInstance("MD5");
+        for (final int b : bytes) {
+            digest.update((byte) b);
+        }
+        return IOUtils.toHex(digest.digest());
+    }
+
+    /**
+     * Creates an answer that streams the chunks to the {@link StreamCallback}
+     * in the same manner as the cursor.
+     *
+     * @param data
+     *            The data for each chunk.
+     * @param firstChunk
+     *            The chunk number of the first chunk.
+     * @return The answer for the stream request.
+     */
+    private IAnswer<MongoCursorControl> stream(final byte[][] data,
+            final int firstChunk) {
+        return new IAnswer<MongoCursorControl>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public MongoCursorControl answer() {
+                final StreamCallback<Document> results = (StreamCallback<Document>) EasyMock
+                        .getCurrentArguments()[0];
+                try {
+                    for (int n = 0; n < data.length; ++n) {
+                        results.callback(BuilderFactory.start()
+                                .addBinary(GridFs.DATA_FIELD, data[n])
+                                .add(GridFs.CHUNK_NUMBER_FIELD, firstChunk + n)
+                                .build());
+                    }
+                    results.done();
+                }
+                catch (final RuntimeException re) {
+                    results.exception(re);
+                }
+                return null;
+            }
+        };
+    }
+
+    /**
+     * QueuedExecutor provides an executor that queues the tasks until
+     * {@link #runAll()} is called.
+     *
+     * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+     */
+    private static final class QueuedExecutor implements Executor {
+
+        /** The queued tasks. */
+        private final Queue<Runnable> myTasks = new LinkedList<Runnable>();
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to queue the task.
+         * </p>
+         */
+        @Override
+        public void execute(final Runnable command) {
+            myTasks.add(command);
+        }
+
+        /**
+         * Runs the queued tasks, including any queued while running, until
+         * there are no more tasks.
+         */
+        public void runAll() {
+            Runnable task = myTasks.poll();
+            while (task != null) {
+                task.run();
+                task = myTasks.poll();
+            }
+        }
+    }
+
+    /**
+     * NullDocumentAnswer provides a answer that calls the callback with a
+     * <code>null</code> document.
+     *
+     * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+     */
+    private static final class NullDocumentAnswer implements IAnswer<Object> {
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Overridden to call the callback with a <code>null</code> document.
+         * </p>
+         */
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object answer() {
+            ((Callback<Document>) EasyMock.getCurrentArguments()[0])
+                    .callback(null);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * #%L
+ * ChunkCacheTest.java - mongodb-async-driver - Allanbank Consulting, Inc.
+ * %%
+ * Copyright (C) 2011 - 2015 Allanbank Consulting, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package com.allanbank.mongodb.gridfs;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+import com.allanbank.mongodb.bson.element.BinaryElement;
+
+/**
+ * ChunkCacheTest provides tests for the {@link ChunkCache} class.
+ *
+ * @copyright 2015, Allanbank Consulting, Inc., All Rights Reserved
+ */
+public class ChunkCacheTest {
+
+    /**
+     * Test method for {@link ChunkCache#evict(Object)}.
+     */
+    @Test
+    public void testEvict() {
+        final BinaryElement data = new BinaryElement("data", new byte[4]);
+        final ChunkCache cache = new ChunkCache(4);
+
+        cache.put("a", 0, data);
+        cache.put("a", 1, data);
+        cache.put("b", 0, data);
+
+        cache.evict("a");
+
+        assertThat(cache.size(), is(1));
+        assertThat(cache.get("a", 0), nullValue());
+        assertThat(cache.get("a", 1), nullValue());
+        assertThat(cache.get("b", 0), sameInstance(data));
+    }
+
+    /**
+     * Test method for {@link ChunkCache#put(Object, long, BinaryElement)}.
+     */
+    @Test
+    public void testPutEvictsLeastRecentlyUsed() {
+        final BinaryElement data0 = new BinaryElement("data", new byte[1]);
+        final BinaryElement data1 = new BinaryElement("data", new byte[2]);
+        final BinaryElement data2 = new BinaryElement("data", new byte[3]);
+        final ChunkCache cache = new ChunkCache(2);
+
+        cache.put("a", 0, data0);
+        cache.put("a", 1, data1);
+
+        // Touch chunk 0 so chunk 1 is the eldest.
+        assertThat(cache.get("a", 0), sameInstance(data0));
+
+        cache.put("a", 2, data2);
+
+        assertThat(cache.size(), is(2));
+        assertThat(cache.get("a", 0), sameInstance(data0));
+        assertThat(cache.get("a", 1), nullValue());
+        assertThat(cache.get("a", 2), sameInstance(data2));
+    }
+
+    /**
+     * Test method for {@link ChunkCache#setMaxChunks(int)}.
+     */
+    @Test
+    public void testSetMaxChunks() {
+        final BinaryElement data = new BinaryElement("data", new byte[4]);
+        final ChunkCache cache = new ChunkCache(3);
+
+        cache.put("a", 0, data);
+        cache.put("a", 1, data);
+        cache.put("a", 2, data);
+        assertThat(cache.getMaxChunks(), is(3));
+        assertThat(cache.size(), is(3));
+
+        cache.setMaxChunks(1);
+        assertThat(cache.getMaxChunks(), is(1));
+        assertThat(cache.size(), is(1));
+        assertThat(cache.get("a", 2), sameInstance(data));
+
+        cache.setMaxChunks(0);
+        assertThat(cache.size(), is(0));
+
+        cache.put("a", 3, data);
+        assertThat(cache.size(), is(0));
+        assertThat(cache.get("a", 3), nullValue());
+    }
+}
@@ -42,6 +42,8 @@ import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InterruptedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
@@ -66,6 +68,7 @@ import com.allanbank.mongodb.bson.element.StringElement;
 import com.allanbank.mongodb.builder.Find;
 import com.allanbank.mongodb.builder.Index;
 import com.allanbank.mongodb.client.FutureCallback;
+import com.allanbank.mongodb.util.IOUtils;
 
 /**
  * GridFsTest provides tests for the {@link GridFs} class.
@@ -187,6 +190,27 @@ public class GridFsTest {
                         Arrays.asList("Help.", "Still not good.")), faults);
     }
 
+    /**
+     * Test method for {@link GridFs#getReadAhead()},
+     * {@link GridFs#getWriteWindow()} and {@link GridFs#getChunkCacheSize()}.
+     */
+    @Test
+    public void testPipelineSettings() {
+        final GridFs fs = new GridFs("mongodb://localhost:27017/foo");
+
+        assertEquals(GridFs.DEFAULT_READ_AHEAD, fs.getReadAhead());
+        fs.setReadAhead(4);
+        assertEquals(4, fs.getReadAhead());
+
+        assertEquals(GridFs.DEFAULT_WRITE_WINDOW, fs.getWriteWindow());
+        fs.setWriteWindow(2);
+        assertEquals(2, fs.getWriteWindow());
+
+        assertEquals(GridFs.DEFAULT_CHUNK_CACHE_SIZE, fs.getChunkCacheSize());
+        fs.setChunkCacheSize(0);
+        assertEquals(0, fs.getChunkCacheSize());
+    }
+
     /**
      * Test method for {@link GridFs#read}.
      *
@@ -712,6 +736,129 @@ public class GridFsTest {
                 mockChunkIterator);
     }
 
+    /**
+     * Test method for {@link GridFs#fsck(boolean)} evicting the file's cached
+     * chunks once they are reordered.
+     *
+     * @throws IOException
+     *             On an error.
+     */
+    @SuppressWarnings({ "boxing", "unchecked" })
+    @Test
+    public void testFsckMd5RepairEvictsCachedChunks() throws IOException {
+        final DocumentBuilder fileResult = BuilderFactory.start();
+        fileResult.addString("_id", "id").add(GridFs.LENGTH_FIELD, 4)
+                .add(GridFs.CHUNK_SIZE_FIELD, 1024)
+                .add(GridFs.MD5_FIELD, "08d6c05a21512a79a1dfeb9d2a8f262f");
+
+        final DocumentBuilder commandDoc = BuilderFactory.start();
+        commandDoc.add("filemd5", "id");
+        commandDoc.add("root", "fs");
+
+        final DocumentBuilder cmdResult = BuilderFactory.start();
+        cmdResult.add("ok", 1).add(GridFs.MD5_FIELD, "123456");
+
+        final DocumentBuilder fixedCmdResult = BuilderFactory.start();
+        fixedCmdResult.add("ok", 1).add(GridFs.MD5_FIELD,
+                "08d6c05a21512a79a1dfeb9d2a8f262f");
+
+        final ObjectId chunkId = new ObjectId();
+        final DocumentBuilder chunkResult = BuilderFactory.start();
+        chunkResult.add("_id", chunkId)
+                .addBinary("data", new byte[] { 1, 2, 3, 4 })
+                .add(GridFs.CHUNK_NUMBER_FIELD, 0);
+
+        final MongoDatabase mockDb = createMock(MongoDatabase.class);
+        final MongoCollection mockFiles = createMock(MongoCollection.class);
+        final MongoCollection mockChunks = createMock(MongoCollection.class);
+        final MongoIterator<Document> mockFileIterator = createMock(MongoIterator.class);
+        final MongoIterator<Document> mockChunkIterator = createMock(MongoIterator.class);
+        final MongoIterator<Document> mockReadIterator = createMock(MongoIterator.class);
+
+        expect(mockDb.getCollection("fs" + GridFs.FILES_SUFFIX)).andReturn(
+                mockFiles);
+        expect(mockDb.getCollection("fs" + GridFs.CHUNKS_SUFFIX)).andReturn(
+                mockChunks);
+
+        mockFiles.createIndex(true, Index.asc(GridFs.FILENAME_FIELD),
+                Index.asc(GridFs.UPLOAD_DATE_FIELD));
+        expectLastCall();
+        mockChunks.createIndex(true, Index.asc(GridFs.FILES_ID_FIELD),
+                Index.asc(GridFs.CHUNK_NUMBER_FIELD));
+        expectLastCall();
+
+        // Both reads fetch the chunk since the repair evicts the cached
+        // chunk between them.
+        expect(mockFiles.findOne(anyObject(DocumentAssignable.class)))
+                .andReturn(fileResult.build()).times(2);
+        expect(mockChunks.find(anyObject(Find.class))).andReturn(
+                mockReadIterator).times(2);
+        expect(mockReadIterator.iterator()).andReturn(mockReadIterator)
+                .times(2);
+        expect(mockReadIterator.hasNext()).andReturn(Boolean.TRUE);
+        expect(mockReadIterator.next()).andReturn(
+                BuilderFactory.start()
+                        .addBinary(GridFs.DATA_FIELD, new byte[] { 4, 3, 2, 1 })
+                        .add(GridFs.CHUNK_NUMBER_FIELD, 0).build());
+        expect(mockReadIterator.hasNext()).andReturn(Boolean.FALSE);
+        expect(mockReadIterator.hasNext()).andReturn(Boolean.TRUE);
+        expect(mockReadIterator.next()).andReturn(chunkResult.build());
+        expect(mockReadIterator.hasNext()).andReturn(Boolean.FALSE);
+        mockReadIterator.close();
+        expectLastCall().times(2);
+
+        expect(mockFiles.find(Find.ALL)).andReturn(mockFileIterator);
+        expect(mockFileIterator.iterator()).andReturn(mockFileIterator);
+        expect(mockFileIterator.hasNext()).andReturn(Boolean.TRUE);
+        expect(mockFileIterator.next()).andReturn(fileResult.build());
+
+        expect(mockDb.runCommand(commandDoc.build())).andReturn(
+                cmdResult.build());
+
+        expect(mockChunks.find(anyObject(Find.Builder.class))).andReturn(
+                mockChunkIterator);
+        expect(mockChunkIterator.iterator()).andReturn(mockChunkIterator);
+        expect(mockChunkIterator.hasNext()).andReturn(Boolean.TRUE);
+        expect(mockChunkIterator.next()).andReturn(chunkResult.build());
+        expect(mockChunkIterator.hasNext()).andReturn(Boolean.FALSE);
+        mockChunkIterator.close();
+        expectLastCall();
+
+        final DocumentBuilder update = BuilderFactory.start();
+        update.push("$set").add(GridFs.CHUNK_NUMBER_FIELD, 0);
+        expect(
+                mockChunks.update(eq(BuilderFactory.start().add("_id", chunkId)
+                        .add(GridFs.FILES_ID_FIELD, "id").build()),
+                        eq(update.build()), eq(true), eq(false),
+                        eq(Durability.ACK))).andReturn(1L);
+
+        expect(mockDb.runCommand(commandDoc.build())).andReturn(
+                fixedCmdResult.build());
+
+        expect(mockFileIterator.hasNext()).andReturn(Boolean.FALSE);
+        mockFileIterator.close();
+        expectLastCall();
+
+        replay(mockDb, mockFiles, mockChunks, mockFileIterator,
+                mockChunkIterator, mockReadIterator);
+
+        final GridFs fs = new GridFs(mockDb);
+
+        final ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        assertThat(fs.read("foo", 0, 4, sink), is(4L));
+        assertArrayEquals(new byte[] { 4, 3, 2, 1 }, sink.toByteArray());
+
+        final Map<Object, List<String>> results = fs.fsck(true);
+        assertThat(results.get("id").get(1), is("File repaired."));
+
+        sink.reset();
+        assertThat(fs.read("foo", 0, 4, sink), is(4L));
+        assertArrayEquals(new byte[] { 1, 2, 3, 4 }, sink.toByteArray());
+
+        verify(mockDb, mockFiles, mockChunks, mockFileIterator,
+                mockChunkIterator, mockReadIterator);
+    }
+
     /**
      * Test method for {@link GridFs#read}.
      *
@@ -910,6 +1057,113 @@ public class GridFsTest {
         verify(mockDb, mockFiles, mockChunks, mockIterator);
     }
 
+    /**
+     * Test method for {@link GridFs#read} with read ahead.
+     *
+     * @throws IOException
+     *             On an error.
+     */
+    @Test
+    public void testReadAhead() throws IOException {
+        final DocumentBuilder fileResult = BuilderFactory.start();
+        fileResult.addString("_id", "id").add(GridFs.LENGTH_FIELD, 9)
+                .add(GridFs.CHUNK_SIZE_FIELD, 4);
+
+        final MongoDatabase mockDb = createMock(MongoDatabase.class);
+        final MongoCollection mockFiles = createMock(MongoCollection.class);
+        final MongoCollection mockChunks = createMock(MongoCollection.class);
+
+        expect(mockDb.getCollection("fs" + GridFs.FILES_SUFFIX)).andReturn(
+                mockFiles);
+        expect(mockDb.getCollection("fs" + GridFs.CHUNKS_SUFFIX)).andReturn(
+                mockChunks);
+
+        expect(mockFiles.findOne(anyObject(DocumentAssignable.class)))
+                .andReturn(fileResult.build());
+
+        final byte[][] data = new byte[][] { { 1, 2, 3, 4 }, { 5, 6, 7, 8 },
+                { 9 } };
+        for (int n = 0; n < data.length; ++n) {
+            final DocumentBuilder query = BuilderFactory.start();
+            query.addString(GridFs.FILES_ID_FIELD, "id").add(
+                    GridFs.CHUNK_NUMBER_FIELD, n);
+
+            final FutureCallback<Document> future = new FutureCallback<Document>();
+            future.callback(BuilderFactory.start()
+                    .addBinary(GridFs.DATA_FIELD, data[n])
+                    .add(GridFs.CHUNK_NUMBER_FIELD, n).build());
+
+            expect(mockChunks.findOneAsync(query.build())).andReturn(future);
+        }
+
+        replay(mockDb, mockFiles, mockChunks);
+
+        final GridFs fs = new GridFs(mockDb);
+        fs.setReadAhead(2);
+
+        final ByteArrayOutputStream sink = new ByteArrayOutputStream(9);
+        fs.read("foo", sink);
+        assertArrayEquals(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9 },
+                sink.toByteArray());
+
+        verify(mockDb, mockFiles, mockChunks);
+    }
+
+    /**
+     * Test method for {@link GridFs#read} with read ahead.
+     *
+     * @throws IOException
+     *             On an error.
+     */
+    @Test
+    public void testReadAheadMissingChunk() throws IOException {
+        final DocumentBuilder fileResult = BuilderFactory.start();
+        fileResult.addString("_id", "id").add(GridFs.LENGTH_FIELD, 8)
+                .add(GridFs.CHUNK_SIZE_FIELD, 4);
+
+        final MongoDatabase mockDb = createMock(MongoDatabase.class);
+        final MongoCollection mockFiles = createMock(MongoCollection.class);
+        final MongoCollection mockChunks = createMock(MongoCollection.class);
+
+        expect(mockDb.getCollection("fs" + GridFs.FILES_SUFFIX)).andReturn(
+                mockFiles);
+        expect(mockDb.getCollection("fs" + GridFs.CHUNKS_SUFFIX)).andReturn(
+                mockChunks);
+
+        expect(mockFiles.findOne(anyObject(DocumentAssignable.class)))
+                .andReturn(fileResult.build());
+
+        final FutureCallback<Document> future1 = new FutureCallback<Document>();
+        future1.callback(BuilderFactory.start()
+                .addBinary(GridFs.DATA_FIELD, new byte[] { 1, 2, 3, 4 })
+                .add(GridFs.CHUNK_NUMBER_FIELD, 0).build());
+        final FutureCallback<Document> future2 = new FutureCallback<Document>();
+        future2.callback(null);
+
+        expect(mockChunks.findOneAsync(anyObject(DocumentAssignable.class)))
+                .andReturn(future1);
+        expect(mockChunks.findOneAsync(anyObject(DocumentAssignable.class)))
+                .andReturn(future2);
+
+        replay(mockDb, mockFiles, mockChunks);
+
+        final GridFs fs = new GridFs(mockDb);
+        fs.setReadAhead(4);
+
+        final ByteArrayOutputStream sink = new ByteArrayOutputStream(8);
+        try {
+            fs.read("foo", sink);
+            fail("Read should have failed.");
+        }
+        catch (final IOException ioe) {
+            // Good.
+            assertThat(ioe.getMessage(),
+                    containsString("Missing chunk number '2' of '2'"));
+        }
+
+        verify(mockDb, mockFiles, mockChunks);
+    }
+
     /**
      * Test method for {@link GridFs#read}.
      *
@@ -963,6 +1217,71 @@ public class GridFsTest {
         verify(mockDb, mockFiles, mockChunks, mockIterator);
     }
 
+    /**
+     * Test method for {@link GridFs#read} verifying the MD5 for the file.
+     *
+     * @throws IOException
+     *             On an error.
+     * @throws NoSuchAlgorithmException
+     *             On a failure to create the MD5 digest.
+     */
+    @SuppressWarnings({ "boxing", "unchecked" })
+    @Test
+    public void testReadMd5() throws IOException, NoSuchAlgorithmException {
+        final byte[] data = new byte[] { 1, 2, 3, 4 };
+        final String md5 = IOUtils.toHex(MessageDigest.getInstance("MD5")
+                .digest(data));
+
+        for (final String fileMd5 : Arrays.asList(md5, "0123456789abcdef")) {
+            final DocumentBuilder fileResult = BuilderFactory.start();
+            fileResult.addString("_id", "id").add(GridFs.LENGTH_FIELD, 4)
+                    .add(GridFs.CHUNK_SIZE_FIELD, 1024)
+                    .add(GridFs.MD5_FIELD, fileMd5);
+
+            final DocumentBuilder chunkResult = BuilderFactory.start();
+            chunkResult.addBinary("data", data).add(GridFs.CHUNK_NUMBER_FIELD,
+                    0);
+
+            final MongoDatabase mockDb = createMock(MongoDatabase.class);
+            final MongoCollection mockFiles = createMock(MongoCollection.class);
+            final MongoCollection mockChunks = createMock(MongoCollection.class);
+            final MongoIterator<Document> mockIterator = createMock(MongoIterator.class);
+
+            expect(mockDb.getCollection("fs" + GridFs.FILES_SUFFIX))
+                    .andReturn(mockFiles);
+            expect(mockDb.getCollection("fs" + GridFs.CHUNKS_SUFFIX))
+                    .andReturn(mockChunks);
+
+            expect(mockFiles.findOne(anyObject(DocumentAssignable.class)))
+                    .andReturn(fileResult.build());
+
+            expect(mockChunks.find(anyObject(Find.class))).andReturn(
+                    mockIterator);
+            expect(mockIterator.iterator()).andReturn(mockIterator);
+            expect(mockIterator.hasNext()).andReturn(Boolean.TRUE);
+            expect(mockIterator.next()).andReturn(chunkResult.build());
+            expect(mockIterator.hasNext()).andReturn(Boolean.FALSE);
+            mockIterator.close();
+            expectLastCall();
+
+            replay(mockDb, mockFiles, mockChunks, mockIterator);
+
+            final GridFs fs = new GridFs(mockDb);
+            final ByteArrayOutputStream sink = new ByteArrayOutputStream(4);
+            try {
+                fs.read("foo", sink);
+                assertEquals(md5, fileMd5);
+            }
+            catch (final IOException ioe) {
+                assertThat(ioe.getMessage(), containsString("MD5 mismatch"));
+                assertThat(fileMd5, is("0123456789abcdef"));
+            }
+            assertArrayEquals(data, sink.toByteArray());
+
+            verify(mockDb, mockFiles, mockChunks, mockIterator);
+        }
+    }
+
     /**
      * Test method for {@link GridFs#read}.
      *
@@ -1340,6 +1659,212 @@ public class GridFsTest {
         verify(mockDb, mockFiles, mockChunks, mockIterator);
     }
 
+    /**
+     * Test method for
+     * {@link GridFs#read(String, long, long, java.io.OutputStream)}.
+     *
+     * @throws IOException
+     *             On an error.
+     */
+    @SuppressWarnings({ "boxing", "unchecked" })
+    @Test
+    public void testReadRange() throws IOException {
+        final DocumentBuilder fileResult = BuilderFactory.start();
+        fileResult.addString("_id", "id").add(GridFs.LENGTH_FIELD, 10)
+                .add(GridFs.CHUNK_SIZE_FIELD, 4);
+
+        final MongoDatabase mockDb = createMock(MongoDatabase.class);
+        final MongoCollection mockFiles = createMock(MongoCollection.class);
+        final MongoCollection mockChunks = createMock(MongoCollection.class);
+        final MongoIterator<Document> mockIterator = createMock(MongoIterator.class);
+
+        expect(mockDb.getCollection("fs" + GridFs.FILES_SUFFIX)).andReturn(
+                mockFiles);
+        expect(mockDb.getCollection("fs" + GridFs.CHUNKS_SUFFIX)).andReturn(
+                mockChunks);
+
+        // First read only reads chunks 1 and 2.
+        expect(mockFiles.findOne(anyObject(DocumentAssignable.class)))
+                .andReturn(fileResult.build());
+        expect(mockChunks.find(anyObject(Find.class))).andReturn(mockIterator);
+        expect(mockIterator.iterator()).andReturn(mockIterator);
+        expect(mockIterator.hasNext()).andReturn(Boolean.TRUE);
+        expect(mockIterator.next()).andReturn(
+                BuilderFactory.start()
+                        .addBinary(GridFs.DATA_FIELD, new byte[] { 5, 6, 7, 8 })
+                        .add(GridFs.CHUNK_NUMBER_FIELD, 1).build());
+        expect(mockIterator.hasNext()).andReturn(Boolean.TRUE);
+        expect(mockIterator.next()).andReturn(
+                BuilderFactory.start()
+                        .addBinary(GridFs.DATA_FIELD, new byte[] { 9, 10 })
+                        .add(GridFs.CHUNK_NUMBER_FIELD, 2).build());
+        expect(mockIterator.hasNext()).andReturn(Boolean.FALSE);
+        mockIterator.close();
+        expectLastCall();
+
+        // Second read is served from the cache.
+        expect(mockFiles.findOne(anyObject(DocumentAssignable.class)))
+                .andReturn(fileResult.build());
+
+        replay(mockDb, mockFiles, mockChunks, mockIterator);
+
+        final GridFs fs = new GridFs(mockDb);
+
+        final ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        assertThat(fs.read("foo", 5, 100, sink), is(5L));
+        assertArrayEquals(new byte[] { 6, 7, 8, 9, 10 }, sink.toByteArray());
+
+        sink.reset();
+        assertThat(fs.read("foo", 7, 2, sink), is(2L));
+        assertArrayEquals(new byte[] { 8, 9 }, sink.toByteArray());
+
+        verify(mockDb, mockFiles, mockChunks, mockIterator);
+    }
+
+    /**
+     * Test method for
+     * {@link GridFs#read(ObjectId, long, long, java.io.OutputStream)}.
+     *
+     * @throws IOException
+     *             On an error.
+     */
+    @Test
+    public void testReadRangeBeyondEnd() throws IOException {
+        final ObjectId id = new ObjectId();
+        final DocumentBuilder fileResult = BuilderFactory.start();
+        fileResult.add("_id", id).add(GridFs.LENGTH_FIELD, 10)
+                .add(GridFs.CHUNK_SIZE_FIELD, 4);
+
+        final MongoDatabase mockDb = createMock(MongoDatabase.class);
+        final MongoCollection mockFiles = createMock(MongoCollection.class);
+        final MongoCollection mockChunks = createMock(MongoCollection.class);
+
+        expect(mockDb.getCollection("fs" + GridFs.FILES_SUFFIX)).andReturn(
+                mockFiles);
+        expect(mockDb.getCollection("fs" + GridFs.CHUNKS_SUFFIX)).andReturn(
+                mockChunks);
+
+        expect(mockFiles.findOne(anyObject(DocumentAssignable.class)))
+                .andReturn(fileResult.build()).times(2);
+
+        replay(mockDb, mockFiles, mockChunks);
+
+        final GridFs fs = new GridFs(mockDb);
+
+        final ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        assertThat(fs.read(id, 10, 100, sink), is(0L));
+        assertThat(fs.read(id, 2, 0, sink), is(0L));
+        assertThat(sink.size(), is(0));
+
+        verify(mockDb, mockFiles, mockChunks);
+    }
+
+    /**
+     * Test method for
+     * {@link GridFs#read(String, long, long, java.io.OutputStream)}.
+     *
+     * @throws IOException
+     *             On an error.
+     */
+    @Test
+    public void testReadRangeInvalid() throws IOException {
+        final DocumentBuilder fileResult = BuilderFactory.start();
+        fileResult.addString("_id", "id").add(GridFs.LENGTH_FIELD, 10);
+
+        final MongoDatabase mockDb = createMock(MongoDatabase.class);
+        final MongoCollection mockFiles = createMock(MongoCollection.class);
+        final MongoCollection mockChunks = createMock(MongoCollection.class);
+
+        expect(mockDb.getCollection("fs" + GridFs.FILES_SUFFIX)).andReturn(
+                mockFiles);
+        expect(mockDb.getCollection("fs" + GridFs.CHUNKS_SUFFIX)).andReturn(
+                mockChunks);
+
+        expect(mockFiles.findOne(anyObject(DocumentAssignable.class)))
+                .andReturn(fileResult.build()).times(3);
+
+        replay(mockDb, mockFiles, mockChunks);
+
+        final GridFs fs = new GridFs(mockDb);
+        final ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        try {
+            fs.read("foo", -1, 2, sink);
+            fail("Read should have failed.");
+        }
+        catch (final IllegalArgumentException good) {
+            // Good.
+        }
+        try {
+            fs.read("foo", 1, -2, sink);
+            fail("Read should have failed.");
+        }
+        catch (final IllegalArgumentException good) {
+            // Good.
+        }
+        try {
+            fs.read("foo", 1, 2, sink);
+            fail("Read should have failed.");
+        }
+        catch (final IOException good) {
+            // Good. No chunk size.
+            assertThat(good.getMessage(), containsString("chunk size"));
+        }
+
+        verify(mockDb, mockFiles, mockChunks);
+    }
+
+    /**
+     * Test method for
+     * {@link GridFs#read(String, long, long, java.io.OutputStream)}.
+     *
+     * @throws IOException
+     *             On an error.
+     */
+    @SuppressWarnings({ "boxing", "unchecked" })
+    @Test
+    public void testReadRangeMissingChunk() throws IOException {
+        final DocumentBuilder fileResult = BuilderFactory.start();
+        fileResult.addString("_id", "id").add(GridFs.LENGTH_FIELD, 10)
+                .add(GridFs.CHUNK_SIZE_FIELD, 4);
+
+        final MongoDatabase mockDb = createMock(MongoDatabase.class);
+        final MongoCollection mockFiles = createMock(MongoCollection.class);
+        final MongoCollection mockChunks = createMock(MongoCollection.class);
+        final MongoIterator<Document> mockIterator = createMock(MongoIterator.class);
+
+        expect(mockDb.getCollection("fs" + GridFs.FILES_SUFFIX)).andReturn(
+                mockFiles);
+        expect(mockDb.getCollection("fs" + GridFs.CHUNKS_SUFFIX)).andReturn(
+                mockChunks);
+
+        expect(mockFiles.findOne(anyObject(DocumentAssignable.class)))
+                .andReturn(fileResult.build());
+        expect(mockChunks.find(anyObject(Find.class))).andReturn(mockIterator);
+        expect(mockIterator.iterator()).andReturn(mockIterator);
+        expect(mockIterator.hasNext()).andReturn(Boolean.TRUE);
+        expect(mockIterator.next()).andReturn(
+                BuilderFactory.start()
+                        .addBinary(GridFs.DATA_FIELD, new byte[] { 1, 2, 3, 4 })
+                        .add(GridFs.CHUNK_NUMBER_FIELD, 0).build());
+        expect(mockIterator.hasNext()).andReturn(Boolean.FALSE);
+        mockIterator.close();
+        expectLastCall();
+
+        replay(mockDb, mockFiles, mockChunks, mockIterator);
+
+        final GridFs fs = new GridFs(mockDb);
+        final ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        try {
+            fs.read("foo", 2, 4, sink);
+            fail("Read should have failed.");
+        }
+        catch (final IOException good) {
+            assertThat(good.getMessage(), containsString("Missing chunk"));
+        }
+
+        verify(mockDb, mockFiles, mockChunks, mockIterator);
+    }
+
     /**
      * Test method for {@link GridFs#read}.
      *
@@ -2206,6 +2731,57 @@ public class GridFsTest {
         verify(mockDb, mockFiles, mockChunks);
     }
 
+    /**
+     * Test method for {@link GridFs#write} waiting for the oldest chunk once
+     * the write window is full.
+     *
+     * @throws IOException
+     *             On an error.
+     */
+    @SuppressWarnings("boxing")
+    @Test
+    public void testWriteWindowFull() throws IOException {
+        final RuntimeException thrown = new RuntimeException();
+
+        final MongoDatabase mockDb = createMock(MongoDatabase.class);
+        final MongoCollection mockFiles = createMock(MongoCollection.class);
+        final MongoCollection mockChunks = createMock(MongoCollection.class);
+        final FutureCallback<Integer> futureChunks = new FutureCallback<Integer>();
+        futureChunks.exception(thrown);
+
+        expect(mockDb.getCollection("fs" + GridFs.FILES_SUFFIX)).andReturn(
+                mockFiles);
+        expect(mockDb.getCollection("fs" + GridFs.CHUNKS_SUFFIX)).andReturn(
+                mockChunks);
+
+        // Only the first chunk is sent before the failure is seen.
+        expect(mockChunks.insertAsync(anyObject(DocumentAssignable.class)))
+                .andReturn(futureChunks);
+
+        expect(mockChunks.delete(anyObject(DocumentAssignable.class)))
+                .andReturn(0L);
+        expect(mockFiles.delete(anyObject(DocumentAssignable.class)))
+                .andReturn(0L);
+
+        replay(mockDb, mockFiles, mockChunks);
+
+        final GridFs fs = new GridFs(mockDb);
+        fs.setChunkSize(4);
+        fs.setWriteWindow(1);
+
+        final ByteArrayInputStream in = new ByteArrayInputStream(new byte[] {
+                1, 2, 3, 4, 5, 6, 7, 8, 9 });
+        try {
+            fs.write("foo", in);
+            fail("Should have thrown an exception.");
+        }
+        catch (final IOException error) {
+            // Good.
+            assertSame(thrown, error.getCause());
+        }
+        verify(mockDb, mockFiles, mockChunks);
+    }
+
     /**
      * Test method for {@link GridFs#write}.
      *